@@ -48,6 +48,10 @@ public interface LedgerOffloaderStats extends AutoCloseable {
 
     void recordReadOffloadDataLatency(String topic, long latency, TimeUnit unit);
 
+    void recordReadOffloadCacheHit(String topic, long size);
+
+    void recordReadOffloadCacheMiss(String topic);
+
     void recordDeleteOffloadOps(String topic, boolean succeed);
 
 
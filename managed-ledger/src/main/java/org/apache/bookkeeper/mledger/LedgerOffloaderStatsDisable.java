@@ -68,6 +68,16 @@ public class LedgerOffloaderStatsDisable implements LedgerOffloaderStats {
 
     }
 
+    @Override
+    public void recordReadOffloadCacheHit(String topic, long size) {
+
+    }
+
+    @Override
+    public void recordReadOffloadCacheMiss(String topic) {
+
+    }
+
     @Override
     public void recordDeleteOffloadOps(String topic, boolean succeed) {
 
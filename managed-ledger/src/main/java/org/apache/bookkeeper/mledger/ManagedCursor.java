@@ -19,6 +19,7 @@
 package org.apache.bookkeeper.mledger;
 
 import com.google.common.collect.Range;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -491,6 +492,31 @@ public interface ManagedCursor {
      */
     void asyncDelete(Iterable<Position> position, DeleteCallback callback, Object ctx);
 
+    /**
+     * Delete ranges of entries asynchronously.
+     *
+     * <p/>Same as {@link #asyncDelete(Iterable, DeleteCallback, Object)}, for the closed ranges of consecutive entries
+     * of a same ledger, without a position for each entry.
+     *
+     * @param ranges
+     *            the closed ranges of the entries to be deleted, each range within a single ledger
+     * @param callback
+     *            callback object
+     * @param ctx
+     *            opaque context
+     */
+    default void asyncDeleteRanges(List<Range<Position>> ranges, DeleteCallback callback, Object ctx) {
+        List<Position> positions = new ArrayList<>();
+        for (Range<Position> range : ranges) {
+            long ledgerId = range.lowerEndpoint().getLedgerId();
+            for (long entryId = range.lowerEndpoint().getEntryId(); entryId <= range.upperEndpoint().getEntryId();
+                 entryId++) {
+                positions.add(PositionFactory.create(ledgerId, entryId));
+            }
+        }
+        asyncDelete(positions, callback, ctx);
+    }
+
     /**
      * Get the read position. This points to the next message to be read from the cursor.
      *
@@ -100,4 +100,21 @@ public interface ManagedCursorMXBean {
      */
     long getReadCursorLedgerSize();
 
+    /**
+     * Record a read of the cursor while it is reading ahead.
+     *
+     * @param hit whether the read was served by the entries read ahead
+     */
+    void recordReadAhead(boolean hit);
+
+    /**
+     * @return the number of reads served by the entries read ahead
+     */
+    long getReadAheadHits();
+
+    /**
+     * @return the number of reads that had to wait for the storage while the cursor was reading ahead
+     */
+    long getReadAheadMisses();
+
 }
@@ -34,6 +34,7 @@ import org.apache.bookkeeper.mledger.impl.NullLedgerOffloader;
 import org.apache.bookkeeper.mledger.intercept.ManagedLedgerInterceptor;
 import org.apache.commons.collections4.MapUtils;
 import org.apache.pulsar.common.util.collections.OpenLongPairRangeSet;
+import org.apache.pulsar.common.util.collections.RunLengthLongPairRangeSet;
 
 /**
  * Configuration class for a ManagedLedger.
@@ -72,6 +73,7 @@ public class ManagedLedgerConfig {
     private DigestType digestType = DigestType.CRC32C;
     private byte[] password = "".getBytes(StandardCharsets.UTF_8);
     private boolean unackedRangesOpenCacheSetEnabled = true;
+    private boolean unackedRangesRunLengthSetEnabled = false;
     private Class<? extends EnsemblePlacementPolicy>  bookKeeperEnsemblePlacementPolicyClassName;
     private Map<String, Object> bookKeeperEnsemblePlacementPolicyProperties;
     private LedgerOffloader ledgerOffloader = NullLedgerOffloader.INSTANCE;
@@ -87,6 +89,11 @@ public class ManagedLedgerConfig {
     private int minimumBacklogCursorsForCaching = 0;
     private int minimumBacklogEntriesForCaching = 1000;
     private int maxBacklogBetweenCursorsForCaching = 1000;
+    private int minimumCursorsForCoalescedReads = 0;
+    private int maxDistanceBetweenCursorsForCoalescedReads = 1000;
+    private int maxEntriesPerCoalescedRead = 500;
+    private int cursorReadAheadMaxBatches = 0;
+    private int cursorLedgerMaxDeltasBetweenSnapshots = 0;
     private boolean triggerOffloadOnTopicLoad = false;
     @Getter
     @Setter
@@ -305,6 +312,21 @@ public class ManagedLedgerConfig {
         return this;
     }
 
+    /**
+     * should use {@link RunLengthLongPairRangeSet} instead of {@link OpenLongPairRangeSet} to store unacked ranges.
+     * Only effective when {@link #isUnackedRangesOpenCacheSetEnabled()} is true. The run-length set keeps at most
+     * {@link #getMaxUnackedRangesToPersist()} ranges.
+     * @return
+     */
+    public boolean isUnackedRangesRunLengthSetEnabled() {
+        return unackedRangesRunLengthSetEnabled;
+    }
+
+    public ManagedLedgerConfig setUnackedRangesRunLengthSetEnabled(boolean unackedRangesRunLengthSetEnabled) {
+        this.unackedRangesRunLengthSetEnabled = unackedRangesRunLengthSetEnabled;
+        return this;
+    }
+
     /**
      * @return the metadataEnsemblesize
      */
@@ -791,6 +813,103 @@ public class ManagedLedgerConfig {
         this.maxBacklogBetweenCursorsForCaching = maxBacklogBetweenCursorsForCaching;
     }
 
+    /**
+     * Minimum number of cursors reading close to each other after which a read from BookKeeper is extended to also
+     * fetch the entries that the other cursors are about to read. The entries are shared through the entry cache.
+     * (Default = 0, reads are never coalesced)
+     *
+     * @return
+     */
+    public int getMinimumCursorsForCoalescedReads() {
+        return minimumCursorsForCoalescedReads;
+    }
+
+    /**
+     * Set the minimum number of cursors reading close to each other after which reads from BookKeeper are coalesced.
+     *
+     * @param minimumCursorsForCoalescedReads
+     */
+    public void setMinimumCursorsForCoalescedReads(int minimumCursorsForCoalescedReads) {
+        this.minimumCursorsForCoalescedReads = minimumCursorsForCoalescedReads;
+    }
+
+    /**
+     * Max distance, in number of entries, between the read positions of the cursors that are coalesced in a single
+     * read from BookKeeper.
+     *
+     * @return
+     */
+    public int getMaxDistanceBetweenCursorsForCoalescedReads() {
+        return maxDistanceBetweenCursorsForCoalescedReads;
+    }
+
+    /**
+     * Set the max distance between the read positions of the cursors that are coalesced in a single read.
+     *
+     * @param maxDistanceBetweenCursorsForCoalescedReads
+     */
+    public void setMaxDistanceBetweenCursorsForCoalescedReads(int maxDistanceBetweenCursorsForCoalescedReads) {
+        this.maxDistanceBetweenCursorsForCoalescedReads = maxDistanceBetweenCursorsForCoalescedReads;
+    }
+
+    /**
+     * Max number of entries fetched by a single coalesced read from BookKeeper.
+     *
+     * @return
+     */
+    public int getMaxEntriesPerCoalescedRead() {
+        return maxEntriesPerCoalescedRead;
+    }
+
+    /**
+     * Set the max number of entries fetched by a single coalesced read.
+     *
+     * @param maxEntriesPerCoalescedRead
+     */
+    public void setMaxEntriesPerCoalescedRead(int maxEntriesPerCoalescedRead) {
+        this.maxEntriesPerCoalescedRead = maxEntriesPerCoalescedRead;
+    }
+
+    /**
+     * Max number of batches that a cursor sequentially catching up with a backlog keeps reading ahead of the
+     * position it was asked to read. (Default = 0, cursors don't read ahead)
+     *
+     * @return
+     */
+    public int getCursorReadAheadMaxBatches() {
+        return cursorReadAheadMaxBatches;
+    }
+
+    /**
+     * Set the max number of batches that a cursor catching up with a backlog keeps reading ahead.
+     *
+     * @param cursorReadAheadMaxBatches
+     */
+    public void setCursorReadAheadMaxBatches(int cursorReadAheadMaxBatches) {
+        this.cursorReadAheadMaxBatches = cursorReadAheadMaxBatches;
+    }
+
+    /**
+     * Max number of entries only containing the individually deleted messages that changed, written to the cursor
+     * ledger between 2 entries containing all of them. (Default = 0, every entry contains all of them)
+     *
+     * <p/>Only effective when {@link #isUnackedRangesOpenCacheSetEnabled()} is true.
+     *
+     * @return
+     */
+    public int getCursorLedgerMaxDeltasBetweenSnapshots() {
+        return cursorLedgerMaxDeltasBetweenSnapshots;
+    }
+
+    /**
+     * Set the max number of delta entries written to the cursor ledger between 2 full snapshots of the cursor.
+     *
+     * @param cursorLedgerMaxDeltasBetweenSnapshots
+     */
+    public void setCursorLedgerMaxDeltasBetweenSnapshots(int cursorLedgerMaxDeltasBetweenSnapshots) {
+        this.cursorLedgerMaxDeltasBetweenSnapshots = cursorLedgerMaxDeltasBetweenSnapshots;
+    }
+
     /**
      * Trigger offload on topic load.
      * @return
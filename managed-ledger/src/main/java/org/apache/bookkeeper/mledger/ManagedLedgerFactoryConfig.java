@@ -56,6 +56,23 @@ public class ManagedLedgerFactoryConfig {
      */
     private boolean copyEntriesInCache = false;
 
+    /**
+     * Whether to store the cached entries in large pre-allocated off-heap segments instead of keeping a range map of
+     * entries for each managed ledger.
+     */
+    private boolean segmentedEntryCacheEnabled = false;
+
+    /**
+     * Size of each of the off-heap segments used by the segmented entry cache.
+     */
+    private int segmentedEntryCacheSegmentSize = (int) (8 * MB);
+
+    /**
+     * Minimum estimated number of recent reads of an entry before it gets admitted in the segmented entry cache when
+     * it's read from storage. Values lower or equal to 1 disable the admission filter.
+     */
+    private int segmentedEntryCacheAdmissionMinFrequency = 2;
+
     /**
      * Maximum number of (estimated) data in-flight reading from storage and the cache.
      */
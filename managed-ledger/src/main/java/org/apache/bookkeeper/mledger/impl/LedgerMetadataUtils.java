@@ -19,7 +19,10 @@
 package org.apache.bookkeeper.mledger.impl;
 
 import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 import org.apache.bookkeeper.client.EnsemblePlacementPolicy;
 import org.apache.bookkeeper.common.util.JsonUtil.ParseJsonException;
 import org.apache.pulsar.common.policies.data.EnsemblePlacementPolicyConfig;
@@ -37,6 +40,10 @@ public final class LedgerMetadataUtils {
             "managed-ledger".getBytes(StandardCharsets.UTF_8);
     private static final byte[] METADATA_PROPERTY_COMPONENT_COMPACTED_LEDGER =
             "compacted-ledger".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] METADATA_PROPERTY_COMPONENT_COMPACTED_LEDGER_INDEX =
+            "compacted-ledger-index".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] METADATA_PROPERTY_COMPONENT_COMPACTED_LEDGER_DELTA_KEYS =
+            "compacted-ledger-delta-keys".getBytes(StandardCharsets.UTF_8);
     private static final byte[] METADATA_PROPERTY_COMPONENT_SCHEMA = "schema".getBytes(StandardCharsets.UTF_8);
 
     private static final byte[] METADATA_PROPERTY_COMPONENT_DELAYED_INDEX_BUCKET =
@@ -46,6 +53,9 @@ public final class LedgerMetadataUtils {
     private static final String METADATA_PROPERTY_CURSOR_NAME = "pulsar/cursor";
     private static final String METADATA_PROPERTY_COMPACTEDTOPIC = "pulsar/compactedTopic";
     private static final String METADATA_PROPERTY_COMPACTEDTO = "pulsar/compactedTo";
+    private static final String METADATA_PROPERTY_COMPACTED_LEDGER_INDEX = "pulsar/compactedLedgerIndex";
+    private static final String METADATA_PROPERTY_COMPACTED_LEDGER_BASE = "pulsar/compactedLedgerBase";
+    private static final String METADATA_PROPERTY_COMPACTED_LEDGER_DELTA_KEYS = "pulsar/compactedLedgerDeltaKeys";
     private static final String METADATA_PROPERTY_SCHEMAID = "pulsar/schemaId";
 
     private static final String METADATA_PROPERTY_DELAYED_INDEX_BUCKET_KEY = "pulsar/delayedIndexBucketKey";
@@ -93,6 +103,119 @@ public final class LedgerMetadataUtils {
         );
     }
 
+    /**
+     * Build additional metadata for a CompactedLedger having a position index.
+     *
+     * @param compactedTopic reference to the compacted topic.
+     * @param compactedToMessageId last messageId.
+     * @param indexLedgerId id of the ledger storing the position index of the compacted ledger.
+     * @return an immutable map which describes the compacted ledger
+     */
+    public static Map<String, byte[]> buildMetadataForCompactedLedger(String compactedTopic,
+                                                                      byte[] compactedToMessageId,
+                                                                      long indexLedgerId) {
+        return buildMetadataForCompactedLedger(compactedTopic, compactedToMessageId, Optional.of(indexLedgerId),
+                Optional.empty(), Optional.empty());
+    }
+
+    /**
+     * Build additional metadata for a CompactedLedger, which may have a position index, and may be the delta
+     * compacted ledger of an incremental compaction.
+     *
+     * @param compactedTopic reference to the compacted topic.
+     * @param compactedToMessageId last messageId.
+     * @param indexLedgerId id of the ledger storing the position index of the compacted ledger, if any.
+     * @param baseLedgerId id of the compacted ledger the delta compacted ledger applies to, if any.
+     * @param deltaKeysLedgerId id of the ledger storing the keys compacted by the delta compacted ledger, if any.
+     * @return an immutable map which describes the compacted ledger
+     */
+    public static Map<String, byte[]> buildMetadataForCompactedLedger(String compactedTopic,
+                                                                      byte[] compactedToMessageId,
+                                                                      Optional<Long> indexLedgerId,
+                                                                      Optional<Long> baseLedgerId,
+                                                                      Optional<Long> deltaKeysLedgerId) {
+        Map<String, byte[]> metadata = new HashMap<>(
+                buildMetadataForCompactedLedger(compactedTopic, compactedToMessageId));
+        indexLedgerId.ifPresent(id -> metadata.put(METADATA_PROPERTY_COMPACTED_LEDGER_INDEX, toBytes(id)));
+        baseLedgerId.ifPresent(id -> metadata.put(METADATA_PROPERTY_COMPACTED_LEDGER_BASE, toBytes(id)));
+        deltaKeysLedgerId.ifPresent(id -> metadata.put(METADATA_PROPERTY_COMPACTED_LEDGER_DELTA_KEYS, toBytes(id)));
+        return Collections.unmodifiableMap(metadata);
+    }
+
+    /**
+     * Build additional metadata for the position index of a CompactedLedger.
+     *
+     * @param compactedTopic reference to the compacted topic.
+     * @return an immutable map which describes the compacted ledger index
+     */
+    public static Map<String, byte[]> buildMetadataForCompactedLedgerIndex(String compactedTopic) {
+        return Map.of(
+                METADATA_PROPERTY_APPLICATION, METADATA_PROPERTY_APPLICATION_PULSAR,
+                METADATA_PROPERTY_COMPONENT, METADATA_PROPERTY_COMPONENT_COMPACTED_LEDGER_INDEX,
+                METADATA_PROPERTY_COMPACTEDTOPIC, compactedTopic.getBytes(StandardCharsets.UTF_8)
+        );
+    }
+
+    /**
+     * Get the id of the ledger storing the position index of a CompactedLedger.
+     *
+     * @param metadata the custom metadata of the compacted ledger
+     * @return the id of the index ledger, or empty if the compacted ledger has no index
+     */
+    public static Optional<Long> getCompactedLedgerIndexLedgerId(Map<String, byte[]> metadata) {
+        return getLedgerId(metadata, METADATA_PROPERTY_COMPACTED_LEDGER_INDEX);
+    }
+
+    /**
+     * Build additional metadata for the keys compacted by a delta CompactedLedger.
+     *
+     * @param compactedTopic reference to the compacted topic.
+     * @return an immutable map which describes the keys of the delta compacted ledger
+     */
+    public static Map<String, byte[]> buildMetadataForCompactedLedgerDeltaKeys(String compactedTopic) {
+        return Map.of(
+                METADATA_PROPERTY_APPLICATION, METADATA_PROPERTY_APPLICATION_PULSAR,
+                METADATA_PROPERTY_COMPONENT, METADATA_PROPERTY_COMPONENT_COMPACTED_LEDGER_DELTA_KEYS,
+                METADATA_PROPERTY_COMPACTEDTOPIC, compactedTopic.getBytes(StandardCharsets.UTF_8)
+        );
+    }
+
+    /**
+     * Get the id of the compacted ledger a delta CompactedLedger applies to.
+     *
+     * @param metadata the custom metadata of the compacted ledger
+     * @return the id of the base compacted ledger, or empty if the compacted ledger is not a delta
+     */
+    public static Optional<Long> getCompactedLedgerBaseLedgerId(Map<String, byte[]> metadata) {
+        return getLedgerId(metadata, METADATA_PROPERTY_COMPACTED_LEDGER_BASE);
+    }
+
+    /**
+     * Get the id of the ledger storing the keys compacted by a delta CompactedLedger.
+     *
+     * @param metadata the custom metadata of the compacted ledger
+     * @return the id of the keys ledger, or empty if the compacted ledger is not a delta
+     */
+    public static Optional<Long> getCompactedLedgerDeltaKeysLedgerId(Map<String, byte[]> metadata) {
+        return getLedgerId(metadata, METADATA_PROPERTY_COMPACTED_LEDGER_DELTA_KEYS);
+    }
+
+    private static byte[] toBytes(long ledgerId) {
+        return Long.toString(ledgerId).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static Optional<Long> getLedgerId(Map<String, byte[]> metadata, String property) {
+        byte[] value = metadata.get(property);
+        if (value == null) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(Long.parseLong(new String(value, StandardCharsets.UTF_8)));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
     /**
      * Build additional metadata for a Schema.
      *
@@ -58,6 +58,9 @@ public final class LedgerOffloaderStatsImpl implements LedgerOffloaderStats, Run
     private final Gauge readOffloadRate;
     private final Summary readOffloadIndexLatency;
     private final Summary readOffloadDataLatency;
+    private final Counter readOffloadCacheHits;
+    private final Counter readOffloadCacheMisses;
+    private final Counter readOffloadCacheHitBytes;
 
     private final Map<String, Long> topicAccess;
     private final Map<String, Pair<LongAdder, LongAdder>> offloadAndReadOffloadBytesMap;
@@ -105,6 +108,12 @@ public final class LedgerOffloaderStatsImpl implements LedgerOffloaderStats, Run
                 .quantile(0.99, 0.01)
                 .quantile(1, 0.01)
                 .create().register();
+        this.readOffloadCacheHits = Counter.build("brk_ledgeroffloader_read_cache_hits", "-")
+                .labelNames(labels).create().register();
+        this.readOffloadCacheMisses = Counter.build("brk_ledgeroffloader_read_cache_misses", "-")
+                .labelNames(labels).create().register();
+        this.readOffloadCacheHitBytes = Counter.build("brk_ledgeroffloader_read_cache_hit_bytes", "-")
+                .labelNames(labels).create().register();
         this.readLedgerLatency = Summary.build("brk_ledgeroffloader_read_ledger_latency", "-")
                 .labelNames(labels).quantile(0.50, 0.01)
                 .quantile(0.95, 0.01)
@@ -191,6 +200,21 @@ public final class LedgerOffloaderStatsImpl implements LedgerOffloaderStats, Run
         this.addOrUpdateTopicAccess(topic);
     }
 
+    @Override
+    public void recordReadOffloadCacheHit(String topic, long size) {
+        String[] labelValues = this.labelValues(topic);
+        this.readOffloadCacheHits.labels(labelValues).inc();
+        this.readOffloadCacheHitBytes.labels(labelValues).inc(size);
+        this.addOrUpdateTopicAccess(topic);
+    }
+
+    @Override
+    public void recordReadOffloadCacheMiss(String topic) {
+        String[] labelValues = this.labelValues(topic);
+        this.readOffloadCacheMisses.labels(labelValues).inc();
+        this.addOrUpdateTopicAccess(topic);
+    }
+
     @Override
     public void recordDeleteOffloadOps(String topic, boolean succeed) {
         String status = succeed ? SUCCEED : FAILED;
@@ -247,6 +271,9 @@ public final class LedgerOffloaderStatsImpl implements LedgerOffloaderStats, Run
                 this.readOffloadRate.remove(labelValues);
                 this.readOffloadIndexLatency.remove(labelValues);
                 this.readOffloadDataLatency.remove(labelValues);
+                this.readOffloadCacheHits.remove(labelValues);
+                this.readOffloadCacheMisses.remove(labelValues);
+                this.readOffloadCacheHitBytes.remove(labelValues);
 
                 labelValues = this.labelValues(topic, SUCCEED);
                 this.deleteOffloadOps.remove(labelValues);
@@ -287,6 +314,9 @@ public final class LedgerOffloaderStatsImpl implements LedgerOffloaderStats, Run
             CollectorRegistry.defaultRegistry.unregister(this.readOffloadRate);
             CollectorRegistry.defaultRegistry.unregister(this.readOffloadIndexLatency);
             CollectorRegistry.defaultRegistry.unregister(this.readOffloadDataLatency);
+            CollectorRegistry.defaultRegistry.unregister(this.readOffloadCacheHits);
+            CollectorRegistry.defaultRegistry.unregister(this.readOffloadCacheMisses);
+            CollectorRegistry.defaultRegistry.unregister(this.readOffloadCacheHitBytes);
             CollectorRegistry.defaultRegistry.unregister(this.deleteOffloadOps);
             instance = null;
         }
@@ -346,6 +376,24 @@ public final class LedgerOffloaderStatsImpl implements LedgerOffloaderStats, Run
         return totalBytes;
     }
 
+    @VisibleForTesting
+    public long getReadOffloadCacheHits(String topic) {
+        String[] labels = this.labelValues(topic);
+        return (long) this.readOffloadCacheHits.labels(labels).get();
+    }
+
+    @VisibleForTesting
+    public long getReadOffloadCacheMisses(String topic) {
+        String[] labels = this.labelValues(topic);
+        return (long) this.readOffloadCacheMisses.labels(labels).get();
+    }
+
+    @VisibleForTesting
+    public long getReadOffloadCacheHitBytes(String topic) {
+        String[] labels = this.labelValues(topic);
+        return (long) this.readOffloadCacheHitBytes.labels(labels).get();
+    }
+
     @VisibleForTesting
     public Summary.Child.Value getReadLedgerLatency(String topic) {
         String[] labels = this.labelValues(topic);
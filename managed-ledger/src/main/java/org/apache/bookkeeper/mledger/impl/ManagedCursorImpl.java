@@ -221,6 +221,9 @@ public class ManagedCursorImpl implements ManagedCursor {
     private long entriesReadCount;
     private long entriesReadSize;
     private int individualDeletedMessagesSerializedSize;
+    // Location of the last full snapshot written to the cursor ledger, which the following delta entries refer to
+    private volatile Position cursorLedgerSnapshot = null;
+    private volatile int cursorLedgerDeltasSinceSnapshot = 0;
     private static final String COMPACTION_CURSOR_NAME = "__compaction";
     private volatile boolean cacheReadEntry = false;
 
@@ -297,6 +300,7 @@ public class ManagedCursorImpl implements ManagedCursor {
     protected volatile State state = null;
 
     protected final ManagedCursorMXBean mbean;
+    final ManagedCursorReadAhead readAhead = new ManagedCursorReadAhead(this);
 
     private volatile ManagedCursorAttributes managedCursorAttributes;
     private static final AtomicReferenceFieldUpdater<ManagedCursorImpl, ManagedCursorAttributes> ATTRIBUTES_UPDATER =
@@ -607,24 +611,12 @@ public class ManagedCursorImpl implements ManagedCursor {
                     return;
                 }
 
-                Map<String, Long> recoveredProperties = Collections.emptyMap();
-                if (positionInfo.getPropertiesCount() > 0) {
-                    // Recover properties map
-                    recoveredProperties = new HashMap<>();
-                    for (int i = 0; i < positionInfo.getPropertiesCount(); i++) {
-                        LongProperty property = positionInfo.getProperties(i);
-                        recoveredProperties.put(property.getName(), property.getValue());
-                    }
-                }
-
-                Position position = PositionFactory.create(positionInfo.getLedgerId(), positionInfo.getEntryId());
-                recoverIndividualDeletedMessages(positionInfo);
-                if (getConfig().isDeletionAtBatchIndexLevelEnabled()
-                    && positionInfo.getBatchedEntryDeletionIndexInfoCount() > 0) {
-                    recoverBatchDeletedIndexes(positionInfo.getBatchedEntryDeletionIndexInfoList());
+                if (positionInfo.hasSnapshotEntryId() && positionInfo.getSnapshotEntryId() < lastEntryInLedger) {
+                    // The last entry only has the ranges that changed since the last full snapshot
+                    recoverFromCursorLedgerDeltas(lh, positionInfo, lastEntryInLedger, callback);
+                } else {
+                    recoveredFromCursorLedger(lh, Collections.singletonList(positionInfo), callback);
                 }
-                recoveredCursor(position, recoveredProperties, cursorProperties, lh);
-                callback.operationComplete();
             }, null);
         };
         try {
@@ -637,6 +629,97 @@ public class ManagedCursorImpl implements ManagedCursor {
         }
     }
 
+    private void recoverFromCursorLedgerDeltas(LedgerHandle lh, PositionInfo lastPositionInfo, long lastEntryInLedger,
+                                               VoidCallback callback) {
+        long snapshotEntryId = lastPositionInfo.getSnapshotEntryId();
+        lh.asyncReadEntries(snapshotEntryId, lastEntryInLedger, (rc, lh1, seq, ctx) -> {
+            if (isBkErrorNotRecoverable(rc) || (rc != BKException.Code.OK && ledgerForceRecovery)) {
+                // The mark-delete position is still known, only the individually deleted messages of the previous
+                // entries will be delivered again
+                log.error("[{}] Error reading entries {}-{} from metadata ledger {} for cursor {}: {}. Only recovering"
+                                + " the last entry", ledger.getName(), snapshotEntryId, lastEntryInLedger, lh.getId(),
+                        name, BKException.getMessage(rc));
+                recoveredFromCursorLedger(lh, Collections.singletonList(lastPositionInfo), callback);
+                return;
+            } else if (rc != BKException.Code.OK) {
+                log.warn("[{}] Error reading entries {}-{} from metadata ledger {} for cursor {}: {}", ledger.getName(),
+                        snapshotEntryId, lastEntryInLedger, lh.getId(), name, BKException.getMessage(rc));
+                callback.operationFailed(createManagedLedgerException(rc));
+                return;
+            }
+
+            List<PositionInfo> positionInfos = new ArrayList<>((int) (lastEntryInLedger - snapshotEntryId + 1));
+            while (seq.hasMoreElements()) {
+                LedgerEntry entry = seq.nextElement();
+                mbean.addReadCursorLedgerSize(entry.getLength());
+                try {
+                    positionInfos.add(PositionInfo.parseFrom(entry.getEntry()));
+                } catch (InvalidProtocolBufferException e) {
+                    callback.operationFailed(new ManagedLedgerException(e));
+                    return;
+                }
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("[{}] Replaying {} entries from metadata ledger {} for cursor {}", ledger.getName(),
+                        positionInfos.size(), lh.getId(), name);
+            }
+            recoveredFromCursorLedger(lh, positionInfos, callback);
+        }, null);
+    }
+
+    /**
+     * Recover the cursor from the entries read from the cursor ledger. The last entry has the position and the
+     * properties of the cursor, the entries before it are only needed to replay the individually deleted messages.
+     */
+    private void recoveredFromCursorLedger(LedgerHandle lh, List<PositionInfo> positionInfos,
+                                           VoidCallback callback) {
+        PositionInfo positionInfo = positionInfos.get(positionInfos.size() - 1);
+        Map<String, Long> recoveredProperties = Collections.emptyMap();
+        if (positionInfo.getPropertiesCount() > 0) {
+            // Recover properties map
+            recoveredProperties = new HashMap<>();
+            for (int i = 0; i < positionInfo.getPropertiesCount(); i++) {
+                LongProperty property = positionInfo.getProperties(i);
+                recoveredProperties.put(property.getName(), property.getValue());
+            }
+        }
+
+        Position position = PositionFactory.create(positionInfo.getLedgerId(), positionInfo.getEntryId());
+        if (positionInfos.size() == 1) {
+            recoverIndividualDeletedMessages(positionInfo);
+        } else {
+            replayIndividualDeletedMessages(positionInfos);
+        }
+        if (getConfig().isDeletionAtBatchIndexLevelEnabled()
+            && positionInfo.getBatchedEntryDeletionIndexInfoCount() > 0) {
+            recoverBatchDeletedIndexes(positionInfo.getBatchedEntryDeletionIndexInfoList());
+        }
+        recoveredCursor(position, recoveredProperties, cursorProperties, lh);
+        callback.operationComplete();
+    }
+
+    /**
+     * Rebuild the individually deleted messages from a full snapshot, followed by the deltas only containing the
+     * ranges of the ledgers that changed since the previous entry.
+     */
+    private void replayIndividualDeletedMessages(List<PositionInfo> positionInfos) {
+        lock.writeLock().lock();
+        try {
+            for (PositionInfo positionInfo : positionInfos) {
+                if (!positionInfo.hasSnapshotEntryId()) {
+                    individualDeletedMessages.clear();
+                    recoverIndividualDeletedMessages(positionInfo);
+                } else {
+                    addIndividualDeletedMessages(positionInfo.getIndividualDeletedMessagesList());
+                }
+            }
+            PositionInfo last = positionInfos.get(positionInfos.size() - 1);
+            individualDeletedMessages.removeAtMost(last.getLedgerId(), last.getEntryId());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
     public void recoverIndividualDeletedMessages(PositionInfo positionInfo) {
         if (positionInfo.getIndividualDeletedMessagesCount() > 0) {
             recoverIndividualDeletedMessages(positionInfo.getIndividualDeletedMessagesList());
@@ -698,6 +781,15 @@ public class ManagedCursorImpl implements ManagedCursor {
         lock.writeLock().lock();
         try {
             individualDeletedMessages.clear();
+            addIndividualDeletedMessages(individualDeletedMessagesList);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void addIndividualDeletedMessages(List<MLDataFormats.MessageRange> individualDeletedMessagesList) {
+        lock.writeLock().lock();
+        try {
             individualDeletedMessagesList.forEach(messageRange -> {
                 MLDataFormats.NestedPositionInfo lowerEndpoint = messageRange.getLowerEndpoint();
                 MLDataFormats.NestedPositionInfo upperEndpoint = messageRange.getUpperEndpoint();
@@ -2429,46 +2521,86 @@ public class ManagedCursorImpl implements ManagedCursor {
                 }
             }
 
-            if (individualDeletedMessages.isEmpty()) {
-                // No changes to individually deleted messages, so nothing to do at this point
+            newMarkDeletePosition = getMarkDeletePositionAfterIndividualDeletes();
+            if (newMarkDeletePosition == null) {
                 skipMarkDeleteBecauseAckedNothing = true;
                 return;
             }
+        } catch (Exception e) {
+            log.warn("[{}] [{}] Error while updating individualDeletedMessages [{}]", ledger.getName(), name,
+                    e.getMessage(), e);
+            callback.deleteFailed(getManagedLedgerException(e), ctx);
+            return;
+        } finally {
+            lock.writeLock().unlock();
+            if (skipMarkDeleteBecauseAckedNothing) {
+                callback.deleteComplete(ctx);
+            }
+        }
 
-            // If the lower bound of the range set is the current mark delete position, then we can trigger a new
-            // mark-delete to the upper bound of the first range segment
-            Range<Position> range = individualDeletedMessages.firstRange();
+        markDeleteAfterIndividualDeletes(newMarkDeletePosition, callback, ctx);
+    }
 
-            // If the upper bound is before the mark-delete position, we need to move ahead as these
-            // individualDeletedMessages are now irrelevant
-            if (range.upperEndpoint().compareTo(markDeletePosition) <= 0) {
-                individualDeletedMessages.removeAtMost(markDeletePosition.getLedgerId(),
-                        markDeletePosition.getEntryId());
-                range = individualDeletedMessages.firstRange();
-            }
+    @Override
+    public void asyncDeleteRanges(List<Range<Position>> ranges, AsyncCallbacks.DeleteCallback callback, Object ctx) {
+        if (isClosed()) {
+            callback.deleteFailed(new ManagedLedgerException
+                    .CursorAlreadyClosedException("Cursor was already closed"), ctx);
+            return;
+        }
 
-            if (range == null) {
-                // The set was completely cleaned up now
-                skipMarkDeleteBecauseAckedNothing = true;
-                return;
-            }
+        Position newMarkDeletePosition;
 
-            // If the lowerBound is ahead of MarkDelete, verify if there are any entries in-between
-            if (range.lowerEndpoint().compareTo(markDeletePosition) <= 0 || ledger
-                    .getNumberOfEntries(Range.openClosed(markDeletePosition, range.lowerEndpoint())) <= 0) {
+        lock.writeLock().lock();
+        boolean skipMarkDeleteBecauseAckedNothing = false;
+        try {
+            if (log.isDebugEnabled()) {
+                log.debug("[{}] [{}] Deleting individual message ranges {}. Current status: {} - md-position: {}",
+                        ledger.getName(), name, ranges, individualDeletedMessages, markDeletePosition);
+            }
 
-                if (log.isDebugEnabled()) {
-                    log.debug("[{}] Found a position range to mark delete for cursor {}: {} ", ledger.getName(),
-                            name, range);
+            for (Range<Position> range : ranges) {
+                Position first = range.lowerEndpoint();
+                Position last = range.upperEndpoint();
+                if (first.getLedgerId() != last.getLedgerId()) {
+                    callback.deleteFailed(new ManagedLedgerException("Invalid range across ledgers " + range), ctx);
+                    return;
                 }
-
-                newMarkDeletePosition = range.upperEndpoint();
+                if (ledger.getLastConfirmedEntry().compareTo(last) < 0) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("[{}] Failed to delete range {} ahead of last-confirmed-entry {} for cursor [{}]",
+                                ledger.getName(), range, ledger.getLastConfirmedEntry(), name);
+                    }
+                    callback.deleteFailed(new ManagedLedgerException("Invalid mark deleted position"), ctx);
+                    return;
+                }
+                if (last.compareTo(markDeletePosition) <= 0) {
+                    continue;
+                }
+                long ledgerId = last.getLedgerId();
+                long firstEntryId = first.compareTo(markDeletePosition) <= 0
+                        ? markDeletePosition.getEntryId() + 1 : first.getEntryId();
+                if (batchDeletedIndexes != null) {
+                    batchDeletedIndexes.subMap(first, true, last, true).clear();
+                }
+                long deletedCount = 0;
+                for (long entryId = firstEntryId; entryId <= last.getEntryId(); entryId++) {
+                    if (!individualDeletedMessages.contains(ledgerId, entryId)) {
+                        deletedCount++;
+                    }
+                }
+                if (deletedCount == 0) {
+                    continue;
+                }
+                // Add the range (first - 1, last] to the set, as for the individual positions
+                individualDeletedMessages.addOpenClosed(ledgerId, firstEntryId - 1, ledgerId, last.getEntryId());
+                MSG_CONSUMED_COUNTER_UPDATER.addAndGet(this, deletedCount);
             }
 
-            if (newMarkDeletePosition != null) {
-                newMarkDeletePosition = setAcknowledgedPosition(newMarkDeletePosition);
-            } else {
-                newMarkDeletePosition = markDeletePosition;
+            newMarkDeletePosition = getMarkDeletePositionAfterIndividualDeletes();
+            if (newMarkDeletePosition == null) {
+                skipMarkDeleteBecauseAckedNothing = true;
+                return;
             }
         } catch (Exception e) {
             log.warn("[{}] [{}] Error while updating individualDeletedMessages [{}]", ledger.getName(), name,
@@ -2482,6 +2614,60 @@ public class ManagedCursorImpl implements ManagedCursor {
             }
         }
 
+        markDeleteAfterIndividualDeletes(newMarkDeletePosition, callback, ctx);
+    }
+
+    /**
+     * Find the position the mark-delete can be advanced to, after messages were individually deleted. Must be called
+     * with the write lock held.
+     *
+     * @return the new mark-delete position, or null if there are no individually deleted messages to consider
+     */
+    private Position getMarkDeletePositionAfterIndividualDeletes() {
+        Position newMarkDeletePosition = null;
+        if (individualDeletedMessages.isEmpty()) {
+            // No changes to individually deleted messages, so nothing to do at this point
+            return null;
+        }
+
+        // If the lower bound of the range set is the current mark delete position, then we can trigger a new
+        // mark-delete to the upper bound of the first range segment
+        Range<Position> range = individualDeletedMessages.firstRange();
+
+        // If the upper bound is before the mark-delete position, we need to move ahead as these
+        // individualDeletedMessages are now irrelevant
+        if (range.upperEndpoint().compareTo(markDeletePosition) <= 0) {
+            individualDeletedMessages.removeAtMost(markDeletePosition.getLedgerId(),
+                    markDeletePosition.getEntryId());
+            range = individualDeletedMessages.firstRange();
+        }
+
+        if (range == null) {
+            // The set was completely cleaned up now
+            return null;
+        }
+
+        // If the lowerBound is ahead of MarkDelete, verify if there are any entries in-between
+        if (range.lowerEndpoint().compareTo(markDeletePosition) <= 0 || ledger
+                .getNumberOfEntries(Range.openClosed(markDeletePosition, range.lowerEndpoint())) <= 0) {
+
+            if (log.isDebugEnabled()) {
+                log.debug("[{}] Found a position range to mark delete for cursor {}: {} ", ledger.getName(),
+                        name, range);
+            }
+
+            newMarkDeletePosition = range.upperEndpoint();
+        }
+
+        if (newMarkDeletePosition != null) {
+            return setAcknowledgedPosition(newMarkDeletePosition);
+        } else {
+            return markDeletePosition;
+        }
+    }
+
+    private void markDeleteAfterIndividualDeletes(Position newMarkDeletePosition,
+                                                  AsyncCallbacks.DeleteCallback callback, Object ctx) {
         // Apply rate limiting to mark-delete operations
         if (markDeleteLimiter != null && !markDeleteLimiter.tryAcquire()) {
             isDirty = true;
@@ -2854,6 +3040,8 @@ public class ManagedCursorImpl implements ManagedCursor {
     @Override
     public void asyncClose(final AsyncCallbacks.CloseCallback callback, final Object ctx) {
         boolean alreadyClosing = !trySetStateToClosing();
+        // No read-ahead is started once the cursor is closing, whether or not the position can be persisted
+        readAhead.discard();
         if (alreadyClosing) {
             log.info("[{}] [{}] State is already closed", ledger.getName(), name);
             callback.closeComplete(ctx);
@@ -3213,6 +3401,45 @@ public class ManagedCursorImpl implements ManagedCursor {
         }
     }
 
+    /**
+     * Build the ranges of the ledgers whose individually deleted messages changed since the last entry written to the
+     * cursor ledger.
+     *
+     * @return the ranges, or null if a full snapshot of the individually deleted messages must be written, which is
+     *         also the case when the changed ledgers have more than maxUnackedRangesToPersist ranges
+     */
+    private List<MLDataFormats.MessageRange> buildChangedIndividualDeletedMessageRanges() {
+        lock.writeLock().lock();
+        try {
+            if (!individualDeletedMessages.hasOnlyChangedLedgers()) {
+                return null;
+            }
+
+            MLDataFormats.NestedPositionInfo.Builder nestedPositionBuilder = MLDataFormats.NestedPositionInfo
+                    .newBuilder();
+            MLDataFormats.MessageRange.Builder messageRangeBuilder = MLDataFormats.MessageRange
+                    .newBuilder();
+            List<MessageRange> rangeList = new ArrayList<>();
+
+            individualDeletedMessages.forEachRawRangeOfChangedLedgers((lowerKey, lowerValue, upperKey, upperValue) -> {
+                rangeList.add(messageRangeBuilder
+                        .setLowerEndpoint(nestedPositionBuilder.setLedgerId(lowerKey).setEntryId(lowerValue).build())
+                        .setUpperEndpoint(nestedPositionBuilder.setLedgerId(upperKey).setEntryId(upperValue).build())
+                        .build());
+                return rangeList.size() <= getConfig().getMaxUnackedRangesToPersist();
+            });
+            if (rangeList.size() > getConfig().getMaxUnackedRangesToPersist()) {
+                // The changed ledgers would not all be written, keep them changed for the snapshot
+                return null;
+            }
+
+            individualDeletedMessages.resetChangedLedgers();
+            return rangeList;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
     private List<MLDataFormats.BatchedEntryDeletionIndexInfo> buildBatchEntryDeletionIndexInfoList() {
         lock.readLock().lock();
         try {
@@ -3252,30 +3479,49 @@ public class ManagedCursorImpl implements ManagedCursor {
                 .addAllBatchedEntryDeletionIndexInfo(buildBatchEntryDeletionIndexInfoList())
                 .addAllProperties(buildPropertiesMap(mdEntry.properties));
 
-        Map<Long, long[]> internalRanges = null;
-        /**
-         * Cursor will create the {@link #individualDeletedMessages} typed {@link LongPairRangeSet.DefaultRangeSet} if
-         * disabled the config {@link ManagedLedgerConfig#unackedRangesOpenCacheSetEnabled}.
-         * {@link LongPairRangeSet.DefaultRangeSet} never implemented the methods below:
-         *   - {@link LongPairRangeSet#toRanges(int)}, which is used to serialize cursor metadata.
-         *   - {@link LongPairRangeSet#build(Map)}, which is used to deserialize cursor metadata.
-         * Do not enable the feature that https://github.com/apache/pulsar/pull/9292 introduced, to avoid serialization
-         * and deserialization error.
-         */
-        if (getConfig().isUnackedRangesOpenCacheSetEnabled() && getConfig().isPersistIndividualAckAsLongArray()) {
-            lock.readLock().lock();
-            try {
-                internalRanges = individualDeletedMessages.toRanges(getConfig().getMaxUnackedRangesToPersist());
-            } catch (Exception e) {
-                log.warn("[{}]-{} Failed to serialize individualDeletedMessages", ledger.getName(), name, e);
-            } finally {
-                lock.readLock().unlock();
-            }
+        Position snapshot = cursorLedgerSnapshot;
+        List<MLDataFormats.MessageRange> changedRanges = null;
+        if (snapshot != null && snapshot.getLedgerId() == lh.getId()
+                && cursorLedgerDeltasSinceSnapshot < getConfig().getCursorLedgerMaxDeltasBetweenSnapshots()) {
+            changedRanges = buildChangedIndividualDeletedMessageRanges();
         }
-        if (internalRanges != null && !internalRanges.isEmpty()) {
-            piBuilder.addAllIndividualDeletedMessageRanges(buildLongPropertiesMap(internalRanges));
+
+        if (changedRanges != null) {
+            piBuilder.setSnapshotEntryId(snapshot.getEntryId()).addAllIndividualDeletedMessages(changedRanges);
         } else {
-            piBuilder.addAllIndividualDeletedMessages(buildIndividualDeletedMessageRanges());
+            Map<Long, long[]> internalRanges = null;
+            /**
+             * Cursor will create the {@link #individualDeletedMessages} typed
+             * {@link LongPairRangeSet.DefaultRangeSet} if disabled the config
+             * {@link ManagedLedgerConfig#unackedRangesOpenCacheSetEnabled}.
+             * {@link LongPairRangeSet.DefaultRangeSet} never implemented the methods below:
+             *   - {@link LongPairRangeSet#toRanges(int)}, which is used to serialize cursor metadata.
+             *   - {@link LongPairRangeSet#build(Map)}, which is used to deserialize cursor metadata.
+             * Do not enable the feature that https://github.com/apache/pulsar/pull/9292 introduced, to avoid
+             * serialization and deserialization error.
+             */
+            if (getConfig().isUnackedRangesOpenCacheSetEnabled() && getConfig().isPersistIndividualAckAsLongArray()) {
+                lock.writeLock().lock();
+                try {
+                    internalRanges = individualDeletedMessages.toRanges(getConfig().getMaxUnackedRangesToPersist());
+                    individualDeletedMessages.resetChangedLedgers();
+                } catch (Exception e) {
+                    log.warn("[{}]-{} Failed to serialize individualDeletedMessages", ledger.getName(), name, e);
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+            if (internalRanges != null && !internalRanges.isEmpty()) {
+                piBuilder.addAllIndividualDeletedMessageRanges(buildLongPropertiesMap(internalRanges));
+            } else {
+                lock.writeLock().lock();
+                try {
+                    piBuilder.addAllIndividualDeletedMessages(buildIndividualDeletedMessageRanges());
+                    individualDeletedMessages.resetChangedLedgers();
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
         }
         PositionInfo pi = piBuilder.build();
 
@@ -3293,6 +3539,13 @@ public class ManagedCursorImpl implements ManagedCursor {
                             lh1.getId());
                 }
 
+                if (pi.hasSnapshotEntryId()) {
+                    cursorLedgerDeltasSinceSnapshot++;
+                } else {
+                    cursorLedgerSnapshot = PositionFactory.create(lh1.getId(), entryId);
+                    cursorLedgerDeltasSinceSnapshot = 0;
+                }
+
                 rolloverLedgerIfNeeded(lh1);
 
                 mbean.persistToLedger(true);
@@ -3531,6 +3784,7 @@ public class ManagedCursorImpl implements ManagedCursor {
 
     private void asyncDeleteCursorLedger(int retry) {
         STATE_UPDATER.set(this, State.Closed);
+        readAhead.discard();
 
         if (cursorLedger == null || retry <= 0) {
             if (cursorLedger != null) {
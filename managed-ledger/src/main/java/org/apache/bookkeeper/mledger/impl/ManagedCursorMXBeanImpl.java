@@ -34,6 +34,9 @@ public class ManagedCursorMXBeanImpl implements ManagedCursorMXBean {
     private final LongAdder writeCursorLedgerLogicalSize = new LongAdder();
     private final LongAdder readCursorLedgerSize = new LongAdder();
 
+    private final LongAdder readAheadHits = new LongAdder();
+    private final LongAdder readAheadMisses = new LongAdder();
+
     private final ManagedCursor managedCursor;
 
     public ManagedCursorMXBeanImpl(ManagedCursor managedCursor) {
@@ -114,4 +117,23 @@ public class ManagedCursorMXBeanImpl implements ManagedCursorMXBean {
     public long getReadCursorLedgerSize() {
         return readCursorLedgerSize.longValue();
     }
+
+    @Override
+    public void recordReadAhead(boolean hit) {
+        if (hit) {
+            readAheadHits.increment();
+        } else {
+            readAheadMisses.increment();
+        }
+    }
+
+    @Override
+    public long getReadAheadHits() {
+        return readAheadHits.longValue();
+    }
+
+    @Override
+    public long getReadAheadMisses() {
+        return readAheadMisses.longValue();
+    }
 }
@@ -0,0 +1,374 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.impl;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.bookkeeper.client.api.ReadHandle;
+import org.apache.bookkeeper.mledger.AsyncCallbacks.ReadEntriesCallback;
+import org.apache.bookkeeper.mledger.Entry;
+import org.apache.bookkeeper.mledger.ManagedLedgerConfig;
+import org.apache.bookkeeper.mledger.ManagedLedgerException;
+import org.apache.bookkeeper.mledger.Position;
+import org.apache.bookkeeper.mledger.impl.cache.InflightReadsLimiter;
+import org.apache.bookkeeper.mledger.impl.cache.RangeEntryCacheImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Prefetches the next batches of a cursor that is sequentially catching up with a backlog, so that the reads of the
+ * cursor are served from memory instead of waiting for the bookies at every round-trip of the dispatcher.
+ *
+ * <p/>The read-ahead kicks in after a few consecutive reads, each one starting where the previous one ended. The
+ * number of batches kept ahead of the cursor is sized so that the observed storage read latency is covered at the
+ * rate the cursor is consuming, capped by {@link ManagedLedgerConfig#getCursorReadAheadMaxBatches()}.
+ *
+ * <p/>The prefetched entries are held here rather than in the entry cache, so they don't evict the entries of the
+ * tailing readers, but they count against the same memory limits:
+ * <ul>
+ *     <li>When the {@link InflightReadsLimiter} is enabled, the prefetches acquire its permits like the regular reads
+ *     and keep them until the entries are released. No prefetch is issued when the limiter is running out of headroom
+ *     for the regular reads.</li>
+ *     <li>Otherwise, the prefetched entries of all the cursors are counted with the entries of the entry cache, and no
+ *     prefetch is issued beyond the max size of the entry cache.</li>
+ * </ul>
+ *
+ * <p/>The prefetched entries are discarded as soon as the cursor reads anything else (seek, rewind, redelivery,
+ * ledger switch...), and when the cursor or its managed ledger is closed.
+ */
+class ManagedCursorReadAhead {
+
+    /**
+     * Number of consecutive sequential reads after which the cursor is considered as catching up.
+     */
+    static final int SEQUENTIAL_READS_THRESHOLD = 2;
+
+    private static final double EWMA_ALPHA = 0.2;
+
+    private final ManagedCursorImpl cursor;
+
+    // Guarded by this
+    private final ArrayDeque<Batch> batches = new ArrayDeque<>();
+    private long ledgerId = -1;
+    private long lastReadEntry = -1;
+    private long nextPrefetchEntry = -1;
+    private int sequentialReads;
+    private long lastReadTimestamp;
+    private double avgReadIntervalNanos;
+    private double avgPrefetchLatencyNanos;
+    private double avgEntrySize;
+
+    private volatile boolean hasBatches;
+
+    private static class Batch {
+        final long firstEntry;
+        final long lastEntry;
+        final long startTimestamp = System.nanoTime();
+        // Null while the read is in progress
+        ArrayDeque<Entry> entries;
+        // Counted against the entry cache max size, when the inflight reads limiter is disabled
+        long reservedBytes;
+
+        Batch(long firstEntry, long lastEntry) {
+            this.firstEntry = firstEntry;
+            this.lastEntry = lastEntry;
+        }
+    }
+
+    ManagedCursorReadAhead(ManagedCursorImpl cursor) {
+        this.cursor = cursor;
+    }
+
+    /**
+     * Serve a read of the cursor from the prefetched entries, and prefetch the next batches if the cursor is
+     * catching up.
+     *
+     * @return true if the read was completed with prefetched entries, false if it must be read from the ledger
+     */
+    boolean read(ReadHandle lh, long firstEntry, long lastEntry, ReadEntriesCallback callback, Object ctx) {
+        int maxBatches = cursor.getConfig().getCursorReadAheadMaxBatches();
+        if (maxBatches <= 0 || cursor.isClosed()) {
+            if (hasBatches) {
+                discard();
+            }
+            return false;
+        }
+
+        List<Entry> entries;
+        boolean active;
+        synchronized (this) {
+            trackRead(lh.getId(), firstEntry, lastEntry);
+            active = sequentialReads >= SEQUENTIAL_READS_THRESHOLD;
+            entries = takeEntries(firstEntry, lastEntry);
+        }
+
+        if (active) {
+            cursor.getStats().recordReadAhead(entries != null);
+            prefetch(lh, (int) (lastEntry - firstEntry + 1), maxBatches);
+        }
+        if (entries == null) {
+            return false;
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug("[{}] [{}] Read {}-{} of ledger {} served by the read-ahead", cursor.ledger.getName(),
+                    cursor.getName(), firstEntry, lastEntry, lh.getId());
+        }
+        callback.readEntriesComplete(entries, ctx);
+        return true;
+    }
+
+    private void trackRead(long ledgerId, long firstEntry, long lastEntry) {
+        long now = System.nanoTime();
+        // Entries deleted by the cursor may have been skipped, so the read can start after the previous one ended,
+        // as long as it doesn't go past the prefetched range
+        boolean sequential = ledgerId == this.ledgerId && firstEntry > lastReadEntry
+                && firstEntry <= Math.max(lastReadEntry + 1, nextPrefetchEntry);
+        if (sequential) {
+            sequentialReads++;
+            avgReadIntervalNanos = ewma(avgReadIntervalNanos, now - lastReadTimestamp);
+        } else {
+            discardBatches();
+            this.ledgerId = ledgerId;
+            sequentialReads = 0;
+            avgReadIntervalNanos = 0;
+        }
+        lastReadEntry = lastEntry;
+        lastReadTimestamp = now;
+        nextPrefetchEntry = Math.max(nextPrefetchEntry, lastEntry + 1);
+    }
+
+    /**
+     * Take the prefetched entries in the given range, dropping the ones before it.
+     *
+     * @return the entries, or null if the range is not fully covered by completed prefetches
+     */
+    private List<Entry> takeEntries(long firstEntry, long lastEntry) {
+        while (!batches.isEmpty()) {
+            Batch batch = batches.peekFirst();
+            if (batch.lastEntry >= firstEntry) {
+                break;
+            }
+            // The cursor has already moved past this batch. If it's still in progress, the entries will be released
+            // once the read completes since the batch is not found anymore
+            batches.pollFirst();
+            releaseBatch(batch);
+        }
+
+        Batch first = batches.peekFirst();
+        if (first == null || first.firstEntry > firstEntry || !isCompleted(firstEntry, lastEntry)) {
+            hasBatches = !batches.isEmpty();
+            return null;
+        }
+
+        List<Entry> result = new ArrayList<>((int) (lastEntry - firstEntry + 1));
+        while (!batches.isEmpty()) {
+            Batch batch = batches.peekFirst();
+            if (batch.firstEntry > lastEntry) {
+                break;
+            }
+            Entry entry;
+            while ((entry = batch.entries.peekFirst()) != null && entry.getEntryId() <= lastEntry) {
+                batch.entries.pollFirst();
+                if (entry.getEntryId() < firstEntry) {
+                    entry.release();
+                } else {
+                    result.add(entry);
+                }
+            }
+            if (!batch.entries.isEmpty()) {
+                break;
+            }
+            batches.pollFirst();
+            releaseBatch(batch);
+        }
+        hasBatches = !batches.isEmpty();
+        return result;
+    }
+
+    private boolean isCompleted(long firstEntry, long lastEntry) {
+        for (Batch batch : batches) {
+            if (batch.firstEntry > lastEntry) {
+                return true;
+            }
+            if (batch.entries == null) {
+                return false;
+            }
+            if (batch.lastEntry >= lastEntry) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void prefetch(ReadHandle lh, int batchSize, int maxBatches) {
+        ManagedLedgerImpl ledger = cursor.ledger;
+        Position lastConfirmedEntry = ledger.getLastConfirmedEntry();
+        long lastEntryInLedger = lh.getId() == lastConfirmedEntry.getLedgerId() ? lastConfirmedEntry.getEntryId()
+                : lh.getLastAddConfirmed();
+
+        List<Batch> toRead = null;
+        synchronized (this) {
+            if (lh.getId() != ledgerId || sequentialReads < SEQUENTIAL_READS_THRESHOLD || cursor.isClosed()) {
+                return;
+            }
+
+            int targetBatches = targetBatches(maxBatches);
+            InflightReadsLimiter limiter = getInflightReadsLimiter();
+            boolean limiterEnabled = limiter != null && !limiter.isDisabled();
+            // Only prefetch full batches, a cursor that is about to catch up with the tail reads from the cache
+            while (batches.size() < targetBatches && nextPrefetchEntry + batchSize - 1 <= lastEntryInLedger) {
+                long estimatedSize = (long) (Math.max(avgEntrySize, 1) + RangeEntryCacheImpl
+                        .BOOKKEEPER_READ_OVERHEAD_PER_ENTRY) * batchSize;
+                if (limiterEnabled) {
+                    // Leave enough room for the regular reads
+                    if (limiter.getRemainingBytes() < 2 * estimatedSize) {
+                        break;
+                    }
+                } else if (!ledger.getFactory().tryReserveCursorReadAhead(estimatedSize)) {
+                    break;
+                }
+                Batch batch = new Batch(nextPrefetchEntry, nextPrefetchEntry + batchSize - 1);
+                batch.reservedBytes = limiterEnabled ? 0 : estimatedSize;
+                nextPrefetchEntry = batch.lastEntry + 1;
+                batches.addLast(batch);
+                if (toRead == null) {
+                    toRead = new ArrayList<>(targetBatches);
+                }
+                toRead.add(batch);
+            }
+            hasBatches = !batches.isEmpty();
+        }
+
+        if (toRead == null) {
+            return;
+        }
+        for (Batch batch : toRead) {
+            ledger.asyncReadAheadEntries(lh, batch.firstEntry, batch.lastEntry, new ReadEntriesCallback() {
+                @Override
+                public void readEntriesComplete(List<Entry> entries, Object ctx) {
+                    prefetchCompleted(batch, entries);
+                }
+
+                @Override
+                public void readEntriesFailed(ManagedLedgerException exception, Object ctx) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("[{}] [{}] Failed to read ahead {}-{} of ledger {}", ledger.getName(),
+                                cursor.getName(), batch.firstEntry, batch.lastEntry, lh.getId(), exception);
+                    }
+                    // Let the regular reads deal with the error
+                    discard();
+                }
+            }, null);
+        }
+    }
+
+    private void prefetchCompleted(Batch batch, List<Entry> entries) {
+        synchronized (this) {
+            if (batches.contains(batch)) {
+                batch.entries = new ArrayDeque<>(entries);
+                avgPrefetchLatencyNanos = ewma(avgPrefetchLatencyNanos, System.nanoTime() - batch.startTimestamp);
+                long size = 0;
+                for (Entry entry : entries) {
+                    avgEntrySize = ewma(avgEntrySize, entry.getLength());
+                    size += entry.getLength();
+                }
+                if (batch.reservedBytes > 0) {
+                    // Replace the estimation with the actual size of the entries
+                    cursor.ledger.getFactory().releaseCursorReadAhead(batch.reservedBytes - size);
+                    batch.reservedBytes = size;
+                }
+                return;
+            }
+        }
+        // The cursor has moved somewhere else in the meantime
+        entries.forEach(Entry::release);
+    }
+
+    /**
+     * Number of batches to keep ahead of the cursor, so that a read completes by the time the cursor has consumed
+     * the batches before it.
+     */
+    private int targetBatches(int maxBatches) {
+        if (avgReadIntervalNanos <= 0 || avgPrefetchLatencyNanos <= 0) {
+            return 1;
+        }
+        int batches = (int) Math.ceil(avgPrefetchLatencyNanos / avgReadIntervalNanos);
+        return Math.max(1, Math.min(maxBatches, batches));
+    }
+
+    private InflightReadsLimiter getInflightReadsLimiter() {
+        return cursor.ledger.entryCache instanceof RangeEntryCacheImpl rangeEntryCache
+                ? rangeEntryCache.getPendingReadsLimiter() : null;
+    }
+
+    /**
+     * Release all the prefetched entries.
+     */
+    synchronized void discard() {
+        discardBatches();
+        sequentialReads = 0;
+        nextPrefetchEntry = lastReadEntry + 1;
+    }
+
+    private void discardBatches() {
+        for (Batch batch : batches) {
+            releaseBatch(batch);
+        }
+        batches.clear();
+        nextPrefetchEntry = -1;
+        hasBatches = false;
+    }
+
+    /**
+     * Release the entries of a batch removed from the read-ahead, and the room it reserved in the entry cache.
+     */
+    private void releaseBatch(Batch batch) {
+        if (batch.entries != null) {
+            batch.entries.forEach(Entry::release);
+            batch.entries.clear();
+        }
+        if (batch.reservedBytes > 0) {
+            cursor.ledger.getFactory().releaseCursorReadAhead(batch.reservedBytes);
+            batch.reservedBytes = 0;
+        }
+    }
+
+    /**
+     * @return the number of entries read ahead that are waiting for the cursor to read them
+     */
+    @VisibleForTesting
+    synchronized int getNumberOfEntries() {
+        int entries = 0;
+        for (Batch batch : batches) {
+            if (batch.entries != null) {
+                entries += batch.entries.size();
+            }
+        }
+        return entries;
+    }
+
+    private static double ewma(double average, double sample) {
+        return average <= 0 ? sample : average + EWMA_ALPHA * (sample - average);
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(ManagedCursorReadAhead.class);
+}
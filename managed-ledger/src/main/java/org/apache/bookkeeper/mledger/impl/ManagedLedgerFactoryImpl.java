@@ -21,6 +21,7 @@ package org.apache.bookkeeper.mledger.impl;
 import static org.apache.bookkeeper.mledger.ManagedLedgerException.getManagedLedgerException;
 import static org.apache.bookkeeper.mledger.impl.ManagedLedgerImpl.NULL_OFFLOAD_PROMISE;
 import static org.apache.pulsar.common.util.Runnables.catchingAndLoggingThrowables;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Predicates;
 import com.google.common.collect.BoundType;
 import com.google.common.collect.Maps;
@@ -47,6 +48,7 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import lombok.Getter;
@@ -88,6 +90,7 @@ import org.apache.bookkeeper.mledger.impl.ManagedLedgerImpl.State;
 import org.apache.bookkeeper.mledger.impl.MetaStore.MetaStoreCallback;
 import org.apache.bookkeeper.mledger.impl.cache.EntryCacheManager;
 import org.apache.bookkeeper.mledger.impl.cache.RangeEntryCacheManagerImpl;
+import org.apache.bookkeeper.mledger.impl.cache.SegmentedEntryCacheManagerImpl;
 import org.apache.bookkeeper.mledger.offload.OffloadUtils;
 import org.apache.bookkeeper.mledger.proto.MLDataFormats;
 import org.apache.bookkeeper.mledger.proto.MLDataFormats.LongProperty;
@@ -127,6 +130,8 @@ public class ManagedLedgerFactoryImpl implements ManagedLedgerFactory {
     protected final ConcurrentHashMap<String, PendingInitializeManagedLedger> pendingInitializeLedgers =
         new ConcurrentHashMap<>();
     private final EntryCacheManager entryCacheManager;
+    // Size of the entries read ahead by the cursors, which are held outside of the entry cache
+    private final AtomicLong cursorReadAheadSize = new AtomicLong();
 
     private long lastStatTimestamp = System.nanoTime();
     private final ScheduledFuture<?> statsTask;
@@ -228,7 +233,9 @@ public class ManagedLedgerFactoryImpl implements ManagedLedgerFactory {
                 compressionConfigForManagedCursorInfo);
         this.config = config;
         this.mbean = new ManagedLedgerFactoryMBeanImpl(this);
-        this.entryCacheManager = new RangeEntryCacheManagerImpl(this, scheduledExecutor, openTelemetry);
+        this.entryCacheManager = config.isSegmentedEntryCacheEnabled()
+                ? new SegmentedEntryCacheManagerImpl(this, scheduledExecutor, openTelemetry)
+                : new RangeEntryCacheManagerImpl(this, scheduledExecutor, openTelemetry);
         this.statsTask = scheduledExecutor.scheduleWithFixedDelay(catchingAndLoggingThrowables(this::refreshStats),
                 0, config.getStatsPeriodSeconds(), TimeUnit.SECONDS);
         this.flushCursorsTask = scheduledExecutor.scheduleAtFixedRate(catchingAndLoggingThrowables(this::flushCursors),
@@ -1085,6 +1092,34 @@ public class ManagedLedgerFactoryImpl implements ManagedLedgerFactory {
         return entryCacheManager;
     }
 
+    /**
+     * Reserve room for entries read ahead by a cursor, so that the entries held by the cache and by the cursors
+     * don't go beyond the max size of the entry cache.
+     *
+     * @return false if there is not enough room left
+     */
+    boolean tryReserveCursorReadAhead(long bytes) {
+        long maxSize = entryCacheManager.getMaxSize();
+        while (true) {
+            long current = cursorReadAheadSize.get();
+            if (entryCacheManager.getSize() + current + bytes > maxSize) {
+                return false;
+            }
+            if (cursorReadAheadSize.compareAndSet(current, current + bytes)) {
+                return true;
+            }
+        }
+    }
+
+    void releaseCursorReadAhead(long bytes) {
+        cursorReadAheadSize.addAndGet(-bytes);
+    }
+
+    @VisibleForTesting
+    long getCursorReadAheadSize() {
+        return cursorReadAheadSize.get();
+    }
+
     @Override
     public void updateCacheEvictionTimeThreshold(long cacheEvictionTimeThresholdNanos){
         this.cacheEvictionTimeThresholdNanos = cacheEvictionTimeThresholdNanos;
@@ -1588,6 +1588,7 @@ public class ManagedLedgerImpl implements ManagedLedger, CreateCallback {
         if (state.isFenced()) {
             cancelScheduledTasks();
             factory.close(this);
+            discardCursorsReadAhead();
             callback.closeFailed(new ManagedLedgerFencedException(), ctx);
             return;
         } else if (state == State.Closed) {
@@ -1623,6 +1624,7 @@ public class ManagedLedgerImpl implements ManagedLedger, CreateCallback {
             }
             mbean.endDataLedgerCloseOp();
             if (rc != BKException.Code.OK) {
+                discardCursorsReadAhead();
                 callback.closeFailed(createManagedLedgerException(rc), ctx);
                 return;
             }
@@ -1637,6 +1639,17 @@ public class ManagedLedgerImpl implements ManagedLedger, CreateCallback {
 
     }
 
+    /**
+     * Release the entries read ahead by the cursors when they are not closed along with the managed ledger.
+     */
+    private void discardCursorsReadAhead() {
+        for (ManagedCursor cursor : cursors) {
+            if (cursor instanceof ManagedCursorImpl cursorImpl) {
+                cursorImpl.readAhead.discard();
+            }
+        }
+    }
+
     private void closeAllCursors(CloseCallback callback, final Object ctx) {
         // Close all cursors in parallel
         List<CompletableFuture<Void>> futures = new ArrayList();
@@ -2278,6 +2291,9 @@ public class ManagedLedgerImpl implements ManagedLedger, CreateCallback {
 
     protected void asyncReadEntry(ReadHandle ledger, long firstEntry, long lastEntry, OpReadEntry opReadEntry,
             Object ctx) {
+        if (opReadEntry.cursor.readAhead.read(ledger, firstEntry, lastEntry, opReadEntry, ctx)) {
+            return;
+        }
         if (config.getReadEntryTimeoutSeconds() > 0) {
             // set readOpCount to uniquely validate if ReadEntryCallbackWrapper is already recycled
             long readOpCount = READ_OP_COUNT_UPDATER.incrementAndGet(this);
@@ -2293,6 +2309,15 @@ public class ManagedLedgerImpl implements ManagedLedger, CreateCallback {
         }
     }
 
+    /**
+     * Read the entries prefetched by the read-ahead of a cursor. They are not put into the cache since they are held
+     * by the cursor until it reads them.
+     */
+    void asyncReadAheadEntries(ReadHandle ledger, long firstEntry, long lastEntry, ReadEntriesCallback callback,
+                               Object ctx) {
+        entryCache.asyncReadEntry(ledger, firstEntry, lastEntry, false, callback, ctx);
+    }
+
     static final class ReadEntryCallbackWrapper implements ReadEntryCallback, ReadEntriesCallback {
 
         volatile ReadEntryCallback readEntryCallback;
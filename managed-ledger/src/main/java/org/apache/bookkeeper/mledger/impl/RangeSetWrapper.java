@@ -24,8 +24,11 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeSet;
+import org.apache.commons.lang3.mutable.MutableBoolean;
 import org.apache.pulsar.common.util.collections.LongPairRangeSet;
 import org.apache.pulsar.common.util.collections.OpenLongPairRangeSet;
+import org.apache.pulsar.common.util.collections.RunLengthLongPairRangeSet;
 import org.roaringbitmap.RoaringBitSet;
 
 /**
@@ -47,22 +50,61 @@ public class RangeSetWrapper<T extends Comparable<T>> implements LongPairRangeSe
             (LongPairConsumer<Long>) (key, value) -> key,
             (RangeBoundConsumer<Long>) key -> new LongPair(key, 0));
 
+    /**
+     * Record which ledgers had ranges added since the last {@link #resetChangedLedgers()}, so that only the ranges of
+     * these ledgers can be persisted. Only tracked when the ranges are keyed by ledger.
+     */
+    private final boolean trackChangedLedgers;
+    private final TreeSet<Long> changedLedgers = new TreeSet<>();
+    private long lastChangedLedger = -1;
+    private boolean replacedSinceReset;
+
     public RangeSetWrapper(LongPairConsumer<T> rangeConverter,
                            RangeBoundConsumer<T> rangeBoundConsumer,
                            ManagedCursorImpl managedCursor) {
         this(rangeConverter, rangeBoundConsumer, managedCursor.getConfig().isUnackedRangesOpenCacheSetEnabled(),
-                managedCursor.getConfig().isPersistentUnackedRangesWithMultipleEntriesEnabled());
+                managedCursor.getConfig().isUnackedRangesRunLengthSetEnabled(),
+                managedCursor.getConfig().isPersistentUnackedRangesWithMultipleEntriesEnabled(),
+                managedCursor.getConfig().getMaxUnackedRangesToPersist());
+    }
+
+    public RangeSetWrapper(LongPairConsumer<T> rangeConverter,
+                           RangeBoundConsumer<T> rangeBoundConsumer,
+                           boolean unackedRangesOpenCacheSetEnabled,
+                           boolean persistentUnackedRangesWithMultipleEntriesEnabled) {
+        this(rangeConverter, rangeBoundConsumer, unackedRangesOpenCacheSetEnabled, false,
+                persistentUnackedRangesWithMultipleEntriesEnabled);
     }
 
     public RangeSetWrapper(LongPairConsumer<T> rangeConverter,
                            RangeBoundConsumer<T> rangeBoundConsumer,
                            boolean unackedRangesOpenCacheSetEnabled,
+                           boolean unackedRangesRunLengthSetEnabled,
                            boolean persistentUnackedRangesWithMultipleEntriesEnabled) {
+        this(rangeConverter, rangeBoundConsumer, unackedRangesOpenCacheSetEnabled, unackedRangesRunLengthSetEnabled,
+                persistentUnackedRangesWithMultipleEntriesEnabled, 0);
+    }
+
+    /**
+     * @param maxUnackedRangesToPersist the number of ranges kept by the run-length set, the ranges above it not
+     *                                  being persisted either, or 0 for no limit
+     */
+    public RangeSetWrapper(LongPairConsumer<T> rangeConverter,
+                           RangeBoundConsumer<T> rangeBoundConsumer,
+                           boolean unackedRangesOpenCacheSetEnabled,
+                           boolean unackedRangesRunLengthSetEnabled,
+                           boolean persistentUnackedRangesWithMultipleEntriesEnabled,
+                           int maxUnackedRangesToPersist) {
         this.rangeConverter = rangeConverter;
-        this.rangeSet = unackedRangesOpenCacheSetEnabled
-                ? new OpenLongPairRangeSet<>(rangeConverter, RoaringBitSet::new)
-                : new LongPairRangeSet.DefaultRangeSet<>(rangeConverter, rangeBoundConsumer);
+        if (unackedRangesOpenCacheSetEnabled && unackedRangesRunLengthSetEnabled) {
+            this.rangeSet = new RunLengthLongPairRangeSet<>(rangeConverter, Math.max(maxUnackedRangesToPersist, 0));
+        } else if (unackedRangesOpenCacheSetEnabled) {
+            this.rangeSet = new OpenLongPairRangeSet<>(rangeConverter, RoaringBitSet::new);
+        } else {
+            this.rangeSet = new LongPairRangeSet.DefaultRangeSet<>(rangeConverter, rangeBoundConsumer);
+        }
         this.enableMultiEntry = persistentUnackedRangesWithMultipleEntriesEnabled;
+        this.trackChangedLedgers = unackedRangesOpenCacheSetEnabled;
     }
 
     @Override
@@ -70,9 +112,21 @@ public class RangeSetWrapper<T extends Comparable<T>> implements LongPairRangeSe
         if (enableMultiEntry) {
             dirtyLedgers.addOpenClosed(lowerKey, 0, upperKey, 0);
         }
+        if (trackChangedLedgers) {
+            // A range over multiple ledgers can only change the lower and the upper ledgers
+            markChanged(lowerKey);
+            markChanged(upperKey);
+        }
         rangeSet.addOpenClosed(lowerKey, lowerValue, upperKey, upperValue);
     }
 
+    private void markChanged(long ledgerId) {
+        if (ledgerId != lastChangedLedger) {
+            changedLedgers.add(ledgerId);
+            lastChangedLedger = ledgerId;
+        }
+    }
+
     @Override
     public boolean contains(long key, long value) {
         return rangeSet.contains(key, value);
@@ -88,6 +142,10 @@ public class RangeSetWrapper<T extends Comparable<T>> implements LongPairRangeSe
         if (enableMultiEntry) {
             dirtyLedgers.removeAtMost(key, 0);
         }
+        if (trackChangedLedgers) {
+            changedLedgers.headSet(key).clear();
+            lastChangedLedger = -1;
+        }
         rangeSet.removeAtMost(key, value);
     }
 
@@ -100,6 +158,9 @@ public class RangeSetWrapper<T extends Comparable<T>> implements LongPairRangeSe
     public void clear() {
         rangeSet.clear();
         dirtyLedgers.clear();
+        changedLedgers.clear();
+        lastChangedLedger = -1;
+        replacedSinceReset = true;
     }
 
     @Override
@@ -154,6 +215,7 @@ public class RangeSetWrapper<T extends Comparable<T>> implements LongPairRangeSe
     @Override
     public void build(Map<Long, long[]> internalRange) {
         rangeSet.build(internalRange);
+        replacedSinceReset = true;
     }
 
     @Override
@@ -163,6 +225,10 @@ public class RangeSetWrapper<T extends Comparable<T>> implements LongPairRangeSe
 
     @VisibleForTesting
     void add(Range<LongPair> range) {
+        if (rangeSet instanceof RunLengthLongPairRangeSet) {
+            ((RunLengthLongPairRangeSet<T>) rangeSet).add(range);
+            return;
+        }
         if (!(rangeSet instanceof OpenLongPairRangeSet)) {
             throw new UnsupportedOperationException("Only ConcurrentOpenLongPairRangeSet support this method");
         }
@@ -173,6 +239,8 @@ public class RangeSetWrapper<T extends Comparable<T>> implements LongPairRangeSe
     void remove(Range<T> range) {
         if (rangeSet instanceof OpenLongPairRangeSet) {
             ((OpenLongPairRangeSet<T>) rangeSet).remove((Range<LongPair>) range);
+        } else if (rangeSet instanceof RunLengthLongPairRangeSet) {
+            ((RunLengthLongPairRangeSet<T>) rangeSet).remove((Range<LongPair>) range);
         } else {
             ((DefaultRangeSet<T>) rangeSet).remove(range);
         }
@@ -186,6 +254,40 @@ public class RangeSetWrapper<T extends Comparable<T>> implements LongPairRangeSe
         return dirtyLedgers.contains(ledgerId);
     }
 
+    /**
+     * @return true if the ranges of the ledgers that changed since the last {@link #resetChangedLedgers()} are enough
+     *         to rebuild this set from its state at that time
+     */
+    public boolean hasOnlyChangedLedgers() {
+        return trackChangedLedgers && !replacedSinceReset;
+    }
+
+    /**
+     * Performs the given action for each range of the ledgers that changed since the last
+     * {@link #resetChangedLedgers()}, until all the ranges have been processed or action returns "false".
+     */
+    public void forEachRawRangeOfChangedLedgers(RawRangeProcessor action) {
+        MutableBoolean completed = new MutableBoolean();
+        for (long ledgerId : changedLedgers) {
+            rangeSet.forEachRawRange(ledgerId, (lowerKey, lowerValue, upperKey, upperValue) -> {
+                if (!action.processRawRange(lowerKey, lowerValue, upperKey, upperValue)) {
+                    completed.setTrue();
+                    return false;
+                }
+                return true;
+            });
+            if (completed.isTrue()) {
+                return;
+            }
+        }
+    }
+
+    public void resetChangedLedgers() {
+        changedLedgers.clear();
+        lastChangedLedger = -1;
+        replacedSinceReset = false;
+    }
+
     @Override
     public String toString() {
         return rangeSet.toString();
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.impl.cache;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A TinyLFU style frequency sketch used to decide whether an entry read from storage is worth caching.
+ *
+ * <p/>This is a count-min sketch of 4-bit counters, 16 counters packed in each long, with 4 hash functions. Once the
+ * number of recorded accesses reaches the sample size, all the counters are halved so that the sketch keeps track of
+ * the recent popularity of the entries.
+ *
+ * <p/>Concurrent updates are lock-free and a few increments might get lost under contention, which is acceptable
+ * since the sketch is only an estimation.
+ */
+class EntryCacheFrequencySketch {
+
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final int MAX_COUNT = 15;
+    private static final int MAX_TABLE_SIZE = 1 << 24;
+
+    private final AtomicLongArray table;
+    private final int tableMask;
+    private final int sampleSize;
+    private final AtomicInteger additions = new AtomicInteger();
+    private final AtomicBoolean resetInProgress = new AtomicBoolean();
+
+    EntryCacheFrequencySketch(long expectedEntries) {
+        long tableSize = Long.highestOneBit(Math.max(1, expectedEntries - 1)) << 1;
+        int size = (int) Math.min(MAX_TABLE_SIZE, Math.max(64, tableSize));
+        this.table = new AtomicLongArray(size);
+        this.tableMask = size - 1;
+        this.sampleSize = 10 * size;
+    }
+
+    /**
+     * @return the estimated number of recent accesses to the entry, capped to 15
+     */
+    int frequency(long ledgerId, long entryId) {
+        long hash = spread(ledgerId, entryId);
+        int start = (int) (hash & 3) << 2;
+        int frequency = MAX_COUNT;
+        for (int i = 0; i < 4; i++) {
+            int index = indexOf(hash, i);
+            int count = (int) ((table.get(index) >>> ((start + i) << 2)) & 0xFL);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    /**
+     * Record an access to the entry.
+     */
+    void increment(long ledgerId, long entryId) {
+        long hash = spread(ledgerId, entryId);
+        int start = (int) (hash & 3) << 2;
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            added |= incrementAt(indexOf(hash, i), start + i);
+        }
+
+        if (added && additions.incrementAndGet() >= sampleSize) {
+            reset();
+        }
+    }
+
+    private boolean incrementAt(int index, int counter) {
+        int offset = counter << 2;
+        long mask = 0xFL << offset;
+        while (true) {
+            long value = table.get(index);
+            if ((value & mask) == mask) {
+                // Counter is already saturated
+                return false;
+            }
+            if (table.compareAndSet(index, value, value + (1L << offset))) {
+                return true;
+            }
+        }
+    }
+
+    private void reset() {
+        if (!resetInProgress.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            for (int i = 0; i < table.length(); i++) {
+                table.set(i, (table.get(i) >>> 1) & RESET_MASK);
+            }
+            additions.set(additions.get() / 2);
+        } finally {
+            resetInProgress.set(false);
+        }
+    }
+
+    private int indexOf(long item, int i) {
+        long hash = (item + SEEDS[i]) * SEEDS[i];
+        hash += (hash >>> 32);
+        return ((int) hash) & tableMask;
+    }
+
+    private static long spread(long ledgerId, long entryId) {
+        long hash = ledgerId * 0x9E3779B97F4A7C15L ^ entryId;
+        hash = (hash ^ (hash >>> 33)) * 0xff51afd7ed558ccdL;
+        hash = (hash ^ (hash >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+}
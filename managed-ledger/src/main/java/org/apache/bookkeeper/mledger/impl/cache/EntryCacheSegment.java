@@ -0,0 +1,253 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.impl.cache;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pre-allocated, append-only region of direct memory used by {@link SegmentedEntryCacheManagerImpl}.
+ *
+ * <p/>Entries are appended one after the other, each one prefixed by a small header, and are never freed
+ * individually: the whole segment is recycled at once when the cache wraps around. Every recycle bumps the segment
+ * generation, which invalidates all the locations previously handed out for this segment without having to visit
+ * the per-ledger indexes that are referencing them.
+ *
+ * <p/>A location is a single long packing the segment index, the low bits of the generation and the offset of the
+ * entry header within the segment. The value 0 is never a valid location. The locations of the segments from index
+ * 0x8000 are negative, so only {@link #NO_SPACE} means that there's no space left.
+ */
+class EntryCacheSegment {
+
+    /**
+     * Header written before each entry: ledgerId, entryId and payload length.
+     */
+    static final int ENTRY_HEADER_SIZE = Long.BYTES + Long.BYTES + Integer.BYTES;
+
+    static final int MAX_SEGMENTS = 0xFFFF;
+    static final long NO_SPACE = -1;
+    private static final int GENERATION_MASK = 0xFFFF;
+
+    private final int index;
+    private final int capacity;
+    private final ByteBuf buffer;
+
+    private volatile int generation;
+    private final AtomicInteger pendingWrites = new AtomicInteger();
+
+    // Guarded by the SegmentedEntryCacheManagerImpl instance lock
+    private int writeOffset;
+    private volatile long lastInsertTimestamp = -1;
+
+    // Guarded by this
+    private final Map<SegmentedEntryCacheImpl, Usage> usages = new IdentityHashMap<>();
+
+    private static class Usage {
+        long size;
+        int count;
+    }
+
+    EntryCacheSegment(int index, int capacity, int initialGeneration) {
+        this.index = index;
+        this.capacity = capacity;
+        // The memory is released by the GC once the segment is not referenced anymore, so readers that are still
+        // holding a reference to a retired segment can never access freed memory
+        this.buffer = Unpooled.wrappedBuffer(ByteBuffer.allocateDirect(capacity));
+        this.generation = nextGeneration(initialGeneration);
+    }
+
+    int getIndex() {
+        return index;
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    long getLastInsertTimestamp() {
+        return lastInsertTimestamp;
+    }
+
+    boolean isEmpty() {
+        return lastInsertTimestamp < 0;
+    }
+
+    /**
+     * Reserve the space for an entry at the tail of the segment.
+     *
+     * <p/>Must be called while holding the manager lock. The reservation must be followed by a call to
+     * {@link #write(long, long, long, ByteBuf)}.
+     *
+     * @return the location of the reserved space, or {@link #NO_SPACE} if the segment doesn't have enough space left
+     */
+    long reserve(SegmentedEntryCacheImpl owner, int entryLength) {
+        int required = ENTRY_HEADER_SIZE + entryLength;
+        if (capacity - writeOffset < required) {
+            return NO_SPACE;
+        }
+
+        int offset = writeOffset;
+        writeOffset += required;
+        pendingWrites.incrementAndGet();
+        synchronized (this) {
+            Usage usage = usages.computeIfAbsent(owner, __ -> new Usage());
+            usage.size += entryLength;
+            usage.count++;
+        }
+        lastInsertTimestamp = System.nanoTime();
+        return location(offset);
+    }
+
+    /**
+     * Copy the entry into the space previously reserved at the given location.
+     */
+    void write(long location, long ledgerId, long entryId, ByteBuf data) {
+        try {
+            int offset = offset(location);
+            int length = data.readableBytes();
+            buffer.setLong(offset, ledgerId);
+            buffer.setLong(offset + Long.BYTES, entryId);
+            buffer.setInt(offset + 2 * Long.BYTES, length);
+            buffer.setBytes(offset + ENTRY_HEADER_SIZE, data, data.readerIndex(), length);
+        } finally {
+            pendingWrites.decrementAndGet();
+        }
+    }
+
+    /**
+     * Copy out the entry stored at the given location.
+     *
+     * <p/>The read is optimistic: if the segment gets recycled while the data is being copied, the copy is discarded.
+     *
+     * @return a buffer with the entry payload, or null if the location is not valid anymore
+     */
+    ByteBuf read(long location, long ledgerId, long entryId, ByteBufAllocator allocator) {
+        int currentGeneration = generation;
+        if ((currentGeneration & GENERATION_MASK) != generation(location)) {
+            return null;
+        }
+
+        int offset = offset(location);
+        if (!isInBounds(offset)
+                || buffer.getLong(offset) != ledgerId || buffer.getLong(offset + Long.BYTES) != entryId) {
+            return null;
+        }
+        int length = buffer.getInt(offset + 2 * Long.BYTES);
+        if (length < 0 || length > capacity - offset - ENTRY_HEADER_SIZE) {
+            return null;
+        }
+
+        ByteBuf data = allocator.directBuffer(length, length);
+        data.writeBytes(buffer, offset + ENTRY_HEADER_SIZE, length);
+
+        // Make sure the copy is completed before validating the generation again
+        VarHandle.acquireFence();
+        if (generation != currentGeneration) {
+            data.release();
+            return null;
+        }
+        return data;
+    }
+
+    /**
+     * Release the accounting for the entry stored at the given location. The memory itself is only reclaimed when
+     * the segment is recycled.
+     *
+     * @return the length of the released entry, or -1 if the location was not valid anymore
+     */
+    synchronized int release(SegmentedEntryCacheImpl owner, long location, long ledgerId, long entryId) {
+        if ((generation & GENERATION_MASK) != generation(location)) {
+            return -1;
+        }
+
+        int offset = offset(location);
+        if (!isInBounds(offset)
+                || buffer.getLong(offset) != ledgerId || buffer.getLong(offset + Long.BYTES) != entryId) {
+            return -1;
+        }
+        int length = buffer.getInt(offset + 2 * Long.BYTES);
+        Usage usage = usages.get(owner);
+        if (usage != null) {
+            usage.size -= length;
+            usage.count--;
+        }
+        return length;
+    }
+
+    boolean isValid(long location) {
+        return (generation & GENERATION_MASK) == generation(location);
+    }
+
+    /**
+     * Discard all the entries stored in this segment and make the whole space available again.
+     *
+     * <p/>Must be called while holding the manager lock.
+     */
+    void recycle() {
+        // Wait for the writers that have already reserved space in this segment
+        while (pendingWrites.get() > 0) {
+            Thread.onSpinWait();
+        }
+
+        synchronized (this) {
+            generation = nextGeneration(generation);
+            // Ensure the new generation is visible before the space gets overwritten
+            VarHandle.storeStoreFence();
+            writeOffset = 0;
+            lastInsertTimestamp = -1;
+            usages.forEach((owner, usage) -> owner.onSegmentRecycled(usage.size, usage.count));
+            usages.clear();
+        }
+    }
+
+    private boolean isInBounds(int offset) {
+        return offset >= 0 && offset <= capacity - ENTRY_HEADER_SIZE;
+    }
+
+    private long location(int offset) {
+        return ((long) index << 48) | ((long) (generation & GENERATION_MASK) << 32) | (offset & 0xFFFFFFFFL);
+    }
+
+    static int segmentIndex(long location) {
+        return (int) (location >>> 48);
+    }
+
+    private static int generation(long location) {
+        return (int) (location >>> 32) & GENERATION_MASK;
+    }
+
+    static int offset(long location) {
+        return (int) location;
+    }
+
+    private static int nextGeneration(int generation) {
+        int next = generation + 1;
+        if ((next & GENERATION_MASK) == 0) {
+            // Skip the generation that would allow a 0 location
+            next++;
+        }
+        return next;
+    }
+}
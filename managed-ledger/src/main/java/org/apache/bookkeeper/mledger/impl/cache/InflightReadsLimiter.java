@@ -156,6 +156,39 @@ public class InflightReadsLimiter implements AutoCloseable {
         return internalAcquire(permits, callback);
     }
 
+    /**
+     * Acquires permits from the limiter only if they are immediately available and no other acquire is queued.
+     * If the limiter is disabled, it will immediately return a successful handle. Otherwise, unlike
+     * {@link #acquire(long, Consumer)}, the request is never queued and an empty optional is returned when the
+     * permits cannot be acquired right away.
+     *
+     * A returned handle is always successful, and the caller must call release with the handle when the permits are
+     * no longer needed.
+     *
+     * @param permits the number of permits to acquire
+     * @return an optional handle that contains the permits if acquired, otherwise an empty optional
+     */
+    public Optional<Handle> tryAcquire(long permits) {
+        if (isDisabled()) {
+            return DISABLED_OPTIONAL;
+        }
+        return internalTryAcquire(permits);
+    }
+
+    private synchronized Optional<Handle> internalTryAcquire(long permits) {
+        if (!queuedHandles.isEmpty() || remainingBytes < permits) {
+            return Optional.empty();
+        }
+        remainingBytes -= permits;
+        Handle handle = new Handle(permits, System.currentTimeMillis(), true);
+        if (log.isDebugEnabled()) {
+            log.debug("acquired permits: {}, creationTime: {}, remainingBytes:{}", permits, handle.creationTime,
+                    remainingBytes);
+        }
+        updateMetrics();
+        return Optional.of(handle);
+    }
+
     private synchronized Optional<Handle> internalAcquire(long permits, Consumer<Handle> callback) {
         Handle handle = new Handle(permits, System.currentTimeMillis(), true);
         if (remainingBytes >= permits) {
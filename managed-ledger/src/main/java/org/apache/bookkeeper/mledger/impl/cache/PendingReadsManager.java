@@ -21,22 +21,37 @@ package org.apache.bookkeeper.mledger.impl.cache;
 import static org.apache.bookkeeper.mledger.impl.ManagedLedgerImpl.createManagedLedgerException;
 import io.prometheus.client.Counter;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.bookkeeper.client.api.ReadHandle;
 import org.apache.bookkeeper.mledger.AsyncCallbacks;
 import org.apache.bookkeeper.mledger.Entry;
+import org.apache.bookkeeper.mledger.ManagedCursor;
+import org.apache.bookkeeper.mledger.ManagedLedgerConfig;
 import org.apache.bookkeeper.mledger.ManagedLedgerException;
+import org.apache.bookkeeper.mledger.Position;
 import org.apache.bookkeeper.mledger.impl.EntryImpl;
+import org.apache.bookkeeper.mledger.impl.ManagedLedgerImpl;
 
 /**
  * PendingReadsManager tries to prevent sending duplicate reads to BK.
+ *
+ * <p/>When several cursors are reading the same ledger close to each other (eg: many subscriptions draining a
+ * similar backlog), a read that misses the cache can be coalesced: it is extended to also cover the entries that
+ * the other cursors are about to read, and all the entries are offered to the entry cache, through its admission
+ * policy, so that the following reads of the other cursors are served from memory instead of hitting the bookies
+ * again.
  */
 @Slf4j
 public class PendingReadsManager {
@@ -87,14 +102,71 @@ public class PendingReadsManager {
             .help("Pending reads that didn't find a match but they partially overlap with another read")
             .register();
 
+    private static final Counter COUNT_COALESCED_READS = Counter
+            .build()
+            .name("pulsar_ml_cache_pendingreads_coalesced")
+            .help("Reads from BK extended to fetch the entries of other cursors reading close to each other")
+            .register();
+
+    private static final Counter COUNT_COALESCED_READS_SAVED = Counter
+            .build()
+            .name("pulsar_ml_cache_pendingreads_coalesced_reads_saved")
+            .help("Reads served from the cache with entries fetched by a coalesced read")
+            .register();
+
+    private static final Counter COUNT_COALESCED_BYTES_SAVED = Counter
+            .build()
+            .name("pulsar_ml_cache_pendingreads_coalesced_bytes_saved")
+            .help("Bytes served from the cache with entries fetched by a coalesced read")
+            .register();
+
     private final RangeEntryCacheImpl rangeEntryCache;
     private final ConcurrentHashMap<Long, ConcurrentHashMap<PendingReadKey, PendingRead>> cachedPendingReads =
             new ConcurrentHashMap<>();
+    // Entries inserted into the cache by the last coalesced read of each ledger, used to account for the reads that
+    // it saved
+    private final ConcurrentHashMap<Long, CoalescedReadEntries> lastCoalescedReads = new ConcurrentHashMap<>();
+    // Read positions of the cursors in the ledger of the last cache miss, so that the cache misses don't all walk the
+    // cursors of the managed ledger
+    private volatile CursorReadIndex cursorReadIndex;
 
     public PendingReadsManager(RangeEntryCacheImpl rangeEntryCache) {
         this.rangeEntryCache = rangeEntryCache;
     }
 
+    private static final long CURSOR_READ_INDEX_MAX_AGE_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private record CoalescedReadEntries(long startEntry, BitSet inserted) {
+        boolean includes(long firstEntry, long lastEntry) {
+            if (firstEntry < startEntry || lastEntry - startEntry >= inserted.length()) {
+                return false;
+            }
+            return inserted.nextClearBit((int) (firstEntry - startEntry)) > lastEntry - startEntry;
+        }
+    }
+
+    /**
+     * The sorted read entry ids of the cursors reading a ledger.
+     */
+    private record CursorReadIndex(long ledgerId, long[] readEntries, long createdAtNanos) {
+        /**
+         * @return the index of the first read entry id greater than the given one
+         */
+        int indexAfter(long entryId) {
+            int low = 0;
+            int high = readEntries.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (readEntries[mid] <= entryId) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
     private record PendingReadKey(long startEntry, long endEntry) {
         long size() {
             return endEntry - startEntry + 1;
@@ -142,8 +214,8 @@ public class PendingReadsManager {
         }
     }
 
-    private FindPendingReadOutcome findPendingRead(PendingReadKey key, ConcurrentMap<PendingReadKey,
-            PendingRead> ledgerCache, AtomicBoolean created) {
+    private FindPendingReadOutcome findPendingRead(PendingReadKey key, PendingReadKey readKey,
+            ConcurrentMap<PendingReadKey, PendingRead> ledgerCache, AtomicBoolean created) {
         synchronized (ledgerCache) {
             PendingRead existing = ledgerCache.get(key);
             if (existing != null) {
@@ -200,11 +272,11 @@ public class PendingReadsManager {
             }
 
             created.set(true);
-            PendingRead newRead = new PendingRead(key, ledgerCache);
-            ledgerCache.put(key, newRead);
-            long delta = key.size();
-            COUNT_PENDING_READS_MISSED.inc(delta);
-            COUNT_ENTRIES_READ_FROM_BK.inc(delta);
+            // the read sent to BK might cover a larger range than the requested one if it is coalesced
+            PendingRead newRead = new PendingRead(readKey, ledgerCache);
+            ledgerCache.put(readKey, newRead);
+            COUNT_PENDING_READS_MISSED.inc(key.size());
+            COUNT_ENTRIES_READ_FROM_BK.inc(readKey.size());
             return new FindPendingReadOutcome(newRead, null, null);
         }
     }
@@ -330,13 +402,23 @@ public class PendingReadsManager {
                      final AsyncCallbacks.ReadEntriesCallback callback, Object ctx) {
         final PendingReadKey key = new PendingReadKey(firstEntry, lastEntry);
 
+        PendingReadKey coalescedReadKey = coalescedReadKey(lh, key);
+        InflightReadsLimiter.Handle coalescedReadPermits = null;
+        if (!coalescedReadKey.equals(key)) {
+            coalescedReadPermits = acquireCoalescedReadPermits(lh, key, coalescedReadKey);
+            if (coalescedReadPermits == null) {
+                coalescedReadKey = key;
+            }
+        }
+        final PendingReadKey readKey = coalescedReadKey;
+
         ConcurrentMap<PendingReadKey, PendingRead> pendingReadsForLedger =
                 cachedPendingReads.computeIfAbsent(lh.getId(), (l) -> new ConcurrentHashMap<>());
 
         boolean listenerAdded = false;
         while (!listenerAdded) {
             AtomicBoolean createdByThisThread = new AtomicBoolean();
-            FindPendingReadOutcome findBestCandidateOutcome = findPendingRead(key,
+            FindPendingReadOutcome findBestCandidateOutcome = findPendingRead(key, readKey,
                     pendingReadsForLedger, createdByThisThread);
             PendingRead pendingRead = findBestCandidateOutcome.pendingRead;
 
@@ -376,11 +458,169 @@ public class PendingReadsManager {
             }
 
             if (createdByThisThread.get()) {
-                CompletableFuture<List<EntryImpl>> readResult = rangeEntryCache.readFromStorage(lh, firstEntry,
-                        lastEntry, shouldCacheEntry);
+                CompletableFuture<List<EntryImpl>> readResult;
+                if (readKey.equals(key)) {
+                    readResult = rangeEntryCache.readFromStorage(lh, firstEntry, lastEntry, shouldCacheEntry);
+                } else {
+                    COUNT_COALESCED_READS.inc();
+                    // The cursors are going to move past the coalesced read
+                    cursorReadIndex = null;
+                    readResult = releaseWhenEntriesAreReleased(rangeEntryCache.readFromStorage(lh,
+                            readKey.startEntry, readKey.endEntry, shouldCacheEntry, true), coalescedReadPermits);
+                    coalescedReadPermits = null;
+                }
                 pendingRead.attach(readResult);
             }
         }
+        if (coalescedReadPermits != null) {
+            // the read has been attached to an existing pending read, the coalesced read hasn't been issued
+            rangeEntryCache.getPendingReadsLimiter().release(coalescedReadPermits);
+        }
+    }
+
+    /**
+     * Acquires the inflight reads permits for the entries that a coalesced read adds to the requested range, the
+     * requested entries being covered by the permits of the read itself.
+     * <p/>Coalescing is only an optimization, so the read isn't extended when the permits aren't immediately
+     * available.
+     *
+     * @return the handle holding the permits, or null if the read must not be extended
+     */
+    private InflightReadsLimiter.Handle acquireCoalescedReadPermits(ReadHandle lh, PendingReadKey key,
+                                                                   PendingReadKey readKey) {
+        long estimatedReadSize = (readKey.size() - key.size()) * rangeEntryCache.getEstimatedEntrySize(lh);
+        Optional<InflightReadsLimiter.Handle> handle =
+                rangeEntryCache.getPendingReadsLimiter().tryAcquire(estimatedReadSize);
+        if (handle.isEmpty() && log.isDebugEnabled()) {
+            log.debug("[{}] Not coalescing read {} into {}, no permits available for {} bytes",
+                    rangeEntryCache.getName(), key, readKey, estimatedReadSize);
+        }
+        return handle.orElse(null);
+    }
+
+    /**
+     * Releases the permits once all the entries of the read have been released, like the permits of the requested
+     * entries are released in {@link RangeEntryCacheImpl}.
+     */
+    private CompletableFuture<List<EntryImpl>> releaseWhenEntriesAreReleased(
+            CompletableFuture<List<EntryImpl>> readResult, InflightReadsLimiter.Handle handle) {
+        InflightReadsLimiter pendingReadsLimiter = rangeEntryCache.getPendingReadsLimiter();
+        return readResult.whenComplete((entries, error) -> {
+            if (error != null || entries.isEmpty()) {
+                pendingReadsLimiter.release(handle);
+                return;
+            }
+            AtomicInteger remainingCount = new AtomicInteger(entries.size());
+            for (EntryImpl entry : entries) {
+                entry.onDeallocate(() -> {
+                    if (remainingCount.decrementAndGet() <= 0) {
+                        pendingReadsLimiter.release(handle);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Compute the range to read from BK for the given read, extending it to the entries that the other cursors
+     * reading close to the requested range are going to read next.
+     *
+     * <p/>The extended range is capped to {@link ManagedLedgerConfig#getMaxEntriesPerCoalescedRead()} entries and
+     * never goes beyond the last confirmed entry of the ledger.
+     */
+    private PendingReadKey coalescedReadKey(ReadHandle lh, PendingReadKey key) {
+        ManagedLedgerConfig config = rangeEntryCache.getManagedLedgerConfig();
+        int minimumCursors = config.getMinimumCursorsForCoalescedReads();
+        int maxEntries = config.getMaxEntriesPerCoalescedRead();
+        if (minimumCursors < 2 || key.size() >= maxEntries) {
+            return key;
+        }
+
+        ManagedLedgerImpl ml = rangeEntryCache.getManagedLedger();
+        long ledgerId = lh.getId();
+        long maxDistance = config.getMaxDistanceBetweenCursorsForCoalescedReads();
+        CursorReadIndex index = getCursorReadIndex(ml, ledgerId);
+        int firstInRange = index.indexAfter(key.startEntry - maxDistance - 1);
+        int lastInRange = index.indexAfter(key.startEntry + maxDistance) - 1;
+        int cursorsInRange = lastInRange - firstInRange + 1;
+        if (cursorsInRange < minimumCursors) {
+            return key;
+        }
+        long lowestReadEntry = Math.min(key.startEntry, index.readEntries[firstInRange]);
+        long highestReadEntry = Math.max(key.startEntry, index.readEntries[lastInRange]);
+
+        long lastReadableEntry = lh.getLastAddConfirmed();
+        Position lastConfirmedEntry = ml.getLastConfirmedEntry();
+        if (lastConfirmedEntry != null && lastConfirmedEntry.getLedgerId() == ledgerId) {
+            lastReadableEntry = Math.min(lastReadableEntry, lastConfirmedEntry.getEntryId());
+        }
+
+        // Start from the slowest cursor, and let the fastest one read as many entries as requested by this read
+        long startEntry = Math.max(0, Math.min(key.startEntry,
+                Math.max(lowestReadEntry, key.endEntry - maxEntries + 1)));
+        long endEntry = Math.min(highestReadEntry + key.size() - 1, startEntry + maxEntries - 1);
+        endEntry = Math.max(key.endEntry, Math.min(endEntry, lastReadableEntry));
+        if (startEntry == key.startEntry && endEntry == key.endEntry) {
+            return key;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("[{}] Coalescing read {}-{} of ledger {} into {}-{} for {} cursors", rangeEntryCache.getName(),
+                    key.startEntry, key.endEntry, ledgerId, startEntry, endEntry, cursorsInRange);
+        }
+        return new PendingReadKey(startEntry, endEntry);
+    }
+
+    /**
+     * Get the read positions of the cursors in the given ledger, which are collected again when they are older than
+     * {@link #CURSOR_READ_INDEX_MAX_AGE_NANOS}, for another ledger or after a coalesced read.
+     */
+    private CursorReadIndex getCursorReadIndex(ManagedLedgerImpl ml, long ledgerId) {
+        long now = System.nanoTime();
+        CursorReadIndex index = cursorReadIndex;
+        if (index != null && index.ledgerId == ledgerId
+                && now - index.createdAtNanos < CURSOR_READ_INDEX_MAX_AGE_NANOS) {
+            return index;
+        }
+        long[] readEntries = new long[16];
+        int count = 0;
+        for (ManagedCursor cursor : ml.getCursors()) {
+            Position readPosition = cursor.getReadPosition();
+            if (readPosition == null || readPosition.getLedgerId() != ledgerId) {
+                continue;
+            }
+            if (count == readEntries.length) {
+                readEntries = Arrays.copyOf(readEntries, count * 2);
+            }
+            readEntries[count++] = readPosition.getEntryId();
+        }
+        readEntries = Arrays.copyOf(readEntries, count);
+        Arrays.sort(readEntries);
+        index = new CursorReadIndex(ledgerId, readEntries, now);
+        cursorReadIndex = index;
+        return index;
+    }
+
+    /**
+     * Record the entries that a coalesced read inserted into the cache, to track the reads that they save.
+     *
+     * @param inserted the offsets from {@code startEntry} of the inserted entries
+     */
+    void recordCoalescedRead(long ledgerId, long startEntry, BitSet inserted) {
+        lastCoalescedReads.put(ledgerId, new CoalescedReadEntries(startEntry, inserted));
+    }
+
+    /**
+     * Account for a read fully served by the cache, to track the reads saved by the coalesced reads.
+     */
+    void recordCacheHit(long ledgerId, long firstEntry, long lastEntry, long size) {
+        if (lastCoalescedReads.isEmpty()) {
+            return;
+        }
+        CoalescedReadEntries coalescedRead = lastCoalescedReads.get(ledgerId);
+        if (coalescedRead != null && coalescedRead.includes(firstEntry, lastEntry)) {
+            COUNT_COALESCED_READS_SAVED.inc();
+            COUNT_COALESCED_BYTES_SAVED.inc(size);
+        }
     }
 
     private CompletableFuture<List<Entry>> recursiveReadMissingEntriesAsync(ReadHandle lh, boolean shouldCacheEntry,
@@ -406,10 +646,14 @@ public class PendingReadsManager {
 
     void clear() {
         cachedPendingReads.clear();
+        lastCoalescedReads.clear();
+        cursorReadIndex = null;
     }
 
     void invalidateLedger(long id) {
         cachedPendingReads.remove(id);
+        lastCoalescedReads.remove(id);
+        cursorReadIndex = null;
     }
 
     static class ReadEntriesCallback implements AsyncCallbacks.ReadEntriesCallback {
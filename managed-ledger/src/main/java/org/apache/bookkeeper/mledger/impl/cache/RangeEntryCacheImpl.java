@@ -25,6 +25,7 @@ import com.google.common.annotations.VisibleForTesting;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.PooledByteBufAllocator;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -375,17 +376,7 @@ public class RangeEntryCacheImpl implements EntryCache {
     void doAsyncReadEntriesByPosition(ReadHandle lh, Position firstPosition, Position lastPosition, int numberOfEntries,
                                       boolean shouldCacheEntry, final ReadEntriesCallback callback,
                                       Object ctx) {
-        Collection<EntryImpl> cachedEntries;
-        if (firstPosition.compareTo(lastPosition) == 0) {
-            EntryImpl cachedEntry = entries.get(firstPosition);
-            if (cachedEntry == null) {
-                cachedEntries = Collections.emptyList();
-            } else {
-                cachedEntries = Collections.singleton(cachedEntry);
-            }
-        } else {
-            cachedEntries = entries.getRange(firstPosition, lastPosition);
-        }
+        Collection<EntryImpl> cachedEntries = getCachedEntries(firstPosition, lastPosition);
 
         if (cachedEntries.size() == numberOfEntries) {
             long totalCachedSize = 0;
@@ -399,6 +390,8 @@ public class RangeEntryCacheImpl implements EntryCache {
             }
 
             manager.mlFactoryMBean.recordCacheHits(entriesToReturn.size(), totalCachedSize);
+            pendingReadsManager.recordCacheHit(firstPosition.getLedgerId(), firstPosition.getEntryId(),
+                    lastPosition.getEntryId(), totalCachedSize);
             if (log.isDebugEnabled()) {
                 log.debug("[{}] Cache hit for {} entries in range {} to {}", ml.getName(), numberOfEntries,
                         firstPosition, lastPosition);
@@ -417,6 +410,36 @@ public class RangeEntryCacheImpl implements EntryCache {
         }
     }
 
+    /**
+     * Get the cached entries in the given range. The returned entries are retained and must be released by the caller.
+     *
+     * @param firstPosition the first position of the range (inclusive)
+     * @param lastPosition the last position of the range (inclusive)
+     * @return the entries found in cache, possibly only a subset of the requested range
+     */
+    Collection<EntryImpl> getCachedEntries(Position firstPosition, Position lastPosition) {
+        if (firstPosition.compareTo(lastPosition) == 0) {
+            EntryImpl cachedEntry = entries.get(firstPosition);
+            if (cachedEntry == null) {
+                return Collections.emptyList();
+            } else {
+                return Collections.singleton(cachedEntry);
+            }
+        } else {
+            return entries.getRange(firstPosition, lastPosition);
+        }
+    }
+
+    /**
+     * Insert an entry that has just been read from storage.
+     *
+     * @param entry the entry read from storage
+     * @return whether the entry was inserted in cache
+     */
+    boolean insertEntryReadFromStorage(EntryImpl entry) {
+        return insert(entry);
+    }
+
     @VisibleForTesting
     public long getEstimatedEntrySize(ReadHandle lh) {
         if (lh.getLength() == 0 || lh.getLastAddConfirmed() < 0) {
@@ -442,6 +465,21 @@ public class RangeEntryCacheImpl implements EntryCache {
      */
     CompletableFuture<List<EntryImpl>> readFromStorage(ReadHandle lh,
                                                        long firstEntry, long lastEntry, boolean shouldCacheEntry) {
+        return readFromStorage(lh, firstEntry, lastEntry, shouldCacheEntry, false);
+    }
+
+    /**
+     * Reads the entries from Storage.
+     * @param lh the handle
+     * @param firstEntry the first entry
+     * @param lastEntry the last entry
+     * @param shouldCacheEntry if we should put the entry into the cache
+     * @param coalescedRead if the read was extended on behalf of other cursors, in which case all the entries are
+     *                      offered to the cache so that the other cursors can find them there
+     * @return a handle to the operation
+     */
+    CompletableFuture<List<EntryImpl>> readFromStorage(ReadHandle lh, long firstEntry, long lastEntry,
+                                                       boolean shouldCacheEntry, boolean coalescedRead) {
         final int entriesToRead = (int) (lastEntry - firstEntry) + 1;
         CompletableFuture<List<EntryImpl>> readResult = ReadEntryUtils.readAsync(ml, lh, firstEntry, lastEntry)
                 .thenApply(
@@ -453,16 +491,22 @@ public class RangeEntryCacheImpl implements EntryCache {
                                 // We got the entries, we need to transform them to a List<> type
                                 long totalSize = 0;
                                 final List<EntryImpl> entriesToReturn = new ArrayList<>(entriesToRead);
+                                final BitSet insertedEntries = coalescedRead ? new BitSet(entriesToRead) : null;
                                 for (LedgerEntry e : ledgerEntries) {
                                     EntryImpl entry = RangeEntryCacheManagerImpl.create(e, interceptor);
                                     entriesToReturn.add(entry);
                                     totalSize += entry.getLength();
-                                    if (shouldCacheEntry) {
+                                    if (coalescedRead || shouldCacheEntry) {
                                         EntryImpl cacheEntry = EntryImpl.create(entry);
-                                        insert(cacheEntry);
+                                        if (insertEntryReadFromStorage(cacheEntry) && coalescedRead) {
+                                            insertedEntries.set((int) (entry.getEntryId() - firstEntry));
+                                        }
                                         cacheEntry.release();
                                     }
                                 }
+                                if (coalescedRead) {
+                                    pendingReadsManager.recordCoalescedRead(lh.getId(), firstEntry, insertedEntries);
+                                }
 
                                 ml.getMbean().recordReadEntriesOpsCacheMisses(entriesToReturn.size(), totalSize);
                                 manager.mlFactoryMBean.recordCacheMiss(entriesToReturn.size(), totalSize);
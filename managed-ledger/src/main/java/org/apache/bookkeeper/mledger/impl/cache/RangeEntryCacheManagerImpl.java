@@ -21,6 +21,7 @@ package org.apache.bookkeeper.mledger.impl.cache;
 import com.google.common.collect.Lists;
 import io.netty.buffer.ByteBuf;
 import io.opentelemetry.api.OpenTelemetry;
+import java.util.Collection;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
@@ -82,7 +83,7 @@ public class RangeEntryCacheManagerImpl implements EntryCacheManager {
             return new EntryCacheDisabled(ml);
         }
 
-        EntryCache newEntryCache = new RangeEntryCacheImpl(this, ml, mlFactory.getConfig().isCopyEntriesInCache());
+        EntryCache newEntryCache = createEntryCache(ml);
         EntryCache currentEntryCache = caches.putIfAbsent(ml.getName(), newEntryCache);
         if (currentEntryCache != null) {
             return currentEntryCache;
@@ -91,6 +92,10 @@ public class RangeEntryCacheManagerImpl implements EntryCacheManager {
         }
     }
 
+    protected EntryCache createEntryCache(ManagedLedgerImpl ml) {
+        return new RangeEntryCacheImpl(this, ml, mlFactory.getConfig().isCopyEntriesInCache());
+    }
+
     @Override
     public void updateCacheSizeAndThreshold(long maxSize) {
         this.maxSize = maxSize;
@@ -178,6 +183,10 @@ public class RangeEntryCacheManagerImpl implements EntryCacheManager {
         caches.values().forEach(EntryCache::clear);
     }
 
+    Collection<EntryCache> getEntryCaches() {
+        return caches.values();
+    }
+
     public static Entry create(long ledgerId, long entryId, ByteBuf data) {
         return EntryImpl.create(ledgerId, entryId, data);
     }
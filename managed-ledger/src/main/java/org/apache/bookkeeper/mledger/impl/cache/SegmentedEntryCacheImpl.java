@@ -0,0 +1,430 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.impl.cache;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import com.google.common.annotations.VisibleForTesting;
+import io.netty.buffer.ByteBuf;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.bookkeeper.mledger.Position;
+import org.apache.bookkeeper.mledger.impl.EntryImpl;
+import org.apache.bookkeeper.mledger.impl.ManagedLedgerImpl;
+import org.apache.commons.lang3.tuple.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Entry cache of a single managed ledger, storing the entries payloads in the segments owned by
+ * {@link SegmentedEntryCacheManagerImpl}.
+ *
+ * <p/>For each ledger, the cache only keeps a ring of primitive locations indexed by entry id. Locations that point
+ * to a segment that has been recycled are detected when they are accessed and are treated as cache misses.
+ */
+public class SegmentedEntryCacheImpl extends RangeEntryCacheImpl {
+
+    private final SegmentedEntryCacheManagerImpl manager;
+    private final ConcurrentSkipListMap<Long, LedgerIndex> ledgers = new ConcurrentSkipListMap<>();
+    private final AtomicLong size = new AtomicLong();
+
+    public SegmentedEntryCacheImpl(SegmentedEntryCacheManagerImpl manager, ManagedLedgerImpl ml) {
+        super(manager, ml, false);
+        this.manager = manager;
+    }
+
+    @Override
+    public boolean insert(EntryImpl entry) {
+        long ledgerId = entry.getLedgerId();
+        long entryId = entry.getEntryId();
+        LedgerIndex index = ledgers.computeIfAbsent(ledgerId, LedgerIndex::new);
+        synchronized (index) {
+            long existing = index.get(entryId);
+            if (existing != 0 && manager.isValid(existing)) {
+                return false;
+            }
+            if (!index.canIndex(entryId)) {
+                return false;
+            }
+
+            long location = manager.append(this, entry);
+            if (location == 0) {
+                return false;
+            }
+
+            int entryLength = entry.getLength();
+            size.addAndGet(entryLength);
+            manager.entryAdded(entryLength);
+
+            RemovedEntries removed = new RemovedEntries(ledgerId);
+            index.put(entryId, location, removed);
+            removed.complete();
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug("[{}] Added entry to cache: {}:{} - size: {}", ml.getName(), ledgerId, entryId,
+                    entry.getLength());
+        }
+        return true;
+    }
+
+    @Override
+    boolean insertEntryReadFromStorage(EntryImpl entry) {
+        if (!manager.shouldAdmit(entry.getLedgerId(), entry.getEntryId())) {
+            if (log.isDebugEnabled()) {
+                log.debug("[{}] Entry {}:{} not admitted in cache", ml.getName(), entry.getLedgerId(),
+                        entry.getEntryId());
+            }
+            return false;
+        }
+        return insert(entry);
+    }
+
+    @Override
+    Collection<EntryImpl> getCachedEntries(Position firstPosition, Position lastPosition) {
+        long ledgerId = firstPosition.getLedgerId();
+        long firstEntryId = firstPosition.getEntryId();
+        long lastEntryId = lastPosition.getEntryId();
+        for (long entryId = firstEntryId; entryId <= lastEntryId; entryId++) {
+            manager.recordAccess(ledgerId, entryId);
+        }
+
+        LedgerIndex index = ledgers.get(ledgerId);
+        if (index == null) {
+            return Collections.emptyList();
+        }
+
+        long[] locations = new long[(int) (lastEntryId - firstEntryId + 1)];
+        synchronized (index) {
+            for (int i = 0; i < locations.length; i++) {
+                locations[i] = index.get(firstEntryId + i);
+                if (locations[i] == 0) {
+                    // The caller will only use the cached entries if the whole range is available
+                    return Collections.emptyList();
+                }
+            }
+        }
+
+        List<EntryImpl> cachedEntries = new ArrayList<>(locations.length);
+        for (int i = 0; i < locations.length; i++) {
+            long entryId = firstEntryId + i;
+            ByteBuf data = manager.read(locations[i], ledgerId, entryId);
+            if (data == null) {
+                cachedEntries.forEach(EntryImpl::release);
+                return Collections.emptyList();
+            }
+            cachedEntries.add(EntryImpl.create(ledgerId, entryId, data));
+            data.release();
+        }
+        return cachedEntries;
+    }
+
+    @Override
+    public void invalidateEntries(Position lastPosition) {
+        long lastLedgerId = lastPosition.getLedgerId();
+        ConcurrentNavigableMap<Long, LedgerIndex> previousLedgers = ledgers.headMap(lastLedgerId, false);
+        for (Map.Entry<Long, LedgerIndex> entry : previousLedgers.entrySet()) {
+            removeLedger(entry.getKey(), entry.getValue());
+        }
+
+        LedgerIndex index = ledgers.get(lastLedgerId);
+        if (index != null) {
+            RemovedEntries removed = new RemovedEntries(lastLedgerId);
+            synchronized (index) {
+                index.removeBefore(lastPosition.getEntryId(), removed);
+            }
+            removed.complete();
+        }
+
+        if (log.isTraceEnabled()) {
+            log.trace("[{}] Invalidated entries up to {}", ml.getName(), lastPosition);
+        }
+    }
+
+    @Override
+    public void invalidateAllEntries(long ledgerId) {
+        super.invalidateAllEntries(ledgerId);
+        LedgerIndex index = ledgers.get(ledgerId);
+        if (index != null) {
+            removeLedger(ledgerId, index);
+        }
+    }
+
+    @Override
+    public void invalidateEntriesBeforeTimestamp(long timestamp) {
+        manager.evictSegmentsInsertedBefore(timestamp);
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        for (Map.Entry<Long, LedgerIndex> entry : ledgers.entrySet()) {
+            removeLedger(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public long getSize() {
+        return size.get();
+    }
+
+    @Override
+    public Pair<Integer, Long> evictEntries(long sizeToFree) {
+        checkArgument(sizeToFree > 0);
+        // The space is only reclaimed when the segments are recycled, though the oldest entries of this cache are
+        // dropped so that they don't count anymore in its size
+        int evictedEntries = 0;
+        long evictedSize = 0;
+        for (Map.Entry<Long, LedgerIndex> entry : ledgers.entrySet()) {
+            LedgerIndex index = entry.getValue();
+            RemovedEntries removed = new RemovedEntries(entry.getKey());
+            synchronized (index) {
+                while (!index.isEmpty() && evictedSize + removed.size < sizeToFree) {
+                    index.removeBefore(index.getFirstEntryId() + 1, removed);
+                }
+            }
+            removed.complete();
+            evictedEntries += removed.count;
+            evictedSize += removed.size;
+            if (evictedSize >= sizeToFree) {
+                break;
+            }
+        }
+        return Pair.of(evictedEntries, evictedSize);
+    }
+
+    private void removeLedger(long ledgerId, LedgerIndex index) {
+        RemovedEntries removed = new RemovedEntries(ledgerId);
+        synchronized (index) {
+            index.removeBefore(Long.MAX_VALUE, removed);
+            ledgers.remove(ledgerId, index);
+        }
+        removed.complete();
+    }
+
+    /**
+     * Drop, without releasing them, the locations pointing to the segments starting from the given index, which
+     * have been recycled and replaced when the cache was resized.
+     */
+    void dropLocations(int firstReplacedSegment) {
+        for (LedgerIndex index : ledgers.values()) {
+            synchronized (index) {
+                index.dropLocations(firstReplacedSegment);
+            }
+        }
+    }
+
+    /**
+     * Called by the segment being recycled with the size and count of the entries of this cache it was storing.
+     */
+    void onSegmentRecycled(long recycledSize, int recycledCount) {
+        if (recycledCount > 0) {
+            size.addAndGet(-recycledSize);
+            manager.entriesRemoved(recycledSize, recycledCount);
+        }
+    }
+
+    @VisibleForTesting
+    int getNumberOfIndexedLedgers() {
+        return ledgers.size();
+    }
+
+    /**
+     * Accumulate the entries removed from the index, to update the cache size once the removal is completed.
+     */
+    private class RemovedEntries implements LedgerIndex.RemovedSlotConsumer {
+        private final long ledgerId;
+        private int count;
+        private long size;
+
+        RemovedEntries(long ledgerId) {
+            this.ledgerId = ledgerId;
+        }
+
+        @Override
+        public void accept(long entryId, long location) {
+            int length = manager.release(SegmentedEntryCacheImpl.this, location, ledgerId, entryId);
+            if (length >= 0) {
+                count++;
+                size += length;
+            }
+        }
+
+        void complete() {
+            if (count > 0) {
+                SegmentedEntryCacheImpl.this.size.addAndGet(-size);
+                manager.entriesRemoved(size, count);
+            }
+        }
+    }
+
+    /**
+     * Ring of locations for the contiguous range of entry ids of a single ledger that is currently cached.
+     *
+     * <p/>Slots outside of the [head, head + span) range are always 0. Instances are not thread safe.
+     */
+    static final class LedgerIndex {
+        static final int INITIAL_CAPACITY = 64;
+        static final int MAX_SPAN = 1 << 18;
+
+        interface RemovedSlotConsumer {
+            void accept(long entryId, long location);
+        }
+
+        private final long ledgerId;
+        private long[] slots = new long[INITIAL_CAPACITY];
+        private int head;
+        private int span;
+        private long firstEntryId = -1;
+
+        LedgerIndex(long ledgerId) {
+            this.ledgerId = ledgerId;
+        }
+
+        long getLedgerId() {
+            return ledgerId;
+        }
+
+        boolean isEmpty() {
+            return span == 0;
+        }
+
+        long getFirstEntryId() {
+            return firstEntryId;
+        }
+
+        long get(long entryId) {
+            long distance = entryId - firstEntryId;
+            if (span == 0 || distance < 0 || distance >= span) {
+                return 0;
+            }
+            return slots[(int) ((head + distance) & (slots.length - 1))];
+        }
+
+        /**
+         * @return whether the entry can be added without exceeding the maximum span on the left side
+         */
+        boolean canIndex(long entryId) {
+            return span == 0 || entryId >= firstEntryId || firstEntryId - entryId + span <= MAX_SPAN;
+        }
+
+        /**
+         * Set the location for the entry. When the entry is too far on the right side, the oldest slots are dropped
+         * and passed to the consumer.
+         */
+        void put(long entryId, long location, RemovedSlotConsumer removedSlotConsumer) {
+            if (span > 0 && entryId >= firstEntryId && entryId - firstEntryId >= MAX_SPAN) {
+                removeBefore(entryId - MAX_SPAN + 1, removedSlotConsumer);
+            }
+
+            if (span == 0) {
+                head = 0;
+                span = 1;
+                firstEntryId = entryId;
+                slots[0] = location;
+                return;
+            }
+
+            if (entryId < firstEntryId) {
+                int shift = (int) (firstEntryId - entryId);
+                ensureCapacity(span + shift);
+                head = (head - shift) & (slots.length - 1);
+                span += shift;
+                firstEntryId = entryId;
+            } else {
+                int distance = (int) (entryId - firstEntryId);
+                if (distance >= span) {
+                    ensureCapacity(distance + 1);
+                    span = distance + 1;
+                }
+            }
+
+            int slot = (int) ((head + (entryId - firstEntryId)) & (slots.length - 1));
+            long previous = slots[slot];
+            if (previous != 0) {
+                removedSlotConsumer.accept(entryId, previous);
+            }
+            slots[slot] = location;
+        }
+
+        /**
+         * Remove all the slots for entries before the given entry id (exclusive).
+         */
+        void removeBefore(long entryId, RemovedSlotConsumer removedSlotConsumer) {
+            if (span == 0 || entryId <= firstEntryId) {
+                return;
+            }
+
+            int count = (int) Math.min(span, entryId - firstEntryId);
+            int mask = slots.length - 1;
+            for (int i = 0; i < count; i++) {
+                int slot = (head + i) & mask;
+                long location = slots[slot];
+                if (location != 0) {
+                    removedSlotConsumer.accept(firstEntryId + i, location);
+                    slots[slot] = 0;
+                }
+            }
+
+            span -= count;
+            if (span == 0) {
+                head = 0;
+                firstEntryId = -1;
+            } else {
+                head = (head + count) & mask;
+                firstEntryId += count;
+            }
+        }
+
+        /**
+         * Clear the slots whose location points to a segment starting from the given index.
+         */
+        void dropLocations(int firstSegmentIndex) {
+            int mask = slots.length - 1;
+            for (int i = 0; i < span; i++) {
+                int slot = (head + i) & mask;
+                if (slots[slot] != 0 && EntryCacheSegment.segmentIndex(slots[slot]) >= firstSegmentIndex) {
+                    slots[slot] = 0;
+                }
+            }
+        }
+
+        private void ensureCapacity(int requiredSpan) {
+            if (requiredSpan <= slots.length) {
+                return;
+            }
+
+            int newCapacity = Integer.highestOneBit(requiredSpan - 1) << 1;
+            long[] newSlots = new long[newCapacity];
+            int mask = slots.length - 1;
+            for (int i = 0; i < span; i++) {
+                newSlots[i] = slots[(head + i) & mask];
+            }
+            slots = newSlots;
+            head = 0;
+        }
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(SegmentedEntryCacheImpl.class);
+}
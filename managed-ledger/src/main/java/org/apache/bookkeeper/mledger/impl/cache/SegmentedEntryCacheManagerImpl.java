@@ -0,0 +1,266 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.impl.cache;
+
+import com.google.common.annotations.VisibleForTesting;
+import io.netty.buffer.ByteBuf;
+import io.opentelemetry.api.OpenTelemetry;
+import org.apache.bookkeeper.common.util.OrderedScheduler;
+import org.apache.bookkeeper.mledger.ManagedLedgerFactoryConfig;
+import org.apache.bookkeeper.mledger.impl.EntryImpl;
+import org.apache.bookkeeper.mledger.impl.ManagedLedgerFactoryImpl;
+import org.apache.bookkeeper.mledger.impl.ManagedLedgerImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Entry cache manager that stores the cached entries in a ring of large, pre-allocated, off-heap segments.
+ *
+ * <p/>Entries of all the managed ledgers are appended to the current segment. When it is full, the oldest segment
+ * gets recycled as a whole, so the eviction cost doesn't depend on the number of cached entries or on the number of
+ * managed ledgers. Each {@link SegmentedEntryCacheImpl} only keeps a compact index of primitive longs pointing into
+ * the segments.
+ *
+ * <p/>Entries read from storage are only admitted in the cache when a {@link EntryCacheFrequencySketch} reports that
+ * they have been requested frequently enough, so that one-shot catch-up reads don't flush the entries being read by
+ * the tailing consumers.
+ */
+public class SegmentedEntryCacheManagerImpl extends RangeEntryCacheManagerImpl {
+
+    private static final long AVERAGE_ENTRY_SIZE_FOR_SKETCH = 1024;
+
+    private final int configuredSegmentSize;
+    private final int admissionMinFrequency;
+    private final EntryCacheFrequencySketch frequencySketch;
+
+    // Guarded by this
+    private EntryCacheSegment[] segments = new EntryCacheSegment[0];
+    private int segmentSize;
+    private int generationSeed;
+    // Updated while holding this, and read without it by the eviction quick check
+    private volatile int currentSegmentIndex;
+
+    private volatile EntryCacheSegment[] readableSegments = segments;
+
+    public SegmentedEntryCacheManagerImpl(ManagedLedgerFactoryImpl factory, OrderedScheduler scheduledExecutor,
+                                          OpenTelemetry openTelemetry) {
+        super(factory, scheduledExecutor, openTelemetry);
+        ManagedLedgerFactoryConfig config = factory.getConfig();
+        this.configuredSegmentSize = config.getSegmentedEntryCacheSegmentSize();
+        this.admissionMinFrequency = config.getSegmentedEntryCacheAdmissionMinFrequency();
+        this.frequencySketch = new EntryCacheFrequencySketch(config.getMaxCacheSize() / AVERAGE_ENTRY_SIZE_FOR_SKETCH);
+        allocateSegments(config.getMaxCacheSize());
+    }
+
+    @Override
+    protected EntryCache createEntryCache(ManagedLedgerImpl ml) {
+        return new SegmentedEntryCacheImpl(this, ml);
+    }
+
+    @Override
+    boolean hasSpaceInCache() {
+        // The inserts don't depend on it, they make space by recycling the oldest segment instead of evicting the
+        // entries by size
+        return getSize() < getMaxSize();
+    }
+
+    @Override
+    public void updateCacheSizeAndThreshold(long maxSize) {
+        super.updateCacheSizeAndThreshold(maxSize);
+        allocateSegments(maxSize);
+    }
+
+    private void allocateSegments(long maxSize) {
+        int keptSegments = replaceSegments(maxSize);
+        if (keptSegments < 0) {
+            return;
+        }
+        // The generation of a new segment may be the same as the one of the segment it replaces, so the locations
+        // pointing to the replaced segments are dropped before they get resolved against the new ones. This is done
+        // without holding the manager lock, since the inserts hold the ledger index lock while appending.
+        for (EntryCache entryCache : getEntryCaches()) {
+            if (entryCache instanceof SegmentedEntryCacheImpl segmentedEntryCache) {
+                segmentedEntryCache.dropLocations(keptSegments);
+            }
+        }
+    }
+
+    /**
+     * @return the number of segments kept at the beginning of the ring, or -1 if the segments were not changed
+     */
+    private synchronized int replaceSegments(long maxSize) {
+        int newSegmentSize = (int) Math.min(configuredSegmentSize, maxSize / 2);
+        int newNumberOfSegments = newSegmentSize <= EntryCacheSegment.ENTRY_HEADER_SIZE ? 0
+                : (int) Math.min(EntryCacheSegment.MAX_SEGMENTS, maxSize / newSegmentSize);
+        if (newSegmentSize == segmentSize && newNumberOfSegments == segments.length) {
+            return -1;
+        }
+        int keptSegments = newSegmentSize == segmentSize ? Math.min(segments.length, newNumberOfSegments) : 0;
+
+        EntryCacheSegment[] newSegments = new EntryCacheSegment[newNumberOfSegments];
+        for (int i = 0; i < segments.length; i++) {
+            if (i < keptSegments) {
+                newSegments[i] = segments[i];
+            } else {
+                segments[i].recycle();
+            }
+        }
+        for (int i = 0; i < newNumberOfSegments; i++) {
+            if (newSegments[i] == null) {
+                newSegments[i] = new EntryCacheSegment(i, newSegmentSize, generationSeed++);
+            }
+        }
+
+        segments = newSegments;
+        segmentSize = newSegmentSize;
+        if (currentSegmentIndex >= newNumberOfSegments) {
+            currentSegmentIndex = 0;
+        }
+        readableSegments = newSegments;
+
+        log.info("Allocated {} segments of {} Mb for the segmented entry cache", newNumberOfSegments,
+                newSegmentSize / MB);
+        return keptSegments;
+    }
+
+    /**
+     * Append the entry in the current segment, recycling the oldest segment if there's not enough space left.
+     *
+     * @return the location of the entry, or 0 if the entry cannot be stored in the cache
+     */
+    long append(SegmentedEntryCacheImpl cache, EntryImpl entry) {
+        int entryLength = entry.getLength();
+        EntryCacheSegment segment;
+        long location;
+        synchronized (this) {
+            if (segments.length == 0 || entryLength > segmentSize - EntryCacheSegment.ENTRY_HEADER_SIZE) {
+                return 0;
+            }
+
+            segment = segments[currentSegmentIndex];
+            location = segment.reserve(cache, entryLength);
+            if (location == EntryCacheSegment.NO_SPACE) {
+                currentSegmentIndex = (currentSegmentIndex + 1) % segments.length;
+                segment = segments[currentSegmentIndex];
+                if (!segment.isEmpty()) {
+                    segment.recycle();
+                    mlFactoryMBean.recordCacheEviction();
+                }
+                location = segment.reserve(cache, entryLength);
+            }
+        }
+
+        segment.write(location, entry.getLedgerId(), entry.getEntryId(), entry.getDataBuffer());
+        return location;
+    }
+
+    /**
+     * Copy out the entry stored at the given location.
+     *
+     * @return the entry payload, or null if the entry has been evicted in the meantime
+     */
+    ByteBuf read(long location, long ledgerId, long entryId) {
+        EntryCacheSegment segment = segmentFor(location);
+        if (segment == null) {
+            return null;
+        }
+        return segment.read(location, ledgerId, entryId, RangeEntryCacheImpl.ALLOCATOR);
+    }
+
+    boolean isValid(long location) {
+        EntryCacheSegment segment = segmentFor(location);
+        return segment != null && segment.isValid(location);
+    }
+
+    /**
+     * @return the length of the released entry, or -1 if the entry had already been evicted
+     */
+    int release(SegmentedEntryCacheImpl cache, long location, long ledgerId, long entryId) {
+        EntryCacheSegment segment = segmentFor(location);
+        if (segment == null) {
+            return -1;
+        }
+        return segment.release(cache, location, ledgerId, entryId);
+    }
+
+    private EntryCacheSegment segmentFor(long location) {
+        EntryCacheSegment[] segments = readableSegments;
+        int index = EntryCacheSegment.segmentIndex(location);
+        return index < segments.length ? segments[index] : null;
+    }
+
+    /**
+     * Recycle, starting from the oldest one, the segments whose entries were all inserted before the given timestamp.
+     */
+    void evictSegmentsInsertedBefore(long timestamp) {
+        EntryCacheSegment[] segments = readableSegments;
+        if (segments.length == 0) {
+            return;
+        }
+
+        // Quick check without locking on the oldest segment with data
+        EntryCacheSegment oldest = null;
+        int currentIndex = currentSegmentIndex;
+        for (int i = 1; i <= segments.length; i++) {
+            EntryCacheSegment segment = segments[(currentIndex + i) % segments.length];
+            if (!segment.isEmpty()) {
+                oldest = segment;
+                break;
+            }
+        }
+        if (oldest == null || oldest.getLastInsertTimestamp() >= timestamp) {
+            return;
+        }
+
+        synchronized (this) {
+            for (int i = 1; i <= this.segments.length; i++) {
+                EntryCacheSegment segment = this.segments[(currentSegmentIndex + i) % this.segments.length];
+                if (segment.isEmpty()) {
+                    continue;
+                }
+                if (segment.getLastInsertTimestamp() >= timestamp) {
+                    break;
+                }
+                segment.recycle();
+            }
+        }
+    }
+
+    void recordAccess(long ledgerId, long entryId) {
+        if (admissionMinFrequency > 1) {
+            frequencySketch.increment(ledgerId, entryId);
+        }
+    }
+
+    boolean shouldAdmit(long ledgerId, long entryId) {
+        return admissionMinFrequency <= 1 || frequencySketch.frequency(ledgerId, entryId) >= admissionMinFrequency;
+    }
+
+    @VisibleForTesting
+    synchronized int getNumberOfSegments() {
+        return segments.length;
+    }
+
+    @VisibleForTesting
+    synchronized int getSegmentSize() {
+        return segmentSize;
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(SegmentedEntryCacheManagerImpl.class);
+}
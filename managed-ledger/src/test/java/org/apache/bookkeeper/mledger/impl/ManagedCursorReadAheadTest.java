@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.impl;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import lombok.Cleanup;
+import org.apache.bookkeeper.mledger.AsyncCallbacks.CloseCallback;
+import org.apache.bookkeeper.mledger.Entry;
+import org.apache.bookkeeper.mledger.ManagedLedgerConfig;
+import org.apache.bookkeeper.mledger.ManagedLedgerException;
+import org.apache.bookkeeper.mledger.ManagedLedgerFactoryConfig;
+import org.apache.bookkeeper.test.MockedBookKeeperTestCase;
+import org.apache.pulsar.common.api.proto.CommandSubscribe.InitialPosition;
+import org.awaitility.Awaitility;
+import org.testng.annotations.Test;
+
+public class ManagedCursorReadAheadTest extends MockedBookKeeperTestCase {
+
+    private ManagedLedgerImpl openLedger(String name, int readAheadMaxBatches, int numberOfEntries) throws Exception {
+        return openLedger(factory, name, readAheadMaxBatches, numberOfEntries);
+    }
+
+    private static ManagedLedgerImpl openLedger(ManagedLedgerFactoryImpl ledgerFactory, String name,
+                                                int readAheadMaxBatches, int numberOfEntries) throws Exception {
+        ManagedLedgerConfig config = new ManagedLedgerConfig();
+        config.setCursorReadAheadMaxBatches(readAheadMaxBatches);
+        ManagedLedgerImpl ledger = (ManagedLedgerImpl) ledgerFactory.open(name, config);
+        for (int i = 0; i < numberOfEntries; i++) {
+            ledger.addEntry(("entry-" + i).getBytes(StandardCharsets.UTF_8));
+        }
+        return ledger;
+    }
+
+    private static void readAndVerify(ManagedCursorImpl cursor, int numberOfEntries, int firstEntry)
+            throws Exception {
+        List<Entry> entries = cursor.readEntries(numberOfEntries);
+        assertEquals(entries.size(), numberOfEntries);
+        for (int i = 0; i < numberOfEntries; i++) {
+            Entry entry = entries.get(i);
+            assertEquals(new String(entry.getData(), StandardCharsets.UTF_8), "entry-" + (firstEntry + i));
+            entry.release();
+        }
+    }
+
+    @Test(timeOut = 20000)
+    public void testReadServedByReadAhead() throws Exception {
+        ManagedLedgerImpl ledger = openLedger("test-read-ahead", 2, 100);
+        ManagedCursorImpl cursor = (ManagedCursorImpl) ledger.openCursor("c1", InitialPosition.Earliest);
+
+        // The cursor needs a few sequential reads before reading ahead
+        readAndVerify(cursor, 10, 0);
+        readAndVerify(cursor, 10, 10);
+        assertEquals(cursor.getStats().getReadAheadHits() + cursor.getStats().getReadAheadMisses(), 0);
+
+        readAndVerify(cursor, 10, 20);
+        assertEquals(cursor.getStats().getReadAheadMisses(), 1);
+        Awaitility.await().untilAsserted(() -> assertEquals(cursor.readAhead.getNumberOfEntries(), 10));
+
+        readAndVerify(cursor, 10, 30);
+        assertEquals(cursor.getStats().getReadAheadHits(), 1);
+
+        // Reads smaller than the prefetched batches are served as well
+        Awaitility.await().until(() -> cursor.readAhead.getNumberOfEntries() >= 10);
+        readAndVerify(cursor, 5, 40);
+        assertEquals(cursor.getStats().getReadAheadHits(), 2);
+        readAndVerify(cursor, 5, 45);
+        assertEquals(cursor.getStats().getReadAheadHits(), 3);
+    }
+
+    @Test(timeOut = 20000)
+    public void testReadAheadDiscardedOnRewind() throws Exception {
+        ManagedLedgerImpl ledger = openLedger("test-read-ahead-rewind", 2, 100);
+        ManagedCursorImpl cursor = (ManagedCursorImpl) ledger.openCursor("c1", InitialPosition.Earliest);
+
+        readAndVerify(cursor, 10, 0);
+        readAndVerify(cursor, 10, 10);
+        readAndVerify(cursor, 10, 20);
+        Awaitility.await().untilAsserted(() -> assertEquals(cursor.readAhead.getNumberOfEntries(), 10));
+
+        cursor.rewind();
+        readAndVerify(cursor, 10, 0);
+        assertEquals(cursor.readAhead.getNumberOfEntries(), 0);
+        assertEquals(cursor.getStats().getReadAheadHits(), 0);
+    }
+
+    @Test(timeOut = 20000)
+    public void testNoReadAheadNearTheTail() throws Exception {
+        ManagedLedgerImpl ledger = openLedger("test-read-ahead-tail", 2, 35);
+        ManagedCursorImpl cursor = (ManagedCursorImpl) ledger.openCursor("c1", InitialPosition.Earliest);
+
+        readAndVerify(cursor, 10, 0);
+        readAndVerify(cursor, 10, 10);
+        readAndVerify(cursor, 10, 20);
+        // There are only 5 entries left, which is less than a full batch
+        assertEquals(cursor.readAhead.getNumberOfEntries(), 0);
+        readAndVerify(cursor, 5, 30);
+        assertEquals(cursor.getStats().getReadAheadHits(), 0);
+    }
+
+    @Test(timeOut = 20000)
+    public void testReadAheadDisabledByDefault() throws Exception {
+        ManagedLedgerImpl ledger = openLedger("test-read-ahead-disabled", 0, 50);
+        ManagedCursorImpl cursor = (ManagedCursorImpl) ledger.openCursor("c1", InitialPosition.Earliest);
+
+        for (int i = 0; i < 5; i++) {
+            readAndVerify(cursor, 10, i * 10);
+        }
+        assertEquals(cursor.readAhead.getNumberOfEntries(), 0);
+        assertEquals(cursor.getStats().getReadAheadHits() + cursor.getStats().getReadAheadMisses(), 0);
+    }
+
+    @Test(timeOut = 20000)
+    public void testReadAheadReleasedOnClose() throws Exception {
+        ManagedLedgerImpl ledger = openLedger("test-read-ahead-close", 2, 100);
+        ManagedCursorImpl cursor = (ManagedCursorImpl) ledger.openCursor("c1", InitialPosition.Earliest);
+
+        readAndVerify(cursor, 10, 0);
+        readAndVerify(cursor, 10, 10);
+        readAndVerify(cursor, 10, 20);
+        Awaitility.await().untilAsserted(() -> assertEquals(cursor.readAhead.getNumberOfEntries(), 10));
+        assertTrue(factory.getCursorReadAheadSize() > 0);
+
+        cursor.close();
+        assertEquals(cursor.readAhead.getNumberOfEntries(), 0);
+        assertEquals(factory.getCursorReadAheadSize(), 0);
+    }
+
+    @Test(timeOut = 20000)
+    public void testReadAheadReleasedWhenCloseFails() throws Exception {
+        ManagedLedgerImpl ledger = openLedger("test-read-ahead-close-failed", 2, 100);
+        ManagedCursorImpl cursor = (ManagedCursorImpl) ledger.openCursor("c1", InitialPosition.Earliest);
+
+        readAndVerify(cursor, 10, 0);
+        readAndVerify(cursor, 10, 10);
+        readAndVerify(cursor, 10, 20);
+        Awaitility.await().untilAsserted(() -> assertEquals(cursor.readAhead.getNumberOfEntries(), 10));
+
+        // The position can't be persisted, so the cursor remains in the closing state
+        stopMetadataStore();
+        CompletableFuture<Void> closeFuture = new CompletableFuture<>();
+        cursor.asyncClose(new CloseCallback() {
+            @Override
+            public void closeComplete(Object ctx) {
+                closeFuture.complete(null);
+            }
+
+            @Override
+            public void closeFailed(ManagedLedgerException exception, Object ctx) {
+                closeFuture.completeExceptionally(exception);
+            }
+        }, null);
+        Awaitility.await().until(closeFuture::isDone);
+        assertTrue(closeFuture.isCompletedExceptionally());
+
+        assertEquals(cursor.readAhead.getNumberOfEntries(), 0);
+        assertEquals(factory.getCursorReadAheadSize(), 0);
+        // No read-ahead is started anymore
+        assertFalse(cursor.readAhead.read(ledger.currentLedger, 30, 39, null, null));
+        assertEquals(factory.getCursorReadAheadSize(), 0);
+    }
+
+    @Test(timeOut = 20000)
+    public void testNoReadAheadBeyondEntryCacheSize() throws Exception {
+        ManagedLedgerFactoryConfig config = new ManagedLedgerFactoryConfig();
+        config.setMaxCacheSize(100);
+        @Cleanup("shutdown")
+        ManagedLedgerFactoryImpl factory2 = new ManagedLedgerFactoryImpl(metadataStore, bkc, config);
+        ManagedLedgerImpl ledger = openLedger(factory2, "test-read-ahead-cache-size", 2, 50);
+        ManagedCursorImpl cursor = (ManagedCursorImpl) ledger.openCursor("c1", InitialPosition.Earliest);
+
+        for (int i = 0; i < 5; i++) {
+            readAndVerify(cursor, 10, i * 10);
+        }
+        // A batch of 10 entries doesn't fit in the entry cache
+        assertEquals(cursor.readAhead.getNumberOfEntries(), 0);
+        assertEquals(cursor.getStats().getReadAheadHits(), 0);
+        assertEquals(factory2.getCursorReadAheadSize(), 0);
+    }
+}
@@ -1883,6 +1883,48 @@ public class ManagedCursorTest extends MockedBookKeeperTestCase {
         assertEquals(c1.getMarkDeletedPosition(), pos9);
     }
 
+    @Test(timeOut = 20000, dataProvider = "useOpenRangeSet")
+    void testAsyncDeleteRanges(boolean useOpenRangeSet) throws Exception {
+        ManagedLedger ledger = factory.open("testAsyncDeleteRanges", new ManagedLedgerConfig()
+                .setUnackedRangesOpenCacheSetEnabled(useOpenRangeSet));
+        ManagedCursor c1 = ledger.openCursor("c1");
+        List<Position> positions = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            positions.add(ledger.addEntry(("entry-" + i).getBytes(Encoding)));
+        }
+
+        deleteRanges(c1, List.of(Range.closed(positions.get(2), positions.get(4)),
+                Range.closed(positions.get(6), positions.get(6))));
+        assertEquals(c1.getNumberOfEntriesInBacklog(false), 6);
+        assertTrue(c1.isMessageDeleted(positions.get(3)));
+        assertFalse(c1.isMessageDeleted(positions.get(5)));
+
+        // The ranges may overlap the deleted entries
+        deleteRanges(c1, List.of(Range.closed(positions.get(0), positions.get(2))));
+        assertEquals(c1.getMarkDeletedPosition(), positions.get(4));
+        assertEquals(c1.getNumberOfEntriesInBacklog(false), 4);
+
+        deleteRanges(c1, List.of(Range.closed(positions.get(3), positions.get(5))));
+        assertEquals(c1.getMarkDeletedPosition(), positions.get(6));
+        assertEquals(c1.getNumberOfEntriesInBacklog(false), 3);
+    }
+
+    private static void deleteRanges(ManagedCursor cursor, List<Range<Position>> ranges) throws Exception {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        cursor.asyncDeleteRanges(ranges, new DeleteCallback() {
+            @Override
+            public void deleteComplete(Object ctx) {
+                future.complete(null);
+            }
+
+            @Override
+            public void deleteFailed(ManagedLedgerException exception, Object ctx) {
+                future.completeExceptionally(exception);
+            }
+        }, null);
+        future.get();
+    }
+
     @Test(timeOut = 20000, dataProvider = "useOpenRangeSet")
     void testClearBacklog(boolean useOpenRangeSet) throws Exception {
         ManagedLedger ledger = factory.open("my_test_ledger", new ManagedLedgerConfig()
@@ -3354,6 +3396,108 @@ public class ManagedCursorTest extends MockedBookKeeperTestCase {
         assertEquals(entries.size(), totalAddEntries / 2);
     }
 
+    @Test(timeOut = 20000)
+    public void testRecoverFromCursorLedgerDeltas() throws Exception {
+        ManagedLedgerConfig managedLedgerConfig = new ManagedLedgerConfig();
+        managedLedgerConfig.setMaxEntriesPerLedger(5);
+        managedLedgerConfig.setUnackedRangesOpenCacheSetEnabled(true);
+        managedLedgerConfig.setCursorLedgerMaxDeltasBetweenSnapshots(3);
+        ManagedLedgerImpl ledger = (ManagedLedgerImpl) factory.open("my_test_ledger", managedLedgerConfig);
+        ManagedCursorImpl c1 = (ManagedCursorImpl) ledger.openCursor("c1");
+
+        List<Position> positions = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            positions.add(ledger.addEntry(("entry-" + i).getBytes(Encoding)));
+        }
+
+        // Create a hole in every ledger, then keep acknowledging entries of the last ledger only
+        c1.delete(positions.get(1));
+        c1.delete(positions.get(6));
+        c1.delete(positions.get(11));
+        c1.delete(positions.get(16));
+        c1.delete(positions.get(17));
+        c1.markDelete(positions.get(7));
+        c1.delete(positions.get(18));
+        c1.delete(positions.get(13));
+
+        List<PositionInfo> positionInfos = readCursorLedger(c1);
+        List<PositionInfo> deltas = positionInfos.stream().filter(PositionInfo::hasSnapshotEntryId).toList();
+        assertFalse(deltas.isEmpty());
+        assertTrue(deltas.size() < positionInfos.size());
+        for (PositionInfo delta : deltas) {
+            // A delta only contains the ranges of the ledger that was acknowledged, if any
+            assertTrue(delta.getIndividualDeletedMessagesList().stream()
+                    .map(range -> range.getUpperEndpoint().getLedgerId()).distinct().count() <= 1);
+        }
+
+        // Re-Open without closing the ledger, so that the cursor is recovered from the cursor ledger
+        @Cleanup("shutdown")
+        ManagedLedgerFactory factory2 = new ManagedLedgerFactoryImpl(metadataStore, bkc);
+        ledger = (ManagedLedgerImpl) factory2.open("my_test_ledger", managedLedgerConfig);
+        ManagedCursorImpl reopenCursor = (ManagedCursorImpl) ledger.openCursor("c1");
+        assertEquals(reopenCursor.getMarkDeletedPosition(), c1.getMarkDeletedPosition());
+        assertEquals(new ArrayList<>(reopenCursor.getIndividuallyDeletedMessagesSet().asRanges()),
+                new ArrayList<>(c1.getIndividuallyDeletedMessagesSet().asRanges()));
+        assertEquals(reopenCursor.getNumberOfEntriesInBacklog(false), c1.getNumberOfEntriesInBacklog(false));
+    }
+
+    @Test(timeOut = 20000)
+    public void testCursorLedgerSnapshotWhenChangedRangesExceedLimit() throws Exception {
+        ManagedLedgerConfig managedLedgerConfig = new ManagedLedgerConfig();
+        managedLedgerConfig.setUnackedRangesOpenCacheSetEnabled(true);
+        managedLedgerConfig.setCursorLedgerMaxDeltasBetweenSnapshots(10);
+        managedLedgerConfig.setMaxUnackedRangesToPersist(3);
+        ManagedLedgerImpl ledger = (ManagedLedgerImpl) factory.open("my_test_ledger", managedLedgerConfig);
+        ManagedCursorImpl c1 = (ManagedCursorImpl) ledger.openCursor("c1");
+
+        List<Position> positions = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            positions.add(ledger.addEntry(("entry-" + i).getBytes(Encoding)));
+        }
+        // Every ack adds a range to the same ledger, until its ranges don't fit in a delta anymore
+        for (int i = 1; i < 12; i += 2) {
+            c1.delete(positions.get(i));
+        }
+
+        List<PositionInfo> positionInfos = readCursorLedger(c1);
+        assertFalse(positionInfos.get(0).hasSnapshotEntryId());
+        assertTrue(positionInfos.stream().anyMatch(PositionInfo::hasSnapshotEntryId));
+        for (PositionInfo positionInfo : positionInfos) {
+            if (positionInfo.hasSnapshotEntryId()) {
+                assertTrue(positionInfo.getIndividualDeletedMessagesCount() <= 3);
+            }
+        }
+        // The ledger has had too many ranges for a delta since the 4th ack
+        assertFalse(positionInfos.get(positionInfos.size() - 1).hasSnapshotEntryId());
+        assertFalse(positionInfos.get(positionInfos.size() - 2).hasSnapshotEntryId());
+    }
+
+    private List<PositionInfo> readCursorLedger(ManagedCursorImpl cursor) throws Exception {
+        CompletableFuture<List<PositionInfo>> future = new CompletableFuture<>();
+        bkc.asyncOpenLedger(cursor.getCursorLedger(), DigestType.CRC32C, "".getBytes(), (rc, lh, ctx) -> {
+            if (rc != BKException.Code.OK) {
+                future.completeExceptionally(BKException.create(rc));
+                return;
+            }
+            lh.asyncReadEntries(0, lh.getLastAddConfirmed(), (rc1, lh1, seq, ctx1) -> {
+                if (rc1 != BKException.Code.OK) {
+                    future.completeExceptionally(BKException.create(rc1));
+                    return;
+                }
+                List<PositionInfo> positionInfos = new ArrayList<>();
+                try {
+                    while (seq.hasMoreElements()) {
+                        positionInfos.add(PositionInfo.parseFrom(seq.nextElement().getEntry()));
+                    }
+                    future.complete(positionInfos);
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                }
+            }, null);
+        }, null);
+        return future.get();
+    }
+
     /**
      * Close Cursor without MaxUnackedRangesToPersistInZK: It should store individually unack range into Zk.
      *
@@ -116,6 +116,41 @@ public class RangeSetWrapperTest {
         assertEquals(ranges.get(count), (Range.openClosed(new LongPair(0, 102), new LongPair(0, 106))));
     }
 
+    @Test
+    public void testRunLengthRangeSet() {
+        managedLedgerConfig.setUnackedRangesRunLengthSetEnabled(true);
+        doTestAddForSameKey();
+
+        set = new RangeSetWrapper<>(CONSUMER, REVERSE_CONVERT, managedCursor);
+        set.addOpenClosed(0, 98, 0, 99);
+        set.addOpenClosed(0, 100, 1, 5);
+        set.addOpenClosed(1, 10, 1, 15);
+        set.addOpenClosed(1, 20, 2, 10);
+        assertEquals(set.size(), 4);
+        assertEquals(set.cardinality(0, 0, 2, 100), 1 + 6 + 5 + 11);
+        assertTrue(set.isDirtyLedgers(1));
+
+        // The serialized ranges can be recovered by the bitset based range set
+        RangeSetWrapper<LongPair> recovered = new RangeSetWrapper<>(CONSUMER, REVERSE_CONVERT, true, false, false);
+        recovered.build(set.toRanges(100));
+        assertEquals(new ArrayList<>(recovered.asRanges()), new ArrayList<>(set.asRanges()));
+    }
+
+    @Test
+    public void testRunLengthRangeSetLimitedToMaxUnackedRangesToPersist() {
+        managedLedgerConfig.setUnackedRangesRunLengthSetEnabled(true);
+        managedLedgerConfig.setMaxUnackedRangesToPersist(10);
+        set = new RangeSetWrapper<>(CONSUMER, REVERSE_CONVERT, managedCursor);
+        // Out of order acks, the ranges above the limit are dropped as they would not be persisted either
+        for (int i = 40; i >= 0; i -= 2) {
+            set.addOpenClosed(0, i - 1, 0, i);
+        }
+        assertEquals(set.size(), 10);
+        assertEquals(set.firstRange(), Range.openClosed(new LongPair(0, -1), new LongPair(0, 0)));
+        assertEquals(set.lastRange(), Range.openClosed(new LongPair(0, 17), new LongPair(0, 18)));
+        assertFalse(set.contains(0, 20));
+    }
+
     @Test
     public void testAddForDifferentKey() {
         set = new RangeSetWrapper<>(CONSUMER, REVERSE_CONVERT, managedCursor);
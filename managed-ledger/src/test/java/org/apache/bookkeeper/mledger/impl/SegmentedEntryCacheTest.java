@@ -0,0 +1,275 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.impl;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import lombok.Cleanup;
+import org.apache.bookkeeper.client.api.ReadHandle;
+import org.apache.bookkeeper.mledger.AsyncCallbacks.ReadEntriesCallback;
+import org.apache.bookkeeper.mledger.Entry;
+import org.apache.bookkeeper.mledger.ManagedLedgerConfig;
+import org.apache.bookkeeper.mledger.ManagedLedgerException;
+import org.apache.bookkeeper.mledger.ManagedLedgerFactoryConfig;
+import org.apache.bookkeeper.mledger.PositionFactory;
+import org.apache.bookkeeper.mledger.impl.cache.EntryCache;
+import org.apache.bookkeeper.mledger.impl.cache.EntryCacheManager;
+import org.apache.bookkeeper.mledger.impl.cache.SegmentedEntryCacheImpl;
+import org.apache.bookkeeper.mledger.impl.cache.SegmentedEntryCacheManagerImpl;
+import org.apache.bookkeeper.mledger.proto.MLDataFormats;
+import org.apache.bookkeeper.test.MockedBookKeeperTestCase;
+import org.testng.annotations.Test;
+
+public class SegmentedEntryCacheTest extends MockedBookKeeperTestCase {
+
+    private ManagedLedgerImpl ml;
+
+    @Override
+    protected void setUpTestCase() throws Exception {
+        ml = mock(ManagedLedgerImpl.class);
+        when(ml.getName()).thenReturn("name");
+        when(ml.getExecutor()).thenReturn(executor);
+        when(ml.getMbean()).thenReturn(new ManagedLedgerMBeanImpl(ml));
+        when(ml.getConfig()).thenReturn(new ManagedLedgerConfig());
+        when(ml.getOptionalLedgerInfo(0L)).thenReturn(Optional.of(mock(
+                MLDataFormats.ManagedLedgerInfo.LedgerInfo.class)));
+        when(ml.getLastConfirmedEntry()).thenReturn(PositionFactory.create(0, 9));
+    }
+
+    private ManagedLedgerFactoryConfig createConfig(long maxCacheSize, int segmentSize) {
+        ManagedLedgerFactoryConfig config = new ManagedLedgerFactoryConfig();
+        config.setMaxCacheSize(maxCacheSize);
+        config.setSegmentedEntryCacheEnabled(true);
+        config.setSegmentedEntryCacheSegmentSize(segmentSize);
+        return config;
+    }
+
+    @Test(timeOut = 5000)
+    public void testInsertAndRead() throws Exception {
+        @Cleanup("shutdown")
+        ManagedLedgerFactoryImpl factory2 = new ManagedLedgerFactoryImpl(metadataStore, bkc,
+                createConfig(1024 * 1024, 64 * 1024));
+        EntryCacheManager cacheManager = factory2.getEntryCacheManager();
+        assertTrue(cacheManager instanceof SegmentedEntryCacheManagerImpl);
+
+        EntryCache entryCache = cacheManager.getEntryCache(ml);
+        assertTrue(entryCache instanceof SegmentedEntryCacheImpl);
+
+        for (int i = 0; i < 10; i++) {
+            byte[] data = new byte[10];
+            data[0] = (byte) i;
+            assertTrue(entryCache.insert(EntryImpl.create(0, i, data)));
+        }
+        assertFalse(entryCache.insert(EntryImpl.create(0, 5, new byte[10])));
+        assertEquals(entryCache.getSize(), 100);
+        assertEquals(cacheManager.getSize(), 100);
+
+        ReadHandle lh = EntryCacheTest.getLedgerHandle();
+        when(lh.getId()).thenReturn(0L);
+        List<Entry> entries = readEntries(entryCache, lh, 0, 9, false);
+        assertEquals(entries.size(), 10);
+        for (int i = 0; i < 10; i++) {
+            Entry entry = entries.get(i);
+            assertEquals(entry.getEntryId(), i);
+            assertEquals(entry.getLength(), 10);
+            assertEquals(entry.getDataBuffer().getByte(0), (byte) i);
+            entry.release();
+        }
+        verify(lh, never()).readUnconfirmedAsync(anyLong(), anyLong());
+
+        entryCache.invalidateEntries(PositionFactory.create(0, 5));
+        assertEquals(entryCache.getSize(), 50);
+        assertEquals(cacheManager.getSize(), 50);
+
+        cacheManager.removeEntryCache(ml.getName());
+        assertEquals(cacheManager.getSize(), 0);
+    }
+
+    @Test(timeOut = 5000)
+    public void testOldestSegmentIsRecycled() throws Exception {
+        // 4 segments, each one being able to store 2 entries
+        @Cleanup("shutdown")
+        ManagedLedgerFactoryImpl factory2 = new ManagedLedgerFactoryImpl(metadataStore, bkc,
+                createConfig(1024, 256));
+        EntryCacheManager cacheManager = factory2.getEntryCacheManager();
+        EntryCache entryCache = cacheManager.getEntryCache(ml);
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(entryCache.insert(EntryImpl.create(0, i, new byte[100])));
+        }
+
+        // The first segment was recycled to make space for the last 2 entries
+        assertEquals(entryCache.getSize(), 800);
+        assertEquals(cacheManager.getSize(), 800);
+        assertEquals(factory2.getMbean().getNumberOfCacheEvictions(), 1);
+
+        ReadHandle lh = EntryCacheTest.getLedgerHandle();
+        when(lh.getId()).thenReturn(0L);
+        List<Entry> entries = readEntries(entryCache, lh, 2, 9, false);
+        assertEquals(entries.size(), 8);
+        entries.forEach(Entry::release);
+        verify(lh, never()).readUnconfirmedAsync(anyLong(), anyLong());
+
+        // Entries in the recycled segment are read from storage
+        entries = readEntries(entryCache, lh, 0, 9, false);
+        assertEquals(entries.size(), 10);
+        entries.forEach(Entry::release);
+        verify(lh, times(1)).readUnconfirmedAsync(0, 9);
+    }
+
+    @Test(timeOut = 5000)
+    public void testAdmissionOfEntriesReadFromStorage() throws Exception {
+        @Cleanup("shutdown")
+        ManagedLedgerFactoryImpl factory2 = new ManagedLedgerFactoryImpl(metadataStore, bkc,
+                createConfig(1024 * 1024, 64 * 1024));
+        EntryCache entryCache = factory2.getEntryCacheManager().getEntryCache(ml);
+        ReadHandle lh = EntryCacheTest.getLedgerHandle();
+        when(lh.getId()).thenReturn(0L);
+
+        // The first read is not enough for the entries to be admitted in the cache
+        List<Entry> entries = readEntries(entryCache, lh, 0, 9, true);
+        assertEquals(entries.size(), 10);
+        entries.forEach(Entry::release);
+        assertEquals(entryCache.getSize(), 0);
+
+        entries = readEntries(entryCache, lh, 0, 9, true);
+        assertEquals(entries.size(), 10);
+        entries.forEach(Entry::release);
+        assertEquals(entryCache.getSize(), 100);
+
+        entries = readEntries(entryCache, lh, 0, 9, true);
+        assertEquals(entries.size(), 10);
+        entries.forEach(Entry::release);
+        verify(lh, times(2)).readUnconfirmedAsync(0, 9);
+    }
+
+    @Test(timeOut = 5000)
+    public void testUpdateCacheSize() throws Exception {
+        @Cleanup("shutdown")
+        ManagedLedgerFactoryImpl factory2 = new ManagedLedgerFactoryImpl(metadataStore, bkc,
+                createConfig(1024, 256));
+        EntryCacheManager cacheManager = factory2.getEntryCacheManager();
+        EntryCache entryCache = cacheManager.getEntryCache(ml);
+
+        for (int i = 0; i < 6; i++) {
+            assertTrue(entryCache.insert(EntryImpl.create(0, i, new byte[100])));
+        }
+        assertEquals(cacheManager.getSize(), 600);
+
+        // Dropping the segments beyond the new size evicts their entries
+        cacheManager.updateCacheSizeAndThreshold(512);
+        assertEquals(cacheManager.getMaxSize(), 512);
+        assertEquals(cacheManager.getSize(), 400);
+        assertEquals(entryCache.getSize(), 400);
+    }
+
+    @Test(timeOut = 60000)
+    public void testResizeRepeatedly() throws Exception {
+        @Cleanup("shutdown")
+        ManagedLedgerFactoryImpl factory2 = new ManagedLedgerFactoryImpl(metadataStore, bkc,
+                createConfig(1024, 256));
+        EntryCacheManager cacheManager = factory2.getEntryCacheManager();
+        EntryCache entryCache = cacheManager.getEntryCache(ml);
+        ReadHandle lh = EntryCacheTest.getLedgerHandle();
+        when(lh.getId()).thenReturn(0L);
+
+        // Alternate between 4 segments of 256 bytes and 2 segments of 128 bytes, enough times for the generations
+        // of the new segments to wrap around
+        for (int i = 0; i < 25_000; i++) {
+            cacheManager.updateCacheSizeAndThreshold(i % 2 == 0 ? 256 : 1024);
+            for (int entryId = 0; entryId < 2; entryId++) {
+                byte[] data = new byte[100];
+                data[0] = (byte) i;
+                assertTrue(entryCache.insert(EntryImpl.create(0, entryId, data)), "resize " + i);
+            }
+            assertEquals(entryCache.getSize(), 200);
+
+            List<Entry> entries = readEntries(entryCache, lh, 0, 1, false);
+            assertEquals(entries.size(), 2);
+            for (Entry entry : entries) {
+                assertEquals(entry.getDataBuffer().getByte(0), (byte) i);
+                entry.release();
+            }
+        }
+        verify(lh, never()).readUnconfirmedAsync(anyLong(), anyLong());
+    }
+
+    @Test(timeOut = 30000)
+    public void testMoreThan0x8000Segments() throws Exception {
+        // One entry per segment, the locations of the segments from index 0x8000 being negative
+        int segments = 0x8100;
+        @Cleanup("shutdown")
+        ManagedLedgerFactoryImpl factory2 = new ManagedLedgerFactoryImpl(metadataStore, bkc,
+                createConfig(segments * 64L, 64));
+        EntryCacheManager cacheManager = factory2.getEntryCacheManager();
+        EntryCache entryCache = cacheManager.getEntryCache(ml);
+
+        // Go around the ring twice, so that the segments with the highest indexes are recycled as well
+        for (int i = 0; i < 2 * segments - 10; i++) {
+            assertTrue(entryCache.insert(EntryImpl.create(1, i, new byte[40])));
+        }
+        for (int i = 0; i < 10; i++) {
+            byte[] data = new byte[40];
+            data[0] = (byte) i;
+            assertTrue(entryCache.insert(EntryImpl.create(0, i, data)));
+        }
+        assertEquals(entryCache.getSize(), segments * 40L);
+        assertEquals(cacheManager.getSize(), segments * 40L);
+        assertEquals(factory2.getMbean().getNumberOfCacheEvictionsTotal(), segments);
+
+        // The entries of ledger 0 are stored in the last segments
+        ReadHandle lh = EntryCacheTest.getLedgerHandle();
+        when(lh.getId()).thenReturn(0L);
+        List<Entry> entries = readEntries(entryCache, lh, 0, 9, false);
+        assertEquals(entries.size(), 10);
+        for (int i = 0; i < 10; i++) {
+            Entry entry = entries.get(i);
+            assertEquals(entry.getDataBuffer().getByte(0), (byte) i);
+            entry.release();
+        }
+        verify(lh, never()).readUnconfirmedAsync(anyLong(), anyLong());
+    }
+
+    private static List<Entry> readEntries(EntryCache entryCache, ReadHandle lh, long firstEntry, long lastEntry,
+                                           boolean shouldCacheEntry) throws Exception {
+        CompletableFuture<List<Entry>> future = new CompletableFuture<>();
+        entryCache.asyncReadEntry(lh, firstEntry, lastEntry, shouldCacheEntry, new ReadEntriesCallback() {
+            @Override
+            public void readEntriesComplete(List<Entry> entries, Object ctx) {
+                future.complete(entries);
+            }
+
+            @Override
+            public void readEntriesFailed(ManagedLedgerException exception, Object ctx) {
+                future.completeExceptionally(exception);
+            }
+        }, null);
+        return future.get();
+    }
+}
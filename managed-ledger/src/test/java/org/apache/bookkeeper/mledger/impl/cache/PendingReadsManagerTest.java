@@ -42,10 +42,13 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.bookkeeper.client.api.ReadHandle;
 import org.apache.bookkeeper.mledger.AsyncCallbacks;
 import org.apache.bookkeeper.mledger.Entry;
+import org.apache.bookkeeper.mledger.ManagedCursor;
 import org.apache.bookkeeper.mledger.ManagedLedgerConfig;
 import org.apache.bookkeeper.mledger.ManagedLedgerException;
 import org.apache.bookkeeper.mledger.Position;
+import org.apache.bookkeeper.mledger.PositionFactory;
 import org.apache.bookkeeper.mledger.impl.EntryImpl;
+import org.apache.bookkeeper.mledger.impl.ManagedCursorContainer;
 import org.apache.bookkeeper.mledger.impl.ManagedLedgerImpl;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
@@ -477,4 +480,133 @@ public class PendingReadsManagerTest  {
 
     }
 
+    private void mockCursorsReadPositions(long... entryIds) {
+        List<ManagedCursor> cursors = new ArrayList<>();
+        for (long entryId : entryIds) {
+            ManagedCursor cursor = mock(ManagedCursor.class);
+            when(cursor.getReadPosition()).thenReturn(PositionFactory.create(LEDGER_ID, entryId));
+            cursors.add(cursor);
+        }
+        ManagedCursorContainer container = mock(ManagedCursorContainer.class);
+        when(container.iterator()).thenAnswer(__ -> cursors.iterator());
+        when(ml.getCursors()).thenReturn(container);
+        when(lh.getId()).thenReturn(LEDGER_ID);
+        when(lh.getLastAddConfirmed()).thenReturn(10000L);
+    }
+
+    private PreparedReadFromStorage prepareCoalescedReadFromStorage(long firstEntry, long endEntry) {
+        PreparedReadFromStorage read = new PreparedReadFromStorage(firstEntry, endEntry, true);
+        when(rangeEntryCache.readFromStorage(eq(lh), eq(firstEntry), eq(endEntry), anyBoolean(), eq(true)))
+                .thenReturn(read);
+        return read;
+    }
+
+    @Test
+    public void coalescedReadForCursorsReadingCloseToEachOther() throws Exception {
+        rangeEntryCache.getManagedLedgerConfig().setMinimumCursorsForCoalescedReads(2);
+        // the read is issued by the cursor at 100, the other cursors are slightly behind and ahead
+        mockCursorsReadPositions(90, 100, 150, 5000);
+
+        long firstEntry = 100;
+        long endEntry = 199;
+        boolean shouldCacheEntry = false;
+
+        // the read starts from the slowest cursor and includes the batch of the fastest one
+        PreparedReadFromStorage coalescedRead = prepareCoalescedReadFromStorage(90, 249);
+
+        CapturingReadEntriesCallback callback = new CapturingReadEntriesCallback();
+        pendingReadsManager.readEntries(lh, firstEntry, endEntry, shouldCacheEntry, callback, CTX);
+
+        // a read of another cursor arriving while the coalesced read is in flight attaches to it
+        CapturingReadEntriesCallback callback2 = new CapturingReadEntriesCallback();
+        pendingReadsManager.readEntries(lh, 150, 249, shouldCacheEntry, callback2, CTX2);
+
+        coalescedRead.storageReadCompleted();
+        callback.get();
+        callback2.get();
+
+        verifyRange(callback.entries, firstEntry, endEntry);
+        assertEquals(callback.entries.size(), 100);
+        verifyRange(callback2.entries, 150, 249);
+        assertEquals(callback2.entries.size(), 100);
+    }
+
+    @Test
+    public void coalescedReadIsCappedToMaxEntries() throws Exception {
+        rangeEntryCache.getManagedLedgerConfig().setMinimumCursorsForCoalescedReads(2);
+        rangeEntryCache.getManagedLedgerConfig().setMaxEntriesPerCoalescedRead(120);
+        mockCursorsReadPositions(50, 100, 900);
+
+        PreparedReadFromStorage coalescedRead = prepareCoalescedReadFromStorage(80, 199);
+
+        CapturingReadEntriesCallback callback = new CapturingReadEntriesCallback();
+        pendingReadsManager.readEntries(lh, 100, 199, false, callback, CTX);
+
+        coalescedRead.storageReadCompleted();
+        callback.get();
+        verifyRange(callback.entries, 100, 199);
+        assertEquals(callback.entries.size(), 100);
+    }
+
+    @Test
+    public void coalescedReadAcquiresPermitsForTheExtendedRange() throws Exception {
+        inflighReadsLimiter = new InflightReadsLimiter(100000, 0, 0,
+                mock(ScheduledExecutorService.class), OpenTelemetry.noop());
+        when(rangeEntryCache.getPendingReadsLimiter()).thenReturn(inflighReadsLimiter);
+        when(rangeEntryCache.getEstimatedEntrySize(lh)).thenReturn(10L);
+        rangeEntryCache.getManagedLedgerConfig().setMinimumCursorsForCoalescedReads(2);
+        mockCursorsReadPositions(90, 100, 150, 5000);
+
+        PreparedReadFromStorage coalescedRead = prepareCoalescedReadFromStorage(90, 249);
+
+        CapturingReadEntriesCallback callback = new CapturingReadEntriesCallback();
+        pendingReadsManager.readEntries(lh, 100, 199, false, callback, CTX);
+
+        // the 60 entries added to the requested range are accounted before the read is issued
+        assertEquals(inflighReadsLimiter.getRemainingBytes(), 100000 - 60 * 10);
+
+        coalescedRead.storageReadCompleted();
+        callback.get();
+        verifyRange(callback.entries, 100, 199);
+    }
+
+    @Test
+    public void noCoalescedReadWithoutPermitsForTheExtendedRange() throws Exception {
+        inflighReadsLimiter = new InflightReadsLimiter(500, 0, 0,
+                mock(ScheduledExecutorService.class), OpenTelemetry.noop());
+        when(rangeEntryCache.getPendingReadsLimiter()).thenReturn(inflighReadsLimiter);
+        when(rangeEntryCache.getEstimatedEntrySize(lh)).thenReturn(10L);
+        rangeEntryCache.getManagedLedgerConfig().setMinimumCursorsForCoalescedReads(2);
+        mockCursorsReadPositions(90, 100, 150, 5000);
+
+        PreparedReadFromStorage read1 = prepareReadFromStorage(lh, rangeEntryCache, 100, 199, false);
+
+        CapturingReadEntriesCallback callback = new CapturingReadEntriesCallback();
+        pendingReadsManager.readEntries(lh, 100, 199, false, callback, CTX);
+
+        // the 600 bytes of the extended range don't fit, only the requested range is read
+        assertEquals(inflighReadsLimiter.getRemainingBytes(), 500);
+
+        read1.storageReadCompleted();
+        callback.get();
+        verifyRange(callback.entries, 100, 199);
+        assertEquals(callback.entries.size(), 100);
+    }
+
+    @Test
+    public void noCoalescedReadWithoutOtherCursorsInRange() throws Exception {
+        rangeEntryCache.getManagedLedgerConfig().setMinimumCursorsForCoalescedReads(2);
+        mockCursorsReadPositions(100, 5000);
+
+        PreparedReadFromStorage read1 = prepareReadFromStorage(lh, rangeEntryCache, 100, 199, false);
+
+        CapturingReadEntriesCallback callback = new CapturingReadEntriesCallback();
+        pendingReadsManager.readEntries(lh, 100, 199, false, callback, CTX);
+
+        read1.storageReadCompleted();
+        callback.get();
+        verifyRange(callback.entries, 100, 199);
+        assertEquals(callback.entries.size(), 100);
+    }
+
 }
@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.impl.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.bookkeeper.client.PulsarMockBookKeeper;
+import org.apache.bookkeeper.common.util.OrderedScheduler;
+import org.apache.bookkeeper.mledger.AsyncCallbacks;
+import org.apache.bookkeeper.mledger.Entry;
+import org.apache.bookkeeper.mledger.ManagedLedgerConfig;
+import org.apache.bookkeeper.mledger.ManagedLedgerException;
+import org.apache.bookkeeper.mledger.ManagedLedgerFactoryConfig;
+import org.apache.bookkeeper.mledger.Position;
+import org.apache.bookkeeper.mledger.impl.EntryImpl;
+import org.apache.bookkeeper.mledger.impl.ManagedLedgerFactoryImpl;
+import org.apache.bookkeeper.mledger.impl.ManagedLedgerImpl;
+import org.apache.pulsar.metadata.api.MetadataStoreConfig;
+import org.apache.pulsar.metadata.api.extended.MetadataStoreExtended;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares {@link RangeEntryCacheManagerImpl} and {@link SegmentedEntryCacheManagerImpl} when caching entries for
+ * a large number of topics.
+ *
+ * <p/>The insert benchmark keeps inserting new entries in a cache smaller than the working set, so that the cost of
+ * the eviction is included. The read benchmark reads random entries that are all present in the cache.
+ */
+@Fork(1)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class EntryCacheManagerBenchmark {
+
+    private static final long MB = 1024 * 1024;
+    private static final int ENTRIES_PER_TOPIC = 10;
+
+    @Param({"range", "segmented"})
+    private String cacheType;
+
+    @Param({"1000", "10000"})
+    private int numberOfTopics;
+
+    @Param({"1024"})
+    private int entrySize;
+
+    private OrderedScheduler executor;
+    private MetadataStoreExtended metadataStore;
+    private PulsarMockBookKeeper bookKeeper;
+    private ManagedLedgerFactoryImpl factory;
+    private final List<ManagedLedgerImpl> ledgers = new ArrayList<>();
+    private final List<EntryCache> caches = new ArrayList<>();
+    private final List<List<Position>> positions = new ArrayList<>();
+    private final AtomicLong insertedEntries = new AtomicLong();
+    private byte[] payload;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        executor = OrderedScheduler.newSchedulerBuilder().numThreads(4).name("bench").build();
+        metadataStore = MetadataStoreExtended.create("memory:local", MetadataStoreConfig.builder().build());
+        bookKeeper = new PulsarMockBookKeeper(executor);
+
+        ManagedLedgerFactoryConfig config = new ManagedLedgerFactoryConfig();
+        config.setMaxCacheSize(256 * MB);
+        config.setSegmentedEntryCacheEnabled("segmented".equals(cacheType));
+        factory = new ManagedLedgerFactoryImpl(metadataStore, bookKeeper, config);
+
+        payload = new byte[entrySize];
+        ThreadLocalRandom.current().nextBytes(payload);
+
+        for (int i = 0; i < numberOfTopics; i++) {
+            ManagedLedgerImpl ml = (ManagedLedgerImpl) factory.open("topic-" + i, new ManagedLedgerConfig());
+            List<Position> topicPositions = new ArrayList<>(ENTRIES_PER_TOPIC);
+            EntryCache cache = factory.getEntryCacheManager().getEntryCache(ml);
+            for (int j = 0; j < ENTRIES_PER_TOPIC; j++) {
+                Position position = ml.addEntry(payload);
+                topicPositions.add(position);
+                EntryImpl entry = EntryImpl.create(position.getLedgerId(), position.getEntryId(), payload);
+                cache.insert(entry);
+                entry.release();
+            }
+            ledgers.add(ml);
+            caches.add(cache);
+            positions.add(topicPositions);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() throws Exception {
+        factory.shutdown();
+        bookKeeper.shutdown();
+        metadataStore.close();
+        executor.shutdownNow();
+    }
+
+    @Threads(1)
+    @Benchmark
+    @Measurement(time = 10, timeUnit = TimeUnit.SECONDS, iterations = 1)
+    @Warmup(time = 10, timeUnit = TimeUnit.SECONDS, iterations = 1)
+    public void insertEntries001Threads(Blackhole blackhole) {
+        insertEntry(blackhole);
+    }
+
+    @Threads(8)
+    @Benchmark
+    @Measurement(time = 10, timeUnit = TimeUnit.SECONDS, iterations = 1)
+    @Warmup(time = 10, timeUnit = TimeUnit.SECONDS, iterations = 1)
+    public void insertEntries008Threads(Blackhole blackhole) {
+        insertEntry(blackhole);
+    }
+
+    @Threads(1)
+    @Benchmark
+    @Measurement(time = 10, timeUnit = TimeUnit.SECONDS, iterations = 1)
+    @Warmup(time = 10, timeUnit = TimeUnit.SECONDS, iterations = 1)
+    public void readCachedEntries001Threads(Blackhole blackhole) throws Exception {
+        readCachedEntry(blackhole);
+    }
+
+    @Threads(8)
+    @Benchmark
+    @Measurement(time = 10, timeUnit = TimeUnit.SECONDS, iterations = 1)
+    @Warmup(time = 10, timeUnit = TimeUnit.SECONDS, iterations = 1)
+    public void readCachedEntries008Threads(Blackhole blackhole) throws Exception {
+        readCachedEntry(blackhole);
+    }
+
+    private void insertEntry(Blackhole blackhole) {
+        long sequence = insertedEntries.incrementAndGet();
+        int topic = (int) (sequence % numberOfTopics);
+        // Use ledger ids that don't clash with the ones of the ledgers created in the setup
+        long ledgerId = Integer.MAX_VALUE + (long) topic;
+        long entryId = sequence / numberOfTopics;
+        EntryImpl entry = EntryImpl.create(ledgerId, entryId, payload);
+        blackhole.consume(caches.get(topic).insert(entry));
+        entry.release();
+    }
+
+    private void readCachedEntry(Blackhole blackhole) throws Exception {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int topic = random.nextInt(numberOfTopics);
+        Position position = positions.get(topic).get(random.nextInt(ENTRIES_PER_TOPIC));
+        CompletableFuture<Entry> future = new CompletableFuture<>();
+        ledgers.get(topic).asyncReadEntry(position, new AsyncCallbacks.ReadEntryCallback() {
+            @Override
+            public void readEntryComplete(Entry entry, Object ctx) {
+                future.complete(entry);
+            }
+
+            @Override
+            public void readEntryFailed(ManagedLedgerException exception, Object ctx) {
+                future.completeExceptionally(exception);
+            }
+        }, null);
+        Entry entry = future.get();
+        blackhole.consume(entry.getLength());
+        entry.release();
+    }
+}
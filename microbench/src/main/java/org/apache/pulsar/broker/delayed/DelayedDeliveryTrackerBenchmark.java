@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.delayed;
+
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Schedules 10M and 100M delayed messages, with delivery times spread over an hour, and then dispatches all of
+ * them in batches of 100 messages, with the in-memory and the timing wheel delayed delivery trackers.
+ *
+ * <p/>The scores are in seconds for scheduling and dispatching all the messages. The in-memory tracker needs a
+ * heap large enough for the 100M messages, e.g. {@code -jvmArgs -Xmx32g}, while the timing wheel tracker needs
+ * the direct memory, e.g. {@code -jvmArgs -XX:MaxDirectMemorySize=8g}.
+ */
+@Fork(1)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class DelayedDeliveryTrackerBenchmark {
+
+    private static final long MAX_DELAY_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final long ENTRIES_PER_LEDGER = 50_000;
+    private static final int DISPATCH_BATCH_SIZE = 100;
+
+    @Param({"10000000", "100000000"})
+    private long messagesCount;
+
+    @Param({"InMemory", "TimingWheel"})
+    private String trackerType;
+
+    private final ManualClock clock = new ManualClock();
+
+    @Threads(1)
+    @Benchmark
+    @Measurement(iterations = 1)
+    @Warmup(iterations = 1)
+    public long scheduleAndDispatch() {
+        clock.millis = 0;
+        AbstractDelayedDeliveryTracker tracker = trackerType.equals("InMemory")
+                ? new InMemoryDelayedDeliveryTracker(null, NoopTimer.INSTANCE, 1000, clock, false, 0)
+                : new TimingWheelDelayedDeliveryTracker(null, NoopTimer.INSTANCE, 1000, clock, false, 0);
+        try {
+            SplittableRandom random = new SplittableRandom(1);
+            for (long i = 0; i < messagesCount; i++) {
+                tracker.addMessage(i / ENTRIES_PER_LEDGER, i % ENTRIES_PER_LEDGER,
+                        2000 + random.nextLong(MAX_DELAY_MILLIS));
+            }
+            clock.millis = MAX_DELAY_MILLIS + 2000;
+            long dispatched = 0;
+            int n;
+            while ((n = tracker.getScheduledMessages(DISPATCH_BATCH_SIZE).size()) > 0) {
+                dispatched += n;
+            }
+            return dispatched;
+        } finally {
+            tracker.close();
+        }
+    }
+
+    private static final class ManualClock extends Clock {
+        private long millis;
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+
+    /**
+     * The dispatcher is not needed, so the timer never triggers the tracker.
+     */
+    private static final class NoopTimer implements Timer, Timeout {
+        private static final NoopTimer INSTANCE = new NoopTimer();
+
+        @Override
+        public Timeout newTimeout(TimerTask task, long delay, TimeUnit unit) {
+            return this;
+        }
+
+        @Override
+        public Set<Timeout> stop() {
+            return Collections.emptySet();
+        }
+
+        @Override
+        public Timer timer() {
+            return this;
+        }
+
+        @Override
+        public TimerTask task() {
+            return null;
+        }
+
+        @Override
+        public boolean isExpired() {
+            return false;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+
+        @Override
+        public boolean cancel() {
+            return false;
+        }
+    }
+}
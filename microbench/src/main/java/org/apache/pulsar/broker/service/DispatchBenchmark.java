@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.service;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.apache.bookkeeper.mledger.Entry;
+import org.apache.bookkeeper.mledger.impl.EntryImpl;
+import org.apache.pulsar.common.api.proto.MessageMetadata;
+import org.apache.pulsar.common.protocol.ByteBufPair;
+import org.apache.pulsar.common.protocol.Commands;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the regular dispatch path of the Shared subscriptions with the fast path, for a dispatch cycle sending
+ * 100 entries to a consumer: peeking the metadata of the entries, then writing the message commands to the
+ * connection.
+ *
+ * <p/>The scores are in messages per second. Run with {@code -prof gc} to compare the allocations per message.
+ * {@link #peekBatchSizes} measures the part of the fast path that still parses the metadata of every entry.
+ */
+@Fork(1)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class DispatchBenchmark {
+
+    private static final int ENTRIES_PER_DISPATCH = 100;
+
+    @Param({"1", "10"})
+    private int messagesPerEntry;
+
+    @Param({"1024"})
+    private int payloadSize;
+
+    private final List<Entry> entries = new ArrayList<>(ENTRIES_PER_DISPATCH);
+    private EmbeddedChannel channel;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        byte[] payload = new byte[payloadSize];
+        ThreadLocalRandom.current().nextBytes(payload);
+        for (int i = 0; i < ENTRIES_PER_DISPATCH; i++) {
+            MessageMetadata metadata = new MessageMetadata()
+                    .setProducerName("producer")
+                    .setSequenceId(i)
+                    .setPublishTime(System.currentTimeMillis())
+                    .setNumMessagesInBatch(messagesPerEntry);
+            ByteBuf data = Commands.serializeMetadataAndPayload(Commands.ChecksumType.Crc32c, metadata,
+                    Unpooled.wrappedBuffer(payload));
+            entries.add(EntryImpl.create(1, i, data));
+            data.release();
+        }
+        channel = new EmbeddedChannel(ByteBufPair.ENCODER);
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() {
+        channel.finishAndReleaseAll();
+        entries.forEach(Entry::release);
+    }
+
+    @Threads(1)
+    @Benchmark
+    @OperationsPerInvocation(ENTRIES_PER_DISPATCH)
+    @Measurement(time = 10, timeUnit = TimeUnit.SECONDS, iterations = 1)
+    @Warmup(time = 10, timeUnit = TimeUnit.SECONDS, iterations = 1)
+    public int regularPath() {
+        int messages = 0;
+        List<Entry> entriesAndMetadata = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            MessageMetadata metadata = Commands.peekAndCopyMessageMetadata(entry.getDataBuffer(), "sub", -1);
+            entriesAndMetadata.add(EntryAndMetadata.create(entry, metadata));
+            messages += metadata.getNumMessagesInBatch();
+        }
+        for (Entry entry : entriesAndMetadata) {
+            ByteBuf metadataAndPayload = entry.getDataBuffer().retain();
+            channel.write(Commands.serializeCommandMessageWithSize(Commands.newMessageCommand(1,
+                    entry.getLedgerId(), entry.getEntryId(), -1, 0, null, -1), metadataAndPayload),
+                    channel.voidPromise());
+        }
+        channel.writeAndFlush(Unpooled.EMPTY_BUFFER);
+        channel.releaseOutbound();
+        return messages;
+    }
+
+    @Threads(1)
+    @Benchmark
+    @OperationsPerInvocation(ENTRIES_PER_DISPATCH)
+    @Measurement(time = 10, timeUnit = TimeUnit.SECONDS, iterations = 1)
+    @Warmup(time = 10, timeUnit = TimeUnit.SECONDS, iterations = 1)
+    public int fastPath() {
+        int messages = 0;
+        for (Entry entry : entries) {
+            messages += Commands.peekMessageMetadata(entry.getDataBuffer(), "sub", -1).getNumMessagesInBatch();
+        }
+        CompositeMessageWriter writer = new CompositeMessageWriter(channel.alloc(), entries.size());
+        for (Entry entry : entries) {
+            ByteBuf metadataAndPayload = entry.getDataBuffer().retain();
+            writer.add(Commands.newMessageCommand(1, entry.getLedgerId(), entry.getEntryId(), -1, 0, null, -1),
+                    metadataAndPayload);
+        }
+        channel.writeAndFlush(writer.build());
+        channel.releaseOutbound();
+        return messages;
+    }
+
+    @Threads(1)
+    @Benchmark
+    @OperationsPerInvocation(ENTRIES_PER_DISPATCH)
+    @Measurement(time = 10, timeUnit = TimeUnit.SECONDS, iterations = 1)
+    @Warmup(time = 10, timeUnit = TimeUnit.SECONDS, iterations = 1)
+    public int peekBatchSizes() {
+        int messages = 0;
+        for (Entry entry : entries) {
+            messages += Commands.peekMessageMetadata(entry.getDataBuffer(), "sub", -1).getNumMessagesInBatch();
+        }
+        return messages;
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.service.persistent;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.pulsar.broker.service.Consumer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Simulates the flow commands sent by the consumers of a shared subscription to a dispatcher, with one benchmark
+ * thread per connection, to compare how the throughput scales with the number of consumers when each flow command
+ * takes the dispatcher lock ({@code synchronized}), and when the flow commands are applied in batches by a
+ * {@link ConsumerFlowBatcher} ({@code batched}).
+ *
+ * <p/>This is a model of {@link PersistentDispatcherMultipleConsumers#consumerFlow}, not the real dispatcher: the
+ * dispatcher lock is a plain monitor, applying a flow only adds the permits, and the read triggered by the new
+ * permits only burns CPU while holding the lock. It measures the contention of the flow commands on the lock, not
+ * the end to end dispatch throughput: the other paths taking the dispatcher lock, e.g. the read completions and the
+ * redeliveries, are not batched and are not part of the model.
+ *
+ * <p/>The scores are in flow commands per second, once they have been applied to the dispatcher.
+ */
+@Fork(1)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class ConsumerFlowContentionBenchmark {
+
+    private static final int FLOWS_PER_INVOCATION = 1000;
+    // cost of a read more entries call holding the dispatcher lock
+    private static final long READ_MORE_ENTRIES_TOKENS = 500;
+    // the flows are not sent by a real consumer
+    private static final Consumer CONSUMER = null;
+
+    @Param({"synchronized", "batched"})
+    private String mode;
+
+    private final Object dispatcherLock = new Object();
+    private final Set<Consumer> consumerSet = new HashSet<>();
+    private final AtomicBoolean readMoreEntriesAsyncRequested = new AtomicBoolean(false);
+    private final AtomicLong offeredFlows = new AtomicLong();
+    private final AtomicLong processedFlows = new AtomicLong();
+    private int totalAvailablePermits;
+    private ExecutorService executor;
+    private ConsumerFlowBatcher consumerFlows;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        consumerSet.add(CONSUMER);
+        executor = Executors.newFixedThreadPool(4);
+        consumerFlows = new ConsumerFlowBatcher(executor, batch -> {
+            synchronized (dispatcherLock) {
+                for (ConsumerFlowBatcher.ConsumerFlow flow : batch) {
+                    addPermits(flow.consumer(), flow.additionalNumberOfMessages());
+                }
+            }
+            processedFlows.addAndGet(batch.size());
+            readMoreEntriesAsync();
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() {
+        executor.shutdownNow();
+    }
+
+    private void addPermits(Consumer consumer, int permits) {
+        if (consumerSet.contains(consumer)) {
+            totalAvailablePermits += permits;
+        }
+    }
+
+    private void readMoreEntriesAsync() {
+        if (readMoreEntriesAsyncRequested.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                readMoreEntriesAsyncRequested.set(false);
+                synchronized (dispatcherLock) {
+                    Blackhole.consumeCPU(READ_MORE_ENTRIES_TOKENS);
+                }
+            });
+        }
+    }
+
+    private void consumerFlows() {
+        long target = offeredFlows.addAndGet(FLOWS_PER_INVOCATION);
+        for (int i = 0; i < FLOWS_PER_INVOCATION; i++) {
+            if ("batched".equals(mode)) {
+                consumerFlows.offer(CONSUMER, 1);
+            } else {
+                executor.execute(() -> {
+                    synchronized (dispatcherLock) {
+                        addPermits(CONSUMER, 1);
+                    }
+                    processedFlows.incrementAndGet();
+                    readMoreEntriesAsync();
+                });
+            }
+        }
+        // wait for the flow commands to be applied
+        while (processedFlows.get() < target) {
+            Thread.onSpinWait();
+        }
+    }
+
+    @Threads(1)
+    @Benchmark
+    @OperationsPerInvocation(FLOWS_PER_INVOCATION)
+    @Measurement(time = 10, timeUnit = TimeUnit.SECONDS, iterations = 1)
+    @Warmup(time = 10, timeUnit = TimeUnit.SECONDS, iterations = 1)
+    public void consumerFlows001Consumers() {
+        consumerFlows();
+    }
+
+    @Threads(4)
+    @Benchmark
+    @OperationsPerInvocation(FLOWS_PER_INVOCATION)
+    @Measurement(time = 10, timeUnit = TimeUnit.SECONDS, iterations = 1)
+    @Warmup(time = 10, timeUnit = TimeUnit.SECONDS, iterations = 1)
+    public void consumerFlows004Consumers() {
+        consumerFlows();
+    }
+
+    @Threads(16)
+    @Benchmark
+    @OperationsPerInvocation(FLOWS_PER_INVOCATION)
+    @Measurement(time = 10, timeUnit = TimeUnit.SECONDS, iterations = 1)
+    @Warmup(time = 10, timeUnit = TimeUnit.SECONDS, iterations = 1)
+    public void consumerFlows016Consumers() {
+        consumerFlows();
+    }
+
+    @Threads(64)
+    @Benchmark
+    @OperationsPerInvocation(FLOWS_PER_INVOCATION)
+    @Measurement(time = 10, timeUnit = TimeUnit.SECONDS, iterations = 1)
+    @Warmup(time = 10, timeUnit = TimeUnit.SECONDS, iterations = 1)
+    public void consumerFlows064Consumers() {
+        consumerFlows();
+    }
+}
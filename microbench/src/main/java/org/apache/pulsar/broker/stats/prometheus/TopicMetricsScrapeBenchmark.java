@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.stats.prometheus;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.apache.pulsar.common.util.SimpleTextOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Writes the topic metrics of a Prometheus scrape for 10k and 100k topics, each with a subscription and a producer,
+ * from the collected {@link TopicStats} to the response buffer.
+ *
+ * <p/>The scores are in milliseconds per scrape. Run with {@code -prof gc} to compare the allocations per scrape.
+ */
+@Fork(1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+public class TopicMetricsScrapeBenchmark {
+
+    @Param({"10000", "100000"})
+    private int topicsCount;
+
+    private String[] topicNames;
+    private TopicStats[] topicStats;
+    private final ColumnarTopicStats columnarTopicStats = new ColumnarTopicStats();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        topicNames = new String[topicsCount];
+        topicStats = new TopicStats[topicsCount];
+        for (int i = 0; i < topicsCount; i++) {
+            topicNames[i] = "persistent://tenant/ns/topic-" + (i / 10) + "-partition-" + (i % 10);
+            TopicStats stats = new TopicStats();
+            stats.reset();
+            stats.subscriptionsCount = 1;
+            stats.producersCount = 1;
+            stats.rateIn = random.nextDouble(1000);
+            stats.throughputIn = random.nextDouble(1_000_000);
+            stats.msgInCounter = random.nextLong(1_000_000_000L);
+            stats.bytesInCounter = random.nextLong(1_000_000_000_000L);
+            stats.managedLedgerStats.storageSize = random.nextLong(1_000_000_000_000L);
+            stats.msgBacklog = random.nextLong(1_000_000);
+            AggregatedSubscriptionStats subscriptionStats = new AggregatedSubscriptionStats();
+            subscriptionStats.msgBacklog = stats.msgBacklog;
+            subscriptionStats.msgRateOut = stats.rateIn;
+            stats.subscriptionStats.put("sub", subscriptionStats);
+            AggregatedProducerStats producerStats = new AggregatedProducerStats();
+            producerStats.msgRateIn = stats.rateIn;
+            stats.producerStats.put("producer-" + i, producerStats);
+            topicStats[i] = stats;
+        }
+    }
+
+    @Threads(1)
+    @Benchmark
+    @Measurement(time = 10, timeUnit = TimeUnit.SECONDS, iterations = 1)
+    @Warmup(time = 10, timeUnit = TimeUnit.SECONDS, iterations = 1)
+    public int scrape() {
+        PrometheusMetricStreams metricStreams = new PrometheusMetricStreams();
+        ByteBuf buf = PooledByteBufAllocator.DEFAULT.directBuffer();
+        try {
+            columnarTopicStats.reset();
+            for (int i = 0; i < topicsCount; i++) {
+                TopicStats.printTopicStats(metricStreams, columnarTopicStats, topicStats[i], Optional.empty(),
+                        "cluster", "tenant/ns", topicNames[i], true);
+            }
+            columnarTopicStats.flush(metricStreams);
+            metricStreams.flushAllToStream(new SimpleTextOutputStream(buf));
+            return buf.readableBytes();
+        } finally {
+            metricStreams.releaseAll();
+            buf.release();
+        }
+    }
+}
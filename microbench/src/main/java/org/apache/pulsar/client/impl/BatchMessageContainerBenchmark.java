@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.client.impl;
+
+import io.netty.buffer.ByteBuf;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.apache.pulsar.client.api.Schema;
+import org.apache.pulsar.common.api.proto.CompressionType;
+import org.apache.pulsar.common.api.proto.MessageMetadata;
+import org.apache.pulsar.common.compression.CompressionCodecProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Adds 100 messages to a {@link BatchMessageContainerImpl} and builds the compressed batch, with small and large
+ * messages, with and without compression.
+ *
+ * <p/>The scores are in batches per second. Running it with {@code -prof gc} also reports the bytes allocated per
+ * batch, in {@code gc.alloc.rate.norm}, which doesn't include the payloads of the messages since they are created
+ * once for all.
+ */
+@Fork(1)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class BatchMessageContainerBenchmark {
+
+    private static final int MESSAGES_PER_BATCH = 100;
+
+    @Param({"100", "10000"})
+    private int messageSize;
+
+    @Param({"NONE", "LZ4", "ZLIB"})
+    private CompressionType compressionType;
+
+    private final List<MessageImpl<byte[]>> messages = new ArrayList<>(MESSAGES_PER_BATCH);
+    private BatchMessageContainerImpl container;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(1);
+        for (int i = 0; i < MESSAGES_PER_BATCH; i++) {
+            // a payload made of a few distinct bytes, so that it can be compressed
+            byte[] payload = new byte[messageSize];
+            for (int j = 0; j < messageSize; j++) {
+                payload[j] = (byte) ('a' + random.nextInt(8));
+            }
+            MessageMetadata metadata = new MessageMetadata();
+            metadata.setSequenceId(i);
+            metadata.setProducerName("batch-message-container-benchmark");
+            metadata.setPublishTime(System.currentTimeMillis());
+            metadata.setPartitionKey("key-" + i);
+            messages.add(MessageImpl.create(metadata, ByteBuffer.wrap(payload), Schema.BYTES, null));
+        }
+        container = new BatchMessageContainerImpl();
+        container.compressionType = compressionType;
+        container.compressor = CompressionCodecProvider.getCompressionCodec(compressionType);
+    }
+
+    @Threads(1)
+    @Benchmark
+    @Measurement(time = 10, timeUnit = TimeUnit.SECONDS, iterations = 1)
+    @Warmup(time = 10, timeUnit = TimeUnit.SECONDS, iterations = 1)
+    public int buildBatch() {
+        for (int i = 0; i < MESSAGES_PER_BATCH; i++) {
+            container.add(messages.get(i), null);
+        }
+        ByteBuf batch = container.getCompressedBatchMetadataAndPayload(false);
+        int size = batch.readableBytes();
+        batch.release();
+        container.clear();
+        return size;
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.client.impl;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.apache.pulsar.client.api.BatchReceivePolicy;
+import org.apache.pulsar.client.api.Message;
+import org.apache.pulsar.client.api.Messages;
+import org.apache.pulsar.client.api.Schema;
+import org.apache.pulsar.client.impl.conf.ClientConfigurationData;
+import org.apache.pulsar.client.impl.conf.ConsumerConfigurationData;
+import org.apache.pulsar.common.api.proto.MessageIdData;
+import org.apache.pulsar.common.api.proto.MessageMetadata;
+import org.apache.pulsar.common.api.proto.SingleMessageMetadata;
+import org.apache.pulsar.common.protocol.Commands;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Decodes batches of 10 to 1000 small messages on a consumer and hands them out to the application with
+ * {@code batchReceive()}, with and without pooled messages.
+ *
+ * <p/>The consumer never connects to a broker, the batches are passed to it as if they had just been received, so
+ * that the scores, in batches per second, only measure the client side of the receive path: the decoding of the
+ * batches, the incoming queue and the batch receive.
+ */
+@Fork(1)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class ConsumerReceiveBenchmark {
+
+    private static final byte[] PAYLOAD = "0123456789012345678901234567890123456789".getBytes(StandardCharsets.UTF_8);
+
+    @Param({"10", "100", "1000"})
+    private int batchSize;
+
+    @Param({"true", "false"})
+    private boolean poolMessages;
+
+    private PulsarClientImpl client;
+    private ConsumerImpl<byte[]> consumer;
+    private final MessageMetadata batchMetadata = new MessageMetadata();
+    private ByteBuf batch;
+    private long entryId;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        ClientConfigurationData clientConf = new ClientConfigurationData();
+        clientConf.setServiceUrl("pulsar://localhost:6650");
+        clientConf.setStatsIntervalSeconds(0);
+        client = new PulsarClientImpl(clientConf);
+
+        ConsumerConfigurationData<byte[]> consumerConf = new ConsumerConfigurationData<>();
+        consumerConf.getTopicNames().add("persistent://public/default/consumer-receive-benchmark");
+        consumerConf.setSubscriptionName("consumer-receive-benchmark");
+        consumerConf.setReceiverQueueSize(2 * batchSize);
+        consumerConf.setPoolMessages(poolMessages);
+        consumerConf.setBatchReceivePolicy(BatchReceivePolicy.builder()
+                .maxNumMessages(batchSize)
+                .maxNumBytes(-1)
+                .timeout(1, TimeUnit.SECONDS)
+                .build());
+        consumer = new DisconnectedConsumer(client, consumerConf);
+
+        batchMetadata.setProducerName("consumer-receive-benchmark")
+                .setPublishTime(System.currentTimeMillis())
+                .setSequenceId(0)
+                .setNumMessagesInBatch(batchSize);
+        batch = PooledByteBufAllocator.DEFAULT.directBuffer();
+        for (int i = 0; i < batchSize; i++) {
+            Commands.serializeSingleMessageInBatchWithPayload(new SingleMessageMetadata().setSequenceId(i),
+                    Unpooled.wrappedBuffer(PAYLOAD), batch);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() throws Exception {
+        batch.release();
+        consumer.close();
+        client.close();
+    }
+
+    @Threads(1)
+    @Benchmark
+    @Measurement(time = 10, timeUnit = TimeUnit.SECONDS, iterations = 1)
+    @Warmup(time = 10, timeUnit = TimeUnit.SECONDS, iterations = 1)
+    public long receiveBatch() throws Exception {
+        ByteBuf payload = batch.retainedDuplicate();
+        try {
+            consumer.receiveIndividualMessagesFromBatch(null, batchMetadata, 0, null, payload,
+                    new MessageIdData().setLedgerId(1).setEntryId(entryId++), null, Commands.DEFAULT_CONSUMER_EPOCH);
+        } finally {
+            payload.release();
+        }
+        long size = 0;
+        Messages<byte[]> messages = consumer.batchReceive();
+        for (Message<byte[]> message : messages) {
+            size += message.getValue().length;
+            message.release();
+        }
+        return size;
+    }
+
+    /**
+     * Consumer that is ready without a connection, and so never sends its flow permits or its acknowledgments.
+     */
+    private static final class DisconnectedConsumer extends ConsumerImpl<byte[]> {
+
+        DisconnectedConsumer(PulsarClientImpl client, ConsumerConfigurationData<byte[]> conf) {
+            super(client, conf.getSingleTopic(), conf, client.externalExecutorProvider(), -1, false, false,
+                    new CompletableFuture<>(), null, 0, Schema.BYTES, null, true);
+        }
+
+        @Override
+        void grabCnx() {
+            setState(HandlerState.State.Ready);
+        }
+    }
+}
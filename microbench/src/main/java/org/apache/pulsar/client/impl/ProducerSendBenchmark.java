@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.client.impl;
+
+import io.netty.util.ReferenceCountUtil;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.apache.pulsar.client.api.MessageId;
+import org.apache.pulsar.client.api.Schema;
+import org.apache.pulsar.client.impl.conf.ClientConfigurationData;
+import org.apache.pulsar.client.impl.conf.ProducerConfigurationData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Sends small messages on a single producer from 1 to 64 threads, to compare how the send path of
+ * {@link ProducerImpl} scales with the number of sending threads, with and without batching.
+ *
+ * <p/>The producer never connects to a broker, and each message, or batch, is acknowledged as soon as it is ready
+ * to be written to the connection, so that the scores, in sends per second, only measure the client side of the
+ * send path: the pending messages permits, the producer mutex, the batching and the serialization.
+ */
+@Fork(1)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class ProducerSendBenchmark {
+
+    private static final byte[] PAYLOAD = "0123456789012345678901234567890123456789".getBytes(StandardCharsets.UTF_8);
+
+    @Param({"true", "false"})
+    private boolean batching;
+
+    private PulsarClientImpl client;
+    private ProducerImpl<byte[]> producer;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        ClientConfigurationData clientConf = new ClientConfigurationData();
+        clientConf.setServiceUrl("pulsar://localhost:6650");
+        clientConf.setStatsIntervalSeconds(0);
+        client = new PulsarClientImpl(clientConf);
+
+        ProducerConfigurationData producerConf = new ProducerConfigurationData();
+        producerConf.setTopicName("persistent://public/default/producer-send-benchmark");
+        producerConf.setProducerName("producer-send-benchmark");
+        producerConf.setSendTimeoutMs(0);
+        producerConf.setMaxPendingMessages(10_000);
+        producerConf.setBlockIfQueueFull(true);
+        producerConf.setBatchingEnabled(batching);
+        producerConf.setBatchingMaxMessages(100);
+        producer = new AcknowledgingProducer(client, producerConf);
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() throws Exception {
+        producer.flush();
+        producer.close();
+        client.close();
+    }
+
+    private CompletableFuture<MessageId> send() {
+        return producer.sendAsync(PAYLOAD);
+    }
+
+    @Threads(1)
+    @Benchmark
+    @Measurement(time = 10, timeUnit = TimeUnit.SECONDS, iterations = 1)
+    @Warmup(time = 10, timeUnit = TimeUnit.SECONDS, iterations = 1)
+    public CompletableFuture<MessageId> send001Threads() {
+        return send();
+    }
+
+    @Threads(4)
+    @Benchmark
+    @Measurement(time = 10, timeUnit = TimeUnit.SECONDS, iterations = 1)
+    @Warmup(time = 10, timeUnit = TimeUnit.SECONDS, iterations = 1)
+    public CompletableFuture<MessageId> send004Threads() {
+        return send();
+    }
+
+    @Threads(16)
+    @Benchmark
+    @Measurement(time = 10, timeUnit = TimeUnit.SECONDS, iterations = 1)
+    @Warmup(time = 10, timeUnit = TimeUnit.SECONDS, iterations = 1)
+    public CompletableFuture<MessageId> send016Threads() {
+        return send();
+    }
+
+    @Threads(64)
+    @Benchmark
+    @Measurement(time = 10, timeUnit = TimeUnit.SECONDS, iterations = 1)
+    @Warmup(time = 10, timeUnit = TimeUnit.SECONDS, iterations = 1)
+    public CompletableFuture<MessageId> send064Threads() {
+        return send();
+    }
+
+    /**
+     * Producer acknowledging the messages instead of writing them to a connection.
+     */
+    private static final class AcknowledgingProducer extends ProducerImpl<byte[]> {
+        private long entryId;
+
+        AcknowledgingProducer(PulsarClientImpl client, ProducerConfigurationData conf) {
+            super(client, conf.getTopicName(), conf, new CompletableFuture<>(), -1, Schema.BYTES, null,
+                    Optional.empty());
+        }
+
+        @Override
+        void grabCnx() {
+            setState(HandlerState.State.Ready);
+        }
+
+        @Override
+        protected synchronized void processOpSendMsg(OpSendMsg op) {
+            if (op == null) {
+                return;
+            }
+            releaseSemaphoreForSendOp(op);
+            op.setMessageId(0, entryId++, -1);
+            op.sendComplete(null);
+            ReferenceCountUtil.safeRelease(op.cmd);
+            op.recycle();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.common.naming;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Resolves the names of the partitions of partitioned topics and their partitioned topic names, the way the broker
+ * does when it serves the lookups and the producers and consumers of partitions.
+ *
+ * <p/>With 10K topics of 16 partitions, the names don't fit in the default cache capacity, so that the least recently
+ * used names are evicted and parsed again. Run with {@code -prof gc} to compare the allocation rates as well.
+ */
+@Fork(1)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class TopicNameBenchmark {
+
+    private static final int PARTITIONS = 16;
+
+    @Param({"100", "10000"})
+    private int topicsCount;
+
+    private String[] partitionNames;
+    private ByteBuf partitionNamesBuffer;
+    private int[] partitionNameOffsets;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        partitionNames = new String[topicsCount * PARTITIONS];
+        partitionNameOffsets = new int[partitionNames.length + 1];
+        partitionNamesBuffer = Unpooled.buffer();
+        for (int i = 0; i < partitionNames.length; i++) {
+            partitionNames[i] = "persistent://tenant-" + (i % 10) + "/ns/topic-" + (i / PARTITIONS)
+                    + TopicName.PARTITIONED_TOPIC_SUFFIX + (i % PARTITIONS);
+            partitionNameOffsets[i] = partitionNamesBuffer.writerIndex();
+            partitionNamesBuffer.writeCharSequence(partitionNames[i], UTF_8);
+        }
+        partitionNameOffsets[partitionNames.length] = partitionNamesBuffer.writerIndex();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        partitionNamesBuffer.release();
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        // Spread the threads over the names
+        private int next = (int) Thread.currentThread().getId() * 7919;
+
+        int next(int count) {
+            next = Math.floorMod(next + 1, count);
+            return next;
+        }
+    }
+
+    @Threads(1)
+    @Benchmark
+    @Measurement(iterations = 1)
+    @Warmup(iterations = 1)
+    public TopicName resolvePartition(Cursor cursor) {
+        return TopicName.get(partitionNames[cursor.next(partitionNames.length)]);
+    }
+
+    @Threads(1)
+    @Benchmark
+    @Measurement(iterations = 1)
+    @Warmup(iterations = 1)
+    public TopicName resolvePartitionFromBuffer(Cursor cursor) {
+        int i = cursor.next(partitionNames.length);
+        int offset = partitionNameOffsets[i];
+        return TopicName.get(partitionNamesBuffer, offset, partitionNameOffsets[i + 1] - offset);
+    }
+
+    @Threads(1)
+    @Benchmark
+    @Measurement(iterations = 1)
+    @Warmup(iterations = 1)
+    public TopicName resolvePartitionedTopic(Cursor cursor) {
+        return TopicName.getPartitionedTopicName(partitionNames[cursor.next(partitionNames.length)]);
+    }
+
+    @Threads(4)
+    @Benchmark
+    @Measurement(iterations = 1)
+    @Warmup(iterations = 1)
+    public TopicName resolvePartitionedTopicConcurrently(Cursor cursor) {
+        return TopicName.getPartitionedTopicName(partitionNames[cursor.next(partitionNames.length)]);
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.common.util.collections;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.lang3.mutable.MutableInt;
+import org.apache.pulsar.common.util.collections.LongPairRangeSet.LongPair;
+import org.apache.pulsar.common.util.collections.LongPairRangeSet.LongPairConsumer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.roaringbitmap.RoaringBitSet;
+
+/**
+ * Compares the range sets that can be used to track the individually deleted messages of a cursor, with an
+ * acknowledgment hole every other entry, which is the worst case for a shared subscription.
+ * {@link #addDisjointRangesOutOfOrder} adds the ranges in reverse order, as with consumers acknowledging out of order.
+ *
+ * <p/>Run with {@code -prof gc} to compare the allocation rates as well.
+ */
+@Fork(1)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class LongPairRangeSetBenchmark {
+
+    private static final LongPairConsumer<LongPair> CONSUMER = LongPair::new;
+    private static final int ENTRIES_PER_LEDGER = 50_000;
+    private static final int RANGES_PER_LEDGER = ENTRIES_PER_LEDGER / 2;
+    private static final int RANGES_TO_ADD = 100_000;
+
+    @Param({"concurrentOpen", "open", "runLength"})
+    private String setType;
+
+    @Param({"100000", "1000000"})
+    private int numberOfRanges;
+
+    private LongPairRangeSet<LongPair> set;
+    private int numberOfLedgers;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        numberOfLedgers = Math.max(1, numberOfRanges / RANGES_PER_LEDGER);
+        set = createSet();
+        addRanges(set, numberOfRanges);
+    }
+
+    private LongPairRangeSet<LongPair> createSet() {
+        switch (setType) {
+            case "concurrentOpen":
+                return new ConcurrentOpenLongPairRangeSet<>(CONSUMER);
+            case "open":
+                return new OpenLongPairRangeSet<>(CONSUMER, RoaringBitSet::new);
+            case "runLength":
+                return new RunLengthLongPairRangeSet<>(CONSUMER);
+            default:
+                throw new IllegalArgumentException("Unknown set type " + setType);
+        }
+    }
+
+    private static void addRanges(LongPairRangeSet<LongPair> set, int numberOfRanges) {
+        for (int i = 0; i < numberOfRanges; i++) {
+            long ledgerId = i / RANGES_PER_LEDGER;
+            long entryId = (i % RANGES_PER_LEDGER) * 2L;
+            set.addOpenClosed(ledgerId, entryId - 1, ledgerId, entryId);
+        }
+    }
+
+    @Threads(1)
+    @Benchmark
+    @OperationsPerInvocation(RANGES_TO_ADD)
+    @Measurement(time = 10, timeUnit = TimeUnit.SECONDS, iterations = 1)
+    @Warmup(time = 10, timeUnit = TimeUnit.SECONDS, iterations = 1)
+    public void addRanges(Blackhole blackhole) {
+        LongPairRangeSet<LongPair> newSet = createSet();
+        addRanges(newSet, RANGES_TO_ADD);
+        blackhole.consume(newSet);
+    }
+
+    @Threads(1)
+    @Benchmark
+    @OperationsPerInvocation(RANGES_TO_ADD)
+    @Measurement(time = 10, timeUnit = TimeUnit.SECONDS, iterations = 1)
+    @Warmup(time = 10, timeUnit = TimeUnit.SECONDS, iterations = 1)
+    public void addDisjointRangesOutOfOrder(Blackhole blackhole) {
+        // Many disjoint ranges in a single ledger, acknowledged from the last one so that no range is ever appended
+        LongPairRangeSet<LongPair> newSet = createSet();
+        for (int i = RANGES_TO_ADD - 1; i >= 0; i--) {
+            long entryId = i * 2L;
+            newSet.addOpenClosed(0, entryId - 1, 0, entryId);
+        }
+        blackhole.consume(newSet);
+    }
+
+    @Threads(1)
+    @Benchmark
+    @Measurement(time = 10, timeUnit = TimeUnit.SECONDS, iterations = 1)
+    @Warmup(time = 10, timeUnit = TimeUnit.SECONDS, iterations = 1)
+    public boolean contains() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return set.contains(random.nextInt(numberOfLedgers), random.nextInt(ENTRIES_PER_LEDGER));
+    }
+
+    @Threads(1)
+    @Benchmark
+    @Measurement(time = 10, timeUnit = TimeUnit.SECONDS, iterations = 1)
+    @Warmup(time = 10, timeUnit = TimeUnit.SECONDS, iterations = 1)
+    public int forEachRawRange() {
+        // Same iteration as the one done to persist the individually deleted messages of the cursor
+        MutableInt count = new MutableInt();
+        set.forEachRawRange((lowerKey, lowerValue, upperKey, upperValue) -> {
+            count.add((int) (upperValue - lowerValue));
+            return true;
+        });
+        return count.intValue();
+    }
+
+    @Threads(1)
+    @Benchmark
+    @Measurement(time = 10, timeUnit = TimeUnit.SECONDS, iterations = 1)
+    @Warmup(time = 10, timeUnit = TimeUnit.SECONDS, iterations = 1)
+    public int cardinality() {
+        return set.cardinality(0, ENTRIES_PER_LEDGER / 4, numberOfLedgers - 1, ENTRIES_PER_LEDGER / 2);
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.compaction;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.apache.pulsar.client.api.MessageId;
+import org.apache.pulsar.client.impl.MessageIdImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Runs the key map part of the two phases of a compaction of a topic with 10M and 100M distinct keys, each key
+ * being written twice on average, with the on-heap map and with the off-heap map spilled to sorted runs beyond
+ * 256 MB.
+ *
+ * <p/>The scores are in seconds for the phase one puts and the phase two lookups of all the messages. The on-heap map
+ * needs a heap large enough for the 100M keys, e.g. {@code -jvmArgs -Xmx64g}, while the spilling map needs
+ * {@code -jvmArgs -XX:MaxDirectMemorySize=1g} and the disk space of the runs in the temporary directory. The memory
+ * allocated for the keys is reported with {@code -prof gc}.
+ */
+@Fork(1)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class CompactionKeyMapBenchmark {
+
+    private static final long MEMORY_LIMIT_IN_BYTES = 256 * 1024 * 1024;
+    private static final long ENTRIES_PER_LEDGER = 50_000;
+
+    @Param({"10000000", "100000000"})
+    private int keysCount;
+
+    @Param({"HashMap", "Spilling"})
+    private String keyMapType;
+
+    @Threads(1)
+    @Benchmark
+    @Measurement(iterations = 1)
+    @Warmup(iterations = 1)
+    public long compact() {
+        Path spillDirectory = Paths.get(System.getProperty("java.io.tmpdir"));
+        KeyMap latestForKey = keyMapType.equals("HashMap")
+                ? KeyMap.of(new HashMap<>()) : new SpillingKeyMap(MEMORY_LIMIT_IN_BYTES, spillDirectory);
+        long messagesCount = 2L * keysCount;
+        SplittableRandom random = new SplittableRandom(1);
+        for (long i = 0; i < messagesCount; i++) {
+            latestForKey.put(key(random), messageId(i));
+        }
+        try (latestForKey; LatestMessageIds latestMessageIds = latestForKey.finish(() -> {})) {
+            random = new SplittableRandom(1);
+            long retained = 0;
+            for (long i = 0; i < messagesCount; i++) {
+                if (latestMessageIds.isLatest(key(random), messageId(i))) {
+                    retained++;
+                }
+            }
+            return retained;
+        }
+    }
+
+    private String key(SplittableRandom random) {
+        return "key-" + random.nextInt(keysCount);
+    }
+
+    private static MessageId messageId(long i) {
+        return new MessageIdImpl(i / ENTRIES_PER_LEDGER, i % ENTRIES_PER_LEDGER, -1);
+    }
+}
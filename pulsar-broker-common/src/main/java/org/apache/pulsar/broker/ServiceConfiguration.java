@@ -370,6 +370,8 @@ public class ServiceConfiguration implements PulsarConfiguration {
             Class name of the factory that implements the delayed deliver tracker.
             If value is "org.apache.pulsar.broker.delayed.BucketDelayedDeliveryTrackerFactory", \
             will create bucket based delayed message index tracker.
+            If value is "org.apache.pulsar.broker.delayed.TimingWheelDelayedDeliveryTrackerFactory", \
+            will create a delayed message index tracker which keeps the index in direct memory, in a timing wheel.
             """)
     private String delayedDeliveryTrackerFactoryClassName = "org.apache.pulsar.broker.delayed"
             + ".InMemoryDelayedDeliveryTrackerFactory";
@@ -425,6 +427,11 @@ public class ServiceConfiguration implements PulsarConfiguration {
     @FieldContext(category = CATEGORY_SERVER, doc = "Whether to enable the acknowledge of batch local index")
     private boolean acknowledgmentAtBatchIndexLevelEnabled = true;
 
+    @FieldContext(category = CATEGORY_SERVER, doc = """
+            The max number of entries that a consumer can acknowledge as compact ranges in a single ack command. \
+            The limit is advertised to the clients, which split their larger groups of acks into several commands.""")
+    private int maxCompactAckEntries = 100_000;
+
     @FieldContext(
         category = CATEGORY_WEBSOCKET,
         doc = "Enable the WebSocket API service in broker"
@@ -563,6 +570,23 @@ public class ServiceConfiguration implements PulsarConfiguration {
     )
     private int metadataStoreBatchingMaxSizeKb = 128;
 
+    @FieldContext(
+            category = CATEGORY_SERVER,
+            doc = "Maximum number of metadata operation batches in flight at the same time, 0 for no limit. When set, "
+                    + "the operations are flushed as soon as a new batch can be issued and are grouped into bigger "
+                    + "batches while the limit is reached"
+    )
+    private int metadataStoreBatchingMaxInFlightBatches = 0;
+
+    @FieldContext(
+            category = CATEGORY_SERVER,
+            doc = "Paths of the metadata subtrees, e.g. /admin/policies or /admin/partitioned-topics, whose cached "
+                    + "entries, including the entries of the missing paths, are only invalidated by the notifications "
+                    + "of the metadata store instead of being refreshed periodically. The lookups of the paths which "
+                    + "are already cached don't reach the metadata store."
+    )
+    private List<String> metadataStoreNearCachePaths = new ArrayList<>();
+
     @FieldContext(
             category = CATEGORY_SERVER,
             doc = "Configuration file path for local metadata store."
@@ -606,16 +630,18 @@ public class ServiceConfiguration implements PulsarConfiguration {
     @FieldContext(
         dynamic = true,
         category = CATEGORY_POLICIES,
-        doc = "Max capacity of the topic name cache. -1 means unlimited cache; 0 means broker will clear all cache"
-                + " per maxSecondsToClearTopicNameCache, it does not mean broker will not cache TopicName."
+        doc = "Max capacity of the topic name cache, the least recently used topic names are evicted when it's"
+                + " reached. -1 means unlimited cache."
     )
     private int topicNameCacheMaxCapacity = 100_000;
 
     @FieldContext(
         category = CATEGORY_POLICIES,
-        doc = "A Specifies the minimum number of seconds that the topic name stays in memory, to avoid clear cache"
-                + " frequently when there are too many topics are in use."
+        deprecated = true,
+        doc = "Deprecated, the topic name cache evicts the least recently used topic names when"
+                + " topicNameCacheMaxCapacity is reached instead of being cleared periodically."
     )
+    @Deprecated
     private int maxSecondsToClearTopicNameCache = 3600 * 2;
 
     @FieldContext(
@@ -1289,6 +1315,16 @@ public class ServiceConfiguration implements PulsarConfiguration {
     )
     private int dispatcherMaxRoundRobinBatchSize = 20;
 
+    @FieldContext(
+        dynamic = true,
+        category = CATEGORY_SERVER,
+        doc = "Dispatch the entries of Shared subscriptions through a fast path when there are no entry filters,"
+            + " delayed delivery, transactions or broker interceptors. The fast path doesn't copy the metadata of"
+            + " the entries and writes all the messages sent to a consumer in a single composite buffer. Entries"
+            + " containing chunks or markers always go through the regular path."
+    )
+    private boolean dispatcherFastPathEnabled = false;
+
     @FieldContext(
          dynamic = true,
          category = CATEGORY_SERVER,
@@ -2104,6 +2140,20 @@ public class ServiceConfiguration implements PulsarConfiguration {
             + "inserting in cache")
     private boolean managedLedgerCacheCopyEntries = false;
 
+    @FieldContext(category = CATEGORY_STORAGE_ML, doc = "Whether to store the cached entries in large pre-allocated"
+            + " off-heap segments that are recycled as a whole, instead of keeping a map of entries for each topic."
+            + " Entries read from storage are only cached when they are read more than once.")
+    private boolean managedLedgerCacheSegmentedEnabled = false;
+
+    @FieldContext(category = CATEGORY_STORAGE_ML, doc = "Size of each of the off-heap segments used when"
+            + " managedLedgerCacheSegmentedEnabled is set")
+    private int managedLedgerCacheSegmentSizeMB = 8;
+
+    @FieldContext(category = CATEGORY_STORAGE_ML, doc = "Minimum number of recent reads of an entry before it gets"
+            + " cached when read from storage, when managedLedgerCacheSegmentedEnabled is set. Use 1 to cache all the"
+            + " entries read from storage")
+    private int managedLedgerCacheSegmentedAdmissionMinFrequency = 2;
+
     @FieldContext(category = CATEGORY_STORAGE_ML, doc = "Maximum buffer size for bytes read from storage."
             + " This is the memory retained by data read from storage (or cache) until it has been delivered to the"
             + " Consumer Netty channel. Use O to disable")
@@ -2318,6 +2368,28 @@ public class ServiceConfiguration implements PulsarConfiguration {
                     + "implementation for the acknowledged messages tracking. Unacknowledged ranges are the message "
                     + "ranges excluding the acknowledged messages.")
     private boolean managedLedgerUnackedRangesOpenCacheSetEnabled = true;
+    @FieldContext(
+            category = CATEGORY_STORAGE_ML,
+            doc = "When set to true, the acknowledged messages that come after the \"mark delete position\" are"
+                    + " tracked as sorted runs of entry ids instead of a BitSet for each ledger.\n\nThe memory used"
+                    + " only depends on the number of acknowledgment holes, which is more compact for subscriptions"
+                    + " with a large number of holes spread over long ledgers.\n\n"
+                    + "The number of holes tracked in memory is limited to managedLedgerMaxUnackedRangesToPersist."
+                    + " The ranges above the limit are dropped and their messages are considered unacknowledged"
+                    + " again, as after a broker restart.\n\n"
+                    + "NOTE: This setting requires managedLedgerUnackedRangesOpenCacheSetEnabled=true to be effective.")
+    private boolean managedLedgerUnackedRangesRunLengthSetEnabled = false;
+    @FieldContext(
+            category = CATEGORY_STORAGE_ML,
+            doc = "Max number of entries written to the cursor ledger with only the individually acknowledged"
+                    + " ranges of the ledgers that changed since the previous entry, between 2 entries with all"
+                    + " of them.\n\nThis reduces the size of the cursor ledger writes for subscriptions with a"
+                    + " large number of acknowledgment holes, at the cost of replaying these entries when the cursor"
+                    + " is recovered. Brokers that don't support this setting only recover the ranges of the last"
+                    + " entry, so it should be disabled before a downgrade.\n\n"
+                    + "NOTE: This setting requires managedLedgerUnackedRangesOpenCacheSetEnabled=true to be effective."
+                    + " (Default = 0 to write all the ranges in every entry)")
+    private int managedLedgerCursorLedgerMaxDeltasBetweenSnapshots = 0;
     @FieldContext(
         dynamic = true,
         category = CATEGORY_STORAGE_ML,
@@ -2431,6 +2503,37 @@ public class ServiceConfiguration implements PulsarConfiguration {
     )
     private int managedLedgerMaxBacklogBetweenCursorsForCaching = 1000;
 
+    @FieldContext(
+            dynamic = true,
+            category = CATEGORY_STORAGE_ML,
+            doc = "Minimum number of cursors reading close to each other after which a read from BookKeeper is"
+                    + " extended to also fetch the entries that the other cursors are about to read, sharing them"
+                    + " through the entry cache. (Default = 0 to disable coalesced reads)"
+    )
+    private int managedLedgerMinimumCursorsForCoalescedReads = 0;
+    @FieldContext(
+            dynamic = true,
+            category = CATEGORY_STORAGE_ML,
+            doc = "Maximum distance in entries between the read positions of the cursors coalesced in a single read"
+    )
+    private int managedLedgerMaxDistanceBetweenCursorsForCoalescedReads = 1000;
+    @FieldContext(
+            dynamic = true,
+            category = CATEGORY_STORAGE_ML,
+            doc = "Maximum number of entries fetched from BookKeeper by a single coalesced read"
+    )
+    private int managedLedgerMaxEntriesPerCoalescedRead = 500;
+    @FieldContext(
+            dynamic = true,
+            category = CATEGORY_STORAGE_ML,
+            doc = "Maximum number of batches that a cursor sequentially catching up with a backlog keeps reading"
+                    + " ahead, so that the dispatcher doesn't wait for the bookies at every read. The number of"
+                    + " batches in flight adapts to the consumption rate and to the managed ledger max reads in"
+                    + " flight headroom. It can be overridden at the namespace level."
+                    + " (Default = 0 to disable the read-ahead)"
+    )
+    private int managedLedgerCursorReadAheadMaxBatches = 0;
+
     /*** --- Load balancer. --- ****/
      @FieldContext(
             category = CATEGORY_LOAD_BALANCER,
@@ -3172,6 +3275,41 @@ public class ServiceConfiguration implements PulsarConfiguration {
     )
     private boolean topicCompactionRetainNullKey = false;
 
+    @FieldContext(
+            category = CATEGORY_SERVER,
+            doc = "The memory limit of the map of the latest message of each key, built by the phase one of the "
+                    + "topic compaction. With a positive limit, the map is kept off-heap, with 16 bytes key hashes, "
+                    + "and spilled to sorted files of topicCompactionKeyMapSpillDirectory beyond the limit, for "
+                    + "the topics having too many keys to compact on heap. 0 keeps the whole map on heap."
+    )
+    private long topicCompactionKeyMapMemoryLimitInMB = 0;
+
+    @FieldContext(
+            category = CATEGORY_SERVER,
+            doc = "The directory of the files spilled by the topic compaction, the temporary directory if empty."
+    )
+    private String topicCompactionKeyMapSpillDirectory = "";
+
+    @FieldContext(
+            category = CATEGORY_SERVER,
+            doc = "The interval, in entries of the compacted ledger, of the sparse position index written by the "
+                    + "topic compaction next to the compacted ledger. The readers look up their start point in the "
+                    + "index, and then read at most this number of entries of the compacted ledger, instead of "
+                    + "binary searching the whole compacted ledger. 0 disables the index."
+    )
+    private int topicCompactionLedgerIndexInterval = 64;
+
+    @FieldContext(
+            category = CATEGORY_SERVER,
+            doc = "The maximum number of delta compacted ledgers written by incremental topic compactions on top of "
+                    + "a full compacted ledger. An incremental compaction only reads the messages published since "
+                    + "the last compaction, and writes the latest message of their keys to a delta compacted "
+                    + "ledger, which the readers merge with the previous compacted ledgers. Once the limit is "
+                    + "reached, the next compaction is a full one, which merges all of them. 0 disables the "
+                    + "incremental compaction."
+    )
+    private int topicCompactionMaxDeltaSegments = 0;
+
     @FieldContext(
         category = CATEGORY_SERVER,
         doc = "Interval between checks to see if cluster is migrated and marks topic migrated "
@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.resources;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import org.apache.pulsar.common.compression.CompressionDictionary;
+import org.apache.pulsar.common.naming.TopicName;
+import org.apache.pulsar.common.util.FutureUtil;
+import org.apache.pulsar.metadata.api.MetadataStore;
+import org.apache.pulsar.metadata.api.MetadataStoreException;
+
+/**
+ * The compression dictionaries of the topics, stored under the partitioned topic name with one node per version.
+ *
+ * <p/>A version with an empty dictionary marks the removal of the dictionary: the messages are not compressed with a
+ * dictionary anymore, until a new version is trained. The previous versions are kept, so that the messages
+ * compressed with them can still be decompressed, and are deleted with the topic.
+ */
+public class CompressionDictionaryResources extends BaseResources<CompressionDictionary> {
+
+    private static final String COMPRESSION_DICTIONARIES_PATH = "/compression-dictionaries";
+    private static final int MAX_CREATE_ATTEMPTS = 10;
+
+    public CompressionDictionaryResources(MetadataStore localStore, int operationTimeoutSec) {
+        super(localStore, CompressionDictionary.class, operationTimeoutSec);
+    }
+
+    public CompletableFuture<Optional<CompressionDictionary>> getCompressionDictionaryAsync(TopicName tn,
+                                                                                            long version) {
+        return getAsync(joinPath(topicPath(tn), Long.toString(version)));
+    }
+
+    /**
+     * @return the latest dictionary of the topic, or empty if the topic has no dictionary or it was removed
+     */
+    public CompletableFuture<Optional<CompressionDictionary>> getLatestCompressionDictionaryAsync(TopicName tn) {
+        return getLatestVersionAsync(tn).thenCompose(version -> version > 0
+                ? getCompressionDictionaryAsync(tn, version)
+                : CompletableFuture.completedFuture(Optional.<CompressionDictionary>empty()))
+                .thenApply(dictionary -> dictionary.filter(d -> d.getData() != null && d.getData().length > 0));
+    }
+
+    /**
+     * @return whether the messages of the topic are compressed with a dictionary
+     */
+    public CompletableFuture<Boolean> hasCompressionDictionariesAsync(TopicName tn) {
+        return getLatestCompressionDictionaryAsync(tn).thenApply(Optional::isPresent);
+    }
+
+    /**
+     * Stop compressing the messages of the topic with a dictionary, by storing an empty dictionary as the next
+     * version.
+     */
+    public CompletableFuture<Void> removeCompressionDictionaryAsync(TopicName tn) {
+        return createCompressionDictionaryAsync(tn, new byte[0]).thenApply(__ -> null);
+    }
+
+    /**
+     * Store a dictionary as the next version of the dictionary of the topic.
+     *
+     * <p/>When another broker stores a dictionary of the topic at the same time, the following versions are tried.
+     *
+     * @return the stored dictionary, with its version
+     */
+    public CompletableFuture<CompressionDictionary> createCompressionDictionaryAsync(TopicName tn, byte[] data) {
+        return getLatestVersionAsync(tn)
+                .thenCompose(version -> createCompressionDictionaryAsync(tn, data, version + 1, MAX_CREATE_ATTEMPTS));
+    }
+
+    private CompletableFuture<CompressionDictionary> createCompressionDictionaryAsync(TopicName tn, byte[] data,
+                                                                                      long version, int attempts) {
+        CompressionDictionary dictionary = new CompressionDictionary(version, data);
+        return createAsync(joinPath(topicPath(tn), Long.toString(version)), dictionary)
+                .thenApply(__ -> dictionary)
+                .exceptionallyCompose(ex -> {
+                    Throwable cause = FutureUtil.unwrapCompletionException(ex);
+                    if (cause instanceof MetadataStoreException.AlreadyExistsException && attempts > 1) {
+                        return createCompressionDictionaryAsync(tn, data, version + 1, attempts - 1);
+                    }
+                    return CompletableFuture.failedFuture(cause);
+                });
+    }
+
+    public CompletableFuture<Void> deleteCompressionDictionariesAsync(TopicName tn) {
+        return getStore().deleteRecursive(topicPath(tn));
+    }
+
+    private CompletableFuture<Long> getLatestVersionAsync(TopicName tn) {
+        return getChildrenAsync(topicPath(tn)).thenApply(CompressionDictionaryResources::maxVersion);
+    }
+
+    private static long maxVersion(List<String> versions) {
+        long max = 0;
+        for (String version : versions) {
+            max = Math.max(max, Long.parseLong(version));
+        }
+        return max;
+    }
+
+    private static String topicPath(TopicName tn) {
+        return joinPath(COMPRESSION_DICTIONARIES_PATH,
+                TopicName.get(tn.getPartitionedTopicName()).getPersistenceNamingEncoding());
+    }
+}
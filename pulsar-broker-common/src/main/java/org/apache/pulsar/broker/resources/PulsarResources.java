@@ -52,6 +52,8 @@ public class PulsarResources {
     @Getter
     private final LoadBalanceResources loadBalanceResources;
     @Getter
+    private final CompressionDictionaryResources compressionDictionaryResources;
+    @Getter
     private final Optional<MetadataStore> localMetadataStore;
     @Getter
     private final Optional<MetadataStore> configurationMetadataStore;
@@ -87,6 +89,8 @@ public class PulsarResources {
             bookieResources = new BookieResources(localMetadataStore, operationTimeoutSec);
             topicResources = new TopicResources(localMetadataStore);
             loadBalanceResources = new LoadBalanceResources(localMetadataStore, operationTimeoutSec);
+            compressionDictionaryResources = new CompressionDictionaryResources(localMetadataStore,
+                    operationTimeoutSec);
         } else {
             dynamicConfigResources = null;
             localPolicies = null;
@@ -94,6 +98,7 @@ public class PulsarResources {
             bookieResources = null;
             topicResources = null;
             loadBalanceResources = null;
+            compressionDictionaryResources = null;
         }
 
         this.localMetadataStore = Optional.ofNullable(localMetadataStore);
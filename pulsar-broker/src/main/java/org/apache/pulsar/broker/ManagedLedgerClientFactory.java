@@ -78,6 +78,11 @@ public class ManagedLedgerClientFactory implements ManagedLedgerStorage {
         managedLedgerFactoryConfig.setCacheEvictionTimeThresholdMillis(
                 conf.getManagedLedgerCacheEvictionTimeThresholdMillis());
         managedLedgerFactoryConfig.setCopyEntriesInCache(conf.isManagedLedgerCacheCopyEntries());
+        managedLedgerFactoryConfig.setSegmentedEntryCacheEnabled(conf.isManagedLedgerCacheSegmentedEnabled());
+        managedLedgerFactoryConfig.setSegmentedEntryCacheSegmentSize(
+                conf.getManagedLedgerCacheSegmentSizeMB() * 1024 * 1024);
+        managedLedgerFactoryConfig.setSegmentedEntryCacheAdmissionMinFrequency(
+                conf.getManagedLedgerCacheSegmentedAdmissionMinFrequency());
         long managedLedgerMaxReadsInFlightSizeBytes = conf.getManagedLedgerMaxReadsInFlightSizeInMB() * 1024L * 1024L;
         if (managedLedgerMaxReadsInFlightSizeBytes > 0 && conf.getDispatcherMaxReadSizeBytes() > 0
                 && managedLedgerMaxReadsInFlightSizeBytes < conf.getDispatcherMaxReadSizeBytes()) {
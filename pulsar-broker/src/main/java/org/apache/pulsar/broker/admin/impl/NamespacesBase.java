@@ -2010,6 +2010,14 @@ public abstract class NamespacesBase extends AdminResource {
         internalSetPolicies("deduplicationSnapshotIntervalSeconds", interval);
     }
 
+    protected void internalSetCursorReadAheadMaxBatches(Integer maxBatches) {
+        validateNamespacePolicyOperation(namespaceName, PolicyName.PERSISTENCE, PolicyOperation.WRITE);
+        if (maxBatches != null && maxBatches < 0) {
+            throw new RestException(Status.PRECONDITION_FAILED, "maxBatches must be greater than or equal to 0");
+        }
+        internalSetPolicies("cursorReadAheadMaxBatches", maxBatches);
+    }
+
     protected void internalSetMaxProducersPerTopic(Integer maxProducersPerTopic) {
         validateNamespacePolicyOperation(namespaceName, PolicyName.MAX_PRODUCERS, PolicyOperation.WRITE);
         validatePoliciesReadOnlyAccess();
@@ -75,6 +75,7 @@ import org.apache.pulsar.broker.PulsarService;
 import org.apache.pulsar.broker.admin.AdminResource;
 import org.apache.pulsar.broker.authentication.AuthenticationDataSource;
 import org.apache.pulsar.broker.authorization.AuthorizationService;
+import org.apache.pulsar.broker.resources.CompressionDictionaryResources;
 import org.apache.pulsar.broker.service.AnalyzeBacklogResult;
 import org.apache.pulsar.broker.service.BrokerServiceException.AlreadyRunningException;
 import org.apache.pulsar.broker.service.BrokerServiceException.SubscriptionBusyException;
@@ -84,6 +85,7 @@ import org.apache.pulsar.broker.service.MessageExpirer;
 import org.apache.pulsar.broker.service.Subscription;
 import org.apache.pulsar.broker.service.Topic;
 import org.apache.pulsar.broker.service.TopicPoliciesService;
+import org.apache.pulsar.broker.service.persistent.CompressionDictionarySampler;
 import org.apache.pulsar.broker.service.persistent.PersistentReplicator;
 import org.apache.pulsar.broker.service.persistent.PersistentSubscription;
 import org.apache.pulsar.broker.service.persistent.PersistentTopic;
@@ -109,6 +111,8 @@ import org.apache.pulsar.common.api.proto.KeyValue;
 import org.apache.pulsar.common.api.proto.MessageMetadata;
 import org.apache.pulsar.common.compression.CompressionCodec;
 import org.apache.pulsar.common.compression.CompressionCodecProvider;
+import org.apache.pulsar.common.compression.CompressionDictionary;
+import org.apache.pulsar.common.compression.CompressionDictionaryTrainer;
 import org.apache.pulsar.common.naming.NamespaceBundle;
 import org.apache.pulsar.common.naming.PartitionedManagedLedgerInfo;
 import org.apache.pulsar.common.naming.SystemTopicNames;
@@ -788,6 +792,8 @@ public class PersistentTopicsBase extends AdminResource {
                 // Only tries to delete the znode for partitioned topic when all its partitions are successfully deleted
                 ).thenCompose(ignore ->
                         pulsar().getBrokerService().deleteSchema(topicName).exceptionally(ex -> null)
+                ).thenCompose(ignore -> getPulsarResources().getCompressionDictionaryResources()
+                        .deleteCompressionDictionariesAsync(topicName).exceptionally(ex -> null)
                 ).thenCompose(ignore ->
                         pulsar().getTopicPoliciesService().deleteTopicPoliciesAsync(topicName).exceptionally(ex -> null)
                 ).thenCompose(__ -> getPulsarResources().getNamespaceResources().getPartitionedTopicResources()
@@ -3152,6 +3158,10 @@ public class PersistentTopicsBase extends AdminResource {
         if (metadata.hasNullPartitionKey()) {
             responseBuilder.header("X-Pulsar-null-partition-key", metadata.isNullPartitionKey());
         }
+        if (metadata.hasCompressionDictionaryVersion()) {
+            responseBuilder.header("X-Pulsar-compression-dictionary-version",
+                    metadata.getCompressionDictionaryVersion());
+        }
         if (metadata.hasTxnidMostBits() && metadata.hasTxnidLeastBits()) {
             TxnID txnID = new TxnID(metadata.getTxnidMostBits(), metadata.getTxnidLeastBits());
             boolean isTxnAborted = persistentTopic.isTxnAborted(txnID, entry.getPosition());
@@ -3161,9 +3171,9 @@ public class PersistentTopicsBase extends AdminResource {
                 .compareTo(persistentTopic.getMaxReadPosition()) > 0;
         responseBuilder.header("X-Pulsar-txn-uncommitted", isTxnUncommitted);
 
-        // Decode if needed
-        CompressionCodec codec = CompressionCodecProvider
-                .getCompressionCodec(isEncrypted ? NONE : metadata.getCompression());
+        // Decode if needed, the payloads compressed with a dictionary are returned as they are, like the encrypted ones
+        CompressionCodec codec = CompressionCodecProvider.getCompressionCodec(
+                isEncrypted || metadata.hasCompressionDictionaryVersion() ? NONE : metadata.getCompression());
         ByteBuf uncompressedPayload = codec.decode(metadataAndPayload, metadata.getUncompressedSize());
 
         // Copy into a heap buffer for output stream compatibility
@@ -4297,6 +4307,86 @@ public class PersistentTopicsBase extends AdminResource {
                 .thenApply(topic -> ((PersistentTopic) topic).compactionStatus());
     }
 
+    protected CompletableFuture<Long> internalTrainCompressionDictionaryAsync(int numSamples, int maxSize,
+                                                                             boolean authoritative) {
+        if (numSamples <= 0) {
+            return FutureUtil.failedFuture(new RestException(Status.PRECONDITION_FAILED,
+                    "The number of samples must be positive"));
+        }
+        if (maxSize <= 0 || maxSize > CompressionDictionaryTrainer.MAX_DICTIONARY_SIZE) {
+            return FutureUtil.failedFuture(new RestException(Status.PRECONDITION_FAILED,
+                    "The dictionary size must be between 1 and " + CompressionDictionaryTrainer.MAX_DICTIONARY_SIZE));
+        }
+        return validateTopicOperationAsync(topicName, TopicOperation.COMPACT)
+                .thenCompose(__ -> topicName.isPartitioned()
+                        ? CompletableFuture.<PartitionedTopicMetadata>completedFuture(null)
+                        : getPartitionedTopicMetadataAsync(topicName, authoritative, false))
+                .thenCompose(partitionMetadata -> {
+                    if (partitionMetadata != null && partitionMetadata.partitions > 0) {
+                        // The dictionary is shared by all the partitions, so it is trained from the first one
+                        try {
+                            return pulsar().getAdminClient().topics().trainCompressionDictionaryAsync(
+                                    topicName.getPartition(0).toString(), numSamples, maxSize);
+                        } catch (PulsarServerException e) {
+                            return FutureUtil.failedFuture(e);
+                        }
+                    }
+                    return internalTrainCompressionDictionaryNonPartitionedTopicAsync(numSamples, maxSize,
+                            authoritative);
+                });
+    }
+
+    private CompletableFuture<Long> internalTrainCompressionDictionaryNonPartitionedTopicAsync(int numSamples,
+                                                                                             int maxSize,
+                                                                                             boolean authoritative) {
+        CompressionDictionaryResources resources = getPulsarResources().getCompressionDictionaryResources();
+        return validateTopicOwnershipAsync(topicName, authoritative)
+                .thenCompose(__ -> getTopicReferenceAsync(topicName))
+                .thenCompose(topic -> new CompressionDictionarySampler(
+                        ((PersistentTopic) topic).getManagedLedger(), pulsar().getExecutor(), numSamples,
+                        version -> resources.getCompressionDictionaryAsync(topicName, version)
+                                .thenApply(dictionary -> dictionary.map(CompressionDictionary::getData)
+                                        .orElseThrow(() -> new RestException(Status.PRECONDITION_FAILED,
+                                                "Compression dictionary " + version + " not found"))))
+                        .readSamples())
+                .thenCompose(samples -> {
+                    byte[] dictionary = CompressionDictionaryTrainer.train(samples, maxSize);
+                    if (dictionary.length == 0) {
+                        return FutureUtil.failedFuture(new RestException(Status.PRECONDITION_FAILED,
+                                "Not enough content in common in the " + samples.size() + " sample messages"));
+                    }
+                    return resources.createCompressionDictionaryAsync(topicName, dictionary);
+                })
+                .thenApply(dictionary -> {
+                    log.info("[{}] Trained the compression dictionary {} of {} bytes for topic {}", clientAppId(),
+                            dictionary.getVersion(), dictionary.getData().length, topicName);
+                    return dictionary.getVersion();
+                });
+    }
+
+    protected CompletableFuture<Void> internalRemoveCompressionDictionaryAsync() {
+        CompressionDictionaryResources resources = getPulsarResources().getCompressionDictionaryResources();
+        return validateTopicOperationAsync(topicName, TopicOperation.COMPACT)
+                .thenCompose(__ -> resources.hasCompressionDictionariesAsync(topicName))
+                .thenCompose(hasDictionary -> {
+                    if (!hasDictionary) {
+                        return FutureUtil.failedFuture(new RestException(Status.NOT_FOUND,
+                                "Topic " + topicName + " has no compression dictionary"));
+                    }
+                    return resources.removeCompressionDictionaryAsync(topicName);
+                })
+                .thenRun(() -> log.info("[{}] Removed the compression dictionary of topic {}", clientAppId(),
+                        topicName));
+    }
+
+    protected CompletableFuture<CompressionDictionary> internalGetCompressionDictionaryAsync() {
+        return validateTopicOperationAsync(topicName, TopicOperation.LOOKUP)
+                .thenCompose(__ -> getPulsarResources().getCompressionDictionaryResources()
+                        .getLatestCompressionDictionaryAsync(topicName))
+                .thenApply(dictionary -> dictionary.orElseThrow(() -> new RestException(Status.NOT_FOUND,
+                        "Topic " + topicName + " has no compression dictionary")));
+    }
+
     protected void internalTriggerOffload(AsyncResponse asyncResponse,
                                           boolean authoritative, MessageIdImpl messageId) {
         validateTopicOperationAsync(topicName, TopicOperation.OFFLOAD)
@@ -1847,6 +1847,56 @@ public class Namespaces extends NamespacesBase {
         internalSetDeduplicationSnapshotInterval(interval);
     }
 
+    @GET
+    @Path("/{tenant}/{namespace}/cursorReadAheadMaxBatches")
+    @ApiOperation(value = "Get cursorReadAheadMaxBatches config on a namespace.", response = Integer.class)
+    @ApiResponses(value = { @ApiResponse(code = 403, message = "Don't have admin permission"),
+            @ApiResponse(code = 404, message = "Namespace does not exist") })
+    public void getCursorReadAheadMaxBatches(
+            @Suspended final AsyncResponse asyncResponse,
+            @PathParam("tenant") String tenant,
+            @PathParam("namespace") String namespace) {
+        validateNamespaceName(tenant, namespace);
+        validateNamespacePolicyOperationAsync(namespaceName, PolicyName.PERSISTENCE, PolicyOperation.READ)
+                .thenCompose(__ -> getNamespacePoliciesAsync(namespaceName))
+                .thenAccept(policies -> asyncResponse.resume(policies.cursorReadAheadMaxBatches))
+                .exceptionally(ex -> {
+                    log.error("[{}] Failed to get cursorReadAheadMaxBatches config on a namespace {}",
+                            clientAppId(), namespaceName, ex);
+                    resumeAsyncResponseExceptionally(asyncResponse, ex);
+                    return null;
+                });
+    }
+
+    @POST
+    @Path("/{tenant}/{namespace}/cursorReadAheadMaxBatches")
+    @ApiOperation(value = "Set cursorReadAheadMaxBatches config on a namespace.")
+    @ApiResponses(value = {
+            @ApiResponse(code = 204, message = "Operation successful"),
+            @ApiResponse(code = 403, message = "Don't have admin permission"),
+            @ApiResponse(code = 404, message = "Namespace does not exist"),
+            @ApiResponse(code = 412, message = "maxBatches value is not valid")})
+    public void setCursorReadAheadMaxBatches(@PathParam("tenant") String tenant
+            , @PathParam("namespace") String namespace
+            , @ApiParam(value = "Max number of batches read ahead by the cursors catching up with a backlog",
+                    required = true) Integer maxBatches) {
+        validateNamespaceName(tenant, namespace);
+        internalSetCursorReadAheadMaxBatches(maxBatches);
+    }
+
+    @DELETE
+    @Path("/{tenant}/{namespace}/cursorReadAheadMaxBatches")
+    @ApiOperation(value = "Remove cursorReadAheadMaxBatches config on a namespace.")
+    @ApiResponses(value = {
+            @ApiResponse(code = 204, message = "Operation successful"),
+            @ApiResponse(code = 403, message = "Don't have admin permission"),
+            @ApiResponse(code = 404, message = "Namespace does not exist")})
+    public void removeCursorReadAheadMaxBatches(@PathParam("tenant") String tenant,
+                                                @PathParam("namespace") String namespace) {
+        validateNamespaceName(tenant, namespace);
+        internalSetCursorReadAheadMaxBatches(null);
+    }
+
     @GET
     @Path("/{tenant}/{namespace}/maxConsumersPerTopic")
     @ApiOperation(value = "Get maxConsumersPerTopic config on a namespace.", response = Integer.class)
@@ -81,6 +81,16 @@ public interface DelayedDeliveryTracker extends AutoCloseable {
      */
     CompletableFuture<Void> clear();
 
+    /**
+     * Whether the tracker must be cleared when the cursor is rewound, because it only indexes the messages read by
+     * the dispatcher and would track the re-read messages a second time.
+     *
+     * <p/>A tracker which persists its index, like the bucket based one, is kept instead.
+     */
+    default boolean isClearedOnRewind() {
+        return false;
+    }
+
     /**
      * Close the subscription tracker and release all resources.
      */
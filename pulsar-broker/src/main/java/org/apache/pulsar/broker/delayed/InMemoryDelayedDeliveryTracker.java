@@ -94,7 +94,7 @@ public class InMemoryDelayedDeliveryTracker extends AbstractDelayedDeliveryTrack
      * @param tickTimeMillis
      * @return
      */
-    private static int calculateTimestampPrecisionBitCnt(long tickTimeMillis) {
+    static int calculateTimestampPrecisionBitCnt(long tickTimeMillis) {
         int bitCnt = 0;
         while (tickTimeMillis > 0) {
             tickTimeMillis >>= 1;
@@ -230,6 +230,11 @@ public class InMemoryDelayedDeliveryTracker extends AbstractDelayedDeliveryTrack
         return positions;
     }
 
+    @Override
+    public boolean isClearedOnRewind() {
+        return true;
+    }
+
     @Override
     public CompletableFuture<Void> clear() {
         this.delayedMessageMap.clear();
@@ -0,0 +1,499 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.delayed;
+
+import com.google.common.annotations.VisibleForTesting;
+import io.netty.buffer.ByteBuf;
+import io.netty.util.Timer;
+import java.time.Clock;
+import java.util.ArrayDeque;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.bookkeeper.mledger.Position;
+import org.apache.bookkeeper.mledger.PositionFactory;
+import org.apache.pulsar.broker.service.persistent.AbstractPersistentDispatcherMultipleConsumers;
+import org.apache.pulsar.common.allocator.PulsarByteBufAllocator;
+
+/**
+ * A delayed delivery tracker which keeps the delayed message index in direct memory, in a hierarchical timing wheel.
+ *
+ * <p/>The delivery times are trimmed to buckets in the same way as in {@link InMemoryDelayedDeliveryTracker}. The
+ * wheel has {@link #LEVELS} levels of {@link #WHEEL_SIZE} slots, where the slots of the level {@code n} cover
+ * {@code WHEEL_SIZE^n} buckets, so that a bucket is placed in the level of the highest byte in which it differs
+ * from the current bucket. Adding a message is an append to the run list of the slot, and the slots of the higher
+ * levels are cascaded to the lower levels as the time advances, so that every message is moved at most
+ * {@link #LEVELS} times. The slots holding the buckets which reached the cutoff time are moved as a whole to the
+ * queue of the due slots, from which {@link #getScheduledMessages(int)} drains the positions.
+ *
+ * <p/>Each slot stores runs of consecutive entries of a ledger, as {@code (bucket, ledgerId, entryId, count)}
+ * records, in pooled direct buffers. Messages published in order with a fixed delay are therefore stored in a
+ * single record per bucket and ledger.
+ */
+@Slf4j
+public class TimingWheelDelayedDeliveryTracker extends AbstractDelayedDeliveryTracker {
+
+    static final int WHEEL_BITS = 8;
+    static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    // The levels needed to place any non-negative bucket
+    static final int LEVELS = Long.SIZE / WHEEL_BITS;
+
+    private static final long UNKNOWN_BUCKET = -1L;
+
+    // Slots of the wheel, null when empty
+    private final TimeSlot[][] wheel = new TimeSlot[LEVELS][WHEEL_SIZE];
+    private final int[] occupiedSlots = new int[LEVELS];
+
+    // Slots holding the buckets which reached the cutoff time, oldest first
+    private final ArrayDeque<TimeSlot> dueSlots = new ArrayDeque<>();
+
+    // First bucket which is not due yet, all the buckets in the wheel are equal or greater
+    private long currentBucket = 0;
+
+    // Cached lowest bucket in the wheel, it is recomputed after the wheel is advanced
+    private long nextDeliveryBucket = Long.MAX_VALUE;
+
+    // See InMemoryDelayedDeliveryTracker#fixedDelayDetectionLookahead
+    @Getter
+    @VisibleForTesting
+    private final long fixedDelayDetectionLookahead;
+
+    private long highestDeliveryTimeTracked = 0;
+
+    private boolean messagesHaveFixedDelay = true;
+
+    // The bit count to trim to reduce memory occupation.
+    private final int timestampPrecisionBitCnt;
+
+    // Count of delayed messages in the tracker.
+    private final AtomicLong delayedMessagesCount = new AtomicLong(0);
+
+    // Capacity of the direct buffers of the slots.
+    private final AtomicLong bufferMemoryUsage = new AtomicLong(0);
+
+    TimingWheelDelayedDeliveryTracker(AbstractPersistentDispatcherMultipleConsumers dispatcher, Timer timer,
+                                      long tickTimeMillis,
+                                      boolean isDelayedDeliveryDeliverAtTimeStrict,
+                                      long fixedDelayDetectionLookahead) {
+        this(dispatcher, timer, tickTimeMillis, Clock.systemUTC(), isDelayedDeliveryDeliverAtTimeStrict,
+                fixedDelayDetectionLookahead);
+    }
+
+    public TimingWheelDelayedDeliveryTracker(AbstractPersistentDispatcherMultipleConsumers dispatcher, Timer timer,
+                                             long tickTimeMillis, Clock clock,
+                                             boolean isDelayedDeliveryDeliverAtTimeStrict,
+                                             long fixedDelayDetectionLookahead) {
+        super(dispatcher, timer, tickTimeMillis, clock, isDelayedDeliveryDeliverAtTimeStrict);
+        this.fixedDelayDetectionLookahead = fixedDelayDetectionLookahead;
+        this.timestampPrecisionBitCnt =
+                InMemoryDelayedDeliveryTracker.calculateTimestampPrecisionBitCnt(tickTimeMillis);
+    }
+
+    @Override
+    public boolean addMessage(long ledgerId, long entryId, long deliverAt) {
+        long cutoffTime = getCutoffTime();
+        if (deliverAt < 0 || deliverAt <= cutoffTime) {
+            messagesHaveFixedDelay = false;
+            return false;
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug("[{}] Add message {}:{} -- Delivery in {} ms ", dispatcher.getName(), ledgerId, entryId,
+                    deliverAt - clock.millis());
+        }
+
+        advance(cutoffTime);
+        insert(deliverAt >> timestampPrecisionBitCnt, ledgerId, entryId, 1);
+        delayedMessagesCount.incrementAndGet();
+
+        updateTimer();
+
+        checkAndUpdateHighest(deliverAt);
+
+        return true;
+    }
+
+    /**
+     * Check that new delivery time comes after the current highest, or at
+     * least within a single tick time interval of 1 second.
+     */
+    private void checkAndUpdateHighest(long deliverAt) {
+        if (deliverAt < (highestDeliveryTimeTracked - tickTimeMillis)) {
+            messagesHaveFixedDelay = false;
+        }
+
+        highestDeliveryTimeTracked = Math.max(highestDeliveryTimeTracked, deliverAt);
+    }
+
+    /**
+     * Append a run of entries to the slot of its bucket, or to the due slots when the bucket already reached the
+     * cutoff time.
+     */
+    private void insert(long bucket, long ledgerId, long entryId, int count) {
+        TimeSlot slot;
+        if (bucket < currentBucket) {
+            slot = dueSlots.peekLast();
+            if (slot == null) {
+                slot = new TimeSlot();
+                dueSlots.addLast(slot);
+            }
+        } else {
+            int level = levelOf(bucket, currentBucket);
+            int index = (int) (bucket >>> (level * WHEEL_BITS)) & WHEEL_MASK;
+            slot = wheel[level][index];
+            if (slot == null) {
+                slot = new TimeSlot();
+                wheel[level][index] = slot;
+                occupiedSlots[level]++;
+            }
+            if (nextDeliveryBucket != UNKNOWN_BUCKET) {
+                nextDeliveryBucket = Math.min(nextDeliveryBucket, bucket);
+            }
+        }
+        bufferMemoryUsage.addAndGet(slot.add(bucket, ledgerId, entryId, count));
+    }
+
+    /**
+     * The level of a bucket is the index of the highest byte in which it differs from the current bucket.
+     */
+    private static int levelOf(long bucket, long currentBucket) {
+        long diff = bucket ^ currentBucket;
+        return diff == 0 ? 0 : (Long.SIZE - 1 - Long.numberOfLeadingZeros(diff)) / WHEEL_BITS;
+    }
+
+    /**
+     * Advance the wheel to the cutoff time, moving the slots of the buckets which reached it to the due slots and
+     * cascading the slots of the higher levels which became current.
+     */
+    private void advance(long cutoffTime) {
+        long newBucket = (cutoffTime >> timestampPrecisionBitCnt) + 1;
+        long oldBucket = currentBucket;
+        if (newBucket <= oldBucket) {
+            return;
+        }
+        currentBucket = newBucket;
+        nextDeliveryBucket = UNKNOWN_BUCKET;
+
+        // Lower levels first, so that the runs cascaded from a higher level are not moved again
+        for (int level = 0; level < LEVELS; level++) {
+            if (occupiedSlots[level] == 0) {
+                continue;
+            }
+            int shift = level * WHEEL_BITS;
+            boolean sameWindow = level == LEVELS - 1
+                    || (oldBucket >>> (shift + WHEEL_BITS)) == (newBucket >>> (shift + WHEEL_BITS));
+            if (!sameWindow) {
+                // All the buckets of this level are before the new current bucket
+                for (int index = 0; index < WHEEL_SIZE; index++) {
+                    moveToDue(level, index);
+                }
+                continue;
+            }
+            int oldIndex = (int) (oldBucket >>> shift) & WHEEL_MASK;
+            int newIndex = (int) (newBucket >>> shift) & WHEEL_MASK;
+            for (int index = oldIndex; index < newIndex; index++) {
+                moveToDue(level, index);
+            }
+            if (level > 0) {
+                cascade(level, newIndex);
+            }
+        }
+    }
+
+    private void moveToDue(int level, int index) {
+        TimeSlot slot = wheel[level][index];
+        if (slot != null) {
+            wheel[level][index] = null;
+            occupiedSlots[level]--;
+            dueSlots.addLast(slot);
+        }
+    }
+
+    private void cascade(int level, int index) {
+        TimeSlot slot = wheel[level][index];
+        if (slot == null) {
+            return;
+        }
+        wheel[level][index] = null;
+        occupiedSlots[level]--;
+        ByteBuf runs;
+        while ((runs = slot.peekSegment()) != null) {
+            while (runs.isReadable()) {
+                insert(runs.readLong(), runs.readLong(), runs.readLong(), runs.readInt());
+            }
+            bufferMemoryUsage.addAndGet(-slot.releaseSegment());
+        }
+    }
+
+    /**
+     * Return true if there's at least a message that is scheduled to be delivered already.
+     */
+    @Override
+    public boolean hasMessageAvailable() {
+        advance(getCutoffTime());
+        boolean hasMessageAvailable = !dueSlots.isEmpty();
+        if (!hasMessageAvailable) {
+            updateTimer();
+        }
+        return hasMessageAvailable;
+    }
+
+    /**
+     * Get a set of position of messages that have already reached.
+     */
+    @Override
+    public NavigableSet<Position> getScheduledMessages(int maxMessages) {
+        int n = maxMessages;
+        NavigableSet<Position> positions = new TreeSet<>();
+        advance(getCutoffTime());
+
+        while (n > 0 && !dueSlots.isEmpty()) {
+            TimeSlot slot = dueSlots.peekFirst();
+            int polled = slot.poll(positions, n);
+            n -= polled;
+            delayedMessagesCount.addAndGet(-polled);
+            bufferMemoryUsage.addAndGet(-slot.releaseReadSegments());
+            if (slot.isEmpty()) {
+                dueSlots.pollFirst();
+            }
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug("[{}] Get scheduled messages - found {}", dispatcher.getName(), positions.size());
+        }
+
+        if (delayedMessagesCount.get() == 0) {
+            // Reset to initial state
+            highestDeliveryTimeTracked = 0;
+            messagesHaveFixedDelay = true;
+        }
+
+        updateTimer();
+        return positions;
+    }
+
+    @Override
+    public boolean isClearedOnRewind() {
+        return true;
+    }
+
+    @Override
+    public CompletableFuture<Void> clear() {
+        releaseAll();
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private void releaseAll() {
+        for (int level = 0; level < LEVELS; level++) {
+            for (int index = 0; index < WHEEL_SIZE && occupiedSlots[level] > 0; index++) {
+                TimeSlot slot = wheel[level][index];
+                if (slot != null) {
+                    wheel[level][index] = null;
+                    occupiedSlots[level]--;
+                    slot.release();
+                }
+            }
+        }
+        TimeSlot slot;
+        while ((slot = dueSlots.pollFirst()) != null) {
+            slot.release();
+        }
+        nextDeliveryBucket = Long.MAX_VALUE;
+        delayedMessagesCount.set(0);
+        bufferMemoryUsage.set(0);
+    }
+
+    @Override
+    public long getNumberOfDelayedMessages() {
+        return delayedMessagesCount.get();
+    }
+
+    /**
+     * @return the capacity of the direct buffers of the timing wheel
+     */
+    @Override
+    public long getBufferMemoryUsage() {
+        return bufferMemoryUsage.get();
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        releaseAll();
+    }
+
+    @Override
+    public boolean shouldPauseAllDeliveries() {
+        // Pause deliveries if we know all delays are fixed within the lookahead window
+        return fixedDelayDetectionLookahead > 0
+                && messagesHaveFixedDelay
+                && getNumberOfDelayedMessages() >= fixedDelayDetectionLookahead
+                && !hasMessageAvailable();
+    }
+
+    @Override
+    protected long nextDeliveryTime() {
+        TimeSlot dueSlot = dueSlots.peekFirst();
+        if (dueSlot != null) {
+            return dueSlot.minBucket << timestampPrecisionBitCnt;
+        }
+        if (nextDeliveryBucket == UNKNOWN_BUCKET) {
+            nextDeliveryBucket = findNextDeliveryBucket();
+        }
+        return nextDeliveryBucket << timestampPrecisionBitCnt;
+    }
+
+    /**
+     * The buckets of a level are after the buckets of the lower levels, and they are ordered by the slot index
+     * within the level, so the lowest bucket is in the first occupied slot of the lowest occupied level.
+     */
+    private long findNextDeliveryBucket() {
+        for (int level = 0; level < LEVELS; level++) {
+            if (occupiedSlots[level] == 0) {
+                continue;
+            }
+            TimeSlot[] slots = wheel[level];
+            for (int index = (int) (currentBucket >>> (level * WHEEL_BITS)) & WHEEL_MASK; index < WHEEL_SIZE;
+                 index++) {
+                if (slots[index] != null) {
+                    return slots[index].minBucket;
+                }
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * A slot of the wheel, holding runs of consecutive entries as {@code (bucket, ledgerId, entryId, count)}
+     * records in a list of direct buffer segments.
+     */
+    private static final class TimeSlot {
+
+        private static final int RUN_SIZE = 3 * Long.BYTES + Integer.BYTES;
+        private static final int INITIAL_SEGMENT_SIZE = 16 * RUN_SIZE;
+        private static final int MAX_SEGMENT_SIZE = 64 * 1024 * RUN_SIZE;
+
+        private final ArrayDeque<ByteBuf> segments = new ArrayDeque<>();
+        private long minBucket = Long.MAX_VALUE;
+
+        /**
+         * @return the growth of the capacity of the segments
+         */
+        int add(long bucket, long ledgerId, long entryId, int count) {
+            minBucket = Math.min(minBucket, bucket);
+            ByteBuf last = segments.peekLast();
+            if (last != null && last.isReadable()) {
+                int index = last.writerIndex() - RUN_SIZE;
+                int lastCount = last.getInt(index + 3 * Long.BYTES);
+                if (last.getLong(index) == bucket
+                        && last.getLong(index + Long.BYTES) == ledgerId
+                        && last.getLong(index + 2 * Long.BYTES) + lastCount == entryId
+                        && lastCount <= Integer.MAX_VALUE - count) {
+                    last.setInt(index + 3 * Long.BYTES, lastCount + count);
+                    return 0;
+                }
+            }
+            int capacityBefore = 0;
+            if (last == null || last.maxWritableBytes() < RUN_SIZE) {
+                last = PulsarByteBufAllocator.DEFAULT.directBuffer(INITIAL_SEGMENT_SIZE, MAX_SEGMENT_SIZE);
+                segments.addLast(last);
+            } else {
+                capacityBefore = last.capacity();
+            }
+            last.writeLong(bucket);
+            last.writeLong(ledgerId);
+            last.writeLong(entryId);
+            last.writeInt(count);
+            return last.capacity() - capacityBefore;
+        }
+
+        /**
+         * Poll up to {@code maxMessages} positions, splitting the first run if needed.
+         */
+        int poll(NavigableSet<Position> positions, int maxMessages) {
+            int polled = 0;
+            for (ByteBuf runs : segments) {
+                while (polled < maxMessages && runs.isReadable()) {
+                    int index = runs.readerIndex();
+                    long ledgerId = runs.getLong(index + Long.BYTES);
+                    long entryId = runs.getLong(index + 2 * Long.BYTES);
+                    int count = runs.getInt(index + 3 * Long.BYTES);
+                    int n = Math.min(count, maxMessages - polled);
+                    for (int i = 0; i < n; i++) {
+                        positions.add(PositionFactory.create(ledgerId, entryId + i));
+                    }
+                    if (n == count) {
+                        runs.skipBytes(RUN_SIZE);
+                    } else {
+                        runs.setLong(index + 2 * Long.BYTES, entryId + n);
+                        runs.setInt(index + 3 * Long.BYTES, count - n);
+                    }
+                    polled += n;
+                }
+                if (polled == maxMessages) {
+                    break;
+                }
+            }
+            return polled;
+        }
+
+        ByteBuf peekSegment() {
+            return segments.peekFirst();
+        }
+
+        /**
+         * @return the capacity of the released segment
+         */
+        int releaseSegment() {
+            ByteBuf segment = segments.pollFirst();
+            int capacity = segment.capacity();
+            segment.release();
+            return capacity;
+        }
+
+        /**
+         * Release the leading segments which were fully read.
+         *
+         * @return the capacity of the released segments
+         */
+        int releaseReadSegments() {
+            int released = 0;
+            ByteBuf first;
+            while ((first = segments.peekFirst()) != null && !first.isReadable()) {
+                released += releaseSegment();
+            }
+            return released;
+        }
+
+        boolean isEmpty() {
+            return segments.isEmpty();
+        }
+
+        void release() {
+            ByteBuf segment;
+            while ((segment = segments.pollFirst()) != null) {
+                segment.release();
+            }
+        }
+    }
+}
@@ -1259,6 +1259,14 @@ public abstract class AbstractTopic implements Topic, TopicPolicyListener {
         return TOTAL_RATE_LIMITED_UPDATER.get(this);
     }
 
+    public long getPublishRateLimitedTimes() {
+        return publishRateLimitedTimes;
+    }
+
+    public long getBytesOutFromRemovedSystemSubscriptions() {
+        return bytesOutFromRemovedSystemSubscriptions.longValue();
+    }
+
     private long sumSubscriptions(ToLongFunction<AbstractSubscription> toCounter) {
         return getSubscriptions().values().stream()
                 .map(AbstractSubscription.class::cast)
@@ -641,16 +641,14 @@ public class BrokerService implements Closeable {
         this.updateBrokerDispatchThrottlingMaxRate();
         this.startCheckReplicationPolicies();
         this.startDeduplicationSnapshotMonitor();
-        this.startClearInvalidateTopicNameCacheTask();
+        this.initTopicNameCache();
     }
 
-    protected void startClearInvalidateTopicNameCacheTask() {
-        final int maxSecondsToClearTopicNameCache = pulsar.getConfiguration().getMaxSecondsToClearTopicNameCache();
-        inactivityMonitor.scheduleAtFixedRate(
-            () -> TopicName.clearIfReachedMaxCapacity(pulsar.getConfiguration().getTopicNameCacheMaxCapacity()),
-            maxSecondsToClearTopicNameCache,
-            maxSecondsToClearTopicNameCache,
-            TimeUnit.SECONDS);
+    protected void initTopicNameCache() {
+        // The topic name cache evicts the least recently used names by itself once its capacity is reached
+        TopicName.setCacheMaxCapacity(pulsar.getConfiguration().getTopicNameCacheMaxCapacity());
+        registerConfigurationListener("topicNameCacheMaxCapacity",
+                (maxCapacity) -> TopicName.setCacheMaxCapacity((int) maxCapacity));
     }
 
     protected void startStatsUpdater(int statsUpdateInitialDelayInSecs, int statsUpdateFrequencyInSecs) {
@@ -1288,6 +1286,7 @@ public class BrokerService implements Closeable {
         deleteTopicAuthenticationWithRetry(topic, deleteTopicAuthenticationFuture, 5);
         deleteTopicAuthenticationFuture
         .thenCompose(__ -> deleteSchema(tn))
+        .thenCompose(__ -> deleteCompressionDictionaries(tn))
         .thenCompose(__ -> {
             if (tn.isPartitioned()) {
                 return CompletableFuture.completedFuture(null);
@@ -2090,6 +2089,10 @@ public class BrokerService implements Closeable {
             managedLedgerConfig.setMetadataEnsembleSize(serviceConfig.getManagedLedgerDefaultEnsembleSize());
             managedLedgerConfig.setUnackedRangesOpenCacheSetEnabled(
                     serviceConfig.isManagedLedgerUnackedRangesOpenCacheSetEnabled());
+            managedLedgerConfig.setUnackedRangesRunLengthSetEnabled(
+                    serviceConfig.isManagedLedgerUnackedRangesRunLengthSetEnabled());
+            managedLedgerConfig.setCursorLedgerMaxDeltasBetweenSnapshots(
+                    serviceConfig.getManagedLedgerCursorLedgerMaxDeltasBetweenSnapshots());
             managedLedgerConfig.setMetadataWriteQuorumSize(serviceConfig.getManagedLedgerDefaultWriteQuorum());
             managedLedgerConfig.setMetadataAckQuorumSize(serviceConfig.getManagedLedgerDefaultAckQuorum());
             managedLedgerConfig
@@ -2117,6 +2120,14 @@ public class BrokerService implements Closeable {
                     serviceConfig.getManagedLedgerMinimumBacklogEntriesForCaching());
             managedLedgerConfig.setMaxBacklogBetweenCursorsForCaching(
                     serviceConfig.getManagedLedgerMaxBacklogBetweenCursorsForCaching());
+            managedLedgerConfig.setMinimumCursorsForCoalescedReads(
+                    serviceConfig.getManagedLedgerMinimumCursorsForCoalescedReads());
+            managedLedgerConfig.setMaxDistanceBetweenCursorsForCoalescedReads(
+                    serviceConfig.getManagedLedgerMaxDistanceBetweenCursorsForCoalescedReads());
+            managedLedgerConfig.setMaxEntriesPerCoalescedRead(
+                    serviceConfig.getManagedLedgerMaxEntriesPerCoalescedRead());
+            managedLedgerConfig.setCursorReadAheadMaxBatches(policies.map(p -> p.cursorReadAheadMaxBatches)
+                    .orElse(serviceConfig.getManagedLedgerCursorReadAheadMaxBatches()));
 
             OffloadPoliciesImpl nsLevelOffloadPolicies =
                     (OffloadPoliciesImpl) policies.map(p -> p.offload_policies).orElse(null);
@@ -3710,6 +3721,15 @@ public class BrokerService implements Closeable {
         });
     }
 
+    public CompletableFuture<Void> deleteCompressionDictionaries(TopicName topicName) {
+        // delete the compression dictionaries at the upper level when deleting the partitioned topic.
+        if (topicName.isPartitioned()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return pulsar.getPulsarResources().getCompressionDictionaryResources()
+                .deleteCompressionDictionariesAsync(topicName);
+    }
+
     private CompletableFuture<Void> checkMaxTopicsPerNamespace(TopicName topicName, int numPartitions) {
         if (isSystemTopic(topicName)) {
             return CompletableFuture.completedFuture(null);
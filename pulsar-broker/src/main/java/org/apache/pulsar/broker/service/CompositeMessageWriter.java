@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.service;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import org.apache.pulsar.common.api.proto.BaseCommand;
+import org.apache.pulsar.common.protocol.Commands;
+
+/**
+ * Writes the messages dispatched to a consumer in a single composite buffer.
+ *
+ * <p/>The headers of all the messages are written to a single pre-sized buffer, and the payloads are added as
+ * components of the composite buffer without being copied, instead of allocating a headers buffer and a
+ * {@link org.apache.pulsar.common.protocol.ByteBufPair} for every message. The bytes written are the same as the
+ * ones of {@link Commands#serializeCommandMessageWithSize(BaseCommand, ByteBuf)}.
+ *
+ * <p/>This class is not thread-safe.
+ */
+public class CompositeMessageWriter {
+
+    // [TOTAL_SIZE] [CMD_SIZE] and a message command without ack set
+    private static final int HEADERS_SIZE_ESTIMATE = 64;
+
+    private final ByteBufAllocator allocator;
+    private final ByteBuf headers;
+    private final int[] headersEnds;
+    private final ByteBuf[] payloads;
+    private int size;
+
+    public CompositeMessageWriter(ByteBufAllocator allocator, int maxMessages) {
+        this.allocator = allocator;
+        this.headers = allocator.directBuffer(maxMessages * HEADERS_SIZE_ESTIMATE);
+        this.headersEnds = new int[maxMessages];
+        this.payloads = new ByteBuf[maxMessages];
+    }
+
+    /**
+     * Add a message. The ownership of the metadataAndPayload buffer is transferred to the writer.
+     */
+    public void add(BaseCommand command, ByteBuf metadataAndPayload) {
+        int cmdSize = command.getSerializedSize();
+        headers.writeInt(4 + cmdSize + metadataAndPayload.readableBytes());
+        headers.writeInt(cmdSize);
+        command.writeTo(headers);
+        headersEnds[size] = headers.writerIndex();
+        payloads[size] = metadataAndPayload;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Build the buffer containing all the messages added to the writer. The writer can't be used afterward.
+     */
+    public ByteBuf build() {
+        if (size == 0) {
+            headers.release();
+            return Unpooled.EMPTY_BUFFER;
+        }
+        // The headers buffer can't be expanded anymore, so it's now safe to slice it
+        CompositeByteBuf composite = allocator.compositeDirectBuffer(2 * size);
+        int headersStart = 0;
+        for (int i = 0; i < size; i++) {
+            composite.addComponent(true, headers.retainedSlice(headersStart, headersEnds[i] - headersStart));
+            composite.addComponent(true, payloads[i]);
+            payloads[i] = null;
+            headersStart = headersEnds[i];
+        }
+        headers.release();
+        size = 0;
+        return composite;
+    }
+}
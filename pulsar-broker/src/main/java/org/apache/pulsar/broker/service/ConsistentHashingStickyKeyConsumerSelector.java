@@ -26,8 +26,8 @@ import java.util.NavigableMap;
 import java.util.Optional;
 import java.util.TreeMap;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.pulsar.client.api.Range;
@@ -35,12 +35,16 @@ import org.apache.pulsar.client.api.Range;
 /**
  * This is a consumer selector using consistent hashing to evenly split
  * the number of keys assigned to each consumer.
+ *
+ * <p/>The hash ring is only used when consumers are added or removed. Every change publishes a new
+ * {@link ConsumerHashAssignmentsSnapshot} with the sorted range ends and their consumers, so that
+ * {@link #select(int)} is a binary search without locking.
  */
 @Slf4j
 public class ConsistentHashingStickyKeyConsumerSelector implements StickyKeyConsumerSelector {
     // use NUL character as field separator for hash key calculation
     private static final String KEY_SEPARATOR = "\0";
-    private final ReadWriteLock rwLock = new ReentrantReadWriteLock();
+    private final Lock lock = new ReentrantLock();
 
     /**
      * Represents a hash ring point entry.
@@ -108,7 +112,7 @@ public class ConsistentHashingStickyKeyConsumerSelector implements StickyKeyCons
     private final int numberOfPoints;
     private final Range keyHashRange;
     private final boolean addOrRemoveReturnsImpactedConsumersResult;
-    private ConsumerHashAssignmentsSnapshot consumerHashAssignmentsSnapshot;
+    private volatile ConsumerHashAssignmentsSnapshot consumerHashAssignmentsSnapshot;
 
     public ConsistentHashingStickyKeyConsumerSelector(int numberOfPoints) {
         this(numberOfPoints, false);
@@ -126,14 +130,12 @@ public class ConsistentHashingStickyKeyConsumerSelector implements StickyKeyCons
         this.hashRing = new TreeMap<>();
         this.numberOfPoints = numberOfPoints;
         this.keyHashRange = Range.of(STICKY_KEY_HASH_NOT_SET + 1, rangeMaxValue);
-        this.consumerHashAssignmentsSnapshot = addOrRemoveReturnsImpactedConsumersResult
-                ? ConsumerHashAssignmentsSnapshot.empty()
-                : null;
+        this.consumerHashAssignmentsSnapshot = ConsumerHashAssignmentsSnapshot.empty();
     }
 
     @Override
     public CompletableFuture<Optional<ImpactedConsumersResult>> addConsumer(Consumer consumer) {
-        rwLock.writeLock().lock();
+        lock.lock();
         try {
             ConsumerIdentityWrapper consumerIdentityWrapper = new ConsumerIdentityWrapper(consumer);
             // Insert multiple points on the hash ring for every consumer
@@ -169,16 +171,9 @@ public class ConsistentHashingStickyKeyConsumerSelector implements StickyKeyCons
                 log.debug("Added consumer '{}' with {} points, {} collisions", consumer, hashPointsAdded,
                         hashPointCollisions);
             }
-            if (!addOrRemoveReturnsImpactedConsumersResult) {
-                return CompletableFuture.completedFuture(Optional.empty());
-            }
-            ConsumerHashAssignmentsSnapshot assignmentsAfter = internalGetConsumerHashAssignmentsSnapshot();
-            ImpactedConsumersResult impactedConsumers =
-                    consumerHashAssignmentsSnapshot.resolveImpactedConsumers(assignmentsAfter);
-            consumerHashAssignmentsSnapshot = assignmentsAfter;
-            return CompletableFuture.completedFuture(Optional.of(impactedConsumers));
+            return CompletableFuture.completedFuture(updateConsumerHashAssignmentsSnapshot());
         } finally {
-            rwLock.writeLock().unlock();
+            lock.unlock();
         }
     }
 
@@ -200,7 +195,7 @@ public class ConsistentHashingStickyKeyConsumerSelector implements StickyKeyCons
 
     @Override
     public Optional<ImpactedConsumersResult> removeConsumer(Consumer consumer) {
-        rwLock.writeLock().lock();
+        lock.lock();
         try {
             ConsumerIdentityWrapper consumerIdentityWrapper = new ConsumerIdentityWrapper(consumer);
             int consumerNameIndex = consumerNameIndexTracker.getTrackedIndex(consumerIdentityWrapper);
@@ -219,36 +214,29 @@ public class ConsistentHashingStickyKeyConsumerSelector implements StickyKeyCons
                     consumerNameIndexTracker.decreaseConsumerRefCount(consumerIdentityWrapper);
                 }
             }
-            if (!addOrRemoveReturnsImpactedConsumersResult) {
-                return Optional.empty();
-            }
-            ConsumerHashAssignmentsSnapshot assignmentsAfter = internalGetConsumerHashAssignmentsSnapshot();
-            ImpactedConsumersResult impactedConsumers =
-                    consumerHashAssignmentsSnapshot.resolveImpactedConsumers(assignmentsAfter);
-            consumerHashAssignmentsSnapshot = assignmentsAfter;
-            return Optional.of(impactedConsumers);
+            return updateConsumerHashAssignmentsSnapshot();
         } finally {
-            rwLock.writeLock().unlock();
+            lock.unlock();
         }
     }
 
+    /**
+     * Publish the assignments of the hash ring after a change, must be called while holding the lock.
+     * @return the consumers impacted by the change, when enabled
+     */
+    private Optional<ImpactedConsumersResult> updateConsumerHashAssignmentsSnapshot() {
+        ConsumerHashAssignmentsSnapshot assignmentsAfter = internalGetConsumerHashAssignmentsSnapshot();
+        ConsumerHashAssignmentsSnapshot assignmentsBefore = consumerHashAssignmentsSnapshot;
+        consumerHashAssignmentsSnapshot = assignmentsAfter;
+        if (!addOrRemoveReturnsImpactedConsumersResult) {
+            return Optional.empty();
+        }
+        return Optional.of(assignmentsBefore.resolveImpactedConsumers(assignmentsAfter));
+    }
+
     @Override
     public Consumer select(int hash) {
-        rwLock.readLock().lock();
-        try {
-            if (hashRing.isEmpty()) {
-                return null;
-            }
-            Map.Entry<Integer, HashRingPointEntry> ceilingEntry = hashRing.ceilingEntry(hash);
-            if (ceilingEntry != null) {
-                return ceilingEntry.getValue().selectedConsumer;
-            } else {
-                // Handle wrap-around in the hash ring, return the first consumer
-                return hashRing.firstEntry().getValue().selectedConsumer;
-            }
-        } finally {
-            rwLock.readLock().unlock();
-        }
+        return consumerHashAssignmentsSnapshot.select(hash);
     }
 
     @Override
@@ -258,13 +246,7 @@ public class ConsistentHashingStickyKeyConsumerSelector implements StickyKeyCons
 
     @Override
     public ConsumerHashAssignmentsSnapshot getConsumerHashAssignmentsSnapshot() {
-        rwLock.readLock().lock();
-        try {
-            return consumerHashAssignmentsSnapshot != null ? consumerHashAssignmentsSnapshot
-                    : internalGetConsumerHashAssignmentsSnapshot();
-        } finally {
-            rwLock.readLock().unlock();
-        }
+        return consumerHashAssignmentsSnapshot;
     }
 
     private ConsumerHashAssignmentsSnapshot internalGetConsumerHashAssignmentsSnapshot() {
@@ -305,6 +287,6 @@ public class ConsistentHashingStickyKeyConsumerSelector implements StickyKeyCons
             }
             result.add(new HashRangeAssignment(range, firstConsumer));
         }
-        return ConsumerHashAssignmentsSnapshot.of(result);
+        return ConsumerHashAssignmentsSnapshot.of(result, getKeyHashRange());
     }
 }
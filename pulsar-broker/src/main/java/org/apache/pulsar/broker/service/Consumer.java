@@ -23,6 +23,7 @@ import static org.apache.pulsar.broker.service.StickyKeyConsumerSelector.STICKY_
 import static org.apache.pulsar.common.protocol.Commands.DEFAULT_CONSUMER_EPOCH;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.MoreObjects;
+import com.google.common.collect.Range;
 import com.google.common.util.concurrent.AtomicDouble;
 import io.netty.util.concurrent.Future;
 import io.netty.util.concurrent.Promise;
@@ -68,6 +69,7 @@ import org.apache.pulsar.common.naming.TopicName;
 import org.apache.pulsar.common.policies.data.ClusterPolicies.ClusterUrl;
 import org.apache.pulsar.common.policies.data.TopicOperation;
 import org.apache.pulsar.common.policies.data.stats.ConsumerStatsImpl;
+import org.apache.pulsar.common.protocol.CompactAckRanges;
 import org.apache.pulsar.common.schema.SchemaType;
 import org.apache.pulsar.common.stats.Rate;
 import org.apache.pulsar.common.util.DateFormatter;
@@ -152,6 +154,8 @@ public class Consumer {
     private final String clientAddress; // IP address only, no port number included
     private final MessageId startMessageId;
     private final boolean isAcknowledgmentAtBatchIndexLevelEnabled;
+    // advertised to the clients, which split their acks to stay within it
+    private final int maxCompactAckEntries;
 
     @Getter
     @Setter
@@ -247,6 +251,8 @@ public class Consumer {
         this.consumerEpoch = consumerEpoch;
         this.isAcknowledgmentAtBatchIndexLevelEnabled = subscription.getTopic().getBrokerService()
                 .getPulsar().getConfiguration().isAcknowledgmentAtBatchIndexLevelEnabled();
+        this.maxCompactAckEntries = subscription.getTopic().getBrokerService()
+                .getPulsar().getConfiguration().getMaxCompactAckEntries();
 
         this.schemaType = schemaType;
 
@@ -281,6 +287,7 @@ public class Consumer {
         this.clientAddress = null;
         this.startMessageId = null;
         this.isAcknowledgmentAtBatchIndexLevelEnabled = false;
+        this.maxCompactAckEntries = 0;
         this.schemaType = null;
         MESSAGE_PERMITS_UPDATER.set(this, availablePermits);
         OPEN_TELEMETRY_ATTRIBUTES_FIELD_UPDATER.set(this, null);
@@ -570,6 +577,19 @@ public class Consumer {
 
     //this method is for individual ack not carry the transaction
     private CompletableFuture<Long> individualAckNormal(CommandAck ack, Map<String, Long> properties) {
+        List<Range<Position>> ackRanges = null;
+        if (ack.hasCompactAckRanges()) {
+            try {
+                ackRanges = decodeAckRanges(ack);
+            } catch (IllegalArgumentException e) {
+                log.warn("[{}] [{}] Received invalid ack ranges: {}", subscription, consumerId, e.getMessage());
+                return FutureUtil.failedFuture(
+                        new BrokerServiceException.NotAllowedException("Invalid ack ranges: " + e.getMessage()));
+            }
+            for (Range<Position> range : ackRanges) {
+                checkAckValidationError(ack, range);
+            }
+        }
         List<Pair<Consumer, Position>> positionsAcked = new ArrayList<>();
         long totalAckCount = 0;
         for (int i = 0; i < ack.getMessageIdsCount(); i++) {
@@ -610,9 +630,14 @@ public class Consumer {
 
             totalAckCount += ackedCount;
         }
-        subscription.acknowledgeMessage(positionsAcked.stream()
-                .map(Pair::getRight)
-                .collect(Collectors.toList()), AckType.Individual, properties);
+        if (ackRanges != null) {
+            totalAckCount += individualAckRanges(ackRanges, properties);
+        }
+        if (!positionsAcked.isEmpty() || ackRanges == null) {
+            subscription.acknowledgeMessage(positionsAcked.stream()
+                    .map(Pair::getRight)
+                    .collect(Collectors.toList()), AckType.Individual, properties);
+        }
         CompletableFuture<Long> completableFuture = new CompletableFuture<>();
         completableFuture.complete(totalAckCount);
         if (isTransactionEnabled() && Subscription.isIndividualAckMode(subType)) {
@@ -633,6 +658,67 @@ public class Consumer {
     }
 
 
+    /**
+     * Decode the whole entries acknowledged as compact ranges.
+     *
+     * @throws IllegalArgumentException if the ranges are malformed or have more entries than advertised to the client
+     */
+    private List<Range<Position>> decodeAckRanges(CommandAck ack) {
+        List<Range<Position>> ranges = new ArrayList<>();
+        CompactAckRanges.decode(ack.getCompactAckRanges(), (ledgerId, firstEntryId, lastEntryId) ->
+                ranges.add(Range.closed(PositionFactory.create(ledgerId, firstEntryId),
+                        PositionFactory.create(ledgerId, lastEntryId))));
+        long entriesCount = 0;
+        for (Range<Position> range : ranges) {
+            entriesCount += range.upperEndpoint().getEntryId() - range.lowerEndpoint().getEntryId() + 1;
+            if (entriesCount > maxCompactAckEntries || entriesCount <= 0) {
+                throw new IllegalArgumentException("More than " + maxCompactAckEntries + " acknowledged entries");
+            }
+        }
+        return ranges;
+    }
+
+    /**
+     * Acknowledge the whole entries sent as compact ranges, without a position for each entry.
+     *
+     * @return the number of acknowledged messages
+     */
+    private long individualAckRanges(List<Range<Position>> ranges, Map<String, Long> properties) {
+        if (!Subscription.isIndividualAckMode(subType)) {
+            // There are no pending acks to clear, and each entry counts as a single message
+            long totalAckCount = 0;
+            for (Range<Position> range : ranges) {
+                totalAckCount += range.upperEndpoint().getEntryId() - range.lowerEndpoint().getEntryId() + 1;
+            }
+            subscription.acknowledgeMessageRanges(ranges, properties);
+            return totalAckCount;
+        }
+
+        long totalAckCount = 0;
+        for (Range<Position> range : ranges) {
+            long ledgerId = range.lowerEndpoint().getLedgerId();
+            for (long entryId = range.lowerEndpoint().getEntryId(); entryId <= range.upperEndpoint().getEntryId();
+                 entryId++) {
+                ObjectIntPair<Consumer> ackOwnerConsumerAndBatchSize =
+                        getAckOwnerConsumerAndBatchSize(ledgerId, entryId);
+                Consumer ackOwnerConsumer = ackOwnerConsumerAndBatchSize.left();
+                int batchSize = ackOwnerConsumerAndBatchSize.rightInt();
+                long ackedCount = batchSize;
+                if (isAcknowledgmentAtBatchIndexLevelEnabled) {
+                    ackedCount = getAckedCountForMsgIdNoAckSets(batchSize, PositionFactory.create(ledgerId, entryId),
+                            ackOwnerConsumer);
+                }
+                if (removePendingAcks(ackOwnerConsumer, ledgerId, entryId)) {
+                    addAndGetUnAckedMsgs(ackOwnerConsumer, -(int) ackedCount);
+                    updateBlockedConsumerOnUnackedMsgs(ackOwnerConsumer);
+                }
+                totalAckCount += ackedCount;
+            }
+        }
+        subscription.acknowledgeMessageRanges(ranges, properties);
+        return totalAckCount;
+    }
+
     //this method is for individual ack carry the transaction
     private CompletableFuture<Long> individualAckWithTransaction(CommandAck ack) {
         // Individual ack
@@ -764,6 +850,13 @@ public class Consumer {
         }
     }
 
+    private void checkAckValidationError(CommandAck ack, Range<Position> range) {
+        if (ack.hasValidationError()) {
+            log.warn("[{}] [{}] Received ack for corrupted messages in {} - Reason: {}", subscription,
+                    consumerId, range, ack.getValidationError());
+        }
+    }
+
     private boolean checkCanRemovePendingAcksAndHandle(Consumer ackOwnedConsumer,
                                                        Position position, MessageIdData msgId) {
         if (Subscription.isIndividualAckMode(subType) && msgId.getAckSetsCount() == 0) {
@@ -1085,13 +1178,18 @@ public class Consumer {
      * @param position
      */
     private boolean removePendingAcks(Consumer ackOwnedConsumer, Position position) {
+        return removePendingAcks(ackOwnedConsumer, position.getLedgerId(), position.getEntryId());
+    }
+
+    private boolean removePendingAcks(Consumer ackOwnedConsumer, long ledgerId, long entryId) {
         PendingAcksMap ownedConsumerPendingAcks = ackOwnedConsumer.getPendingAcks();
-        if (!ownedConsumerPendingAcks.remove(position.getLedgerId(), position.getEntryId())) {
+        if (!ownedConsumerPendingAcks.remove(ledgerId, entryId)) {
             // Message was already removed by the other consumer
             return false;
         }
         if (log.isDebugEnabled()) {
-            log.debug("[{}-{}] consumer {} received ack {}", topicName, subscription, consumerId, position);
+            log.debug("[{}-{}] consumer {} received ack {}:{}", topicName, subscription, consumerId, ledgerId,
+                    entryId);
         }
         updateBlockedConsumerOnUnackedMsgs(ackOwnedConsumer);
         return true;
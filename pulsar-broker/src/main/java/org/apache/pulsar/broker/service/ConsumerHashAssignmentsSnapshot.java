@@ -36,16 +36,44 @@ import org.jspecify.annotations.NonNull;
 
 /**
  * Represents the hash ranges assigned to each consumer in a {@link StickyKeyConsumerSelector} at a point in time.
+ *
+ * <p/>A snapshot created with {@link #of(List, Range)} also contains a lookup table with the end of every range and
+ * the consumer of that range, so that {@link #select(int)} is a binary search in a primitive array. The table takes
+ * a few bytes per range, so it stays small and cheap to rebuild when consumers are added or removed.
  */
-@EqualsAndHashCode(exclude = "cachedRangesByConsumer")
-@ToString(exclude = "cachedRangesByConsumer")
+@EqualsAndHashCode(exclude = {"cachedRangesByConsumer", "consumers", "rangeEnds"})
+@ToString(exclude = {"cachedRangesByConsumer", "consumers", "rangeEnds"})
 public class ConsumerHashAssignmentsSnapshot {
     private final List<HashRangeAssignment> hashRangeAssignments;
     private Map<Consumer, List<Range>> cachedRangesByConsumer;
+    // lookup table, only set when the snapshot is created with a key hash range
+    private final Consumer[] consumers;
+    private final int[] rangeEnds;
 
-    private ConsumerHashAssignmentsSnapshot(List<HashRangeAssignment> hashRangeAssignments) {
+    private ConsumerHashAssignmentsSnapshot(List<HashRangeAssignment> hashRangeAssignments, Range keyHashRange) {
         validate(hashRangeAssignments);
         this.hashRangeAssignments = hashRangeAssignments;
+        if (keyHashRange != null && !hashRangeAssignments.isEmpty()) {
+            this.consumers = new Consumer[hashRangeAssignments.size()];
+            this.rangeEnds = new int[hashRangeAssignments.size()];
+            buildLookupTable(keyHashRange);
+        } else {
+            this.consumers = null;
+            this.rangeEnds = null;
+        }
+    }
+
+    private void buildLookupTable(Range keyHashRange) {
+        for (int i = 0; i < hashRangeAssignments.size(); i++) {
+            HashRangeAssignment hashRangeAssignment = hashRangeAssignments.get(i);
+            Range range = hashRangeAssignment.range();
+            if (range.getStart() < keyHashRange.getStart() || range.getEnd() > keyHashRange.getEnd()) {
+                throw new IllegalArgumentException("Range " + range + " is outside of the key hash range "
+                        + keyHashRange);
+            }
+            consumers[i] = hashRangeAssignment.consumer();
+            rangeEnds[i] = range.getEnd();
+        }
     }
 
     private void validate(List<HashRangeAssignment> hashRangeAssignments) {
@@ -64,11 +92,52 @@ public class ConsumerHashAssignmentsSnapshot {
     }
 
     public static ConsumerHashAssignmentsSnapshot of(List<HashRangeAssignment> hashRangeAssignments) {
-        return new ConsumerHashAssignmentsSnapshot(hashRangeAssignments);
+        return new ConsumerHashAssignmentsSnapshot(hashRangeAssignments, null);
+    }
+
+    /**
+     * Create a snapshot with a lookup table for {@link #select(int)}.
+     * @param hashRangeAssignments the sorted and non-overlapping hash range assignments
+     * @param keyHashRange the full range of hash values of the selector, containing all the assignments
+     * @return the snapshot
+     */
+    public static ConsumerHashAssignmentsSnapshot of(List<HashRangeAssignment> hashRangeAssignments,
+                                                     Range keyHashRange) {
+        return new ConsumerHashAssignmentsSnapshot(hashRangeAssignments, keyHashRange);
     }
 
     public static ConsumerHashAssignmentsSnapshot empty() {
-        return new ConsumerHashAssignmentsSnapshot(Collections.emptyList());
+        return new ConsumerHashAssignmentsSnapshot(Collections.emptyList(), null);
+    }
+
+    /**
+     * Select the consumer assigned to a hash. A hash that isn't in any range is assigned to the consumer of the
+     * next range, and a hash after the last range to the consumer of the first range.
+     * @param hash the sticky key hash
+     * @return the selected consumer, or null when there are no assignments
+     */
+    public Consumer select(int hash) {
+        if (rangeEnds != null) {
+            // the hashes between two ranges are assigned to the consumer of the next range, and the hashes after
+            // the last range to the consumer of the first range, like in a hash ring
+            int low = 0;
+            int high = rangeEnds.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (rangeEnds[mid] < hash) {
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return consumers[low < rangeEnds.length ? low : 0];
+        }
+        for (HashRangeAssignment hashRangeAssignment : hashRangeAssignments) {
+            if (hash <= hashRangeAssignment.range().getEnd()) {
+                return hashRangeAssignment.consumer();
+            }
+        }
+        return hashRangeAssignments.isEmpty() ? null : hashRangeAssignments.get(0).consumer();
     }
 
     public ImpactedConsumersResult resolveImpactedConsumers(ConsumerHashAssignmentsSnapshot assignmentsAfter) {
@@ -45,6 +45,23 @@ public class EntryAndMetadata implements Entry {
         return new EntryAndMetadata(entry, metadata);
     }
 
+    /**
+     * Create an instance with a sticky key hash that is already known, e.g. the hash stored for a message to
+     * replay, so that it isn't calculated again from the sticky key.
+     *
+     * @param entry the entry
+     * @param metadata the metadata of the entry
+     * @param stickyKeyHash the sticky key hash, or STICKY_KEY_HASH_NOT_SET if it's unknown
+     * @return the instance
+     */
+    public static EntryAndMetadata create(final Entry entry, final MessageMetadata metadata, int stickyKeyHash) {
+        EntryAndMetadata entryAndMetadata = new EntryAndMetadata(entry, metadata);
+        if (stickyKeyHash != StickyKeyConsumerSelector.STICKY_KEY_HASH_NOT_SET) {
+            entryAndMetadata.stickyKeyHash = stickyKeyHash;
+        }
+        return entryAndMetadata;
+    }
+
     @VisibleForTesting
     public static EntryAndMetadata create(final Entry entry) {
         return create(entry, Commands.peekAndCopyMessageMetadata(entry.getDataBuffer(), "", -1));
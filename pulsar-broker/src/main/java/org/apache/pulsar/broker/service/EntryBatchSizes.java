@@ -22,6 +22,8 @@ import io.netty.util.Recycler;
 
 public class EntryBatchSizes {
     private int[] sizes = new int[100];
+    // the entries were not filtered, their messages can be written with a single composite buffer
+    private boolean compositeWrite;
 
     public int getBatchSize(int entryIdx) {
         return sizes[entryIdx];
@@ -31,7 +33,16 @@ public class EntryBatchSizes {
         return sizes[entryIdx] = batchSize;
     }
 
+    public boolean isCompositeWrite() {
+        return compositeWrite;
+    }
+
+    public void setCompositeWrite(boolean compositeWrite) {
+        this.compositeWrite = compositeWrite;
+    }
+
     public void recyle() {
+        compositeWrite = false;
         handle.recycle(this);
     }
 
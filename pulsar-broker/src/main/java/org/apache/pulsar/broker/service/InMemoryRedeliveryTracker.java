@@ -18,6 +18,7 @@
  */
 package org.apache.pulsar.broker.service;
 
+import com.google.common.collect.Range;
 import it.unimi.dsi.fastutil.longs.Long2IntMap;
 import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
@@ -100,6 +101,34 @@ public class InMemoryRedeliveryTracker implements RedeliveryTracker {
         }
     }
 
+    @Override
+    public void removeRanges(List<Range<Position>> ranges) {
+        long stamp = rwLock.writeLock();
+        try {
+            for (Range<Position> range : ranges) {
+                long ledgerId = range.lowerEndpoint().getLedgerId();
+                Long2IntMap entryMap = trackerCache.get(ledgerId);
+                if (entryMap == null) {
+                    continue;
+                }
+                long firstEntryId = range.lowerEndpoint().getEntryId();
+                long lastEntryId = range.upperEndpoint().getEntryId();
+                if (lastEntryId - firstEntryId >= entryMap.size()) {
+                    entryMap.keySet().removeIf((long entryId) -> entryId >= firstEntryId && entryId <= lastEntryId);
+                } else {
+                    for (long entryId = firstEntryId; entryId <= lastEntryId; entryId++) {
+                        entryMap.remove(entryId);
+                    }
+                }
+                if (entryMap.isEmpty()) {
+                    trackerCache.remove(ledgerId);
+                }
+            }
+        } finally {
+            rwLock.unlockWrite(stamp);
+        }
+    }
+
     @Override
     public void clear() {
         long stamp = rwLock.writeLock();
@@ -27,6 +27,7 @@ import org.apache.pulsar.client.api.transaction.TxnID;
 import org.apache.pulsar.common.api.proto.CommandLookupTopicResponse;
 import org.apache.pulsar.common.api.proto.CommandTopicMigrated.ResourceType;
 import org.apache.pulsar.common.api.proto.ServerError;
+import org.apache.pulsar.common.compression.CompressionDictionary;
 import org.apache.pulsar.common.protocol.schema.SchemaVersion;
 import org.apache.pulsar.common.schema.SchemaInfo;
 
@@ -58,6 +59,10 @@ public interface PulsarCommandSender {
 
     void sendGetSchemaErrorResponse(long requestId, ServerError error, String errorMessage);
 
+    void sendGetCompressionDictionaryResponse(long requestId, CompressionDictionary dictionary);
+
+    void sendGetCompressionDictionaryErrorResponse(long requestId, ServerError error, String errorMessage);
+
     void sendGetOrCreateSchemaResponse(long requestId, SchemaVersion schemaVersion);
 
     void sendGetOrCreateSchemaErrorResponse(long requestId, ServerError error, String errorMessage);
@@ -34,6 +34,7 @@ import org.apache.pulsar.common.api.proto.CommandLookupTopicResponse;
 import org.apache.pulsar.common.api.proto.CommandTopicMigrated.ResourceType;
 import org.apache.pulsar.common.api.proto.ProtocolVersion;
 import org.apache.pulsar.common.api.proto.ServerError;
+import org.apache.pulsar.common.compression.CompressionDictionary;
 import org.apache.pulsar.common.protocol.Commands;
 import org.apache.pulsar.common.protocol.schema.SchemaVersion;
 import org.apache.pulsar.common.schema.SchemaInfo;
@@ -145,6 +146,23 @@ public class PulsarCommandSenderImpl implements PulsarCommandSender {
         writeAndFlush(outBuf);
     }
 
+    @Override
+    public void sendGetCompressionDictionaryResponse(long requestId, CompressionDictionary dictionary) {
+        BaseCommand command = Commands.newGetCompressionDictionaryResponseCommand(requestId, dictionary);
+        safeIntercept(command, cnx);
+        ByteBuf outBuf = Commands.serializeWithSize(command);
+        writeAndFlush(outBuf);
+    }
+
+    @Override
+    public void sendGetCompressionDictionaryErrorResponse(long requestId, ServerError error, String errorMessage) {
+        BaseCommand command = Commands.newGetCompressionDictionaryResponseErrorCommand(requestId, error,
+                errorMessage);
+        safeIntercept(command, cnx);
+        ByteBuf outBuf = Commands.serializeWithSize(command);
+        writeAndFlush(outBuf);
+    }
+
     @Override
     public void sendGetOrCreateSchemaResponse(long requestId, SchemaVersion schemaVersion) {
         BaseCommand command = Commands.newGetOrCreateSchemaResponseCommand(requestId, schemaVersion);
@@ -226,11 +244,16 @@ public class PulsarCommandSenderImpl implements PulsarCommandSender {
                                                  RedeliveryTracker redeliveryTracker, long epoch) {
         final ChannelHandlerContext ctx = cnx.ctx();
         final ChannelPromise writePromise = ctx.newPromise();
+        // only the entries of the fast dispatch path are written with a single composite buffer, the broker
+        // interceptor has to see every message command, so it requires a write per message
+        final boolean compositeWrite = interceptor == null && batchSizes.isCompositeWrite();
         ctx.channel().eventLoop().execute(() -> {
             // this list is always accessed in the same thread (the eventLoop here)
             // and in the completion of the writePromise
             // it is safe to use a simple ArrayList
             List<Entry> entriesToRelease = new ArrayList<>(entries.size());
+            CompositeMessageWriter compositeWriter =
+                    compositeWrite ? new CompositeMessageWriter(ctx.alloc(), entries.size()) : null;
             for (int i = 0; i < entries.size(); i++) {
                 Entry entry = entries.get(i);
                 if (entry == null) {
@@ -274,16 +297,26 @@ public class PulsarCommandSenderImpl implements PulsarCommandSender {
                 int redeliveryCount = redeliveryTracker
                         .getRedeliveryCount(entry.getLedgerId(), entry.getEntryId());
 
-                ctx.write(
-                        cnx.newMessageAndIntercept(consumerId, entry.getLedgerId(), entry.getEntryId(), partitionIdx,
-                                redeliveryCount, metadataAndPayload,
-                                batchIndexesAcks == null ? null : batchIndexesAcks.getAckSet(i), topicName, epoch),
-                        ctx.voidPromise());
+                long[] ackSet = batchIndexesAcks == null ? null : batchIndexesAcks.getAckSet(i);
+                if (compositeWriter != null) {
+                    compositeWriter.add(Commands.newMessageCommand(consumerId, entry.getLedgerId(),
+                            entry.getEntryId(), partitionIdx, redeliveryCount, ackSet, epoch), metadataAndPayload);
+                } else {
+                    ctx.write(
+                            cnx.newMessageAndIntercept(consumerId, entry.getLedgerId(), entry.getEntryId(),
+                                    partitionIdx, redeliveryCount, metadataAndPayload, ackSet, topicName, epoch),
+                            ctx.voidPromise());
+                }
                 entriesToRelease.add(entry);
             }
 
-            // Use an empty write here so that we can just tie the flush with the write promise for last entry
-            ctx.writeAndFlush(Unpooled.EMPTY_BUFFER, writePromise);
+            if (compositeWriter != null) {
+                // A single write and flush for all the messages
+                ctx.writeAndFlush(compositeWriter.build(), writePromise);
+            } else {
+                // Use an empty write here so that we can just tie the flush with the write promise for last entry
+                ctx.writeAndFlush(Unpooled.EMPTY_BUFFER, writePromise);
+            }
             writePromise.addListener((future) -> {
                 // release the entries only after flushing the channel
                 //
@@ -261,6 +261,15 @@ public class PulsarStats implements Closeable {
         }
     }
 
+    public void recordDeduplicationRecoveryTimeValue(String topic, long recoveryTimeMs) {
+        try {
+            brokerOperabilityMetrics.recordDeduplicationRecoveryTimeValue(recoveryTimeMs);
+        } catch (Exception ex) {
+            log.warn("Exception while recording deduplication recovery time for topic {}, {}", topic,
+                    ex.getMessage());
+        }
+    }
+
     public void recordTopicLoadFailed() {
         brokerOperabilityMetrics.recordTopicLoadFailed();
     }
@@ -18,6 +18,7 @@
  */
 package org.apache.pulsar.broker.service;
 
+import com.google.common.collect.Range;
 import java.util.List;
 import org.apache.bookkeeper.mledger.Position;
 
@@ -31,5 +32,7 @@ public interface RedeliveryTracker {
 
     void removeBatch(List<Position> positions);
 
+    void removeRanges(List<Range<Position>> ranges);
+
     void clear();
 }
\ No newline at end of file
@@ -18,6 +18,7 @@
  */
 package org.apache.pulsar.broker.service;
 
+import com.google.common.collect.Range;
 import java.util.List;
 import org.apache.bookkeeper.mledger.Position;
 
@@ -47,6 +48,11 @@ public class RedeliveryTrackerDisabled implements RedeliveryTracker {
         // no-op
     }
 
+    @Override
+    public void removeRanges(List<Range<Position>> ranges) {
+        // no-op
+    }
+
     @Override
     public void clear() {
         // no-op
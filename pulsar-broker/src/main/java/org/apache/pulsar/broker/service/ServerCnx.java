@@ -89,6 +89,7 @@ import org.apache.pulsar.broker.loadbalance.extensions.ExtensibleLoadManagerImpl
 import org.apache.pulsar.broker.loadbalance.extensions.data.BrokerLookupData;
 import org.apache.pulsar.broker.namespace.LookupOptions;
 import org.apache.pulsar.broker.namespace.NamespaceService;
+import org.apache.pulsar.broker.resources.CompressionDictionaryResources;
 import org.apache.pulsar.broker.service.BrokerServiceException.ConsumerBusyException;
 import org.apache.pulsar.broker.service.BrokerServiceException.ServerMetadataException;
 import org.apache.pulsar.broker.service.BrokerServiceException.ServiceUnitNotReadyException;
@@ -119,6 +120,7 @@ import org.apache.pulsar.common.api.proto.CommandEndTxn;
 import org.apache.pulsar.common.api.proto.CommandEndTxnOnPartition;
 import org.apache.pulsar.common.api.proto.CommandEndTxnOnSubscription;
 import org.apache.pulsar.common.api.proto.CommandFlow;
+import org.apache.pulsar.common.api.proto.CommandGetCompressionDictionary;
 import org.apache.pulsar.common.api.proto.CommandGetLastMessageId;
 import org.apache.pulsar.common.api.proto.CommandGetOrCreateSchema;
 import org.apache.pulsar.common.api.proto.CommandGetSchema;
@@ -153,6 +155,7 @@ import org.apache.pulsar.common.api.proto.SingleMessageMetadata;
 import org.apache.pulsar.common.api.proto.TxnAction;
 import org.apache.pulsar.common.compression.CompressionCodec;
 import org.apache.pulsar.common.compression.CompressionCodecProvider;
+import org.apache.pulsar.common.compression.CompressionDictionary;
 import org.apache.pulsar.common.intercept.InterceptException;
 import org.apache.pulsar.common.lookup.data.LookupData;
 import org.apache.pulsar.common.naming.Metadata;
@@ -235,6 +238,7 @@ public class ServerCnx extends PulsarHandler implements TransportCnx {
     private final boolean schemaValidationEnforced;
     private String authMethod = "none";
     private final int maxMessageSize;
+    private final int maxCompactAckEntries;
     private boolean preciseDispatcherFlowControl;
 
     private boolean encryptionRequireOnProducer;
@@ -337,6 +341,7 @@ public class ServerCnx extends PulsarHandler implements TransportCnx {
         this.maxNonPersistentPendingMessages = conf.getMaxConcurrentNonPersistentMessagePerConnection();
         this.schemaValidationEnforced = conf.isSchemaValidationEnforced();
         this.maxMessageSize = conf.getMaxMessageSize();
+        this.maxCompactAckEntries = conf.getMaxCompactAckEntries();
         this.maxPendingSendRequests = conf.getMaxPendingPublishRequestsPerConnection();
         this.resumeReadsThreshold = maxPendingSendRequests / 2;
         this.preciseDispatcherFlowControl = conf.isPreciseDispatcherFlowControl();
@@ -818,7 +823,10 @@ public class ServerCnx extends PulsarHandler implements TransportCnx {
             }
             maybeScheduleAuthenticationCredentialsRefresh();
         }
-        writeAndFlush(Commands.newConnected(clientProtoVersion, maxMessageSize, enableSubscriptionPatternEvaluation));
+        BaseCommand connected = Commands.newConnectedCommand(clientProtoVersion, maxMessageSize,
+                enableSubscriptionPatternEvaluation);
+        connected.getConnected().setMaxCompactAckEntries(maxCompactAckEntries);
+        writeAndFlush(Commands.serializeWithSize(connected));
         state = State.Connected;
         service.getPulsarStats().recordConnectionCreateSuccess();
         if (log.isDebugEnabled()) {
@@ -1328,7 +1336,8 @@ public class ServerCnx extends PulsarHandler implements TransportCnx {
                     return null;
                 }
 
-                service.isAllowAutoTopicCreationAsync(topicName.toString())
+                checkCompressionDictionariesSupported(topicName)
+                        .thenCompose(__ -> service.isAllowAutoTopicCreationAsync(topicName.toString()))
                         .thenApply(isAllowed -> forceTopicCreation && isAllowed)
                         .thenCompose(createTopicIfDoesNotExist ->
                                 service.getTopic(topicName.toString(), createTopicIfDoesNotExist))
@@ -2458,6 +2467,11 @@ public class ServerCnx extends PulsarHandler implements TransportCnx {
         if (batchSize <= 1){
             return -1;
         }
+        if (metadata.hasCompressionDictionaryVersion()) {
+            // The compaction keeps the batches compressed with a dictionary as they are, without compacting out
+            // any of their messages
+            return batchSize - 1;
+        }
         if (metadata.hasCompression()) {
             var tmp = payload;
             CompressionType compressionType = metadata.getCompression();
@@ -2637,6 +2651,105 @@ public class ServerCnx extends PulsarHandler implements TransportCnx {
         });
     }
 
+    @Override
+    protected void handleGetCompressionDictionary(CommandGetCompressionDictionary commandGetCompressionDictionary) {
+        checkArgument(state == State.Connected);
+        final long requestId = commandGetCompressionDictionary.getRequestId();
+        final String topic = commandGetCompressionDictionary.getTopic();
+        final Long version = commandGetCompressionDictionary.hasVersion()
+                ? commandGetCompressionDictionary.getVersion() : null;
+        if (log.isDebugEnabled()) {
+            log.debug("Received CommandGetCompressionDictionary call from {}, version: {}, topic: {}, requestId: {}",
+                    remoteAddress, version, topic, requestId);
+        }
+
+        final TopicName topicName;
+        try {
+            topicName = TopicName.get(topic);
+        } catch (Throwable t) {
+            commandSender.sendGetCompressionDictionaryErrorResponse(requestId, ServerError.InvalidTopicName,
+                    t.getMessage());
+            return;
+        }
+
+        // The dictionaries are built from the content of the messages, so they are only given to the clients
+        // allowed to lookup the topic
+        isTopicOperationAllowed(topicName, TopicOperation.LOOKUP, authenticationData, originalAuthData)
+                .thenCompose(isAuthorized -> {
+                    if (!isAuthorized) {
+                        commandSender.sendGetCompressionDictionaryErrorResponse(requestId,
+                                ServerError.AuthorizationError, "Client is not authorized to get the dictionary");
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    CompressionDictionaryResources resources =
+                            getBrokerService().pulsar().getPulsarResources().getCompressionDictionaryResources();
+                    return (version == null ? getLatestCompressionDictionaryForProducer(topicName, resources)
+                            : resources.getCompressionDictionaryAsync(topicName, version))
+                            .thenAccept(dictionary -> {
+                                if (dictionary.isEmpty() && version != null) {
+                                    commandSender.sendGetCompressionDictionaryErrorResponse(requestId,
+                                            ServerError.TopicNotFound, String.format(
+                                                    "Compression dictionary %d not found for %s", version, topic));
+                                } else {
+                                    commandSender.sendGetCompressionDictionaryResponse(requestId,
+                                            dictionary.orElse(null));
+                                }
+                            });
+                }).exceptionally(ex -> {
+                    log.warn("[{}] Failed to get the compression dictionary of {}", remoteAddress, topic, ex);
+                    commandSender.sendGetCompressionDictionaryErrorResponse(requestId, ServerError.UnknownError,
+                            ex.getMessage());
+                    return null;
+                });
+    }
+
+    /**
+     * Gets the latest dictionary for a producer, unless the messages it compresses could reach a consumer or a
+     * remote cluster that can't decompress them, in which case the producer falls back to the plain compression.
+     */
+    private CompletableFuture<Optional<CompressionDictionary>> getLatestCompressionDictionaryForProducer(
+            TopicName topicName, CompressionDictionaryResources resources) {
+        return service.getTopicIfExists(topicName.toString()).thenCompose(optTopic -> {
+            if (optTopic.isPresent() && !canUseCompressionDictionaries(optTopic.get())) {
+                return CompletableFuture.completedFuture(Optional.empty());
+            }
+            return resources.getLatestCompressionDictionaryAsync(topicName);
+        });
+    }
+
+    private static boolean canUseCompressionDictionaries(Topic topic) {
+        // The dictionaries are stored in the local metadata store, so the remote clusters don't have them
+        if (!topic.getReplicators().isEmpty()) {
+            return false;
+        }
+        for (Subscription subscription : topic.getSubscriptions().values()) {
+            for (Consumer consumer : subscription.getConsumers()) {
+                if (!consumer.cnx().isClientSupportsCompressionDictionaries()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Rejects a consumer which can't decompress the messages compressed with the dictionary of the topic, instead
+     * of letting it discard them as corrupted. The consumer is allowed again once the dictionary is removed.
+     */
+    private CompletableFuture<Void> checkCompressionDictionariesSupported(TopicName topicName) {
+        if (isClientSupportsCompressionDictionaries()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return getBrokerService().pulsar().getPulsarResources().getCompressionDictionaryResources()
+                .hasCompressionDictionariesAsync(topicName)
+                .thenCompose(hasDictionaries -> hasDictionaries
+                        ? FutureUtil.failedFuture(new BrokerServiceException.NotAllowedException(
+                                "The topic " + topicName + " is compressed with a dictionary, which is not"
+                                        + " supported by the client. Upgrade the client, or remove the compression"
+                                        + " dictionary of the topic with the admin API and unload the topic"))
+                        : CompletableFuture.completedFuture(null));
+    }
+
     @Override
     protected void handleGetOrCreateSchema(CommandGetOrCreateSchema commandGetOrCreateSchema) {
         checkArgument(state == State.Connected);
@@ -111,4 +111,9 @@ public interface TransportCnx {
         return getFeatures() != null && getFeatures().hasSupportsReplDedupByLidAndEid()
                 && getFeatures().isSupportsReplDedupByLidAndEid();
     }
+
+    default boolean isClientSupportsCompressionDictionaries() {
+        return getFeatures() != null && getFeatures().hasSupportsCompressionDictionaries()
+                && getFeatures().isSupportsCompressionDictionaries();
+    }
 }
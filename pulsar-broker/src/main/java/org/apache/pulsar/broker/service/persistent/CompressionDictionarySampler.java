@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.service.persistent;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.bookkeeper.mledger.AsyncCallbacks;
+import org.apache.bookkeeper.mledger.Entry;
+import org.apache.bookkeeper.mledger.ManagedLedger;
+import org.apache.bookkeeper.mledger.ManagedLedgerException;
+import org.apache.bookkeeper.mledger.Position;
+import org.apache.pulsar.common.api.proto.MessageMetadata;
+import org.apache.pulsar.common.api.proto.SingleMessageMetadata;
+import org.apache.pulsar.common.compression.CompressionCodec;
+import org.apache.pulsar.common.compression.CompressionCodecProvider;
+import org.apache.pulsar.common.protocol.Commands;
+
+/**
+ * Reads the payloads of the latest messages of a topic, to train a compression dictionary.
+ *
+ * <p/>The entries are read one by one from the last one, skipping the encrypted, chunked and marker messages, until
+ * enough messages are read or the beginning of the topic is reached. Each read is started from the executor, so the
+ * stack does not grow with the number of entries when the reads complete synchronously from the cache.
+ */
+@Slf4j
+public class CompressionDictionarySampler {
+
+    private final ManagedLedger managedLedger;
+    private final Executor executor;
+    private final int numSamples;
+    private final Function<Long, CompletableFuture<byte[]>> dictionaryLoader;
+    private final List<byte[]> samples = new ArrayList<>();
+    private final MessageMetadata metadata = new MessageMetadata();
+    private final SingleMessageMetadata singleMessageMetadata = new SingleMessageMetadata();
+    private final CompletableFuture<List<byte[]>> future = new CompletableFuture<>();
+
+    /**
+     * @param dictionaryLoader loads a version of the dictionary of the topic, to read the messages compressed with
+     *                         a previous dictionary
+     */
+    public CompressionDictionarySampler(ManagedLedger managedLedger, Executor executor, int numSamples,
+                                        Function<Long, CompletableFuture<byte[]>> dictionaryLoader) {
+        this.managedLedger = managedLedger;
+        this.executor = executor;
+        this.numSamples = numSamples;
+        this.dictionaryLoader = dictionaryLoader;
+    }
+
+    public CompletableFuture<List<byte[]>> readSamples() {
+        readEntry(managedLedger.getLastConfirmedEntry());
+        return future;
+    }
+
+    private void readEntry(Position position) {
+        if (samples.size() >= numSamples || position == null || position.getEntryId() < 0) {
+            future.complete(samples);
+            return;
+        }
+        managedLedger.asyncReadEntry(position, new AsyncCallbacks.ReadEntryCallback() {
+            @Override
+            public void readEntryComplete(Entry entry, Object ctx) {
+                addSamples(entry).whenComplete((__, ex) -> {
+                    entry.release();
+                    if (ex != null) {
+                        future.completeExceptionally(ex);
+                    } else {
+                        Position previous = managedLedger.getPreviousPosition(position);
+                        executor.execute(() -> readEntry(previous));
+                    }
+                });
+            }
+
+            @Override
+            public void readEntryFailed(ManagedLedgerException exception, Object ctx) {
+                if (samples.isEmpty()) {
+                    future.completeExceptionally(exception);
+                } else {
+                    // The older entries may have been trimmed, so use the messages read so far
+                    log.info("[{}] Stop reading compression dictionary samples at {}: {}",
+                            managedLedger.getName(), position, exception.getMessage());
+                    future.complete(samples);
+                }
+            }
+        }, null);
+    }
+
+    private CompletableFuture<Void> addSamples(Entry entry) {
+        ByteBuf payload = entry.getDataBuffer();
+        Commands.parseMessageMetadata(payload, metadata);
+        if (metadata.getEncryptionKeysCount() > 0 || metadata.hasMarkerType()
+                || metadata.getNumChunksFromMsg() > 1) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<byte[]> dictionary = metadata.hasCompressionDictionaryVersion()
+                ? dictionaryLoader.apply(metadata.getCompressionDictionaryVersion())
+                : CompletableFuture.completedFuture(null);
+        boolean batch = metadata.hasNumMessagesInBatch();
+        int batchSize = metadata.getNumMessagesInBatch();
+        CompressionCodec codec = CompressionCodecProvider.getCompressionCodec(metadata.getCompression());
+        int uncompressedSize = metadata.getUncompressedSize();
+        return dictionary.thenAccept(data -> {
+            ByteBuf uncompressed;
+            try {
+                uncompressed = codec.decode(payload, uncompressedSize, data);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            try {
+                if (!batch) {
+                    samples.add(ByteBufUtil.getBytes(uncompressed));
+                    return;
+                }
+                for (int i = 0; i < batchSize; i++) {
+                    ByteBuf singleMessagePayload =
+                            Commands.deSerializeSingleMessageInBatch(uncompressed, singleMessageMetadata, i, batchSize);
+                    if (!singleMessageMetadata.isCompactedOut() && !singleMessageMetadata.isNullValue()) {
+                        samples.add(ByteBufUtil.getBytes(singleMessagePayload));
+                    }
+                    singleMessagePayload.release();
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            } finally {
+                uncompressed.release();
+            }
+        });
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.service.persistent;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pulsar.broker.service.Consumer;
+import org.jctools.queues.MessagePassingQueue;
+import org.jctools.queues.MpscUnboundedArrayQueue;
+
+/**
+ * Collects the flow permits sent by the consumers of a dispatcher from any number of connection threads without
+ * locking, and hands them over in batches to a single task running on an executor.
+ *
+ * <p/>There is at most one task processing the flows at any time, so the handler is never called concurrently. A
+ * flow offered while a batch is being processed is either picked up by the running task, or schedules a new task
+ * once the running one is done. This lets the dispatcher take its lock once per batch of flows, instead of once per
+ * flow command with all the connections contending on it.
+ *
+ * <p/>Only the flow commands go through this batcher, it doesn't make the dispatcher lock-free. The reads, the read
+ * completions, the redeliveries and the consumer changes still take the dispatcher lock on their own: the
+ * redeliveries and the consumer changes expect their effect on the dispatcher to be visible when the call returns,
+ * and there is at most one pending read of each type, so its completion has nothing to be batched with. The acks
+ * don't take the dispatcher lock.
+ */
+@Slf4j
+final class ConsumerFlowBatcher {
+
+    private static final AtomicIntegerFieldUpdater<ConsumerFlowBatcher> PENDING_SIGNALS_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(ConsumerFlowBatcher.class, "pendingSignals");
+    // bounds the time spent by the handler on a single batch while holding the dispatcher lock
+    private static final int MAX_BATCH_SIZE = 1024;
+
+    record ConsumerFlow(Consumer consumer, int additionalNumberOfMessages) {
+    }
+
+    interface Handler {
+        /**
+         * Apply a batch of flows, the list can't be used once the handler returns.
+         */
+        void apply(List<ConsumerFlow> flows);
+    }
+
+    private final MessagePassingQueue<ConsumerFlow> queue;
+    private final Executor executor;
+    private final Handler handler;
+    // only accessed by the processing task
+    private final List<ConsumerFlow> batch = new ArrayList<>();
+    // number of flows offered since the processing task last checked, a task is scheduled when it was 0
+    private volatile int pendingSignals = 0;
+
+    ConsumerFlowBatcher(Executor executor, Handler handler) {
+        this.queue = new MpscUnboundedArrayQueue<>(64);
+        this.executor = executor;
+        this.handler = handler;
+    }
+
+    void offer(Consumer consumer, int additionalNumberOfMessages) {
+        queue.offer(new ConsumerFlow(consumer, additionalNumberOfMessages));
+        if (PENDING_SIGNALS_UPDATER.getAndIncrement(this) == 0) {
+            try {
+                executor.execute(this::processFlows);
+            } catch (RejectedExecutionException e) {
+                // e.g. while shutting down, the flows are processed by the offering thread so that the pending
+                // signals get back to 0 and the next flows are not left in the queue
+                processFlows();
+            }
+        }
+    }
+
+    private void processFlows() {
+        int missed = 1;
+        while (true) {
+            int drained = queue.drain(batch::add, MAX_BATCH_SIZE);
+            if (drained > 0) {
+                try {
+                    handler.apply(batch);
+                } catch (Throwable t) {
+                    log.error("Failed to process a batch of {} consumer flows", drained, t);
+                } finally {
+                    batch.clear();
+                }
+            }
+            if (drained == MAX_BATCH_SIZE) {
+                // there may be more flows to process
+                continue;
+            }
+            // the flows offered while processing the batch are processed by this task, instead of a new one
+            missed = PENDING_SIGNALS_UPDATER.addAndGet(this, -missed);
+            if (missed == 0) {
+                break;
+            }
+        }
+    }
+
+    @VisibleForTesting
+    int size() {
+        return queue.size();
+    }
+}
@@ -158,6 +158,20 @@ public class GeoPersistentReplicator extends PersistentReplicator {
                     continue;
                 }
 
+                if (msg.getMessageBuilder().hasCompressionDictionaryVersion()) {
+                    // The compression dictionaries are stored in the local metadata store, so the remote cluster
+                    // can't decompress the message. The producers don't get the dictionaries while the topic is
+                    // replicated, so only the messages compressed before they reconnect are skipped.
+                    log.warn("[{}] Skipping message at position {} compressed with the dictionary version {}",
+                            replicatorId, entry.getPosition(),
+                            msg.getMessageBuilder().getCompressionDictionaryVersion());
+                    cursor.asyncDelete(entry.getPosition(), this, entry.getPosition());
+                    inFlightTask.incCompletedEntries();
+                    entry.release();
+                    msg.recycle();
+                    continue;
+                }
+
                 if (msg.isExpired(messageTTLInSeconds)) {
                     msgExpired.recordEvent(0 /* no value stat */);
                     if (log.isDebugEnabled()) {
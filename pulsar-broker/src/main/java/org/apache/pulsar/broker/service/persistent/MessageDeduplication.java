@@ -22,10 +22,10 @@ import static org.apache.pulsar.client.impl.GeoReplicationProducerImpl.MSG_PROP_
 import static org.apache.pulsar.client.impl.GeoReplicationProducerImpl.MSG_PROP_REPL_SOURCE_POSITION;
 import com.google.common.annotations.VisibleForTesting;
 import io.netty.buffer.ByteBuf;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
@@ -107,12 +107,12 @@ public class MessageDeduplication {
     // Map that contains the highest sequenceId that have been sent by each producers. The map will be updated before
     // the messages are persisted
     @VisibleForTesting
-    final Map<String, Long> highestSequencedPushed = new ConcurrentHashMap<>();
+    final ProducerSequenceIdMap highestSequencedPushed = new ProducerSequenceIdMap();
 
     // Map that contains the highest sequenceId that have been persistent by each producers. The map will be updated
     // after the messages are persisted
     @VisibleForTesting
-    final Map<String, Long> highestSequencedPersisted = new ConcurrentHashMap<>();
+    final ProducerSequenceIdMap highestSequencedPersisted = new ProducerSequenceIdMap();
 
     // Number of persisted entries after which to store a snapshot of the sequence ids map
     private final int snapshotInterval;
@@ -146,6 +146,7 @@ public class MessageDeduplication {
     }
 
     private CompletableFuture<Void> recoverSequenceIdsMap() {
+        long recoveryStartNanos = System.nanoTime();
         // Load the sequence ids from the snapshot in the cursor properties
         managedCursor.getProperties().forEach((k, v) -> {
             producerRemoved(k);
@@ -153,12 +154,18 @@ public class MessageDeduplication {
             highestSequencedPersisted.put(k, v);
         });
 
-        // Replay all the entries and apply all the sequence ids updates
+        // Replay the entries published after the snapshot and apply their sequence ids updates
         log.info("[{}] Replaying {} entries for deduplication", topic.getName(), managedCursor.getNumberOfEntries());
         CompletableFuture<Position> future = new CompletableFuture<>();
         replayCursor(future);
         return future.thenCompose(lastPosition -> {
-            if (lastPosition != null && snapshotCounter >= snapshotInterval) {
+            long recoveryTimeMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - recoveryStartNanos);
+            log.info("[{}] Recovered the sequence ids of {} producers for deduplication in {} ms", topic.getName(),
+                    highestSequencedPersisted.size(), recoveryTimeMs);
+            pulsar.getBrokerService().getPulsarStats().recordDeduplicationRecoveryTimeValue(topic.getName(),
+                    recoveryTimeMs);
+            if (lastPosition != null) {
+                // Store a snapshot of the replayed entries, so that they aren't replayed again by the next recovery
                 snapshotCounter = 0;
                 return takeSnapshot(lastPosition);
             }
@@ -598,9 +605,7 @@ public class MessageDeduplication {
         }
 
         highestSequencedPushed.clear();
-        for (String producer : highestSequencedPersisted.keySet()) {
-            highestSequencedPushed.put(producer, highestSequencedPersisted.get(producer));
-        }
+        highestSequencedPersisted.forEach(highestSequencedPushed::put);
     }
 
     private CompletableFuture<Void> takeSnapshot(Position position) {
@@ -614,7 +619,7 @@ public class MessageDeduplication {
             return future;
         }
 
-        Map<String, Long> snapshot = new TreeMap<>();
+        Map<String, Long> snapshot = new HashMap<>();
         highestSequencedPersisted.forEach((producerName, sequenceId) -> {
             if (snapshot.size() < maxNumberOfProducers) {
                 snapshot.put(producerName, sequenceId);
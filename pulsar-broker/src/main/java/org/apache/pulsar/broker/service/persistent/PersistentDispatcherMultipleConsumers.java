@@ -52,7 +52,6 @@ import org.apache.pulsar.broker.ServiceConfiguration;
 import org.apache.pulsar.broker.delayed.BucketDelayedDeliveryTrackerFactory;
 import org.apache.pulsar.broker.delayed.DelayedDeliveryTracker;
 import org.apache.pulsar.broker.delayed.DelayedDeliveryTrackerFactory;
-import org.apache.pulsar.broker.delayed.InMemoryDelayedDeliveryTracker;
 import org.apache.pulsar.broker.delayed.bucket.BucketDelayedDeliveryTracker;
 import org.apache.pulsar.broker.loadbalance.extensions.data.BrokerLookupData;
 import org.apache.pulsar.broker.service.AbstractDispatcherMultipleConsumers;
@@ -144,6 +143,9 @@ public class PersistentDispatcherMultipleConsumers extends AbstractPersistentDis
     }
     private Position lastMarkDeletePositionBeforeReadMoreEntries;
     private volatile long readMoreEntriesCallCount;
+    // flow permits requested by the consumers are applied in batches, with a single acquisition of the dispatcher
+    // lock per batch, see #processConsumerFlows
+    private final ConsumerFlowBatcher consumerFlows;
 
     public PersistentDispatcherMultipleConsumers(PersistentTopic topic, ManagedCursor cursor,
             Subscription subscription) {
@@ -174,6 +176,8 @@ public class PersistentDispatcherMultipleConsumers extends AbstractPersistentDis
                 serviceConfiguration.getDispatcherRetryBackoffInitialTimeInMs(), TimeUnit.MILLISECONDS,
                 serviceConfiguration.getDispatcherRetryBackoffMaxTimeInMs(), TimeUnit.MILLISECONDS,
                 0, TimeUnit.MILLISECONDS);
+        this.consumerFlows = new ConsumerFlowBatcher(
+                task -> topic.getBrokerService().executor().execute(task), this::processConsumerFlows);
     }
 
     @Override
@@ -194,7 +198,7 @@ public class PersistentDispatcherMultipleConsumers extends AbstractPersistentDis
             redeliveryMessages.clear();
             delayedDeliveryTracker.ifPresent(tracker -> {
                 // Don't clean up BucketDelayedDeliveryTracker, otherwise we will lose the bucket snapshot
-                if (tracker instanceof InMemoryDelayedDeliveryTracker) {
+                if (tracker.isClearedOnRewind()) {
                     tracker.clear();
                 }
             });
@@ -289,17 +293,30 @@ public class PersistentDispatcherMultipleConsumers extends AbstractPersistentDis
 
     @Override
     public void consumerFlow(Consumer consumer, int additionalNumberOfMessages) {
-        topic.getBrokerService().executor().execute(() -> {
-            internalConsumerFlow(consumer, additionalNumberOfMessages);
-        });
+        consumerFlows.offer(consumer, additionalNumberOfMessages);
+    }
+
+    /**
+     * Apply a batch of flow permits enqueued by the consumers. Only a single batch is processed at a time.
+     */
+    private void processConsumerFlows(List<ConsumerFlowBatcher.ConsumerFlow> flows) {
+        boolean permitsAdded = false;
+        synchronized (this) {
+            for (ConsumerFlowBatcher.ConsumerFlow flow : flows) {
+                permitsAdded |= internalConsumerFlow(flow.consumer(), flow.additionalNumberOfMessages());
+            }
+        }
+        if (permitsAdded) {
+            readMoreEntriesAsync();
+        }
     }
 
-    private synchronized void internalConsumerFlow(Consumer consumer, int additionalNumberOfMessages) {
+    private synchronized boolean internalConsumerFlow(Consumer consumer, int additionalNumberOfMessages) {
         if (!consumerSet.contains(consumer)) {
             if (log.isDebugEnabled()) {
                 log.debug("[{}] Ignoring flow control from disconnected consumer {}", name, consumer);
             }
-            return;
+            return false;
         }
 
         totalAvailablePermits += additionalNumberOfMessages;
@@ -309,7 +326,7 @@ public class PersistentDispatcherMultipleConsumers extends AbstractPersistentDis
                             + "after adding {} permits", name, consumer,
                     totalAvailablePermits, additionalNumberOfMessages);
         }
-        readMoreEntriesAsync();
+        return true;
     }
 
     /**
@@ -789,6 +806,19 @@ public class PersistentDispatcherMultipleConsumers extends AbstractPersistentDis
         if (entriesToDispatch == 0) {
             return true;
         }
+        if (isFastDispatchPathAllowed()) {
+            int[] batchSizes = peekBatchSizesForFastDispatchPath(entries);
+            if (batchSizes != null) {
+                int remainingMessages = 0;
+                for (int batchSize : batchSizes) {
+                    remainingMessages += batchSize;
+                }
+                return sendEntriesToConsumers(readType, entries, remainingMessages,
+                        (start, entriesForThisConsumer, entryBatchSizes, sendMessageInfo, batchIndexesAcks, c) ->
+                                prepareEntriesForFastDispatchPath(batchSizes, start, entriesForThisConsumer,
+                                        entryBatchSizes, sendMessageInfo, batchIndexesAcks));
+            }
+        }
         final MessageMetadata[] metadataArray = new MessageMetadata[entries.size()];
         int remainingMessages = 0;
         boolean hasChunk = false;
@@ -815,6 +845,33 @@ public class PersistentDispatcherMultipleConsumers extends AbstractPersistentDis
             return sendChunkedMessagesToConsumers(readType, entries, metadataArray);
         }
 
+        return sendEntriesToConsumers(readType, entries, remainingMessages,
+                (start, entriesForThisConsumer, batchSizes, sendMessageInfo, batchIndexesAcks, c) ->
+                        filterEntriesForConsumer(metadataArray, start, entriesForThisConsumer, batchSizes,
+                                sendMessageInfo, batchIndexesAcks, cursor, readType == ReadType.Replay, c));
+    }
+
+    /**
+     * Select the messages of the entries sent to a consumer, and fill their batch sizes, batch indexes acks and
+     * totals.
+     */
+    private interface EntriesForConsumerPreparer {
+        /**
+         * @return the number of entries sent to the consumer, once filtered
+         */
+        int prepare(int start, List<Entry> entriesForThisConsumer, EntryBatchSizes batchSizes,
+                    SendMessageInfo sendMessageInfo, EntryBatchIndexesAcks batchIndexesAcks, Consumer consumer);
+    }
+
+    /**
+     * Dispatch the entries to the available consumers in a round-robin way, and store the entries that could not
+     * be dispatched for a later replay.
+     *
+     * @return true if you want to trigger a new read.
+     */
+    private boolean sendEntriesToConsumers(ReadType readType, List<Entry> entries, int remainingMessages,
+                                           EntriesForConsumerPreparer preparer) {
+        int entriesToDispatch = entries.size();
         int start = 0;
         long totalMessagesSent = 0;
         long totalBytesSent = 0;
@@ -861,10 +918,11 @@ public class PersistentDispatcherMultipleConsumers extends AbstractPersistentDis
             EntryBatchSizes batchSizes = EntryBatchSizes.get(entriesForThisConsumer.size());
             EntryBatchIndexesAcks batchIndexesAcks = EntryBatchIndexesAcks.get(entriesForThisConsumer.size());
 
-            totalEntries += filterEntriesForConsumer(metadataArray, start,
-                    entriesForThisConsumer, batchSizes, sendMessageInfo, batchIndexesAcks, cursor,
-                    readType == ReadType.Replay, c);
+            totalEntries += preparer.prepare(start, entriesForThisConsumer, batchSizes, sendMessageInfo,
+                    batchIndexesAcks, c);
             totalEntriesProcessed += entriesForThisConsumer.size();
+            // the batch indexes acks are recycled once the messages are written
+            int ackedIndexCount = batchIndexesAcks.getTotalAckedIndexCount();
 
             c.sendMessages(entriesForThisConsumer, batchSizes, batchIndexesAcks, sendMessageInfo.getTotalMessages(),
                     sendMessageInfo.getTotalBytes(), sendMessageInfo.getTotalChunkedMessages(), redeliveryTracker);
@@ -873,12 +931,11 @@ public class PersistentDispatcherMultipleConsumers extends AbstractPersistentDis
             remainingMessages -= msgSent;
             start += maxEntriesInThisBatch;
             entriesToDispatch -= maxEntriesInThisBatch;
-            TOTAL_AVAILABLE_PERMITS_UPDATER.addAndGet(this,
-                    -(msgSent - batchIndexesAcks.getTotalAckedIndexCount()));
+            TOTAL_AVAILABLE_PERMITS_UPDATER.addAndGet(this, -(msgSent - ackedIndexCount));
             if (log.isDebugEnabled()) {
                 log.debug("[{}] Added -({} minus {}) permits to TOTAL_AVAILABLE_PERMITS_UPDATER in "
                                 + "PersistentDispatcherMultipleConsumers",
-                        name, msgSent, batchIndexesAcks.getTotalAckedIndexCount());
+                        name, msgSent, ackedIndexCount);
             }
             totalMessagesSent += sendMessageInfo.getTotalMessages();
             totalBytesSent += sendMessageInfo.getTotalBytes();
@@ -898,6 +955,78 @@ public class PersistentDispatcherMultipleConsumers extends AbstractPersistentDis
         return true;
     }
 
+    /**
+     * The fast dispatch path skips the entry filters, the delayed delivery tracking and the transaction checks of
+     * {@link #filterEntriesForConsumer}, so it can only be used when none of them applies to the subscription.
+     */
+    private boolean isFastDispatchPathAllowed() {
+        return serviceConfig.isDispatcherFastPathEnabled()
+                && !hasFilter
+                && !topic.isDelayedDeliveryEnabled()
+                && !serviceConfig.isTransactionCoordinatorEnabled()
+                && subscription.interceptor() == null;
+    }
+
+    /**
+     * Peek the number of messages of each entry, without copying the metadata of the entries.
+     *
+     * <p/>The metadata is only reused when the entry already carries it. The entries read from the managed ledger
+     * cache are raw buffers, and {@link EntryBatchSizes} is filled by {@link #filterEntriesForConsumer}, which the
+     * fast path skips.
+     *
+     * @return the number of messages of each entry, or null if one of the entries has to go through the regular
+     *         dispatch path: chunks, markers, transactional messages and entries with corrupted metadata
+     */
+    private int[] peekBatchSizesForFastDispatchPath(List<Entry> entries) {
+        final int[] batchSizes = new int[entries.size()];
+        final String subscriptionName = subscription.toString();
+        for (int i = 0; i < batchSizes.length; i++) {
+            Entry entry = entries.get(i);
+            MessageMetadata metadata;
+            if (entry instanceof EntryAndMetadata) {
+                metadata = ((EntryAndMetadata) entry).getMetadata();
+            } else {
+                // the metadata is only used in this loop, the thread local instance can be used
+                metadata = Commands.peekMessageMetadata(entry.getDataBuffer(), subscriptionName, -1);
+            }
+            if (metadata == null || metadata.hasUuid() || metadata.hasMarkerType() || metadata.hasTxnidMostBits()) {
+                return null;
+            }
+            batchSizes[i] = metadata.getNumMessagesInBatch();
+        }
+        return batchSizes;
+    }
+
+    /**
+     * Same as {@link #filterEntriesForConsumer} for entries that don't need to be filtered, the messages are written
+     * to the connection of the consumer with a single composite buffer.
+     *
+     * @return the number of entries sent to the consumer
+     */
+    private int prepareEntriesForFastDispatchPath(int[] batchSizes, int start, List<Entry> entriesForThisConsumer,
+                                                  EntryBatchSizes entryBatchSizes, SendMessageInfo sendMessageInfo,
+                                                  EntryBatchIndexesAcks batchIndexesAcks) {
+        int messages = 0;
+        long bytes = 0;
+        for (int i = 0; i < entriesForThisConsumer.size(); i++) {
+            Entry entry = entriesForThisConsumer.get(i);
+            int batchSize = batchSizes[start + i];
+            entryBatchSizes.setBatchSize(i, batchSize);
+            if (batchSize > 1) {
+                // only the messages of a batch can be individually acknowledged
+                long[] ackSet = cursor.getDeletedBatchIndexesAsLongArray(entry.getPosition());
+                if (ackSet != null) {
+                    batchIndexesAcks.setIndexesAcks(i, Pair.of(batchSize, ackSet));
+                }
+            }
+            messages += batchSize;
+            bytes += entry.getLength();
+        }
+        entryBatchSizes.setCompositeWrite(true);
+        sendMessageInfo.setTotalMessages(messages);
+        sendMessageInfo.setTotalBytes(bytes);
+        return entriesForThisConsumer.size();
+    }
 
     @VisibleForTesting
     static int getMaxEntriesInThisBatch(int remainingMessages,
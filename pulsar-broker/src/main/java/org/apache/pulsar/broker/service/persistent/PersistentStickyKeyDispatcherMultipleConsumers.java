@@ -418,9 +418,11 @@ public class PersistentStickyKeyDispatcherMultipleConsumers extends PersistentDi
                 entry = entryAndMetadataInstance;
             } else {
                 // replace the input entry with EntryAndMetadata instance. In addition to the entry and metadata,
-                // it will also carry the calculated sticky key hash
+                // it will also carry the calculated sticky key hash. A replayed entry reuses the hash that was
+                // stored when it was added to the replay queue.
                 entry = EntryAndMetadata.create(inputEntry,
-                        Commands.peekAndCopyMessageMetadata(inputEntry.getDataBuffer(), getSubscriptionName(), -1));
+                        Commands.peekAndCopyMessageMetadata(inputEntry.getDataBuffer(), getSubscriptionName(), -1),
+                        readType == ReadType.Replay ? getStoredStickyKeyHash(inputEntry) : STICKY_KEY_HASH_NOT_SET);
             }
             int stickyKeyHash = getStickyKeyHash(entry);
             Consumer consumer = null;
@@ -600,6 +602,11 @@ public class PersistentStickyKeyDispatcherMultipleConsumers extends PersistentDi
         }
     }
 
+    private int getStoredStickyKeyHash(Entry entry) {
+        Long stickyKeyHash = redeliveryMessages.getHash(entry.getLedgerId(), entry.getEntryId());
+        return stickyKeyHash != null ? stickyKeyHash.intValue() : STICKY_KEY_HASH_NOT_SET;
+    }
+
     @Override
     protected int getStickyKeyHash(Entry entry) {
         if (entry instanceof EntryAndMetadata entryAndMetadata) {
@@ -22,6 +22,7 @@ import static org.apache.pulsar.broker.service.AbstractBaseDispatcher.checkAndAp
 import static org.apache.pulsar.common.naming.SystemTopicNames.isEventSystemTopic;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.MoreObjects;
+import com.google.common.collect.Range;
 import io.netty.buffer.ByteBuf;
 import java.io.IOException;
 import java.util.Collections;
@@ -439,11 +440,8 @@ public class PersistentSubscription extends AbstractSubscription {
             }
             cursor.asyncDelete(positions, deleteCallback, previousMarkDeletePosition);
             if (config.isTransactionCoordinatorEnabled()) {
-                positions.forEach(position -> {
-                    if ((cursor.isMessageDeleted(position))) {
-                        pendingAckHandle.clearIndividualPosition(position);
-                    }
-                });
+                positions.forEach(position -> pendingAckHandle.clearIndividualPositions(Range.singleton(position),
+                        cursor::isMessageDeleted));
             }
 
             if (dispatcher != null) {
@@ -451,6 +449,32 @@ public class PersistentSubscription extends AbstractSubscription {
             }
         }
 
+        afterAcknowledgeMessage(previousMarkDeletePosition);
+    }
+
+    @Override
+    public void acknowledgeMessageRanges(List<Range<Position>> ranges, Map<String, Long> properties) {
+        cursor.updateLastActive();
+        Position previousMarkDeletePosition = cursor.getMarkDeletedPosition();
+
+        if (log.isDebugEnabled()) {
+            log.debug("[{}][{}] Individual acks on ranges {}", topicName, subName, ranges);
+        }
+        cursor.asyncDeleteRanges(ranges, deleteCallback, previousMarkDeletePosition);
+        if (config.isTransactionCoordinatorEnabled()) {
+            for (Range<Position> range : ranges) {
+                pendingAckHandle.clearIndividualPositions(range, cursor::isMessageDeleted);
+            }
+        }
+
+        if (dispatcher != null) {
+            dispatcher.getRedeliveryTracker().removeRanges(ranges);
+        }
+
+        afterAcknowledgeMessage(previousMarkDeletePosition);
+    }
+
+    private void afterAcknowledgeMessage(Position previousMarkDeletePosition) {
         if (!cursor.getMarkDeletedPosition().equals(previousMarkDeletePosition)) {
             this.updateLastMarkDeleteAdvancedTimestamp();
 
@@ -1243,6 +1267,18 @@ public class PersistentSubscription extends AbstractSubscription {
         return expiryMonitor;
     }
 
+    public long getLastExpireTimestamp() {
+        return lastExpireTimestamp;
+    }
+
+    public long getLastConsumedFlowTimestamp() {
+        return lastConsumedFlowTimestamp;
+    }
+
+    public long getLastMarkDeleteAdvancedTimestamp() {
+        return lastMarkDeleteAdvancedTimestamp;
+    }
+
     public long estimateBacklogSize() {
         return cursor.getEstimatedSizeSinceMarkDeletePosition();
     }
@@ -1552,6 +1552,8 @@ public class PersistentTopic extends AbstractTopic implements Topic, AddEntryCal
                     brokerService.deleteTopicAuthenticationWithRetry(topic, deleteTopicAuthenticationFuture, 5);
 
                         deleteTopicAuthenticationFuture.thenCompose(ignore -> deleteSchema())
+                                .thenCompose(ignore -> brokerService.deleteCompressionDictionaries(
+                                        TopicName.get(topic)))
                                 .thenCompose(ignore -> deleteTopicPolicies())
                                 .thenCompose(ignore -> transactionBufferCleanupAndClose())
                                 .whenComplete((v, ex) -> {
@@ -3498,7 +3500,16 @@ public class PersistentTopic extends AbstractTopic implements Topic, AddEntryCal
     }
 
     private CompletableFuture<Void> applyUpdatedNamespacePolicies(Policies namespaceLevelPolicies) {
-        return FutureUtil.runWithCurrentThread(() -> updateResourceGroupLimiter(namespaceLevelPolicies));
+        return FutureUtil.waitForAll(List.of(
+                FutureUtil.runWithCurrentThread(() -> updateResourceGroupLimiter(namespaceLevelPolicies)),
+                FutureUtil.runWithCurrentThread(() -> updateCursorReadAheadMaxBatches(namespaceLevelPolicies))));
+    }
+
+    private void updateCursorReadAheadMaxBatches(Policies namespaceLevelPolicies) {
+        Integer maxBatches = namespaceLevelPolicies.cursorReadAheadMaxBatches;
+        // the cursors read the value from the managed ledger config at every read
+        ledger.getConfig().setCursorReadAheadMaxBatches(maxBatches != null ? maxBatches
+                : brokerService.getPulsar().getConfiguration().getManagedLedgerCursorReadAheadMaxBatches());
     }
 
     private List<CompletableFuture<Void>> applyUpdatedTopicPolicies() {
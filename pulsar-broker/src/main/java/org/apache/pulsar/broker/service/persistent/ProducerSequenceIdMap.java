@@ -0,0 +1,235 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.service.persistent;
+
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Map of the highest sequence ids of the producers of a topic.
+ *
+ * <p/>The producer names and the sequence ids are stored in flat arrays with open addressing and linear probing,
+ * instead of a node and a boxed {@link Long} per producer, which matters for the topics with hundreds of thousands
+ * of producer names. The lookups are lock-free unless they overlap with an update, as with the concurrent maps of
+ * {@code org.apache.pulsar.common.util.collections}.
+ */
+class ProducerSequenceIdMap {
+
+    private static final Object DELETED_KEY = new Object();
+    private static final int INITIAL_CAPACITY = 16;
+    private static final float FILL_FACTOR = 0.66f;
+
+    private static final class Table {
+        // The producer names, null for the free buckets and DELETED_KEY for the removed producers
+        private final Object[] keys;
+        private final long[] values;
+
+        Table(int capacity) {
+            this.keys = new Object[capacity];
+            this.values = new long[capacity];
+        }
+
+        int indexOf(String key, int hash) {
+            int mask = keys.length - 1;
+            int bucket = hash & mask;
+            // The table is never full, the bound only protects the optimistic reads of a table being updated
+            for (int i = 0; i < keys.length; i++) {
+                Object storedKey = keys[bucket];
+                if (storedKey == null) {
+                    return -1;
+                } else if (key.equals(storedKey)) {
+                    return bucket;
+                }
+                bucket = (bucket + 1) & mask;
+            }
+            return -1;
+        }
+    }
+
+    private final StampedLock lock = new StampedLock();
+    private volatile Table table = new Table(INITIAL_CAPACITY);
+    private volatile int size;
+    // Buckets which are not free, including the removed producers, guarded by the write lock
+    private int usedBuckets;
+
+    /**
+     * @return the sequence id of the producer, or {@code defaultValue} if the producer is unknown
+     */
+    long get(String producerName, long defaultValue) {
+        int hash = hash(producerName);
+        long stamp = lock.tryOptimisticRead();
+        Table t = table;
+        int index = t.indexOf(producerName, hash);
+        long value = index >= 0 ? t.values[index] : defaultValue;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                t = table;
+                index = t.indexOf(producerName, hash);
+                value = index >= 0 ? t.values[index] : defaultValue;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * @return the sequence id of the producer, or null if the producer is unknown
+     */
+    Long get(String producerName) {
+        long value = get(producerName, Long.MIN_VALUE);
+        if (value == Long.MIN_VALUE && !containsKey(producerName)) {
+            return null;
+        }
+        return value;
+    }
+
+    boolean containsKey(String producerName) {
+        int hash = hash(producerName);
+        long stamp = lock.tryOptimisticRead();
+        boolean found = table.indexOf(producerName, hash) >= 0;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                found = table.indexOf(producerName, hash) >= 0;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return found;
+    }
+
+    void put(String producerName, long sequenceId) {
+        int hash = hash(producerName);
+        long stamp = lock.writeLock();
+        try {
+            Table t = table;
+            int index = t.indexOf(producerName, hash);
+            if (index >= 0) {
+                // Keep the existing key, so that a single instance of the name is retained
+                t.values[index] = sequenceId;
+                return;
+            }
+
+            if (usedBuckets + 1 > t.keys.length * FILL_FACTOR) {
+                t = rehash(t);
+            }
+            int mask = t.keys.length - 1;
+            int bucket = hash & mask;
+            while (true) {
+                Object storedKey = t.keys[bucket];
+                if (storedKey == null || storedKey == DELETED_KEY) {
+                    if (storedKey == null) {
+                        usedBuckets++;
+                    }
+                    // Write the value before the key, for the optimistic reads
+                    t.values[bucket] = sequenceId;
+                    t.keys[bucket] = producerName;
+                    size++;
+                    return;
+                }
+                bucket = (bucket + 1) & mask;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    void remove(String producerName) {
+        int hash = hash(producerName);
+        long stamp = lock.writeLock();
+        try {
+            Table t = table;
+            int index = t.indexOf(producerName, hash);
+            if (index >= 0) {
+                t.keys[index] = DELETED_KEY;
+                size--;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    void clear() {
+        long stamp = lock.writeLock();
+        try {
+            table = new Table(INITIAL_CAPACITY);
+            size = 0;
+            usedBuckets = 0;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Iterate over the producers and their sequence ids, while holding the read lock.
+     */
+    void forEach(ObjLongConsumer<String> consumer) {
+        long stamp = lock.readLock();
+        try {
+            Table t = table;
+            for (int i = 0; i < t.keys.length; i++) {
+                Object key = t.keys[i];
+                if (key != null && key != DELETED_KEY) {
+                    consumer.accept((String) key, t.values[i]);
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private Table rehash(Table t) {
+        // Only grow the table if the producers, rather than the removed ones, fill it
+        int capacity = t.keys.length;
+        if (size + 1 > capacity * FILL_FACTOR / 2) {
+            capacity *= 2;
+        }
+        Table newTable = new Table(capacity);
+        int mask = capacity - 1;
+        for (int i = 0; i < t.keys.length; i++) {
+            Object key = t.keys[i];
+            if (key != null && key != DELETED_KEY) {
+                int bucket = hash((String) key) & mask;
+                while (newTable.keys[bucket] != null) {
+                    bucket = (bucket + 1) & mask;
+                }
+                newTable.keys[bucket] = key;
+                newTable.values[bucket] = t.values[i];
+            }
+        }
+        usedBuckets = size;
+        table = newTable;
+        return newTable;
+    }
+
+    private static int hash(String key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -38,6 +38,7 @@ public class BrokerOperabilityMetrics implements AutoCloseable {
     private final List<Metrics> metricsList;
     private final String localCluster;
     private final DimensionStats topicLoadStats;
+    private final DimensionStats dedupRecoveryStats;
     private final String brokerName;
     private final LongAdder connectionTotalCreatedCount;
     private final LongAdder connectionTotalClosedCount;
@@ -58,6 +59,7 @@ public class BrokerOperabilityMetrics implements AutoCloseable {
         this.metricsList = new ArrayList<>();
         this.localCluster = pulsar.getConfiguration().getClusterName();
         this.topicLoadStats = new DimensionStats("pulsar_topic_load_times", 60);
+        this.dedupRecoveryStats = new DimensionStats("pulsar_deduplication_recovery_times", 60);
         this.brokerName = pulsar.getAdvertisedAddress();
         this.connectionTotalCreatedCount = new LongAdder();
         this.connectionTotalClosedCount = new LongAdder();
@@ -103,6 +105,8 @@ public class BrokerOperabilityMetrics implements AutoCloseable {
     private void generate() {
         reset();
         metricsList.add(getTopicLoadMetrics());
+        metricsList.add(getDimensionMetrics("pulsar_deduplication_recovery_times", "dedup_recovery",
+                dedupRecoveryStats));
         metricsList.add(getConnectionMetrics());
         metricsList.add(getHealthMetrics());
     }
@@ -160,12 +164,17 @@ public class BrokerOperabilityMetrics implements AutoCloseable {
     public void reset() {
         metricsList.clear();
         topicLoadStats.reset();
+        dedupRecoveryStats.reset();
     }
 
     public void recordTopicLoadTimeValue(long topicLoadLatencyMs) {
         topicLoadStats.recordDimensionTimeValue(topicLoadLatencyMs, TimeUnit.MILLISECONDS);
     }
 
+    public void recordDeduplicationRecoveryTimeValue(long recoveryTimeMs) {
+        dedupRecoveryStats.recordDimensionTimeValue(recoveryTimeMs, TimeUnit.MILLISECONDS);
+    }
+
     public void recordTopicLoadFailed() {
         this.TOPIC_LOAD_FAILED.inc();
     }
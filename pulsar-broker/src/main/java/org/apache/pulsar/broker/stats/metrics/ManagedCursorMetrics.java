@@ -77,6 +77,8 @@ public class ManagedCursorMetrics extends AbstractMetrics {
                 metrics.put("brk_ml_cursor_writeLedgerSize", cStats.getWriteCursorLedgerSize());
                 metrics.put("brk_ml_cursor_writeLedgerLogicalSize", cStats.getWriteCursorLedgerLogicalSize());
                 metrics.put("brk_ml_cursor_readLedgerSize", cStats.getReadCursorLedgerSize());
+                metrics.put("brk_ml_cursor_readAheadHits", cStats.getReadAheadHits());
+                metrics.put("brk_ml_cursor_readAheadMisses", cStats.getReadAheadMisses());
                 metricsCollection.add(metrics);
             }
         }
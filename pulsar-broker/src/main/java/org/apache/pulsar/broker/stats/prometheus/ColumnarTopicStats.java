@@ -0,0 +1,268 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.stats.prometheus;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.apache.pulsar.common.naming.TopicName.PARTITIONED_TOPIC_SUFFIX;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+import org.apache.pulsar.broker.stats.prometheus.metrics.PrometheusLabels;
+import org.apache.pulsar.common.policies.data.BacklogQuota.BacklogQuotaType;
+import org.apache.pulsar.common.util.SimpleTextOutputStream;
+
+/**
+ * Columnar snapshot of the topic metrics having a single sample per topic.
+ *
+ * <p/>The values of each metric are kept in a primitive array indexed by topic, and the labels of a topic are encoded
+ * once for all its samples. When the snapshot is flushed, all the samples of a metric are appended at once to the
+ * stream of the metric. The snapshot holds up to {@link #MAX_TOPICS} topics and is flushed when it's full, then it's
+ * reused for the next topics and the next scrapes, so adding the metrics of a topic doesn't allocate memory.
+ *
+ * <p/>The metrics of the subscriptions, consumers, producers and replicators, which have a varying number of samples
+ * per topic, are not in the snapshot and are still written sample by sample by {@link TopicStats}.
+ */
+class ColumnarTopicStats {
+
+    static final int MAX_TOPICS = 1024;
+
+    private static final List<Column> COLUMNS = new ArrayList<>();
+
+    static {
+        longColumn("pulsar_subscriptions_count", s -> s.subscriptionsCount);
+        longColumn("pulsar_producers_count", s -> s.producersCount);
+        longColumn("pulsar_consumers_count", s -> s.consumersCount);
+
+        doubleColumn("pulsar_rate_in", s -> s.rateIn);
+        doubleColumn("pulsar_rate_out", s -> s.rateOut);
+        doubleColumn("pulsar_throughput_in", s -> s.throughputIn);
+        doubleColumn("pulsar_throughput_out", s -> s.throughputOut);
+        doubleColumn("pulsar_average_msg_size", s -> s.averageMsgSize);
+
+        longColumn("pulsar_txn_tb_active_total", s -> s.ongoingTxnCount);
+        longColumn("pulsar_txn_tb_aborted_total", s -> s.abortedTxnCount);
+        longColumn("pulsar_txn_tb_committed_total", s -> s.committedTxnCount);
+
+        longColumn("pulsar_storage_size", s -> s.managedLedgerStats.storageSize);
+        longColumn("pulsar_storage_logical_size", s -> s.managedLedgerStats.storageLogicalSize);
+        longColumn("pulsar_msg_backlog", s -> s.msgBacklog);
+        doubleColumn("pulsar_storage_write_rate", s -> s.managedLedgerStats.storageWriteRate);
+        doubleColumn("pulsar_storage_read_rate", s -> s.managedLedgerStats.storageReadRate);
+        doubleColumn("pulsar_storage_read_cache_misses_rate", s -> s.managedLedgerStats.storageReadCacheMissesRate);
+        longColumn("pulsar_storage_backlog_size", s -> s.managedLedgerStats.backlogSize);
+        longColumn("pulsar_publish_rate_limit_times", s -> s.publishRateLimitedTimes);
+        longColumn("pulsar_storage_offloaded_size", s -> s.managedLedgerStats.offloadedStorageUsed);
+        longColumn("pulsar_storage_backlog_quota_limit", s -> s.backlogQuotaLimit);
+        longColumn("pulsar_storage_backlog_quota_limit_time", s -> s.backlogQuotaLimitTime);
+        longColumn("pulsar_storage_backlog_age_seconds", s -> s.backlogAgeSeconds);
+        addColumn("pulsar_storage_backlog_quota_exceeded_evictions_total",
+                quotaTypeLabel(BacklogQuotaType.destination_storage), false,
+                s -> s.sizeBasedBacklogQuotaExceededEvictionCount, null);
+        addColumn("pulsar_storage_backlog_quota_exceeded_evictions_total",
+                quotaTypeLabel(BacklogQuotaType.message_age), false,
+                s -> s.timeBasedBacklogQuotaExceededEvictionCount, null);
+
+        longColumn("pulsar_delayed_message_index_size_bytes", s -> s.delayedMessageIndexSizeInBytes);
+
+        String[] latencyBucketSuffixes =
+                {"le_0_5", "le_1", "le_5", "le_10", "le_20", "le_50", "le_100", "le_200", "le_1000", "overflow"};
+        for (int i = 0; i < latencyBucketSuffixes.length; i++) {
+            int bucket = i;
+            longColumn("pulsar_storage_write_latency_" + latencyBucketSuffixes[i],
+                    s -> s.managedLedgerStats.storageWriteLatencyBuckets.getBuckets()[bucket]);
+        }
+        longColumn("pulsar_storage_write_latency_count",
+                s -> s.managedLedgerStats.storageWriteLatencyBuckets.getCount());
+        longColumn("pulsar_storage_write_latency_sum", s -> s.managedLedgerStats.storageWriteLatencyBuckets.getSum());
+
+        for (int i = 0; i < latencyBucketSuffixes.length; i++) {
+            int bucket = i;
+            longColumn("pulsar_storage_ledger_write_latency_" + latencyBucketSuffixes[i],
+                    s -> s.managedLedgerStats.storageLedgerWriteLatencyBuckets.getBuckets()[bucket]);
+        }
+        longColumn("pulsar_storage_ledger_write_latency_count",
+                s -> s.managedLedgerStats.storageLedgerWriteLatencyBuckets.getCount());
+        longColumn("pulsar_storage_ledger_write_latency_sum",
+                s -> s.managedLedgerStats.storageLedgerWriteLatencyBuckets.getSum());
+
+        String[] entrySizeBucketSuffixes = {"le_128", "le_512", "le_1_kb", "le_2_kb", "le_4_kb", "le_16_kb",
+                "le_100_kb", "le_1_mb", "le_overflow"};
+        for (int i = 0; i < entrySizeBucketSuffixes.length; i++) {
+            int bucket = i;
+            longColumn("pulsar_entry_size_" + entrySizeBucketSuffixes[i],
+                    s -> s.managedLedgerStats.entrySizeBuckets.getBuckets()[bucket]);
+        }
+        longColumn("pulsar_entry_size_count", s -> s.managedLedgerStats.entrySizeBuckets.getCount());
+        longColumn("pulsar_entry_size_sum", s -> s.managedLedgerStats.entrySizeBuckets.getSum());
+
+        longColumn("pulsar_in_bytes_total", s -> s.bytesInCounter);
+        longColumn("pulsar_in_messages_total", s -> s.msgInCounter);
+
+        // only written for the topics having a compaction record
+        addColumn("pulsar_compaction_removed_event_count", null, true, s -> s.compactionRemovedEventCount, null);
+        addColumn("pulsar_compaction_succeed_count", null, true, s -> s.compactionSucceedCount, null);
+        addColumn("pulsar_compaction_failed_count", null, true, s -> s.compactionFailedCount, null);
+        addColumn("pulsar_compaction_duration_time_in_mills", null, true, s -> s.compactionDurationTimeInMills, null);
+        addColumn("pulsar_compaction_read_throughput", null, true, null, s -> s.compactionReadThroughput);
+        addColumn("pulsar_compaction_write_throughput", null, true, null, s -> s.compactionWriteThroughput);
+        addColumn("pulsar_compaction_compacted_entries_count", null, true, s -> s.compactionCompactedEntriesCount,
+                null);
+        addColumn("pulsar_compaction_compacted_entries_size", null, true, s -> s.compactionCompactedEntriesSize,
+                null);
+        for (int i = 0; i < latencyBucketSuffixes.length; i++) {
+            int bucket = i;
+            addColumn("pulsar_compaction_latency_" + latencyBucketSuffixes[i], null, true,
+                    s -> s.compactionLatencyBuckets.getBuckets()[bucket], null);
+        }
+        addColumn("pulsar_compaction_latency_sum", null, true, s -> s.compactionLatencyBuckets.getSum(), null);
+        addColumn("pulsar_compaction_latency_count", null, true, s -> s.compactionLatencyBuckets.getCount(), null);
+    }
+
+    // values of the double metrics are stored with Double.doubleToRawLongBits
+    private final long[][] values = new long[COLUMNS.size()][MAX_TOPICS];
+    private final boolean[] hasCompaction = new boolean[MAX_TOPICS];
+    // encoded labels of all the topics, and the end offset of the labels of each topic
+    private final ByteBuf labels = Unpooled.buffer();
+    private final SimpleTextOutputStream labelsStream = new SimpleTextOutputStream(labels);
+    private final int[] labelsEndOffsets = new int[MAX_TOPICS];
+    private int topicsCount;
+    private int topicsWithCompactionCount;
+
+    private record Column(String metricName, byte[] sampleStart, byte[] sampleLabelsEnd, boolean compaction,
+                          ToLongFunction<TopicStats> longValue, ToDoubleFunction<TopicStats> doubleValue) {
+    }
+
+    private static void longColumn(String metricName, ToLongFunction<TopicStats> value) {
+        addColumn(metricName, null, false, value, null);
+    }
+
+    private static void doubleColumn(String metricName, ToDoubleFunction<TopicStats> value) {
+        addColumn(metricName, null, false, null, value);
+    }
+
+    private static void addColumn(String metricName, String extraLabels, boolean compaction,
+                                  ToLongFunction<TopicStats> longValue, ToDoubleFunction<TopicStats> doubleValue) {
+        byte[] sampleStart = (metricName + "{").getBytes(UTF_8);
+        byte[] sampleLabelsEnd = ((extraLabels != null ? extraLabels : "") + "} ").getBytes(UTF_8);
+        COLUMNS.add(new Column(metricName, sampleStart, sampleLabelsEnd, compaction, longValue, doubleValue));
+    }
+
+    private static String quotaTypeLabel(BacklogQuotaType backlogQuotaType) {
+        return ",quota_type=\"" + PrometheusLabels.backlogQuotaTypeLabel(backlogQuotaType) + "\"";
+    }
+
+    /**
+     * Add the metrics of a topic, the snapshot is flushed first if it's full.
+     */
+    void add(PrometheusMetricStreams stream, TopicStats stats, boolean hasCompaction, String cluster,
+             String namespace, String topic, boolean splitTopicAndPartitionIndexLabel) {
+        if (topicsCount == MAX_TOPICS) {
+            flush(stream);
+        }
+        int index = topicsCount++;
+        writeLabels(cluster, namespace, topic, splitTopicAndPartitionIndexLabel);
+        labelsEndOffsets[index] = labels.writerIndex();
+        this.hasCompaction[index] = hasCompaction;
+        if (hasCompaction) {
+            topicsWithCompactionCount++;
+        }
+        for (int i = 0; i < COLUMNS.size(); i++) {
+            Column column = COLUMNS.get(i);
+            values[i][index] = column.longValue != null ? column.longValue.applyAsLong(stats)
+                    : Double.doubleToRawLongBits(column.doubleValue.applyAsDouble(stats));
+        }
+    }
+
+    private void writeLabels(String cluster, String namespace, String topic, boolean splitTopicAndPartitionIndexLabel) {
+        labelsStream.write("cluster=\"");
+        writeLabelValue(cluster);
+        labelsStream.write("\",namespace=\"");
+        writeLabelValue(namespace);
+        labelsStream.write("\",topic=\"");
+        if (splitTopicAndPartitionIndexLabel) {
+            int index = topic.indexOf(PARTITIONED_TOPIC_SUFFIX);
+            if (index > 0) {
+                writeLabelValue(topic.substring(0, index));
+                labelsStream.write("\",partition=\"");
+                writeLabelValue(topic.substring(index + PARTITIONED_TOPIC_SUFFIX.length()));
+            } else {
+                writeLabelValue(topic);
+                labelsStream.write("\",partition=\"-1");
+            }
+        } else {
+            writeLabelValue(topic);
+        }
+        labelsStream.write('"');
+    }
+
+    private void writeLabelValue(String labelValue) {
+        if (labelValue != null && labelValue.indexOf('"') > -1) {
+            labelValue = labelValue.replace("\"", "\\\"");
+        }
+        labelsStream.write(labelValue);
+    }
+
+    /**
+     * Append the samples of all the topics to the streams of the metrics, then clear the snapshot.
+     */
+    void flush(PrometheusMetricStreams stream) {
+        for (int i = 0; i < COLUMNS.size(); i++) {
+            Column column = COLUMNS.get(i);
+            if (topicsCount == 0 || (column.compaction && topicsWithCompactionCount == 0)) {
+                continue;
+            }
+            SimpleTextOutputStream metricStream = stream.initGaugeType(column.metricName);
+            long[] columnValues = values[i];
+            int labelsStartOffset = 0;
+            for (int topic = 0; topic < topicsCount; topic++) {
+                int labelsEndOffset = labelsEndOffsets[topic];
+                if (!column.compaction || hasCompaction[topic]) {
+                    metricStream.write(column.sampleStart);
+                    metricStream.getBuffer().writeBytes(labels, labelsStartOffset,
+                            labelsEndOffset - labelsStartOffset);
+                    metricStream.write(column.sampleLabelsEnd);
+                    if (column.longValue != null) {
+                        metricStream.write(columnValues[topic]);
+                    } else {
+                        metricStream.write(Double.longBitsToDouble(columnValues[topic]));
+                    }
+                    metricStream.write('\n');
+                }
+                labelsStartOffset = labelsEndOffset;
+            }
+        }
+        reset();
+    }
+
+    /**
+     * Clear the snapshot without writing the samples.
+     */
+    void reset() {
+        topicsCount = 0;
+        topicsWithCompactionCount = 0;
+        labels.clear();
+    }
+
+    int size() {
+        return topicsCount;
+    }
+}
@@ -30,18 +30,27 @@ import org.apache.bookkeeper.mledger.ManagedLedger;
 import org.apache.bookkeeper.mledger.impl.ManagedLedgerMBeanImpl;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.pulsar.broker.PulsarService;
+import org.apache.pulsar.broker.service.AbstractTopic;
+import org.apache.pulsar.broker.service.Dispatcher;
+import org.apache.pulsar.broker.service.GetStatsOptions;
+import org.apache.pulsar.broker.service.Producer;
+import org.apache.pulsar.broker.service.Subscription;
 import org.apache.pulsar.broker.service.Topic;
+import org.apache.pulsar.broker.service.nonpersistent.NonPersistentSubscription;
+import org.apache.pulsar.broker.service.persistent.AbstractPersistentDispatcherMultipleConsumers;
+import org.apache.pulsar.broker.service.persistent.PersistentSubscription;
 import org.apache.pulsar.broker.service.persistent.PersistentTopic;
 import org.apache.pulsar.broker.service.persistent.PersistentTopicMetrics;
 import org.apache.pulsar.broker.service.persistent.PersistentTopicMetrics.BacklogQuotaMetrics;
 import org.apache.pulsar.broker.stats.prometheus.metrics.PrometheusLabels;
+import org.apache.pulsar.broker.transaction.buffer.TransactionBuffer;
+import org.apache.pulsar.common.naming.SystemTopicNames;
 import org.apache.pulsar.common.policies.data.BacklogQuota.BacklogQuotaType;
 import org.apache.pulsar.common.policies.data.stats.ConsumerStatsImpl;
 import org.apache.pulsar.common.policies.data.stats.NonPersistentSubscriptionStatsImpl;
-import org.apache.pulsar.common.policies.data.stats.NonPersistentTopicStatsImpl;
 import org.apache.pulsar.common.policies.data.stats.ReplicatorStatsImpl;
 import org.apache.pulsar.common.policies.data.stats.SubscriptionStatsImpl;
-import org.apache.pulsar.common.policies.data.stats.TopicStatsImpl;
+import org.apache.pulsar.common.policies.data.stats.TopicMetricBean;
 import org.apache.pulsar.compaction.CompactedTopicContext;
 import org.apache.pulsar.compaction.Compactor;
 import org.apache.pulsar.compaction.CompactorMXBean;
@@ -72,6 +81,13 @@ public class NamespaceStatsAggregator {
         }
     };
 
+    private static final FastThreadLocal<ColumnarTopicStats> localColumnarTopicStats = new FastThreadLocal<>() {
+        @Override
+        protected ColumnarTopicStats initialValue() {
+            return new ColumnarTopicStats();
+        }
+    };
+
     public static void generate(PulsarService pulsar, boolean includeTopicMetrics, boolean includeConsumerMetrics,
                                 boolean includeProducerMetrics, boolean splitTopicAndPartitionIndexLabel,
                                 PrometheusMetricStreams stream) {
@@ -80,6 +96,8 @@ public class NamespaceStatsAggregator {
         brokerStats.reset();
         AggregatedNamespaceStats namespaceStats = localNamespaceStats.get();
         TopicStats topicStats = localTopicStats.get();
+        ColumnarTopicStats columnarTopicStats = localColumnarTopicStats.get();
+        columnarTopicStats.reset();
         Optional<CompactorMXBean> compactorMXBean = getCompactorMXBean(pulsar);
         LongAdder topicsCount = new LongAdder();
         Map<String, Long> localNamespaceTopicCount = new HashMap<>();
@@ -89,17 +107,14 @@ public class NamespaceStatsAggregator {
 
             bundlesMap.forEach((bundle, topicsMap) -> topicsMap.forEach((name, topic) -> {
                 getTopicStats(topic, topicStats, includeConsumerMetrics, includeProducerMetrics,
-                        pulsar.getConfiguration().isExposePreciseBacklogInPrometheus(),
-                        pulsar.getConfiguration().isExposeSubscriptionBacklogSizeInPrometheus(),
-                        compactorMXBean
-                );
+                        pulsar.getConfiguration().isExposePreciseBacklogInPrometheus(), compactorMXBean);
 
                 brokerStats.updateStats(topicStats);
 
                 if (includeTopicMetrics) {
                     topicsCount.add(1);
-                    TopicStats.printTopicStats(stream, topicStats, compactorMXBean, cluster, namespace, name,
-                            splitTopicAndPartitionIndexLabel);
+                    TopicStats.printTopicStats(stream, columnarTopicStats, topicStats, compactorMXBean, cluster,
+                            namespace, name, splitTopicAndPartitionIndexLabel);
                 } else {
                     namespaceStats.updateStats(topicStats);
                 }
@@ -115,6 +130,7 @@ public class NamespaceStatsAggregator {
         });
 
         if (includeTopicMetrics) {
+            columnarTopicStats.flush(stream);
             printTopicsCountStats(stream, localNamespaceTopicCount, cluster);
         }
 
@@ -126,6 +142,77 @@ public class NamespaceStatsAggregator {
         return Optional.ofNullable(compactor).map(Compactor::getStats);
     }
 
+    /**
+     * Aggregates the stats of a persistent subscription, read from its counters and the ones of its dispatcher and
+     * consumers, without building its {@link SubscriptionStatsImpl}.
+     */
+    private static void aggregateTopicStats(TopicStats stats, PersistentSubscription subscription,
+                                            AggregatedSubscriptionStats subsStats, boolean getPreciseBacklog) {
+        stats.subscriptionsCount++;
+        subsStats.bytesOutCounter = subscription.getBytesOutCounter();
+        subsStats.msgOutCounter = subscription.getMsgOutCounter();
+        subsStats.lastExpireTimestamp = subscription.getLastExpireTimestamp();
+        subsStats.lastConsumedFlowTimestamp = subscription.getLastConsumedFlowTimestamp();
+        subsStats.lastMarkDeleteAdvancedTimestamp = subscription.getLastMarkDeleteAdvancedTimestamp();
+        subsStats.msgRateExpired = subscription.getExpiryMonitor().getMessageExpiryRate();
+        subsStats.totalMsgExpired = subscription.getExpiryMonitor().getTotalMessageExpired();
+        subscription.getConsumers().forEach(consumer -> {
+            ConsumerStatsImpl cStats = consumer.getStats();
+            stats.consumersCount++;
+            subsStats.consumersCount++;
+            subsStats.unackedMessages += cStats.unackedMessages;
+            subsStats.msgRateRedeliver += cStats.msgRateRedeliver;
+            subsStats.msgRateOut += cStats.msgRateOut;
+            subsStats.messageAckRate += cStats.messageAckRate;
+            subsStats.msgThroughputOut += cStats.msgThroughputOut;
+            subsStats.lastConsumedTimestamp = Math.max(subsStats.lastConsumedTimestamp, cStats.lastConsumedTimestamp);
+            subsStats.lastAckedTimestamp = Math.max(subsStats.lastAckedTimestamp, cStats.lastAckedTimestamp);
+        });
+        stats.rateOut += subsStats.msgRateOut;
+        stats.throughputOut += subsStats.msgThroughputOut;
+
+        Dispatcher dispatcher = subscription.getDispatcher();
+        if (dispatcher != null) {
+            subsStats.filterProcessedMsgCount = dispatcher.getFilterProcessedMsgCount();
+            subsStats.filterAcceptedMsgCount = dispatcher.getFilterAcceptedMsgCount();
+            subsStats.filterRejectedMsgCount = dispatcher.getFilterRejectedMsgCount();
+            subsStats.filterRescheduledMsgCount = dispatcher.getFilterRescheduledMsgCount();
+            subsStats.dispatchThrottledMsgEventsBySubscriptionLimit =
+                    dispatcher.getDispatchThrottledMsgEventsBySubscriptionLimit();
+            subsStats.dispatchThrottledBytesEventsBySubscriptionLimit =
+                    dispatcher.getDispatchThrottledBytesBySubscriptionLimit();
+            subsStats.dispatchThrottledMsgEventsByTopicLimit = dispatcher.getDispatchThrottledMsgEventsByTopicLimit();
+            subsStats.dispatchThrottledBytesEventsByTopicLimit =
+                    dispatcher.getDispatchThrottledBytesEventsByTopicLimit();
+            subsStats.dispatchThrottledMsgEventsByBrokerLimit =
+                    dispatcher.getDispatchThrottledMsgEventsByBrokerLimit();
+            subsStats.dispatchThrottledBytesEventsByBrokerLimit =
+                    dispatcher.getDispatchThrottledBytesEventsByBrokerLimit();
+        }
+        if (dispatcher instanceof AbstractPersistentDispatcherMultipleConsumers multipleConsumersDispatcher) {
+            subsStats.delayedMessageIndexSizeInBytes = multipleConsumersDispatcher.getDelayedTrackerMemoryUsage();
+            subsStats.bucketDelayedIndexStats = multipleConsumersDispatcher.getBucketDelayedIndexStats();
+            if (Subscription.isIndividualAckMode(subscription.getType())) {
+                subsStats.blockedSubscriptionOnUnackedMsgs =
+                        multipleConsumersDispatcher.isBlockedDispatcherOnUnackedMsgs();
+                subsStats.msgDelayed = multipleConsumersDispatcher.getNumberOfDelayedMessages();
+                subsStats.msgInReplay = multipleConsumersDispatcher.getNumberOfMessagesInReplay();
+            }
+        }
+        subsStats.msgBacklog = subscription.getNumberOfEntriesInBacklog(getPreciseBacklog);
+        subsStats.msgBacklogNoDelayed = subsStats.msgBacklog - subsStats.msgDelayed;
+        stats.msgBacklog += subsStats.msgBacklog;
+
+        stats.delayedMessageIndexSizeInBytes += subsStats.delayedMessageIndexSizeInBytes;
+        subsStats.bucketDelayedIndexStats.forEach((k, v) -> {
+            TopicMetricBean topicMetricBean =
+                    stats.bucketDelayedIndexStats.computeIfAbsent(k, __ -> new TopicMetricBean());
+            topicMetricBean.name = v.name;
+            topicMetricBean.labelsAndValues = v.labelsAndValues;
+            topicMetricBean.value += v.value;
+        });
+    }
+
     private static void aggregateTopicStats(TopicStats stats, SubscriptionStatsImpl subscriptionStats,
                                             AggregatedSubscriptionStats subsStats) {
         stats.subscriptionsCount++;
@@ -178,7 +265,7 @@ public class NamespaceStatsAggregator {
     @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
     private static void getTopicStats(Topic topic, TopicStats stats, boolean includeConsumerMetrics,
                                       boolean includeProducerMetrics, boolean getPreciseBacklog,
-                                      boolean subscriptionBacklogSize, Optional<CompactorMXBean> compactorMXBean) {
+                                      Optional<CompactorMXBean> compactorMXBean) {
         stats.reset();
 
         if (topic instanceof PersistentTopic persistentTopic) {
@@ -218,25 +305,30 @@ public class NamespaceStatsAggregator {
                     backlogQuotaMetrics.getSizeBasedBacklogQuotaExceededEvictionCount();
             stats.timeBasedBacklogQuotaExceededEvictionCount =
                     backlogQuotaMetrics.getTimeBasedBacklogQuotaExceededEvictionCount();
+
+            TransactionBuffer transactionBuffer = persistentTopic.getTransactionBuffer();
+            stats.ongoingTxnCount = transactionBuffer.getOngoingTxnCount();
+            stats.abortedTxnCount = transactionBuffer.getAbortedTxnCount();
+            stats.committedTxnCount = transactionBuffer.getCommittedTxnCount();
         }
 
-        TopicStatsImpl tStatus = topic.getStats(getPreciseBacklog, subscriptionBacklogSize, false);
-        stats.msgInCounter = tStatus.msgInCounter;
-        stats.bytesInCounter = tStatus.bytesInCounter;
-        stats.msgOutCounter = tStatus.msgOutCounter;
-        stats.systemTopicBytesInCounter = tStatus.systemTopicBytesInCounter;
-        stats.bytesOutInternalCounter = tStatus.getBytesOutInternalCounter();
-        stats.bytesOutCounter = tStatus.bytesOutCounter;
-        stats.averageMsgSize = tStatus.averageMsgSize;
-        stats.publishRateLimitedTimes = tStatus.publishRateLimitedTimes;
-        stats.delayedMessageIndexSizeInBytes = tStatus.delayedMessageIndexSizeInBytes;
-        stats.bucketDelayedIndexStats = tStatus.bucketDelayedIndexStats;
-        stats.abortedTxnCount = tStatus.abortedTxnCount;
-        stats.ongoingTxnCount = tStatus.ongoingTxnCount;
-        stats.committedTxnCount = tStatus.committedTxnCount;
+        // the topic counters are read directly, rather than from a TopicStatsImpl built by Topic.getStats()
+        if (topic instanceof AbstractTopic abstractTopic) {
+            stats.msgInCounter = abstractTopic.getMsgInCounter();
+            stats.bytesInCounter = abstractTopic.getBytesInCounter();
+            stats.msgOutCounter = abstractTopic.getMsgOutCounter();
+            stats.bytesOutCounter = abstractTopic.getBytesOutCounter();
+            stats.systemTopicBytesInCounter = abstractTopic.getSystemTopicBytesInCounter();
+            stats.bytesOutInternalCounter = abstractTopic.getBytesOutFromRemovedSystemSubscriptions();
+            stats.publishRateLimitedTimes = abstractTopic.getPublishRateLimitedTimes();
+        }
 
         stats.producersCount = 0;
-        topic.getProducers().values().forEach(producer -> {
+        double totalRateIn = 0;
+        double totalThroughputIn = 0;
+        for (Producer producer : topic.getProducers().values()) {
+            totalRateIn += producer.getStats().msgRateIn;
+            totalThroughputIn += producer.getStats().msgThroughputIn;
             if (producer.isRemote()) {
                 AggregatedReplicationStats replStats = stats.replicationStats
                         .computeIfAbsent(producer.getRemoteCluster(), k -> new AggregatedReplicationStats());
@@ -258,25 +350,28 @@ public class NamespaceStatsAggregator {
                     producerStats.averageMsgSize = producer.getStats().averageMsgSize;
                 }
             }
-        });
-
-        if (topic instanceof PersistentTopic) {
-            tStatus.subscriptions.forEach((subName, subscriptionStats) -> {
-                AggregatedSubscriptionStats subsStats = stats.subscriptionStats
-                        .computeIfAbsent(subName, k -> new AggregatedSubscriptionStats());
-                aggregateTopicStats(stats, subscriptionStats, subsStats);
-            });
-        } else {
-            ((NonPersistentTopicStatsImpl) tStatus).getNonPersistentSubscriptions()
-                    .forEach((subName, nonPersistentSubscriptionStats) -> {
-                        NonPersistentSubscriptionStatsImpl subscriptionStats =
-                                (NonPersistentSubscriptionStatsImpl) nonPersistentSubscriptionStats;
-                        AggregatedSubscriptionStats subsStats = stats.subscriptionStats
-                                .computeIfAbsent(subName, k -> new AggregatedSubscriptionStats());
-                        aggregateTopicStats(stats, subscriptionStats, subsStats);
-                        subsStats.msgDropRate += subscriptionStats.getMsgDropRate();
-                    });
         }
+        stats.averageMsgSize = totalRateIn == 0.0 ? 0.0 : (totalThroughputIn / totalRateIn);
+
+        topic.getSubscriptions().forEach((subName, subscription) -> {
+            AggregatedSubscriptionStats subsStats = stats.subscriptionStats
+                    .computeIfAbsent(subName, k -> new AggregatedSubscriptionStats());
+            if (subscription instanceof PersistentSubscription persistentSubscription) {
+                aggregateTopicStats(stats, persistentSubscription, subsStats, getPreciseBacklog);
+                if (isSystemCursor(topic, subName) || subName.startsWith(SystemTopicNames.SYSTEM_READER_PREFIX)) {
+                    stats.bytesOutInternalCounter += subsStats.bytesOutCounter;
+                }
+            } else if (subscription instanceof NonPersistentSubscription nonPersistentSubscription) {
+                // the stats of a non-persistent subscription are only computed in memory
+                NonPersistentSubscriptionStatsImpl subscriptionStats =
+                        nonPersistentSubscription.getStats(new GetStatsOptions(false, false, false, false, false));
+                aggregateTopicStats(stats, subscriptionStats, subsStats);
+                subsStats.msgDropRate += subscriptionStats.getMsgDropRate();
+                if (isSystemCursor(topic, subName)) {
+                    stats.bytesOutInternalCounter += subscriptionStats.bytesOutCounter;
+                }
+            }
+        });
 
         // Consumer stats can be a lot if a subscription has many consumers
         if (includeConsumerMetrics) {
@@ -350,6 +445,10 @@ public class NamespaceStatsAggregator {
                 });
     }
 
+    private static boolean isSystemCursor(Topic topic, String subName) {
+        return topic instanceof AbstractTopic abstractTopic && abstractTopic.isSystemCursor(subName);
+    }
+
     private static void printBrokerStats(PrometheusMetricStreams stream, String cluster,
                                          AggregatedBrokerStats brokerStats) {
         // Print metrics values. This is necessary to have the available brokers being
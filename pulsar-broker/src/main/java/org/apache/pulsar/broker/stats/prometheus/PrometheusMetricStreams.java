@@ -69,7 +69,12 @@ public class PrometheusMetricStreams {
         metricStreamMap.clear();
     }
 
-    private SimpleTextOutputStream initGaugeType(String metricName) {
+    /**
+     * Get the stream of a metric to append samples to. Will write #TYPE header if metric not seen before.
+     * @param metricName name of the metric.
+     * @return the stream of the metric
+     */
+    SimpleTextOutputStream initGaugeType(String metricName) {
         return metricStreamMap.computeIfAbsent(metricName, s -> {
             SimpleTextOutputStream stream = new SimpleTextOutputStream(PulsarByteBufAllocator.DEFAULT.directBuffer());
             stream.write("# TYPE ").write(metricName).write(" gauge\n");
@@ -18,9 +18,11 @@
  */
 package org.apache.pulsar.broker.transaction.pendingack;
 
+import com.google.common.collect.Range;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
 import org.apache.bookkeeper.mledger.Position;
 import org.apache.commons.lang3.tuple.MutablePair;
 import org.apache.pulsar.broker.service.BrokerServiceException.NotAllowedException;
@@ -123,6 +125,15 @@ public interface PendingAckHandle {
      */
     void clearIndividualPosition(Position position);
 
+    /**
+     * Clear the cache for the individual ack messages of the range which are actually deleted. Only the positions
+     * acked by the ongoing transactions are checked, rather than every position of the range.
+     *
+     * @param range the range of positions to clear
+     * @param isDeleted whether a position is actually deleted
+     */
+    void clearIndividualPositions(Range<Position> range, Predicate<Position> isDeleted);
+
     /**
      * Pending ack recover whether ready future.
      *
@@ -18,9 +18,11 @@
  */
 package org.apache.pulsar.broker.transaction.pendingack.impl;
 
+import com.google.common.collect.Range;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
 import org.apache.bookkeeper.mledger.Position;
 import org.apache.commons.lang3.tuple.MutablePair;
 import org.apache.pulsar.broker.service.BrokerServiceException.NotAllowedException;
@@ -77,6 +79,11 @@ public class PendingAckHandleDisabled implements PendingAckHandle {
         //no-op
     }
 
+    @Override
+    public void clearIndividualPositions(Range<Position> range, Predicate<Position> isDeleted) {
+        //no-op
+    }
+
     @Override
     public CompletableFuture<PendingAckHandle> pendingAckHandleFuture() {
         return pendingAckHandleCompletableFuture;
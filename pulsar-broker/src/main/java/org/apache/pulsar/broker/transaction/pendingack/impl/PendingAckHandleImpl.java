@@ -24,6 +24,7 @@ import static org.apache.bookkeeper.mledger.util.PositionAckSetUtil.andAckSet;
 import static org.apache.bookkeeper.mledger.util.PositionAckSetUtil.compareToWithAckSet;
 import static org.apache.bookkeeper.mledger.util.PositionAckSetUtil.isAckSetOverlap;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Range;
 import io.netty.util.Timer;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -39,6 +40,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.bookkeeper.client.api.BKException;
@@ -915,7 +917,21 @@ public class PendingAckHandleImpl extends PendingAckHandleState implements Pendi
         }
 
         individualAckPositions.remove(position);
+        clearPositionsBeforeMarkDelete();
+    }
+
+    @Override
+    public synchronized void clearIndividualPositions(Range<Position> range, Predicate<Position> isDeleted) {
+        if (individualAckPositions == null) {
+            return;
+        }
+
+        individualAckPositions.subMap(range.lowerEndpoint(), true, range.upperEndpoint(), true).keySet()
+                .removeIf(isDeleted);
+        clearPositionsBeforeMarkDelete();
+    }
 
+    private void clearPositionsBeforeMarkDelete() {
         while (individualAckPositions.firstEntry() != null) {
             if (individualAckPositions.firstKey().compareTo(persistentSubscription
                     .getCursor().getMarkDeletedPosition()) < 0) {
@@ -49,7 +49,10 @@ public class RawBatchConverter {
     }
 
     public static boolean isReadableBatch(MessageMetadata metadata) {
-        return metadata.hasNumMessagesInBatch() && metadata.getEncryptionKeysCount() == 0;
+        // The broker doesn't load the compression dictionaries, so these batches are kept as they are, like the
+        // encrypted ones
+        return metadata.hasNumMessagesInBatch() && metadata.getEncryptionKeysCount() == 0
+                && !metadata.hasCompressionDictionaryVersion();
     }
 
     public static List<MessageCompactionData> extractMessageCompactionData(RawMessage msg, MessageMetadata metadata)
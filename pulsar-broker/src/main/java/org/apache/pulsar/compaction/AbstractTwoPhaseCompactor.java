@@ -21,9 +21,14 @@ package org.apache.pulsar.compaction;
 import io.netty.buffer.ByteBuf;
 import java.io.IOException;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.Semaphore;
@@ -32,6 +37,7 @@ import java.util.function.BiPredicate;
 import org.apache.bookkeeper.client.BKException;
 import org.apache.bookkeeper.client.BookKeeper;
 import org.apache.bookkeeper.client.LedgerHandle;
+import org.apache.bookkeeper.mledger.Position;
 import org.apache.bookkeeper.mledger.impl.LedgerMetadataUtils;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.pulsar.broker.ServiceConfiguration;
@@ -56,6 +62,8 @@ import org.slf4j.LoggerFactory;
  * <p>The two passes are required to avoid holding the payloads of each of
  * the latest values in memory, as the payload can be many orders of
  * magnitude larger than a message id.
+ *
+ * @param <T> the latest message of each key, filled by the phase one
  */
 public abstract class AbstractTwoPhaseCompactor<T> extends Compactor {
 
@@ -63,6 +71,8 @@ public abstract class AbstractTwoPhaseCompactor<T> extends Compactor {
   protected static final int MAX_OUTSTANDING = 500;
   protected final Duration phaseOneLoopReadTimeout;
   protected final boolean topicCompactionRetainNullKey;
+  protected final int topicCompactionLedgerIndexInterval;
+  protected final int topicCompactionMaxDeltaSegments;
 
   public AbstractTwoPhaseCompactor(ServiceConfiguration conf,
       PulsarClient pulsar,
@@ -72,15 +82,38 @@ public abstract class AbstractTwoPhaseCompactor<T> extends Compactor {
     phaseOneLoopReadTimeout = Duration.ofSeconds(
         conf.getBrokerServiceCompactionPhaseOneLoopTimeInSeconds());
     topicCompactionRetainNullKey = conf.isTopicCompactionRetainNullKey();
+    topicCompactionLedgerIndexInterval = conf.getTopicCompactionLedgerIndexInterval();
+    topicCompactionMaxDeltaSegments = conf.getTopicCompactionMaxDeltaSegments();
+  }
+
+  /**
+   * Creates the latest message of each key, filled by the phase one. The one of an incremental compaction also
+   * remembers the keys updated or deleted, see {@link #getTouchedKeys}.
+   */
+  protected abstract T newLatestForKey(boolean incremental);
+
+  /**
+   * The keys updated or deleted by the phase one of an incremental compaction.
+   */
+  protected abstract Collection<String> getTouchedKeys(T latestForKey);
+
+  /**
+   * Releases the latest message of each key, once the compaction is done.
+   */
+  protected void releaseLatestForKey(T latestForKey) {
   }
 
-  protected abstract Map<String, MessageId> toLatestMessageIdForKey(Map<String, T> latestForKey);
+  /**
+   * Converts the latest message of each key filled by the phase one to the latest message ids looked up by the
+   * phase two.
+   */
+  protected abstract LatestMessageIds toLatestMessageIds(String topic, T latestForKey);
 
-  protected abstract boolean compactMessage(String topic, Map<String, T> latestForKey,
+  protected abstract boolean compactMessage(String topic, T latestForKey,
       RawMessage m, MessageMetadata metadata, MessageId id);
 
 
-  protected abstract boolean compactBatchMessage(String topic, Map<String, T> latestForKey,
+  protected abstract boolean compactBatchMessage(String topic, T latestForKey,
       RawMessage m,
       MessageMetadata metadata, MessageId id);
 
@@ -89,8 +122,12 @@ public abstract class AbstractTwoPhaseCompactor<T> extends Compactor {
     return reader.hasMessageAvailableAsync()
         .thenCompose(available -> {
           if (available) {
-            return phaseOne(reader).thenCompose(
-                (r) -> phaseTwo(reader, r.from, r.to, r.lastReadId, toLatestMessageIdForKey(r.latestForKey), bk));
+            T latestForKey = newLatestForKey(false);
+            return phaseOne(reader, latestForKey).thenCompose((r) -> {
+              LatestMessageIds latestMessageIds = toLatestMessageIds(reader.getTopic(), r.latestForKey);
+              return phaseTwo(reader, r.from, r.to, r.lastReadId, latestMessageIds, bk, Optional.empty())
+                  .whenComplete((__, ex) -> latestMessageIds.close());
+            }).whenComplete((__, ex) -> releaseLatestForKey(latestForKey));
           } else {
             log.info("Skip compaction of the empty topic {}", reader.getTopic());
             return CompletableFuture.completedFuture(-1L);
@@ -98,9 +135,41 @@ public abstract class AbstractTwoPhaseCompactor<T> extends Compactor {
         });
   }
 
-  private CompletableFuture<PhaseOneResult> phaseOne(RawReader reader) {
-    Map<String, T> latestForKey = new HashMap<>();
-    CompletableFuture<PhaseOneResult> loopPromise = new CompletableFuture<>();
+  /**
+   * Only compacts the messages after the compaction horizon of the base compacted ledger, to a delta compacted
+   * ledger on top of it, unless the incremental compaction is disabled or the chain of delta compacted ledgers
+   * is already as long as allowed, in which case the whole topic is compacted again.
+   */
+  @Override
+  protected CompletableFuture<Long> doCompaction(RawReader reader, BookKeeper bk, CompactedTopicContext base,
+      Position horizon) {
+    if (!isIncrementalCompactionEnabled() || base == null || horizon == null
+        || base.getBaseSegments().size() >= topicCompactionMaxDeltaSegments) {
+      return doCompaction(reader, bk);
+    }
+    long baseLedgerId = base.getLedger().getId();
+    return reader.getLastMessageIdAsync().thenCompose(lastMessageId -> {
+      MessageIdImpl lastImpl = (MessageIdImpl) lastMessageId;
+      if (lastImpl.getLedgerId() < horizon.getLedgerId() || (lastImpl.getLedgerId() == horizon.getLedgerId()
+          && lastImpl.getEntryId() <= horizon.getEntryId())) {
+        log.info("Skip compaction of {}, no message was published since the compaction horizon {}",
+            reader.getTopic(), horizon);
+        return CompletableFuture.completedFuture(baseLedgerId);
+      }
+      T latestForKey = newLatestForKey(true);
+      return reader.seekAsync(new MessageIdImpl(horizon.getLedgerId(), horizon.getEntryId() + 1, -1))
+          .thenCompose(__ -> phaseOne(reader, latestForKey))
+          .thenCompose((r) -> {
+            LatestMessageIds latestMessageIds = toLatestMessageIds(reader.getTopic(), r.latestForKey);
+            return phaseTwo(reader, r.from, r.to, r.lastReadId, latestMessageIds, bk,
+                Optional.of(new Delta(baseLedgerId, getTouchedKeys(latestForKey))))
+                .whenComplete((__, ex) -> latestMessageIds.close());
+          }).whenComplete((__, ex) -> releaseLatestForKey(latestForKey));
+    });
+  }
+
+  private CompletableFuture<PhaseOneResult<T>> phaseOne(RawReader reader, T latestForKey) {
+    CompletableFuture<PhaseOneResult<T>> loopPromise = new CompletableFuture<>();
 
     reader.getLastMessageIdAsync()
         .thenAccept(lastMessageId -> {
@@ -125,8 +194,8 @@ public abstract class AbstractTwoPhaseCompactor<T> extends Compactor {
       Optional<MessageId> firstMessageId,
       Optional<MessageId> toMessageId,
       MessageId lastMessageId,
-      Map<String, T> latestForKey,
-      CompletableFuture<PhaseOneResult> loopPromise) {
+      T latestForKey,
+      CompletableFuture<PhaseOneResult<T>> loopPromise) {
     if (loopPromise.isDone()) {
       return;
     }
@@ -152,7 +221,7 @@ public abstract class AbstractTwoPhaseCompactor<T> extends Compactor {
         MessageId first = firstMessageId.orElse(deletedMessage ? null : id);
         MessageId to = deletedMessage ? toMessageId.orElse(null) : id;
         if (id.compareTo(lastMessageId) == 0) {
-          loopPromise.complete(new PhaseOneResult(first == null ? id : first, to == null ? id : to,
+          loopPromise.complete(new PhaseOneResult<>(first == null ? id : first, to == null ? id : to,
               lastMessageId, latestForKey));
         } else {
           phaseOneLoop(reader,
@@ -170,34 +239,88 @@ public abstract class AbstractTwoPhaseCompactor<T> extends Compactor {
 
   private CompletableFuture<Long> phaseTwo(RawReader reader, MessageId from, MessageId to,
       MessageId lastReadId,
-      Map<String, MessageId> latestForKey, BookKeeper bk) {
-    Map<String, byte[]> metadata =
-        LedgerMetadataUtils.buildMetadataForCompactedLedger(reader.getTopic(), to.toByteArray());
-    return createLedger(bk, metadata).thenCompose((ledger) -> {
-      log.info(
-          "Commencing phase two of compaction for {}, from {} to {}, compacting {} keys to ledger {}",
-          reader.getTopic(), from, to, latestForKey.size(), ledger.getId());
-      return phaseTwoSeekThenLoop(reader, from, to, lastReadId, latestForKey, bk, ledger);
+      LatestMessageIds latestForKey, BookKeeper bk, Optional<Delta> delta) {
+    CompletableFuture<LedgerHandle> indexLedgerFuture = topicCompactionLedgerIndexInterval > 0
+        ? createLedger(bk, LedgerMetadataUtils.buildMetadataForCompactedLedgerIndex(reader.getTopic()))
+        : CompletableFuture.completedFuture(null);
+    CompletableFuture<LedgerHandle> deltaKeysLedgerFuture = delta.isPresent()
+        ? createLedger(bk, LedgerMetadataUtils.buildMetadataForCompactedLedgerDeltaKeys(reader.getTopic()))
+        : CompletableFuture.completedFuture(null);
+    return indexLedgerFuture.thenCombine(deltaKeysLedgerFuture, Pair::of).whenComplete((sideLedgers, exception) -> {
+      if (exception != null) {
+        // one of them may have been created
+        indexLedgerFuture.thenAccept(indexLedger -> deleteSideLedger(bk, indexLedger));
+        deltaKeysLedgerFuture.thenAccept(deltaKeysLedger -> deleteSideLedger(bk, deltaKeysLedger));
+      }
+    }).thenCompose(sideLedgers -> {
+      LedgerHandle indexLedger = sideLedgers.getLeft();
+      LedgerHandle deltaKeysLedger = sideLedgers.getRight();
+      Map<String, byte[]> metadata = LedgerMetadataUtils.buildMetadataForCompactedLedger(reader.getTopic(),
+          to.toByteArray(), Optional.ofNullable(indexLedger).map(LedgerHandle::getId),
+          delta.map(Delta::baseLedgerId), Optional.ofNullable(deltaKeysLedger).map(LedgerHandle::getId));
+      return createLedger(bk, metadata).whenComplete((ledger, exception) -> {
+        if (exception != null) {
+          deleteSideLedger(bk, indexLedger);
+          deleteSideLedger(bk, deltaKeysLedger);
+        }
+      }).thenCompose((ledger) -> {
+        if (delta.isPresent()) {
+          log.info("Commencing phase two of incremental compaction for {}, from {} to {}, compacting {} keys to "
+                  + "ledger {} on top of ledger {}", reader.getTopic(), from, to, delta.get().keys().size(),
+              ledger.getId(), delta.get().baseLedgerId());
+        } else {
+          log.info(
+              "Commencing phase two of compaction for {}, from {} to {}, compacting {} keys to ledger {}",
+              reader.getTopic(), from, to, latestForKey.size(), ledger.getId());
+        }
+        return phaseTwoSeekThenLoop(reader, from, to, lastReadId, latestForKey, bk, ledger, indexLedger,
+            deltaKeysLedger, delta.map(Delta::keys).orElse(null));
+      });
     });
   }
 
+  private void deleteSideLedger(BookKeeper bk, LedgerHandle lh) {
+    if (lh != null) {
+      deleteLedger(bk, lh).exceptionally(exception -> {
+        log.warn("Cleanup of ledger {} failed", lh.getId(), exception);
+        return null;
+      });
+    }
+  }
+
   private CompletableFuture<Long> phaseTwoSeekThenLoop(RawReader reader, MessageId from,
       MessageId to,
-      MessageId lastReadId, Map<String, MessageId> latestForKey, BookKeeper bk,
-      LedgerHandle ledger) {
+      MessageId lastReadId, LatestMessageIds latestForKey, BookKeeper bk,
+      LedgerHandle ledger, LedgerHandle indexLedger, LedgerHandle deltaKeysLedger, Collection<String> deltaKeys) {
     CompletableFuture<Long> promise = new CompletableFuture<>();
+    CompactedLedgerIndex.Builder index = indexLedger == null
+        ? null : new CompactedLedgerIndex.Builder(topicCompactionLedgerIndexInterval);
 
     reader.seekAsync(from).thenCompose((v) -> {
           Semaphore outstanding = new Semaphore(MAX_OUTSTANDING);
           CompletableFuture<Void> loopPromise = new CompletableFuture<>();
-          phaseTwoLoop(reader, to, latestForKey, ledger, outstanding, loopPromise, MessageId.earliest);
+          phaseTwoLoop(reader, to, latestForKey, ledger, index, outstanding, loopPromise, MessageId.earliest);
           return loopPromise;
         }).thenCompose((v) -> closeLedger(ledger))
+        .thenCompose((v) -> indexLedger == null
+            ? CompletableFuture.completedFuture(null) : writeSideLedger(indexLedger, index.build().toEntries()))
+        .thenCompose((v) -> deltaKeysLedger == null
+            ? CompletableFuture.completedFuture(null)
+            : writeSideLedger(deltaKeysLedger, CompactedDeltaKeys.toEntries(deltaKeys)))
         .thenCompose((v) -> reader.acknowledgeCumulativeAsync(lastReadId,
             Map.of(COMPACTED_TOPIC_LEDGER_PROPERTY, ledger.getId())))
         .whenComplete((res, exception) -> {
           if (exception != null) {
-            deleteLedger(bk, ledger).whenComplete((res2, exception2) -> {
+            List<CompletableFuture<Void>> deletions = new ArrayList<>();
+            deletions.add(deleteLedger(bk, ledger));
+            if (indexLedger != null) {
+              deletions.add(deleteLedger(bk, indexLedger));
+            }
+            if (deltaKeysLedger != null) {
+              deletions.add(deleteLedger(bk, deltaKeysLedger));
+            }
+            CompletableFuture<Void> cleanup = FutureUtil.waitForAll(deletions);
+            cleanup.whenComplete((res2, exception2) -> {
               if (exception2 != null) {
                 log.warn("Cleanup of ledger {} for failed", ledger, exception2);
               }
@@ -211,8 +334,8 @@ public abstract class AbstractTwoPhaseCompactor<T> extends Compactor {
     return promise;
   }
 
-  private void phaseTwoLoop(RawReader reader, MessageId to, Map<String, MessageId> latestForKey,
-      LedgerHandle lh, Semaphore outstanding, CompletableFuture<Void> promise,
+  private void phaseTwoLoop(RawReader reader, MessageId to, LatestMessageIds latestForKey,
+      LedgerHandle lh, CompactedLedgerIndex.Builder index, Semaphore outstanding, CompletableFuture<Void> promise,
       MessageId lastCompactedMessageId) {
     if (promise.isDone()) {
       return;
@@ -225,7 +348,7 @@ public abstract class AbstractTwoPhaseCompactor<T> extends Compactor {
 
       if (m.getMessageId().compareTo(lastCompactedMessageId) <= 0) {
         m.close();
-        phaseTwoLoop(reader, to, latestForKey, lh, outstanding, promise, lastCompactedMessageId);
+        phaseTwoLoop(reader, to, latestForKey, lh, index, outstanding, promise, lastCompactedMessageId);
         return;
       }
 
@@ -239,7 +362,7 @@ public abstract class AbstractTwoPhaseCompactor<T> extends Compactor {
         } else if (RawBatchConverter.isReadableBatch(metadata)) {
           try {
             messageToAdd = rebatchMessage(reader.getTopic(),
-                m, metadata, (key, subid) -> subid.equals(latestForKey.get(key)),
+                m, metadata, latestForKey::isLatest,
                 topicCompactionRetainNullKey);
           } catch (IOException ioe) {
             log.info("Error decoding batch for message {}. Whole batch will be included in output",
@@ -248,11 +371,10 @@ public abstract class AbstractTwoPhaseCompactor<T> extends Compactor {
           }
         } else {
           Pair<String, Integer> keyAndSize = extractKeyAndSize(m, metadata);
-          MessageId msg;
           if (keyAndSize == null) {
             messageToAdd = topicCompactionRetainNullKey ? Optional.of(m) : Optional.empty();
-          } else if ((msg = latestForKey.get(keyAndSize.getLeft())) != null
-              && msg.equals(id)) { // consider message only if present into latestForKey map
+          } else if (latestForKey.isLatest(keyAndSize.getLeft(), id)) {
+            // consider message only if present into latestForKey map
             if (keyAndSize.getRight() <= 0) {
               promise.completeExceptionally(new IllegalArgumentException(
                   "Compaction phase found empty record from sorted key-map"));
@@ -265,7 +387,7 @@ public abstract class AbstractTwoPhaseCompactor<T> extends Compactor {
           RawMessage message = messageToAdd.get();
           try {
             outstanding.acquire();
-            CompletableFuture<Void> addFuture = addToCompactedLedger(lh, message, reader.getTopic())
+            CompletableFuture<Void> addFuture = addToCompactedLedger(lh, index, message, reader.getTopic())
                 .whenComplete((res, exception2) -> {
                   outstanding.release();
                   if (exception2 != null) {
@@ -303,7 +425,7 @@ public abstract class AbstractTwoPhaseCompactor<T> extends Compactor {
           }
           return;
         }
-        phaseTwoLoop(reader, to, latestForKey, lh, outstanding, promise, m.getMessageId());
+        phaseTwoLoop(reader, to, latestForKey, lh, index, outstanding, promise, m.getMessageId());
       } finally {
         m.close();
       }
@@ -370,9 +492,11 @@ public abstract class AbstractTwoPhaseCompactor<T> extends Compactor {
     return bkf;
   }
 
-  private CompletableFuture<Void> addToCompactedLedger(LedgerHandle lh, RawMessage m,
-      String topic) {
+  private CompletableFuture<Void> addToCompactedLedger(LedgerHandle lh, CompactedLedgerIndex.Builder index,
+      RawMessage m, String topic) {
     CompletableFuture<Void> bkf = new CompletableFuture<>();
+    long ledgerId = m.getMessageIdData().getLedgerId();
+    long entryId = m.getMessageIdData().getEntryId();
     ByteBuf serialized = m.serialize();
     try {
       mxBean.addCompactionWriteOp(topic, m.getHeadersAndPayload().readableBytes());
@@ -383,6 +507,9 @@ public abstract class AbstractTwoPhaseCompactor<T> extends Compactor {
             if (rc != BKException.Code.OK) {
               bkf.completeExceptionally(BKException.create(rc));
             } else {
+              if (index != null) {
+                index.add(ledgerId, entryId, eid);
+              }
               bkf.complete(null);
             }
           }, null);
@@ -392,6 +519,26 @@ public abstract class AbstractTwoPhaseCompactor<T> extends Compactor {
     return bkf;
   }
 
+  private CompletableFuture<Void> writeSideLedger(LedgerHandle sideLedger, List<ByteBuf> entries) {
+    List<CompletableFuture<Void>> futures = new ArrayList<>();
+    for (ByteBuf entry : entries) {
+      CompletableFuture<Void> bkf = new CompletableFuture<>();
+      try {
+        sideLedger.asyncAddEntry(entry, (rc, ledger, eid, ctx) -> {
+          if (rc != BKException.Code.OK) {
+            bkf.completeExceptionally(BKException.create(rc));
+          } else {
+            bkf.complete(null);
+          }
+        }, null);
+      } catch (Throwable t) {
+        bkf.completeExceptionally(t);
+      }
+      futures.add(bkf);
+    }
+    return FutureUtil.waitForAll(futures).thenCompose(__ -> closeLedger(sideLedger));
+  }
+
   protected Pair<String, Integer> extractKeyAndSize(RawMessage m, MessageMetadata msgMetadata) {
     ByteBuf headersAndPayload = m.getHeadersAndPayload();
     if (msgMetadata.hasPartitionKey()) {
@@ -422,10 +569,10 @@ public abstract class AbstractTwoPhaseCompactor<T> extends Compactor {
     final MessageId from;
     final MessageId to; // last undeleted messageId
     final MessageId lastReadId; // last read messageId
-    final Map<String, T> latestForKey;
+    final T latestForKey;
 
     PhaseOneResult(MessageId from, MessageId to, MessageId lastReadId,
-        Map<String, T> latestForKey) {
+        T latestForKey) {
       this.from = from;
       this.to = to;
       this.lastReadId = lastReadId;
@@ -433,6 +580,38 @@ public abstract class AbstractTwoPhaseCompactor<T> extends Compactor {
     }
   }
 
+  /**
+   * The compacted ledger an incremental compaction applies to, and the keys updated or deleted since then.
+   */
+  private record Delta(long baseLedgerId, Collection<String> keys) {
+  }
+
+  /**
+   * The map of the latest message of each key filled by the phase one of an incremental compaction, which also
+   * remembers the keys deleted since the compaction horizon, to shadow them in the base compacted ledgers.
+   */
+  static class DeltaKeyMap<V> extends HashMap<String, V> {
+    private final Set<String> deletedKeys = new HashSet<>();
+
+    @Override
+    public V put(String key, V value) {
+      deletedKeys.remove(key);
+      return super.put(key, value);
+    }
+
+    @Override
+    public V remove(Object key) {
+      deletedKeys.add((String) key);
+      return super.remove(key);
+    }
+
+    Collection<String> getTouchedKeys() {
+      Set<String> keys = new HashSet<>(keySet());
+      keys.addAll(deletedKeys);
+      return keys;
+    }
+  }
+
   public long getPhaseOneLoopReadTimeoutInSeconds() {
     return phaseOneLoopReadTimeout.getSeconds();
   }
@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.compaction;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The keys compacted by a delta compacted ledger of an incremental compaction, either updated or deleted since the
+ * previous compaction. The readers skip the messages of these keys in the older compacted ledgers of the chain.
+ *
+ * <p/>The keys are written by the compactor to a side ledger, referenced by the custom metadata of the delta
+ * compacted ledger, as entries of length prefixed UTF-8 keys.
+ */
+final class CompactedDeltaKeys {
+    static final int MAX_ENTRY_SIZE = 1024 * 1024;
+
+    private CompactedDeltaKeys() {
+    }
+
+    static List<ByteBuf> toEntries(Collection<String> keys) {
+        List<ByteBuf> entries = new ArrayList<>();
+        ByteBuf entry = null;
+        for (String key : keys) {
+            byte[] bytes = key.getBytes(UTF_8);
+            if (entry != null && entry.readableBytes() + Integer.BYTES + bytes.length > MAX_ENTRY_SIZE) {
+                entries.add(entry);
+                entry = null;
+            }
+            if (entry == null) {
+                entry = Unpooled.buffer(Math.max(Integer.BYTES + bytes.length, 256));
+            }
+            entry.writeInt(bytes.length);
+            entry.writeBytes(bytes);
+        }
+        if (entry != null) {
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    /**
+     * Deserializes the keys from the entries of the keys ledger, without releasing them.
+     */
+    static Set<String> fromEntries(List<ByteBuf> entries) {
+        Set<String> keys = new HashSet<>();
+        for (ByteBuf entry : entries) {
+            int index = entry.readerIndex();
+            while (index < entry.writerIndex()) {
+                int length = entry.getInt(index);
+                if (length < 0 || index + Integer.BYTES + length > entry.writerIndex()) {
+                    throw new IllegalArgumentException("Invalid compacted ledger delta keys entry of "
+                            + entry.readableBytes() + " bytes");
+                }
+                keys.add(entry.toString(index + Integer.BYTES, length, UTF_8));
+                index += Integer.BYTES + length;
+            }
+        }
+        return keys;
+    }
+}
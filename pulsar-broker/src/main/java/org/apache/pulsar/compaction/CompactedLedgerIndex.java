@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.compaction;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.bookkeeper.mledger.Position;
+
+/**
+ * Sparse position index of a compacted ledger, mapping the message id of every Nth entry of the compacted ledger
+ * to the id of that entry.
+ *
+ * <p/>The index is written by the compactor to a side ledger, referenced by the custom metadata of the compacted
+ * ledger, as entries of (ledgerId, entryId, compactedEntryId) records. It is loaded once per
+ * {@link CompactedTopicContext}, so that finding the start point of a reader is an in-memory search, followed by
+ * a single read of at most N entries of the compacted ledger.
+ */
+public class CompactedLedgerIndex {
+    static final int RECORD_SIZE = 3 * Long.BYTES;
+    static final int MAX_RECORDS_PER_ENTRY = 32 * 1024;
+
+    private final long[] ledgerIds;
+    private final long[] entryIds;
+    private final long[] compactedEntryIds;
+    private final int size;
+
+    private CompactedLedgerIndex(long[] ledgerIds, long[] entryIds, long[] compactedEntryIds, int size) {
+        this.ledgerIds = ledgerIds;
+        this.entryIds = entryIds;
+        this.compactedEntryIds = compactedEntryIds;
+        this.size = size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    long getCompactedEntryId(int i) {
+        return compactedEntryIds[i];
+    }
+
+    /**
+     * Returns the first record whose message id is greater than or equal to the position, or {@link #size()} if
+     * all the indexed message ids are lower than the position.
+     */
+    int ceiling(Position p) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(mid, p) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    boolean isAt(int i, Position p) {
+        return compare(i, p) == 0;
+    }
+
+    private int compare(int i, Position p) {
+        int c = Long.compare(ledgerIds[i], p.getLedgerId());
+        return c != 0 ? c : Long.compare(entryIds[i], p.getEntryId());
+    }
+
+    /**
+     * Serializes the index to the entries of the index ledger.
+     */
+    List<ByteBuf> toEntries() {
+        List<ByteBuf> entries = new ArrayList<>();
+        for (int i = 0; i < size; i += MAX_RECORDS_PER_ENTRY) {
+            int end = Math.min(size, i + MAX_RECORDS_PER_ENTRY);
+            ByteBuf buf = Unpooled.buffer((end - i) * RECORD_SIZE);
+            for (int j = i; j < end; j++) {
+                buf.writeLong(ledgerIds[j]);
+                buf.writeLong(entryIds[j]);
+                buf.writeLong(compactedEntryIds[j]);
+            }
+            entries.add(buf);
+        }
+        return entries;
+    }
+
+    /**
+     * Deserializes the index from the entries of the index ledger, without releasing them.
+     */
+    static CompactedLedgerIndex fromEntries(List<ByteBuf> entries) {
+        int size = 0;
+        for (ByteBuf entry : entries) {
+            if (entry.readableBytes() % RECORD_SIZE != 0) {
+                throw new IllegalArgumentException("Invalid compacted ledger index entry of "
+                        + entry.readableBytes() + " bytes");
+            }
+            size += entry.readableBytes() / RECORD_SIZE;
+        }
+        Builder builder = new Builder(1, size);
+        for (ByteBuf entry : entries) {
+            for (int i = entry.readerIndex(); i < entry.writerIndex(); i += RECORD_SIZE) {
+                builder.append(entry.getLong(i), entry.getLong(i + Long.BYTES), entry.getLong(i + 2 * Long.BYTES));
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Collects the entries added to a compacted ledger, in the order of their entry ids, and keeps every Nth one.
+     */
+    static class Builder {
+        private final int interval;
+        private long[] ledgerIds;
+        private long[] entryIds;
+        private long[] compactedEntryIds;
+        private int size;
+
+        Builder(int interval) {
+            this(interval, 16);
+        }
+
+        private Builder(int interval, int initialCapacity) {
+            this.interval = interval;
+            this.ledgerIds = new long[Math.max(initialCapacity, 1)];
+            this.entryIds = new long[ledgerIds.length];
+            this.compactedEntryIds = new long[ledgerIds.length];
+        }
+
+        synchronized void add(long ledgerId, long entryId, long compactedEntryId) {
+            if (compactedEntryId % interval == 0) {
+                append(ledgerId, entryId, compactedEntryId);
+            }
+        }
+
+        private void append(long ledgerId, long entryId, long compactedEntryId) {
+            if (size == ledgerIds.length) {
+                int capacity = size * 2;
+                ledgerIds = Arrays.copyOf(ledgerIds, capacity);
+                entryIds = Arrays.copyOf(entryIds, capacity);
+                compactedEntryIds = Arrays.copyOf(compactedEntryIds, capacity);
+            }
+            ledgerIds[size] = ledgerId;
+            entryIds[size] = entryId;
+            compactedEntryIds[size] = compactedEntryId;
+            size++;
+        }
+
+        synchronized CompactedLedgerIndex build() {
+            return new CompactedLedgerIndex(ledgerIds, entryIds, compactedEntryIds, size);
+        }
+    }
+}
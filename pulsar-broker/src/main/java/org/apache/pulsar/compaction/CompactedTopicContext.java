@@ -19,18 +19,59 @@
 package org.apache.pulsar.compaction;
 
 import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
 import lombok.Getter;
 import org.apache.bookkeeper.client.LedgerHandle;
 import org.apache.pulsar.common.api.proto.MessageIdData;
+import org.jspecify.annotations.Nullable;
 
 @Getter
 public class CompactedTopicContext {
 
     final LedgerHandle ledger;
     final AsyncLoadingCache<Long, MessageIdData> cache;
+    final CompactedLedgerIndex index;
+    /**
+     * The keys compacted again by the newer compacted ledgers of an incremental compaction chain, whose messages
+     * are skipped when reading this compacted ledger.
+     */
+    final Set<String> shadowedKeys;
+    /**
+     * The older compacted ledgers of an incremental compaction chain, oldest first, which are read before this one.
+     */
+    final List<CompactedTopicContext> baseSegments;
 
     public CompactedTopicContext(LedgerHandle ledger, AsyncLoadingCache<Long, MessageIdData> cache) {
+        this(ledger, cache, null);
+    }
+
+    public CompactedTopicContext(LedgerHandle ledger, AsyncLoadingCache<Long, MessageIdData> cache,
+                                 @Nullable CompactedLedgerIndex index) {
+        this(ledger, cache, index, Collections.emptySet(), Collections.emptyList());
+    }
+
+    public CompactedTopicContext(LedgerHandle ledger, AsyncLoadingCache<Long, MessageIdData> cache,
+                                 @Nullable CompactedLedgerIndex index, Set<String> shadowedKeys,
+                                 List<CompactedTopicContext> baseSegments) {
         this.ledger = ledger;
         this.cache = cache;
+        this.index = index;
+        this.shadowedKeys = shadowedKeys;
+        this.baseSegments = baseSegments;
+    }
+
+    /**
+     * Returns the compacted ledgers of the incremental compaction chain, oldest first, ending with this one.
+     */
+    public List<CompactedTopicContext> getSegments() {
+        if (baseSegments.isEmpty()) {
+            return List.of(this);
+        }
+        List<CompactedTopicContext> segments = new ArrayList<>(baseSegments);
+        segments.add(this);
+        return segments;
     }
 }
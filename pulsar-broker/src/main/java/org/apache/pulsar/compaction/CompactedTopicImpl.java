@@ -24,17 +24,23 @@ import com.github.benmanes.caffeine.cache.Caffeine;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ComparisonChain;
 import io.netty.buffer.ByteBuf;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Enumeration;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.stream.Collectors;
 import org.apache.bookkeeper.client.BKException;
 import org.apache.bookkeeper.client.BookKeeper;
 import org.apache.bookkeeper.client.LedgerEntry;
@@ -46,12 +52,17 @@ import org.apache.bookkeeper.mledger.ManagedLedgerException;
 import org.apache.bookkeeper.mledger.Position;
 import org.apache.bookkeeper.mledger.PositionFactory;
 import org.apache.bookkeeper.mledger.impl.EntryImpl;
+import org.apache.bookkeeper.mledger.impl.LedgerMetadataUtils;
 import org.apache.pulsar.broker.service.Consumer;
 import org.apache.pulsar.broker.service.persistent.PersistentDispatcherSingleActiveConsumer.ReadEntriesCtx;
 import org.apache.pulsar.client.api.MessageId;
 import org.apache.pulsar.client.api.RawMessage;
+import org.apache.pulsar.client.impl.RawBatchConverter;
 import org.apache.pulsar.client.impl.RawMessageImpl;
 import org.apache.pulsar.common.api.proto.MessageIdData;
+import org.apache.pulsar.common.api.proto.MessageMetadata;
+import org.apache.pulsar.common.protocol.Commands;
+import org.apache.pulsar.common.util.FutureUtil;
 import org.jspecify.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -104,7 +115,19 @@ public class CompactedTopicImpl implements CompactedTopic {
 
     @Override
     public CompletableFuture<Void> deleteCompactedLedger(long compactedLedgerId) {
-        return tryDeleteCompactedLedger(bk, compactedLedgerId);
+        CompletableFuture<CompactedTopicContext> currentContext = compactedTopicContext;
+        if (currentContext == null) {
+            return tryDeleteCompactedLedger(bk, compactedLedgerId, Collections.emptySet());
+        }
+        // the ledgers of an incremental compaction chain are still used by the newer compacted ledgers of the chain
+        return currentContext.thenCompose((context) -> tryDeleteCompactedLedger(bk, compactedLedgerId,
+                        context.getSegments().stream().map((segment) -> segment.getLedger().getId())
+                                .collect(Collectors.toSet())))
+                .exceptionally((ex) -> {
+                    log.warn("Skip deleting compacted topic ledger {}, the current compacted ledger failed to open",
+                            compactedLedgerId, ex);
+                    return null;
+                });
     }
 
     @Override
@@ -138,34 +161,28 @@ public class CompactedTopicImpl implements CompactedTopic {
                 int numberOfEntriesToRead = cursor.applyMaxSizeCap(maxEntries, bytesToRead);
 
                 compactedTopicContext.thenCompose(
-                    (context) -> findStartPoint(cursorPosition, context.ledger.getLastAddConfirmed(), context.cache)
-                        .thenCompose((startPoint) -> {
+                    (context) -> readCompactedEntries(context, cursorPosition, numberOfEntriesToRead)
+                        .thenAccept((entries) -> {
                             // do not need to read the compaction ledger if it is empty.
                             // the cursor just needs to be set to the compaction horizon
-                            if (startPoint == COMPACT_LEDGER_EMPTY || startPoint == NEWER_THAN_COMPACTED) {
+                            if (entries.isEmpty()) {
                                 cursor.seek(currentCompactionHorizon.getNext());
                                 callback.readEntriesComplete(Collections.emptyList(), readEntriesCtx);
-                                return CompletableFuture.completedFuture(null);
                             } else {
-                                long endPoint = Math.min(context.ledger.getLastAddConfirmed(),
-                                                         startPoint + (numberOfEntriesToRead - 1));
-                                return readEntries(context.ledger, startPoint, endPoint)
-                                    .thenAccept((entries) -> {
-                                        long entriesSize = 0;
-                                        for (Entry entry : entries) {
-                                            entriesSize += entry.getLength();
-                                        }
-                                        cursor.updateReadStats(entries.size(), entriesSize);
-
-                                        Entry lastEntry = entries.get(entries.size() - 1);
-                                        // The compaction task depends on the last snapshot and the incremental
-                                        // entries to build the new snapshot. So for the compaction cursor, we
-                                        // need to force seek the read position to ensure the compactor can read
-                                        // the complete last snapshot because of the compactor will read the data
-                                        // before the compaction cursor mark delete position
-                                        cursor.seek(lastEntry.getPosition().getNext(), true);
-                                        callback.readEntriesComplete(entries, readEntriesCtx);
-                                    });
+                                long entriesSize = 0;
+                                for (Entry entry : entries) {
+                                    entriesSize += entry.getLength();
+                                }
+                                cursor.updateReadStats(entries.size(), entriesSize);
+
+                                Entry lastEntry = entries.get(entries.size() - 1);
+                                // The compaction task depends on the last snapshot and the incremental
+                                // entries to build the new snapshot. So for the compaction cursor, we
+                                // need to force seek the read position to ensure the compactor can read
+                                // the complete last snapshot because of the compactor will read the data
+                                // before the compaction cursor mark delete position
+                                cursor.seek(lastEntry.getPosition().getNext(), true);
+                                callback.readEntriesComplete(entries, readEntriesCtx);
                             }
                         }))
                     .exceptionally((exception) -> {
@@ -180,6 +197,112 @@ public class CompactedTopicImpl implements CompactedTopic {
             }
     }
 
+    /**
+     * Reads up to maxEntries entries of the compacted topic, from the first one whose message id is greater than or
+     * equal to the position. Across the compacted ledgers of an incremental compaction chain, the messages of the
+     * keys compacted again by a newer compacted ledger are skipped. Completes with an empty list if there is no
+     * such entry.
+     */
+    static CompletableFuture<List<Entry>> readCompactedEntries(CompactedTopicContext context, Position p,
+                                                               int maxEntries) {
+        return readSegments(context.getSegments(), 0, p, maxEntries);
+    }
+
+    private static CompletableFuture<List<Entry>> readSegments(List<CompactedTopicContext> segments, int i,
+                                                               Position p, int maxEntries) {
+        if (i == segments.size()) {
+            return CompletableFuture.completedFuture(Collections.emptyList());
+        }
+        return findStartPoint(p, segments.get(i)).thenCompose((startPoint) -> {
+            if (startPoint == COMPACT_LEDGER_EMPTY || startPoint == NEWER_THAN_COMPACTED) {
+                return readSegments(segments, i + 1, p, maxEntries);
+            }
+            return readSegmentsFrom(segments, i, startPoint, maxEntries);
+        });
+    }
+
+    private static CompletableFuture<List<Entry>> readSegmentsFrom(List<CompactedTopicContext> segments, int i,
+                                                                   long startPoint, int maxEntries) {
+        CompactedTopicContext segment = segments.get(i);
+        long lastEntryId = segment.ledger.getLastAddConfirmed();
+        if (startPoint > lastEntryId) {
+            // all the entries of the next compacted ledgers are newer
+            return i + 1 < segments.size()
+                    ? readSegmentsFrom(segments, i + 1, 0, maxEntries)
+                    : CompletableFuture.completedFuture(Collections.emptyList());
+        }
+        long endPoint = Math.min(lastEntryId, startPoint + (maxEntries - 1));
+        return readEntries(segment.ledger, startPoint, endPoint, segment.shadowedKeys).thenCompose((entries) -> {
+            if (!entries.isEmpty()) {
+                return CompletableFuture.completedFuture(entries);
+            }
+            // all the messages were compacted again by the newer compacted ledgers
+            return readSegmentsFrom(segments, i, endPoint + 1, maxEntries);
+        });
+    }
+
+    /**
+     * Finds the first entry of the compacted ledger whose message id is greater than or equal to the position.
+     *
+     * <p/>With the position index of the compacted ledger, the entry is looked up in the index, and then found by
+     * a single read of the entries between the two surrounding indexed entries. Otherwise, the compacted ledger is
+     * binary searched, reading one entry per step.
+     */
+    static CompletableFuture<Long> findStartPoint(Position p, CompactedTopicContext context) {
+        long lastEntryId = context.ledger.getLastAddConfirmed();
+        CompactedLedgerIndex index = context.index;
+        if (lastEntryId < 0 || index == null || index.size() == 0) {
+            return findStartPoint(p, lastEntryId, context.cache);
+        }
+        int i = index.ceiling(p);
+        if (i < index.size() && index.isAt(i, p)) {
+            return CompletableFuture.completedFuture(index.getCompactedEntryId(i));
+        }
+        long start = i == 0 ? 0 : index.getCompactedEntryId(i - 1) + 1;
+        long end;
+        long notFound;
+        if (i < index.size()) {
+            // the indexed entry is newer than the position, unless one of the entries before it is too
+            end = index.getCompactedEntryId(i) - 1;
+            notFound = index.getCompactedEntryId(i);
+        } else {
+            end = lastEntryId;
+            notFound = NEWER_THAN_COMPACTED;
+        }
+        if (start > end) {
+            return CompletableFuture.completedFuture(notFound);
+        }
+        return findStartPointInRange(context.ledger, p, start, end, notFound);
+    }
+
+    private static CompletableFuture<Long> findStartPointInRange(LedgerHandle lh, Position p, long start, long end,
+                                                                 long notFound) {
+        CompletableFuture<Long> promise = new CompletableFuture<>();
+        lh.asyncReadEntries(start, end,
+                            (rc, _lh, seq, ctx) -> {
+                                if (rc != BKException.Code.OK) {
+                                    promise.completeExceptionally(BKException.create(rc));
+                                    return;
+                                }
+                                long startPoint = notFound;
+                                // Need to release buffers for all entries in the sequence
+                                while (seq.hasMoreElements()) {
+                                    LedgerEntry entry = seq.nextElement();
+                                    ByteBuf buf = entry.getEntryBuffer();
+                                    try (RawMessage m = RawMessageImpl.deserializeFrom(buf)) {
+                                        if (startPoint == notFound
+                                                && comparePositionAndMessageId(p, m.getMessageIdData()) <= 0) {
+                                            startPoint = entry.getEntryId();
+                                        }
+                                    } finally {
+                                        buf.release();
+                                    }
+                                }
+                                promise.complete(startPoint);
+                            }, null);
+        return promise;
+    }
+
     static CompletableFuture<Long> findStartPoint(Position p,
                                                   long lastEntryId,
                                                   AsyncLoadingCache<Long, MessageIdData> cache) {
@@ -256,6 +379,20 @@ public class CompactedTopicImpl implements CompactedTopic {
     }
 
     private static CompletableFuture<CompactedTopicContext> openCompactedLedger(BookKeeper bk, long id) {
+        return openCompactedLedgerChain(bk, id).thenApply(CompactedTopicImpl::newCompactedTopicContext);
+    }
+
+    /**
+     * A compacted ledger of an incremental compaction chain, with the keys it compacts if it is a delta.
+     */
+    private record Segment(LedgerHandle ledger, CompactedLedgerIndex index, Set<String> deltaKeys) {
+    }
+
+    /**
+     * Opens the compacted ledger, and the base compacted ledgers it applies to if it is the delta compacted ledger
+     * of an incremental compaction, oldest first.
+     */
+    private static CompletableFuture<List<Segment>> openCompactedLedgerChain(BookKeeper bk, long id) {
         CompletableFuture<LedgerHandle> promise = new CompletableFuture<>();
         bk.asyncOpenLedger(id,
                            Compactor.COMPACTED_TOPIC_LEDGER_DIGEST_TYPE,
@@ -267,11 +404,130 @@ public class CompactedTopicImpl implements CompactedTopic {
                                    promise.complete(ledger);
                                }
                            }, null);
-        return promise.thenApply((ledger) -> new CompactedTopicContext(
-                                         ledger, createCache(ledger, DEFAULT_MAX_CACHE_SIZE)));
+        return promise.thenCompose((ledger) -> {
+            Map<String, byte[]> metadata = ledger.getLedgerMetadata().getCustomMetadata();
+            Optional<Long> baseLedgerId = LedgerMetadataUtils.getCompactedLedgerBaseLedgerId(metadata);
+            Optional<Long> deltaKeysLedgerId = LedgerMetadataUtils.getCompactedLedgerDeltaKeysLedgerId(metadata);
+            CompletableFuture<List<Segment>> baseSegments = baseLedgerId.isPresent()
+                    ? openCompactedLedgerChain(bk, baseLedgerId.get())
+                    : CompletableFuture.completedFuture(new ArrayList<>());
+            CompletableFuture<Set<String>> deltaKeys = deltaKeysLedgerId.isPresent()
+                    ? readLedger(bk, deltaKeysLedgerId.get(), CompactedDeltaKeys::fromEntries)
+                    : CompletableFuture.completedFuture(Collections.emptySet());
+            return loadIndex(bk, ledger).thenCompose((index) -> baseSegments.thenCombine(deltaKeys,
+                    (segments, keys) -> {
+                        segments.add(new Segment(ledger, index, keys));
+                        return segments;
+                    }));
+        });
+    }
+
+    private static CompactedTopicContext newCompactedTopicContext(List<Segment> chain) {
+        Segment head = chain.get(chain.size() - 1);
+        CompactedTopicContext[] baseSegments = new CompactedTopicContext[chain.size() - 1];
+        Set<String> shadowedKeys = new HashSet<>(head.deltaKeys());
+        for (int i = baseSegments.length - 1; i >= 0; i--) {
+            Segment segment = chain.get(i);
+            baseSegments[i] = new CompactedTopicContext(segment.ledger(),
+                    createCache(segment.ledger(), DEFAULT_MAX_CACHE_SIZE), segment.index(), Set.copyOf(shadowedKeys),
+                    Collections.emptyList());
+            shadowedKeys.addAll(segment.deltaKeys());
+        }
+        return new CompactedTopicContext(head.ledger(), createCache(head.ledger(), DEFAULT_MAX_CACHE_SIZE),
+                head.index(), Collections.emptySet(), List.of(baseSegments));
+    }
+
+    /**
+     * Loads the position index written by the compactor next to the compacted ledger, if any. The start points
+     * are found by binary searching the compacted ledger when the index cannot be loaded.
+     */
+    private static CompletableFuture<CompactedLedgerIndex> loadIndex(BookKeeper bk, LedgerHandle ledger) {
+        Optional<Long> indexLedgerId =
+                LedgerMetadataUtils.getCompactedLedgerIndexLedgerId(ledger.getLedgerMetadata().getCustomMetadata());
+        if (indexLedgerId.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return readLedger(bk, indexLedgerId.get(), CompactedLedgerIndex::fromEntries).exceptionally((ex) -> {
+            log.warn("Failed to load the index ledger {} of compacted ledger {}, start points will be binary searched",
+                    indexLedgerId.get(), ledger.getId(), ex);
+            return null;
+        });
+    }
+
+    /**
+     * Reads all the entries of a side ledger of a compacted ledger, and decodes them.
+     */
+    private static <T> CompletableFuture<T> readLedger(BookKeeper bk, long id, Function<List<ByteBuf>, T> decoder) {
+        return openLedger(bk, id).thenCompose((lh) -> {
+            CompletableFuture<T> promise = new CompletableFuture<>();
+            if (lh.getLastAddConfirmed() < 0) {
+                promise.complete(decoder.apply(Collections.emptyList()));
+            } else {
+                lh.asyncReadEntries(0, lh.getLastAddConfirmed(), (rc, _lh, seq, ctx) -> {
+                    if (rc != BKException.Code.OK) {
+                        promise.completeExceptionally(BKException.create(rc));
+                        return;
+                    }
+                    List<ByteBuf> entries = new ArrayList<>();
+                    try {
+                        while (seq.hasMoreElements()) {
+                            entries.add(seq.nextElement().getEntryBuffer());
+                        }
+                        promise.complete(decoder.apply(entries));
+                    } catch (Throwable t) {
+                        promise.completeExceptionally(t);
+                    } finally {
+                        entries.forEach(ByteBuf::release);
+                    }
+                }, null);
+            }
+            return promise.whenComplete((result, ex) -> lh.closeAsync());
+        });
+    }
+
+    private static CompletableFuture<LedgerHandle> openLedger(BookKeeper bk, long id) {
+        CompletableFuture<LedgerHandle> promise = new CompletableFuture<>();
+        bk.asyncOpenLedgerNoRecovery(id,
+                                     Compactor.COMPACTED_TOPIC_LEDGER_DIGEST_TYPE,
+                                     Compactor.COMPACTED_TOPIC_LEDGER_PASSWORD,
+                                     (rc, ledger, ctx) -> {
+                                         if (rc != BKException.Code.OK) {
+                                             promise.completeExceptionally(BKException.create(rc));
+                                         } else {
+                                             promise.complete(ledger);
+                                         }
+                                     }, null);
+        return promise;
+    }
+
+    /**
+     * Deletes the compacted ledger and its side ledgers, and the base compacted ledgers it applies to if it is the
+     * delta compacted ledger of an incremental compaction, except the ones to keep.
+     */
+    private static CompletableFuture<Void> tryDeleteCompactedLedger(BookKeeper bk, long id, Set<Long> keep) {
+        if (keep.contains(id)) {
+            // and so are the base compacted ledgers it applies to
+            return CompletableFuture.completedFuture(null);
+        }
+        return openLedger(bk, id).thenApply((ledger) -> {
+            Map<String, byte[]> metadata = ledger.getLedgerMetadata().getCustomMetadata();
+            ledger.closeAsync();
+            return metadata;
+        }).exceptionally((ex) -> Collections.emptyMap())
+          .thenCompose((metadata) -> {
+              List<CompletableFuture<Void>> futures = new ArrayList<>();
+              LedgerMetadataUtils.getCompactedLedgerIndexLedgerId(metadata)
+                      .ifPresent((indexLedgerId) -> futures.add(tryDeleteLedger(bk, indexLedgerId)));
+              LedgerMetadataUtils.getCompactedLedgerDeltaKeysLedgerId(metadata)
+                      .ifPresent((deltaKeysLedgerId) -> futures.add(tryDeleteLedger(bk, deltaKeysLedgerId)));
+              futures.add(tryDeleteLedger(bk, id));
+              LedgerMetadataUtils.getCompactedLedgerBaseLedgerId(metadata)
+                      .ifPresent((baseLedgerId) -> futures.add(tryDeleteCompactedLedger(bk, baseLedgerId, keep)));
+              return FutureUtil.waitForAll(futures);
+          });
     }
 
-    private static CompletableFuture<Void> tryDeleteCompactedLedger(BookKeeper bk, long id) {
+    private static CompletableFuture<Void> tryDeleteLedger(BookKeeper bk, long id) {
         CompletableFuture<Void> promise = new CompletableFuture<>();
         bk.asyncDeleteLedger(id,
                              (rc, ctx) -> {
@@ -287,6 +543,11 @@ public class CompactedTopicImpl implements CompactedTopic {
     }
 
     static CompletableFuture<List<Entry>> readEntries(LedgerHandle lh, long from, long to) {
+        return readEntries(lh, from, to, Collections.emptySet());
+    }
+
+    private static CompletableFuture<List<Entry>> readEntries(LedgerHandle lh, long from, long to,
+                                                              Set<String> shadowedKeys) {
         CompletableFuture<Enumeration<LedgerEntry>> promise = new CompletableFuture<>();
 
         lh.asyncReadEntries(from, to,
@@ -303,9 +564,18 @@ public class CompactedTopicImpl implements CompactedTopic {
                     while (seq.hasMoreElements()) {
                         ByteBuf buf = seq.nextElement().getEntryBuffer();
                         try (RawMessage m = RawMessageImpl.deserializeFrom(buf)) {
-                            entries.add(EntryImpl.create(m.getMessageIdData().getLedgerId(),
-                                                         m.getMessageIdData().getEntryId(),
-                                                         m.getHeadersAndPayload()));
+                            RawMessage visible = shadowedKeys.isEmpty() ? m : skipShadowedKeys(m, shadowedKeys);
+                            if (visible != null) {
+                                try {
+                                    entries.add(EntryImpl.create(visible.getMessageIdData().getLedgerId(),
+                                                                 visible.getMessageIdData().getEntryId(),
+                                                                 visible.getHeadersAndPayload()));
+                                } finally {
+                                    if (visible != m) {
+                                        visible.close();
+                                    }
+                                }
+                            }
                         } finally {
                             buf.release();
                         }
@@ -314,6 +584,24 @@ public class CompactedTopicImpl implements CompactedTopic {
                 });
     }
 
+    /**
+     * Removes the messages of the shadowed keys from a message of a compacted ledger. Returns the message itself
+     * if none of its keys is shadowed, a new batch message if some are, or null if all of them are.
+     */
+    private static RawMessage skipShadowedKeys(RawMessage m, Set<String> shadowedKeys) {
+        MessageMetadata metadata = Commands.parseMessageMetadata(m.getHeadersAndPayload());
+        if (RawBatchConverter.isReadableBatch(metadata)) {
+            try {
+                return RawBatchConverter.rebatchMessage(m, metadata, (key, id) -> !shadowedKeys.contains(key), true)
+                        .orElse(null);
+            } catch (IOException e) {
+                log.info("Error decoding batch for message {}. Whole batch will be read", m.getMessageIdData(), e);
+                return m;
+            }
+        }
+        return metadata.hasPartitionKey() && shadowedKeys.contains(metadata.getPartitionKey()) ? null : m;
+    }
+
     /**
      * Getter for CompactedTopicContext.
      * @return CompactedTopicContext
@@ -330,35 +618,55 @@ public class CompactedTopicImpl implements CompactedTopic {
             return CompletableFuture.completedFuture(null);
         }
         return compactedTopicContext.thenCompose(context -> {
-            if (context.ledger.getLastAddConfirmed() == -1) {
-                return CompletableFuture.completedFuture(null);
-            }
-            return readEntries(
-                    context.ledger, context.ledger.getLastAddConfirmed(), context.ledger.getLastAddConfirmed())
-                    .thenCompose(entries -> entries.size() > 0
-                            ? CompletableFuture.completedFuture(entries.get(0))
-                            : CompletableFuture.completedFuture(null));
+            List<CompactedTopicContext> segments = context.getSegments();
+            return readLastEntry(segments, segments.size() - 1, context.ledger.getLastAddConfirmed());
         });
     }
 
+    private static CompletableFuture<Entry> readLastEntry(List<CompactedTopicContext> segments, int i,
+                                                          long entryId) {
+        if (entryId < 0) {
+            return i == 0
+                    ? CompletableFuture.completedFuture(null)
+                    : readLastEntry(segments, i - 1, segments.get(i - 1).ledger.getLastAddConfirmed());
+        }
+        CompactedTopicContext segment = segments.get(i);
+        return readEntries(segment.ledger, entryId, entryId, segment.shadowedKeys)
+                .thenCompose(entries -> entries.size() > 0
+                        ? CompletableFuture.completedFuture(entries.get(0))
+                        : readLastEntry(segments, i, entryId - 1));
+    }
+
     CompletableFuture<Entry> findFirstMatchEntry(final Predicate<Entry> predicate) {
         var compactedTopicContextFuture = this.getCompactedTopicContextFuture();
 
         if (compactedTopicContextFuture == null) {
             return CompletableFuture.completedFuture(null);
         }
-        return compactedTopicContextFuture.thenCompose(compactedTopicContext -> {
-            LedgerHandle lh = compactedTopicContext.getLedger();
-            CompletableFuture<Long> promise = new CompletableFuture<>();
-            findFirstMatchIndexLoop(predicate, 0L, lh.getLastAddConfirmed(), promise, null, lh);
-            return promise.thenCompose(index -> {
-                if (index == null) {
-                    return CompletableFuture.completedFuture(null);
-                }
-                return readEntries(lh, index, index).thenApply(entries -> entries.get(0));
-            });
+        return compactedTopicContextFuture.thenCompose(compactedTopicContext ->
+                findFirstMatchEntry(predicate, compactedTopicContext.getSegments(), 0));
+    }
+
+    private static CompletableFuture<Entry> findFirstMatchEntry(final Predicate<Entry> predicate,
+                                                                final List<CompactedTopicContext> segments,
+                                                                final int i) {
+        if (i == segments.size()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        LedgerHandle lh = segments.get(i).getLedger();
+        CompletableFuture<Long> promise = new CompletableFuture<>();
+        findFirstMatchIndexLoop(predicate, 0L, lh.getLastAddConfirmed(), promise, null, lh);
+        return promise.thenCompose(index -> {
+            if (index == null) {
+                return findFirstMatchEntry(predicate, segments, i + 1);
+            }
+            // the matching entry may have been compacted again by a newer compacted ledger of the chain, in which
+            // case the first entry after it that is still visible matches too
+            return readSegmentsFrom(segments, i, index, 1)
+                    .thenApply(entries -> entries.isEmpty() ? null : entries.get(0));
         });
     }
+
     private static void findFirstMatchIndexLoop(final Predicate<Entry> predicate,
                                                 final long start, final long end,
                                                 final CompletableFuture<Long> promise,
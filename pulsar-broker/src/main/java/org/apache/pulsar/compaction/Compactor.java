@@ -22,6 +22,7 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ScheduledExecutorService;
 import org.apache.bookkeeper.client.BookKeeper;
+import org.apache.bookkeeper.mledger.Position;
 import org.apache.pulsar.broker.ServiceConfiguration;
 import org.apache.pulsar.client.api.PulsarClient;
 import org.apache.pulsar.client.api.RawReader;
@@ -57,13 +58,30 @@ public abstract class Compactor {
 
     public CompletableFuture<Long> compact(String topic) {
         return RawReader.create(pulsar, topic, COMPACTION_SUBSCRIPTION, false, false).thenComposeAsync(
-                this::compactAndCloseReader, scheduler);
+                (reader) -> compactAndCloseReader(reader, null, null), scheduler);
     }
 
-    private CompletableFuture<Long> compactAndCloseReader(RawReader reader) {
+    /**
+     * Whether {@link #compactIncrementally} may only compact the messages after the compaction horizon.
+     */
+    public boolean isIncrementalCompactionEnabled() {
+        return false;
+    }
+
+    /**
+     * Compacts the topic on top of the current compacted ledger, whose compaction horizon is the given position.
+     * Compactors not supporting the incremental compaction compact the whole topic again.
+     */
+    public CompletableFuture<Long> compactIncrementally(String topic, CompactedTopicContext base, Position horizon) {
+        return RawReader.create(pulsar, topic, COMPACTION_SUBSCRIPTION, false, false).thenComposeAsync(
+                (reader) -> compactAndCloseReader(reader, base, horizon), scheduler);
+    }
+
+    private CompletableFuture<Long> compactAndCloseReader(RawReader reader, CompactedTopicContext base,
+                                                          Position horizon) {
         CompletableFuture<Long> promise = new CompletableFuture<>();
         mxBean.addCompactionStartOp(reader.getTopic());
-        doCompaction(reader, bk).whenComplete(
+        doCompaction(reader, bk, base, horizon).whenComplete(
                 (ledgerId, exception) -> {
                     reader.closeAsync().whenComplete((v, exception2) -> {
                         if (exception2 != null) {
@@ -84,6 +102,11 @@ public abstract class Compactor {
 
     protected abstract CompletableFuture<Long> doCompaction(RawReader reader, BookKeeper bk);
 
+    protected CompletableFuture<Long> doCompaction(RawReader reader, BookKeeper bk, CompactedTopicContext base,
+                                                   Position horizon) {
+        return doCompaction(reader, bk);
+    }
+
     public CompactorMXBean getStats() {
         return this.mxBean;
     }
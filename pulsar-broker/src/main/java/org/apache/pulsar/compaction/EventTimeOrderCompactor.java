@@ -20,6 +20,8 @@ package org.apache.pulsar.compaction;
 
 import io.netty.buffer.ByteBuf;
 import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -37,7 +39,7 @@ import org.apache.pulsar.common.api.proto.MessageMetadata;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class EventTimeOrderCompactor extends AbstractTwoPhaseCompactor<Pair<MessageId, Long>> {
+public class EventTimeOrderCompactor extends AbstractTwoPhaseCompactor<Map<String, Pair<MessageId, Long>>> {
 
   private static final Logger log = LoggerFactory.getLogger(EventTimeOrderCompactor.class);
 
@@ -49,6 +51,20 @@ public class EventTimeOrderCompactor extends AbstractTwoPhaseCompactor<Pair<Mess
   }
 
   @Override
+  protected Map<String, Pair<MessageId, Long>> newLatestForKey(boolean incremental) {
+    return incremental ? new DeltaKeyMap<>() : new HashMap<>();
+  }
+
+  @Override
+  protected Collection<String> getTouchedKeys(Map<String, Pair<MessageId, Long>> latestForKey) {
+    return ((DeltaKeyMap<Pair<MessageId, Long>>) latestForKey).getTouchedKeys();
+  }
+
+  @Override
+  protected LatestMessageIds toLatestMessageIds(String topic, Map<String, Pair<MessageId, Long>> latestForKey) {
+    return LatestMessageIds.of(toLatestMessageIdForKey(latestForKey));
+  }
+
   protected Map<String, MessageId> toLatestMessageIdForKey(
       Map<String, Pair<MessageId, Long>> latestForKey) {
     return latestForKey.entrySet()
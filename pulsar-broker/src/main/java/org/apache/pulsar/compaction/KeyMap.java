@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.compaction;
+
+import java.util.Collection;
+import java.util.Map;
+import org.apache.pulsar.client.api.MessageId;
+
+/**
+ * The latest message id of each key of a topic, filled by the phase one of a {@link PublishingOrderCompactor}, in
+ * the order of the topic.
+ */
+interface KeyMap extends AutoCloseable {
+
+    /**
+     * Sets {@code id} as the latest message of {@code key}.
+     *
+     * @return whether it replaces a message of {@code key} known to the map, the other replaced messages being
+     *         reported by {@link #finish}
+     */
+    boolean put(String key, MessageId id);
+
+    /**
+     * Removes the latest message of {@code key}.
+     */
+    void remove(String key);
+
+    /**
+     * Returns the latest message ids looked up by the phase two. The map is not usable anymore.
+     *
+     * @param onReplaced called for each replaced message that {@link #put} did not report
+     */
+    LatestMessageIds finish(Runnable onReplaced);
+
+    @Override
+    void close();
+
+    static KeyMap of(Map<String, MessageId> latestForKey) {
+        return new OnHeapKeyMap(latestForKey);
+    }
+
+    /**
+     * A key map backed by a {@link Map}, which knows all the replaced messages.
+     */
+    final class OnHeapKeyMap implements KeyMap {
+        private final Map<String, MessageId> latestForKey;
+
+        private OnHeapKeyMap(Map<String, MessageId> latestForKey) {
+            this.latestForKey = latestForKey;
+        }
+
+        @Override
+        public boolean put(String key, MessageId id) {
+            return latestForKey.put(key, id) != null;
+        }
+
+        @Override
+        public void remove(String key) {
+            latestForKey.remove(key);
+        }
+
+        @Override
+        public LatestMessageIds finish(Runnable onReplaced) {
+            return LatestMessageIds.of(latestForKey);
+        }
+
+        @Override
+        public void close() {
+        }
+
+        /**
+         * The keys updated or deleted, when backed by the map of an incremental compaction.
+         */
+        Collection<String> getTouchedKeys() {
+            return ((AbstractTwoPhaseCompactor.DeltaKeyMap<MessageId>) latestForKey).getTouchedKeys();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.compaction;
+
+import java.util.Map;
+import org.apache.pulsar.client.api.MessageId;
+
+/**
+ * The latest message id of each key of a topic, selected by the phase one of a two phase compaction, and looked up
+ * by the phase two, in the order of the topic.
+ */
+interface LatestMessageIds extends AutoCloseable {
+
+    /**
+     * Whether {@code id} is the latest message of {@code key}. The ids are tested in the order of the topic.
+     */
+    boolean isLatest(String key, MessageId id);
+
+    /**
+     * The number of keys.
+     */
+    long size();
+
+    @Override
+    void close();
+
+    static LatestMessageIds of(Map<String, MessageId> latestForKey) {
+        return new LatestMessageIds() {
+            @Override
+            public boolean isLatest(String key, MessageId id) {
+                return id.equals(latestForKey.get(key));
+            }
+
+            @Override
+            public long size() {
+                return latestForKey.size();
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+}
@@ -19,10 +19,14 @@
 package org.apache.pulsar.compaction;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.ScheduledExecutorService;
 import org.apache.bookkeeper.client.BookKeeper;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.ImmutableTriple;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.pulsar.broker.ServiceConfiguration;
@@ -35,32 +39,64 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 
-public class PublishingOrderCompactor extends AbstractTwoPhaseCompactor<MessageId> {
+public class PublishingOrderCompactor extends AbstractTwoPhaseCompactor<KeyMap> {
 
     private static final Logger log = LoggerFactory.getLogger(PublishingOrderCompactor.class);
 
+    private final long keyMapMemoryLimitInBytes;
+    private final Path keyMapSpillDirectory;
+
     public PublishingOrderCompactor(ServiceConfiguration conf,
         PulsarClient pulsar,
         BookKeeper bk,
         ScheduledExecutorService scheduler) {
         super(conf, pulsar, bk, scheduler);
+        this.keyMapMemoryLimitInBytes = conf.getTopicCompactionKeyMapMemoryLimitInMB() * 1024L * 1024L;
+        this.keyMapSpillDirectory = Paths.get(StringUtils.isNotBlank(conf.getTopicCompactionKeyMapSpillDirectory())
+                ? conf.getTopicCompactionKeyMapSpillDirectory() : System.getProperty("java.io.tmpdir"));
+    }
+
+    @Override
+    public boolean isIncrementalCompactionEnabled() {
+        return topicCompactionMaxDeltaSegments > 0;
+    }
+
+    @Override
+    protected KeyMap newLatestForKey(boolean incremental) {
+        if (incremental) {
+            return KeyMap.of(new DeltaKeyMap<>());
+        }
+        if (keyMapMemoryLimitInBytes <= 0) {
+            return KeyMap.of(new HashMap<>());
+        }
+        return new SpillingKeyMap(keyMapMemoryLimitInBytes, keyMapSpillDirectory);
+    }
+
+    @Override
+    protected Collection<String> getTouchedKeys(KeyMap latestForKey) {
+        return ((KeyMap.OnHeapKeyMap) latestForKey).getTouchedKeys();
+    }
+
+    @Override
+    protected void releaseLatestForKey(KeyMap latestForKey) {
+        latestForKey.close();
     }
 
     @Override
-    protected Map<String, MessageId> toLatestMessageIdForKey(Map<String, MessageId> latestForKey) {
-        return latestForKey;
+    protected LatestMessageIds toLatestMessageIds(String topic, KeyMap latestForKey) {
+        // the messages replaced by a message of a newer run of a spilling key map are only known when merging the runs
+        return latestForKey.finish(() -> mxBean.addCompactionRemovedEvent(topic));
     }
 
     @Override
-    protected boolean compactMessage(String topic, Map<String, MessageId> latestForKey,
+    protected boolean compactMessage(String topic, KeyMap latestForKey,
         RawMessage m, MessageMetadata metadata, MessageId id) {
         boolean deletedMessage = false;
         boolean replaceMessage = false;
         Pair<String, Integer> keyAndSize = extractKeyAndSize(m, metadata);
         if (keyAndSize != null) {
             if (keyAndSize.getRight() > 0) {
-                MessageId old = latestForKey.put(keyAndSize.getLeft(), id);
-                replaceMessage = old != null;
+                replaceMessage = latestForKey.put(keyAndSize.getLeft(), id);
             } else {
                 deletedMessage = true;
                 latestForKey.remove(keyAndSize.getLeft());
@@ -77,7 +113,7 @@ public class PublishingOrderCompactor extends AbstractTwoPhaseCompactor<MessageI
     }
 
     @Override
-    protected boolean compactBatchMessage(String topic, Map<String, MessageId> latestForKey,
+    protected boolean compactBatchMessage(String topic, KeyMap latestForKey,
         RawMessage m, MessageMetadata metadata, MessageId id) {
         boolean deletedMessage = false;
         try {
@@ -95,8 +131,7 @@ public class PublishingOrderCompactor extends AbstractTwoPhaseCompactor<MessageI
                         continue;
                     }
                     if (e.getRight() > 0) {
-                        MessageId old = latestForKey.put(e.getMiddle(), e.getLeft());
-                        if (old != null) {
+                        if (latestForKey.put(e.getMiddle(), e.getLeft())) {
                             mxBean.addCompactionRemovedEvent(topic);
                         }
                     } else {
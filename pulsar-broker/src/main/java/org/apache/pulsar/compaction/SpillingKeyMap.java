@@ -0,0 +1,547 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.compaction;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import io.netty.buffer.ByteBuf;
+import it.unimi.dsi.fastutil.Arrays;
+import it.unimi.dsi.fastutil.ints.IntComparator;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import org.apache.pulsar.client.api.MessageId;
+import org.apache.pulsar.client.api.MessageIdAdv;
+import org.apache.pulsar.common.allocator.PulsarByteBufAllocator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The latest message id of each key, for the phase one of the compaction of the topics having too many keys to keep
+ * them in a {@link java.util.HashMap}.
+ *
+ * <p/>The keys are replaced by their 128 bits murmur3 hash, and the message ids are kept in an off-heap open addressing
+ * hash table of at most {@code memoryLimitInBytes}. When the table is full, its records are sorted by key hash and
+ * written to a run file of the spill directory, and the table is cleared. A removed key is kept as a tombstone, as
+ * it may be in an older run.
+ *
+ * <p/>{@link #finish} merges the runs, the newest record of a key winning, and returns the latest message ids sorted
+ * by message id, spilled to sorted runs too when they do not fit in the table, so that the phase two only needs to
+ * move forward in them.
+ *
+ * <p/>{@link #put} only knows the previous message of a key that is still in the table, the messages replaced by a
+ * message of a newer run are reported when merging the runs.
+ */
+class SpillingKeyMap implements KeyMap {
+    private static final Logger log = LoggerFactory.getLogger(SpillingKeyMap.class);
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    // hash high and low bits, ledger id, entry id, batch index and state
+    private static final int RECORD_SIZE = 40;
+    private static final int HASH_HIGH = 0;
+    private static final int HASH_LOW = 8;
+    private static final int LEDGER_ID = 16;
+    private static final int ENTRY_ID = 24;
+    private static final int BATCH_INDEX = 32;
+    private static final int STATE = 36;
+
+    // the state is the last operation on the key in the run, and whether the first one was a put, which replaces
+    // the message of the key in an older run
+    private static final int EMPTY = 0;
+    private static final int PUT = 1;
+    private static final int REMOVED = 2;
+    private static final int FIRST_PUT = 4;
+
+    // the table is at most 1.25 GB, within the maximum capacity of a buffer
+    private static final int MAX_CAPACITY = 1 << 25;
+    private static final int MIN_CAPACITY = 1 << 10;
+
+    private final Path spillDirectory;
+    private final ByteBuf table;
+    private final int capacity;
+    private final int maxRecords;
+    private final List<Path> runs = new ArrayList<>();
+    private int records = 0;
+
+    SpillingKeyMap(long memoryLimitInBytes, Path spillDirectory) {
+        this.spillDirectory = spillDirectory;
+        this.capacity = Integer.highestOneBit(
+                (int) Math.max(Math.min(memoryLimitInBytes / RECORD_SIZE, MAX_CAPACITY), MIN_CAPACITY));
+        this.maxRecords = capacity / 4 * 3;
+        this.table = PulsarByteBufAllocator.DEFAULT.directBuffer(capacity * RECORD_SIZE, capacity * RECORD_SIZE);
+        table.setZero(0, table.capacity());
+    }
+
+    @Override
+    public boolean put(String key, MessageId id) {
+        MessageIdAdv messageId = (MessageIdAdv) id;
+        return write(key, messageId.getLedgerId(), messageId.getEntryId(), messageId.getBatchIndex(), PUT | FIRST_PUT);
+    }
+
+    @Override
+    public void remove(String key) {
+        write(key, -1, -1, -1, REMOVED);
+    }
+
+    /**
+     * @return whether the key had a message in the table
+     */
+    private boolean write(String key, long ledgerId, long entryId, int batchIndex, int state) {
+        ByteBuffer hash = ByteBuffer.wrap(HASH_FUNCTION.hashString(key, UTF_8).asBytes());
+        long hashHigh = hash.getLong(0);
+        long hashLow = hash.getLong(8);
+        int mask = capacity - 1;
+        int slot = (int) (hashLow ^ (hashLow >>> 32)) & mask;
+        int offset;
+        while (true) {
+            offset = slot * RECORD_SIZE;
+            int slotState = table.getInt(offset + STATE);
+            if (slotState == EMPTY) {
+                if (state == REMOVED && runs.isEmpty()) {
+                    // the key was never added
+                    return false;
+                }
+                break;
+            }
+            if (table.getLong(offset + HASH_HIGH) == hashHigh && table.getLong(offset + HASH_LOW) == hashLow) {
+                boolean previous = (slotState & PUT) != 0;
+                table.setLong(offset + LEDGER_ID, ledgerId);
+                table.setLong(offset + ENTRY_ID, entryId);
+                table.setInt(offset + BATCH_INDEX, batchIndex);
+                table.setInt(offset + STATE, (state & ~FIRST_PUT) | (slotState & FIRST_PUT));
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        table.setLong(offset + HASH_HIGH, hashHigh);
+        table.setLong(offset + HASH_LOW, hashLow);
+        table.setLong(offset + LEDGER_ID, ledgerId);
+        table.setLong(offset + ENTRY_ID, entryId);
+        table.setInt(offset + BATCH_INDEX, batchIndex);
+        table.setInt(offset + STATE, state);
+        if (++records >= maxRecords) {
+            try {
+                spill();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Writes the records of the table, sorted by key hash, to a new run.
+     */
+    private void spill() throws IOException {
+        int count = compact(true);
+        sort(count, this::compareHashes);
+        Path run = Files.createTempFile(spillDirectory, "compaction-keys-", ".run");
+        runs.add(run);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run)))) {
+            for (int i = 0; i < count; i++) {
+                int offset = i * RECORD_SIZE;
+                out.writeLong(table.getLong(offset + HASH_HIGH));
+                out.writeLong(table.getLong(offset + HASH_LOW));
+                out.writeLong(table.getLong(offset + LEDGER_ID));
+                out.writeLong(table.getLong(offset + ENTRY_ID));
+                out.writeInt(table.getInt(offset + BATCH_INDEX));
+                out.writeByte(table.getInt(offset + STATE));
+            }
+        }
+        log.info("Spilled {} compaction keys to {}", count, run);
+        table.setZero(0, table.capacity());
+        records = 0;
+    }
+
+    /**
+     * Moves the records of the table to its beginning.
+     */
+    private int compact(boolean keepRemoved) {
+        int count = 0;
+        for (int slot = 0; slot < capacity; slot++) {
+            int offset = slot * RECORD_SIZE;
+            int state = table.getInt(offset + STATE);
+            if ((state & PUT) != 0 || (keepRemoved && (state & REMOVED) != 0)) {
+                if (slot != count) {
+                    table.setBytes(count * RECORD_SIZE, table, offset, RECORD_SIZE);
+                }
+                count++;
+            }
+        }
+        table.setZero(count * RECORD_SIZE, (capacity - count) * RECORD_SIZE);
+        return count;
+    }
+
+    private void sort(int count, IntComparator comparator) {
+        byte[] tmp = new byte[RECORD_SIZE];
+        Arrays.quickSort(0, count, comparator, (i, j) -> {
+            table.getBytes(i * RECORD_SIZE, tmp);
+            table.setBytes(i * RECORD_SIZE, table, j * RECORD_SIZE, RECORD_SIZE);
+            table.setBytes(j * RECORD_SIZE, tmp);
+        });
+    }
+
+    private int compareHashes(int i, int j) {
+        int offsetI = i * RECORD_SIZE;
+        int offsetJ = j * RECORD_SIZE;
+        int result = Long.compare(table.getLong(offsetI + HASH_HIGH), table.getLong(offsetJ + HASH_HIGH));
+        return result != 0 ? result
+                : Long.compare(table.getLong(offsetI + HASH_LOW), table.getLong(offsetJ + HASH_LOW));
+    }
+
+    private int comparePositions(int i, int j) {
+        int offsetI = i * RECORD_SIZE;
+        int offsetJ = j * RECORD_SIZE;
+        int result = Long.compare(table.getLong(offsetI + LEDGER_ID), table.getLong(offsetJ + LEDGER_ID));
+        if (result == 0) {
+            result = Long.compare(table.getLong(offsetI + ENTRY_ID), table.getLong(offsetJ + ENTRY_ID));
+        }
+        return result != 0 ? result
+                : Integer.compare(table.getInt(offsetI + BATCH_INDEX), table.getInt(offsetJ + BATCH_INDEX));
+    }
+
+    /**
+     * Merges the runs, and returns the latest message ids, in the order of the topic. The map is not usable anymore.
+     *
+     * @param onReplaced called for each message replaced by a newer message of its key in a newer run
+     */
+    @Override
+    public LatestMessageIds finish(Runnable onReplaced) {
+        try {
+            if (runs.isEmpty()) {
+                int count = compact(false);
+                sort(count, this::comparePositions);
+                return new TableLatestMessageIds(count);
+            }
+            if (records > 0) {
+                spill();
+            }
+            return mergeRuns(onReplaced);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private LatestMessageIds mergeRuns(Runnable onReplaced) throws IOException {
+        List<Path> positionRuns = new ArrayList<>();
+        PriorityQueue<RunReader> readers = new PriorityQueue<>();
+        int count = 0;
+        long keys = 0;
+        try {
+            for (int i = 0; i < runs.size(); i++) {
+                RunReader reader = new RunReader(runs.get(i), i);
+                if (reader.next()) {
+                    readers.add(reader);
+                } else {
+                    reader.close();
+                }
+            }
+            while (!readers.isEmpty()) {
+                // the records of a key come by run, the oldest first
+                RunReader reader = readers.poll();
+                long hashHigh = reader.hashHigh;
+                long hashLow = reader.hashLow;
+                long ledgerId = reader.ledgerId;
+                long entryId = reader.entryId;
+                int batchIndex = reader.batchIndex;
+                int state = reader.state;
+                advance(readers, reader);
+                while (!readers.isEmpty() && readers.peek().hashHigh == hashHigh
+                        && readers.peek().hashLow == hashLow) {
+                    RunReader newer = readers.poll();
+                    if ((state & PUT) != 0 && (newer.state & FIRST_PUT) != 0) {
+                        onReplaced.run();
+                    }
+                    ledgerId = newer.ledgerId;
+                    entryId = newer.entryId;
+                    batchIndex = newer.batchIndex;
+                    state = newer.state;
+                    advance(readers, newer);
+                }
+                if ((state & PUT) == 0) {
+                    continue;
+                }
+                if (count == capacity) {
+                    positionRuns.add(spillPositions(count));
+                    count = 0;
+                }
+                int offset = count * RECORD_SIZE;
+                table.setLong(offset + LEDGER_ID, ledgerId);
+                table.setLong(offset + ENTRY_ID, entryId);
+                table.setInt(offset + BATCH_INDEX, batchIndex);
+                table.setInt(offset + STATE, PUT);
+                count++;
+                keys++;
+            }
+        } finally {
+            readers.forEach(RunReader::close);
+            runs.forEach(SpillingKeyMap::delete);
+            runs.clear();
+        }
+        if (positionRuns.isEmpty()) {
+            sort(count, this::comparePositions);
+            return new TableLatestMessageIds(count);
+        }
+        if (count > 0) {
+            positionRuns.add(spillPositions(count));
+        }
+        return new MergedLatestMessageIds(positionRuns, keys);
+    }
+
+    private void advance(PriorityQueue<RunReader> readers, RunReader reader) throws IOException {
+        if (reader.next()) {
+            readers.add(reader);
+        } else {
+            reader.close();
+        }
+    }
+
+    private Path spillPositions(int count) throws IOException {
+        sort(count, this::comparePositions);
+        Path run = Files.createTempFile(spillDirectory, "compaction-ids-", ".run");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run)))) {
+            for (int i = 0; i < count; i++) {
+                int offset = i * RECORD_SIZE;
+                out.writeLong(table.getLong(offset + LEDGER_ID));
+                out.writeLong(table.getLong(offset + ENTRY_ID));
+                out.writeInt(table.getInt(offset + BATCH_INDEX));
+            }
+        }
+        return run;
+    }
+
+    @Override
+    public void close() {
+        if (table.refCnt() > 0) {
+            table.release();
+        }
+        runs.forEach(SpillingKeyMap::delete);
+        runs.clear();
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Failed to delete {}", file, e);
+        }
+    }
+
+    private static int compare(long ledgerId1, long entryId1, int batchIndex1,
+                               long ledgerId2, long entryId2, int batchIndex2) {
+        int result = Long.compare(ledgerId1, ledgerId2);
+        if (result == 0) {
+            result = Long.compare(entryId1, entryId2);
+        }
+        return result != 0 ? result : Integer.compare(batchIndex1, batchIndex2);
+    }
+
+    private static final class RunReader implements Comparable<RunReader> {
+        private final DataInputStream in;
+        private final int run;
+        private long hashHigh;
+        private long hashLow;
+        private long ledgerId;
+        private long entryId;
+        private int batchIndex;
+        private int state;
+
+        RunReader(Path file, int run) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)));
+            this.run = run;
+        }
+
+        boolean next() throws IOException {
+            try {
+                hashHigh = in.readLong();
+            } catch (EOFException e) {
+                return false;
+            }
+            hashLow = in.readLong();
+            ledgerId = in.readLong();
+            entryId = in.readLong();
+            batchIndex = in.readInt();
+            state = in.readByte();
+            return true;
+        }
+
+        @Override
+        public int compareTo(RunReader other) {
+            int result = Long.compare(hashHigh, other.hashHigh);
+            if (result == 0) {
+                result = Long.compare(hashLow, other.hashLow);
+            }
+            return result != 0 ? result : Integer.compare(run, other.run);
+        }
+
+        void close() {
+            try {
+                in.close();
+            } catch (IOException e) {
+                log.warn("Failed to close a compaction run", e);
+            }
+        }
+    }
+
+    /**
+     * The latest message ids, sorted in the table.
+     */
+    private final class TableLatestMessageIds implements LatestMessageIds {
+        private final int count;
+        private int next = 0;
+
+        TableLatestMessageIds(int count) {
+            this.count = count;
+        }
+
+        @Override
+        public boolean isLatest(String key, MessageId id) {
+            MessageIdAdv messageId = (MessageIdAdv) id;
+            while (next < count) {
+                int offset = next * RECORD_SIZE;
+                int result = compare(table.getLong(offset + LEDGER_ID), table.getLong(offset + ENTRY_ID),
+                        table.getInt(offset + BATCH_INDEX),
+                        messageId.getLedgerId(), messageId.getEntryId(), messageId.getBatchIndex());
+                if (result >= 0) {
+                    return result == 0;
+                }
+                next++;
+            }
+            return false;
+        }
+
+        @Override
+        public long size() {
+            return count;
+        }
+
+        @Override
+        public void close() {
+            SpillingKeyMap.this.close();
+        }
+    }
+
+    /**
+     * The latest message ids, merged from the sorted runs.
+     */
+    private final class MergedLatestMessageIds implements LatestMessageIds {
+        private final List<Path> files;
+        private final long size;
+        private final PriorityQueue<PositionReader> readers = new PriorityQueue<>();
+
+        MergedLatestMessageIds(List<Path> files, long size) throws IOException {
+            this.files = files;
+            this.size = size;
+            try {
+                for (Path file : files) {
+                    PositionReader reader = new PositionReader(file);
+                    if (reader.next()) {
+                        readers.add(reader);
+                    } else {
+                        reader.in.close();
+                    }
+                }
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        @Override
+        public boolean isLatest(String key, MessageId id) {
+            MessageIdAdv messageId = (MessageIdAdv) id;
+            try {
+                while (!readers.isEmpty()) {
+                    PositionReader head = readers.peek();
+                    int result = compare(head.ledgerId, head.entryId, head.batchIndex,
+                            messageId.getLedgerId(), messageId.getEntryId(), messageId.getBatchIndex());
+                    if (result >= 0) {
+                        return result == 0;
+                    }
+                    readers.poll();
+                    if (head.next()) {
+                        readers.add(head);
+                    } else {
+                        head.in.close();
+                    }
+                }
+                return false;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public long size() {
+            return size;
+        }
+
+        @Override
+        public void close() {
+            for (PositionReader reader : readers) {
+                try {
+                    reader.in.close();
+                } catch (IOException e) {
+                    log.warn("Failed to close a compaction run", e);
+                }
+            }
+            readers.clear();
+            files.forEach(SpillingKeyMap::delete);
+            SpillingKeyMap.this.close();
+        }
+    }
+
+    private static final class PositionReader implements Comparable<PositionReader> {
+        private final DataInputStream in;
+        private long ledgerId;
+        private long entryId;
+        private int batchIndex;
+
+        PositionReader(Path file) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)));
+        }
+
+        boolean next() throws IOException {
+            try {
+                ledgerId = in.readLong();
+            } catch (EOFException e) {
+                return false;
+            }
+            entryId = in.readLong();
+            batchIndex = in.readInt();
+            return true;
+        }
+
+        @Override
+        public int compareTo(PositionReader other) {
+            return compare(ledgerId, entryId, batchIndex, other.ledgerId, other.entryId, other.batchIndex);
+        }
+    }
+}
@@ -79,6 +79,11 @@ public class StrategicTwoPhaseCompactor extends PublishingOrderCompactor {
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public boolean isIncrementalCompactionEnabled() {
+        return false;
+    }
+
 
     public <T> CompletableFuture<Long> compact(String topic,
                                                TopicCompactionStrategy<T> strategy) {
@@ -34,6 +34,7 @@ import org.apache.pulsar.client.admin.PulsarAdminException;
 import org.apache.pulsar.common.naming.TopicName;
 import org.apache.pulsar.functions.worker.WorkerConfig;
 import org.apache.pulsar.functions.worker.WorkerService;
+import org.awaitility.Awaitility;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.Test;
 
@@ -60,7 +61,6 @@ public class PulsarServiceTest extends MockedPulsarServiceBaseTest {
         conf.setBrokerServicePortTls(Optional.of(0));
         conf.setWebServicePortTls(Optional.of(0));
         conf.setTopicNameCacheMaxCapacity(5000);
-        conf.setMaxSecondsToClearTopicNameCache(5);
         if (useStaticPorts) {
             conf.setBrokerServicePortTls(Optional.of(6651));
             conf.setBrokerServicePort(Optional.of(6660));
@@ -204,26 +204,32 @@ public class PulsarServiceTest extends MockedPulsarServiceBaseTest {
         cleanup();
         setup();
         assertEquals(conf.getTopicNameCacheMaxCapacity(), 5000);
-        assertEquals(conf.getMaxSecondsToClearTopicNameCache(), 5);
 
         List<TopicName> topicNameCached = new ArrayList<>();
         for (int i = 0; i < 20; i++) {
             topicNameCached.add(TopicName.get("public/default/tp_" + i));
         }
 
-        // Verify: the cache does not clear since it is not larger than max capacity.
-        Thread.sleep(10 * 1000);
+        // Verify: the names are kept since the cache is not larger than max capacity.
         for (int i = 0; i < 20; i++) {
-            assertTrue(topicNameCached.get(i) == TopicName.get("public/default/tp_" + i));
+            assertSame(TopicName.get("public/default/tp_" + i), topicNameCached.get(i));
         }
 
         // Update max capacity.
-        admin.brokers().updateDynamicConfiguration("topicNameCacheMaxCapacity", "10");
+        admin.brokers().updateDynamicConfiguration("topicNameCacheMaxCapacity", "100");
+        Awaitility.await().untilAsserted(() -> assertTrue(TopicName.getCacheSize() <= 100));
 
-        // Verify: the cache were cleared.
-        Thread.sleep(10 * 1000);
-        for (int i = 0; i < 20; i++) {
-            assertFalse(topicNameCached.get(i) == TopicName.get("public/default/tp_" + i));
+        // Verify: the names which keep being used are not evicted by the other ones, and the cache stays bounded.
+        List<TopicName> recentlyUsed = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            recentlyUsed.add(TopicName.get("public/default/tp_" + i));
+        }
+        for (int i = 0; i < 1000; i++) {
+            TopicName.get("public/default/other_tp_" + i);
+            for (int j = 0; j < 5; j++) {
+                assertSame(TopicName.get("public/default/tp_" + j), recentlyUsed.get(j));
+            }
+            assertTrue(TopicName.getCacheSize() <= 100);
         }
     }
 
@@ -0,0 +1,234 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.delayed;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+import java.lang.reflect.Method;
+import java.time.Clock;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.bookkeeper.mledger.Position;
+import org.apache.bookkeeper.mledger.PositionFactory;
+import org.apache.pulsar.broker.service.persistent.AbstractPersistentDispatcherMultipleConsumers;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+@Test(groups = "broker")
+public class TimingWheelDeliveryTrackerTest extends AbstractDeliveryTrackerTest {
+
+    @DataProvider(name = "delayedTracker")
+    public Object[][] provider(Method method) throws Exception {
+        dispatcher = mock(AbstractPersistentDispatcherMultipleConsumers.class);
+        clock = mock(Clock.class);
+        clockTime = new AtomicLong();
+        when(clock.millis()).then(x -> clockTime.get());
+
+        final String methodName = method.getName();
+        return switch (methodName) {
+            case "test" -> new Object[][]{{
+                    new TimingWheelDelayedDeliveryTracker(dispatcher, timer, 1, clock,
+                            false, 0)
+            }};
+            case "testWithTimer" -> {
+                Timer timer = mock(Timer.class);
+
+                AtomicLong clockTime = new AtomicLong();
+                Clock clock = mock(Clock.class);
+                when(clock.millis()).then(x -> clockTime.get());
+
+                NavigableMap<Long, TimerTask> tasks = new TreeMap<>();
+
+                when(timer.newTimeout(any(), anyLong(), any())).then(invocation -> {
+                    TimerTask task = invocation.getArgument(0, TimerTask.class);
+                    long timeout = invocation.getArgument(1, Long.class);
+                    TimeUnit unit = invocation.getArgument(2, TimeUnit.class);
+                    long scheduleAt = clockTime.get() + unit.toMillis(timeout);
+                    tasks.put(scheduleAt, task);
+
+                    Timeout t = mock(Timeout.class);
+                    when(t.cancel()).then(i -> {
+                        tasks.remove(scheduleAt, task);
+                        return null;
+                    });
+                    return t;
+                });
+
+                yield new Object[][]{{
+                        new TimingWheelDelayedDeliveryTracker(dispatcher, timer, 1, clock,
+                                false, 0),
+                        tasks
+                }};
+            }
+            case "testAddWithinTickTime" -> new Object[][]{{
+                    new TimingWheelDelayedDeliveryTracker(dispatcher, timer, 100, clock,
+                            false, 0)
+            }};
+            case "testAddMessageWithStrictDelay" -> new Object[][]{{
+                    new TimingWheelDelayedDeliveryTracker(dispatcher, timer, 1, clock,
+                            true, 0)
+            }};
+            case "testAddMessageWithDeliverAtTimeAfterNowBeforeTickTimeFrequencyWithStrict" -> new Object[][]{{
+                    new TimingWheelDelayedDeliveryTracker(dispatcher, timer, 1000, clock,
+                            true, 0)
+            }};
+            case "testAddMessageWithDeliverAtTimeAfterNowAfterTickTimeFrequencyWithStrict" -> new Object[][]{{
+                    new TimingWheelDelayedDeliveryTracker(dispatcher, timer, 1, clock,
+                            true, 0)
+            }};
+            case "testAddMessageWithDeliverAtTimeAfterFullTickTimeWithStrict" -> new Object[][]{{
+                    new TimingWheelDelayedDeliveryTracker(dispatcher, timer, 500, clock,
+                            true, 0)
+            }};
+            case "testWithFixedDelays" -> new Object[][]{{
+                    new TimingWheelDelayedDeliveryTracker(dispatcher, timer, 8, clock,
+                            true, 100)
+            }};
+            default -> new Object[][]{{
+                    new TimingWheelDelayedDeliveryTracker(dispatcher, timer, 1, clock,
+                            true, 0)
+            }};
+        };
+    }
+
+    @Test(dataProvider = "delayedTracker")
+    public void testWithFixedDelays(TimingWheelDelayedDeliveryTracker tracker) throws Exception {
+        assertFalse(tracker.hasMessageAvailable());
+
+        for (int i = 1; i <= tracker.getFixedDelayDetectionLookahead(); i++) {
+            assertTrue(tracker.addMessage(i, i, i * 10));
+        }
+
+        assertTrue(tracker.shouldPauseAllDeliveries());
+
+        clockTime.set(tracker.getFixedDelayDetectionLookahead() * 10);
+
+        tracker.getScheduledMessages(100);
+
+        assertFalse(tracker.shouldPauseAllDeliveries());
+
+        // Empty the tracker
+        int removed = 0;
+        do {
+            removed = tracker.getScheduledMessages(100).size();
+        } while (removed > 0);
+
+        assertFalse(tracker.shouldPauseAllDeliveries());
+
+        tracker.close();
+    }
+
+    @Test(dataProvider = "delayedTracker")
+    public void testDelaySequence(TimingWheelDelayedDeliveryTracker tracker) throws Exception {
+        assertFalse(tracker.hasMessageAvailable());
+
+        int messageCount = 5;
+        for (int i = 1; i <= messageCount; i++) {
+            assertTrue(tracker.addMessage(i, i, 1));
+        }
+        clockTime.set(10);
+        assertTrue(tracker.hasMessageAvailable());
+        assertEquals(tracker.getNumberOfDelayedMessages(), messageCount);
+
+        for (int i = 1; i <= messageCount; i++) {
+            Set<Position> scheduled = tracker.getScheduledMessages(1);
+            assertEquals(scheduled.size(), 1);
+            Position position = scheduled.iterator().next();
+            assertEquals(position.getLedgerId(), i);
+            assertEquals(position.getEntryId(), i);
+        }
+        tracker.close();
+    }
+
+    @Test(dataProvider = "delayedTracker")
+    public void testCascadeFromHigherLevels(TimingWheelDelayedDeliveryTracker tracker) throws Exception {
+        // The delivery times are spread over the first levels of the wheel
+        long[] deliveryTimes = {300, 70_000, 20_000_000, 5_000_000_000L};
+        for (int i = 0; i < deliveryTimes.length; i++) {
+            assertTrue(tracker.addMessage(1, i, deliveryTimes[i]));
+        }
+        assertEquals(tracker.getNumberOfDelayedMessages(), deliveryTimes.length);
+
+        for (int i = 0; i < deliveryTimes.length; i++) {
+            clockTime.set(deliveryTimes[i] - 1);
+            assertFalse(tracker.hasMessageAvailable());
+            assertEquals(tracker.nextDeliveryTime(), deliveryTimes[i]);
+            assertTrue(tracker.getScheduledMessages(10).isEmpty());
+
+            clockTime.set(deliveryTimes[i]);
+            assertTrue(tracker.hasMessageAvailable());
+            assertEquals(tracker.getScheduledMessages(10), Set.of(PositionFactory.create(1, i)));
+        }
+        assertEquals(tracker.getNumberOfDelayedMessages(), 0);
+        assertEquals(tracker.getBufferMemoryUsage(), 0);
+
+        tracker.close();
+    }
+
+    @Test(dataProvider = "delayedTracker")
+    public void testConsecutiveEntriesShareRun(TimingWheelDelayedDeliveryTracker tracker) throws Exception {
+        assertTrue(tracker.addMessage(1, 0, 100));
+        long bufferMemoryUsage = tracker.getBufferMemoryUsage();
+        assertTrue(bufferMemoryUsage > 0);
+        for (int i = 1; i < 10_000; i++) {
+            assertTrue(tracker.addMessage(1, i, 100));
+        }
+        assertEquals(tracker.getBufferMemoryUsage(), bufferMemoryUsage);
+
+        clockTime.set(100);
+        // The first run is split
+        Set<Position> scheduled = tracker.getScheduledMessages(3);
+        assertEquals(scheduled, Set.of(PositionFactory.create(1, 0), PositionFactory.create(1, 1),
+                PositionFactory.create(1, 2)));
+        assertEquals(tracker.getNumberOfDelayedMessages(), 9_997);
+        assertEquals(tracker.getScheduledMessages(10_000).size(), 9_997);
+        assertEquals(tracker.getNumberOfDelayedMessages(), 0);
+        assertEquals(tracker.getBufferMemoryUsage(), 0);
+
+        tracker.close();
+    }
+
+    @Test(dataProvider = "delayedTracker")
+    public void testClear(TimingWheelDelayedDeliveryTracker tracker) throws Exception {
+        assertTrue(tracker.addMessage(1, 1, 10));
+        assertTrue(tracker.addMessage(1, 2, 10_000_000));
+        assertTrue(tracker.getBufferMemoryUsage() > 0);
+
+        tracker.clear().get();
+        assertEquals(tracker.getNumberOfDelayedMessages(), 0);
+        assertEquals(tracker.getBufferMemoryUsage(), 0);
+
+        clockTime.set(20_000_000);
+        assertFalse(tracker.hasMessageAvailable());
+        assertTrue(tracker.getScheduledMessages(10).isEmpty());
+
+        tracker.close();
+    }
+}
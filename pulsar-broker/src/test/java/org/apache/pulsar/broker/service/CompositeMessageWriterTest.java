@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.service;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.pulsar.common.protocol.ByteBufPair;
+import org.apache.pulsar.common.protocol.Commands;
+import org.testng.annotations.Test;
+
+@Test(groups = "broker")
+public class CompositeMessageWriterTest {
+
+    @Test
+    public void testSameBytesAsByteBufPair() {
+        CompositeMessageWriter writer = new CompositeMessageWriter(ByteBufAllocator.DEFAULT, 3);
+        ByteBuf expected = Unpooled.buffer();
+        List<ByteBuf> payloads = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ByteBuf payload = Unpooled.directBuffer();
+            payload.writeBytes(("payload-" + i).getBytes(UTF_8));
+            payloads.add(payload);
+            // an ack set makes the command larger than the estimated size of the headers
+            long[] ackSet = i == 1 ? new long[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10} : null;
+
+            ByteBufPair pair = Commands.serializeCommandMessageWithSize(
+                    Commands.newMessageCommand(1, 2, i, -1, i, ackSet, -1), payload.retainedDuplicate());
+            expected.writeBytes(pair.getFirst());
+            expected.writeBytes(pair.getSecond());
+            pair.release();
+
+            writer.add(Commands.newMessageCommand(1, 2, i, -1, i, ackSet, -1), payload.retain());
+        }
+        assertEquals(writer.size(), 3);
+
+        ByteBuf composite = writer.build();
+        assertEquals(ByteBufUtil.hexDump(composite), ByteBufUtil.hexDump(expected));
+        composite.release();
+        expected.release();
+        for (ByteBuf payload : payloads) {
+            assertEquals(payload.refCnt(), 1);
+            payload.release();
+        }
+    }
+
+    @Test
+    public void testEmpty() {
+        CompositeMessageWriter writer = new CompositeMessageWriter(ByteBufAllocator.DEFAULT, 10);
+        assertSame(writer.build(), Unpooled.EMPTY_BUFFER);
+    }
+}
@@ -313,6 +313,34 @@ public class ConsistentHashingStickyKeyConsumerSelectorTest {
         consumers.forEach(selector::removeConsumer);
     }
 
+    @Test
+    public void testSelectMatchesConsumerKeyHashRanges() {
+        ConsistentHashingStickyKeyConsumerSelector selector = new ConsistentHashingStickyKeyConsumerSelector(100);
+        Assert.assertNull(selector.select(1));
+        List<Consumer> consumers = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Consumer consumer = createMockConsumer("consumer", "index " + i, i);
+            consumers.add(consumer);
+            selector.addConsumer(consumer);
+            assertSelectMatchesConsumerKeyHashRanges(selector);
+        }
+        for (Consumer consumer : consumers) {
+            selector.removeConsumer(consumer);
+            assertSelectMatchesConsumerKeyHashRanges(selector);
+        }
+        Assert.assertNull(selector.select(1));
+    }
+
+    private static void assertSelectMatchesConsumerKeyHashRanges(StickyKeyConsumerSelector selector) {
+        selector.getConsumerKeyHashRanges().forEach((consumer, ranges) -> {
+            for (Range range : ranges) {
+                for (int hash = range.getStart(); hash <= range.getEnd(); hash++) {
+                    Assert.assertSame(selector.select(hash), consumer, "hash " + hash);
+                }
+            }
+        });
+    }
+
     @Test
     public void testShouldNotChangeSelectedConsumerWhenConsumerIsRemoved() {
         final ConsistentHashingStickyKeyConsumerSelector selector = new ConsistentHashingStickyKeyConsumerSelector(100);
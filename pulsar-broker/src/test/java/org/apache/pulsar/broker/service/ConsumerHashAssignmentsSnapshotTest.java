@@ -201,4 +201,36 @@ public class ConsumerHashAssignmentsSnapshotTest {
         assertThat(impactedConsumers.getRemovedHashRanges()).containsExactlyInAnyOrderEntriesOf(
                 Map.of(consumer1, RemovedHashRanges.of(List.of(Range.of(3, 5)))));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testSelect() {
+        Consumer consumer1 = createMockConsumer("consumer1");
+        Consumer consumer2 = createMockConsumer("consumer2");
+        List<HashRangeAssignment> assignments = List.of(
+                new HashRangeAssignment(Range.of(3, 5), consumer1),
+                new HashRangeAssignment(Range.of(8, 10), consumer2));
+
+        for (ConsumerHashAssignmentsSnapshot snapshot : List.of(ConsumerHashAssignmentsSnapshot.of(assignments),
+                ConsumerHashAssignmentsSnapshot.of(assignments, Range.of(1, 15)))) {
+            // the hashes between two ranges belong to the next range
+            assertThat(snapshot.select(1)).isSameAs(consumer1);
+            assertThat(snapshot.select(5)).isSameAs(consumer1);
+            assertThat(snapshot.select(6)).isSameAs(consumer2);
+            assertThat(snapshot.select(10)).isSameAs(consumer2);
+            // the hashes after the last range wrap around to the first range
+            assertThat(snapshot.select(11)).isSameAs(consumer1);
+            assertThat(snapshot.select(15)).isSameAs(consumer1);
+            assertThat(snapshot.select(100)).isSameAs(consumer1);
+            assertThat(snapshot.select(0)).isSameAs(consumer1);
+        }
+        assertThat(ConsumerHashAssignmentsSnapshot.of(assignments, Range.of(1, 15)))
+                .isEqualTo(ConsumerHashAssignmentsSnapshot.of(assignments));
+        assertThat(ConsumerHashAssignmentsSnapshot.empty().select(1)).isNull();
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testLookupTableRequiresRangesInKeyHashRange() {
+        ConsumerHashAssignmentsSnapshot.of(
+                List.of(new HashRangeAssignment(Range.of(3, 20), createMockConsumer("consumer1"))), Range.of(1, 15));
+    }
+}
@@ -52,7 +52,6 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -110,6 +109,7 @@ import org.apache.pulsar.common.policies.data.impl.AutoTopicCreationOverrideImpl
 import org.apache.pulsar.common.schema.SchemaInfo;
 import org.apache.pulsar.common.schema.SchemaType;
 import org.apache.pulsar.common.util.FutureUtil;
+import org.apache.pulsar.common.util.collections.ConcurrentClockCache;
 import org.awaitility.Awaitility;
 import org.awaitility.reflect.WhiteboxImpl;
 import org.glassfish.jersey.client.JerseyClient;
@@ -1336,8 +1336,8 @@ public class OneWayReplicatorTest extends OneWayReplicatorTestBase {
     public void testCloseTopicAfterStartReplicationFailed() throws Exception {
         Field fieldTopicNameCache = TopicName.class.getDeclaredField("cache");
         fieldTopicNameCache.setAccessible(true);
-        ConcurrentHashMap<String, TopicName> topicNameCache =
-                (ConcurrentHashMap<String, TopicName>) fieldTopicNameCache.get(null);
+        ConcurrentClockCache<TopicName> topicNameCache =
+                (ConcurrentClockCache<TopicName>) fieldTopicNameCache.get(null);
         final String topicName = BrokerTestUtil.newUniqueName("persistent://" + nonReplicatedNamespace + "/tp_");
         // 1.Create topic, does not enable replication now.
         admin1.topics().createNonPartitionedTopic(topicName);
@@ -1364,7 +1364,7 @@ public class OneWayReplicatorTest extends OneWayReplicatorTestBase {
         Thread.sleep(10 * 1000);
         topicNameCache.remove(topicName);
         Thread.sleep(60 * 1000);
-        assertTrue(!topicNameCache.containsKey(topicName));
+        assertTrue(topicNameCache.getIfPresent(topicName) == null);
 
         // cleanup.
         admin1.topics().setReplicationClusters(topicName, Arrays.asList(cluster1));
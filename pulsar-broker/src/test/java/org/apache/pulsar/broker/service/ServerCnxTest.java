@@ -105,6 +105,7 @@ import org.apache.pulsar.broker.authentication.AuthenticationState;
 import org.apache.pulsar.broker.authorization.AuthorizationService;
 import org.apache.pulsar.broker.authorization.PulsarAuthorizationProvider;
 import org.apache.pulsar.broker.namespace.NamespaceService;
+import org.apache.pulsar.broker.resources.CompressionDictionaryResources;
 import org.apache.pulsar.broker.service.BrokerServiceException.ServiceUnitNotReadyException;
 import org.apache.pulsar.broker.service.ServerCnx.State;
 import org.apache.pulsar.broker.service.persistent.PersistentTopic;
@@ -139,6 +140,7 @@ import org.apache.pulsar.common.api.proto.CommandSubscribe.InitialPosition;
 import org.apache.pulsar.common.api.proto.CommandSubscribe.SubType;
 import org.apache.pulsar.common.api.proto.CommandSuccess;
 import org.apache.pulsar.common.api.proto.CommandWatchTopicListSuccess;
+import org.apache.pulsar.common.api.proto.FeatureFlags;
 import org.apache.pulsar.common.api.proto.MessageMetadata;
 import org.apache.pulsar.common.api.proto.ProtocolVersion;
 import org.apache.pulsar.common.api.proto.ServerError;
@@ -2511,6 +2513,62 @@ public class ServerCnxTest {
         channel.finish();
     }
 
+    @Test(timeOut = 30000)
+    public void testSubscribeRequiresCompressionDictionariesSupport() throws Exception {
+        pulsar.getPulsarResources().getCompressionDictionaryResources()
+                .createCompressionDictionaryAsync(TopicName.get(successTopicName), new byte[]{1, 2, 3}).get();
+
+        resetChannel();
+        setChannelConnected();
+        svcConfig.setAuthenticationEnabled(false);
+        svcConfig.setAuthorizationEnabled(false);
+        // a client which doesn't advertise the feature can't decompress the messages of the topic
+        ByteBuf clientCommand = Commands.newSubscribe(successTopicName, successSubName, 1 /* consumer id */,
+                1 /* request id */, SubType.Exclusive, 0, "test" /* consumer name */, 0 /* avoid reseting cursor */);
+        channel.writeInbound(clientCommand);
+        Object response = getResponse();
+        assertTrue(response instanceof CommandError);
+        assertEquals(((CommandError) response).getError(), ServerError.NotAllowedError);
+
+        Field features = ServerCnx.class.getDeclaredField("features");
+        features.setAccessible(true);
+        features.set(serverCnx, new FeatureFlags().setSupportsCompressionDictionaries(true));
+        clientCommand = Commands.newSubscribe(successTopicName, successSubName, 2 /* consumer id */,
+                2 /* request id */, SubType.Exclusive, 0, "test" /* consumer name */, 0 /* avoid reseting cursor */);
+        channel.writeInbound(clientCommand);
+        assertTrue(getResponse() instanceof CommandSuccess);
+
+        channel.finish();
+    }
+
+    @Test(timeOut = 30000)
+    public void testSubscribeAfterCompressionDictionaryRemoved() throws Exception {
+        CompressionDictionaryResources resources =
+                pulsar.getPulsarResources().getCompressionDictionaryResources();
+        resources.createCompressionDictionaryAsync(TopicName.get(successTopicName), new byte[]{1, 2, 3}).get();
+
+        resetChannel();
+        setChannelConnected();
+        svcConfig.setAuthenticationEnabled(false);
+        svcConfig.setAuthorizationEnabled(false);
+        ByteBuf clientCommand = Commands.newSubscribe(successTopicName, successSubName, 1 /* consumer id */,
+                1 /* request id */, SubType.Exclusive, 0, "test" /* consumer name */, 0 /* avoid reseting cursor */);
+        channel.writeInbound(clientCommand);
+        Object response = getResponse();
+        assertTrue(response instanceof CommandError);
+        assertTrue(((CommandError) response).getMessage().contains("remove the compression dictionary"));
+
+        // a client which doesn't advertise the feature is allowed once the dictionary is removed
+        resources.removeCompressionDictionaryAsync(TopicName.get(successTopicName)).get();
+        assertFalse(resources.hasCompressionDictionariesAsync(TopicName.get(successTopicName)).get());
+        clientCommand = Commands.newSubscribe(successTopicName, successSubName, 2 /* consumer id */,
+                2 /* request id */, SubType.Exclusive, 0, "test" /* consumer name */, 0 /* avoid reseting cursor */);
+        channel.writeInbound(clientCommand);
+        assertTrue(getResponse() instanceof CommandSuccess);
+
+        channel.finish();
+    }
+
     @Test(timeOut = 30000)
     public void testUnsupportedBatchMsgSubscribeCommand() throws Exception {
         final String failSubName = "failSub";
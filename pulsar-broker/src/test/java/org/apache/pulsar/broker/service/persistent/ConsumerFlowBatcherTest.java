@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.service.persistent;
+
+import static org.mockito.Mockito.mock;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.pulsar.broker.service.Consumer;
+import org.awaitility.Awaitility;
+import org.testng.annotations.Test;
+
+@Test(groups = "broker")
+public class ConsumerFlowBatcherTest {
+
+    private static final Consumer CONSUMER = mock(Consumer.class);
+
+    private static List<Integer> permits(List<ConsumerFlowBatcher.ConsumerFlow> flows) {
+        return flows.stream().map(ConsumerFlowBatcher.ConsumerFlow::additionalNumberOfMessages).toList();
+    }
+
+    @Test
+    public void testFlowsOfferedBeforeProcessingAreBatched() {
+        List<Runnable> tasks = new ArrayList<>();
+        List<List<Integer>> batches = new ArrayList<>();
+        ConsumerFlowBatcher batcher = new ConsumerFlowBatcher(tasks::add,
+                batch -> batches.add(permits(batch)));
+
+        batcher.offer(CONSUMER, 1);
+        batcher.offer(CONSUMER, 2);
+        batcher.offer(CONSUMER, 3);
+        // a single task is scheduled for all the pending flows
+        assertEquals(tasks.size(), 1);
+        assertEquals(batcher.size(), 3);
+
+        tasks.remove(0).run();
+        assertEquals(batches, List.of(List.of(1, 2, 3)));
+        assertEquals(batcher.size(), 0);
+
+        // once the task is done, a new flow schedules a new task
+        batcher.offer(CONSUMER, 4);
+        assertEquals(tasks.size(), 1);
+        tasks.remove(0).run();
+        assertEquals(batches, List.of(List.of(1, 2, 3), List.of(4)));
+    }
+
+    @Test
+    public void testFlowsOfferedWhileProcessingAreProcessedBySameTask() {
+        List<Runnable> tasks = new ArrayList<>();
+        List<List<Integer>> batches = new ArrayList<>();
+        ConsumerFlowBatcher[] batcher = new ConsumerFlowBatcher[1];
+        batcher[0] = new ConsumerFlowBatcher(tasks::add, batch -> {
+            batches.add(permits(batch));
+            if (batch.get(0).additionalNumberOfMessages() == 1) {
+                batcher[0].offer(CONSUMER, 2);
+            }
+        });
+
+        batcher[0].offer(CONSUMER, 1);
+        tasks.remove(0).run();
+        assertEquals(batches, List.of(List.of(1), List.of(2)));
+        assertEquals(tasks.size(), 0);
+    }
+
+    @Test
+    public void testHandlerFailureDoesNotStopProcessing() {
+        List<Runnable> tasks = new ArrayList<>();
+        List<Integer> processed = new ArrayList<>();
+        ConsumerFlowBatcher batcher = new ConsumerFlowBatcher(tasks::add, batch -> {
+            if (permits(batch).contains(1)) {
+                throw new IllegalStateException("failed");
+            }
+            processed.addAll(permits(batch));
+        });
+
+        batcher.offer(CONSUMER, 1);
+        tasks.remove(0).run();
+        batcher.offer(CONSUMER, 2);
+        tasks.remove(0).run();
+        assertEquals(processed, List.of(2));
+    }
+
+    @Test
+    public void testFlowsProcessedInlineWhenExecutorRejects() {
+        AtomicBoolean rejecting = new AtomicBoolean(true);
+        List<Runnable> tasks = new ArrayList<>();
+        List<List<Integer>> batches = new ArrayList<>();
+        ConsumerFlowBatcher batcher = new ConsumerFlowBatcher(task -> {
+            if (rejecting.get()) {
+                throw new RejectedExecutionException("shutting down");
+            }
+            tasks.add(task);
+        }, batch -> batches.add(permits(batch)));
+
+        batcher.offer(CONSUMER, 1);
+        assertEquals(batches, List.of(List.of(1)));
+        assertEquals(batcher.size(), 0);
+
+        // the pending signals were reset, so the next flow schedules a task again
+        rejecting.set(false);
+        batcher.offer(CONSUMER, 2);
+        assertEquals(tasks.size(), 1);
+        tasks.remove(0).run();
+        assertEquals(batches, List.of(List.of(1), List.of(2)));
+    }
+
+    @Test
+    public void testConcurrentOffers() throws Exception {
+        int threads = 8;
+        int flowsPerThread = 100_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 2);
+        try {
+            LongAdder processed = new LongAdder();
+            AtomicInteger concurrentHandlers = new AtomicInteger();
+            AtomicBoolean concurrentHandlerDetected = new AtomicBoolean();
+            ConsumerFlowBatcher batcher = new ConsumerFlowBatcher(executor, batch -> {
+                if (concurrentHandlers.incrementAndGet() > 1) {
+                    concurrentHandlerDetected.set(true);
+                }
+                processed.add(batch.size());
+                concurrentHandlers.decrementAndGet();
+            });
+
+            CountDownLatch latch = new CountDownLatch(threads);
+            for (int i = 0; i < threads; i++) {
+                new Thread(() -> {
+                    for (int j = 0; j < flowsPerThread; j++) {
+                        batcher.offer(CONSUMER, j);
+                    }
+                    latch.countDown();
+                }).start();
+            }
+            latch.await();
+            Awaitility.await().atMost(10, TimeUnit.SECONDS)
+                    .untilAsserted(() -> assertEquals(processed.sum(), (long) threads * flowsPerThread));
+            assertFalse(concurrentHandlerDetected.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
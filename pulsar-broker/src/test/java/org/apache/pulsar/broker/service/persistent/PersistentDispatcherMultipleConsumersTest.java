@@ -19,7 +19,10 @@
 package org.apache.pulsar.broker.service.persistent;
 
 import com.carrotsearch.hppc.ObjectSet;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import lombok.Cleanup;
 import lombok.extern.slf4j.Slf4j;
@@ -30,6 +33,7 @@ import org.apache.pulsar.broker.BrokerTestUtil;
 import org.apache.pulsar.broker.service.Dispatcher;
 import org.apache.pulsar.broker.service.Subscription;
 import org.apache.pulsar.client.api.Consumer;
+import org.apache.pulsar.client.api.Message;
 import org.apache.pulsar.client.api.MessageId;
 import org.apache.pulsar.client.api.Producer;
 import org.apache.pulsar.client.api.ProducerConsumerBase;
@@ -172,4 +176,54 @@ public class PersistentDispatcherMultipleConsumersTest extends ProducerConsumerB
         // Verify: the topic can be deleted successfully.
         admin.topics().delete(topicName, false);
     }
+
+    @Test(timeOut = 30 * 1000)
+    public void testFastDispatchPath() throws Exception {
+        final String topicName = BrokerTestUtil.newUniqueName("persistent://public/default/testFastDispatchPath");
+        final String subscription = "s1";
+        conf.setDispatcherFastPathEnabled(true);
+        try {
+            @Cleanup
+            Consumer<String> consumer1 = pulsarClient.newConsumer(Schema.STRING).topic(topicName)
+                    .subscriptionName(subscription).subscriptionType(SubscriptionType.Shared)
+                    .receiverQueueSize(10).subscribe();
+            @Cleanup
+            Consumer<String> consumer2 = pulsarClient.newConsumer(Schema.STRING).topic(topicName)
+                    .subscriptionName(subscription).subscriptionType(SubscriptionType.Shared)
+                    .receiverQueueSize(10).subscribe();
+
+            // Mix batched and non-batched entries
+            @Cleanup
+            Producer<String> batchedProducer = pulsarClient.newProducer(Schema.STRING).topic(topicName)
+                    .enableBatching(true).batchingMaxMessages(10)
+                    .batchingMaxPublishDelay(1, TimeUnit.HOURS).create();
+            @Cleanup
+            Producer<String> producer = pulsarClient.newProducer(Schema.STRING).topic(topicName)
+                    .enableBatching(false).create();
+            Set<String> sent = new HashSet<>();
+            for (int i = 0; i < 100; i++) {
+                batchedProducer.sendAsync("batched-" + i);
+                sent.add("batched-" + i);
+            }
+            batchedProducer.flush();
+            for (int i = 0; i < 50; i++) {
+                producer.send("message-" + i);
+                sent.add("message-" + i);
+            }
+
+            Set<String> received = new HashSet<>();
+            while (received.size() < sent.size()) {
+                for (Consumer<String> consumer : List.of(consumer1, consumer2)) {
+                    Message<String> message = consumer.receive(100, TimeUnit.MILLISECONDS);
+                    if (message != null) {
+                        Assert.assertTrue(received.add(message.getValue()), "Duplicated " + message.getValue());
+                        consumer.acknowledge(message);
+                    }
+                }
+            }
+            Assert.assertEquals(received, sent);
+        } finally {
+            conf.setDispatcherFastPathEnabled(false);
+        }
+    }
 }
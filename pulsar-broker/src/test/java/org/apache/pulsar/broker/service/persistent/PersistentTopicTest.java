@@ -254,6 +254,29 @@ public class PersistentTopicTest extends BrokerTestBase {
         verify(persistentTopic, times(1)).checkReplicationAndRetryOnFailure();
     }
 
+    @Test
+    public void testCursorReadAheadMaxBatchesUpdatedWithNamespacePolicies() throws Exception {
+        final String myNamespace = "prop/ns" + UUID.randomUUID();
+        admin.namespaces().createNamespace(myNamespace, Sets.newHashSet("test"));
+        final String topic = "persistent://" + myNamespace + "/testCursorReadAheadMaxBatchesUpdated";
+        pulsarClient.newProducer().topic(topic).create().close();
+        PersistentTopic persistentTopic =
+                (PersistentTopic) pulsar.getBrokerService().getTopicIfExists(topic).get().get();
+        int defaultMaxBatches = conf.getManagedLedgerCursorReadAheadMaxBatches();
+        assertEquals(persistentTopic.getManagedLedger().getConfig().getCursorReadAheadMaxBatches(),
+                defaultMaxBatches);
+
+        admin.namespaces().setCursorReadAheadMaxBatches(myNamespace, defaultMaxBatches + 4);
+        Awaitility.await().untilAsserted(() -> assertEquals(
+                persistentTopic.getManagedLedger().getConfig().getCursorReadAheadMaxBatches(),
+                defaultMaxBatches + 4));
+
+        admin.namespaces().removeCursorReadAheadMaxBatches(myNamespace);
+        Awaitility.await().untilAsserted(() -> assertEquals(
+                persistentTopic.getManagedLedger().getConfig().getCursorReadAheadMaxBatches(),
+                defaultMaxBatches));
+    }
+
     @Test
     public void testAccumulativeStats() throws Exception {
         final String topicName = "persistent://prop/ns-abc/aTopic";
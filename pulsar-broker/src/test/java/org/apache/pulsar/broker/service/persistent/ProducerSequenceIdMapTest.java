@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.service.persistent;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.testng.annotations.Test;
+
+@Test(groups = "broker")
+public class ProducerSequenceIdMapTest {
+
+    @Test
+    public void testPutGetRemove() {
+        ProducerSequenceIdMap map = new ProducerSequenceIdMap();
+        assertTrue(map.isEmpty());
+        assertNull(map.get("producer-1"));
+        assertEquals(map.get("producer-1", -1L), -1L);
+
+        map.put("producer-1", 5L);
+        map.put("producer-2", 0L);
+        assertEquals(map.size(), 2);
+        assertEquals(map.get("producer-1").longValue(), 5L);
+        assertEquals(map.get("producer-2", -1L), 0L);
+        assertTrue(map.containsKey("producer-2"));
+
+        map.put("producer-1", 7L);
+        assertEquals(map.size(), 2);
+        assertEquals(map.get("producer-1", -1L), 7L);
+
+        map.remove("producer-1");
+        map.remove("unknown");
+        assertEquals(map.size(), 1);
+        assertFalse(map.containsKey("producer-1"));
+        assertEquals(map.get("producer-1", -1L), -1L);
+
+        // A removed producer can be added again
+        map.put("producer-1", 3L);
+        assertEquals(map.get("producer-1", -1L), 3L);
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get("producer-2"));
+    }
+
+    @Test
+    public void testKeepsTheFirstKeyInstance() {
+        ProducerSequenceIdMap map = new ProducerSequenceIdMap();
+        String name = "producer";
+        map.put(name, 1L);
+        map.put(new String(name), 2L);
+        map.forEach((k, v) -> {
+            assertSame(k, name);
+            assertEquals(v, 2L);
+        });
+    }
+
+    @Test
+    public void testRehash() {
+        ProducerSequenceIdMap map = new ProducerSequenceIdMap();
+        Map<String, Long> expected = new HashMap<>();
+        for (int i = 0; i < 10_000; i++) {
+            map.put("producer-" + i, i);
+            expected.put("producer-" + i, (long) i);
+        }
+        // Remove and add producers, so that the removed buckets have to be reclaimed
+        for (int i = 0; i < 10_000; i += 2) {
+            map.remove("producer-" + i);
+            expected.remove("producer-" + i);
+        }
+        for (int i = 0; i < 100_000; i++) {
+            map.put("other-" + i, i);
+            map.remove("other-" + i);
+        }
+        assertEquals(map.size(), expected.size());
+
+        Map<String, Long> actual = new HashMap<>();
+        map.forEach(actual::put);
+        assertEquals(actual, expected);
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(map.get("producer-" + i, -1L), i % 2 == 0 ? -1L : i);
+        }
+    }
+
+    @Test
+    public void testConcurrentReadsAndUpdates() throws Exception {
+        ProducerSequenceIdMap map = new ProducerSequenceIdMap();
+        int producers = 1_000;
+        for (int i = 0; i < producers; i++) {
+            map.put("stable-" + i, i);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        AtomicBoolean done = new AtomicBoolean();
+        CountDownLatch started = new CountDownLatch(3);
+        try {
+            List<Future<?>> readers = new ArrayList<>();
+            for (int r = 0; r < 3; r++) {
+                readers.add(executor.submit(() -> {
+                    started.countDown();
+                    while (!done.get()) {
+                        for (int i = 0; i < producers; i++) {
+                            // The stable producers are never updated, the reads must not see a stale table
+                            assertEquals(map.get("stable-" + i, -1L), i);
+                        }
+                    }
+                }));
+            }
+            started.await();
+            for (int i = 0; i < 50_000; i++) {
+                map.put("transient-" + i, i);
+                if (i >= 100) {
+                    map.remove("transient-" + (i - 100));
+                }
+            }
+            done.set(true);
+            for (Future<?> reader : readers) {
+                reader.get();
+            }
+            assertEquals(map.size(), producers + 100);
+        } finally {
+            done.set(true);
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.broker.stats.prometheus;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import org.apache.pulsar.common.util.SimpleTextOutputStream;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test(groups = "broker")
+public class ColumnarTopicStatsTest {
+
+    private PrometheusMetricStreams metricStreams;
+    private ColumnarTopicStats columnarStats;
+
+    @BeforeMethod(alwaysRun = true)
+    protected void setup() throws Exception {
+        metricStreams = new PrometheusMetricStreams();
+        columnarStats = new ColumnarTopicStats();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    protected void cleanup() throws Exception {
+        metricStreams.releaseAll();
+    }
+
+    @Test
+    public void testWriteSamples() {
+        TopicStats stats = new TopicStats();
+        stats.reset();
+        stats.subscriptionsCount = 3;
+        stats.rateIn = 1.5;
+        stats.sizeBasedBacklogQuotaExceededEvictionCount = 4;
+
+        columnarStats.add(metricStreams, stats, false, "test", "tenant/ns",
+                "persistent://tenant/ns/topic-partition-1", true);
+        stats.subscriptionsCount = 5;
+        columnarStats.add(metricStreams, stats, false, "test", "tenant/ns", "persistent://tenant/ns/\"other\"",
+                false);
+        columnarStats.flush(metricStreams);
+        assertEquals(columnarStats.size(), 0);
+
+        String actual = writeToString();
+        String labels = "cluster=\"test\",namespace=\"tenant/ns\",topic=\"persistent://tenant/ns/topic\","
+                + "partition=\"1\"";
+        String otherLabels = "cluster=\"test\",namespace=\"tenant/ns\",topic=\"persistent://tenant/ns/\\\"other\\\"\"";
+        assertTrue(actual.contains("# TYPE pulsar_subscriptions_count gauge\n"
+                + "pulsar_subscriptions_count{" + labels + "} 3\n"
+                + "pulsar_subscriptions_count{" + otherLabels + "} 5\n"), actual);
+        assertTrue(actual.contains("pulsar_rate_in{" + labels + "} 1.500\n"), actual);
+        assertTrue(actual.contains("pulsar_storage_backlog_quota_exceeded_evictions_total{" + labels
+                + ",quota_type=\"size\"} 4\n"), actual);
+        assertTrue(actual.contains("pulsar_storage_backlog_quota_exceeded_evictions_total{" + labels
+                + ",quota_type=\"time\"} 0\n"), actual);
+        // the compaction metrics are only written for the topics having a compaction record
+        assertFalse(actual.contains("pulsar_compaction_"), actual);
+    }
+
+    @Test
+    public void testWriteCompactionSamples() {
+        TopicStats stats = new TopicStats();
+        stats.reset();
+        stats.compactionSucceedCount = 2;
+
+        columnarStats.add(metricStreams, stats, false, "test", "tenant/ns", "topic-1", false);
+        columnarStats.add(metricStreams, stats, true, "test", "tenant/ns", "topic-2", false);
+        columnarStats.flush(metricStreams);
+
+        String actual = writeToString();
+        assertTrue(actual.contains(
+                "pulsar_compaction_succeed_count{cluster=\"test\",namespace=\"tenant/ns\",topic=\"topic-2\"} 2\n"),
+                actual);
+        assertFalse(actual.contains("pulsar_compaction_succeed_count{cluster=\"test\",namespace=\"tenant/ns\","
+                + "topic=\"topic-1\"}"), actual);
+    }
+
+    @Test
+    public void testFlushWhenFull() {
+        TopicStats stats = new TopicStats();
+        stats.reset();
+        for (int i = 0; i < ColumnarTopicStats.MAX_TOPICS; i++) {
+            columnarStats.add(metricStreams, stats, false, "test", "tenant/ns", "topic-" + i, false);
+        }
+        assertEquals(columnarStats.size(), ColumnarTopicStats.MAX_TOPICS);
+        assertEquals(writeToString(), "");
+
+        columnarStats.add(metricStreams, stats, false, "test", "tenant/ns", "last-topic", false);
+        assertEquals(columnarStats.size(), 1);
+        String actual = writeToString();
+        assertTrue(actual.contains("topic=\"topic-" + (ColumnarTopicStats.MAX_TOPICS - 1) + "\""), actual);
+        assertFalse(actual.contains("last-topic"), actual);
+
+        columnarStats.flush(metricStreams);
+        assertTrue(writeToString().contains("last-topic"));
+    }
+
+    private String writeToString() {
+        ByteBuf buffer = ByteBufAllocator.DEFAULT.directBuffer();
+        try {
+            SimpleTextOutputStream stream = new SimpleTextOutputStream(buffer);
+            metricStreams.flushAllToStream(stream);
+            return buffer.toString(UTF_8);
+        } finally {
+            buffer.release();
+        }
+    }
+}
@@ -32,13 +32,15 @@ import org.apache.pulsar.broker.ServiceConfiguration;
 import org.apache.pulsar.broker.service.BrokerService;
 import org.apache.pulsar.broker.service.Consumer;
 import org.apache.pulsar.broker.service.Topic;
+import org.apache.pulsar.broker.service.persistent.PersistentDispatcherMultipleConsumers;
+import org.apache.pulsar.broker.service.persistent.PersistentMessageExpiryMonitor;
 import org.apache.pulsar.broker.service.persistent.PersistentSubscription;
 import org.apache.pulsar.broker.service.persistent.PersistentTopic;
 import org.apache.pulsar.broker.service.persistent.PersistentTopicMetrics;
+import org.apache.pulsar.broker.transaction.buffer.TransactionBuffer;
+import org.apache.pulsar.common.api.proto.CommandSubscribe.SubType;
 import org.apache.pulsar.common.policies.data.BacklogQuota;
 import org.apache.pulsar.common.policies.data.stats.ConsumerStatsImpl;
-import org.apache.pulsar.common.policies.data.stats.SubscriptionStatsImpl;
-import org.apache.pulsar.common.policies.data.stats.TopicStatsImpl;
 import org.apache.pulsar.metadata.impl.ZKMetadataStore;
 import org.mockito.Mockito;
 import org.testng.annotations.BeforeMethod;
@@ -91,12 +93,13 @@ public class NamespaceStatsAggregatorTest {
         ConsumerStatsImpl consumerStats = new ConsumerStatsImpl();
         when(consumer.getStats()).thenReturn(consumerStats);
         when(subscription.getConsumers()).thenReturn(List.of(consumer));
+        PersistentDispatcherMultipleConsumers dispatcher = Mockito.mock(PersistentDispatcherMultipleConsumers.class);
+        when(subscription.getDispatcher()).thenReturn(dispatcher);
+        when(subscription.getType()).thenReturn(SubType.Shared);
+        when(subscription.getExpiryMonitor()).thenReturn(Mockito.mock(PersistentMessageExpiryMonitor.class));
         subscriptionsMaps.put("my-subscription", subscription);
-        SubscriptionStatsImpl subStats = new SubscriptionStatsImpl();
-        TopicStatsImpl topicStats = new TopicStatsImpl();
-        topicStats.subscriptions.put("my-subscription", subStats);
-        when(topic.getStats(false, false, false)).thenReturn(topicStats);
         when(topic.getBrokerService()).thenReturn(broker);
+        when(topic.getTransactionBuffer()).thenReturn(Mockito.mock(TransactionBuffer.class));
         when(topic.getSubscriptions()).thenReturn(subscriptionsMaps);
         when(topic.getReplicators()).thenReturn(new ConcurrentHashMap<>());
         when(topic.getManagedLedger()).thenReturn(ml);
@@ -108,11 +111,10 @@ public class NamespaceStatsAggregatorTest {
         PrometheusMetricStreams metricStreams = Mockito.spy(new PrometheusMetricStreams());
 
         // Populate subscriptions stats
-        subStats.blockedSubscriptionOnUnackedMsgs = true;
+        when(dispatcher.isBlockedDispatcherOnUnackedMsgs()).thenReturn(true);
         consumerStats.blockedConsumerOnUnackedMsgs = false; // should not affect blockedSubscriptionOnUnackedMsgs
         consumerStats.unackedMessages = 1;
         consumerStats.msgRateRedeliver = 0.7;
-        subStats.consumers.add(0, consumerStats);
 
         // when
         NamespaceStatsAggregator.generate(pulsar, true, true,
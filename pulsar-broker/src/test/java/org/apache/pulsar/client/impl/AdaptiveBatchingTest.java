@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.client.impl;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import lombok.Cleanup;
+import org.apache.pulsar.broker.BrokerTestUtil;
+import org.apache.pulsar.client.api.MessageId;
+import org.apache.pulsar.client.api.Producer;
+import org.apache.pulsar.client.api.ProducerConsumerBase;
+import org.apache.pulsar.client.api.Schema;
+import org.awaitility.Awaitility;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+@Test(groups = "broker-api")
+public class AdaptiveBatchingTest extends ProducerConsumerBase {
+
+    @BeforeClass(alwaysRun = true)
+    @Override
+    protected void setup() throws Exception {
+        super.internalSetup();
+        super.producerBaseSetup();
+    }
+
+    @AfterClass(alwaysRun = true)
+    @Override
+    protected void cleanup() throws Exception {
+        super.internalCleanup();
+    }
+
+    @Test(timeOut = 30000)
+    public void testFlushOnReceiptAndWaitWhileReceiptsLag() throws Exception {
+        final String topicName = BrokerTestUtil.newUniqueName("persistent://my-property/my-ns/adaptive-batching");
+        PulsarClientImpl client = (PulsarClientImpl) pulsarClient;
+        ProducerBuilderImpl<byte[]> producerBuilder = (ProducerBuilderImpl<byte[]>) client.newProducer()
+                .topic(topicName)
+                .enableBatching(true)
+                .enableAdaptiveBatching(true)
+                // Long enough for the test to fail if the batches were only flushed by the batching delay
+                .batchingMaxPublishDelay(1, TimeUnit.HOURS)
+                .batchingMaxMessages(1000);
+
+        // The receipts of the broker are held until the test releases them
+        AtomicBoolean holdReceipts = new AtomicBoolean(true);
+        List<Runnable> heldReceipts = new CopyOnWriteArrayList<>();
+        CompletableFuture<Producer<byte[]>> producerFuture = new CompletableFuture<>();
+        @Cleanup
+        ProducerImpl<byte[]> producer = new ProducerImpl<>(client, topicName, producerBuilder.getConf(),
+                producerFuture, -1, Schema.BYTES, null, Optional.empty()) {
+            @Override
+            protected void ackReceived(ClientCnx cnx, long sequenceId, long highestSequenceId, long ledgerId,
+                                       long entryId) {
+                if (holdReceipts.get()) {
+                    heldReceipts.add(() -> super.ackReceived(cnx, sequenceId, highestSequenceId, ledgerId, entryId));
+                } else {
+                    super.ackReceived(cnx, sequenceId, highestSequenceId, ledgerId, entryId);
+                }
+            }
+        };
+        producerFuture.get(5, TimeUnit.SECONDS);
+
+        // Nothing is in flight, so the first message is sent right away
+        CompletableFuture<MessageId> first = producer.sendAsync("msg-0".getBytes(StandardCharsets.UTF_8));
+        Awaitility.await().untilAsserted(() -> assertEquals(heldReceipts.size(), 1));
+
+        // The receipt of the first message lags, so the following messages wait in the batch
+        CompletableFuture<MessageId> second = producer.sendAsync("msg-1".getBytes(StandardCharsets.UTF_8));
+        CompletableFuture<MessageId> third = producer.sendAsync("msg-2".getBytes(StandardCharsets.UTF_8));
+        Awaitility.await().untilAsserted(() -> assertEquals(producer.getPendingQueueSize(), 3));
+        Thread.sleep(500);
+        assertEquals(heldReceipts.size(), 1);
+        assertEquals(producer.pendingMessages.messagesCount(), 1);
+        assertFalse(second.isDone());
+
+        // The receipt flushes the batch
+        holdReceipts.set(false);
+        heldReceipts.forEach(Runnable::run);
+        first.get(5, TimeUnit.SECONDS);
+        MessageId secondId = second.get(5, TimeUnit.SECONDS);
+        MessageId thirdId = third.get(5, TimeUnit.SECONDS);
+        assertEquals(((MessageIdImpl) secondId).getLedgerId(), ((MessageIdImpl) thirdId).getLedgerId());
+        assertEquals(((MessageIdImpl) secondId).getEntryId(), ((MessageIdImpl) thirdId).getEntryId());
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.client.impl;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.expectThrows;
+import com.google.common.cache.Cache;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import lombok.Cleanup;
+import org.apache.bookkeeper.mledger.Entry;
+import org.apache.bookkeeper.mledger.ManagedCursor;
+import org.apache.bookkeeper.mledger.PositionFactory;
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.apache.pulsar.broker.resources.CompressionDictionaryResources;
+import org.apache.pulsar.broker.service.persistent.PersistentTopic;
+import org.apache.pulsar.client.admin.PulsarAdminException;
+import org.apache.pulsar.client.api.CompressionType;
+import org.apache.pulsar.client.api.Consumer;
+import org.apache.pulsar.client.api.Message;
+import org.apache.pulsar.client.api.Producer;
+import org.apache.pulsar.client.api.ProducerConsumerBase;
+import org.apache.pulsar.client.api.PulsarClient;
+import org.apache.pulsar.client.api.Schema;
+import org.apache.pulsar.client.api.SubscriptionInitialPosition;
+import org.apache.pulsar.common.api.proto.MessageMetadata;
+import org.apache.pulsar.common.api.raw.MessageParser;
+import org.apache.pulsar.common.api.raw.RawMessage;
+import org.apache.pulsar.common.compression.CompressionDictionary;
+import org.apache.pulsar.common.naming.TopicName;
+import org.apache.pulsar.common.protocol.Commands;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+@Test(groups = "broker-impl")
+public class CompressionDictionaryTest extends ProducerConsumerBase {
+
+    @BeforeClass(alwaysRun = true)
+    @Override
+    protected void setup() throws Exception {
+        super.internalSetup();
+        super.producerBaseSetup();
+    }
+
+    @AfterClass(alwaysRun = true)
+    @Override
+    protected void cleanup() throws Exception {
+        super.internalCleanup();
+    }
+
+    private static String value(int i) {
+        return "{\"userId\":" + (i * 7919 % 100000) + ",\"eventType\":\"page_view\",\"properties\":{"
+                + "\"browser\":\"Firefox\",\"country\":\"DE\",\"path\":\"/products/" + i + "\"}}";
+    }
+
+    private CompressionDictionaryResources resources() {
+        return pulsar.getPulsarResources().getCompressionDictionaryResources();
+    }
+
+    /**
+     * Produces {@code count} messages from {@code from}, compressed with the dictionary of the topic if
+     * {@code withDictionary}.
+     */
+    private void produce(String topic, int from, int count, boolean withDictionary) throws Exception {
+        @Cleanup
+        Producer<String> producer = pulsarClient.newProducer(Schema.STRING)
+                .topic(topic)
+                .enableBatching(false)
+                .compressionType(CompressionType.ZLIB)
+                .enableCompressionDictionary(withDictionary)
+                .create();
+        for (int i = from; i < from + count; i++) {
+            producer.send(value(i));
+        }
+    }
+
+    private long train(String topic, int numMessages) throws Exception {
+        produce(topic, 0, numMessages, false);
+        long version = admin.topics().trainCompressionDictionary(topic, numMessages, 4096);
+        assertEquals(version, 1);
+        return version;
+    }
+
+    @Test
+    public void testProduceAndConsumeWithDictionary() throws Exception {
+        final String topic = "persistent://" + newTopicName();
+        long version = train(topic, 100);
+        ManagedCursor cursor = ((PersistentTopic) pulsar.getBrokerService().getTopicReference(topic).get())
+                .getManagedLedger().newNonDurableCursor(PositionFactory.LATEST);
+
+        produce(topic, 100, 10, true);
+
+        // The new messages are compressed with the dictionary
+        byte[] dictionary = resources().getCompressionDictionaryAsync(TopicName.get(topic), version).get()
+                .map(CompressionDictionary::getData).orElseThrow();
+        List<Entry> entries = cursor.readEntriesOrWait(10);
+        assertEquals(entries.size(), 10);
+        List<RawMessage> rawMessages = new ArrayList<>();
+        for (Entry entry : entries) {
+            try {
+                MessageMetadata metadata = Commands.peekMessageMetadata(entry.getDataBuffer(), topic, -1);
+                assertEquals(metadata.getCompressionDictionaryVersion(), version);
+                expectThrows(IOException.class, () -> MessageParser.parseMessage(topic, entry.getLedgerId(),
+                        entry.getEntryId(), entry.getDataBuffer().duplicate(), rawMessages::add,
+                        Commands.DEFAULT_MAX_MESSAGE_SIZE));
+                MessageParser.parseMessage(topic, entry.getLedgerId(), entry.getEntryId(), entry.getDataBuffer(),
+                        rawMessages::add, Commands.DEFAULT_MAX_MESSAGE_SIZE, v -> v == version ? dictionary : null);
+            } finally {
+                entry.release();
+            }
+        }
+        assertEquals(rawMessages.size(), 10);
+        for (int i = 0; i < 10; i++) {
+            RawMessage rawMessage = rawMessages.get(i);
+            byte[] data = new byte[rawMessage.getData().readableBytes()];
+            rawMessage.getData().readBytes(data);
+            assertEquals(new String(data, UTF_8), value(100 + i));
+            rawMessage.release();
+        }
+
+        // A new client loads the dictionary from the broker to decompress the messages
+        @Cleanup
+        PulsarClient client = newPulsarClient(lookupUrl.toString(), 0);
+        @Cleanup
+        Consumer<String> consumer = client.newConsumer(Schema.STRING)
+                .topic(topic)
+                .subscriptionName("sub")
+                .subscriptionInitialPosition(SubscriptionInitialPosition.Earliest)
+                .subscribe();
+        for (int i = 0; i < 110; i++) {
+            Message<String> message = consumer.receive(5, TimeUnit.SECONDS);
+            assertEquals(message.getValue(), value(i));
+            consumer.acknowledge(message);
+        }
+        assertTrue(((PulsarClientImpl) client).getCompressionDictionaryCache()
+                .getIfLoaded(topic, version) != null);
+    }
+
+    @Test
+    public void testMessageOrderWhileLoadingDictionary() throws Exception {
+        final String topic = "persistent://" + newTopicName();
+        long version = train(topic, 100);
+        produce(topic, 100, 10, true);
+        produce(topic, 110, 10, false);
+
+        @Cleanup
+        PulsarClient client = newPulsarClient(lookupUrl.toString(), 0);
+        // Hold the dictionary as being loaded
+        CompletableFuture<CompressionDictionary> loading = new CompletableFuture<>();
+        @SuppressWarnings("unchecked")
+        Cache<String, CompletableFuture<CompressionDictionary>> dictionaries =
+                (Cache<String, CompletableFuture<CompressionDictionary>>) FieldUtils.readField(
+                        ((PulsarClientImpl) client).getCompressionDictionaryCache(), "dictionaries", true);
+        dictionaries.put(TopicName.get(topic).getPartitionedTopicName() + "@" + version, loading);
+
+        @Cleanup
+        Consumer<String> consumer = client.newConsumer(Schema.STRING)
+                .topic(topic)
+                .subscriptionName("sub")
+                .subscriptionInitialPosition(SubscriptionInitialPosition.Earliest)
+                .subscribe();
+        for (int i = 0; i < 100; i++) {
+            assertEquals(consumer.receive(5, TimeUnit.SECONDS).getValue(), value(i));
+        }
+        // The messages without dictionary that follow wait for the dictionary as well
+        assertNull(consumer.receive(1, TimeUnit.SECONDS));
+
+        loading.complete(resources().getCompressionDictionaryAsync(TopicName.get(topic), version).get()
+                .orElseThrow());
+        for (int i = 100; i < 120; i++) {
+            assertEquals(consumer.receive(5, TimeUnit.SECONDS).getValue(), value(i));
+        }
+    }
+
+    @Test
+    public void testRemoveDictionary() throws Exception {
+        final String topic = "persistent://" + newTopicName();
+        long version = train(topic, 100);
+        produce(topic, 100, 10, true);
+
+        admin.topics().removeCompressionDictionary(topic);
+        assertFalse(resources().getLatestCompressionDictionaryAsync(TopicName.get(topic)).get().isPresent());
+        expectThrows(PulsarAdminException.NotFoundException.class,
+                () -> admin.topics().removeCompressionDictionary(topic));
+
+        // The new messages are not compressed with the dictionary anymore
+        ManagedCursor cursor = ((PersistentTopic) pulsar.getBrokerService().getTopicReference(topic).get())
+                .getManagedLedger().newNonDurableCursor(PositionFactory.LATEST);
+        produce(topic, 110, 10, true);
+        List<Entry> entries = cursor.readEntriesOrWait(10);
+        assertEquals(entries.size(), 10);
+        for (Entry entry : entries) {
+            try {
+                MessageMetadata metadata = Commands.peekMessageMetadata(entry.getDataBuffer(), topic, -1);
+                assertFalse(metadata.hasCompressionDictionaryVersion());
+            } finally {
+                entry.release();
+            }
+        }
+
+        // The messages compressed with the removed dictionary can still be decompressed
+        @Cleanup
+        PulsarClient client = newPulsarClient(lookupUrl.toString(), 0);
+        @Cleanup
+        Consumer<String> consumer = client.newConsumer(Schema.STRING)
+                .topic(topic)
+                .subscriptionName("sub")
+                .subscriptionInitialPosition(SubscriptionInitialPosition.Earliest)
+                .subscribe();
+        for (int i = 0; i < 120; i++) {
+            Message<String> message = consumer.receive(5, TimeUnit.SECONDS);
+            assertEquals(message.getValue(), value(i));
+            consumer.acknowledge(message);
+        }
+        assertTrue(((PulsarClientImpl) client).getCompressionDictionaryCache()
+                .getIfLoaded(topic, version) != null);
+
+        // A new dictionary can be trained again
+        assertEquals(admin.topics().trainCompressionDictionary(topic, 100, 4096), version + 2);
+    }
+
+    @Test
+    public void testDeleteTopicDeletesDictionaries() throws Exception {
+        final String topic = "persistent://" + newTopicName();
+        train(topic, 100);
+        assertTrue(resources().getLatestCompressionDictionaryAsync(TopicName.get(topic)).get().isPresent());
+
+        admin.topics().delete(topic);
+        assertFalse(resources().getLatestCompressionDictionaryAsync(TopicName.get(topic)).get().isPresent());
+
+        final String partitionedTopic = "persistent://" + newTopicName();
+        admin.topics().createPartitionedTopic(partitionedTopic, 2);
+        train(partitionedTopic, 100);
+        assertTrue(resources().getLatestCompressionDictionaryAsync(TopicName.get(partitionedTopic)).get()
+                .isPresent());
+
+        admin.topics().deletePartitionedTopic(partitionedTopic);
+        assertFalse(resources().getLatestCompressionDictionaryAsync(TopicName.get(partitionedTopic)).get()
+                .isPresent());
+    }
+}
@@ -33,7 +33,6 @@ import java.util.List;
 import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import lombok.Cleanup;
@@ -543,7 +542,7 @@ public class MessageChunkingTest extends ProducerConsumerBase {
                 .enableBatching(false)
                 .create();
         assertTrue(producer instanceof ProducerImpl);
-        Semaphore semaphore = ((ProducerImpl<byte[]>) producer).getSemaphore().orElse(null);
+        PendingMessagesPermits semaphore = ((ProducerImpl<byte[]>) producer).getSemaphore().orElse(null);
         assertNotNull(semaphore);
         assertEquals(semaphore.availablePermits(), maxPendingMessages);
         producer.send(createMessagePayload(1).getBytes());
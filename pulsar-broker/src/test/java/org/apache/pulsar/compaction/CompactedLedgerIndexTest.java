@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.compaction;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import io.netty.buffer.ByteBuf;
+import java.util.List;
+import org.apache.bookkeeper.mledger.PositionFactory;
+import org.testng.annotations.Test;
+
+@Test(groups = "broker-compaction")
+public class CompactedLedgerIndexTest {
+
+    @Test
+    public void testSparseIndex() {
+        CompactedLedgerIndex.Builder builder = new CompactedLedgerIndex.Builder(4);
+        for (int i = 0; i < 10; i++) {
+            // the message ids of the compacted entries are 5:0, 5:2, ..., 5:18
+            builder.add(5, 2L * i, i);
+        }
+        CompactedLedgerIndex index = builder.build();
+        // the compacted entries 0, 4 and 8 are indexed
+        assertEquals(index.size(), 3);
+        assertEquals(index.getCompactedEntryId(1), 4);
+
+        assertEquals(index.ceiling(PositionFactory.create(4, 100)), 0);
+        assertEquals(index.ceiling(PositionFactory.create(5, 0)), 0);
+        assertTrue(index.isAt(0, PositionFactory.create(5, 0)));
+        assertEquals(index.ceiling(PositionFactory.create(5, 1)), 1);
+        assertFalse(index.isAt(1, PositionFactory.create(5, 1)));
+        assertEquals(index.ceiling(PositionFactory.create(5, 8)), 1);
+        assertTrue(index.isAt(1, PositionFactory.create(5, 8)));
+        assertEquals(index.ceiling(PositionFactory.create(5, 17)), 3);
+        assertEquals(index.ceiling(PositionFactory.create(6, 0)), 3);
+    }
+
+    @Test
+    public void testSerialization() {
+        int count = CompactedLedgerIndex.MAX_RECORDS_PER_ENTRY + 10;
+        CompactedLedgerIndex.Builder builder = new CompactedLedgerIndex.Builder(1);
+        for (int i = 0; i < count; i++) {
+            builder.add(i / 100, i % 100, i);
+        }
+        List<ByteBuf> entries = builder.build().toEntries();
+        assertEquals(entries.size(), 2);
+        try {
+            CompactedLedgerIndex index = CompactedLedgerIndex.fromEntries(entries);
+            assertEquals(index.size(), count);
+            for (int i = 0; i < count; i++) {
+                assertTrue(index.isAt(i, PositionFactory.create(i / 100, i % 100)));
+                assertEquals(index.getCompactedEntryId(i), i);
+            }
+        } finally {
+            entries.forEach(ByteBuf::release);
+        }
+    }
+}
@@ -26,11 +26,15 @@ import io.netty.buffer.Unpooled;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.IntStream;
@@ -38,8 +42,10 @@ import lombok.Cleanup;
 import org.apache.bookkeeper.client.BKException;
 import org.apache.bookkeeper.client.BookKeeper;
 import org.apache.bookkeeper.client.LedgerHandle;
+import org.apache.bookkeeper.mledger.Entry;
 import org.apache.bookkeeper.mledger.Position;
 import org.apache.bookkeeper.mledger.PositionFactory;
+import org.apache.bookkeeper.mledger.impl.LedgerMetadataUtils;
 import org.apache.bookkeeper.mledger.impl.ManagedLedgerImpl;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.commons.lang3.tuple.Triple;
@@ -55,12 +61,14 @@ import org.apache.pulsar.client.api.ProducerBuilder;
 import org.apache.pulsar.client.api.RawMessage;
 import org.apache.pulsar.client.api.Reader;
 import org.apache.pulsar.client.api.Schema;
+import org.apache.pulsar.client.impl.MessageIdImpl;
 import org.apache.pulsar.client.impl.RawMessageImpl;
 import org.apache.pulsar.client.impl.ReaderImpl;
 import org.apache.pulsar.common.api.proto.MessageIdData;
 import org.apache.pulsar.common.policies.data.ClusterData;
 import org.apache.pulsar.common.policies.data.PersistentTopicInternalStats;
 import org.apache.pulsar.common.policies.data.TenantInfoImpl;
+import org.apache.pulsar.common.protocol.Commands;
 import org.apache.pulsar.common.util.FutureUtil;
 import org.awaitility.Awaitility;
 import org.mockito.Mockito;
@@ -215,6 +223,184 @@ public class CompactedTopicTest extends MockedPulsarServiceBaseTest {
         }
     }
 
+    @Test
+    public void testEntryLookupWithLedgerIndex() throws Exception {
+        String topic = "persistent://my-property/use/my-ns/testEntryLookupWithLedgerIndex-" + UUID.randomUUID();
+        conf.setTopicCompactionLedgerIndexInterval(8);
+
+        @Cleanup
+        Producer<byte[]> producer = pulsarClient.newProducer().topic(topic).enableBatching(false).create();
+        List<MessageId> ids = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            ids.add(producer.newMessage().key("key-" + (i % 50)).value(("my-message-" + i).getBytes()).send());
+        }
+
+        @Cleanup
+        BookKeeper bk = pulsar.getBookKeeperClientFactory().create(
+                this.conf, null, null, Optional.empty(), null).get();
+        @Cleanup("shutdownNow")
+        ScheduledExecutorService compactionScheduler = Executors.newSingleThreadScheduledExecutor();
+        long compactedLedgerId = new PublishingOrderCompactor(conf, pulsarClient, bk, compactionScheduler)
+                .compact(topic).get();
+
+        CompactedTopicImpl compactedTopic = new CompactedTopicImpl(bk);
+        compactedTopic.newCompactedLedger(PositionFactory.create(1, 2), compactedLedgerId).get();
+        CompactedTopicContext context = compactedTopic.getCompactedTopicContext().get();
+        long lastEntryId = context.getLedger().getLastAddConfirmed();
+        Assert.assertEquals(lastEntryId, 49);
+        // the entries 0, 8, ..., 48 of the compacted ledger are indexed
+        Assert.assertNotNull(context.getIndex());
+        Assert.assertEquals(context.getIndex().size(), 7);
+
+        // the index lookup finds the same start points as the binary search
+        for (MessageId id : ids) {
+            MessageIdImpl idImpl = (MessageIdImpl) id;
+            Position pos = PositionFactory.create(idImpl.getLedgerId(), idImpl.getEntryId());
+            Assert.assertEquals(CompactedTopicImpl.findStartPoint(pos, context).get(),
+                    CompactedTopicImpl.findStartPoint(pos, lastEntryId, context.getCache()).get());
+        }
+        Assert.assertEquals(CompactedTopicImpl.findStartPoint(PositionFactory.create(0, 0), context).get(),
+                Long.valueOf(0));
+        Assert.assertEquals(CompactedTopicImpl.findStartPoint(PositionFactory.create(Long.MAX_VALUE, 0), context).get(),
+                Long.valueOf(CompactedTopicImpl.NEWER_THAN_COMPACTED));
+
+        // the index ledger is deleted along with the compacted ledger
+        long indexLedgerId = LedgerMetadataUtils.getCompactedLedgerIndexLedgerId(
+                context.getLedger().getLedgerMetadata().getCustomMetadata()).get();
+        compactedTopic.deleteCompactedLedger(compactedLedgerId).join();
+        for (long ledgerId : new long[]{compactedLedgerId, indexLedgerId}) {
+            try {
+                bk.openLedger(ledgerId,
+                              Compactor.COMPACTED_TOPIC_LEDGER_DIGEST_TYPE,
+                              Compactor.COMPACTED_TOPIC_LEDGER_PASSWORD).close();
+                Assert.fail("Should have failed to open deleted ledger " + ledgerId);
+            } catch (BKException.BKNoSuchLedgerExistsException
+                | BKException.BKNoSuchLedgerExistsOnMetadataServerException e) {
+                // correct, expected behaviour
+            }
+        }
+    }
+
+    @Test
+    public void testIncrementalCompaction() throws Exception {
+        String topic = "persistent://my-property/use/my-ns/testIncrementalCompaction-" + UUID.randomUUID();
+        int maxDeltaSegments = conf.getTopicCompactionMaxDeltaSegments();
+        conf.setTopicCompactionMaxDeltaSegments(2);
+        try {
+            @Cleanup
+            Producer<byte[]> producer = pulsarClient.newProducer().topic(topic).enableBatching(false).create();
+            MessageId lastId = null;
+            for (int i = 0; i < 10; i++) {
+                lastId = producer.newMessage().key("key-" + i).value(("v0-" + i).getBytes()).send();
+            }
+
+            @Cleanup
+            BookKeeper bk = pulsar.getBookKeeperClientFactory().create(
+                    this.conf, null, null, Optional.empty(), null).get();
+            @Cleanup("shutdownNow")
+            ScheduledExecutorService compactionScheduler = Executors.newSingleThreadScheduledExecutor();
+            PublishingOrderCompactor compactor =
+                    new PublishingOrderCompactor(conf, pulsarClient, bk, compactionScheduler);
+            Assert.assertTrue(compactor.isIncrementalCompactionEnabled());
+            long fullLedgerId = compactor.compact(topic).get();
+            CompactedTopicImpl compactedTopic = new CompactedTopicImpl(bk);
+            Position horizon = toPosition(lastId);
+            compactedTopic.newCompactedLedger(horizon, fullLedgerId).get();
+
+            // update the first half of the keys, and delete one
+            for (int i = 0; i < 5; i++) {
+                producer.newMessage().key("key-" + i).value(("v1-" + i).getBytes()).send();
+            }
+            lastId = producer.newMessage().key("key-5").value(new byte[0]).send();
+            long deltaLedgerId = compactor.compactIncrementally(topic,
+                    compactedTopic.getCompactedTopicContext().get(), horizon).get();
+            horizon = toPosition(lastId);
+            compactedTopic.newCompactedLedger(horizon, deltaLedgerId).get();
+
+            CompactedTopicContext context = compactedTopic.getCompactedTopicContext().get();
+            Assert.assertEquals(context.getBaseSegments().size(), 1);
+            Assert.assertEquals(context.getBaseSegments().get(0).getLedger().getId(), fullLedgerId);
+            // the delta compacted ledger only holds the updated keys
+            Assert.assertEquals(context.getLedger().getLastAddConfirmed(), 4);
+            Map<String, String> expected = new HashMap<>();
+            for (int i = 0; i < 10; i++) {
+                expected.put("key-" + i, (i < 5 ? "v1-" : "v0-") + i);
+            }
+            expected.remove("key-5");
+            Assert.assertEquals(readCompactedView(context), expected);
+            // the lookups skip the messages of the base compacted ledger whose keys were compacted again
+            Entry firstEntry = compactedTopic.findFirstMatchEntry(entry -> true).get();
+            Assert.assertEquals(Commands.parseMessageMetadata(firstEntry.getDataBuffer()).getPartitionKey(), "key-6");
+            firstEntry.release();
+
+            // nothing to compact since the horizon
+            Assert.assertEquals(compactor.compactIncrementally(topic, context, horizon).get().longValue(),
+                    deltaLedgerId);
+
+            lastId = producer.newMessage().key("key-0").value("v2-0".getBytes()).send();
+            long secondDeltaLedgerId = compactor.compactIncrementally(topic, context, horizon).get();
+            horizon = toPosition(lastId);
+            compactedTopic.newCompactedLedger(horizon, secondDeltaLedgerId).get();
+            compactedTopic.deleteCompactedLedger(deltaLedgerId).join();
+            context = compactedTopic.getCompactedTopicContext().get();
+            Assert.assertEquals(context.getBaseSegments().size(), 2);
+            expected.put("key-0", "v2-0");
+            Assert.assertEquals(readCompactedView(context), expected);
+            Assert.assertEquals(Commands.parseMessageMetadata(
+                    compactedTopic.readLastEntryOfCompactedLedger().get().getDataBuffer()).getPartitionKey(), "key-0");
+
+            // the chain is as long as allowed, so the next compaction merges all of it
+            lastId = producer.newMessage().key("key-1").value("v3-1".getBytes()).send();
+            long mergedLedgerId = compactor.compactIncrementally(topic, context, horizon).get();
+            horizon = toPosition(lastId);
+            compactedTopic.newCompactedLedger(horizon, mergedLedgerId).get();
+            context = compactedTopic.getCompactedTopicContext().get();
+            Assert.assertTrue(context.getBaseSegments().isEmpty());
+            Assert.assertEquals(context.getLedger().getLastAddConfirmed(), 8);
+            expected.put("key-1", "v3-1");
+            Assert.assertEquals(readCompactedView(context), expected);
+
+            // the whole previous chain is deleted along with its head, also by the compactor subscription of the broker
+            compactedTopic.deleteCompactedLedger(secondDeltaLedgerId).join();
+            Awaitility.await().untilAsserted(() -> {
+                for (long ledgerId : new long[]{fullLedgerId, deltaLedgerId, secondDeltaLedgerId}) {
+                    try {
+                        bk.openLedger(ledgerId,
+                                      Compactor.COMPACTED_TOPIC_LEDGER_DIGEST_TYPE,
+                                      Compactor.COMPACTED_TOPIC_LEDGER_PASSWORD).close();
+                        Assert.fail("Should have failed to open deleted ledger " + ledgerId);
+                    } catch (BKException.BKNoSuchLedgerExistsException
+                        | BKException.BKNoSuchLedgerExistsOnMetadataServerException e) {
+                        // correct, expected behaviour
+                    }
+                }
+            });
+        } finally {
+            conf.setTopicCompactionMaxDeltaSegments(maxDeltaSegments);
+        }
+    }
+
+    private static Position toPosition(MessageId id) {
+        MessageIdImpl idImpl = (MessageIdImpl) id;
+        return PositionFactory.create(idImpl.getLedgerId(), idImpl.getEntryId());
+    }
+
+    private static Map<String, String> readCompactedView(CompactedTopicContext context) throws Exception {
+        Map<String, String> view = new HashMap<>();
+        Position position = PositionFactory.create(0, 0);
+        List<Entry> entries;
+        while (!(entries = CompactedTopicImpl.readCompactedEntries(context, position, 3).get()).isEmpty()) {
+            for (Entry entry : entries) {
+                ByteBuf buffer = entry.getDataBuffer();
+                String key = Commands.parseMessageMetadata(buffer).getPartitionKey();
+                Assert.assertNull(view.put(key, buffer.toString(Charset.defaultCharset())), key);
+                position = entry.getPosition().getNext();
+                entry.release();
+            }
+        }
+        return view;
+    }
+
     @Test
     public void testCleanupOldCompactedTopicLedger() throws Exception {
         @Cleanup
@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.compaction;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.pulsar.client.api.MessageId;
+import org.apache.pulsar.client.impl.BatchMessageIdImpl;
+import org.apache.pulsar.client.impl.MessageIdImpl;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+@Test(groups = "broker-compaction")
+public class SpillingKeyMapTest {
+
+    private Path spillDirectory;
+
+    @BeforeMethod
+    public void setup() throws Exception {
+        spillDirectory = Files.createTempDirectory("compaction-spill");
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void cleanup() throws Exception {
+        try (Stream<Path> files = Files.walk(spillDirectory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    @DataProvider(name = "keys")
+    public Object[][] keys() {
+        // fitting in the smallest table, and spilled to many runs
+        return new Object[][]{{100, 500}, {5_000, 50_000}};
+    }
+
+    @Test(dataProvider = "keys")
+    public void testSameLatestMessagesAsHashMap(int keys, int messages) throws Exception {
+        Map<String, MessageId> expected = new HashMap<>();
+        long expectedReplaced = 0;
+        AtomicLong replaced = new AtomicLong();
+        List<Pair<String, MessageId>> topic = new ArrayList<>();
+
+        SpillingKeyMap map = new SpillingKeyMap(0, spillDirectory);
+        Random random = new Random(1);
+        for (int i = 0; i < messages; i++) {
+            String key = "key-" + random.nextInt(keys);
+            MessageId id = i % 3 == 0 ? new MessageIdImpl(1, i, 0) : new BatchMessageIdImpl(1, i, 0, i % 3);
+            topic.add(Pair.of(key, id));
+            if (random.nextInt(10) == 0) {
+                expected.remove(key);
+                map.remove(key);
+            } else {
+                if (expected.put(key, id) != null) {
+                    expectedReplaced++;
+                }
+                if (map.put(key, id)) {
+                    replaced.incrementAndGet();
+                }
+            }
+        }
+
+        try (LatestMessageIds latest = map.finish(replaced::incrementAndGet)) {
+            assertEquals(latest.size(), expected.size());
+            assertEquals(replaced.get(), expectedReplaced);
+            for (Pair<String, MessageId> message : topic) {
+                assertEquals(latest.isLatest(message.getLeft(), message.getRight()),
+                        message.getRight().equals(expected.get(message.getLeft())), message.toString());
+            }
+        }
+        try (Stream<Path> files = Files.list(spillDirectory)) {
+            assertFalse(files.findAny().isPresent());
+        }
+    }
+
+    @Test
+    public void testRemoveUnknownKey() {
+        SpillingKeyMap map = new SpillingKeyMap(0, spillDirectory);
+        map.remove("key");
+        map.put("key", new MessageIdImpl(1, 1, -1));
+        assertTrue(map.put("key", new MessageIdImpl(1, 2, -1)));
+        try (LatestMessageIds latest = map.finish(() -> {})) {
+            assertEquals(latest.size(), 1);
+            assertFalse(latest.isLatest("key", new MessageIdImpl(1, 1, -1)));
+            assertEquals(latest.isLatest("key", new MessageIdImpl(1, 2, -1)), true);
+        }
+    }
+}
@@ -2952,6 +2952,59 @@ public interface Namespaces {
      */
     CompletableFuture<Void> removeDeduplicationSnapshotIntervalAsync(String namespace);
 
+    /**
+     * Get the max number of batches read ahead by the cursors catching up with a backlog for a namespace.
+     *
+     * @param namespace
+     * @return
+     * @throws PulsarAdminException
+     */
+    Integer getCursorReadAheadMaxBatches(String namespace) throws PulsarAdminException;
+
+    /**
+     * Get the max number of batches read ahead by the cursors catching up with a backlog for a namespace
+     * asynchronously.
+     *
+     * @param namespace
+     * @return
+     */
+    CompletableFuture<Integer> getCursorReadAheadMaxBatchesAsync(String namespace);
+
+    /**
+     * Set the max number of batches read ahead by the cursors catching up with a backlog for a namespace.
+     * <p/>
+     * Setting it to 0 disables the read-ahead.
+     *
+     * @param namespace
+     * @param maxBatches
+     * @throws PulsarAdminException
+     */
+    void setCursorReadAheadMaxBatches(String namespace, Integer maxBatches) throws PulsarAdminException;
+
+    /**
+     * Set the max number of batches read ahead by the cursors catching up with a backlog for a namespace
+     * asynchronously.
+     *
+     * @param namespace
+     * @param maxBatches
+     * @return
+     */
+    CompletableFuture<Void> setCursorReadAheadMaxBatchesAsync(String namespace, Integer maxBatches);
+
+    /**
+     * Remove the max number of batches read ahead by the cursors for a namespace, the broker default is used.
+     * @param namespace
+     * @throws PulsarAdminException
+     */
+    void removeCursorReadAheadMaxBatches(String namespace) throws PulsarAdminException;
+
+    /**
+     * Remove the max number of batches read ahead by the cursors for a namespace asynchronously.
+     * @param namespace
+     * @return
+     */
+    CompletableFuture<Void> removeCursorReadAheadMaxBatchesAsync(String namespace);
+
     /**
      * Get the maxSubscriptionsPerTopic for a namespace.
      *
@@ -2073,6 +2073,58 @@ public interface Topics {
      */
     CompletableFuture<Void> triggerCompactionAsync(String topic);
 
+    /**
+     * Train a new version of the compression dictionary of a topic, from its latest messages.
+     * <p/>
+     * The dictionary is used by the producers having the dictionary compression enabled, once they reconnect, e.g.
+     * after unloading the topic.
+     *
+     * @param topic
+     *            The topic, the dictionary of a partitioned topic is shared by all its partitions
+     * @param numSamples
+     *            The number of latest messages to train the dictionary from
+     * @param maxSize
+     *            The maximum size of the dictionary in bytes, up to 32KB
+     * @return the version of the new dictionary
+     */
+    long trainCompressionDictionary(String topic, int numSamples, int maxSize) throws PulsarAdminException;
+
+    /**
+     * Train a new version of the compression dictionary of a topic asynchronously.
+     *
+     * @param topic
+     *            The topic, the dictionary of a partitioned topic is shared by all its partitions
+     * @param numSamples
+     *            The number of latest messages to train the dictionary from
+     * @param maxSize
+     *            The maximum size of the dictionary in bytes, up to 32KB
+     * @return the version of the new dictionary
+     */
+    CompletableFuture<Long> trainCompressionDictionaryAsync(String topic, int numSamples, int maxSize);
+
+    /**
+     * Remove the compression dictionary of a topic.
+     * <p/>
+     * The producers stop compressing the messages with the dictionary once they reconnect, e.g. after unloading the
+     * topic, and the consumers which don't support the compression dictionaries are allowed to subscribe again. The
+     * previous versions of the dictionary are kept, so that the messages compressed with them can still be
+     * decompressed by the consumers which support the compression dictionaries.
+     *
+     * @param topic
+     *            The topic, the dictionary of a partitioned topic is shared by all its partitions
+     * @throws NotFoundException
+     *             The topic has no compression dictionary
+     */
+    void removeCompressionDictionary(String topic) throws PulsarAdminException;
+
+    /**
+     * Remove the compression dictionary of a topic asynchronously.
+     *
+     * @param topic
+     *            The topic, the dictionary of a partitioned topic is shared by all its partitions
+     */
+    CompletableFuture<Void> removeCompressionDictionaryAsync(String topic);
+
     /**
      * Trigger topic trimming.
      * @param topic The topic to trim
@@ -132,6 +132,8 @@ public class Policies {
 
     public Boolean dispatcherPauseOnAckStatePersistentEnabled;
 
+    public Integer cursorReadAheadMaxBatches = null;
+
     public enum BundleType {
         LARGEST, HOT;
     }
@@ -163,7 +165,7 @@ public class Policies {
                 subscription_types_enabled,
                 properties,
                 resource_group_name, entryFilters, migrated,
-                dispatcherPauseOnAckStatePersistentEnabled);
+                dispatcherPauseOnAckStatePersistentEnabled, cursorReadAheadMaxBatches);
     }
 
     @Override
@@ -214,7 +216,8 @@ public class Policies {
                     && Objects.equals(resource_group_name, other.resource_group_name)
                     && Objects.equals(entryFilters, other.entryFilters)
                     && Objects.equals(dispatcherPauseOnAckStatePersistentEnabled,
-                    other.dispatcherPauseOnAckStatePersistentEnabled);
+                    other.dispatcherPauseOnAckStatePersistentEnabled)
+                    && Objects.equals(cursorReadAheadMaxBatches, other.cursorReadAheadMaxBatches);
         }
 
         return false;
@@ -1296,6 +1296,40 @@ public class NamespacesImpl extends BaseResource implements Namespaces {
         return setDeduplicationSnapshotIntervalAsync(namespace, null);
     }
 
+    @Override
+    public Integer getCursorReadAheadMaxBatches(String namespace) throws PulsarAdminException {
+        return sync(() -> getCursorReadAheadMaxBatchesAsync(namespace));
+    }
+
+    @Override
+    public CompletableFuture<Integer> getCursorReadAheadMaxBatchesAsync(String namespace) {
+        return asyncGetNamespaceParts(new FutureCallback<Integer>(){}, namespace, "cursorReadAheadMaxBatches");
+    }
+
+    @Override
+    public void setCursorReadAheadMaxBatches(String namespace, Integer maxBatches) throws PulsarAdminException {
+        sync(() -> setCursorReadAheadMaxBatchesAsync(namespace, maxBatches));
+    }
+
+    @Override
+    public CompletableFuture<Void> setCursorReadAheadMaxBatchesAsync(String namespace, Integer maxBatches) {
+        NamespaceName ns = NamespaceName.get(namespace);
+        WebTarget path = namespacePath(ns, "cursorReadAheadMaxBatches");
+        return asyncPostRequest(path, Entity.entity(maxBatches, MediaType.APPLICATION_JSON));
+    }
+
+    @Override
+    public void removeCursorReadAheadMaxBatches(String namespace) throws PulsarAdminException {
+        sync(() -> removeCursorReadAheadMaxBatchesAsync(namespace));
+    }
+
+    @Override
+    public CompletableFuture<Void> removeCursorReadAheadMaxBatchesAsync(String namespace) {
+        NamespaceName ns = NamespaceName.get(namespace);
+        WebTarget path = namespacePath(ns, "cursorReadAheadMaxBatches");
+        return asyncDeleteRequest(path);
+    }
+
     @Override
     public Integer getMaxSubscriptionsPerTopic(String namespace) throws PulsarAdminException {
         return sync(() -> getMaxSubscriptionsPerTopicAsync(namespace));
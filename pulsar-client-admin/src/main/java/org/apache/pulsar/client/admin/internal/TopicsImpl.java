@@ -126,6 +126,7 @@ public class TopicsImpl extends BaseResource implements Topics {
     private static final String CHUNK_ID = "X-Pulsar-chunk-id";
     private static final String PARTITION_KEY_B64_ENCODED = "X-Pulsar-partition-key-b64-encoded";
     private static final String NULL_PARTITION_KEY = "X-Pulsar-null-partition-key";
+    private static final String COMPRESSION_DICTIONARY_VERSION = "X-Pulsar-compression-dictionary-version";
     private static final String REPLICATED_TO = "X-Pulsar-replicated-to";
     private static final String ORDERING_KEY = "X-Pulsar-Base64-ordering-key";
     private static final String SCHEMA_VERSION = "X-Pulsar-Base64-schema-version-b64encoded";
@@ -1177,6 +1178,45 @@ public class TopicsImpl extends BaseResource implements Topics {
         return asyncPutRequest(path, Entity.entity("", MediaType.APPLICATION_JSON));
     }
 
+    @Override
+    public long trainCompressionDictionary(String topic, int numSamples, int maxSize) throws PulsarAdminException {
+        return sync(() -> trainCompressionDictionaryAsync(topic, numSamples, maxSize));
+    }
+
+    @Override
+    public CompletableFuture<Long> trainCompressionDictionaryAsync(String topic, int numSamples, int maxSize) {
+        TopicName tn = validateTopic(topic);
+        WebTarget path = topicPath(tn, "compressionDictionary")
+                .queryParam("numSamples", numSamples)
+                .queryParam("maxSize", maxSize);
+        final CompletableFuture<Long> future = new CompletableFuture<>();
+        asyncPostRequestWithResponse(path, Entity.entity("", MediaType.APPLICATION_JSON),
+                new InvocationCallback<Long>() {
+                    @Override
+                    public void completed(Long version) {
+                        future.complete(version);
+                    }
+
+                    @Override
+                    public void failed(Throwable throwable) {
+                        future.completeExceptionally(getApiException(throwable.getCause()));
+                    }
+                });
+        return future;
+    }
+
+    @Override
+    public void removeCompressionDictionary(String topic) throws PulsarAdminException {
+        sync(() -> removeCompressionDictionaryAsync(topic));
+    }
+
+    @Override
+    public CompletableFuture<Void> removeCompressionDictionaryAsync(String topic) {
+        TopicName tn = validateTopic(topic);
+        WebTarget path = topicPath(tn, "compressionDictionary");
+        return asyncDeleteRequest(path);
+    }
+
     @Override
     public void trimTopic(String topic) throws PulsarAdminException {
         sync(() -> trimTopicAsync(topic));
@@ -1414,6 +1454,10 @@ public class TopicsImpl extends BaseResource implements Topics {
             if (tmp != null) {
                 messageMetadata.setNullPartitionKey(Boolean.parseBoolean(tmp.toString()));
             }
+            tmp = headers.getFirst(COMPRESSION_DICTIONARY_VERSION);
+            if (tmp != null) {
+                messageMetadata.setCompressionDictionaryVersion(Long.parseLong(tmp.toString()));
+            }
             tmp = headers.getFirst(ENCRYPTION_PARAM);
             if (tmp != null) {
                 messageMetadata.setEncryptionParam(Base64.getDecoder().decode(tmp.toString()));
@@ -1469,7 +1513,9 @@ public class TopicsImpl extends BaseResource implements Topics {
                 isEncrypted = Boolean.parseBoolean(tmp.toString());
             }
 
-            if (!isEncrypted && response.getHeaderString(BATCH_HEADER) != null) {
+            // The batches compressed with a dictionary are not decompressed by the broker
+            if (!isEncrypted && !messageMetadata.hasCompressionDictionaryVersion()
+                    && response.getHeaderString(BATCH_HEADER) != null) {
                 return getIndividualMsgsFromBatch(topic, msgId, data, properties, messageMetadata, brokerEntryMetadata);
             }
 
@@ -306,6 +306,24 @@ public interface ProducerBuilder<T> extends Cloneable {
      */
     ProducerBuilder<T> compressionMinMsgBodySize(int compressionMinMsgBodySize);
 
+    /**
+     * Compress the messages with the compression dictionary of the topic, trained by an admin operation from the
+     * messages of the topic.
+     * <p>
+     * A dictionary makes the compression of small messages much more effective, since it holds the content they
+     * have in common. It is only supported with {@link CompressionType#ZLIB}, and it needs the consumer applications
+     * to support compression dictionaries as well. The producer uses the latest version of the dictionary when it
+     * connects to the topic, so it has to reconnect, e.g. after the topic is unloaded, to use a new version.
+     * <p>
+     * The dictionaries are stored by each cluster, so this should not be enabled on geo-replicated topics.
+     * <p>
+     * Default: false
+     *
+     * @param enableCompressionDictionary whether to compress the messages with the dictionary of the topic
+     * @return the producer builder instance
+     */
+    ProducerBuilder<T> enableCompressionDictionary(boolean enableCompressionDictionary);
+
     /**
      * Set a custom message routing policy by passing an implementation of MessageRouter.
      *
@@ -332,6 +350,24 @@ public interface ProducerBuilder<T> extends Cloneable {
      */
     ProducerBuilder<T> enableBatching(boolean enableBatching);
 
+    /**
+     * Adapt the batching to the load of the producer. <i>default: disabled</i>
+     *
+     * <p>When adaptive batching is enabled, a batch is sent as soon as the producer has no messages waiting for the
+     * broker receipt, so that the messages are not delayed at low rates. While messages are in flight, the next
+     * batch grows until a receipt is received, the batch is full, or the observed send latency has elapsed, so that
+     * the batches are larger under load without tuning the batching delay. The configured
+     * {@link #batchingMaxPublishDelay(long, TimeUnit)}, {@link #batchingMaxMessages(int)} and
+     * {@link #batchingMaxBytes(int)} remain the upper bounds of the batches.
+     *
+     * <p>Adaptive batching has no effect when batching is disabled.
+     *
+     * @param enableAdaptiveBatching whether to adapt the batching to the load of the producer
+     * @return the producer builder instance
+     * @see #enableBatching(boolean)
+     */
+    ProducerBuilder<T> enableAdaptiveBatching(boolean enableAdaptiveBatching);
+
     /**
      * If a message's size is higher than the broker's allowed max publish-payload size, enableChunking allows
      * the producer to split the message into multiple chunks and publish it to the broker separately and in order.
@@ -1684,6 +1684,47 @@ public class CmdNamespaces extends CmdBase {
         }
     }
 
+    @Command(description = "Get the max number of batches read ahead by the cursors for a namespace")
+    private class GetCursorReadAheadMaxBatches extends CliCommand {
+        @Parameters(description = "tenant/namespace", arity = "1")
+        private String namespaceName;
+
+        @Override
+        void run() throws PulsarAdminException {
+            String namespace = validateNamespace(namespaceName);
+            print(getAdmin().namespaces().getCursorReadAheadMaxBatches(namespace));
+        }
+    }
+
+    @Command(description = "Remove the max number of batches read ahead by the cursors for a namespace")
+    private class RemoveCursorReadAheadMaxBatches extends CliCommand {
+        @Parameters(description = "tenant/namespace", arity = "1")
+        private String namespaceName;
+
+        @Override
+        void run() throws PulsarAdminException {
+            String namespace = validateNamespace(namespaceName);
+            getAdmin().namespaces().removeCursorReadAheadMaxBatches(namespace);
+        }
+    }
+
+    @Command(description = "Set the max number of batches read ahead by the cursors catching up with a backlog "
+            + "for a namespace")
+    private class SetCursorReadAheadMaxBatches extends CliCommand {
+        @Parameters(description = "tenant/namespace", arity = "1")
+        private String namespaceName;
+
+        @Option(names = {"--max-batches", "-m"}
+                , description = "Max number of batches read ahead, 0 disables the read-ahead", required = true)
+        private int maxBatches;
+
+        @Override
+        void run() throws PulsarAdminException {
+            String namespace = validateNamespace(namespaceName);
+            getAdmin().namespaces().setCursorReadAheadMaxBatches(namespace, maxBatches);
+        }
+    }
+
     @Command(description = "Get maxProducersPerTopic for a namespace")
     private class GetMaxProducersPerTopic extends CliCommand {
         @Parameters(description = "tenant/namespace", arity = "1")
@@ -2832,6 +2873,10 @@ public class CmdNamespaces extends CmdBase {
         addCommand("get-deduplication-snapshot-interval", new GetDeduplicationSnapshotInterval());
         addCommand("remove-deduplication-snapshot-interval", new RemoveDeduplicationSnapshotInterval());
 
+        addCommand("set-cursor-read-ahead-max-batches", new SetCursorReadAheadMaxBatches());
+        addCommand("get-cursor-read-ahead-max-batches", new GetCursorReadAheadMaxBatches());
+        addCommand("remove-cursor-read-ahead-max-batches", new RemoveCursorReadAheadMaxBatches());
+
         addCommand("set-max-topics-per-namespace", new SetMaxTopicsPerNamespace());
         addCommand("get-max-topics-per-namespace", new GetMaxTopicsPerNamespace());
         addCommand("remove-max-topics-per-namespace", new RemoveMaxTopicsPerNamespace());
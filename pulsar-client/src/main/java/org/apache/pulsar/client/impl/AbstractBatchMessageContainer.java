@@ -50,9 +50,6 @@ public abstract class AbstractBatchMessageContainer implements BatchMessageConta
     protected static final int INITIAL_BATCH_BUFFER_SIZE = 1024;
     protected static final int INITIAL_MESSAGES_NUM = 32;
 
-    // This will be the largest size for a batch sent from this particular producer. This is used as a baseline to
-    // allocate a new buffer that can hold the entire batch without needing costly reallocations
-    protected int maxBatchSize = INITIAL_BATCH_BUFFER_SIZE;
     protected int maxMessagesNum = INITIAL_MESSAGES_NUM;
     private volatile long firstAddedTimestamp = 0L;
 
@@ -95,10 +92,6 @@ public abstract class AbstractBatchMessageContainer implements BatchMessageConta
         return batchAllocatedSizeBytes;
     }
 
-    int getMaxBatchSize() {
-        return maxBatchSize;
-    }
-
     @Override
     public List<ProducerImpl.OpSendMsg> createOpSendMsgs() throws IOException {
         throw new UnsupportedOperationException();
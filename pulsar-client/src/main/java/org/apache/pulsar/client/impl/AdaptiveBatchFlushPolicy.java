@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.client.impl;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides when a producer flushes its batch from the messages in flight and the observed send latency.
+ *
+ * <p/>Like the Nagle algorithm, a batch is flushed right away when no message is waiting for the broker receipt,
+ * and otherwise it grows until a receipt is received. The flush task waits for twice the smoothed send latency, so
+ * that a slow receipt does not hold the batch for longer than the usual round trips, within the configured
+ * batching delay.
+ *
+ * <p/>The methods are called from within the producer mutex.
+ */
+class AdaptiveBatchFlushPolicy {
+
+    static final long MIN_FLUSH_DELAY_MICROS = 100;
+    // The weight of a new latency sample in the smoothed latency
+    private static final double ALPHA = 0.125;
+
+    private final long maxFlushDelayMicros;
+    private double smoothedLatencyMicros = -1;
+
+    AdaptiveBatchFlushPolicy(long maxFlushDelayMicros) {
+        this.maxFlushDelayMicros = maxFlushDelayMicros;
+    }
+
+    /**
+     * Record the time between sending a batch and receiving its receipt.
+     */
+    void recordSendLatency(long latencyNanos) {
+        double latencyMicros = TimeUnit.NANOSECONDS.toMicros(latencyNanos);
+        smoothedLatencyMicros = smoothedLatencyMicros < 0 ? latencyMicros
+                : smoothedLatencyMicros + ALPHA * (latencyMicros - smoothedLatencyMicros);
+    }
+
+    /**
+     * Whether the batch should be sent without waiting for more messages.
+     */
+    boolean shouldFlush(boolean hasMessagesInFlight) {
+        return !hasMessagesInFlight;
+    }
+
+    /**
+     * The delay of the flush task, until a latency is observed the configured batching delay is used.
+     */
+    long getFlushDelayMicros() {
+        if (smoothedLatencyMicros < 0) {
+            return maxFlushDelayMicros;
+        }
+        long delayMicros = Math.max(MIN_FLUSH_DELAY_MICROS, (long) (2 * smoothedLatencyMicros));
+        return Math.min(delayMicros, maxFlushDelayMicros);
+    }
+}
@@ -21,6 +21,7 @@ package org.apache.pulsar.client.impl;
 import com.google.common.annotations.VisibleForTesting;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.CompositeByteBuf;
 import io.netty.util.ReferenceCountUtil;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -46,6 +47,10 @@ import org.slf4j.LoggerFactory;
  *
  * batched into single batch message:
  * [(k1, v1), (k2, v1), (k3, v1), (k1, v2), (k2, v2), (k3, v2), (k1, v3), (k2, v3), (k3, v3)]
+ *
+ * <p/>The payloads of the messages are never copied into the batch: the size and the metadata of each message are
+ * serialized when it's added, and the batch is a composite buffer of these headers and of the payloads. It's only
+ * copied into a contiguous buffer when the compression codec can't read a composite buffer.
  */
 class BatchMessageContainerImpl extends AbstractBatchMessageContainer {
 
@@ -57,15 +62,18 @@ class BatchMessageContainerImpl extends AbstractBatchMessageContainer {
     @Getter
     @Setter
     protected long highestSequenceId = -1L;
+    // the size and the metadata of the messages in the batch, one after the other, the batch is built from them and
+    // the payloads of the messages
     protected ByteBuf batchedMessageMetadataAndPayload;
+    // the batch built from the payloads of the messages, which is not accounted as allocated by the batch
+    private ByteBuf messagesPayload;
     protected List<MessageImpl<?>> messages = new ArrayList<>(maxMessagesNum);
     protected SendCallback previousCallback = null;
     // keep track of callbacks for individual messages being published in a batch
     protected SendCallback firstCallback;
 
     protected final ByteBufAllocator allocator;
-    private static final int SHRINK_COOLING_OFF_PERIOD = 10;
-    private int consecutiveShrinkTime = 0;
+    private int maxHeadersSize = INITIAL_BATCH_BUFFER_SIZE;
 
     public BatchMessageContainerImpl() {
         this(PulsarByteBufAllocator.DEFAULT);
@@ -100,8 +108,7 @@ class BatchMessageContainerImpl extends AbstractBatchMessageContainer {
                 messageMetadata.setSequenceId(msg.getSequenceId());
                 lowestSequenceId = Commands.initBatchMessageMetadata(messageMetadata, msg.getMessageBuilder());
                 this.firstCallback = callback;
-                batchedMessageMetadataAndPayload = allocator.buffer(
-                        Math.min(maxBatchSize, getMaxMessageSize()));
+                batchedMessageMetadataAndPayload = allocator.buffer(maxHeadersSize);
                 updateAndReserveBatchAllocatedSize(batchedMessageMetadataAndPayload.capacity());
                 if (msg.getMessageBuilder().hasTxnidMostBits() && currentTxnidMostBits == -1) {
                     currentTxnidMostBits = msg.getMessageBuilder().getTxnidMostBits();
@@ -121,6 +128,8 @@ class BatchMessageContainerImpl extends AbstractBatchMessageContainer {
             }
         }
 
+        Commands.serializeSingleMessageMetadataInBatch(msg.getMessageBuilder(),
+                msg.getDataBuffer().readableBytes(), batchedMessageMetadataAndPayload);
         if (previousCallback != null) {
             previousCallback.addCallback(msg, callback);
         }
@@ -146,74 +155,74 @@ class BatchMessageContainerImpl extends AbstractBatchMessageContainer {
     }
 
     protected ByteBuf getCompressedBatchMetadataAndPayload(boolean clientOperation) {
-        int batchWriteIndex = batchedMessageMetadataAndPayload.writerIndex();
-        int batchReadIndex = batchedMessageMetadataAndPayload.readerIndex();
-
-        for (int i = 0, n = messages.size(); i < n; i++) {
-            MessageImpl<?> msg = messages.get(i);
-            msg.getDataBuffer().markReaderIndex();
-            try {
-                if (n == 1) {
-                    batchedMessageMetadataAndPayload.writeBytes(msg.getDataBuffer());
-                } else  {
-                    batchedMessageMetadataAndPayload = Commands.serializeSingleMessageInBatchWithPayload(
-                        msg.getMessageBuilder(), msg.getDataBuffer(), batchedMessageMetadataAndPayload);
-                }
-            } catch (Throwable th) {
-                // serializing batch message can corrupt the index of message and batch-message. Reset the index so,
-                // next iteration doesn't send corrupt message to broker.
-                batchedMessageMetadataAndPayload.writerIndex(batchWriteIndex);
-                batchedMessageMetadataAndPayload.readerIndex(batchReadIndex);
-                throw new RuntimeException(th);
-            } finally {
-                msg.getDataBuffer().resetReaderIndex();
-            }
+        ByteBuf batch = buildBatchedMessageMetadataAndPayload();
+        int uncompressedSize = batch.readableBytes();
+        boolean compress = compressionType != CompressionType.NONE && (!clientOperation || producer == null
+                || uncompressedSize > producer.conf.getCompressMinMsgBodySize());
+        messagesPayload = null;
+        if (compress && batch.nioBufferCount() > 1 && !compressor.supportsCompositeSource()) {
+            ByteBuf contiguous = allocator.buffer(uncompressedSize, uncompressedSize);
+            contiguous.writeBytes(batch, batch.readerIndex(), uncompressedSize);
+            batch.release();
+            batch = contiguous;
+        } else {
+            messagesPayload = batch;
         }
 
-        int uncompressedSize = batchedMessageMetadataAndPayload.readableBytes();
         ByteBuf compressedPayload;
         if (clientOperation && producer != null){
-            if (compressionType != CompressionType.NONE
-                    && uncompressedSize > producer.conf.getCompressMinMsgBodySize()) {
-                compressedPayload = producer.applyCompression(batchedMessageMetadataAndPayload);
+            if (compress) {
+                compressedPayload = producer.applyCompression(batch, messageMetadata);
                 messageMetadata.setCompression(compressionType);
                 messageMetadata.setUncompressedSize(uncompressedSize);
             } else {
-                compressedPayload = batchedMessageMetadataAndPayload;
+                compressedPayload = batch;
             }
         } else {
-            compressedPayload = compressor.encode(batchedMessageMetadataAndPayload);
-            batchedMessageMetadataAndPayload.release();
+            compressedPayload = compressor.encode(batch);
+            batch.release();
             if (compressionType != CompressionType.NONE) {
                 messageMetadata.setCompression(compressionType);
                 messageMetadata.setUncompressedSize(uncompressedSize);
             }
         }
 
-        // Update the current max batch size using the uncompressed size, which is what we need in any case to
-        // accumulate the batch content
-        updateMaxBatchSize(uncompressedSize);
+        maxHeadersSize = Math.max(maxHeadersSize, batchedMessageMetadataAndPayload.writerIndex());
         maxMessagesNum = Math.max(maxMessagesNum, numMessagesInBatch);
         return compressedPayload;
     }
 
-    void updateMaxBatchSize(int uncompressedSize) {
-        if (uncompressedSize > maxBatchSize) {
-            maxBatchSize = uncompressedSize;
-            consecutiveShrinkTime = 0;
-        } else {
-            int shrank = maxBatchSize - (maxBatchSize >> 2);
-            if (uncompressedSize <= shrank) {
-                if (consecutiveShrinkTime <= SHRINK_COOLING_OFF_PERIOD) {
-                    consecutiveShrinkTime++;
-                } else {
-                    maxBatchSize = shrank;
-                    consecutiveShrinkTime = 0;
+    private ByteBuf buildBatchedMessageMetadataAndPayload() {
+        int n = messages.size();
+        if (n == 1) {
+            return messages.get(0).getDataBuffer().retainedSlice();
+        }
+        CompositeByteBuf batch = allocator.compositeBuffer(2 * n);
+        try {
+            int headerIndex = batchedMessageMetadataAndPayload.readerIndex();
+            for (int i = 0; i < n; i++) {
+                int headerSize = 4 + batchedMessageMetadataAndPayload.getInt(headerIndex);
+                batch.addComponent(true, batchedMessageMetadataAndPayload.retainedSlice(headerIndex, headerSize));
+                headerIndex += headerSize;
+                ByteBuf payload = messages.get(i).getDataBuffer();
+                if (payload.isReadable()) {
+                    batch.addComponent(true, payload.retainedSlice());
                 }
-            } else {
-                consecutiveShrinkTime = 0;
             }
+        } catch (Throwable th) {
+            batch.release();
+            throw new RuntimeException(th);
         }
+        return batch;
+    }
+
+    /**
+     * Gets the memory allocated by the batch, which doesn't include the payloads of the messages unless they have
+     * been copied by the compression or the encryption.
+     */
+    private int getBatchAllocatedSize(ByteBuf payload) {
+        int headersSize = batchedMessageMetadataAndPayload != null ? batchedMessageMetadataAndPayload.capacity() : 0;
+        return payload == messagesPayload ? headersSize : headersSize + payload.capacity();
     }
 
     @Override
@@ -227,7 +236,11 @@ class BatchMessageContainerImpl extends AbstractBatchMessageContainer {
         currentBatchSizeBytes = 0;
         lowestSequenceId = -1L;
         highestSequenceId = -1L;
-        batchedMessageMetadataAndPayload = null;
+        if (batchedMessageMetadataAndPayload != null) {
+            ReferenceCountUtil.safeRelease(batchedMessageMetadataAndPayload);
+            batchedMessageMetadataAndPayload = null;
+        }
+        messagesPayload = null;
         currentTxnidMostBits = -1L;
         currentTxnidLeastBits = -1L;
         batchAllocatedSizeBytes = 0;
@@ -245,10 +258,6 @@ class BatchMessageContainerImpl extends AbstractBatchMessageContainer {
             if (firstCallback != null) {
                 firstCallback.sendComplete(ex, null);
             }
-            if (batchedMessageMetadataAndPayload != null) {
-                ReferenceCountUtil.safeRelease(batchedMessageMetadataAndPayload);
-                batchedMessageMetadataAndPayload = null;
-            }
         } catch (Throwable t) {
             log.warn("[{}] [{}] Got exception while completing the callback for msg {}:", topicName,
                     producer.getProducerName(), lowestSequenceId, t);
@@ -268,7 +277,7 @@ class BatchMessageContainerImpl extends AbstractBatchMessageContainer {
             messageMetadata.copyFrom(messages.get(0).getMessageBuilder());
             ByteBuf encryptedPayload = producer.encryptMessage(messageMetadata,
                     getCompressedBatchMetadataAndPayload());
-            updateAndReserveBatchAllocatedSize(encryptedPayload.capacity());
+            updateAndReserveBatchAllocatedSize(getBatchAllocatedSize(encryptedPayload));
             ByteBufPair cmd = producer.sendMessage(producer.producerId, messageMetadata.getSequenceId(),
                 1, null, messageMetadata, encryptedPayload);
             final OpSendMsg op;
@@ -301,7 +310,7 @@ class BatchMessageContainerImpl extends AbstractBatchMessageContainer {
         }
         ByteBuf encryptedPayload = producer.encryptMessage(messageMetadata,
                 getCompressedBatchMetadataAndPayload());
-        updateAndReserveBatchAllocatedSize(encryptedPayload.capacity());
+        updateAndReserveBatchAllocatedSize(getBatchAllocatedSize(encryptedPayload));
         if (encryptedPayload.readableBytes() > getMaxMessageSize()) {
             encryptedPayload.release();
             producer.semaphoreRelease(messages.size());
@@ -343,10 +352,7 @@ class BatchMessageContainerImpl extends AbstractBatchMessageContainer {
 
     @Override
     public void resetPayloadAfterFailedPublishing() {
-        if (batchedMessageMetadataAndPayload != null) {
-            batchedMessageMetadataAndPayload.readerIndex(0);
-            batchedMessageMetadataAndPayload.writerIndex(0);
-        }
+        // The headers are only read at absolute indexes when building the batch, so it can be built again as is
     }
 
     protected void updateAndReserveBatchAllocatedSize(int updatedSizeBytes) {
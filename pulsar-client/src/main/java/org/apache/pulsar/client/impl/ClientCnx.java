@@ -81,6 +81,7 @@ import org.apache.pulsar.common.api.proto.CommandEndTxnOnPartitionResponse;
 import org.apache.pulsar.common.api.proto.CommandEndTxnOnSubscriptionResponse;
 import org.apache.pulsar.common.api.proto.CommandEndTxnResponse;
 import org.apache.pulsar.common.api.proto.CommandError;
+import org.apache.pulsar.common.api.proto.CommandGetCompressionDictionaryResponse;
 import org.apache.pulsar.common.api.proto.CommandGetLastMessageIdResponse;
 import org.apache.pulsar.common.api.proto.CommandGetOrCreateSchemaResponse;
 import org.apache.pulsar.common.api.proto.CommandGetSchemaResponse;
@@ -100,6 +101,7 @@ import org.apache.pulsar.common.api.proto.CommandTopicMigrated.ResourceType;
 import org.apache.pulsar.common.api.proto.CommandWatchTopicListSuccess;
 import org.apache.pulsar.common.api.proto.CommandWatchTopicUpdate;
 import org.apache.pulsar.common.api.proto.ServerError;
+import org.apache.pulsar.common.compression.CompressionDictionary;
 import org.apache.pulsar.common.lookup.GetTopicsResult;
 import org.apache.pulsar.common.protocol.Commands;
 import org.apache.pulsar.common.protocol.PulsarHandler;
@@ -197,6 +199,12 @@ public class ClientCnx extends PulsarHandler {
     private boolean supportsGetPartitionedMetadataWithoutAutoCreation;
     @Getter
     private boolean brokerSupportsReplDedupByLidAndEid;
+    @Getter
+    private boolean supportsCompressionDictionaries;
+    @Getter
+    private boolean supportsCompactAcks;
+    @Getter
+    private int maxCompactAckEntries = Commands.DEFAULT_MAX_COMPACT_ACK_ENTRIES;
 
     /** Idle stat. **/
     @Getter
@@ -237,6 +245,7 @@ public class ClientCnx extends PulsarHandler {
         GetTopics,
         GetSchema,
         GetOrCreateSchema,
+        GetCompressionDictionary,
         AckResponse,
         Lookup;
 
@@ -411,6 +420,13 @@ public class ClientCnx extends PulsarHandler {
                     && connected.getFeatureFlags().isSupportsGetPartitionedMetadataWithoutAutoCreation();
         brokerSupportsReplDedupByLidAndEid =
             connected.hasFeatureFlags() && connected.getFeatureFlags().isSupportsReplDedupByLidAndEid();
+        supportsCompressionDictionaries =
+            connected.hasFeatureFlags() && connected.getFeatureFlags().isSupportsCompressionDictionaries();
+        supportsCompactAcks =
+            connected.hasFeatureFlags() && connected.getFeatureFlags().isSupportsCompactAcks();
+        if (connected.hasMaxCompactAckEntries()) {
+            maxCompactAckEntries = connected.getMaxCompactAckEntries();
+        }
 
         // set remote protocol version to the correct version before we complete the connection future
         setRemoteEndpointProtocolVersion(connected.getProtocolVersion());
@@ -1021,6 +1037,20 @@ public class ClientCnx extends PulsarHandler {
         future.complete(new CommandGetOrCreateSchemaResponse().copyFrom(commandGetOrCreateSchemaResponse));
     }
 
+    @Override
+    protected void handleGetCompressionDictionaryResponse(CommandGetCompressionDictionaryResponse response) {
+        checkArgument(state == State.Ready);
+        long requestId = response.getRequestId();
+        CompletableFuture<CommandGetCompressionDictionaryResponse> future =
+                (CompletableFuture<CommandGetCompressionDictionaryResponse>) pendingRequests.remove(requestId);
+        if (future == null) {
+            duplicatedResponseCounter.incrementAndGet();
+            log.warn("{} Received unknown request id from server: {}", ctx.channel(), requestId);
+            return;
+        }
+        future.complete(new CommandGetCompressionDictionaryResponse().copyFrom(response));
+    }
+
     Promise<Void> newPromise() {
         return ctx.newPromise();
     }
@@ -1096,6 +1126,34 @@ public class ClientCnx extends PulsarHandler {
         return sendRequestAndHandleTimeout(request, requestId, RequestType.GetSchema, true);
     }
 
+    /**
+     * Get a version of the compression dictionary of a topic, or the latest version when none is given.
+     *
+     * @return the dictionary, or empty if the topic has no dictionary
+     */
+    public CompletableFuture<Optional<CompressionDictionary>> sendGetCompressionDictionary(String topic,
+            Optional<Long> version, long requestId) {
+        if (!supportsCompressionDictionaries) {
+            return FutureUtil.failedFuture(new PulsarClientException.FeatureNotSupportedException(
+                    "The broker does not support compression dictionaries",
+                    PulsarClientException.FailedFeatureCheck.SupportsCompressionDictionaries));
+        }
+        ByteBuf request = Commands.newGetCompressionDictionary(requestId, topic, version);
+        CompletableFuture<CommandGetCompressionDictionaryResponse> future = sendRequestAndHandleTimeout(request,
+                requestId, RequestType.GetCompressionDictionary, true);
+        return future.thenCompose(response -> {
+            if (response.hasErrorCode()) {
+                return FutureUtil.failedFuture(getPulsarClientException(response.getErrorCode(),
+                        buildError(requestId, response.getErrorMessage())));
+            } else if (!response.hasVersion()) {
+                return CompletableFuture.completedFuture(Optional.empty());
+            } else {
+                return CompletableFuture.completedFuture(Optional.of(
+                        new CompressionDictionary(response.getVersion(), response.getDictionary())));
+            }
+        });
+    }
+
     public CompletableFuture<byte[]> sendGetOrCreateSchema(ByteBuf request, long requestId) {
         CompletableFuture<CommandGetOrCreateSchemaResponse> future = sendRequestAndHandleTimeout(request, requestId,
                 RequestType.GetOrCreateSchema, true);
@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.client.impl;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.apache.pulsar.common.compression.CompressionDictionary;
+import org.apache.pulsar.common.naming.TopicName;
+
+/**
+ * The compression dictionaries loaded by the producers and consumers of a client, by topic and version.
+ *
+ * <p/>The partitions of a topic share the same dictionaries, and a version of a dictionary never changes, so the
+ * loaded versions are kept until they are not used anymore.
+ */
+class CompressionDictionaryCache {
+
+    private final PulsarClientImpl client;
+    private final Cache<String, CompletableFuture<CompressionDictionary>> dictionaries = CacheBuilder.newBuilder()
+            .maximumSize(1000)
+            .expireAfterAccess(30, TimeUnit.MINUTES)
+            .build();
+
+    CompressionDictionaryCache(PulsarClientImpl client) {
+        this.client = client;
+    }
+
+    /**
+     * Get a version of a dictionary, if it is already loaded.
+     *
+     * @return the dictionary, or null if it is not loaded yet
+     */
+    byte[] getIfLoaded(String topic, long version) {
+        CompletableFuture<CompressionDictionary> future = dictionaries.getIfPresent(key(topic, version));
+        return future != null && future.isDone() && !future.isCompletedExceptionally()
+                ? future.join().getData() : null;
+    }
+
+    /**
+     * Get a version of a dictionary, loading it from the broker of the connection if needed.
+     */
+    CompletableFuture<CompressionDictionary> get(String topic, long version, ClientCnx cnx) {
+        String key = key(topic, version);
+        CompletableFuture<CompressionDictionary> future = dictionaries.asMap().get(key);
+        if (future != null) {
+            return future;
+        }
+        CompletableFuture<CompressionDictionary> newFuture = new CompletableFuture<>();
+        future = dictionaries.asMap().putIfAbsent(key, newFuture);
+        if (future != null) {
+            return future;
+        }
+        cnx.sendGetCompressionDictionary(topic, Optional.of(version), client.newRequestId())
+                .whenComplete((dictionary, ex) -> {
+                    if (ex != null) {
+                        dictionaries.asMap().remove(key, newFuture);
+                        newFuture.completeExceptionally(ex);
+                    } else {
+                        // The broker returns an error when a given version is not found
+                        newFuture.complete(dictionary.get());
+                    }
+                });
+        return newFuture;
+    }
+
+    /**
+     * Get the latest version of a dictionary from the broker of the connection.
+     *
+     * @return the dictionary, or empty if the topic has no dictionary
+     */
+    CompletableFuture<Optional<CompressionDictionary>> getLatest(String topic, ClientCnx cnx) {
+        return cnx.sendGetCompressionDictionary(topic, Optional.empty(), client.newRequestId())
+                .thenApply(dictionary -> {
+                    dictionary.ifPresent(d -> dictionaries.asMap()
+                            .putIfAbsent(key(topic, d.getVersion()), CompletableFuture.completedFuture(d)));
+                    return dictionary;
+                });
+    }
+
+    private static String key(String topic, long version) {
+        return TopicName.get(topic).getPartitionedTopicName() + "@" + version;
+    }
+}
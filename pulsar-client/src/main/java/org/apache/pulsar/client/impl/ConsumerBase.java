@@ -942,6 +942,31 @@ public abstract class ConsumerBase<T> extends HandlerState implements Consumer<T
         return hasEnoughMessagesForBatchReceive();
     }
 
+    /**
+     * Enqueues messages under a single acquisition of the incoming queue lock.
+     */
+    protected boolean enqueueMessagesAndCheckBatchReceive(List<Message<T>> messages) {
+        long enqueuedSize = 0;
+        incomingQueueLock.lock();
+        try {
+            for (Message<T> message : messages) {
+                int messageSize = message.size();
+                if (canEnqueueMessage(message) && incomingMessages.offer(message)) {
+                    enqueuedSize += messageSize;
+                }
+            }
+            if (enqueuedSize > 0) {
+                long size = enqueuedSize;
+                INCOMING_MESSAGES_SIZE_UPDATER.addAndGet(this, size);
+                getMemoryLimitController().ifPresent(limiter -> limiter.forceReserveMemory(size));
+            }
+            updateAutoScaleReceiverQueueHint();
+        } finally {
+            incomingQueueLock.unlock();
+        }
+        return hasEnoughMessagesForBatchReceive();
+    }
+
     protected abstract void updateAutoScaleReceiverQueueHint();
 
     protected boolean hasEnoughMessagesForBatchReceive() {
@@ -1057,6 +1082,50 @@ public abstract class ConsumerBase<T> extends HandlerState implements Consumer<T
         completePendingBatchReceive(batchReceiveFuture, messages);
     }
 
+    /**
+     * Hands out the messages of a decoded batch to the next pending batch receive without going through the incoming
+     * queue, when the queue is empty and the messages alone are enough for a batch receive.
+     *
+     * @return the number of messages handed out, the following ones still have to be enqueued
+     */
+    protected int notifyPendingBatchReceivedCallBack(List<Message<T>> messages) {
+        if (!incomingMessages.isEmpty() || !isEnoughForBatchReceive(messages)) {
+            return 0;
+        }
+        OpBatchReceive<T> opBatchReceive = nextBatchReceive();
+        if (opBatchReceive == null) {
+            return 0;
+        }
+        MessagesImpl<T> batchMessages = getNewMessagesImpl();
+        int count = 0;
+        for (Message<T> message : messages) {
+            if (!batchMessages.canAdd(message)) {
+                break;
+            }
+            // increase incomingMessageSize here because the size would be decreased in messageProcessed()
+            increaseIncomingMessageSize(message);
+            messageProcessed(message);
+            batchMessages.add(beforeConsume(message));
+            count++;
+        }
+        completePendingBatchReceive(opBatchReceive.future, batchMessages);
+        return count;
+    }
+
+    private boolean isEnoughForBatchReceive(List<Message<T>> messages) {
+        if (batchReceivePolicy.getMaxNumMessages() > 0 && messages.size() >= batchReceivePolicy.getMaxNumMessages()) {
+            return true;
+        }
+        if (batchReceivePolicy.getMaxNumBytes() <= 0) {
+            return false;
+        }
+        long size = 0;
+        for (Message<T> message : messages) {
+            size += message.size();
+        }
+        return size >= batchReceivePolicy.getMaxNumBytes();
+    }
+
     protected void completePendingBatchReceive(CompletableFuture<Messages<T>> future, Messages<T> messages) {
         if (!future.complete(messages)) {
             log.warn("Race condition detected. batch receive future was already completed (cancelled={}) and messages"
@@ -28,6 +28,8 @@ import com.google.common.collect.ComparisonChain;
 import com.google.common.collect.Iterables;
 import com.scurrilous.circe.checksum.Crc32cIntChecksum;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.util.Recycler;
 import io.netty.util.Recycler.Handle;
@@ -39,6 +41,7 @@ import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
@@ -49,6 +52,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Queue;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
@@ -124,6 +128,7 @@ import org.apache.pulsar.common.api.proto.ProtocolVersion;
 import org.apache.pulsar.common.api.proto.SingleMessageMetadata;
 import org.apache.pulsar.common.compression.CompressionCodec;
 import org.apache.pulsar.common.compression.CompressionCodecProvider;
+import org.apache.pulsar.common.compression.CompressionDictionaryCodec;
 import org.apache.pulsar.common.naming.TopicName;
 import org.apache.pulsar.common.protocol.Commands;
 import org.apache.pulsar.common.schema.SchemaInfo;
@@ -239,6 +244,12 @@ public class ConsumerImpl<T> extends ConsumerBase<T> implements ConnectionHandle
     private final Counter consumerDlqMessagesCounter;
 
     private final AtomicReference<ClientCnx> clientCnxUsedForConsumerRegistration = new AtomicReference<>();
+
+    // The messages received while the compression dictionary of one of them is loaded, in the order they were
+    // received, only accessed from the event loop of the connection
+    private final Queue<PendingDictionaryMessage> pendingDictionaryMessages = new ArrayDeque<>();
+    private boolean replayingPendingDictionaryMessages = false;
+    private long waitingForDictionaryVersion = -1;
     private final AtomicInteger previousExceptionCount = new AtomicInteger();
     private volatile boolean hasSoughtByTimestamp = false;
     // This field will be set after the state becomes Failed, then the following operations will fail immediately
@@ -1291,6 +1302,30 @@ public class ConsumerImpl<T> extends ConsumerBase<T> implements ConnectionHandle
                                                   final BitSet ackSetInMessageId,
                                                   final int redeliveryCount,
                                                   final long consumerEpoch) {
+        return newSingleMessage(index, numMessages, brokerEntryMetadata, msgMetadata, singleMessageMetadata, payload,
+                messageId, schema, containMetadata, ackBitSet, ackSetInMessageId, redeliveryCount, consumerEpoch,
+                false);
+    }
+
+    /**
+     * With {@code sharedBatch}, the message references the batch metadata and payload instead of copying them, see
+     * {@link MessageImpl#create(String, BatchMessageIdImpl, MessageMetadata, SingleMessageMetadata, ByteBuf,
+     * Optional, ClientCnx, Schema, int, boolean, long, boolean)}.
+     */
+    private <V> MessageImpl<V> newSingleMessage(final int index,
+                                                final int numMessages,
+                                                final BrokerEntryMetadata brokerEntryMetadata,
+                                                final MessageMetadata msgMetadata,
+                                                final SingleMessageMetadata singleMessageMetadata,
+                                                final ByteBuf payload,
+                                                final MessageIdImpl messageId,
+                                                final Schema<V> schema,
+                                                final boolean containMetadata,
+                                                final BitSetRecyclable ackBitSet,
+                                                final BitSet ackSetInMessageId,
+                                                final int redeliveryCount,
+                                                final long consumerEpoch,
+                                                final boolean sharedBatch) {
         if (log.isDebugEnabled()) {
             log.debug("[{}] [{}] processing message num - {} in batch", subscription, consumerName, index);
         }
@@ -1327,8 +1362,8 @@ public class ConsumerImpl<T> extends ConsumerBase<T> implements ConnectionHandle
 
             final ByteBuf payloadBuffer = (singleMessagePayload != null) ? singleMessagePayload : payload;
             final MessageImpl<V> message = MessageImpl.create(topicName.toString(), batchMessageIdImpl,
-                    msgMetadata, singleMessageMetadata, payloadBuffer,
-                    createEncryptionContext(msgMetadata), cnx(), schema, redeliveryCount, poolMessages, consumerEpoch);
+                    msgMetadata, singleMessageMetadata, payloadBuffer, createEncryptionContext(msgMetadata), cnx(),
+                    schema, redeliveryCount, poolMessages, consumerEpoch, sharedBatch);
             message.setBrokerEntryMetadata(brokerEntryMetadata);
             return message;
         } catch (IOException | IllegalStateException e) {
@@ -1374,6 +1409,45 @@ public class ConsumerImpl<T> extends ConsumerBase<T> implements ConnectionHandle
         });
     }
 
+    /**
+     * Enqueues the messages of a batch at once, with a single task on the internal executor, and hands them out to
+     * the pending batch receives as soon as there are enough messages for them. When the incoming queue is empty and
+     * the batch alone is enough for the next pending batch receive, its messages are handed out without being queued.
+     */
+    private void executeNotifyCallback(final List<MessageImpl<T>> messages) {
+        long size = 0;
+        for (MessageImpl<T> message : messages) {
+            size += message.size();
+        }
+        messagesPrefetchedGauge.add(messages.size());
+        bytesPrefetchedGauge.add(size);
+
+        internalPinnedExecutor.execute(() -> {
+            List<Message<T>> interceptMsgs = new ArrayList<>(messages.size());
+            for (MessageImpl<T> message : messages) {
+                if (!isValidConsumerEpoch(message)) {
+                    increaseAvailablePermits(cnx());
+                    continue;
+                }
+                Message<T> interceptMsg = onArrival(message);
+                if (interceptMsgs.isEmpty() && hasNextPendingReceive()) {
+                    notifyPendingReceivedCallback(interceptMsg, null);
+                } else {
+                    interceptMsgs.add(interceptMsg);
+                }
+            }
+            if (!interceptMsgs.isEmpty() && hasPendingBatchReceive()) {
+                int handedOut = notifyPendingBatchReceivedCallBack(interceptMsgs);
+                interceptMsgs = interceptMsgs.subList(handedOut, interceptMsgs.size());
+            }
+            if (!interceptMsgs.isEmpty() && enqueueMessagesAndCheckBatchReceive(interceptMsgs)) {
+                while (hasPendingBatchReceive() && hasEnoughMessagesForBatchReceive()) {
+                    notifyPendingBatchReceivedCallBack();
+                }
+            }
+        });
+    }
+
     private void processPayloadByProcessor(final BrokerEntryMetadata brokerEntryMetadata,
                                            final MessageMetadata messageMetadata,
                                            final ByteBuf byteBuf,
@@ -1429,6 +1503,7 @@ public class ConsumerImpl<T> extends ConsumerBase<T> implements ConnectionHandle
                     messageId.getEntryId());
         }
 
+        final int headersAndPayloadIndex = headersAndPayload.readerIndex();
         if (!verifyChecksum(headersAndPayload, messageId)) {
             // discard message with checksum error
             discardCorruptedMessage(messageId, cnx, ValidationError.ChecksumMismatch);
@@ -1445,6 +1520,19 @@ public class ConsumerImpl<T> extends ConsumerBase<T> implements ConnectionHandle
             return;
         }
 
+        if (!replayingPendingDictionaryMessages && (!pendingDictionaryMessages.isEmpty()
+                || msgMetadata.hasCompressionDictionaryVersion() && client.getCompressionDictionaryCache()
+                        .getIfLoaded(topic, msgMetadata.getCompressionDictionaryVersion()) == null)) {
+            // The messages are processed once the dictionary is loaded, in the order they were received
+            long dictionaryVersion = msgMetadata.hasCompressionDictionaryVersion()
+                    ? msgMetadata.getCompressionDictionaryVersion() : -1;
+            pendingDictionaryMessages.add(new PendingDictionaryMessage(new CommandMessage().copyFrom(cmdMessage),
+                    headersAndPayload.retainedSlice(headersAndPayloadIndex,
+                            headersAndPayload.writerIndex() - headersAndPayloadIndex), cnx, dictionaryVersion));
+            drainPendingDictionaryMessages();
+            return;
+        }
+
         final int numMessages = msgMetadata.getNumMessagesInBatch();
         final int numChunks = msgMetadata.hasNumChunksFromMsg() ? msgMetadata.getNumChunksFromMsg() : 0;
         final boolean isChunkedMessage = numChunks > 1;
@@ -1770,12 +1858,18 @@ public class ConsumerImpl<T> extends ConsumerBase<T> implements ConnectionHandle
         }
 
         SingleMessageMetadata singleMessageMetadata = new SingleMessageMetadata();
+        // The messages of the batch share a copy of its metadata and, unless they are pooled, a heap copy of its
+        // payload, instead of each message copying them
+        MessageMetadata batchMetadata = new MessageMetadata().copyFrom(msgMetadata);
+        ByteBuf batchPayload = poolMessages ? uncompressedPayload
+                : Unpooled.wrappedBuffer(ByteBufUtil.getBytes(uncompressedPayload));
+        List<MessageImpl<T>> messages = new ArrayList<>(batchSize);
         int skippedMessages = 0;
         try {
             for (int i = 0; i < batchSize; ++i) {
-                final MessageImpl<T> message = newSingleMessage(i, batchSize, brokerEntryMetadata, msgMetadata,
-                        singleMessageMetadata, uncompressedPayload, batchMessage, schema, true,
-                        ackBitSet, ackSetInMessageId, redeliveryCount, consumerEpoch);
+                final MessageImpl<T> message = newSingleMessage(i, batchSize, brokerEntryMetadata, batchMetadata,
+                        singleMessageMetadata, batchPayload, batchMessage, schema, true,
+                        ackBitSet, ackSetInMessageId, redeliveryCount, consumerEpoch, true);
                 if (message == null) {
                     // If it is not in ackBitSet, it means Broker does not want to deliver it to the client, and
                     // did not decrease the permits in the broker-side.
@@ -1799,7 +1893,7 @@ public class ConsumerImpl<T> extends ConsumerBase<T> implements ConnectionHandle
                     skippedMessages++;
                     continue;
                 }
-                executeNotifyCallback(message);
+                messages.add(message);
             }
             if (ackBitSet != null) {
                 ackBitSet.recycle();
@@ -1808,6 +1902,9 @@ public class ConsumerImpl<T> extends ConsumerBase<T> implements ConnectionHandle
             log.warn("[{}] [{}] unable to obtain message in batch", subscription, consumerName, e);
             discardCorruptedMessage(messageId, cnx, ValidationError.BatchDeSerializeError);
         }
+        if (!messages.isEmpty()) {
+            executeNotifyCallback(messages);
+        }
 
         if (deadLetterPolicy != null && possibleSendToDeadLetterTopicMessages != null) {
             if (redeliveryCount >= deadLetterPolicy.getMaxRedeliverCount()) {
@@ -2076,6 +2173,87 @@ public class ConsumerImpl<T> extends ConsumerBase<T> implements ConnectionHandle
         }
     }
 
+    /**
+     * Process the pending messages until one of them needs a compression dictionary which is not loaded yet.
+     */
+    private void drainPendingDictionaryMessages() {
+        PendingDictionaryMessage pending;
+        while ((pending = pendingDictionaryMessages.peek()) != null) {
+            if (pending.cnx != cnx() || getState() != State.Ready) {
+                // The broker redelivers the messages of a previous connection
+                pendingDictionaryMessages.poll();
+                pending.headersAndPayload.release();
+                continue;
+            }
+            if (pending.dictionaryVersion >= 0
+                    && client.getCompressionDictionaryCache().getIfLoaded(topic, pending.dictionaryVersion) == null) {
+                loadCompressionDictionary(pending.dictionaryVersion, pending.cnx);
+                return;
+            }
+            pendingDictionaryMessages.poll();
+            replayingPendingDictionaryMessages = true;
+            try {
+                messageReceived(pending.cmdMessage, pending.headersAndPayload, pending.cnx);
+            } finally {
+                replayingPendingDictionaryMessages = false;
+                pending.headersAndPayload.release();
+            }
+        }
+    }
+
+    private void loadCompressionDictionary(long version, ClientCnx cnx) {
+        if (waitingForDictionaryVersion == version) {
+            return;
+        }
+        waitingForDictionaryVersion = version;
+        client.getCompressionDictionaryCache().get(topic, version, cnx).whenComplete((__, ex) ->
+                cnx.ctx().executor().execute(() -> {
+                    waitingForDictionaryVersion = -1;
+                    if (ex == null) {
+                        drainPendingDictionaryMessages();
+                        return;
+                    }
+                    Throwable cause = FutureUtil.unwrapCompletionException(ex);
+                    if (!(cause instanceof PulsarClientException.TopicDoesNotExistException)
+                            && !(cause instanceof PulsarClientException.FeatureNotSupportedException)) {
+                        log.warn("[{}][{}] Failed to load the compression dictionary {}, retrying: {}", topic,
+                                subscription, version, cause.getMessage());
+                        client.timer().newTimeout(timeout -> cnx.ctx().executor()
+                                .execute(this::drainPendingDictionaryMessages), 1, TimeUnit.SECONDS);
+                        return;
+                    }
+                    // The messages compressed with a missing dictionary can never be read
+                    log.error("[{}][{}] The compression dictionary {} is not available: {}", topic, subscription,
+                            version, cause.getMessage());
+                    PendingDictionaryMessage pending;
+                    while ((pending = pendingDictionaryMessages.peek()) != null
+                            && pending.dictionaryVersion == version) {
+                        pendingDictionaryMessages.poll();
+                        if (pending.cnx == cnx()) {
+                            discardCorruptedMessage(pending.cmdMessage.getMessageId(), pending.cnx,
+                                    ValidationError.DecompressionError);
+                        }
+                        pending.headersAndPayload.release();
+                    }
+                    drainPendingDictionaryMessages();
+                }));
+    }
+
+    private static class PendingDictionaryMessage {
+        private final CommandMessage cmdMessage;
+        private final ByteBuf headersAndPayload;
+        private final ClientCnx cnx;
+        private final long dictionaryVersion;
+
+        PendingDictionaryMessage(CommandMessage cmdMessage, ByteBuf headersAndPayload, ClientCnx cnx,
+                                 long dictionaryVersion) {
+            this.cmdMessage = cmdMessage;
+            this.headersAndPayload = headersAndPayload;
+            this.cnx = cnx;
+            this.dictionaryVersion = dictionaryVersion;
+        }
+    }
+
     private ByteBuf uncompressPayloadIfNeeded(MessageIdData messageId, MessageMetadata msgMetadata, ByteBuf payload,
             ClientCnx currentCnx, boolean checkMaxMessageSize) {
         CompressionType compressionType = msgMetadata.getCompression();
@@ -2090,7 +2268,12 @@ public class ConsumerImpl<T> extends ConsumerBase<T> implements ConnectionHandle
             return null;
         }
         try {
-            ByteBuf uncompressedPayload = codec.decode(payload, uncompressedSize);
+            byte[] dictionary = msgMetadata.hasCompressionDictionaryVersion()
+                    ? client.getCompressionDictionaryCache().getIfLoaded(topic,
+                            msgMetadata.getCompressionDictionaryVersion())
+                    : null;
+            ByteBuf uncompressedPayload =
+                    CompressionDictionaryCodec.decode(codec, payload, uncompressedSize, dictionary);
             return uncompressedPayload;
         } catch (IOException e) {
             log.error("[{}][{}] Failed to decompress message with {} at {}: {}", topic, subscription, compressionType,
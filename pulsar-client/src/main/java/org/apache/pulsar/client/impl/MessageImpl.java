@@ -62,7 +62,12 @@ import org.apache.pulsar.common.schema.SchemaType;
 public class MessageImpl<T> implements Message<T> {
 
     protected MessageId messageId;
-    private final MessageMetadata msgMetadata;
+    // Replaced by the merged metadata when the metadata of a message of a batch is materialized, while the getters
+    // read it without synchronization
+    private volatile MessageMetadata msgMetadata;
+    // Metadata of the batch shared by its messages, which only keep their own fields in msgMetadata, until the
+    // whole metadata of the message is needed
+    private volatile MessageMetadata batchMetadata;
     private ClientCnx cnx;
     private ByteBuf payload;
 
@@ -146,25 +151,47 @@ public class MessageImpl<T> implements Message<T> {
             SingleMessageMetadata singleMessageMetadata, ByteBuf payload, Optional<EncryptionContext> encryptionCtx,
             ClientCnx cnx, Schema<T> schema, int redeliveryCount,
                 boolean keepMessageInDirectMemory, long consumerEpoch) {
+        this(topic, batchMessageIdImpl, batchMetadata, singleMessageMetadata, payload, encryptionCtx, cnx, schema,
+                redeliveryCount, keepMessageInDirectMemory, consumerEpoch, false);
+    }
+
+    private MessageImpl(String topic, BatchMessageIdImpl batchMessageIdImpl, MessageMetadata batchMetadata,
+            SingleMessageMetadata singleMessageMetadata, ByteBuf payload, Optional<EncryptionContext> encryptionCtx,
+            ClientCnx cnx, Schema<T> schema, int redeliveryCount, boolean keepMessageInDirectMemory,
+            long consumerEpoch, boolean sharedBatch) {
         this.msgMetadata = new MessageMetadata();
         init(this, topic, batchMessageIdImpl, batchMetadata, singleMessageMetadata, payload, encryptionCtx,
-                cnx, schema, redeliveryCount, keepMessageInDirectMemory, consumerEpoch);
-
+                cnx, schema, redeliveryCount, keepMessageInDirectMemory, consumerEpoch, sharedBatch);
     }
 
     public static <T> MessageImpl<T> create(String topic, BatchMessageIdImpl batchMessageIdImpl,
             MessageMetadata batchMetadata, SingleMessageMetadata singleMessageMetadata, ByteBuf payload,
             Optional<EncryptionContext> encryptionCtx, ClientCnx cnx, Schema<T> schema, int redeliveryCount,
             boolean pooledMessage, long consumerEpoch) {
+        return create(topic, batchMessageIdImpl, batchMetadata, singleMessageMetadata, payload, encryptionCtx, cnx,
+                schema, redeliveryCount, pooledMessage, consumerEpoch, false);
+    }
+
+    /**
+     * Creates a message of a batch.
+     *
+     * <p/>With {@code sharedBatch}, the message keeps a reference to the batch metadata and, if it is not pooled, a
+     * view of the batch payload, instead of copying them, so the batch metadata must not be modified after, and the
+     * payload of a message that is not pooled must be a heap buffer that is never released.
+     */
+    static <T> MessageImpl<T> create(String topic, BatchMessageIdImpl batchMessageIdImpl,
+            MessageMetadata batchMetadata, SingleMessageMetadata singleMessageMetadata, ByteBuf payload,
+            Optional<EncryptionContext> encryptionCtx, ClientCnx cnx, Schema<T> schema, int redeliveryCount,
+            boolean pooledMessage, long consumerEpoch, boolean sharedBatch) {
         if (pooledMessage) {
             @SuppressWarnings("unchecked")
             MessageImpl<T> msg = (MessageImpl<T>) RECYCLER.get();
             init(msg, topic, batchMessageIdImpl, batchMetadata, singleMessageMetadata, payload, encryptionCtx, cnx,
-                    schema, redeliveryCount, pooledMessage, consumerEpoch);
+                    schema, redeliveryCount, pooledMessage, consumerEpoch, sharedBatch);
             return msg;
         } else {
             return new MessageImpl<>(topic, batchMessageIdImpl, batchMetadata, singleMessageMetadata, payload,
-                    encryptionCtx, cnx, schema, redeliveryCount, pooledMessage, consumerEpoch);
+                    encryptionCtx, cnx, schema, redeliveryCount, pooledMessage, consumerEpoch, sharedBatch);
         }
     }
 
@@ -172,16 +199,22 @@ public class MessageImpl<T> implements Message<T> {
             ByteBuf payload, Optional<EncryptionContext> encryptionCtx, ClientCnx cnx, Schema<T> schema,
             int redeliveryCount, boolean poolMessage, long consumerEpoch) {
         init(msg, topic, null /* batchMessageIdImpl */, msgMetadata, null /* singleMessageMetadata */, payload,
-                encryptionCtx, cnx, schema, redeliveryCount, poolMessage, consumerEpoch);
+                encryptionCtx, cnx, schema, redeliveryCount, poolMessage, consumerEpoch, false);
         msg.messageId = messageId;
     }
 
     private static <T> void init(MessageImpl<T> msg, String topic, BatchMessageIdImpl batchMessageIdImpl,
             MessageMetadata msgMetadata, SingleMessageMetadata singleMessageMetadata, ByteBuf payload,
             Optional<EncryptionContext> encryptionCtx, ClientCnx cnx, Schema<T> schema, int redeliveryCount,
-            boolean poolMessage, long consumerEpoch) {
+            boolean poolMessage, long consumerEpoch, boolean sharedBatch) {
         msg.msgMetadata.clear();
-        msg.msgMetadata.copyFrom(msgMetadata);
+        if (sharedBatch) {
+            copyMessageFields(msgMetadata, msg.msgMetadata);
+            msg.batchMetadata = msgMetadata;
+        } else {
+            msg.msgMetadata.copyFrom(msgMetadata);
+            msg.batchMetadata = null;
+        }
         msg.messageId = batchMessageIdImpl;
         msg.topic = topic;
         msg.cnx = cnx;
@@ -195,7 +228,15 @@ public class MessageImpl<T> implements Message<T> {
         // using a ref-count buffer that we don't know when could release, since the
         // Message is passed to the user. Also, the passed ByteBuf is coming from network
         // and is backed by a direct buffer which we could not expose as a byte[]
-        msg.payload = poolMessage ? payload.retain() : Unpooled.copiedBuffer(payload);
+        if (poolMessage) {
+            msg.payload = payload.retain();
+        } else if (sharedBatch) {
+            // The heap copy of the batch is only referenced by the views of its messages
+            msg.payload = Unpooled.wrappedBuffer(payload.array(), payload.arrayOffset() + payload.readerIndex(),
+                    payload.readableBytes());
+        } else {
+            msg.payload = Unpooled.copiedBuffer(payload);
+        }
 
         if (singleMessageMetadata != null) {
             if (singleMessageMetadata.getPropertiesCount() > 0) {
@@ -315,18 +356,18 @@ public class MessageImpl<T> implements Message<T> {
     }
 
     public void setReplicatedFrom(String cluster) {
-        msgMetadata.setReplicatedFrom(cluster);
+        getMessageBuilder().setReplicatedFrom(cluster);
     }
 
     @Override
     public boolean isReplicated() {
-        return msgMetadata.hasReplicatedFrom();
+        return commonMetadata().hasReplicatedFrom();
     }
 
     @Override
     public String getReplicatedFrom() {
         if (isReplicated()) {
-            return msgMetadata.getReplicatedFrom();
+            return commonMetadata().getReplicatedFrom();
         } else {
             return null;
         }
@@ -334,7 +375,7 @@ public class MessageImpl<T> implements Message<T> {
 
     @Override
     public long getPublishTime() {
-        return msgMetadata.getPublishTime();
+        return commonMetadata().getPublishTime();
     }
 
     @Override
@@ -346,8 +387,9 @@ public class MessageImpl<T> implements Message<T> {
     }
 
     public long getDeliverAtTime() {
-        if (msgMetadata.hasDeliverAtTime()) {
-            return msgMetadata.getDeliverAtTime();
+        MessageMetadata metadata = commonMetadata();
+        if (metadata.hasDeliverAtTime()) {
+            return metadata.getDeliverAtTime();
         }
         return 0;
     }
@@ -374,7 +416,11 @@ public class MessageImpl<T> implements Message<T> {
         } else {
             // Need to copy into a smaller byte array
             byte[] data = new byte[payload.readableBytes()];
-            payload.readBytes(data);
+            payload.getBytes(payload.readerIndex(), data);
+            if (!poolMessage) {
+                // Keep the copy, the payload of a batch message is a view of the whole batch
+                payload = Unpooled.wrappedBuffer(data);
+            }
             return data;
         }
     }
@@ -416,8 +462,9 @@ public class MessageImpl<T> implements Message<T> {
     // rather than null.
     @Override
     public byte[] getSchemaVersion() {
-        if (msgMetadata.hasSchemaVersion()) {
-            byte[] schemaVersion = msgMetadata.getSchemaVersion();
+        MessageMetadata metadata = commonMetadata();
+        if (metadata.hasSchemaVersion()) {
+            byte[] schemaVersion = metadata.getSchemaVersion();
             return (schemaVersion.length == 0) ? null : schemaVersion;
         } else {
             return null;
@@ -449,7 +496,7 @@ public class MessageImpl<T> implements Message<T> {
     }
 
     public void setSchemaInfoForReplicator(SchemaInfo schemaInfo) {
-        if (msgMetadata.hasReplicatedFrom()) {
+        if (commonMetadata().hasReplicatedFrom()) {
             this.schemaInfoForReplicator = schemaInfo;
             this.schemaHash = SchemaHash.of(schemaInfo);
         } else {
@@ -458,7 +505,7 @@ public class MessageImpl<T> implements Message<T> {
     }
 
     public SchemaInfo getSchemaInfoForReplicator() {
-        return msgMetadata.hasReplicatedFrom() ? this.schemaInfoForReplicator : null;
+        return commonMetadata().hasReplicatedFrom() ? this.schemaInfoForReplicator : null;
     }
 
     @Override
@@ -564,8 +611,9 @@ public class MessageImpl<T> implements Message<T> {
 
     @Override
     public String getProducerName() {
-        if (msgMetadata.hasProducerName()) {
-            return msgMetadata.getProducerName();
+        MessageMetadata metadata = commonMetadata();
+        if (metadata.hasProducerName()) {
+            return metadata.getProducerName();
         }
         return null;
     }
@@ -605,9 +653,73 @@ public class MessageImpl<T> implements Message<T> {
     }
 
     public MessageMetadata getMessageBuilder() {
+        if (batchMetadata != null) {
+            materializeMetadata();
+        }
         return msgMetadata;
     }
 
+    /**
+     * Returns the metadata to read the fields that are the same for all the messages of a batch from, the fields
+     * that are specific to each message being always read from {@link #msgMetadata}.
+     */
+    private MessageMetadata commonMetadata() {
+        MessageMetadata metadata = batchMetadata;
+        return metadata != null ? metadata : msgMetadata;
+    }
+
+    private synchronized void materializeMetadata() {
+        MessageMetadata metadata = batchMetadata;
+        if (metadata == null) {
+            return;
+        }
+        MessageMetadata materialized = new MessageMetadata().copyFrom(metadata);
+        copyMessageFields(msgMetadata, materialized);
+        msgMetadata = materialized;
+        batchMetadata = null;
+    }
+
+    /**
+     * Copies the fields that the metadata of a single message of a batch may override.
+     */
+    private static void copyMessageFields(MessageMetadata from, MessageMetadata to) {
+        if (from.hasPartitionKey()) {
+            to.setPartitionKey(from.getPartitionKey());
+        } else {
+            to.clearPartitionKey();
+        }
+        if (from.hasPartitionKeyB64Encoded()) {
+            to.setPartitionKeyB64Encoded(from.isPartitionKeyB64Encoded());
+        } else {
+            to.clearPartitionKeyB64Encoded();
+        }
+        if (from.hasOrderingKey()) {
+            to.setOrderingKey(from.getOrderingKey());
+        } else {
+            to.clearOrderingKey();
+        }
+        if (from.hasEventTime()) {
+            to.setEventTime(from.getEventTime());
+        } else {
+            to.clearEventTime();
+        }
+        if (from.hasSequenceId()) {
+            to.setSequenceId(from.getSequenceId());
+        } else {
+            to.clearSequenceId();
+        }
+        if (from.hasNullValue()) {
+            to.setNullValue(from.isNullValue());
+        } else {
+            to.clearNullValue();
+        }
+        if (from.hasNullPartitionKey()) {
+            to.setNullPartitionKey(from.isNullPartitionKey());
+        } else {
+            to.clearNullPartitionKey();
+        }
+    }
+
     @Override
     public boolean hasKey() {
         return msgMetadata.hasPartitionKey();
@@ -673,6 +785,7 @@ public class MessageImpl<T> implements Message<T> {
         if (msgMetadata != null) {
             msgMetadata.clear();
         }
+        batchMetadata = null;
         if (brokerEntryMetadata != null) {
             brokerEntryMetadata.clear();
         }
@@ -724,7 +837,7 @@ public class MessageImpl<T> implements Message<T> {
     public Optional<Long> getIndex() {
         if (brokerEntryMetadata != null && brokerEntryMetadata.hasIndex()) {
             MessageIdAdv messageIdAdv = (MessageIdAdv) messageId;
-            if (msgMetadata.hasNumMessagesInBatch() && MessageIdAdvUtils.isBatch(messageIdAdv)) {
+            if (commonMetadata().hasNumMessagesInBatch() && MessageIdAdvUtils.isBatch(messageIdAdv)) {
                 int batchSize = messageIdAdv.getBatchSize();
                 int batchIndex = messageIdAdv.getBatchIndex();
                 return Optional.of(brokerEntryMetadata.getIndex() - batchSize + batchIndex + 1);
@@ -752,15 +865,15 @@ public class MessageImpl<T> implements Message<T> {
     };
 
     public boolean hasReplicateTo() {
-        return msgMetadata.getReplicateTosCount() > 0;
+        return commonMetadata().getReplicateTosCount() > 0;
     }
 
     public List<String> getReplicateTo() {
-        return msgMetadata.getReplicateTosList();
+        return commonMetadata().getReplicateTosList();
     }
 
     public boolean hasReplicateFrom() {
-        return msgMetadata.hasReplicatedFrom();
+        return commonMetadata().hasReplicatedFrom();
     }
 
     public void setMessageId(MessageId messageId) {
@@ -782,7 +895,7 @@ public class MessageImpl<T> implements Message<T> {
     }
 
     CompressionType getCompressionType() {
-        return CompressionType.valueOf(msgMetadata.getCompression().name());
+        return CompressionType.valueOf(commonMetadata().getCompression().name());
     }
 
     SchemaState getSchemaState() {
@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.client.impl;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Permits bounding the number of pending messages of a producer.
+ *
+ * <p/>The permits are acquired with a CAS on an atomic counter, instead of the queue of waiting threads of a fair
+ * {@link Semaphore}, so the threads sending on the same producer don't contend on the permits as long as some are
+ * available. The threads only wait on a condition when all the permits are in use, as in
+ * {@link MemoryLimitController}.
+ */
+public class PendingMessagesPermits {
+
+    private final AtomicInteger availablePermits;
+    private final AtomicInteger waitingThreads = new AtomicInteger();
+    private final ReentrantLock mutex = new ReentrantLock(false);
+    private final Condition condition = mutex.newCondition();
+
+    public PendingMessagesPermits(int permits) {
+        this.availablePermits = new AtomicInteger(permits);
+    }
+
+    public boolean tryAcquire() {
+        return tryAcquire(1);
+    }
+
+    public boolean tryAcquire(int permits) {
+        checkPermits(permits);
+        while (true) {
+            int available = availablePermits.get();
+            if (available < permits) {
+                return false;
+            }
+            if (availablePermits.compareAndSet(available, available - permits)) {
+                return true;
+            }
+        }
+    }
+
+    public void acquire() throws InterruptedException {
+        acquire(1);
+    }
+
+    public void acquire(int permits) throws InterruptedException {
+        if (!tryAcquire(permits)) {
+            mutex.lockInterruptibly();
+            waitingThreads.incrementAndGet();
+            try {
+                while (!tryAcquire(permits)) {
+                    condition.await();
+                }
+            } finally {
+                waitingThreads.decrementAndGet();
+                mutex.unlock();
+            }
+        }
+    }
+
+    public boolean tryAcquire(long timeout, TimeUnit unit) throws InterruptedException {
+        return tryAcquire(1, timeout, unit);
+    }
+
+    public boolean tryAcquire(int permits, long timeout, TimeUnit unit) throws InterruptedException {
+        if (tryAcquire(permits)) {
+            return true;
+        }
+        long remainingNanos = unit.toNanos(timeout);
+        mutex.lockInterruptibly();
+        waitingThreads.incrementAndGet();
+        try {
+            while (!tryAcquire(permits)) {
+                if (remainingNanos <= 0) {
+                    return false;
+                }
+                remainingNanos = condition.awaitNanos(remainingNanos);
+            }
+            return true;
+        } finally {
+            waitingThreads.decrementAndGet();
+            mutex.unlock();
+        }
+    }
+
+    public void release() {
+        release(1);
+    }
+
+    public void release(int permits) {
+        checkPermits(permits);
+        if (permits == 0) {
+            return;
+        }
+        availablePermits.addAndGet(permits);
+        // A thread waits after registering itself and checking the permits within the mutex, so it either sees
+        // these permits or is signaled
+        if (waitingThreads.get() > 0) {
+            mutex.lock();
+            try {
+                condition.signalAll();
+            } finally {
+                mutex.unlock();
+            }
+        }
+    }
+
+    public int availablePermits() {
+        return availablePermits.get();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[Permits = " + availablePermits.get() + "]";
+    }
+
+    private static void checkPermits(int permits) {
+        if (permits < 0) {
+            throw new IllegalArgumentException("Invalid number of permits " + permits);
+        }
+    }
+}
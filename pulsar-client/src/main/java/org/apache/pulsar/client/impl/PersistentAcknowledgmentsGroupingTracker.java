@@ -497,10 +497,27 @@ public class PersistentAcknowledgmentsGroupingTracker implements Acknowledgments
         }
 
         if (entriesToAck.size() > 0) {
-
-            newMessageAckCommandAndWrite(cnx, consumer.consumerId, 0L, 0L,
-                    null, AckType.Individual, null, true,
-                    (TimedCompletableFuture<Void>) currentIndividualAckFuture, entriesToAck);
+            // The broker rejects an ack of more entries in compact ranges than it advertises, so a larger group of
+            // acks is sent in several commands, the ack receipt being the one of the last command
+            int maxEntriesPerAck = cnx.isSupportsCompactAcks()
+                    ? Math.max(cnx.getMaxCompactAckEntries(), 1) : entriesToAck.size();
+            TimedCompletableFuture<Void> individualAckFuture =
+                    (TimedCompletableFuture<Void>) currentIndividualAckFuture;
+            for (int from = 0; from < entriesToAck.size(); from += maxEntriesPerAck) {
+                int to = Math.min(from + maxEntriesPerAck, entriesToAck.size());
+                if (to < entriesToAck.size()) {
+                    newMessageAckCommandAndWrite(cnx, consumer.consumerId, 0L, 0L,
+                            null, AckType.Individual, null, false, null, entriesToAck.subList(from, to))
+                            .exceptionally(e -> {
+                                individualAckFuture.completeExceptionally(e);
+                                return null;
+                            });
+                } else {
+                    newMessageAckCommandAndWrite(cnx, consumer.consumerId, 0L, 0L,
+                            null, AckType.Individual, null, true,
+                            individualAckFuture, entriesToAck.subList(from, to));
+                }
+            }
             shouldFlush = true;
         }
 
@@ -575,7 +592,7 @@ public class PersistentAcknowledgmentsGroupingTracker implements Acknowledgments
                 cmd = Commands.newAck(consumerId, ledgerId, entryId, ackSet,
                         ackType, null, properties, requestId);
             } else {
-                cmd = Commands.newMultiMessageAck(consumerId, entriesToAck, requestId);
+                cmd = Commands.newMultiMessageAck(consumerId, entriesToAck, requestId, cnx.isSupportsCompactAcks());
             }
             if (timedCompletableFuture == null) {
                 return cnx.newAckForReceipt(cmd, requestId);
@@ -606,7 +623,7 @@ public class PersistentAcknowledgmentsGroupingTracker implements Acknowledgments
                 cmd = Commands.newAck(consumerId, ledgerId, entryId, ackSet,
                         ackType, null, properties, -1);
             } else {
-                cmd = Commands.newMultiMessageAck(consumerId, entriesToAck, -1);
+                cmd = Commands.newMultiMessageAck(consumerId, entriesToAck, -1, cnx.isSupportsCompactAcks());
             }
             if (flush) {
                 cnx.ctx().writeAndFlush(cmd, cnx.ctx().voidPromise());
@@ -180,6 +180,12 @@ public class ProducerBuilderImpl<T> implements ProducerBuilder<T> {
         return this;
     }
 
+    @Override
+    public ProducerBuilder<T> enableCompressionDictionary(boolean enableCompressionDictionary) {
+        conf.setCompressionDictionaryEnabled(enableCompressionDictionary);
+        return this;
+    }
+
     @Override
     public ProducerBuilder<T> hashingScheme(@NonNull HashingScheme hashingScheme) {
         conf.setHashingScheme(hashingScheme);
@@ -198,6 +204,12 @@ public class ProducerBuilderImpl<T> implements ProducerBuilder<T> {
         return this;
     }
 
+    @Override
+    public ProducerBuilder<T> enableAdaptiveBatching(boolean enableAdaptiveBatching) {
+        conf.setAdaptiveBatchingEnabled(enableAdaptiveBatching);
+        return this;
+    }
+
     @Override
     public ProducerBuilder<T> enableChunking(boolean chunkingEnabled) {
         conf.setChunkingEnabled(chunkingEnabled);
@@ -58,7 +58,9 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Queue;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Semaphore;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
@@ -95,6 +97,8 @@ import org.apache.pulsar.common.api.proto.MessageMetadata;
 import org.apache.pulsar.common.api.proto.ProtocolVersion;
 import org.apache.pulsar.common.compression.CompressionCodec;
 import org.apache.pulsar.common.compression.CompressionCodecProvider;
+import org.apache.pulsar.common.compression.CompressionDictionary;
+import org.apache.pulsar.common.compression.CompressionDictionaryCodec;
 import org.apache.pulsar.common.naming.TopicName;
 import org.apache.pulsar.common.protocol.ByteBufPair;
 import org.apache.pulsar.common.protocol.Commands;
@@ -119,7 +123,21 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
     private volatile long msgIdGenerator;
 
     protected final OpSendMsgQueue pendingMessages;
-    private final Optional<Semaphore> semaphore;
+    private final Optional<PendingMessagesPermits> pendingMessagesPermits;
+
+    // The messages handed over by the sending threads, to be added to the batch or to the pending messages by the
+    // thread draining them within the producer mutex, so that the sending threads don't contend on the mutex
+    private final Queue<PendingSend> pendingSends = new ConcurrentLinkedQueue<>();
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<ProducerImpl> PENDING_SENDS_WIP_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(ProducerImpl.class, "pendingSendsWip");
+    @SuppressWarnings("unused")
+    private volatile int pendingSendsWip = 0;
+    // Only update from within synchronized block on this producer.
+    private boolean drainingPendingSends;
+    // The messages handed over that a thread adds in one pass, before handing the remaining ones to the executor
+    private final int maxPendingSendsPerDrain;
+    private final ExecutorService internalPinnedExecutor;
     private volatile Timeout sendTimeout = null;
     private final long lookupDeadline;
     private int chunkMaxMessageSize;
@@ -131,6 +149,8 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
     private volatile long producerDeadline = 0; // gets set on first successful connection
 
     private final BatchMessageContainerBase batchMessageContainer;
+    // Only used when the adaptive batching is enabled, and only updated from within synchronized block on this producer
+    private final AdaptiveBatchFlushPolicy adaptiveBatchFlushPolicy;
     private CompletableFuture<MessageId> lastSendFuture = CompletableFuture.completedFuture(null);
     private LastSendFutureWrapper lastSendFutureWrapper = LastSendFutureWrapper.create(lastSendFuture);
 
@@ -145,6 +165,8 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
     private final ProducerStatsRecorder stats;
 
     private final CompressionCodec compressor;
+    // The latest version of the compression dictionary of the topic when the producer connected
+    private volatile CompressionDictionary compressionDictionary;
 
     static final AtomicLongFieldUpdater<ProducerImpl> LAST_SEQ_ID_PUBLISHED_UPDATER = AtomicLongFieldUpdater
             .newUpdater(ProducerImpl.class, "lastSequenceIdPublished");
@@ -209,13 +231,16 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
         // deduplication on the remote side.
         this.pauseSendingToPreservePublishOrderOnSchemaRegFailure = conf.isReplProducer();
         if (conf.getMaxPendingMessages() > 0) {
-            this.semaphore = Optional.of(new Semaphore(conf.getMaxPendingMessages(), true));
+            this.pendingMessagesPermits = Optional.of(new PendingMessagesPermits(conf.getMaxPendingMessages()));
         } else {
-            this.semaphore = Optional.empty();
+            this.pendingMessagesPermits = Optional.empty();
         }
         overrideProducerName.ifPresent(key -> this.producerName = key);
 
         this.compressor = CompressionCodecProvider.getCompressionCodec(conf.getCompressionType());
+        this.maxPendingSendsPerDrain = conf.getBatchingMaxMessages() > 0
+                ? conf.getBatchingMaxMessages() : Integer.MAX_VALUE;
+        this.internalPinnedExecutor = client.getInternalExecutorService();
 
         if (conf.getInitialSequenceId() != null) {
             long initialSequenceId = conf.getInitialSequenceId();
@@ -278,8 +303,11 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
             }
             this.batchMessageContainer = (BatchMessageContainerBase) containerBuilder.build();
             this.batchMessageContainer.setProducer(this);
+            this.adaptiveBatchFlushPolicy = conf.isAdaptiveBatchingEnabled()
+                    ? new AdaptiveBatchFlushPolicy(conf.getBatchingMaxPublishDelayMicros()) : null;
         } else {
             this.batchMessageContainer = null;
+            this.adaptiveBatchFlushPolicy = null;
         }
         if (client.getConfiguration().getStatsIntervalSeconds() > 0) {
             stats = new ProducerStatsRecorderImpl(client, conf, this);
@@ -342,10 +370,10 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
     }
 
     protected void semaphoreRelease(final int releaseCountRequest) {
-        if (semaphore.isPresent()) {
+        if (pendingMessagesPermits.isPresent()) {
             if (!errorState) {
                 final int availableReleasePermits =
-                        conf.getMaxPendingMessages() - this.semaphore.get().availablePermits();
+                        conf.getMaxPendingMessages() - this.pendingMessagesPermits.get().availablePermits();
                 if (availableReleasePermits - releaseCountRequest < 0) {
                     log.error("Semaphore permit release count request greater then availableReleasePermits"
                                     + " : availableReleasePermits={}, releaseCountRequest={}",
@@ -353,7 +381,7 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
                     errorState = true;
                 }
             }
-            semaphore.get().release(releaseCountRequest);
+            pendingMessagesPermits.get().release(releaseCountRequest);
         }
     }
 
@@ -507,11 +535,19 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
      * Compress the payload if compression is configured.
      *
      * @param payload
+     * @param msgMetadata the metadata of the message, which records the version of the compression dictionary
      * @return a new payload
      */
     @VisibleForTesting
-    public ByteBuf applyCompression(ByteBuf payload) {
-        ByteBuf compressedPayload = compressor.encode(payload);
+    public ByteBuf applyCompression(ByteBuf payload, MessageMetadata msgMetadata) {
+        CompressionDictionary dictionary = compressionDictionary;
+        ByteBuf compressedPayload;
+        if (dictionary != null) {
+            compressedPayload = ((CompressionDictionaryCodec) compressor).encode(payload, dictionary.getData());
+            msgMetadata.setCompressionDictionaryVersion(dictionary.getVersion());
+        } else {
+            compressedPayload = compressor.encode(payload);
+        }
         payload.release();
         return compressedPayload;
     }
@@ -542,6 +578,10 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
      *     </ol>
      *   </li>
      * </ul>
+     *
+     * <p>A message sent without chunks is handed over to the thread draining the pending sends, so this method may
+     * return before the sequence id of the message is assigned, unless it was set by the application. The id is
+     * assigned, in the order the messages were handed over, before the callback is completed.</p>
      */
     public void sendAsync(Message<?> message, SendCallback callback) {
         checkArgument(message instanceof MessageImpl);
@@ -567,7 +607,7 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
         // If a message has a delayed delivery time, we'll always send it individually
         if (!isBatchMessagingEnabled() || msgMetadata.hasDeliverAtTime()) {
             if (payload.readableBytes() > conf.getCompressMinMsgBodySize()) {
-                compressedPayload = applyCompression(payload);
+                compressedPayload = applyCompression(payload, msgMetadata);
                 compressed = true;
 
                 // validate msg-size (For batching this will be check at the batch completion size)
@@ -635,6 +675,14 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
             totalChunks = MathUtils.ceilDiv(Math.max(1, compressedPayload.readableBytes()), payloadChunkSize);
         }
 
+        if (totalChunks == 1) {
+            // Hand the message over to the thread draining the pending sends, which assigns its sequence id
+            pendingSends.offer(PendingSend.create(msg, payload, compressedPayload, compressed, uncompressedSize,
+                    payloadChunkSize, callback));
+            triggerDrainPendingSends();
+            return;
+        }
+
         // chunked message also sent individually so, try to acquire send-permits
         for (int i = 0; i < (totalChunks - 1); i++) {
             if (!conf.isBlockIfQueueFull() && !canEnqueueRequest(callback, message.getSequenceId(),
@@ -676,6 +724,8 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
                     return;
                 }
                 synchronized (this) {
+                    // The messages handed over before this one must get lower sequence ids
+                    drainPendingSends();
                     // Update the message metadata before computing the payload chunk size
                     // to avoid a large message cannot be split into chunks.
                     final long sequenceId = updateMessageMetadataSequenceId(msgMetadata);
@@ -696,6 +746,108 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
         }
     }
 
+    private void triggerDrainPendingSends() {
+        if (PENDING_SENDS_WIP_UPDATER.getAndIncrement(this) != 0) {
+            // Another thread is draining the pending sends, and will drain this one as well
+            return;
+        }
+        drainPendingSendsLoop(1);
+    }
+
+    /**
+     * Drains the pending sends until no more messages are handed over. The sending thread, which may be an IO
+     * thread, only adds up to a batch of messages in each pass, the remaining ones are drained from the executor.
+     */
+    private void drainPendingSendsLoop(int missed) {
+        do {
+            boolean drained;
+            synchronized (this) {
+                drained = drainPendingSends(maxPendingSendsPerDrain);
+            }
+            if (!drained) {
+                // Keep the work in progress count, so that the sending threads keep handing their messages over
+                final int remainingMissed = missed;
+                try {
+                    internalPinnedExecutor.execute(() -> drainPendingSendsLoop(remainingMissed));
+                } catch (RejectedExecutionException e) {
+                    // The client is closing, a sending thread drains the messages handed over from now on
+                    PENDING_SENDS_WIP_UPDATER.set(this, 0);
+                    failPendingSends();
+                }
+                return;
+            }
+            missed = PENDING_SENDS_WIP_UPDATER.addAndGet(this, -missed);
+        } while (missed != 0);
+    }
+
+    /**
+     * Adds the messages handed over by the sending threads to the batch or to the pending messages, in the order
+     * they were handed over. This method should be called from within the ProducerImpl object mutex, before the
+     * operations which depend on all the sent messages, e.g. flushing the batch.
+     */
+    private void drainPendingSends() {
+        drainPendingSends(Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return false if messages may remain after adding {@code maxMessages} of them
+     */
+    private boolean drainPendingSends(int maxMessages) {
+        if (drainingPendingSends) {
+            // Called from a callback completed while draining, the outer loop drains the remaining messages in order
+            return true;
+        }
+        drainingPendingSends = true;
+        try {
+            PendingSend pendingSend;
+            int count = 0;
+            while ((pendingSend = pendingSends.poll()) != null) {
+                MessageImpl<?> msg = pendingSend.msg;
+                try {
+                    final long sequenceId = updateMessageMetadataSequenceId(msg.getMessageBuilder());
+                    serializeAndSendMessage(msg, pendingSend.payload, sequenceId, null, 0, 1, 0,
+                            pendingSend.payloadChunkSize, pendingSend.compressedPayload, pendingSend.compressed,
+                            pendingSend.compressedPayload.readableBytes(), pendingSend.callback, null,
+                            pendingSend.messageId);
+                } catch (PulsarClientException e) {
+                    e.setSequenceId(msg.getSequenceId());
+                    completeCallbackAndReleaseSemaphore(pendingSend.uncompressedSize, pendingSend.callback, e);
+                } catch (Throwable t) {
+                    completeCallbackAndReleaseSemaphore(pendingSend.uncompressedSize, pendingSend.callback,
+                            new PulsarClientException(t, msg.getSequenceId()));
+                } finally {
+                    pendingSend.recycle();
+                }
+                if (++count >= maxMessages) {
+                    return pendingSends.isEmpty();
+                }
+            }
+            return true;
+        } finally {
+            drainingPendingSends = false;
+        }
+    }
+
+    /**
+     * Fails the messages handed over that can't be drained anymore.
+     */
+    private void failPendingSends() {
+        PendingSend pendingSend;
+        while ((pendingSend = pendingSends.poll()) != null) {
+            try {
+                pendingSend.compressedPayload.release();
+                completeCallbackAndReleaseSemaphore(pendingSend.uncompressedSize, pendingSend.callback,
+                        new PulsarClientException.AlreadyClosedException(format(
+                                "The producer %s of the topic %s was closed while sending the message", producerName,
+                                topic), pendingSend.msg.getSequenceId()));
+            } catch (Throwable t) {
+                log.warn("[{}] [{}] Got exception while failing a pending send", topic, producerName, t);
+            } finally {
+                pendingSend.recycle();
+            }
+        }
+    }
+
     /**
      * Update the message metadata except those fields that will be updated for chunks later.
      *
@@ -724,6 +876,29 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
         }
     }
 
+    private void loadCompressionDictionary(ClientCnx cnx) {
+        client.getCompressionDictionaryCache().getLatest(topic, cnx).thenAccept(dictionary -> {
+            if (dictionary.isPresent()) {
+                CompressionDictionary previous = compressionDictionary;
+                if (previous == null || previous.getVersion() != dictionary.get().getVersion()) {
+                    log.info("[{}] [{}] Using the compression dictionary {}", topic, producerName,
+                            dictionary.get().getVersion());
+                }
+                compressionDictionary = dictionary.get();
+            } else if (compressionDictionary != null) {
+                // The broker doesn't give the dictionary when a consumer or a remote cluster can't use it
+                log.info("[{}] [{}] Stop using the compression dictionary {}", topic, producerName,
+                        compressionDictionary.getVersion());
+                compressionDictionary = null;
+            }
+        }).exceptionally(ex -> {
+            log.warn("[{}] [{}] Failed to load the compression dictionary, keep using the version {}: {}", topic,
+                    producerName, compressionDictionary != null ? compressionDictionary.getVersion() : null,
+                    ex.getMessage());
+            return null;
+        });
+    }
+
     private long updateMessageMetadataSequenceId(final MessageMetadata msgMetadata) {
         final long sequenceId;
         if (!msgMetadata.hasSequenceId()) {
@@ -810,7 +985,7 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
             // in this case compression has not been applied by the caller
             // but we have to compress the payload if compression is configured
             if (!compressed && chunkPayload.readableBytes() > conf.getCompressMinMsgBodySize()) {
-                chunkPayload = applyCompression(chunkPayload);
+                chunkPayload = applyCompression(chunkPayload, msgMetadata);
             }
             ByteBuf encryptedPayload = encryptMessage(msgMetadata, chunkPayload);
 
@@ -1029,7 +1204,8 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
     }
 
     private void triggerSendIfFullOrScheduleFlush(boolean isBatchFull) {
-        if (isBatchFull) {
+        if (isBatchFull || adaptiveBatchFlushPolicy != null && getState() == State.Ready
+                && adaptiveBatchFlushPolicy.shouldFlush(pendingMessages.peek() != null)) {
             batchMessageAndSend(false);
         } else {
             maybeScheduleBatchFlushTask();
@@ -1084,12 +1260,12 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
     private boolean canEnqueueRequest(SendCallback callback, long sequenceId, int payloadSize) {
         try {
             if (conf.isBlockIfQueueFull()) {
-                if (semaphore.isPresent()) {
-                    semaphore.get().acquire();
+                if (pendingMessagesPermits.isPresent()) {
+                    pendingMessagesPermits.get().acquire();
                 }
                 client.getMemoryLimitController().reserveMemory(payloadSize);
             } else {
-                if (!semaphore.map(Semaphore::tryAcquire).orElse(true)) {
+                if (!pendingMessagesPermits.map(PendingMessagesPermits::tryAcquire).orElse(true)) {
                     pendingQueueFullCounter.incrementAndGet();
                     callback.sendComplete(new PulsarClientException.ProducerQueueIsFullError(
                             "Producer send queue is full", sequenceId), null);
@@ -1097,7 +1273,7 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
                 }
 
                 if (!client.getMemoryLimitController().tryReserveMemory(payloadSize)) {
-                    semaphore.ifPresent(Semaphore::release);
+                    pendingMessagesPermits.ifPresent(PendingMessagesPermits::release);
                     callback.sendComplete(new PulsarClientException.MemoryBufferIsFullError(
                             "Client memory buffer is full", sequenceId), null);
                     return false;
@@ -1167,6 +1343,57 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
         };
     }
 
+    private static final class PendingSend {
+        private MessageImpl<?> msg;
+        private ByteBuf payload;
+        private ByteBuf compressedPayload;
+        private boolean compressed;
+        private int uncompressedSize;
+        private int payloadChunkSize;
+        private SendCallback callback;
+        private MessageId messageId;
+
+        static PendingSend create(MessageImpl<?> msg, ByteBuf payload, ByteBuf compressedPayload,
+                                  boolean compressed, int uncompressedSize, int payloadChunkSize,
+                                  SendCallback callback) {
+            PendingSend pendingSend = RECYCLER.get();
+            pendingSend.msg = msg;
+            pendingSend.payload = payload;
+            pendingSend.compressedPayload = compressedPayload;
+            pendingSend.compressed = compressed;
+            pendingSend.uncompressedSize = uncompressedSize;
+            pendingSend.payloadChunkSize = payloadChunkSize;
+            pendingSend.callback = callback;
+            pendingSend.messageId = msg.getMessageId();
+            return pendingSend;
+        }
+
+        private void recycle() {
+            msg = null;
+            payload = null;
+            compressedPayload = null;
+            compressed = false;
+            uncompressedSize = 0;
+            payloadChunkSize = 0;
+            callback = null;
+            messageId = null;
+            recyclerHandle.recycle(this);
+        }
+
+        private final Handle<PendingSend> recyclerHandle;
+
+        private PendingSend(Handle<PendingSend> recyclerHandle) {
+            this.recyclerHandle = recyclerHandle;
+        }
+
+        private static final Recycler<PendingSend> RECYCLER = new Recycler<PendingSend>() {
+            @Override
+            protected PendingSend newObject(Handle<PendingSend> handle) {
+                return new PendingSend(handle);
+            }
+        };
+    }
+
     private static final class LastSendFutureWrapper {
         private final CompletableFuture<MessageId> lastSendFuture;
         private static final int FALSE = 0;
@@ -1332,6 +1559,9 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
                     }
                     pendingMessages.remove();
                     releaseSemaphoreForSendOp(op);
+                    if (adaptiveBatchFlushPolicy != null) {
+                        flushAdaptiveBatch(op);
+                    }
                 } else {
                     log.warn("[{}] [{}] Got ack for batch msg error. expecting: {} - {} - got: {} - {} - queue-size: {}"
                                     + "",
@@ -1384,7 +1614,7 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
     }
 
     private void completeCallbackAndReleaseSemaphore(long payloadSize, SendCallback callback, Exception exception) {
-        semaphore.ifPresent(Semaphore::release);
+        pendingMessagesPermits.ifPresent(PendingMessagesPermits::release);
         client.getMemoryLimitController().releaseMemory(payloadSize);
         callback.sendComplete(exception, null);
     }
@@ -1967,6 +2197,9 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
 
                 resendMessages(cnx, epoch);
             }
+            if (conf.isCompressionDictionaryEnabled() && compressor instanceof CompressionDictionaryCodec) {
+                loadCompressionDictionary(cnx);
+            }
             future.complete(null);
         }).exceptionally((e) -> {
             Throwable cause = e.getCause();
@@ -2287,6 +2520,7 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
      */
     private synchronized void failPendingMessages(ClientCnx cnx, PulsarClientException ex) {
         if (cnx == null) {
+            drainPendingSends();
             final AtomicInteger releaseCount = new AtomicInteger();
             final boolean batchMessagingEnabled = isBatchMessagingEnabled();
             pendingMessages.forEach(op -> {
@@ -2346,6 +2580,7 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
     @Override
     public CompletableFuture<Void> flushAsync() {
         synchronized (ProducerImpl.this) {
+            drainPendingSends();
             if (isBatchMessagingEnabled()) {
                 batchMessageAndSend(false);
             }
@@ -2362,17 +2597,42 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
     protected void triggerFlush() {
         if (isBatchMessagingEnabled()) {
             synchronized (ProducerImpl.this) {
+                drainPendingSends();
                 batchMessageAndSend(false);
             }
         }
     }
 
+    /**
+     * Send the batch once the receipt of the previous messages is received, when the adaptive batching is enabled.
+     */
+    private void flushAdaptiveBatch(OpSendMsg ackedOp) {
+        if (ackedOp.lastSentAt > 0) {
+            adaptiveBatchFlushPolicy.recordSendLatency(System.nanoTime() - ackedOp.lastSentAt);
+        }
+        if (getState() != State.Ready || !adaptiveBatchFlushPolicy.shouldFlush(pendingMessages.peek() != null)) {
+            return;
+        }
+        // The first message handed over while nothing is in flight flushes the batch by itself. This runs on the IO
+        // thread, so it only drains a bounded number of messages, the remaining ones are drained from the executor and
+        // flushed on the next receipt
+        triggerDrainPendingSends();
+        if (pendingMessages.peek() == null) {
+            batchMessageAndSend(false);
+        }
+    }
+
+    private long getBatchingDelayMicros() {
+        return adaptiveBatchFlushPolicy != null ? adaptiveBatchFlushPolicy.getFlushDelayMicros()
+                : conf.getBatchingMaxPublishDelayMicros();
+    }
+
     // must acquire semaphore before calling
     private void maybeScheduleBatchFlushTask() {
         if (this.batchFlushTask != null || getState() != State.Ready) {
             return;
         }
-        scheduleBatchFlushTask(conf.getBatchingMaxPublishDelayMicros());
+        scheduleBatchFlushTask(getBatchingDelayMicros());
     }
 
     // must acquire semaphore before calling
@@ -2394,15 +2654,17 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
         if (getState() != State.Ready) {
             return;
         }
-        // If a batch was sent more recently than the BatchingMaxPublishDelayMicros, schedule another flush to run just
-        // at BatchingMaxPublishDelayMicros after the last send.
+        drainPendingSends();
+        // If a batch was sent more recently than the batching delay, schedule another flush to run just at the
+        // batching delay after the last send.
+        long batchingDelayMicros = getBatchingDelayMicros();
         long microsSinceLastSend = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - lastBatchSendNanoTime);
-        if (microsSinceLastSend < conf.getBatchingMaxPublishDelayMicros()) {
-            scheduleBatchFlushTask(conf.getBatchingMaxPublishDelayMicros() - microsSinceLastSend);
+        if (microsSinceLastSend < batchingDelayMicros) {
+            scheduleBatchFlushTask(batchingDelayMicros - microsSinceLastSend);
         } else if (lastBatchSendNanoTime == 0) {
             // The first time a producer sends a message, the lastBatchSendNanoTime is 0.
             lastBatchSendNanoTime = System.nanoTime();
-            scheduleBatchFlushTask(conf.getBatchingMaxPublishDelayMicros());
+            scheduleBatchFlushTask(batchingDelayMicros);
         } else {
             batchMessageAndSend(true);
         }
@@ -2749,8 +3011,13 @@ public class ProducerImpl<T> extends ProducerBase<T> implements TimerTask, Conne
     }
 
     @VisibleForTesting
-    Optional<Semaphore> getSemaphore() {
-        return semaphore;
+    Optional<PendingMessagesPermits> getSemaphore() {
+        return pendingMessagesPermits;
+    }
+
+    @VisibleForTesting
+    int getPendingSendsWip() {
+        return PENDING_SENDS_WIP_UPDATER.get(this);
     }
 
     @VisibleForTesting
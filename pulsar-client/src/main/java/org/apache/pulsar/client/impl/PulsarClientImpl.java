@@ -50,6 +50,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import lombok.AccessLevel;
 import lombok.Builder;
 import lombok.Getter;
 import org.apache.commons.lang3.tuple.Pair;
@@ -157,6 +158,9 @@ public class PulsarClientImpl implements PulsarClient {
                         }
                     });
 
+    @Getter(AccessLevel.PACKAGE)
+    private final CompressionDictionaryCache compressionDictionaryCache = new CompressionDictionaryCache(this);
+
     private final Clock clientClock;
 
     private final InstrumentProvider instrumentProvider;
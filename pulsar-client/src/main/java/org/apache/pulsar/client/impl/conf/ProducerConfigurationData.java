@@ -164,6 +164,13 @@ public class ProducerConfigurationData implements Serializable, Cloneable {
             value = "Enable batching of messages."
     )
     private boolean batchingEnabled = true; // enabled by default
+
+    @ApiModelProperty(
+            name = "adaptiveBatchingEnabled",
+            value = "Whether to flush the batches based on the messages in flight and the observed send latency,"
+                    + " rather than waiting for the batching time period."
+    )
+    private boolean adaptiveBatchingEnabled = false;
     @JsonIgnore
     private BatcherBuilder batcherBuilder = BatcherBuilder.DEFAULT;
 
@@ -195,6 +202,12 @@ public class ProducerConfigurationData implements Serializable, Cloneable {
 
     private int compressMinMsgBodySize = 4 * 1024; // 4kb
 
+    @ApiModelProperty(
+            name = "compressionDictionaryEnabled",
+            value = "Whether to compress the messages with the compression dictionary of the topic."
+    )
+    private boolean compressionDictionaryEnabled = false;
+
     // Cannot use Optional<Long> since it's not serializable
     private Long initialSequenceId = null;
 
@@ -18,10 +18,15 @@
  */
 package org.apache.pulsar.client.impl;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.clearInvocations;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doCallRealMethod;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
@@ -386,6 +391,34 @@ public class AcknowledgementsGroupingTrackerTest {
         tracker.close();
     }
 
+    @Test
+    public void testAckTrackerSplitsCompactAcks() throws Exception {
+        ConsumerConfigurationData<?> conf = new ConsumerConfigurationData<>();
+        conf.setAcknowledgementsGroupTimeMicros(TimeUnit.SECONDS.toMicros(10));
+        AcknowledgmentsGroupingTracker tracker =
+                new PersistentAcknowledgmentsGroupingTracker(consumer, conf, eventLoopGroup);
+
+        when(cnx.getRemoteEndpointProtocolVersion()).thenReturn(ProtocolVersion.v12_VALUE);
+        doReturn(true).when(cnx).isSupportsCompactAcks();
+        doReturn(2).when(cnx).getMaxCompactAckEntries();
+        ChannelHandlerContext ctx = cnx.ctx();
+        try {
+            for (int i = 0; i < 5; i++) {
+                tracker.addAcknowledgment(new MessageIdImpl(5, i, 0), AckType.Individual, Collections.emptyMap());
+            }
+            clearInvocations(ctx);
+            tracker.flush();
+
+            // 5 entries in acks of at most 2 entries
+            verify(ctx, times(2)).write(any(), any());
+            verify(ctx, times(1)).writeAndFlush(any(), any());
+        } finally {
+            doCallRealMethod().when(cnx).isSupportsCompactAcks();
+            doCallRealMethod().when(cnx).getMaxCompactAckEntries();
+            tracker.close();
+        }
+    }
+
     @Test
     public void testDoIndividualBatchAckAsync() throws Exception{
         ConsumerConfigurationData<?> conf = new ConsumerConfigurationData<>();
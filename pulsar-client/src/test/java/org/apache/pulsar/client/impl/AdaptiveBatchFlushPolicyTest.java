@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.client.impl;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import java.util.concurrent.TimeUnit;
+import org.testng.annotations.Test;
+
+public class AdaptiveBatchFlushPolicyTest {
+
+    @Test
+    public void testFlushWhenNothingInFlight() {
+        AdaptiveBatchFlushPolicy policy = new AdaptiveBatchFlushPolicy(TimeUnit.MILLISECONDS.toMicros(10));
+        assertTrue(policy.shouldFlush(false));
+        assertFalse(policy.shouldFlush(true));
+    }
+
+    @Test
+    public void testFlushDelay() {
+        long maxDelayMicros = TimeUnit.MILLISECONDS.toMicros(10);
+        AdaptiveBatchFlushPolicy policy = new AdaptiveBatchFlushPolicy(maxDelayMicros);
+        // The configured delay is used until a latency is observed
+        assertEquals(policy.getFlushDelayMicros(), maxDelayMicros);
+
+        policy.recordSendLatency(TimeUnit.MILLISECONDS.toNanos(1));
+        assertEquals(policy.getFlushDelayMicros(), 2000);
+
+        // The delay follows the latency gradually
+        policy.recordSendLatency(TimeUnit.MILLISECONDS.toNanos(9));
+        assertEquals(policy.getFlushDelayMicros(), 4000);
+        for (int i = 0; i < 100; i++) {
+            policy.recordSendLatency(TimeUnit.MILLISECONDS.toNanos(20));
+        }
+        assertEquals(policy.getFlushDelayMicros(), maxDelayMicros);
+        for (int i = 0; i < 200; i++) {
+            policy.recordSendLatency(TimeUnit.MICROSECONDS.toNanos(10));
+        }
+        assertEquals(policy.getFlushDelayMicros(), AdaptiveBatchFlushPolicy.MIN_FLUSH_DELAY_MICROS);
+    }
+}
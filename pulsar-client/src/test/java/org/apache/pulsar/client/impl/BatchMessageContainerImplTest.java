@@ -26,76 +26,96 @@ import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
+import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
 import io.netty.util.ReferenceCountUtil;
 import java.lang.reflect.Field;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.apache.pulsar.client.api.CompressionType;
 import org.apache.pulsar.client.api.Schema;
 import org.apache.pulsar.client.impl.conf.ProducerConfigurationData;
 import org.apache.pulsar.common.api.proto.MessageMetadata;
+import org.apache.pulsar.common.compression.CompressionCodecProvider;
+import org.apache.pulsar.common.protocol.Commands;
+import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 public class BatchMessageContainerImplTest {
 
-    @Test
-    public void testUpdateMaxBatchSize() {
-        int shrinkCoolingOffPeriod = 10;
-        BatchMessageContainerImpl messageContainer = new BatchMessageContainerImpl();
-        // check init state
-        assertEquals(messageContainer.getMaxBatchSize(), 1024);
-
-        // test expand
-        messageContainer.updateMaxBatchSize(2048);
-        assertEquals(messageContainer.getMaxBatchSize(), 2048);
-
-        // test cooling-off period
-        messageContainer.updateMaxBatchSize(2);
-        assertEquals(messageContainer.getMaxBatchSize(), 2048);
-
-        // test shrink
-        for (int i = 0; i < 15; ++i) {
-            messageContainer.updateMaxBatchSize(2);
-            if (i < shrinkCoolingOffPeriod) {
-                assertEquals(messageContainer.getMaxBatchSize(), 2048);
-            } else {
-                assertEquals(messageContainer.getMaxBatchSize(), 2048 * 0.75);
-            }
-        }
+    @DataProvider
+    public static Object[][] batchedMessages() {
+        return new Object[][] {
+                {CompressionType.NONE, 1},
+                {CompressionType.NONE, 10},
+                {CompressionType.ZLIB, 10},
+                {CompressionType.LZ4, 1},
+                {CompressionType.LZ4, 10}
+        };
+    }
 
-        messageContainer.updateMaxBatchSize(2048);
-        // test big message sudden appearance
-        for (int i = 0; i < 15; ++i) {
-            if (i == shrinkCoolingOffPeriod - 2) {
-                messageContainer.updateMaxBatchSize(2000);
-            } else {
-                messageContainer.updateMaxBatchSize(2);
-            }
-            assertEquals(messageContainer.getMaxBatchSize(), 2048);
+    @Test(dataProvider = "batchedMessages")
+    public void testBatchedMessageMetadataAndPayload(CompressionType compressionType, int numMessages)
+            throws Exception {
+        final ProducerImpl<?> producer = mock(ProducerImpl.class);
+        final ProducerConfigurationData producerConfigurationData = new ProducerConfigurationData();
+        producerConfigurationData.setCompressionType(compressionType);
+        PulsarClientImpl pulsarClient = mock(PulsarClientImpl.class);
+        ConnectionPool connectionPool = mock(ConnectionPool.class);
+        when(pulsarClient.getCnxPool()).thenReturn(connectionPool);
+        MemoryLimitController memoryLimitController = mock(MemoryLimitController.class);
+        when(pulsarClient.getMemoryLimitController()).thenReturn(memoryLimitController);
+        try {
+            Field clientFiled = HandlerState.class.getDeclaredField("client");
+            clientFiled.setAccessible(true);
+            clientFiled.set(producer, pulsarClient);
+        } catch (Exception e){
+            fail(e.getMessage());
         }
 
-        // test big and small message alternating occurrence
-        for (int i = 0; i < shrinkCoolingOffPeriod * 3; ++i) {
+        when(producer.getConfiguration()).thenReturn(producerConfigurationData);
+        final BatchMessageContainerImpl batchMessageContainer = new BatchMessageContainerImpl(producer);
+
+        // the batch serialized the way it was before it was built from the payloads of the messages
+        ByteBuf expected = Unpooled.buffer();
+        List<MessageImpl<?>> messages = new ArrayList<>();
+        for (int i = 0; i < numMessages; i++) {
+            MessageMetadata messageMetadata = new MessageMetadata();
+            messageMetadata.setSequenceId(i);
+            messageMetadata.setProducerName("producer");
+            messageMetadata.setPublishTime(System.currentTimeMillis());
             if (i % 2 == 0) {
-                messageContainer.updateMaxBatchSize(2);
+                messageMetadata.setPartitionKey("key-" + i);
+            }
+            ByteBuffer payload = ByteBuffer.wrap((i == 3 ? "" : "payload-" + i).getBytes(StandardCharsets.UTF_8));
+            MessageImpl<?> message = MessageImpl.create(messageMetadata, payload, Schema.BYTES, null);
+            if (numMessages == 1) {
+                expected.writeBytes(message.getDataBuffer().duplicate());
             } else {
-                messageContainer.updateMaxBatchSize(2000);
+                Commands.serializeSingleMessageInBatchWithPayload(message.getMessageBuilder(),
+                        message.getDataBuffer().duplicate(), expected);
             }
-            assertEquals(messageContainer.getMaxBatchSize(), 2048);
+            messages.add(message);
+            batchMessageContainer.add(message, null);
         }
 
-        // test consecutive big message
-        for (int i = 0; i < 15; ++i) {
-            messageContainer.updateMaxBatchSize(2000);
-            assertEquals(messageContainer.getMaxBatchSize(), 2048);
+        ByteBuf compressed = batchMessageContainer.getCompressedBatchMetadataAndPayload(false);
+        ByteBuf actual = CompressionCodecProvider.getCompressionCodec(compressionType)
+                .decode(compressed, expected.readableBytes());
+        assertEquals(ByteBufUtil.getBytes(actual), ByteBufUtil.getBytes(expected));
+        for (MessageImpl<?> message : messages) {
+            assertEquals(message.getDataBuffer().readerIndex(), 0);
         }
 
-        // test expand after shrink
-        messageContainer.updateMaxBatchSize(4096);
-        assertEquals(messageContainer.getMaxBatchSize(), 4096);
+        actual.release();
+        compressed.release();
+        batchMessageContainer.clear();
+        messages.forEach(ReferenceCountUtil::safeRelease);
     }
 
     @Test
@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.client.impl;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import org.apache.pulsar.client.api.PulsarClientException;
+import org.apache.pulsar.common.compression.CompressionDictionary;
+import org.testng.annotations.Test;
+
+public class CompressionDictionaryCacheTest {
+
+    private static final String TOPIC = "persistent://tenant/ns/topic";
+
+    @Test
+    public void testLoadOncePerPartitionedTopic() {
+        CompressionDictionaryCache cache = new CompressionDictionaryCache(mock(PulsarClientImpl.class));
+        ClientCnx cnx = mock(ClientCnx.class);
+        CompletableFuture<Optional<CompressionDictionary>> response = new CompletableFuture<>();
+        when(cnx.sendGetCompressionDictionary(any(), eq(Optional.of(2L)), anyLong())).thenReturn(response);
+
+        CompletableFuture<CompressionDictionary> future = cache.get(TOPIC + "-partition-0", 2, cnx);
+        assertSame(cache.get(TOPIC + "-partition-1", 2, cnx), future);
+        assertNull(cache.getIfLoaded(TOPIC, 2));
+
+        CompressionDictionary dictionary = new CompressionDictionary(2, new byte[]{1, 2, 3});
+        response.complete(Optional.of(dictionary));
+        assertSame(future.join(), dictionary);
+        assertEquals(cache.getIfLoaded(TOPIC + "-partition-2", 2), dictionary.getData());
+        assertNull(cache.getIfLoaded(TOPIC, 1));
+        verify(cnx, times(1)).sendGetCompressionDictionary(any(), any(), anyLong());
+    }
+
+    @Test
+    public void testRetryAfterFailure() {
+        CompressionDictionaryCache cache = new CompressionDictionaryCache(mock(PulsarClientImpl.class));
+        ClientCnx cnx = mock(ClientCnx.class);
+        when(cnx.sendGetCompressionDictionary(any(), any(), anyLong()))
+                .thenReturn(CompletableFuture.failedFuture(new PulsarClientException.LookupException("failed")))
+                .thenReturn(CompletableFuture.completedFuture(
+                        Optional.of(new CompressionDictionary(1, new byte[]{1}))));
+
+        assertTrue(cache.get(TOPIC, 1, cnx).isCompletedExceptionally());
+        assertNull(cache.getIfLoaded(TOPIC, 1));
+        assertEquals(cache.get(TOPIC, 1, cnx).join().getVersion(), 1);
+        assertEquals(cache.getIfLoaded(TOPIC, 1), new byte[]{1});
+    }
+
+    @Test
+    public void testGetLatest() {
+        CompressionDictionaryCache cache = new CompressionDictionaryCache(mock(PulsarClientImpl.class));
+        ClientCnx cnx = mock(ClientCnx.class);
+        when(cnx.sendGetCompressionDictionary(any(), eq(Optional.empty()), anyLong()))
+                .thenReturn(CompletableFuture.completedFuture(Optional.empty()))
+                .thenReturn(CompletableFuture.completedFuture(
+                        Optional.of(new CompressionDictionary(3, new byte[]{3}))));
+
+        assertTrue(cache.getLatest(TOPIC, cnx).join().isEmpty());
+        assertEquals(cache.getLatest(TOPIC, cnx).join().get().getVersion(), 3);
+        assertEquals(cache.getIfLoaded(TOPIC, 3), new byte[]{3});
+    }
+}
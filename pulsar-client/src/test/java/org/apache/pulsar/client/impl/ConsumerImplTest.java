@@ -29,8 +29,11 @@ import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.nio.charset.StandardCharsets;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutorService;
@@ -39,6 +42,7 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 import lombok.Cleanup;
+import org.apache.pulsar.client.api.BatchReceivePolicy;
 import org.apache.pulsar.client.api.Consumer;
 import org.apache.pulsar.client.api.Message;
 import org.apache.pulsar.client.api.Messages;
@@ -49,6 +53,10 @@ import org.apache.pulsar.client.impl.conf.ConsumerConfigurationData;
 import org.apache.pulsar.client.impl.conf.TopicConsumerConfigurationData;
 import org.apache.pulsar.client.util.ExecutorProvider;
 import org.apache.pulsar.client.util.ScheduledExecutorProvider;
+import org.apache.pulsar.common.api.proto.MessageIdData;
+import org.apache.pulsar.common.api.proto.MessageMetadata;
+import org.apache.pulsar.common.api.proto.SingleMessageMetadata;
+import org.apache.pulsar.common.protocol.Commands;
 import org.apache.pulsar.common.util.Backoff;
 import org.awaitility.Awaitility;
 import org.testng.Assert;
@@ -304,4 +312,70 @@ public class ConsumerImplTest {
         Pattern consumerNamePattern = Pattern.compile("[a-zA-Z0-9]{5}");
         assertTrue(consumerNamePattern.matcher(consumer.getConsumerName()).matches());
     }
+
+    @Test(invocationTimeOut = 5000)
+    public void testReceiveBatchAtOnce() throws Exception {
+        MessageMetadata metadata = new MessageMetadata()
+                .setProducerName("producer")
+                .setPublishTime(1)
+                .setSequenceId(0)
+                .setNumMessagesInBatch(3);
+        ByteBuf batch = Unpooled.directBuffer();
+        for (int i = 0; i < 3; i++) {
+            Commands.serializeSingleMessageInBatchWithPayload(new SingleMessageMetadata().setSequenceId(i),
+                    Unpooled.wrappedBuffer(("msg-" + i).getBytes(StandardCharsets.UTF_8)), batch);
+        }
+        consumer.receiveIndividualMessagesFromBatch(null, metadata, 0, null, batch,
+                new MessageIdData().setLedgerId(1).setEntryId(2), null, -1);
+        batch.release();
+
+        Messages<byte[]> messages = consumer.batchReceive();
+        assertEquals(messages.size(), 3);
+        int i = 0;
+        for (Message<byte[]> message : messages) {
+            assertEquals(new String(message.getData(), StandardCharsets.UTF_8), "msg-" + i);
+            assertEquals(message.getSequenceId(), i);
+            assertEquals(message.getProducerName(), "producer");
+            i++;
+        }
+        assertEquals(consumer.getIncomingMessageSize(), 0);
+    }
+
+    @Test(invocationTimeOut = 5000)
+    public void testBatchReceiveHandsOutDecodedBatch() throws Exception {
+        consumerConf.setBatchReceivePolicy(BatchReceivePolicy.builder()
+                .maxNumMessages(2)
+                .timeout(1, TimeUnit.HOURS)
+                .build());
+        createConsumer(consumerConf);
+        CompletableFuture<Messages<byte[]>> future = consumer.batchReceiveAsync();
+        Awaitility.await().untilAsserted(() -> Assert.assertTrue(consumer.hasPendingBatchReceive()));
+
+        MessageMetadata metadata = new MessageMetadata()
+                .setProducerName("producer")
+                .setPublishTime(1)
+                .setSequenceId(0)
+                .setNumMessagesInBatch(3);
+        ByteBuf batch = Unpooled.directBuffer();
+        for (int i = 0; i < 3; i++) {
+            Commands.serializeSingleMessageInBatchWithPayload(new SingleMessageMetadata().setSequenceId(i),
+                    Unpooled.wrappedBuffer(("msg-" + i).getBytes(StandardCharsets.UTF_8)), batch);
+        }
+        consumer.receiveIndividualMessagesFromBatch(null, metadata, 0, null, batch,
+                new MessageIdData().setLedgerId(1).setEntryId(2), null, -1);
+        batch.release();
+
+        // The batch is enough for the pending batch receive, which gets its first messages without them being queued
+        Messages<byte[]> messages = future.get(1, TimeUnit.SECONDS);
+        assertEquals(messages.size(), 2);
+        int i = 0;
+        for (Message<byte[]> message : messages) {
+            assertEquals(new String(message.getData(), StandardCharsets.UTF_8), "msg-" + i);
+            i++;
+        }
+        Awaitility.await().untilAsserted(() -> assertEquals(consumer.numMessagesInQueue(), 1));
+        assertEquals(consumer.getIncomingMessageSize(), "msg-2".length());
+        assertEquals(new String(consumer.receive().getData(), StandardCharsets.UTF_8), "msg-2");
+        assertEquals(consumer.getIncomingMessageSize(), 0);
+    }
 }
@@ -24,14 +24,19 @@ import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 import static org.testng.AssertJUnit.fail;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import org.apache.pulsar.client.api.Schema;
 import org.apache.pulsar.client.api.schema.SchemaDefinition;
@@ -43,6 +48,7 @@ import org.apache.pulsar.client.impl.schema.generic.MultiVersionSchemaInfoProvid
 import org.apache.pulsar.common.allocator.PulsarByteBufAllocator;
 import org.apache.pulsar.common.api.proto.BrokerEntryMetadata;
 import org.apache.pulsar.common.api.proto.MessageMetadata;
+import org.apache.pulsar.common.api.proto.SingleMessageMetadata;
 import org.apache.pulsar.common.protocol.Commands;
 import org.apache.pulsar.common.schema.KeyValue;
 import org.apache.pulsar.common.schema.KeyValueEncodingType;
@@ -535,4 +541,60 @@ public class MessageImplTest {
         assertEquals(metadata.getProducerName(), "test");
         assertEquals(metadata.getSequenceId(), 1);
     }
+
+    @Test
+    public void testSharedBatchMetadataAndPayload() throws Exception {
+        MessageMetadata batchMetadata = new MessageMetadata()
+                .setProducerName("producer")
+                .setPublishTime(10)
+                .setSequenceId(0)
+                .setPartitionKey("batch-key")
+                .setSchemaVersion(new byte[]{1})
+                .setNumMessagesInBatch(2);
+        ByteBuf batch = Unpooled.buffer();
+        Commands.serializeSingleMessageInBatchWithPayload(new SingleMessageMetadata().setPartitionKey("key-0")
+                .setSequenceId(0), Unpooled.wrappedBuffer("value-0".getBytes(StandardCharsets.UTF_8)), batch);
+        Commands.serializeSingleMessageInBatchWithPayload(new SingleMessageMetadata().setSequenceId(1)
+                .setEventTime(5), Unpooled.wrappedBuffer("value-1".getBytes(StandardCharsets.UTF_8)), batch);
+
+        List<MessageImpl<byte[]>> messages = new ArrayList<>();
+        SingleMessageMetadata singleMessageMetadata = new SingleMessageMetadata();
+        for (int i = 0; i < 2; i++) {
+            ByteBuf payload = Commands.deSerializeSingleMessageInBatch(batch, singleMessageMetadata, i, 2);
+            messages.add(MessageImpl.create("topic", new BatchMessageIdImpl(1, 2, -1, i), batchMetadata,
+                    singleMessageMetadata, payload, Optional.empty(), null, Schema.BYTES, 0, false, -1, true));
+            payload.release();
+        }
+        MessageImpl<byte[]> first = messages.get(0);
+        MessageImpl<byte[]> second = messages.get(1);
+
+        // the payloads are views of the batch
+        assertSame(first.getDataBuffer().array(), batch.array());
+        assertEquals(first.getKey(), "key-0");
+        assertNull(second.getKey());
+        assertEquals(first.getSequenceId(), 0);
+        assertEquals(second.getSequenceId(), 1);
+        assertEquals(first.getEventTime(), 0);
+        assertEquals(second.getEventTime(), 5);
+        assertEquals(second.getProducerName(), "producer");
+        assertEquals(second.getPublishTime(), 10);
+        assertEquals(second.getSchemaVersion(), new byte[]{1});
+
+        assertEquals(first.getData(), "value-0".getBytes(StandardCharsets.UTF_8));
+        assertEquals(first.getData(), "value-0".getBytes(StandardCharsets.UTF_8));
+        assertEquals(first.size(), 7);
+        assertEquals(second.getValue(), "value-1".getBytes(StandardCharsets.UTF_8));
+
+        MessageMetadata metadata = second.getMessageBuilder();
+        assertEquals(metadata.getProducerName(), "producer");
+        assertEquals(metadata.getPublishTime(), 10);
+        assertFalse(metadata.hasPartitionKey());
+        assertEquals(metadata.getSequenceId(), 1);
+        assertEquals(metadata.getEventTime(), 5);
+        assertNull(second.getKey());
+        assertEquals(first.getMessageBuilder().getPartitionKey(), "key-0");
+        // the batch metadata is left untouched
+        assertEquals(batchMetadata.getPartitionKey(), "batch-key");
+        assertFalse(batchMetadata.hasEventTime());
+    }
 }
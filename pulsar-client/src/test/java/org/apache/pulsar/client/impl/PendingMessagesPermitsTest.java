@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.client.impl;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+public class PendingMessagesPermitsTest {
+
+    private ExecutorService executor;
+
+    @BeforeClass
+    void setup() {
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterClass(alwaysRun = true)
+    void teardown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testTryAcquireAndRelease() {
+        PendingMessagesPermits permits = new PendingMessagesPermits(2);
+        assertTrue(permits.tryAcquire());
+        assertTrue(permits.tryAcquire());
+        assertFalse(permits.tryAcquire());
+        assertEquals(permits.availablePermits(), 0);
+
+        permits.release(2);
+        assertEquals(permits.availablePermits(), 2);
+        permits.release(0);
+        assertEquals(permits.availablePermits(), 2);
+        assertTrue(permits.tryAcquire());
+        permits.release();
+        assertEquals(permits.availablePermits(), 2);
+    }
+
+    @Test
+    public void testBlockingAcquire() throws Exception {
+        PendingMessagesPermits permits = new PendingMessagesPermits(1);
+        permits.acquire();
+
+        CountDownLatch acquired = new CountDownLatch(2);
+        executor.submit(() -> {
+            permits.acquire();
+            acquired.countDown();
+            return null;
+        });
+        executor.submit(() -> {
+            permits.acquire();
+            acquired.countDown();
+            return null;
+        });
+        assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+
+        // Each released permit unblocks one of the waiting threads
+        permits.release();
+        permits.release();
+        assertTrue(acquired.await(5, TimeUnit.SECONDS));
+        assertEquals(permits.availablePermits(), 0);
+    }
+
+    @Test
+    public void testTryAcquireWithTimeout() throws Exception {
+        PendingMessagesPermits permits = new PendingMessagesPermits(2);
+        assertTrue(permits.tryAcquire(2, 0, TimeUnit.MILLISECONDS));
+        assertFalse(permits.tryAcquire(100, TimeUnit.MILLISECONDS));
+
+        Future<Boolean> acquired = executor.submit(() -> permits.tryAcquire(2, 5, TimeUnit.SECONDS));
+        permits.release();
+        assertFalse(acquired.isDone());
+        permits.release();
+        assertTrue(acquired.get(5, TimeUnit.SECONDS));
+        assertEquals(permits.availablePermits(), 0);
+    }
+
+    @Test
+    public void testConcurrentAcquireAndRelease() throws Exception {
+        int maxPermits = 4;
+        PendingMessagesPermits permits = new PendingMessagesPermits(maxPermits);
+        AtomicInteger inUse = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 16; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    permits.acquire();
+                    assertTrue(inUse.incrementAndGet() <= maxPermits);
+                    inUse.decrementAndGet();
+                    permits.release();
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        assertEquals(permits.availablePermits(), maxPermits);
+    }
+}
@@ -18,17 +18,40 @@
  */
 package org.apache.pulsar.client.impl;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.withSettings;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.expectThrows;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import lombok.Cleanup;
+import org.apache.pulsar.client.api.MessageId;
+import org.apache.pulsar.client.api.PulsarClientException;
 import org.apache.pulsar.client.api.Schema;
+import org.apache.pulsar.client.impl.conf.ProducerConfigurationData;
+import org.apache.pulsar.client.impl.metrics.InstrumentProvider;
 import org.apache.pulsar.client.impl.metrics.LatencyHistogram;
+import org.apache.pulsar.client.util.ExecutorProvider;
 import org.apache.pulsar.common.api.proto.MessageMetadata;
+import org.awaitility.Awaitility;
 import org.mockito.Mockito;
 import org.testng.annotations.Test;
 
@@ -67,4 +90,158 @@ public class ProducerImplTest {
         assertTrue(producer.populateMessageSchema(msg, null));
         verify(msg).setSchemaState(MessageImpl.SchemaState.Ready);
     }
+
+    private static ProducerImpl<byte[]> createProducer(ExecutorService internalExecutor, int batchingMaxMessages) {
+        PulsarClientImpl client = ClientTestFixtures.createPulsarClientMock(mock(ExecutorProvider.class),
+                internalExecutor);
+        client.getConfiguration().setStatsIntervalSeconds(0);
+        when(client.instrumentProvider()).thenReturn(InstrumentProvider.NOOP);
+        when(client.getMemoryLimitController()).thenReturn(new MemoryLimitController(0));
+
+        ProducerConfigurationData conf = new ProducerConfigurationData();
+        conf.setBatchingEnabled(false);
+        conf.setBatchingMaxMessages(batchingMaxMessages);
+        ProducerImpl<byte[]> producer = new ProducerImpl<>(client, "persistent://tenant/ns1/my-topic", conf,
+                new CompletableFuture<>(), -1, Schema.BYTES, null, Optional.empty());
+        // the messages are kept in the pending messages, since there is no connection
+        producer.setState(HandlerState.State.Connecting);
+        return producer;
+    }
+
+    private static CompletableFuture<MessageId> send(ProducerImpl<byte[]> producer, MessageImpl<byte[]> msg) {
+        return producer.internalSendAsync(msg);
+    }
+
+    private static MessageImpl<byte[]> newMessage(String value) {
+        return MessageImpl.create(new MessageMetadata(),
+                ByteBuffer.wrap(value.getBytes(StandardCharsets.UTF_8)), Schema.BYTES, null);
+    }
+
+    private static List<Long> pendingSequenceIds(ProducerImpl<?> producer) {
+        List<Long> sequenceIds = new ArrayList<>();
+        synchronized (producer) {
+            producer.pendingMessages.forEach(op -> sequenceIds.add(op.sequenceId));
+        }
+        return sequenceIds;
+    }
+
+    /**
+     * Hands {@code numMessages} messages over while the first sending thread waits for the producer mutex, so that
+     * the thread has to drain all of them.
+     */
+    private static List<CompletableFuture<MessageId>> sendWhileDraining(ProducerImpl<byte[]> producer,
+                                                                         int numMessages) throws Exception {
+        @Cleanup("shutdownNow")
+        ExecutorService sender = Executors.newSingleThreadExecutor();
+        List<CompletableFuture<MessageId>> futures = new ArrayList<>();
+        Future<CompletableFuture<MessageId>> first;
+        synchronized (producer) {
+            first = sender.submit(() -> send(producer, newMessage("msg-0")));
+            Awaitility.await().until(() -> producer.getPendingSendsWip() == 1);
+            for (int i = 1; i < numMessages; i++) {
+                futures.add(send(producer, newMessage("msg-" + i)));
+            }
+            assertEquals(producer.getPendingSendsWip(), numMessages);
+            assertTrue(pendingSequenceIds(producer).isEmpty());
+        }
+        futures.add(0, first.get(5, TimeUnit.SECONDS));
+        return futures;
+    }
+
+    @Test
+    public void testPendingSendsDrainContinuesOnInternalExecutor() throws Exception {
+        ExecutorService internalExecutor = mock(ExecutorService.class);
+        List<Runnable> tasks = new ArrayList<>();
+        doAnswer(invocation -> tasks.add(invocation.getArgument(0))).when(internalExecutor).execute(any());
+        ProducerImpl<byte[]> producer = createProducer(internalExecutor, 2);
+
+        sendWhileDraining(producer, 5);
+
+        // the sending thread only adds a batch of messages, the remaining ones are drained from the executor
+        assertEquals(pendingSequenceIds(producer), List.of(0L, 1L));
+        assertEquals(tasks.size(), 1);
+        assertTrue(producer.getPendingSendsWip() > 0);
+
+        tasks.remove(0).run();
+        assertEquals(pendingSequenceIds(producer), List.of(0L, 1L, 2L, 3L));
+        assertEquals(tasks.size(), 1);
+
+        tasks.remove(0).run();
+        assertEquals(pendingSequenceIds(producer), List.of(0L, 1L, 2L, 3L, 4L));
+        assertTrue(tasks.isEmpty());
+        assertEquals(producer.getPendingSendsWip(), 0);
+
+        // the next message is drained by its sending thread
+        send(producer, newMessage("msg-5"));
+        assertEquals(pendingSequenceIds(producer), List.of(0L, 1L, 2L, 3L, 4L, 5L));
+        assertTrue(tasks.isEmpty());
+        assertEquals(producer.getPendingSendsWip(), 0);
+    }
+
+    @Test
+    public void testPendingSendsFailedWhenDrainIsRejected() throws Exception {
+        ExecutorService internalExecutor = mock(ExecutorService.class);
+        doThrow(new RejectedExecutionException()).when(internalExecutor).execute(any());
+        ProducerImpl<byte[]> producer = createProducer(internalExecutor, 2);
+
+        List<CompletableFuture<MessageId>> futures = sendWhileDraining(producer, 5);
+
+        assertEquals(pendingSequenceIds(producer), List.of(0L, 1L));
+        assertFalse(futures.get(0).isDone());
+        assertFalse(futures.get(1).isDone());
+        for (CompletableFuture<MessageId> future : futures.subList(2, 5)) {
+            ExecutionException e = expectThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+            assertTrue(e.getCause() instanceof PulsarClientException.AlreadyClosedException, e.toString());
+        }
+        // a sending thread drains the messages handed over from now on
+        assertEquals(producer.getPendingSendsWip(), 0);
+        send(producer, newMessage("msg-5"));
+        assertEquals(pendingSequenceIds(producer), List.of(0L, 1L, 2L));
+        assertEquals(producer.getPendingSendsWip(), 0);
+    }
+
+    @Test
+    public void testPendingSendsSequenceIdsWithConcurrentSenders() throws Exception {
+        @Cleanup("shutdownNow")
+        ExecutorService internalExecutor = Executors.newSingleThreadExecutor();
+        ProducerImpl<byte[]> producer = createProducer(internalExecutor, 10);
+
+        int numSenders = 4;
+        int numMessages = 500;
+        @Cleanup("shutdownNow")
+        ExecutorService senders = Executors.newFixedThreadPool(numSenders);
+        List<Future<List<MessageImpl<byte[]>>>> sent = new ArrayList<>();
+        for (int t = 0; t < numSenders; t++) {
+            final int sender = t;
+            sent.add(senders.submit(() -> {
+                List<MessageImpl<byte[]>> messages = new ArrayList<>();
+                for (int i = 0; i < numMessages; i++) {
+                    MessageImpl<byte[]> msg = newMessage(sender + "-" + i);
+                    messages.add(msg);
+                    send(producer, msg);
+                }
+                return messages;
+            }));
+        }
+        List<List<MessageImpl<byte[]>>> messagesBySender = new ArrayList<>();
+        for (Future<List<MessageImpl<byte[]>>> future : sent) {
+            messagesBySender.add(future.get(30, TimeUnit.SECONDS));
+        }
+
+        Awaitility.await().untilAsserted(() -> {
+            assertEquals(pendingSequenceIds(producer).size(), numSenders * numMessages);
+            assertEquals(producer.getPendingSendsWip(), 0);
+        });
+        // the sequence ids are assigned in the order the messages are added to the pending messages
+        List<Long> sequenceIds = pendingSequenceIds(producer);
+        for (int i = 0; i < sequenceIds.size(); i++) {
+            assertEquals(sequenceIds.get(i).longValue(), i);
+        }
+        // and the messages of each sender keep the order they were sent in
+        for (List<MessageImpl<byte[]>> messages : messagesBySender) {
+            for (int i = 1; i < messages.size(); i++) {
+                assertTrue(messages.get(i - 1).getSequenceId() < messages.get(i).getSequenceId());
+            }
+        }
+    }
 }
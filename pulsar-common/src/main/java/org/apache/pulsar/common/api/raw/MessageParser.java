@@ -25,12 +25,14 @@ import io.netty.buffer.ByteBuf;
 import io.netty.util.ReferenceCountUtil;
 import io.netty.util.concurrent.FastThreadLocal;
 import java.io.IOException;
+import java.util.function.LongFunction;
 import lombok.experimental.UtilityClass;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.pulsar.common.api.proto.MessageMetadata;
 import org.apache.pulsar.common.api.proto.SingleMessageMetadata;
 import org.apache.pulsar.common.compression.CompressionCodec;
 import org.apache.pulsar.common.compression.CompressionCodecProvider;
+import org.apache.pulsar.common.compression.CompressionDictionaryCodec;
 import org.apache.pulsar.common.naming.TopicName;
 import org.apache.pulsar.common.protocol.Commands;
 
@@ -67,6 +69,20 @@ public class MessageParser {
      */
     public static void parseMessage(String topicName, long ledgerId, long entryId, ByteBuf headersAndPayload,
             MessageProcessor processor, int maxMessageSize) throws IOException {
+        parseMessage(topicName, ledgerId, entryId, headersAndPayload, processor, maxMessageSize, version -> null);
+    }
+
+    /**
+     * Parse a raw Pulsar entry payload, which may have been compressed with a compression dictionary of the topic.
+     *
+     * @param compressionDictionaries
+     *            returns the compression dictionary of the topic with the given version, or null if it is unknown
+     * @throws IOException
+     *             if the payload was compressed with a dictionary that {@code compressionDictionaries} doesn't know
+     */
+    public static void parseMessage(String topicName, long ledgerId, long entryId, ByteBuf headersAndPayload,
+            MessageProcessor processor, int maxMessageSize, LongFunction<byte[]> compressionDictionaries)
+            throws IOException {
         ByteBuf payload = headersAndPayload;
         ByteBuf uncompressedPayload = null;
         ReferenceCountedMessageMetadata refCntMsgMetadata = null;
@@ -97,8 +113,17 @@ public class MessageParser {
                 throw new IOException("Cannot parse encrypted message " + msgMetadata + " on topic " + topicName);
             }
 
+            byte[] dictionary = null;
+            if (msgMetadata.hasCompressionDictionaryVersion()) {
+                dictionary = compressionDictionaries.apply(msgMetadata.getCompressionDictionaryVersion());
+                if (dictionary == null) {
+                    throw new IOException("Cannot parse message compressed with the compression dictionary version "
+                            + msgMetadata.getCompressionDictionaryVersion() + " on topic " + topicName);
+                }
+            }
+
             uncompressedPayload = uncompressPayloadIfNeeded(topicName, msgMetadata, headersAndPayload, ledgerId,
-                    entryId, maxMessageSize);
+                    entryId, maxMessageSize, dictionary);
 
             if (uncompressedPayload == null) {
                 // Message was discarded on decompression error
@@ -147,6 +172,11 @@ public class MessageParser {
 
     public static ByteBuf uncompressPayloadIfNeeded(String topic, MessageMetadata msgMetadata,
             ByteBuf payload, long ledgerId, long entryId, int maxMessageSize) {
+        return uncompressPayloadIfNeeded(topic, msgMetadata, payload, ledgerId, entryId, maxMessageSize, null);
+    }
+
+    public static ByteBuf uncompressPayloadIfNeeded(String topic, MessageMetadata msgMetadata,
+            ByteBuf payload, long ledgerId, long entryId, int maxMessageSize, byte[] dictionary) {
         CompressionCodec codec = CompressionCodecProvider.getCompressionCodec(msgMetadata.getCompression());
         int uncompressedSize = msgMetadata.getUncompressedSize();
         int payloadSize = payload.readableBytes();
@@ -158,7 +188,8 @@ public class MessageParser {
         }
 
         try {
-            ByteBuf uncompressedPayload = codec.decode(payload, uncompressedSize);
+            ByteBuf uncompressedPayload =
+                    CompressionDictionaryCodec.decode(codec, payload, uncompressedSize, dictionary);
             return uncompressedPayload;
         } catch (IOException e) {
             log.error("[{}] Failed to decompress message with {} at {}:{} : {}", topic,
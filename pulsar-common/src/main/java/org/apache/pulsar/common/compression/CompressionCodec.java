@@ -35,6 +35,16 @@ public interface CompressionCodec {
      */
     ByteBuf encode(ByteBuf raw);
 
+    /**
+     * Whether {@link #encode(ByteBuf)} reads a buffer made of several components, like a
+     * {@link io.netty.buffer.CompositeByteBuf}, without first copying it into a contiguous buffer.
+     *
+     * @return true if the components of the buffer to compress are read as they are
+     */
+    default boolean supportsCompositeSource() {
+        return false;
+    }
+
     /**
      * Decompress a buffer.
      *
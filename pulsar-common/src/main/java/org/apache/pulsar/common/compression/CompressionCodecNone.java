@@ -32,6 +32,11 @@ public class CompressionCodecNone implements CompressionCodec {
         return raw.retain();
     }
 
+    @Override
+    public boolean supportsCompositeSource() {
+        return true;
+    }
+
     @Override
     public ByteBuf decode(ByteBuf encoded, int uncompressedSize) throws IOException {
         // No decompression is required for this codec
@@ -22,6 +22,7 @@ import static com.google.common.base.Preconditions.checkArgument;
 import io.netty.buffer.ByteBuf;
 import io.netty.util.concurrent.FastThreadLocal;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.zip.DataFormatException;
 import java.util.zip.Deflater;
 import java.util.zip.Inflater;
@@ -30,7 +31,7 @@ import org.apache.pulsar.common.allocator.PulsarByteBufAllocator;
 /**
  * ZLib Compression.
  */
-public class CompressionCodecZLib implements CompressionCodec {
+public class CompressionCodecZLib implements CompressionDictionaryCodec {
 
     private final FastThreadLocal<Deflater> deflater = new FastThreadLocal<Deflater>() {
         @Override
@@ -58,44 +59,56 @@ public class CompressionCodecZLib implements CompressionCodec {
 
     @Override
     public ByteBuf encode(ByteBuf source) {
-        byte[] array;
-        int length = source.readableBytes();
+        return encode(source, null);
+    }
 
+    @Override
+    public ByteBuf encode(ByteBuf source, byte[] dictionary) {
         int sizeEstimate = (int) Math.ceil(source.readableBytes() * 1.001) + 14;
         ByteBuf compressed = PulsarByteBufAllocator.DEFAULT.heapBuffer(sizeEstimate);
 
-        int offset = 0;
-        if (source.hasArray()) {
-            array = source.array();
-            offset = source.arrayOffset() + source.readerIndex();
-        } else {
-            // If it's a direct buffer, we need to copy it
-            array = new byte[length];
-            source.getBytes(source.readerIndex(), array);
-        }
-
         Deflater deflater = this.deflater.get();
         deflater.reset();
-        deflater.setInput(array, offset, length);
-        while (!deflater.needsInput()) {
-            deflate(deflater, compressed);
+        if (dictionary != null) {
+            deflater.setDictionary(dictionary);
+        }
+        // The components of the source are compressed one after the other, without copying them, and the output is
+        // flushed once at the end
+        for (ByteBuffer input : source.nioBuffers()) {
+            deflater.setInput(input);
+            while (!deflater.needsInput()) {
+                deflate(deflater, compressed, Deflater.NO_FLUSH);
+            }
         }
+        deflate(deflater, compressed, Deflater.SYNC_FLUSH);
 
         return compressed;
     }
 
-    private static void deflate(Deflater deflater, ByteBuf out) {
+    @Override
+    public boolean supportsCompositeSource() {
+        return true;
+    }
+
+    private static void deflate(Deflater deflater, ByteBuf out, int flush) {
         int numBytes;
+        int writableBytes;
         do {
+            out.ensureWritable(1);
             int writerIndex = out.writerIndex();
-            numBytes = deflater.deflate(out.array(), out.arrayOffset() + writerIndex, out.writableBytes(),
-                    Deflater.SYNC_FLUSH);
+            writableBytes = out.writableBytes();
+            numBytes = deflater.deflate(out.array(), out.arrayOffset() + writerIndex, writableBytes, flush);
             out.writerIndex(writerIndex + numBytes);
-        } while (numBytes > 0);
+        } while (numBytes == writableBytes);
     }
 
     @Override
     public ByteBuf decode(ByteBuf encoded, int uncompressedLength) throws IOException {
+        return decode(encoded, uncompressedLength, null);
+    }
+
+    @Override
+    public ByteBuf decode(ByteBuf encoded, int uncompressedLength, byte[] dictionary) throws IOException {
         ByteBuf uncompressed = PulsarByteBufAllocator.DEFAULT.heapBuffer(uncompressedLength, uncompressedLength);
 
         int len = encoded.readableBytes();
@@ -118,7 +131,17 @@ public class CompressionCodecZLib implements CompressionCodec {
 
         try {
             resultLength = inflater.inflate(uncompressed.array(), uncompressed.arrayOffset(), uncompressedLength);
-        } catch (DataFormatException e) {
+            if (resultLength == 0 && inflater.needsDictionary()) {
+                if (dictionary == null) {
+                    uncompressed.release();
+                    throw new IOException("The content was compressed with a dictionary");
+                }
+                inflater.setDictionary(dictionary);
+                resultLength = inflater.inflate(uncompressed.array(), uncompressed.arrayOffset(), uncompressedLength);
+            }
+        } catch (DataFormatException | IllegalArgumentException e) {
+            // IllegalArgumentException is thrown when the dictionary does not match the one used to compress
+            uncompressed.release();
             throw new IOException(e);
         }
 
@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.common.compression;
+
+import io.netty.buffer.ByteBuf;
+import java.io.IOException;
+
+/**
+ * A compression codec which can also compress with a preset dictionary, see {@link CompressionDictionaryTrainer}.
+ */
+public interface CompressionDictionaryCodec extends CompressionCodec {
+
+    /**
+     * Compress a buffer with a preset dictionary.
+     *
+     * @param raw
+     *            a buffer with the uncompressed content. The reader/writer indexes will not be modified
+     * @param dictionary
+     *            the dictionary, the same dictionary is needed to decompress the content
+     * @return a new buffer with the compressed content. The buffer needs to be released by the receiver
+     */
+    ByteBuf encode(ByteBuf raw, byte[] dictionary);
+
+    /**
+     * Decompress a buffer which was compressed with a preset dictionary.
+     *
+     * @param encoded
+     *            the compressed content
+     * @param uncompressedSize
+     *            the size of the original content
+     * @param dictionary
+     *            the dictionary used to compress the content, or null if no dictionary was used
+     * @return a ByteBuf with the compressed content. The buffer needs to be released by the receiver
+     * @throws IOException
+     *             if the decompression fails
+     */
+    ByteBuf decode(ByteBuf encoded, int uncompressedSize, byte[] dictionary) throws IOException;
+
+    /**
+     * Decompress a buffer with the given codec, and with a preset dictionary when one is given.
+     *
+     * @throws IOException
+     *             if the decompression fails, or if a dictionary is given and the codec doesn't support them
+     */
+    static ByteBuf decode(CompressionCodec codec, ByteBuf encoded, int uncompressedSize, byte[] dictionary)
+            throws IOException {
+        if (dictionary == null) {
+            return codec.decode(encoded, uncompressedSize);
+        }
+        if (!(codec instanceof CompressionDictionaryCodec)) {
+            throw new IOException("Compression dictionaries are not supported by " + codec.getClass());
+        }
+        return ((CompressionDictionaryCodec) codec).decode(encoded, uncompressedSize, dictionary);
+    }
+}
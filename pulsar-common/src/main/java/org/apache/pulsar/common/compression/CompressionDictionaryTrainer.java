@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.common.compression;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Trains a compression dictionary from sample messages.
+ *
+ * <p/>This is a simplified version of the COVER algorithm: the samples are split into epochs, and from each epoch
+ * the segment covering the most frequent byte sequences, i.e. the ones found in the most samples, is added to the
+ * dictionary. The sequences of a selected segment don't count anymore for the next epochs, so the dictionary holds
+ * as few duplicates as possible.
+ *
+ * <p/>The segments are ordered from the least to the most useful, since the compressors encode the shorter
+ * distances, to the end of the dictionary, with fewer bits.
+ */
+public final class CompressionDictionaryTrainer {
+
+    /**
+     * The size of the window of deflate, so the content past it would never be referenced.
+     */
+    public static final int MAX_DICTIONARY_SIZE = 32 * 1024;
+    public static final int DEFAULT_DICTIONARY_SIZE = 16 * 1024;
+
+    // Length of the byte sequences, which fits in a long
+    private static final int DMER_SIZE = 8;
+    private static final int SEGMENT_SIZE = 64;
+
+    private CompressionDictionaryTrainer() {
+    }
+
+    /**
+     * Train a dictionary.
+     *
+     * @param samples the uncompressed sample messages
+     * @param maxSize the maximum size of the dictionary, up to {@link #MAX_DICTIONARY_SIZE}
+     * @return the dictionary, empty if the samples have no content in common
+     */
+    public static byte[] train(List<byte[]> samples, int maxSize) {
+        checkArgument(maxSize > 0 && maxSize <= MAX_DICTIONARY_SIZE, "Invalid dictionary size %s", maxSize);
+
+        // Number of samples containing each sequence
+        Map<Long, Integer> frequencies = new HashMap<>();
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        for (byte[] sample : samples) {
+            Set<Long> dmers = new HashSet<>();
+            for (int i = 0; i + DMER_SIZE <= sample.length; i++) {
+                dmers.add(dmer(sample, i));
+            }
+            for (Long dmer : dmers) {
+                frequencies.merge(dmer, 1, Integer::sum);
+            }
+            content.write(sample, 0, sample.length);
+        }
+        byte[] data = content.toByteArray();
+        if (data.length < SEGMENT_SIZE) {
+            return new byte[0];
+        }
+
+        int epochs = Math.max(1, Math.min(maxSize / SEGMENT_SIZE, data.length / SEGMENT_SIZE));
+        int epochSize = data.length / epochs;
+        List<Segment> segments = new ArrayList<>(epochs);
+        for (int epoch = 0; epoch < epochs; epoch++) {
+            int start = epoch * epochSize;
+            int end = epoch == epochs - 1 ? data.length : start + epochSize;
+            Segment segment = bestSegment(data, start, end, frequencies);
+            if (segment.score > 0) {
+                segments.add(segment);
+                // The sequences of the segment are now covered by the dictionary
+                for (int i = segment.offset; i + DMER_SIZE <= segment.offset + SEGMENT_SIZE; i++) {
+                    frequencies.remove(dmer(data, i));
+                }
+            }
+        }
+
+        // Keep the most useful segments, with the best one at the end
+        segments.sort(Comparator.comparingLong((Segment s) -> s.score).reversed());
+        if (segments.size() > maxSize / SEGMENT_SIZE) {
+            segments = segments.subList(0, maxSize / SEGMENT_SIZE);
+        }
+        byte[] dictionary = new byte[segments.size() * SEGMENT_SIZE];
+        int offset = dictionary.length;
+        for (Segment segment : segments) {
+            offset -= SEGMENT_SIZE;
+            System.arraycopy(data, segment.offset, dictionary, offset, SEGMENT_SIZE);
+        }
+        return dictionary;
+    }
+
+    /**
+     * Find the segment of {@code data[start, end)} with the highest score, i.e. the sum of the frequencies of the
+     * distinct sequences it contains, the sequences found in a single sample not being worth anything.
+     */
+    private static Segment bestSegment(byte[] data, int start, int end, Map<Long, Integer> frequencies) {
+        Map<Long, Integer> window = new HashMap<>();
+        Segment best = new Segment(start, 0);
+        long score = 0;
+        int dmersInSegment = SEGMENT_SIZE - DMER_SIZE + 1;
+        for (int i = start; i + DMER_SIZE <= end; i++) {
+            long added = dmer(data, i);
+            if (window.merge(added, 1, Integer::sum) == 1) {
+                score += score(frequencies, added);
+            }
+            int first = i - dmersInSegment + 1;
+            if (first < start) {
+                continue;
+            }
+            if (score > best.score) {
+                best = new Segment(first, score);
+            }
+            long removed = dmer(data, first);
+            if (window.merge(removed, -1, Integer::sum) == 0) {
+                window.remove(removed);
+                score -= score(frequencies, removed);
+            }
+        }
+        return best;
+    }
+
+    private static long score(Map<Long, Integer> frequencies, long dmer) {
+        return Math.max(0, frequencies.getOrDefault(dmer, 0) - 1);
+    }
+
+    private static long dmer(byte[] data, int offset) {
+        long value = 0;
+        for (int i = 0; i < DMER_SIZE; i++) {
+            value = (value << 8) | (data[offset + i] & 0xFF);
+        }
+        return value;
+    }
+
+    private static final class Segment {
+        private final int offset;
+        private final long score;
+
+        private Segment(int offset, long score) {
+            this.offset = offset;
+            this.score = score;
+        }
+    }
+}
@@ -18,15 +18,10 @@
  */
 package org.apache.pulsar.common.naming;
 
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
-import com.google.common.util.concurrent.UncheckedExecutionException;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
+import org.apache.pulsar.common.util.collections.ConcurrentClockCache;
 
 /**
  * Parser of a value from the namespace field provided in configuration.
@@ -39,13 +34,7 @@ public class NamespaceName implements ServiceUnitId {
     private final String cluster;
     private final String localName;
 
-    private static final LoadingCache<String, NamespaceName> cache = CacheBuilder.newBuilder().maximumSize(100000)
-            .expireAfterAccess(30, TimeUnit.MINUTES).build(new CacheLoader<String, NamespaceName>() {
-                @Override
-                public NamespaceName load(String name) throws Exception {
-                    return new NamespaceName(name);
-                }
-            });
+    private static final ConcurrentClockCache<NamespaceName> cache = new ConcurrentClockCache<>(100_000);
 
     public static final NamespaceName SYSTEM_NAMESPACE = NamespaceName.get("pulsar/system");
 
@@ -63,13 +52,22 @@ public class NamespaceName implements ServiceUnitId {
         if (namespace == null || namespace.isEmpty()) {
             throw new IllegalArgumentException("Invalid null namespace: " + namespace);
         }
-        try {
-            return cache.get(namespace);
-        } catch (ExecutionException e) {
-            throw (RuntimeException) e.getCause();
-        } catch (UncheckedExecutionException e) {
-            throw (RuntimeException) e.getCause();
+        return cache.get(namespace, NamespaceName::new);
+    }
+
+    /**
+     * Get the namespace name of a sequence of characters, without creating a String when the namespace name is
+     * cached.
+     */
+    public static NamespaceName get(CharSequence namespace) {
+        if (namespace == null || namespace.length() == 0) {
+            throw new IllegalArgumentException("Invalid null namespace: " + namespace);
+        }
+        NamespaceName ns = cache.getIfPresent(namespace);
+        if (ns != null) {
+            return ns;
         }
+        return get(namespace.toString());
     }
 
     public static Optional<NamespaceName> getIfValid(String namespace) {
@@ -18,15 +18,18 @@
  */
 package org.apache.pulsar.common.naming;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Splitter;
 import com.google.re2j.Pattern;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import io.netty.buffer.ByteBuf;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
-import java.util.concurrent.ConcurrentHashMap;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.pulsar.common.util.Codec;
+import org.apache.pulsar.common.util.collections.ConcurrentClockCache;
 
 /**
  * Encapsulate the parsing of the completeTopicName name.
@@ -50,8 +53,28 @@ public class TopicName implements ServiceUnitId {
 
     private final int partitionIndex;
 
-    private static final ConcurrentHashMap<String, TopicName> cache = new ConcurrentHashMap<>();
+    private static final int DEFAULT_CACHE_MAX_CAPACITY = 100_000;
 
+    private static final ConcurrentClockCache<TopicName> cache =
+            new ConcurrentClockCache<>(DEFAULT_CACHE_MAX_CAPACITY);
+
+    /**
+     * Set the max number of cached topic names, -1 for an unbounded cache. When the capacity is reached, the least
+     * recently used names are evicted.
+     */
+    public static void setCacheMaxCapacity(int maxCapacity) {
+        cache.setMaxCapacity(maxCapacity);
+    }
+
+    @VisibleForTesting
+    public static int getCacheSize() {
+        return cache.size();
+    }
+
+    /**
+     * @deprecated the cache is bounded by {@link #setCacheMaxCapacity(int)}
+     */
+    @Deprecated
     public static void clearIfReachedMaxCapacity(int maxCapacity) {
         if (maxCapacity < 0) {
             // Unlimited cache.
@@ -79,11 +102,30 @@ public class TopicName implements ServiceUnitId {
     }
 
     public static TopicName get(String topic) {
-        TopicName tp = cache.get(topic);
+        return cache.get(topic, TopicName::new);
+    }
+
+    /**
+     * Get the topic name of a sequence of characters, without creating a String when the topic name is cached.
+     */
+    public static TopicName get(CharSequence topic) {
+        TopicName tp = cache.getIfPresent(topic);
+        if (tp != null) {
+            return tp;
+        }
+        return get(topic.toString());
+    }
+
+    /**
+     * Get the topic name of the UTF-8 bytes {@code [index, index + length)} of a buffer, e.g. a field of a command,
+     * without creating a String when the topic name is cached. The buffer indexes are not modified.
+     */
+    public static TopicName get(ByteBuf buf, int index, int length) {
+        TopicName tp = cache.getIfPresent(buf, index, length);
         if (tp != null) {
             return tp;
         }
-        return cache.computeIfAbsent(topic, k -> new TopicName(k));
+        return get(buf.toString(index, length, StandardCharsets.UTF_8));
     }
 
     public static TopicName getPartitionedTopicName(String topic) {
@@ -137,10 +179,9 @@ public class TopicName implements ServiceUnitId {
             // new:    persistent://tenant/namespace/topic
             // legacy: persistent://tenant/cluster/namespace/topic
 
-            List<String> parts = Splitter.on("://").limit(2).splitToList(completeTopicName);
-            this.domain = TopicDomain.getEnum(parts.get(0));
-
-            String rest = parts.get(1);
+            int domainEnd = completeTopicName.indexOf("://");
+            String domainName = completeTopicName.substring(0, domainEnd);
+            this.domain = TopicDomain.getEnum(domainName);
 
             // The rest of the name can be in different forms:
             // new:    tenant/namespace/<localName>
@@ -149,26 +190,28 @@ public class TopicName implements ServiceUnitId {
             // 1. some, name, xyz
             // 2. xyz-123, feeder-2
 
-
-            parts = Splitter.on("/").limit(4).splitToList(rest);
-            if (parts.size() == 3) {
+            int tenantStart = domainEnd + 3;
+            int tenantEnd = completeTopicName.indexOf('/', tenantStart);
+            int secondEnd = tenantEnd < 0 ? -1 : completeTopicName.indexOf('/', tenantEnd + 1);
+            if (secondEnd < 0) {
+                throw new IllegalArgumentException("Invalid topic name: " + completeTopicName);
+            }
+            int thirdEnd = completeTopicName.indexOf('/', secondEnd + 1);
+            this.tenant = completeTopicName.substring(tenantStart, tenantEnd);
+            if (thirdEnd < 0) {
                 // New topic name without cluster name
-                this.tenant = parts.get(0);
                 this.cluster = null;
-                this.namespacePortion = parts.get(1);
-                this.localName = parts.get(2);
+                this.namespacePortion = completeTopicName.substring(tenantEnd + 1, secondEnd);
+                this.localName = completeTopicName.substring(secondEnd + 1);
                 this.partitionIndex = getPartitionIndex(completeTopicName);
                 this.namespaceName = NamespaceName.get(tenant, namespacePortion);
-            } else if (parts.size() == 4) {
+            } else {
                 // Legacy topic name that includes cluster name
-                this.tenant = parts.get(0);
-                this.cluster = parts.get(1);
-                this.namespacePortion = parts.get(2);
-                this.localName = parts.get(3);
+                this.cluster = completeTopicName.substring(tenantEnd + 1, secondEnd);
+                this.namespacePortion = completeTopicName.substring(secondEnd + 1, thirdEnd);
+                this.localName = completeTopicName.substring(thirdEnd + 1);
                 this.partitionIndex = getPartitionIndex(completeTopicName);
                 this.namespaceName = NamespaceName.get(tenant, cluster, namespacePortion);
-            } else {
-                throw new IllegalArgumentException("Invalid topic name: " + completeTopicName);
             }
 
             if (StringUtils.isBlank(localName)) {
@@ -176,17 +219,18 @@ public class TopicName implements ServiceUnitId {
                         + " be blank.", completeTopicName));
             }
 
+            if (domainName.equals(domain.value())) {
+                // The parts are joined back with the same separators
+                this.completeTopicName = completeTopicName;
+            } else if (isV2()) {
+                this.completeTopicName = domain + "://" + tenant + "/" + namespacePortion + "/" + localName;
+            } else {
+                this.completeTopicName = domain + "://" + tenant + "/" + cluster + "/" + namespacePortion + "/"
+                        + localName;
+            }
         } catch (NullPointerException e) {
             throw new IllegalArgumentException("Invalid topic name: " + completeTopicName, e);
         }
-        if (isV2()) {
-            this.completeTopicName = String.format("%s://%s/%s/%s",
-                                                   domain, tenant, namespacePortion, localName);
-        } else {
-            this.completeTopicName = String.format("%s://%s/%s/%s/%s",
-                                                   domain, tenant, cluster,
-                                                   namespacePortion, localName);
-        }
     }
 
     public boolean isPersistent() {
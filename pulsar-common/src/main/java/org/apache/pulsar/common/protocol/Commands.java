@@ -32,6 +32,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Base64;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -67,6 +68,8 @@ import org.apache.pulsar.common.api.proto.CommandConnected;
 import org.apache.pulsar.common.api.proto.CommandEndTxnOnPartitionResponse;
 import org.apache.pulsar.common.api.proto.CommandEndTxnOnSubscriptionResponse;
 import org.apache.pulsar.common.api.proto.CommandEndTxnResponse;
+import org.apache.pulsar.common.api.proto.CommandGetCompressionDictionary;
+import org.apache.pulsar.common.api.proto.CommandGetCompressionDictionaryResponse;
 import org.apache.pulsar.common.api.proto.CommandGetLastMessageIdResponse;
 import org.apache.pulsar.common.api.proto.CommandGetSchema;
 import org.apache.pulsar.common.api.proto.CommandGetSchemaResponse;
@@ -103,6 +106,7 @@ import org.apache.pulsar.common.api.proto.ServerError;
 import org.apache.pulsar.common.api.proto.SingleMessageMetadata;
 import org.apache.pulsar.common.api.proto.Subscription;
 import org.apache.pulsar.common.api.proto.TxnAction;
+import org.apache.pulsar.common.compression.CompressionDictionary;
 import org.apache.pulsar.common.intercept.BrokerEntryMetadataInterceptor;
 import org.apache.pulsar.common.protocol.schema.SchemaVersion;
 import org.apache.pulsar.common.schema.SchemaInfo;
@@ -117,6 +121,8 @@ public class Commands {
 
     // default message size for transfer
     public static final int DEFAULT_MAX_MESSAGE_SIZE = 5 * 1024 * 1024;
+    // the max number of entries in the compact ack ranges of an ack, when the broker does not advertise it
+    public static final int DEFAULT_MAX_COMPACT_ACK_ENTRIES = 100_000;
     public static final int MESSAGE_SIZE_FRAME_PADDING = 10 * 1024;
     public static final int INVALID_MAX_MESSAGE_SIZE = -1;
 
@@ -194,6 +200,7 @@ public class Commands {
         flags.setSupportsPartialProducer(true);
         flags.setSupportsGetPartitionedMetadataWithoutAutoCreation(true);
         flags.setSupportsReplDedupByLidAndEid(true);
+        flags.setSupportsCompressionDictionaries(true);
     }
 
     public static ByteBuf newConnect(String authMethodName, String authData, int protocolVersion, String libVersion,
@@ -319,6 +326,8 @@ public class Commands {
         connected.setFeatureFlags().setSupportsTopicWatchers(supportsTopicWatchers);
         connected.setFeatureFlags().setSupportsGetPartitionedMetadataWithoutAutoCreation(true);
         connected.setFeatureFlags().setSupportsReplDedupByLidAndEid(true);
+        connected.setFeatureFlags().setSupportsCompressionDictionaries(true);
+        connected.setFeatureFlags().setSupportsCompactAcks(true);
         return cmd;
     }
 
@@ -1020,7 +1029,7 @@ public class Commands {
 
     public static ByteBuf newMultiTransactionMessageAck(long consumerId, TxnID txnID,
             List<Triple<Long, Long, ConcurrentBitSetRecyclable>> entries) {
-        BaseCommand cmd = newMultiMessageAckCommon(entries);
+        BaseCommand cmd = newMultiMessageAckCommon(entries, false);
         cmd.getAck()
                 .setConsumerId(consumerId)
                 .setAckType(AckType.Individual)
@@ -1029,14 +1038,23 @@ public class Commands {
         return serializeWithSize(cmd);
     }
 
-    private static BaseCommand newMultiMessageAckCommon(List<Triple<Long, Long, ConcurrentBitSetRecyclable>> entries) {
+    private static BaseCommand newMultiMessageAckCommon(List<Triple<Long, Long, ConcurrentBitSetRecyclable>> entries,
+                                                        boolean compactAckRanges) {
         BaseCommand cmd = localCmd(Type.ACK);
         CommandAck ack = cmd.setAck();
         int entriesCount = entries.size();
+        List<Triple<Long, Long, ConcurrentBitSetRecyclable>> wholeEntries = null;
         for (int i = 0; i < entriesCount; i++) {
             long ledgerId = entries.get(i).getLeft();
             long entryId = entries.get(i).getMiddle();
             ConcurrentBitSetRecyclable bitSet = entries.get(i).getRight();
+            if (compactAckRanges && bitSet == null) {
+                if (wholeEntries == null) {
+                    wholeEntries = new ArrayList<>(entriesCount);
+                }
+                wholeEntries.add(entries.get(i));
+                continue;
+            }
             MessageIdData msgId = ack.addMessageId()
                     .setLedgerId(ledgerId)
                     .setEntryId(entryId);
@@ -1048,6 +1066,19 @@ public class Commands {
                 bitSet.recycle();
             }
         }
+        if (wholeEntries != null) {
+            // The whole entries are sent as ranges, the partially acknowledged batches still need their ack sets
+            wholeEntries.sort(Comparator.comparing(Triple<Long, Long, ConcurrentBitSetRecyclable>::getLeft)
+                    .thenComparing(Triple::getMiddle));
+            int count = wholeEntries.size();
+            long[] ledgerIds = new long[count];
+            long[] entryIds = new long[count];
+            for (int i = 0; i < count; i++) {
+                ledgerIds[i] = wholeEntries.get(i).getLeft();
+                entryIds[i] = wholeEntries.get(i).getMiddle();
+            }
+            ack.setCompactAckRanges(CompactAckRanges.encode(ledgerIds, entryIds, count));
+        }
 
         return cmd;
     }
@@ -1055,7 +1086,18 @@ public class Commands {
     public static ByteBuf newMultiMessageAck(long consumerId,
                                              List<Triple<Long, Long, ConcurrentBitSetRecyclable>> entries,
                                              long requestId) {
-        BaseCommand cmd = newMultiMessageAckCommon(entries);
+        return newMultiMessageAck(consumerId, entries, requestId, false);
+    }
+
+    /**
+     * Create an individual ack of multiple messages.
+     *
+     * @param compactAckRanges whether to send the whole entries as compact ranges, when the broker supports it
+     */
+    public static ByteBuf newMultiMessageAck(long consumerId,
+                                             List<Triple<Long, Long, ConcurrentBitSetRecyclable>> entries,
+                                             long requestId, boolean compactAckRanges) {
+        BaseCommand cmd = newMultiMessageAckCommon(entries, compactAckRanges);
         cmd.getAck()
                 .setConsumerId(consumerId)
                 .setAckType(AckType.Individual);
@@ -1347,6 +1389,46 @@ public class Commands {
         return serializeWithSize(newGetSchemaResponseErrorCommand(requestId, error, errorMessage));
     }
 
+    public static ByteBuf newGetCompressionDictionary(long requestId, String topic, Optional<Long> version) {
+        BaseCommand cmd = localCmd(Type.GET_COMPRESSION_DICTIONARY);
+        CommandGetCompressionDictionary getDictionary = cmd.setGetCompressionDictionary()
+                .setRequestId(requestId)
+                .setTopic(topic);
+        version.ifPresent(getDictionary::setVersion);
+        return serializeWithSize(cmd);
+    }
+
+    public static BaseCommand newGetCompressionDictionaryResponseCommand(long requestId,
+            CompressionDictionary dictionary) {
+        BaseCommand cmd = localCmd(Type.GET_COMPRESSION_DICTIONARY_RESPONSE);
+        CommandGetCompressionDictionaryResponse response = cmd.setGetCompressionDictionaryResponse()
+                .setRequestId(requestId);
+        if (dictionary != null) {
+            response.setVersion(dictionary.getVersion())
+                    .setDictionary(dictionary.getData());
+        }
+        return cmd;
+    }
+
+    public static ByteBuf newGetCompressionDictionaryResponse(long requestId, CompressionDictionary dictionary) {
+        return serializeWithSize(newGetCompressionDictionaryResponseCommand(requestId, dictionary));
+    }
+
+    public static BaseCommand newGetCompressionDictionaryResponseErrorCommand(long requestId, ServerError error,
+            String errorMessage) {
+        BaseCommand cmd = localCmd(Type.GET_COMPRESSION_DICTIONARY_RESPONSE);
+        cmd.setGetCompressionDictionaryResponse()
+                .setRequestId(requestId)
+                .setErrorCode(error)
+                .setErrorMessage(errorMessage);
+        return cmd;
+    }
+
+    public static ByteBuf newGetCompressionDictionaryResponseError(long requestId, ServerError error,
+            String errorMessage) {
+        return serializeWithSize(newGetCompressionDictionaryResponseErrorCommand(requestId, error, errorMessage));
+    }
+
     public static ByteBuf newGetOrCreateSchema(long requestId, String topic, SchemaInfo schemaInfo) {
         BaseCommand cmd = localCmd(Type.GET_OR_CREATE_SCHEMA);
         Schema schema = cmd.setGetOrCreateSchema()
@@ -1875,6 +1957,16 @@ public class Commands {
 
     public static ByteBuf serializeSingleMessageInBatchWithPayload(MessageMetadata msg,
             ByteBuf payload, ByteBuf batchBuffer) {
+        serializeSingleMessageMetadataInBatch(msg, payload.readableBytes(), batchBuffer);
+        return batchBuffer.writeBytes(payload);
+    }
+
+    /**
+     * Serializes the size and the metadata of a single message in a batch, without its payload, which has to be
+     * written right after them.
+     */
+    public static ByteBuf serializeSingleMessageMetadataInBatch(MessageMetadata msg, int payloadSize,
+                                                                ByteBuf batchBuffer) {
         // build single message meta-data
         SingleMessageMetadata smm = LOCAL_SINGLE_MESSAGE_METADATA.get();
         smm.clear();
@@ -1908,7 +2000,10 @@ public class Commands {
             smm.setNullPartitionKey(msg.isNullPartitionKey());
         }
 
-        return serializeSingleMessageInBatchWithPayload(smm, payload, batchBuffer);
+        smm.setPayloadSize(payloadSize);
+        batchBuffer.writeInt(smm.getSerializedSize());
+        smm.writeTo(batchBuffer);
+        return batchBuffer;
     }
 
     public static ByteBuf deSerializeSingleMessageInBatch(ByteBuf uncompressedPayload,
@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.common.protocol;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import lombok.experimental.UtilityClass;
+import org.apache.pulsar.common.allocator.PulsarByteBufAllocator;
+
+/**
+ * Compact encoding of the entries acknowledged individually, as sent in {@code CommandAck.compact_ack_ranges}.
+ *
+ * <p/>The consecutive entries of a ledger are coalesced into ranges, and each range is encoded as a record of
+ * three unsigned varints:
+ * <ul>
+ * <li>the delta from the ledger id of the previous range, which is the ledger id itself for the first range</li>
+ * <li>the first entry id, as a delta from the last entry id of the previous range (minus one) when the ledger is
+ * the same, and as an absolute entry id otherwise</li>
+ * <li>the number of entries in the range, minus one</li>
+ * </ul>
+ */
+@UtilityClass
+public class CompactAckRanges {
+
+    /**
+     * Receives the decoded ranges of entries.
+     */
+    @FunctionalInterface
+    public interface RangeConsumer {
+        void accept(long ledgerId, long firstEntryId, long lastEntryId);
+    }
+
+    /**
+     * Encode the acknowledged entries.
+     *
+     * @param ledgerIds the ledger ids of the entries, in ascending order
+     * @param entryIds the entry ids, in ascending order for the entries of a same ledger
+     * @param count the number of entries
+     */
+    public static byte[] encode(long[] ledgerIds, long[] entryIds, int count) {
+        ByteBuf buf = PulsarByteBufAllocator.DEFAULT.heapBuffer(count * 3);
+        try {
+            long previousLedgerId = 0;
+            long previousLastEntryId = -1;
+            int i = 0;
+            while (i < count) {
+                long ledgerId = ledgerIds[i];
+                long firstEntryId = entryIds[i];
+                long lastEntryId = firstEntryId;
+                // Coalesce the consecutive entries, and skip the duplicated ones
+                while (++i < count && ledgerIds[i] == ledgerId && entryIds[i] <= lastEntryId + 1) {
+                    lastEntryId = Math.max(lastEntryId, entryIds[i]);
+                }
+                if (ledgerId < previousLedgerId
+                        || ledgerId == previousLedgerId && firstEntryId <= previousLastEntryId) {
+                    throw new IllegalArgumentException("The entries are not sorted at ledger " + ledgerId
+                            + " entry " + firstEntryId);
+                }
+                writeVarLong(buf, ledgerId - previousLedgerId);
+                if (ledgerId == previousLedgerId) {
+                    writeVarLong(buf, firstEntryId - previousLastEntryId - 1);
+                } else {
+                    writeVarLong(buf, firstEntryId);
+                }
+                writeVarLong(buf, lastEntryId - firstEntryId);
+                previousLedgerId = ledgerId;
+                previousLastEntryId = lastEntryId;
+            }
+            return ByteBufUtil.getBytes(buf);
+        } finally {
+            buf.release();
+        }
+    }
+
+    /**
+     * Decode the ranges of acknowledged entries.
+     *
+     * @throws IllegalArgumentException if the encoded ranges are malformed
+     */
+    public static void decode(byte[] data, RangeConsumer consumer) {
+        ByteBuf encoded = Unpooled.wrappedBuffer(data);
+        long previousLedgerId = 0;
+        long previousLastEntryId = -1;
+        while (encoded.isReadable()) {
+            long ledgerIdDelta = readVarLong(encoded);
+            long entryIdDelta = readVarLong(encoded);
+            long rangeSize = readVarLong(encoded);
+            long ledgerId = previousLedgerId + ledgerIdDelta;
+            long firstEntryId = ledgerIdDelta != 0 ? entryIdDelta : previousLastEntryId + 1 + entryIdDelta;
+            long lastEntryId = firstEntryId + rangeSize;
+            if (ledgerId < 0 || firstEntryId < 0 || lastEntryId < 0) {
+                throw new IllegalArgumentException("Invalid ack range at ledger " + ledgerId);
+            }
+            consumer.accept(ledgerId, firstEntryId, lastEntryId);
+            previousLedgerId = ledgerId;
+            previousLastEntryId = lastEntryId;
+        }
+    }
+
+    private static void writeVarLong(ByteBuf buf, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buf.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buf.writeByte((int) value);
+    }
+
+    private static long readVarLong(ByteBuf buf) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (!buf.isReadable()) {
+                throw new IllegalArgumentException("Truncated ack ranges");
+            }
+            byte b = buf.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint in ack ranges");
+    }
+}
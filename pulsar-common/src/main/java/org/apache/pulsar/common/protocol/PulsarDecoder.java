@@ -48,6 +48,8 @@ import org.apache.pulsar.common.api.proto.CommandEndTxnOnSubscriptionResponse;
 import org.apache.pulsar.common.api.proto.CommandEndTxnResponse;
 import org.apache.pulsar.common.api.proto.CommandError;
 import org.apache.pulsar.common.api.proto.CommandFlow;
+import org.apache.pulsar.common.api.proto.CommandGetCompressionDictionary;
+import org.apache.pulsar.common.api.proto.CommandGetCompressionDictionaryResponse;
 import org.apache.pulsar.common.api.proto.CommandGetLastMessageId;
 import org.apache.pulsar.common.api.proto.CommandGetLastMessageIdResponse;
 import org.apache.pulsar.common.api.proto.CommandGetOrCreateSchema;
@@ -378,6 +380,23 @@ public abstract class PulsarDecoder extends ChannelInboundHandlerAdapter {
                 handleGetOrCreateSchemaResponse(cmd.getGetOrCreateSchemaResponse());
                 break;
 
+            case GET_COMPRESSION_DICTIONARY:
+                checkArgument(cmd.hasGetCompressionDictionary());
+                try {
+                    interceptCommand(cmd);
+                    handleGetCompressionDictionary(cmd.getGetCompressionDictionary());
+                } catch (InterceptException e) {
+                    writeAndFlush(ctx, Commands.newGetCompressionDictionaryResponseError(
+                            cmd.getGetCompressionDictionary().getRequestId(), getServerError(e.getErrorCode()),
+                            e.getMessage()));
+                }
+                break;
+
+            case GET_COMPRESSION_DICTIONARY_RESPONSE:
+                checkArgument(cmd.hasGetCompressionDictionaryResponse());
+                handleGetCompressionDictionaryResponse(cmd.getGetCompressionDictionaryResponse());
+                break;
+
             case AUTH_CHALLENGE:
                 checkArgument(cmd.hasAuthChallenge());
                 handleAuthChallenge(cmd.getAuthChallenge());
@@ -656,6 +675,15 @@ public abstract class PulsarDecoder extends ChannelInboundHandlerAdapter {
         throw new UnsupportedOperationException();
     }
 
+    protected void handleGetCompressionDictionary(CommandGetCompressionDictionary commandGetCompressionDictionary) {
+        throw new UnsupportedOperationException();
+    }
+
+    protected void handleGetCompressionDictionaryResponse(
+            CommandGetCompressionDictionaryResponse commandGetCompressionDictionaryResponse) {
+        throw new UnsupportedOperationException();
+    }
+
     protected void handleAuthResponse(CommandAuthResponse commandAuthResponse) {
         throw new UnsupportedOperationException();
     }
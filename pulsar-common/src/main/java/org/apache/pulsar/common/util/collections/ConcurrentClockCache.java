@@ -0,0 +1,352 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.common.util.collections;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+import io.netty.buffer.ByteBuf;
+import java.util.function.Function;
+
+/**
+ * Bounded cache of the values parsed from strings, e.g. the topic and namespace names.
+ *
+ * <p>The cache is split in segments, each evicting its entries with the CLOCK algorithm once its share of the
+ * capacity is reached, so that the cache never holds more entries than its capacity: the entries which were read
+ * since the clock hand last passed over them get a second chance, while the other ones are evicted.
+ *
+ * <p>The lookups don't take any lock and can be done with any {@link CharSequence} or with the ASCII bytes of a
+ * {@link ByteBuf}, without creating a String when the entry is cached. The values are loaded outside of the locks,
+ * so the same value may be loaded by several threads, but only one of them is cached and returned to all of them.
+ *
+ * @param <V> the type of the values
+ */
+@SuppressWarnings("unchecked")
+public class ConcurrentClockCache<V> {
+
+    private static final int DefaultConcurrencyLevel = 16;
+    private static final int InitialSegmentSize = 16;
+    private static final float MapFillFactor = 0.75f;
+
+    private final Segment<V>[] segments;
+    private final int segmentShift;
+
+    public ConcurrentClockCache(int maxCapacity) {
+        this(maxCapacity, DefaultConcurrencyLevel);
+    }
+
+    /**
+     * @param maxCapacity the max number of entries, or a negative value for an unbounded cache
+     * @param concurrencyLevel the number of segments, rounded up to a power of 2
+     */
+    public ConcurrentClockCache(int maxCapacity, int concurrencyLevel) {
+        checkArgument(concurrencyLevel > 0 && concurrencyLevel <= (1 << 16));
+        int numSegments = Integer.highestOneBit(concurrencyLevel - 1) << 1;
+        if (concurrencyLevel == 1) {
+            numSegments = 1;
+        }
+        this.segments = new Segment[numSegments];
+        this.segmentShift = 32 - Integer.numberOfTrailingZeros(numSegments);
+        for (int i = 0; i < numSegments; i++) {
+            segments[i] = new Segment<>();
+        }
+        setMaxCapacity(maxCapacity);
+    }
+
+    /**
+     * Change the max number of entries, a negative value making the cache unbounded. The entries exceeding the new
+     * capacity are evicted right away.
+     */
+    public void setMaxCapacity(int maxCapacity) {
+        for (int i = 0; i < segments.length; i++) {
+            // The remainder is spread over the first segments, some segments don't cache anything when the capacity
+            // is lower than the number of segments
+            int segmentCapacity = maxCapacity < 0 ? Integer.MAX_VALUE
+                    : maxCapacity / segments.length + (i < maxCapacity % segments.length ? 1 : 0);
+            segments[i].setCapacity(segmentCapacity);
+        }
+    }
+
+    /**
+     * Get the value of a key, loading and caching it if it isn't cached.
+     *
+     * @param loader the function loading the value of the key, it may throw an exception, in which case nothing is
+     *               cached and the exception is propagated to the caller
+     */
+    public V get(String key, Function<String, ? extends V> loader) {
+        int h = hash(key.hashCode());
+        Segment<V> s = segmentFor(h);
+        V value = s.get(key, h);
+        if (value != null) {
+            return value;
+        }
+        return s.putIfAbsent(key, h, requireNonNull(loader.apply(key)));
+    }
+
+    public V getIfPresent(CharSequence key) {
+        int h = hash(hashCode(key));
+        return segmentFor(h).get(key, h);
+    }
+
+    /**
+     * Get the value of the key made of the bytes {@code [index, index + length)} of a buffer, without changing its
+     * indexes. Only the ASCII keys can be found, so null is returned for the keys with any other character.
+     */
+    public V getIfPresent(ByteBuf buf, int index, int length) {
+        int h = 0;
+        for (int i = 0; i < length; i++) {
+            byte b = buf.getByte(index + i);
+            if (b < 0) {
+                return null;
+            }
+            h = 31 * h + b;
+        }
+        h = hash(h);
+        return segmentFor(h).get(buf, index, length, h);
+    }
+
+    public V remove(String key) {
+        int h = hash(key.hashCode());
+        return segmentFor(h).remove(key, h);
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment<V> s : segments) {
+            size += s.size();
+        }
+        return size;
+    }
+
+    public void clear() {
+        for (Segment<V> s : segments) {
+            s.clear();
+        }
+    }
+
+    private Segment<V> segmentFor(int h) {
+        return segments.length == 1 ? segments[0] : segments[h >>> segmentShift];
+    }
+
+    private static int hashCode(CharSequence key) {
+        if (key instanceof String) {
+            return key.hashCode();
+        }
+        // Same as String.hashCode(), so that the keys can be found with any char sequence
+        int h = 0;
+        for (int i = 0, length = key.length(); i < length; i++) {
+            h = 31 * h + key.charAt(i);
+        }
+        return h;
+    }
+
+    private static int hash(int h) {
+        // Spread the bits, the highest ones select the segment and the lowest ones the bucket in the segment
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static final class Node<V> {
+        private final String key;
+        private final int hash;
+        private final V value;
+        private volatile Node<V> next;
+        private volatile boolean referenced;
+        // Position in the clock, guarded by the segment lock
+        private int slot;
+
+        Node(String key, int hash, V value, Node<V> next) {
+            this.key = key;
+            this.hash = hash;
+            this.value = value;
+            this.next = next;
+        }
+
+        V read() {
+            if (!referenced) {
+                referenced = true;
+            }
+            return value;
+        }
+    }
+
+    private static final class Segment<V> {
+        // The table is read without lock, and it's replaced rather than rehashed in place when it grows, so that
+        // the concurrent lookups always follow valid chains
+        private volatile Node<V>[] table = new Node[InitialSegmentSize];
+
+        // Guarded by this
+        private Node<V>[] clock = new Node[InitialSegmentSize];
+        private int hand;
+        private int size;
+        private int capacity;
+
+        V get(String key, int hash) {
+            Node<V>[] t = table;
+            for (Node<V> n = t[hash & (t.length - 1)]; n != null; n = n.next) {
+                if (n.hash == hash && n.key.equals(key)) {
+                    return n.read();
+                }
+            }
+            return null;
+        }
+
+        V get(CharSequence key, int hash) {
+            Node<V>[] t = table;
+            for (Node<V> n = t[hash & (t.length - 1)]; n != null; n = n.next) {
+                if (n.hash == hash && n.key.contentEquals(key)) {
+                    return n.read();
+                }
+            }
+            return null;
+        }
+
+        V get(ByteBuf buf, int index, int length, int hash) {
+            Node<V>[] t = table;
+            for (Node<V> n = t[hash & (t.length - 1)]; n != null; n = n.next) {
+                if (n.hash == hash && equals(n.key, buf, index, length)) {
+                    return n.read();
+                }
+            }
+            return null;
+        }
+
+        private static boolean equals(String key, ByteBuf buf, int index, int length) {
+            if (key.length() != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (key.charAt(i) != buf.getByte(index + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        synchronized V putIfAbsent(String key, int hash, V value) {
+            Node<V>[] t = table;
+            for (Node<V> n = t[hash & (t.length - 1)]; n != null; n = n.next) {
+                if (n.hash == hash && n.key.equals(key)) {
+                    return n.read();
+                }
+            }
+
+            if (capacity == 0) {
+                return value;
+            }
+            while (size >= capacity) {
+                evict();
+            }
+            if (size == clock.length) {
+                Node<V>[] newClock = new Node[(int) Math.min(capacity, 2L * clock.length)];
+                System.arraycopy(clock, 0, newClock, 0, size);
+                clock = newClock;
+            }
+            if (size >= t.length * MapFillFactor) {
+                t = rehash(t);
+            }
+
+            int bucket = hash & (t.length - 1);
+            Node<V> node = new Node<>(key, hash, value, t[bucket]);
+            node.slot = size;
+            clock[size++] = node;
+            t[bucket] = node;
+            return value;
+        }
+
+        synchronized V remove(String key, int hash) {
+            Node<V>[] t = table;
+            for (Node<V> n = t[hash & (t.length - 1)]; n != null; n = n.next) {
+                if (n.hash == hash && n.key.equals(key)) {
+                    unlink(n);
+                    return n.value;
+                }
+            }
+            return null;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized void clear() {
+            table = new Node[InitialSegmentSize];
+            clock = new Node[InitialSegmentSize];
+            hand = 0;
+            size = 0;
+        }
+
+        synchronized void setCapacity(int capacity) {
+            this.capacity = capacity;
+            while (size > capacity) {
+                evict();
+            }
+        }
+
+        private void evict() {
+            while (true) {
+                if (hand >= size) {
+                    hand = 0;
+                }
+                Node<V> n = clock[hand];
+                if (n.referenced) {
+                    n.referenced = false;
+                    hand++;
+                } else {
+                    unlink(n);
+                    return;
+                }
+            }
+        }
+
+        private void unlink(Node<V> node) {
+            Node<V>[] t = table;
+            int bucket = node.hash & (t.length - 1);
+            Node<V> n = t[bucket];
+            if (n == node) {
+                t[bucket] = node.next;
+            } else {
+                while (n.next != node) {
+                    n = n.next;
+                }
+                n.next = node.next;
+            }
+
+            // Move the last node of the clock in the slot of the removed one
+            Node<V> last = clock[--size];
+            clock[node.slot] = last;
+            last.slot = node.slot;
+            clock[size] = null;
+        }
+
+        private Node<V>[] rehash(Node<V>[] t) {
+            Node<V>[] newTable = new Node[t.length * 2];
+            for (int i = 0; i < size; i++) {
+                Node<V> n = clock[i];
+                int bucket = n.hash & (newTable.length - 1);
+                Node<V> copy = new Node<>(n.key, n.hash, n.value, newTable[bucket]);
+                copy.referenced = n.referenced;
+                copy.slot = i;
+                clock[i] = copy;
+                newTable[bucket] = copy;
+            }
+            table = newTable;
+            return newTable;
+        }
+    }
+}
@@ -116,6 +116,25 @@ public interface LongPairRangeSet<T extends Comparable<T>> {
      */
     void forEachRawRange(RawRangeProcessor action);
 
+    /**
+     * Performs the given action for each range whose lower and upper keys are both the given key, until all the
+     * ranges have been processed or action returns "false".
+     *
+     * @param key the key of the ranges to process
+     * @param action to do iteration jobs.
+     */
+    default void forEachRawRange(long key, RawRangeProcessor action) {
+        forEachRawRange((lowerKey, lowerValue, upperKey, upperValue) -> {
+            if (lowerKey > key) {
+                return false;
+            }
+            if (lowerKey == key && upperKey == key) {
+                return action.processRawRange(lowerKey, lowerValue, upperKey, upperValue);
+            }
+            return true;
+        });
+    }
+
     /**
      * Returns total number of ranges into the set.
      *
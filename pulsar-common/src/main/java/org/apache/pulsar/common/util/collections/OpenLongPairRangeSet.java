@@ -214,24 +214,41 @@ public class OpenLongPairRangeSet<T extends Comparable<T>> implements LongPairRa
             if (completed.get()) {
                 return;
             }
-            if (set.isEmpty()) {
-                return;
-            }
-            int first = set.nextSetBit(0);
-            int last = set.previousSetBit(set.size());
-            int currentClosedMark = first;
-            while (currentClosedMark != -1 && currentClosedMark <= last) {
-                int nextOpenMark = set.nextClearBit(currentClosedMark);
-                if (!processor.processRawRange(key, currentClosedMark - 1,
-                        key, nextOpenMark - 1)) {
-                    completed.set(true);
-                    break;
-                }
-                currentClosedMark = set.nextSetBit(nextOpenMark);
+            if (!forEachRawRange(key, set, processor)) {
+                completed.set(true);
             }
         });
     }
 
+    @Override
+    public void forEachRawRange(long key, RawRangeProcessor processor) {
+        BitSet set = rangeBitSetMap.get(key);
+        if (set != null) {
+            forEachRawRange(key, set, processor);
+        }
+    }
+
+    /**
+     * @return false if the processor stopped the iteration
+     */
+    private static boolean forEachRawRange(long key, BitSet set, RawRangeProcessor processor) {
+        if (set.isEmpty()) {
+            return true;
+        }
+        int first = set.nextSetBit(0);
+        int last = set.previousSetBit(set.size());
+        int currentClosedMark = first;
+        while (currentClosedMark != -1 && currentClosedMark <= last) {
+            int nextOpenMark = set.nextClearBit(currentClosedMark);
+            if (!processor.processRawRange(key, currentClosedMark - 1,
+                    key, nextOpenMark - 1)) {
+                return false;
+            }
+            currentClosedMark = set.nextSetBit(nextOpenMark);
+        }
+        return true;
+    }
+
 
     @Override
     public Range<T> firstRange() {
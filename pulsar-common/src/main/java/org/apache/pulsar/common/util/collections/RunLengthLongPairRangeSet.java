@@ -0,0 +1,848 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.common.util.collections;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.BoundType;
+import com.google.common.collect.Range;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * A set comprising zero or more ranges of type {@link LongPair}, where the values of each key are stored as sorted
+ * runs of primitive ints, like the run containers of a roaring bitmap.
+ *
+ * <pre>
+ * Usage:
+ * a. The memory footprint only depends on the number of disjoint ranges, not on the values being tracked, so it
+ *    stays small when the values are large or when the ranges are long.
+ * b. The runs of a key are split in blocks of at most {@link #DEFAULT_MAX_RUNS_PER_BLOCK} runs. Lookups and
+ *    insertions are O(log n) in the number of ranges of the key, plus the shift of the runs of a single block when a
+ *    new range is created.
+ * c. The number of ranges can be limited. Once the limit is exceeded, the highest ranges are dropped, which are the
+ *    ranges that {@link #toRanges(int)} doesn't return with the same limit.
+ * </pre>
+ *
+ * <p/>The semantics of the operations are the same as {@link OpenLongPairRangeSet}: a range spanning multiple keys only
+ * sets the values of the upper key, and the values of the lower key up to the last value already set for it.
+ */
+@NotThreadSafe
+public class RunLengthLongPairRangeSet<T extends Comparable<T>> implements LongPairRangeSet<T> {
+
+    static final int DEFAULT_MAX_RUNS_PER_BLOCK = 1024;
+
+    private final NavigableMap<Long, Runs> runsMap = new TreeMap<>();
+    private final LongPairConsumer<T> consumer;
+    private final int maxRanges;
+    private final int maxRunsPerBlock;
+    private int size;
+
+    public RunLengthLongPairRangeSet(LongPairConsumer<T> consumer) {
+        this(consumer, 0);
+    }
+
+    /**
+     * @param maxRanges the maximum number of ranges kept by the set, or 0 for no limit
+     */
+    public RunLengthLongPairRangeSet(LongPairConsumer<T> consumer, int maxRanges) {
+        this(consumer, maxRanges, DEFAULT_MAX_RUNS_PER_BLOCK);
+    }
+
+    @VisibleForTesting
+    RunLengthLongPairRangeSet(LongPairConsumer<T> consumer, int maxRanges, int maxRunsPerBlock) {
+        this.consumer = consumer;
+        this.maxRanges = maxRanges;
+        this.maxRunsPerBlock = Math.max(maxRunsPerBlock, 2);
+    }
+
+    @Override
+    public void addOpenClosed(long lowerKey, long lowerValueOpen, long upperKey, long upperValue) {
+        long lowerValue = lowerValueOpen + 1;
+        if (lowerKey != upperKey) {
+            // Only extend the lower key up to its last value, since the number of values of the key is unknown
+            if (isValid(lowerKey, lowerValue)) {
+                Runs runs = runsMap.get(lowerKey);
+                if (runs != null && runs.last() > lowerValueOpen) {
+                    addValues(lowerKey, (int) lowerValue, Math.max(runs.last(), (int) lowerValue));
+                }
+            }
+            if (isValid(upperKey, upperValue)) {
+                addValues(upperKey, 0, (int) upperValue);
+            }
+        } else if (lowerValue <= upperValue) {
+            addValues(lowerKey, (int) lowerValue, (int) upperValue);
+        }
+        trimToMaxRanges();
+    }
+
+    private boolean isValid(long key, long value) {
+        return key != LongPair.earliest.getKey() && value != LongPair.earliest.getValue()
+                && key != LongPair.latest.getKey() && value != LongPair.latest.getValue();
+    }
+
+    private void addValues(long key, int lower, int upper) {
+        if (lower > upper) {
+            return;
+        }
+        Runs runs = runsMap.computeIfAbsent(key, k -> new Runs(maxRunsPerBlock));
+        int count = runs.count();
+        runs.add(lower, upper);
+        size += runs.count() - count;
+    }
+
+    /**
+     * Drops the highest ranges until the number of ranges is back within the limit.
+     */
+    private void trimToMaxRanges() {
+        while (maxRanges > 0 && size > maxRanges) {
+            Map.Entry<Long, Runs> last = runsMap.lastEntry();
+            Runs runs = last.getValue();
+            size -= runs.removeLast(size - maxRanges);
+            if (runs.isEmpty()) {
+                runsMap.remove(last.getKey());
+            }
+        }
+    }
+
+    /**
+     * Adds the specified range to this set, merging it with the ranges that are connected with it.
+     */
+    public void add(Range<LongPair> range) {
+        LongPair lowerEndpoint = range.hasLowerBound() ? range.lowerEndpoint() : LongPair.earliest;
+        LongPair upperEndpoint = range.hasUpperBound() ? range.upperEndpoint() : LongPair.latest;
+
+        long lowerValueOpen = (range.hasLowerBound() && range.lowerBoundType() == BoundType.CLOSED)
+                ? getSafeEntry(lowerEndpoint.getValue()) - 1
+                : getSafeEntry(lowerEndpoint.getValue());
+        long upperValueClosed = (range.hasUpperBound() && range.upperBoundType() == BoundType.CLOSED)
+                ? getSafeEntry(upperEndpoint.getValue())
+                : getSafeEntry(upperEndpoint.getValue()) + 1;
+
+        // Make sure the lower key exists, so that the lower part of the range is not ignored by #addOpenClosed
+        int lowerValue = (int) lowerValueOpen + 1;
+        if (lowerValue >= 0) {
+            addValues(lowerEndpoint.getKey(), lowerValue, lowerValue);
+        }
+        addOpenClosed(lowerEndpoint.getKey(), lowerValueOpen, upperEndpoint.getKey(), upperValueClosed);
+    }
+
+    /**
+     * Removes the values of the specified range from this set.
+     */
+    public void remove(Range<LongPair> range) {
+        LongPair lowerEndpoint = range.hasLowerBound() ? range.lowerEndpoint() : LongPair.earliest;
+        LongPair upperEndpoint = range.hasUpperBound() ? range.upperEndpoint() : LongPair.latest;
+
+        int lower = (range.hasLowerBound() && range.lowerBoundType() == BoundType.CLOSED)
+                ? getSafeEntry(lowerEndpoint.getValue())
+                : getSafeEntry(lowerEndpoint.getValue()) + 1;
+        int upper = (range.hasUpperBound() && range.upperBoundType() == BoundType.CLOSED)
+                ? getSafeEntry(upperEndpoint.getValue())
+                : getSafeEntry(upperEndpoint.getValue()) - 1;
+
+        long lowerKey = lowerEndpoint.getKey();
+        long upperKey = upperEndpoint.getKey();
+        if (lowerKey == upperKey) {
+            removeValues(lowerKey, lower, upper);
+            return;
+        }
+        if (lowerKey < upperKey) {
+            clearKeys(runsMap.subMap(lowerKey, false, upperKey, false));
+        }
+        removeValues(lowerKey, lower, Integer.MAX_VALUE);
+        removeValues(upperKey, 0, upper);
+    }
+
+    private void removeValues(long key, int lower, int upper) {
+        Runs runs = runsMap.get(key);
+        if (runs != null) {
+            int count = runs.count();
+            runs.remove(Math.max(lower, 0), upper);
+            size += runs.count() - count;
+            if (runs.isEmpty()) {
+                runsMap.remove(key);
+            }
+        }
+    }
+
+    private void clearKeys(Map<Long, Runs> keys) {
+        for (Runs runs : keys.values()) {
+            size -= runs.count();
+        }
+        keys.clear();
+    }
+
+    @Override
+    public boolean contains(long key, long value) {
+        Runs runs = runsMap.get(key);
+        return runs != null && runs.contains(getSafeEntry(value));
+    }
+
+    @Override
+    public Range<T> rangeContaining(long key, long value) {
+        Runs runs = runsMap.get(key);
+        if (runs == null) {
+            return null;
+        }
+        int safeValue = getSafeEntry(value);
+        RunBlock block = runs.floorBlock(safeValue);
+        int index = block != null ? block.indexOf(safeValue) : -1;
+        if (index < 0) {
+            return null;
+        }
+        return Range.closed(consumer.apply(key, block.start(index)), consumer.apply(key, block.end(index)));
+    }
+
+    @Override
+    public void removeAtMost(long key, long value) {
+        clearKeys(runsMap.headMap(key, false));
+        removeValues(key, 0, getSafeEntry(value));
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return runsMap.isEmpty();
+    }
+
+    @Override
+    public void clear() {
+        runsMap.clear();
+        size = 0;
+    }
+
+    @Override
+    public Range<T> span() {
+        if (runsMap.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Long, Runs> first = runsMap.firstEntry();
+        Map.Entry<Long, Runs> last = runsMap.lastEntry();
+        return Range.openClosed(consumer.apply(first.getKey(), first.getValue().first() - 1),
+                consumer.apply(last.getKey(), last.getValue().last()));
+    }
+
+    @Override
+    public List<Range<T>> asRanges() {
+        List<Range<T>> ranges = new ArrayList<>();
+        forEach((range) -> {
+            ranges.add(range);
+            return true;
+        });
+        return ranges;
+    }
+
+    @Override
+    public void forEach(RangeProcessor<T> action) {
+        forEach(action, consumer);
+    }
+
+    @Override
+    public void forEach(RangeProcessor<T> action, LongPairConsumer<? extends T> consumerParam) {
+        forEachRawRange((lowerKey, lowerValue, upperKey, upperValue) -> action.process(Range.openClosed(
+                consumerParam.apply(lowerKey, lowerValue), consumerParam.apply(upperKey, upperValue))));
+    }
+
+    @Override
+    public void forEachRawRange(RawRangeProcessor processor) {
+        for (Map.Entry<Long, Runs> entry : runsMap.entrySet()) {
+            if (!forEachRawRange(entry.getKey(), entry.getValue(), processor)) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void forEachRawRange(long key, RawRangeProcessor processor) {
+        Runs runs = runsMap.get(key);
+        if (runs != null) {
+            forEachRawRange(key, runs, processor);
+        }
+    }
+
+    private static boolean forEachRawRange(long key, Runs runs, RawRangeProcessor processor) {
+        for (RunBlock block : runs.blocks()) {
+            for (int i = 0; i < block.count; i++) {
+                if (!processor.processRawRange(key, block.start(i) - 1, key, block.end(i))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Range<T> firstRange() {
+        if (runsMap.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Long, Runs> first = runsMap.firstEntry();
+        RunBlock block = first.getValue().firstBlock();
+        return Range.openClosed(consumer.apply(first.getKey(), block.start(0) - 1),
+                consumer.apply(first.getKey(), block.end(0)));
+    }
+
+    @Override
+    public Range<T> lastRange() {
+        if (runsMap.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Long, Runs> last = runsMap.lastEntry();
+        RunBlock block = last.getValue().lastBlock();
+        int index = block.count - 1;
+        return Range.openClosed(consumer.apply(last.getKey(), block.start(index) - 1),
+                consumer.apply(last.getKey(), block.end(index)));
+    }
+
+    /**
+     * Serializes the set using the same format as {@link OpenLongPairRangeSet#toRanges(int)}, so that both
+     * implementations can recover the state persisted by the other one.
+     */
+    @Override
+    public Map<Long, long[]> toRanges(int maxRanges) {
+        Map<Long, long[]> internalBitSetMap = new HashMap<>();
+        int rangeCount = 0;
+        for (Map.Entry<Long, Runs> entry : runsMap.entrySet()) {
+            if (rangeCount > maxRanges) {
+                break;
+            }
+            Runs runs = entry.getValue();
+            rangeCount += runs.count();
+            BitSet bitSet = new BitSet();
+            for (RunBlock block : runs.blocks()) {
+                for (int i = 0; i < block.count; i++) {
+                    bitSet.set(block.start(i), block.end(i) + 1);
+                }
+            }
+            internalBitSetMap.put(entry.getKey(), bitSet.toLongArray());
+        }
+        return internalBitSetMap;
+    }
+
+    @Override
+    public void build(Map<Long, long[]> internalRange) {
+        internalRange.forEach((key, words) -> {
+            BitSet bitSet = BitSet.valueOf(words);
+            Runs runs = new Runs(maxRunsPerBlock);
+            int start = bitSet.nextSetBit(0);
+            while (start >= 0) {
+                int end = bitSet.nextClearBit(start) - 1;
+                runs.append(start, end);
+                start = end == Integer.MAX_VALUE ? -1 : bitSet.nextSetBit(end + 1);
+            }
+            replaceRuns(key, runs);
+        });
+        trimToMaxRanges();
+    }
+
+    private void replaceRuns(long key, Runs runs) {
+        Runs previous = runs.isEmpty() ? runsMap.remove(key) : runsMap.put(key, runs);
+        size += runs.count() - (previous != null ? previous.count() : 0);
+    }
+
+    /**
+     * Returns the values of the given key, as pairs of inclusive [start, end] bounds.
+     *
+     * @return the bounds of the runs of the key, or an empty array if the key has no value
+     */
+    @VisibleForTesting
+    long[] getRuns(long key) {
+        Runs runs = runsMap.get(key);
+        return runs != null ? runs.toBounds() : new long[0];
+    }
+
+    /**
+     * Replaces the values of the given key with the runs returned by {@link #getRuns(long)}.
+     */
+    @VisibleForTesting
+    void setRuns(long key, long[] bounds) {
+        Runs runs = new Runs(maxRunsPerBlock);
+        for (int i = 0; bounds != null && i + 1 < bounds.length; i += 2) {
+            runs.add((int) bounds[i], (int) bounds[i + 1]);
+        }
+        replaceRuns(key, runs);
+        trimToMaxRanges();
+    }
+
+    @Override
+    public int cardinality(long lowerKey, long lowerValue, long upperKey, long upperValue) {
+        long cardinality = 0;
+        for (Map.Entry<Long, Runs> entry : runsMap.subMap(lowerKey, true, upperKey, true).entrySet()) {
+            int lower = entry.getKey() == lowerKey ? (int) Math.max(0, lowerValue) : 0;
+            int upper = entry.getKey() == upperKey ? (int) Math.min(Integer.MAX_VALUE, upperValue) : Integer.MAX_VALUE;
+            cardinality += entry.getValue().cardinality(lower, upper);
+        }
+        return (int) Math.min(Integer.MAX_VALUE, cardinality);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(runsMap);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof RunLengthLongPairRangeSet)) {
+            return false;
+        }
+        if (this == obj) {
+            return true;
+        }
+        @SuppressWarnings("rawtypes")
+        RunLengthLongPairRangeSet set = (RunLengthLongPairRangeSet) obj;
+        return this.runsMap.equals(set.runsMap);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder toString = new StringBuilder("[");
+        forEach((range) -> {
+            if (toString.length() > 1) {
+                toString.append(",");
+            }
+            toString.append(range);
+            return true;
+        });
+        return toString.append("]").toString();
+    }
+
+    private static int getSafeEntry(long value) {
+        return (int) Math.max(value, -1);
+    }
+
+    /**
+     * Sorted, disjoint and non-adjacent runs of values, split in blocks so that creating a run only shifts the runs
+     * of a single block.
+     */
+    private static final class Runs {
+
+        // The blocks are keyed by the start of their first run
+        private final TreeMap<Integer, RunBlock> blocks = new TreeMap<>();
+        private final int maxRunsPerBlock;
+        private int count;
+
+        Runs(int maxRunsPerBlock) {
+            this.maxRunsPerBlock = maxRunsPerBlock;
+        }
+
+        int count() {
+            return count;
+        }
+
+        boolean isEmpty() {
+            return count == 0;
+        }
+
+        Collection<RunBlock> blocks() {
+            return blocks.values();
+        }
+
+        RunBlock firstBlock() {
+            return blocks.firstEntry().getValue();
+        }
+
+        RunBlock lastBlock() {
+            return blocks.lastEntry().getValue();
+        }
+
+        int first() {
+            return firstBlock().first();
+        }
+
+        int last() {
+            return lastBlock().last();
+        }
+
+        /**
+         * @return the only block that can contain the value, or null if the value is lower than all the runs
+         */
+        RunBlock floorBlock(int value) {
+            Map.Entry<Integer, RunBlock> entry = blocks.floorEntry(value);
+            return entry != null ? entry.getValue() : null;
+        }
+
+        boolean contains(int value) {
+            RunBlock block = floorBlock(value);
+            return block != null && block.indexOf(value) >= 0;
+        }
+
+        void add(int lower, int upper) {
+            if (lower > upper) {
+                return;
+            }
+            Integer nextKey = blocks.higherKey(lower);
+            if (nextKey != null && nextKey <= (long) upper + 1) {
+                // The range reaches the next blocks, the runs overlapping or adjacent to it are removed first and
+                // merged into the range, which can then be added to a single block
+                RunBlock block = floorBlock(lower - 1);
+                int index = block != null ? block.indexOf(lower - 1) : -1;
+                if (index >= 0) {
+                    lower = block.start(index);
+                }
+                if (upper < Integer.MAX_VALUE) {
+                    block = floorBlock(upper + 1);
+                    index = block.indexOf(upper + 1);
+                    if (index >= 0) {
+                        upper = block.end(index);
+                    }
+                }
+                remove(lower, upper);
+            }
+            Map.Entry<Integer, RunBlock> entry = blocks.floorEntry(lower);
+            if (entry == null) {
+                entry = blocks.firstEntry();
+            }
+            if (entry == null) {
+                RunBlock block = new RunBlock();
+                block.append(lower, upper);
+                blocks.put(lower, block);
+                count++;
+                return;
+            }
+            RunBlock block = entry.getValue();
+            int blockCount = block.count;
+            block.add(lower, upper);
+            count += block.count - blockCount;
+            update(entry.getKey(), block);
+            compact(lower);
+        }
+
+        /**
+         * Appends a run after all the existing ones, the caller being responsible for keeping the runs sorted.
+         */
+        void append(int lower, int upper) {
+            Map.Entry<Integer, RunBlock> last = blocks.lastEntry();
+            RunBlock block;
+            if (last == null || last.getValue().count >= maxRunsPerBlock) {
+                block = new RunBlock();
+                blocks.put(lower, block);
+            } else {
+                block = last.getValue();
+            }
+            block.append(lower, upper);
+            count++;
+        }
+
+        void remove(int lower, int upper) {
+            if (lower > upper) {
+                return;
+            }
+            Integer key = blocks.floorKey(lower);
+            if (key == null) {
+                key = blocks.higherKey(lower);
+            }
+            while (key != null && key <= upper) {
+                RunBlock block = blocks.get(key);
+                int blockCount = block.count;
+                block.remove(lower, upper);
+                count += block.count - blockCount;
+                update(key, block);
+                key = blocks.higherKey(key);
+            }
+            compact(lower);
+        }
+
+        /**
+         * Removes up to the given number of runs, starting from the highest one.
+         *
+         * @return the number of runs removed
+         */
+        int removeLast(int runs) {
+            int removed = 0;
+            while (removed < runs && !blocks.isEmpty()) {
+                Map.Entry<Integer, RunBlock> last = blocks.lastEntry();
+                RunBlock block = last.getValue();
+                int toRemove = Math.min(runs - removed, block.count);
+                block.truncate(block.count - toRemove);
+                removed += toRemove;
+                if (block.isEmpty()) {
+                    blocks.remove(last.getKey());
+                }
+            }
+            count -= removed;
+            return removed;
+        }
+
+        long cardinality(int lower, int upper) {
+            long cardinality = 0;
+            Integer key = blocks.floorKey(lower);
+            Map<Integer, RunBlock> candidates = key != null
+                    ? blocks.subMap(key, true, upper, true)
+                    : blocks.headMap(upper, true);
+            for (RunBlock block : candidates.values()) {
+                cardinality += block.cardinality(lower, upper);
+            }
+            return cardinality;
+        }
+
+        /**
+         * Updates the key of a modified block, and splits it in two once it has too many runs.
+         */
+        private void update(int key, RunBlock block) {
+            if (block.isEmpty()) {
+                blocks.remove(key);
+                return;
+            }
+            if (block.first() != key) {
+                blocks.remove(key);
+                blocks.put(block.first(), block);
+            }
+            if (block.count > maxRunsPerBlock) {
+                RunBlock upperHalf = block.split();
+                blocks.put(upperHalf.first(), upperHalf);
+            }
+        }
+
+        /**
+         * Merges the block that can contain the value with the next one, when both have few runs left.
+         */
+        private void compact(int value) {
+            Map.Entry<Integer, RunBlock> entry = blocks.floorEntry(value);
+            if (entry == null) {
+                entry = blocks.firstEntry();
+            }
+            if (entry == null) {
+                return;
+            }
+            Map.Entry<Integer, RunBlock> next = blocks.higherEntry(entry.getKey());
+            if (next != null && entry.getValue().count + next.getValue().count <= maxRunsPerBlock / 2) {
+                blocks.remove(next.getKey());
+                entry.getValue().appendAll(next.getValue());
+            }
+        }
+
+        long[] toBounds() {
+            long[] bounds = new long[count * 2];
+            int index = 0;
+            for (RunBlock block : blocks.values()) {
+                for (int i = 0; i < block.count * 2; i++) {
+                    bounds[index++] = block.bounds[i];
+                }
+            }
+            return bounds;
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(toBounds());
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Runs)) {
+                return false;
+            }
+            Runs that = (Runs) obj;
+            return count == that.count && Arrays.equals(toBounds(), that.toBounds());
+        }
+    }
+
+    /**
+     * A block of sorted, disjoint and non-adjacent runs of values, stored as pairs of inclusive [start, end] bounds.
+     */
+    private static final class RunBlock {
+
+        private static final int INITIAL_CAPACITY = 4;
+
+        private int[] bounds = new int[INITIAL_CAPACITY * 2];
+        private int count;
+        int start(int index) {
+            return bounds[index * 2];
+        }
+
+        int end(int index) {
+            return bounds[index * 2 + 1];
+        }
+
+        int first() {
+            return bounds[0];
+        }
+
+        int last() {
+            return bounds[count * 2 - 1];
+        }
+
+        boolean isEmpty() {
+            return count == 0;
+        }
+
+        /**
+         * @return the index of the first run ending at or after the given value
+         */
+        private int firstEndingAtOrAfter(long value) {
+            int low = 0;
+            int high = count - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (end(mid) < value) {
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * @return the index of the first run starting after the given value
+         */
+        private int firstStartingAfter(long value) {
+            int low = 0;
+            int high = count - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (start(mid) <= value) {
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * @return the index of the run containing the value, or -1 if the value is not set
+         */
+        int indexOf(int value) {
+            int index = firstEndingAtOrAfter(value);
+            return index < count && start(index) <= value ? index : -1;
+        }
+
+        void add(int lower, int upper) {
+            if (lower > upper) {
+                return;
+            }
+            // Runs overlapping or adjacent to [lower, upper] are merged with it
+            int from = firstEndingAtOrAfter((long) lower - 1);
+            int to = firstStartingAfter((long) upper + 1);
+            if (from < to) {
+                lower = Math.min(lower, start(from));
+                upper = Math.max(upper, end(to - 1));
+            }
+            replace(from, to, 1);
+            bounds[from * 2] = lower;
+            bounds[from * 2 + 1] = upper;
+        }
+
+        /**
+         * Appends a run after all the existing ones, the caller being responsible for keeping the runs sorted.
+         */
+        void append(int lower, int upper) {
+            replace(count, count, 1);
+            bounds[count * 2 - 2] = lower;
+            bounds[count * 2 - 1] = upper;
+        }
+
+        void remove(int lower, int upper) {
+            if (lower > upper) {
+                return;
+            }
+            int from = firstEndingAtOrAfter(lower);
+            int to = firstStartingAfter(upper);
+            if (from >= to) {
+                return;
+            }
+            // The first and last runs may only be partially removed
+            boolean keepHead = start(from) < lower;
+            boolean keepTail = end(to - 1) > upper;
+            int headStart = start(from);
+            int tailEnd = end(to - 1);
+            int kept = (keepHead ? 1 : 0) + (keepTail ? 1 : 0);
+            replace(from, to, kept);
+            int index = from * 2;
+            if (keepHead) {
+                bounds[index++] = headStart;
+                bounds[index++] = lower - 1;
+            }
+            if (keepTail) {
+                bounds[index++] = upper + 1;
+                bounds[index] = tailEnd;
+            }
+        }
+
+        long cardinality(int lower, int upper) {
+            long cardinality = 0;
+            for (int i = firstEndingAtOrAfter(lower); i < count && start(i) <= upper; i++) {
+                cardinality += (long) Math.min(end(i), upper) - Math.max(start(i), lower) + 1;
+            }
+            return cardinality;
+        }
+
+        /**
+         * Replace the runs in [from, to) with the given number of runs, whose bounds are left to be set by the caller.
+         */
+        private void replace(int from, int to, int replacement) {
+            int newCount = count - (to - from) + replacement;
+            int[] target = bounds;
+            if (newCount * 2 > bounds.length) {
+                target = new int[Math.max(newCount * 2, bounds.length * 2)];
+                System.arraycopy(bounds, 0, target, 0, from * 2);
+            } else if (newCount * 4 < bounds.length && bounds.length > INITIAL_CAPACITY * 2) {
+                // Give back the memory once most of the runs have been removed
+                target = new int[Math.max(newCount * 2, INITIAL_CAPACITY * 2) * 2];
+                System.arraycopy(bounds, 0, target, 0, from * 2);
+            }
+            System.arraycopy(bounds, to * 2, target, (from + replacement) * 2, (count - to) * 2);
+            bounds = target;
+            count = newCount;
+        }
+
+
+        /**
+         * Keeps the given number of runs, starting from the lowest one.
+         */
+        void truncate(int newCount) {
+            replace(newCount, count, 0);
+        }
+
+        /**
+         * Moves the upper half of the runs to a new block.
+         */
+        RunBlock split() {
+            int half = count / 2;
+            RunBlock upperHalf = new RunBlock();
+            upperHalf.replace(0, 0, count - half);
+            System.arraycopy(bounds, half * 2, upperHalf.bounds, 0, (count - half) * 2);
+            truncate(half);
+            return upperHalf;
+        }
+
+        /**
+         * Appends the runs of a block whose runs all come after the runs of this block.
+         */
+        void appendAll(RunBlock other) {
+            int from = count;
+            replace(from, from, other.count);
+            System.arraycopy(other.bounds, 0, bounds, from * 2, other.count * 2);
+        }
+    }
+}
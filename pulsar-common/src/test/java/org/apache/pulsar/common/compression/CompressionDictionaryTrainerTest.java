@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.common.compression;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.expectThrows;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.apache.pulsar.common.api.proto.CompressionType;
+import org.testng.annotations.Test;
+
+public class CompressionDictionaryTrainerTest {
+
+    private static String sample(Random random) {
+        return "{\"userId\":" + random.nextInt(100000) + ",\"eventType\":\"page_view\",\"timestamp\":"
+                + (1700000000000L + random.nextInt()) + ",\"properties\":{\"browser\":\"Firefox\","
+                + "\"country\":\"DE\",\"path\":\"/products/" + random.nextInt(1000) + "\"}}";
+    }
+
+    private static List<byte[]> samples(Random random, int count) {
+        List<byte[]> samples = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            samples.add(sample(random).getBytes(UTF_8));
+        }
+        return samples;
+    }
+
+    @Test
+    public void testTrain() throws IOException {
+        Random random = new Random(1);
+        byte[] dictionary = CompressionDictionaryTrainer.train(samples(random, 1000), 4096);
+        assertTrue(dictionary.length > 0 && dictionary.length <= 4096, "size " + dictionary.length);
+
+        CompressionCodec zlib = CompressionCodecProvider.getCompressionCodec(CompressionType.ZLIB);
+        assertTrue(zlib instanceof CompressionDictionaryCodec);
+        CompressionDictionaryCodec codec = (CompressionDictionaryCodec) zlib;
+        ByteBuf raw = Unpooled.wrappedBuffer(sample(random).getBytes(UTF_8));
+        ByteBuf compressed = codec.encode(raw);
+        ByteBuf compressedWithDictionary = codec.encode(raw, dictionary);
+        try {
+            assertTrue(compressedWithDictionary.readableBytes() < compressed.readableBytes() / 2,
+                    compressedWithDictionary.readableBytes() + " vs " + compressed.readableBytes());
+
+            ByteBuf uncompressed = codec.decode(compressedWithDictionary, raw.readableBytes(), dictionary);
+            assertEquals(uncompressed, raw);
+            uncompressed.release();
+
+            // The content compressed without dictionary is still readable
+            uncompressed = codec.decode(compressed, raw.readableBytes(), dictionary);
+            assertEquals(uncompressed, raw);
+            uncompressed.release();
+
+            expectThrows(IOException.class, () -> codec.decode(compressedWithDictionary, raw.readableBytes()));
+            expectThrows(IOException.class,
+                    () -> codec.decode(compressedWithDictionary, raw.readableBytes(), new byte[]{1, 2, 3}));
+        } finally {
+            compressed.release();
+            compressedWithDictionary.release();
+        }
+    }
+
+    @Test
+    public void testTrainWithoutCommonContent() {
+        Random random = new Random(1);
+        List<byte[]> samples = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            byte[] sample = new byte[200];
+            random.nextBytes(sample);
+            samples.add(sample);
+        }
+        assertEquals(CompressionDictionaryTrainer.train(samples, 1024).length, 0);
+        assertEquals(CompressionDictionaryTrainer.train(new ArrayList<>(), 1024).length, 0);
+    }
+
+    @Test
+    public void testCodecWithoutDictionarySupport() {
+        CompressionCodec codec = CompressionCodecProvider.getCompressionCodec(CompressionType.LZ4);
+        assertFalse(codec instanceof CompressionDictionaryCodec);
+        expectThrows(IOException.class,
+                () -> CompressionDictionaryCodec.decode(codec, Unpooled.EMPTY_BUFFER, 0, new byte[1]));
+    }
+}
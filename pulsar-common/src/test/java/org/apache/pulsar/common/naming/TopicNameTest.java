@@ -18,13 +18,17 @@
  */
 package org.apache.pulsar.common.naming;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotEquals;
 import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertThrows;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import org.apache.pulsar.common.util.Codec;
 import org.testng.annotations.Test;
 
@@ -373,4 +377,42 @@ public class TopicNameTest {
         // v1 format is not supported when the domain is not included
         assertThrows(IllegalArgumentException.class, () -> TopicName.toFullTopicName("tenant/cluster/ns/topic"));
     }
+
+    @Test
+    public void testGetFromCharSequenceAndBuffer() {
+        TopicName topicName = TopicName.get("persistent://tenant/ns/test-get-from-buffer-partition-3");
+        assertSame(TopicName.get(new StringBuilder("persistent://tenant/ns/test-get-from-buffer-partition-3")),
+                topicName);
+
+        ByteBuf buf = Unpooled.copiedBuffer("xx" + topicName + "yy", UTF_8);
+        assertSame(TopicName.get(buf, 2, buf.readableBytes() - 4), topicName);
+        assertEquals(buf.readerIndex(), 0);
+
+        // Not cached yet
+        ByteBuf other = Unpooled.copiedBuffer("tenant/ns/test-get-from-buffer-\u00e9", UTF_8);
+        TopicName otherName = TopicName.get(other, 0, other.readableBytes());
+        assertEquals(otherName.toString(), "persistent://tenant/ns/test-get-from-buffer-\u00e9");
+        assertSame(TopicName.get("tenant/ns/test-get-from-buffer-\u00e9"), otherName);
+
+        assertSame(NamespaceName.get(new StringBuilder("tenant/ns")), topicName.getNamespaceObject());
+    }
+
+    @SuppressWarnings("deprecation")
+    @Test
+    public void testParseNames() {
+        TopicName v1 = TopicName.get("persistent://tenant/cluster/ns/a/b");
+        assertEquals(v1.getTenant(), "tenant");
+        assertEquals(v1.getCluster(), "cluster");
+        assertEquals(v1.getNamespacePortion(), "ns");
+        assertEquals(v1.getLocalName(), "a/b");
+
+        TopicName upperCaseDomain = TopicName.get("Non-Persistent://tenant/ns/topic");
+        assertEquals(upperCaseDomain.toString(), "non-persistent://tenant/ns/topic");
+        assertSame(upperCaseDomain.getDomain(), TopicDomain.non_persistent);
+
+        assertThrows(IllegalArgumentException.class, () -> TopicName.get("persistent://tenant"));
+        assertThrows(IllegalArgumentException.class, () -> TopicName.get("persistent://tenant/ns"));
+        assertThrows(IllegalArgumentException.class, () -> TopicName.get("persistent://tenant/ns/"));
+        assertThrows(IllegalArgumentException.class, () -> TopicName.get("invalid://tenant/ns/topic"));
+    }
 }
@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.common.protocol;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.expectThrows;
+import io.netty.buffer.ByteBuf;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.commons.lang3.tuple.Triple;
+import org.apache.pulsar.common.api.proto.BaseCommand;
+import org.apache.pulsar.common.api.proto.CommandAck;
+import org.apache.pulsar.common.util.collections.ConcurrentBitSetRecyclable;
+import org.testng.annotations.Test;
+
+public class CompactAckRangesTest {
+
+    @Test
+    public void testEncodeAndDecode() {
+        long[] ledgerIds = {3, 3, 3, 3, 3, 5, 5, 1000000};
+        long[] entryIds = {0, 1, 2, 2, 10, 7, 8, 123456789};
+        byte[] encoded = CompactAckRanges.encode(ledgerIds, entryIds, ledgerIds.length);
+        assertEquals(decode(encoded), List.of(List.of(3L, 0L, 2L), List.of(3L, 10L, 10L), List.of(5L, 7L, 8L),
+                List.of(1000000L, 123456789L, 123456789L)));
+
+        assertEquals(CompactAckRanges.encode(new long[0], new long[0], 0).length, 0);
+        assertEquals(decode(new byte[0]), List.of());
+    }
+
+    @Test
+    public void testEncodedSize() {
+        int count = 1000;
+        long[] ledgerIds = new long[count];
+        long[] entryIds = new long[count];
+        for (int i = 0; i < count; i++) {
+            ledgerIds[i] = 123456;
+            entryIds[i] = 100000 + i;
+        }
+        // The consecutive entries of a ledger are a single range
+        assertEquals(CompactAckRanges.encode(ledgerIds, entryIds, count).length, 7);
+
+        for (int i = 0; i < count; i++) {
+            entryIds[i] = 100000 + 2 * i;
+        }
+        // With every other entry, each range after the first one takes 3 bytes
+        assertEquals(CompactAckRanges.encode(ledgerIds, entryIds, count).length, 7 + 3 * (count - 1));
+    }
+
+    @Test
+    public void testInvalidInput() {
+        expectThrows(IllegalArgumentException.class,
+                () -> CompactAckRanges.encode(new long[]{2, 1}, new long[]{0, 0}, 2));
+        expectThrows(IllegalArgumentException.class,
+                () -> CompactAckRanges.encode(new long[]{1, 1}, new long[]{5, 3}, 2));
+        // Truncated varint
+        expectThrows(IllegalArgumentException.class, () -> decode(new byte[]{1, (byte) 0x80}));
+        expectThrows(IllegalArgumentException.class, () -> decode(new byte[]{1, 2}));
+    }
+
+    @Test
+    public void testMultiMessageAck() {
+        List<Triple<Long, Long, ConcurrentBitSetRecyclable>> entries = new ArrayList<>();
+        entries.add(Triple.of(7L, 3L, null));
+        entries.add(Triple.of(7L, 1L, null));
+        ConcurrentBitSetRecyclable bitSet = ConcurrentBitSetRecyclable.create();
+        bitSet.set(1);
+        entries.add(Triple.of(7L, 4L, bitSet));
+        entries.add(Triple.of(7L, 2L, null));
+
+        ByteBuf buf = Commands.newMultiMessageAck(1, entries, -1, true);
+        try {
+            buf.skipBytes(4);
+            BaseCommand cmd = new BaseCommand();
+            cmd.parseFrom(buf, buf.readInt());
+            CommandAck ack = cmd.getAck();
+            // The partially acknowledged batch keeps its ack set
+            assertEquals(ack.getMessageIdsCount(), 1);
+            assertEquals(ack.getMessageIdAt(0).getEntryId(), 4L);
+            assertEquals(ack.getMessageIdAt(0).getAckSetsCount(), 1);
+            assertEquals(decode(ack.getCompactAckRanges()), List.of(List.of(7L, 1L, 3L)));
+        } finally {
+            buf.release();
+        }
+
+        buf = Commands.newMultiMessageAck(1, List.of(Triple.of(7L, 1L, null)), -1, false);
+        try {
+            buf.skipBytes(4);
+            BaseCommand cmd = new BaseCommand();
+            cmd.parseFrom(buf, buf.readInt());
+            assertFalse(cmd.getAck().hasCompactAckRanges());
+            assertEquals(cmd.getAck().getMessageIdsCount(), 1);
+        } finally {
+            buf.release();
+        }
+    }
+
+    private static List<List<Long>> decode(byte[] encoded) {
+        List<List<Long>> ranges = new ArrayList<>();
+        CompactAckRanges.decode(encoded, (ledgerId, firstEntryId, lastEntryId) ->
+                ranges.add(List.of(ledgerId, firstEntryId, lastEntryId)));
+        return ranges;
+    }
+}
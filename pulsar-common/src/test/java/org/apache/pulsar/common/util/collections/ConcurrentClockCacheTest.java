@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.common.util.collections;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.Cleanup;
+import org.testng.annotations.Test;
+
+public class ConcurrentClockCacheTest {
+
+    @Test
+    public void testConstructor() {
+        try {
+            new ConcurrentClockCache<String>(16, 0);
+            fail("should have thrown exception");
+        } catch (IllegalArgumentException e) {
+            // ok
+        }
+    }
+
+    @Test
+    public void testGet() {
+        ConcurrentClockCache<String> cache = new ConcurrentClockCache<>(100);
+        AtomicInteger loads = new AtomicInteger();
+
+        String value = cache.get("key", k -> k + "-" + loads.incrementAndGet());
+        assertEquals(value, "key-1");
+        assertSame(cache.get("key", k -> k + "-" + loads.incrementAndGet()), value);
+        assertEquals(loads.get(), 1);
+        assertEquals(cache.size(), 1);
+
+        assertSame(cache.getIfPresent(new StringBuilder("key")), value);
+        assertNull(cache.getIfPresent("other"));
+
+        try {
+            cache.get("invalid", k -> {
+                throw new IllegalArgumentException(k);
+            });
+            fail("should have thrown exception");
+        } catch (IllegalArgumentException e) {
+            // ok
+        }
+        assertEquals(cache.size(), 1);
+
+        assertEquals(cache.remove("key"), value);
+        assertNull(cache.getIfPresent("key"));
+        assertNull(cache.remove("key"));
+        assertEquals(cache.size(), 0);
+    }
+
+    @Test
+    public void testGetFromBuffer() {
+        ConcurrentClockCache<String> cache = new ConcurrentClockCache<>(100);
+        cache.get("tenant/ns", k -> k);
+        cache.get("tenant/é", k -> k);
+
+        ByteBuf buf = Unpooled.copiedBuffer("xxtenant/nsyy", UTF_8);
+        assertEquals(cache.getIfPresent(buf, 2, 9), "tenant/ns");
+        assertNull(cache.getIfPresent(buf, 2, 8));
+        assertEquals(buf.readerIndex(), 0);
+
+        // Only the ASCII keys are found
+        ByteBuf nonAscii = Unpooled.copiedBuffer("tenant/é", UTF_8);
+        assertNull(cache.getIfPresent(nonAscii, 0, nonAscii.readableBytes()));
+    }
+
+    @Test
+    public void testEviction() {
+        ConcurrentClockCache<String> cache = new ConcurrentClockCache<>(4, 1);
+        for (int i = 0; i < 4; i++) {
+            cache.get("key-" + i, k -> k);
+        }
+        // The entry which was read is kept when the clock hand passes over it
+        cache.getIfPresent("key-0");
+        cache.get("key-4", k -> k);
+        assertEquals(cache.size(), 4);
+        assertEquals(cache.getIfPresent("key-0"), "key-0");
+        assertNull(cache.getIfPresent("key-1"));
+        assertEquals(cache.getIfPresent("key-4"), "key-4");
+
+        for (int i = 0; i < 1000; i++) {
+            cache.get("other-" + i, k -> k);
+            assertTrue(cache.size() <= 4);
+        }
+
+        cache.setMaxCapacity(2);
+        assertEquals(cache.size(), 2);
+
+        cache.setMaxCapacity(-1);
+        for (int i = 0; i < 1000; i++) {
+            cache.get("unbounded-" + i, k -> k);
+        }
+        assertEquals(cache.size(), 1002);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(cache.getIfPresent("unbounded-" + i), "unbounded-" + i);
+        }
+
+        cache.clear();
+        assertEquals(cache.size(), 0);
+        assertNull(cache.getIfPresent("unbounded-0"));
+    }
+
+    @Test
+    public void testCapacityLowerThanSegments() {
+        ConcurrentClockCache<String> cache = new ConcurrentClockCache<>(10, 16);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(cache.get("key-" + i, k -> k), "key-" + i);
+            assertTrue(cache.size() <= 10, "size " + cache.size());
+        }
+
+        cache.setMaxCapacity(0);
+        assertEquals(cache.size(), 0);
+        assertEquals(cache.get("key", k -> k), "key");
+        assertEquals(cache.size(), 0);
+    }
+
+    @Test
+    public void testConcurrentGet() throws Exception {
+        ConcurrentClockCache<String> cache = new ConcurrentClockCache<>(1_000);
+        int nThreads = 8;
+        int nKeys = 5_000;
+        @Cleanup("shutdownNow")
+        ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+        CyclicBarrier barrier = new CyclicBarrier(nThreads);
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < nThreads; t++) {
+            int offset = t;
+            futures.add(executor.submit(() -> {
+                barrier.await();
+                for (int i = 0; i < 100_000; i++) {
+                    String key = "key-" + ((i * 7 + offset) % nKeys);
+                    assertEquals(cache.get(key, k -> k), key);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        assertTrue(cache.size() <= 1_000, "size " + cache.size());
+    }
+}
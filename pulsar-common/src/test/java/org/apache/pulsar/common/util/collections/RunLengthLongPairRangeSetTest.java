@@ -0,0 +1,252 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.common.util.collections;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import com.google.common.collect.Range;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.apache.pulsar.common.util.collections.LongPairRangeSet.LongPair;
+import org.apache.pulsar.common.util.collections.LongPairRangeSet.LongPairConsumer;
+import org.testng.annotations.Test;
+
+public class RunLengthLongPairRangeSetTest {
+
+    static final LongPairConsumer<LongPair> CONSUMER = LongPair::new;
+
+    @Test
+    public void testIsEmpty() {
+        RunLengthLongPairRangeSet<LongPair> set = new RunLengthLongPairRangeSet<>(CONSUMER);
+        assertTrue(set.isEmpty());
+        assertNull(set.span());
+        assertNull(set.firstRange());
+        assertNull(set.lastRange());
+        // lowerValueOpen and upperValue are both -1 so that an empty set will be added
+        set.addOpenClosed(0, -1, 0, -1);
+        assertTrue(set.isEmpty());
+        set.addOpenClosed(1, 1, 1, 5);
+        assertFalse(set.isEmpty());
+    }
+
+    @Test
+    public void testAddMergesConnectedRanges() {
+        RunLengthLongPairRangeSet<LongPair> set = new RunLengthLongPairRangeSet<>(CONSUMER);
+        set.addOpenClosed(0, 0, 0, 5);
+        set.addOpenClosed(0, 10, 0, 15);
+        set.addOpenClosed(0, 20, 0, 25);
+        assertEquals(set.size(), 3);
+
+        // Adjacent to the first range
+        set.addOpenClosed(0, 5, 0, 7);
+        assertEquals(set.size(), 3);
+        assertEquals(set.firstRange(), Range.openClosed(new LongPair(0, 0), new LongPair(0, 7)));
+
+        // Overlapping the last 2 ranges
+        set.addOpenClosed(0, 12, 0, 22);
+        assertEquals(set.size(), 2);
+        assertEquals(set.lastRange(), Range.openClosed(new LongPair(0, 10), new LongPair(0, 25)));
+
+        // Filling the hole
+        set.addOpenClosed(0, 7, 0, 10);
+        assertEquals(set.size(), 1);
+        assertEquals(set.asRanges(), List.of(Range.openClosed(new LongPair(0, 0), new LongPair(0, 25))));
+        assertEquals(set.toString(), "[(0:0..0:25]]");
+    }
+
+    @Test
+    public void testRemoveSplitsRanges() {
+        RunLengthLongPairRangeSet<LongPair> set = new RunLengthLongPairRangeSet<>(CONSUMER);
+        set.addOpenClosed(0, -1, 0, 99);
+        set.remove(Range.closed(new LongPair(0, 10), new LongPair(0, 19)));
+        set.remove(Range.closed(new LongPair(0, 50), new LongPair(0, 59)));
+        assertEquals(set.asRanges(), List.of(
+                Range.openClosed(new LongPair(0, -1), new LongPair(0, 9)),
+                Range.openClosed(new LongPair(0, 19), new LongPair(0, 49)),
+                Range.openClosed(new LongPair(0, 59), new LongPair(0, 99))));
+        assertFalse(set.contains(0, 15));
+        assertTrue(set.contains(0, 20));
+        assertEquals(set.rangeContaining(0, 30), Range.closed(new LongPair(0, 20), new LongPair(0, 49)));
+        assertNull(set.rangeContaining(0, 55));
+
+        set.removeAtMost(0, 60);
+        assertEquals(set.asRanges(), List.of(Range.openClosed(new LongPair(0, 60), new LongPair(0, 99))));
+        set.removeAtMost(0, 99);
+        assertTrue(set.isEmpty());
+    }
+
+    @Test
+    public void testCardinality() {
+        RunLengthLongPairRangeSet<LongPair> set = new RunLengthLongPairRangeSet<>(CONSUMER);
+        assertEquals(set.cardinality(0, 0, Integer.MAX_VALUE, Integer.MAX_VALUE), 0);
+        set.addOpenClosed(1, 0, 1, 20);
+        set.addOpenClosed(1, 30, 1, 90);
+        set.addOpenClosed(2, 0, 3, 30);
+        assertEquals(set.cardinality(1, 0, 1, 100), 80);
+        assertEquals(set.cardinality(1, 11, 1, 100), 70);
+        assertEquals(set.cardinality(1, 0, 1, 90), 80);
+        assertEquals(set.cardinality(1, 0, 1, 80), 70);
+        assertEquals(set.cardinality(1, 0, 3, 30), 80 + 31);
+    }
+
+    @Test
+    public void testSameResultsAsOpenLongPairRangeSet() {
+        assertSameResultsAsOpenLongPairRangeSet(new RunLengthLongPairRangeSet<>(CONSUMER));
+    }
+
+    @Test
+    public void testSameResultsWithSmallBlocks() {
+        // Most of the ranges are spread over multiple blocks, which are split and merged all the time
+        assertSameResultsAsOpenLongPairRangeSet(new RunLengthLongPairRangeSet<>(CONSUMER, 0, 4));
+    }
+
+    private static void assertSameResultsAsOpenLongPairRangeSet(RunLengthLongPairRangeSet<LongPair> set) {
+        Random random = new Random(1);
+        OpenLongPairRangeSet<LongPair> expected = new OpenLongPairRangeSet<>(CONSUMER);
+
+        for (int i = 0; i < 20_000; i++) {
+            long key = random.nextInt(5);
+            long value = random.nextInt(2000);
+            int operation = random.nextInt(20);
+            if (operation == 0) {
+                set.removeAtMost(key, value);
+                expected.removeAtMost(key, value);
+            } else if (operation < 4) {
+                Range<LongPair> range = Range.closed(new LongPair(key, value),
+                        new LongPair(key, value + random.nextInt(20)));
+                set.remove(range);
+                expected.remove(range);
+            } else if (operation < 6) {
+                long upperKey = key + 1 + random.nextInt(2);
+                long upperValue = random.nextInt(2000);
+                set.addOpenClosed(key, value, upperKey, upperValue);
+                expected.addOpenClosed(key, value, upperKey, upperValue);
+            } else {
+                long upperValue = value + 1 + random.nextInt(10);
+                set.addOpenClosed(key, value, key, upperValue);
+                expected.addOpenClosed(key, value, key, upperValue);
+            }
+
+            if (i % 100 == 0) {
+                assertEquals(set.asRanges(), expected.asRanges());
+                assertEquals(set.size(), expected.size());
+                assertEquals(set.isEmpty(), expected.isEmpty());
+                if (!expected.isEmpty()) {
+                    assertEquals(set.span(), expected.span());
+                    assertEquals(set.firstRange(), expected.firstRange());
+                    assertEquals(set.lastRange(), expected.lastRange());
+                }
+                assertEquals(set.cardinality(1, 500, 3, 1500), expected.cardinality(1, 500, 3, 1500));
+            }
+            long probeKey = random.nextInt(5);
+            long probeValue = random.nextInt(2000);
+            assertEquals(set.contains(probeKey, probeValue), expected.contains(probeKey, probeValue));
+            assertEquals(set.rangeContaining(probeKey, probeValue), expected.rangeContaining(probeKey, probeValue));
+        }
+    }
+
+    @Test
+    public void testToRangesCompatibleWithOpenLongPairRangeSet() {
+        RunLengthLongPairRangeSet<LongPair> set = new RunLengthLongPairRangeSet<>(CONSUMER);
+        set.addOpenClosed(1, 10, 1, 15);
+        set.addOpenClosed(1, 63, 1, 130);
+        set.addOpenClosed(2, 25, 2, 28);
+        set.addOpenClosed(3, -1, 3, 0);
+
+        Map<Long, long[]> ranges = set.toRanges(1000);
+        OpenLongPairRangeSet<LongPair> openSet = new OpenLongPairRangeSet<>(CONSUMER);
+        openSet.build(ranges);
+        assertEquals(openSet.asRanges(), set.asRanges());
+
+        RunLengthLongPairRangeSet<LongPair> recovered = new RunLengthLongPairRangeSet<>(CONSUMER);
+        recovered.build(openSet.toRanges(1000));
+        assertEquals(recovered, set);
+        assertEquals(recovered.hashCode(), set.hashCode());
+    }
+
+    @Test
+    public void testGetAndSetRuns() {
+        RunLengthLongPairRangeSet<LongPair> set = new RunLengthLongPairRangeSet<>(CONSUMER);
+        set.addOpenClosed(1, 10, 1, 15);
+        set.addOpenClosed(1, 20, 1, 25);
+        set.addOpenClosed(2, 0, 2, 5);
+        assertEquals(set.getRuns(1), new long[] {11, 15, 21, 25});
+        assertEquals(set.getRuns(3), new long[0]);
+
+        RunLengthLongPairRangeSet<LongPair> copy = new RunLengthLongPairRangeSet<>(CONSUMER);
+        copy.setRuns(1, set.getRuns(1));
+        copy.setRuns(2, set.getRuns(2));
+        assertEquals(copy, set);
+
+        // Replacing the runs of a key doesn't affect the other keys
+        copy.setRuns(1, new long[] {0, 100});
+        assertEquals(copy.asRanges(), List.of(
+                Range.openClosed(new LongPair(1, -1), new LongPair(1, 100)),
+                Range.openClosed(new LongPair(2, 0), new LongPair(2, 5))));
+        copy.setRuns(1, new long[0]);
+        assertEquals(copy.size(), 1);
+    }
+
+    @Test
+    public void testManyHoles() {
+        RunLengthLongPairRangeSet<LongPair> set = new RunLengthLongPairRangeSet<>(CONSUMER);
+        // Ack every other entry, in reverse order so that every insert goes before all the existing runs
+        for (int i = 100_000; i >= 0; i -= 2) {
+            set.addOpenClosed(0, i - 1, 0, i);
+        }
+        assertEquals(set.size(), 50_001);
+        assertEquals(set.cardinality(0, 0, 0, Integer.MAX_VALUE), 50_001);
+
+        // Fill the holes
+        for (int i = 1; i < 100_000; i += 2) {
+            set.addOpenClosed(0, i - 1, 0, i);
+        }
+        assertEquals(set.size(), 1);
+        assertEquals(set.firstRange(), Range.openClosed(new LongPair(0, -1), new LongPair(0, 100_000)));
+    }
+
+    @Test
+    public void testMaxRanges() {
+        RunLengthLongPairRangeSet<LongPair> set = new RunLengthLongPairRangeSet<>(CONSUMER, 5, 2);
+        for (int i = 20; i >= 0; i -= 2) {
+            set.addOpenClosed(1, i - 1, 1, i);
+        }
+        set.addOpenClosed(2, 0, 2, 5);
+        // The highest ranges are dropped
+        assertEquals(set.size(), 5);
+        assertEquals(set.getRuns(1), new long[] {0, 0, 2, 2, 4, 4, 6, 6, 8, 8});
+        assertEquals(set.getRuns(2), new long[0]);
+
+        // Merging ranges makes room for new ones
+        set.addOpenClosed(1, 0, 1, 4);
+        assertEquals(set.size(), 3);
+        set.addOpenClosed(1, 10, 1, 11);
+        set.addOpenClosed(1, 12, 1, 13);
+        assertEquals(set.size(), 5);
+        assertEquals(set.getRuns(1), new long[] {0, 4, 6, 6, 8, 8, 11, 11, 13, 13});
+
+        // The persisted ranges are limited in the same way
+        RunLengthLongPairRangeSet<LongPair> recovered = new RunLengthLongPairRangeSet<>(CONSUMER, 2);
+        recovered.build(set.toRanges(100));
+        assertEquals(recovered.asRanges(), set.asRanges().subList(0, 2));
+    }
+}
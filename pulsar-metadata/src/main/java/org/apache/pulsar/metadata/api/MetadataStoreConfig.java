@@ -19,6 +19,8 @@
 package org.apache.pulsar.metadata.api;
 
 import io.opentelemetry.api.OpenTelemetry;
+import java.util.Collections;
+import java.util.List;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.ToString;
@@ -76,6 +78,16 @@ public class MetadataStoreConfig {
     @Builder.Default
     private final int batchingMaxSizeKb = 128;
 
+    /**
+     * Maximum number of batches of a store which can be in flight at the same time, 0 for no limit.
+     *
+     * <p/>When set, the operations are flushed as soon as a new batch can be issued, instead of waiting for the
+     * batching delay, and they are grouped into bigger batches while the limit is reached, so that the size of the
+     * batches follows the latency of the store.
+     */
+    @Builder.Default
+    private final int batchingMaxInFlightBatches = 0;
+
     /**
      * The name of a metadata store.
      */
@@ -88,6 +100,14 @@ public class MetadataStoreConfig {
     @Builder.Default
     private final boolean fsyncEnable = true;
 
+    /**
+     * Paths of the subtrees whose entries, including the entries of the missing paths, are kept by the metadata
+     * caches until they are invalidated by the notifications of the store, instead of being refreshed and expired
+     * after a fixed duration.
+     */
+    @Builder.Default
+    private final List<String> nearCachePaths = Collections.emptyList();
+
     /**
      * Pluggable MetadataEventSynchronizer to sync metadata events across the
      * separate clusters.
@@ -23,6 +23,7 @@ import com.fasterxml.jackson.databind.JavaType;
 import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
 import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import com.google.common.annotations.VisibleForTesting;
 import java.io.IOException;
 import java.util.EnumSet;
@@ -55,6 +56,7 @@ import org.apache.pulsar.metadata.api.Notification;
 import org.apache.pulsar.metadata.api.extended.CreateOption;
 import org.apache.pulsar.metadata.api.extended.MetadataStoreExtended;
 import org.apache.pulsar.metadata.impl.AbstractMetadataStore;
+import org.apache.pulsar.metadata.impl.stats.MetadataNearCacheStats;
 
 @Slf4j
 public class MetadataCacheImpl<T> implements MetadataCache<T>, Consumer<Notification> {
@@ -67,6 +69,10 @@ public class MetadataCacheImpl<T> implements MetadataCache<T>, Consumer<Notifica
 
     private final AsyncLoadingCache<String, Optional<CacheGetResult<T>>> objCache;
 
+    // The store, when it has near-cache paths. The entries of these paths are kept until they are invalidated by
+    // the notifications of the store, which is invalidating all the caches when the session is reestablished.
+    private final AbstractMetadataStore nearCacheStore;
+
     public MetadataCacheImpl(String cacheName, MetadataStore store, TypeReference<T> typeRef,
                              MetadataCacheConfig<T> cacheConfig, ScheduledExecutorService executor) {
         this(cacheName, store, new JSONMetadataSerdeTypeRef<>(typeRef), cacheConfig, executor);
@@ -88,13 +94,24 @@ public class MetadataCacheImpl<T> implements MetadataCache<T>, Consumer<Notifica
         this.serde = serde;
         this.cacheConfig = cacheConfig;
         this.executor = executor;
+        if (store instanceof AbstractMetadataStore
+                && !((AbstractMetadataStore) store).getNearCachePaths().isEmpty()) {
+            this.nearCacheStore = (AbstractMetadataStore) store;
+        } else {
+            this.nearCacheStore = null;
+        }
 
         Caffeine<Object, Object> cacheBuilder = Caffeine.newBuilder();
         if (cacheConfig.getRefreshAfterWriteMillis() > 0) {
             cacheBuilder.refreshAfterWrite(cacheConfig.getRefreshAfterWriteMillis(), TimeUnit.MILLISECONDS);
         }
         if (cacheConfig.getExpireAfterWriteMillis() > 0) {
-            cacheBuilder.expireAfterWrite(cacheConfig.getExpireAfterWriteMillis(), TimeUnit.MILLISECONDS);
+            if (nearCacheStore != null) {
+                cacheBuilder.expireAfter(new NearCacheExpiry(
+                        TimeUnit.MILLISECONDS.toNanos(cacheConfig.getExpireAfterWriteMillis())));
+            } else {
+                cacheBuilder.expireAfterWrite(cacheConfig.getExpireAfterWriteMillis(), TimeUnit.MILLISECONDS);
+            }
         }
         this.objCache = cacheBuilder
                 .recordStats()
@@ -109,6 +126,10 @@ public class MetadataCacheImpl<T> implements MetadataCache<T>, Consumer<Notifica
                             String key,
                             Optional<CacheGetResult<T>> oldValue,
                             Executor executor) {
+                        if (getNearCachePath(key) != null) {
+                            // The entry is updated by the notifications of the store
+                            return CompletableFuture.completedFuture(oldValue);
+                        }
                         if (store instanceof AbstractMetadataStore && ((AbstractMetadataStore) store).isConnected()) {
                             return readValueFromStore(key).thenApply(val -> {
                                 if (cacheConfig.getAsyncReloadConsumer() != null) {
@@ -127,7 +148,31 @@ public class MetadataCacheImpl<T> implements MetadataCache<T>, Consumer<Notifica
         CacheMetricsCollector.CAFFEINE.addCache(cacheName, objCache);
     }
 
+    private String getNearCachePath(String path) {
+        return nearCacheStore != null ? nearCacheStore.getNearCachePath(path) : null;
+    }
+
+    private void recordNearCacheAccess(String nearCachePath, String path, String opsType) {
+        if (objCache.asMap().containsKey(path)) {
+            nearCacheStore.getNearCacheStats().recordHit(nearCachePath, opsType);
+        } else {
+            nearCacheStore.getNearCacheStats().recordMiss(nearCachePath, opsType);
+        }
+    }
+
     private CompletableFuture<Optional<CacheGetResult<T>>> readValueFromStore(String path) {
+        String nearCachePath = getNearCachePath(path);
+        if (nearCachePath != null) {
+            long start = System.currentTimeMillis();
+            CompletableFuture<Optional<CacheGetResult<T>>> future = readValueFromStore0(path);
+            future.whenComplete((__, ___) -> nearCacheStore.getNearCacheStats()
+                    .recordLoad(nearCachePath, System.currentTimeMillis() - start));
+            return future;
+        }
+        return readValueFromStore0(path);
+    }
+
+    private CompletableFuture<Optional<CacheGetResult<T>>> readValueFromStore0(String path) {
         return store.get(path)
                 .thenCompose(optRes -> {
                     if (!optRes.isPresent()) {
@@ -148,12 +193,16 @@ public class MetadataCacheImpl<T> implements MetadataCache<T>, Consumer<Notifica
 
     @Override
     public CompletableFuture<Optional<T>> get(String path) {
-        return objCache.get(path)
+        return getWithStats(path)
                 .thenApply(optRes -> optRes.map(CacheGetResult::getValue));
     }
 
     @Override
     public CompletableFuture<Optional<CacheGetResult<T>>> getWithStats(String path) {
+        String nearCachePath = getNearCachePath(path);
+        if (nearCachePath != null) {
+            recordNearCacheAccess(nearCachePath, path, MetadataNearCacheStats.OPS_TYPE_GET);
+        }
         return objCache.get(path);
     }
 
@@ -293,7 +342,18 @@ public class MetadataCacheImpl<T> implements MetadataCache<T>, Consumer<Notifica
 
     @Override
     public CompletableFuture<Boolean> exists(String path) {
-        return store.exists(path);
+        String nearCachePath = getNearCachePath(path);
+        if (nearCachePath == null) {
+            return store.exists(path);
+        }
+        recordNearCacheAccess(nearCachePath, path, MetadataNearCacheStats.OPS_TYPE_EXISTS);
+        // Load the entry in the cache, so that the next lookups of a missing path are served by the negative entry
+        return objCache.get(path).handle((optRes, ex) -> {
+            if (ex != null) {
+                return store.exists(path);
+            }
+            return CompletableFuture.completedFuture(optRes.isPresent());
+        }).thenCompose(Function.identity());
     }
 
     @Override
@@ -327,7 +387,13 @@ public class MetadataCacheImpl<T> implements MetadataCache<T>, Consumer<Notifica
             break;
 
         case Deleted:
-            objCache.synchronous().invalidate(path);
+            if (getNearCachePath(path) != null) {
+                // Keep a negative entry for the deleted path, only if it is cached before
+                objCache.asMap().computeIfPresent(path,
+                        (oldKey, oldValue) -> CompletableFuture.completedFuture(Optional.empty()));
+            } else {
+                objCache.synchronous().invalidate(path);
+            }
             break;
 
         default:
@@ -335,6 +401,34 @@ public class MetadataCacheImpl<T> implements MetadataCache<T>, Consumer<Notifica
         }
     }
 
+    /**
+     * Keeps the existing entries of the near-cache paths until they are invalidated, and expires the negative entries
+     * and the other entries after the configured duration since their creation or the last replacement of their value.
+     */
+    private final class NearCacheExpiry implements Expiry<Object, Object> {
+        private final long expireAfterWriteNanos;
+
+        NearCacheExpiry(long expireAfterWriteNanos) {
+            this.expireAfterWriteNanos = expireAfterWriteNanos;
+        }
+
+        @Override
+        public long expireAfterCreate(Object key, Object value, long currentTime) {
+            boolean negative = value instanceof Optional && ((Optional<?>) value).isEmpty();
+            return !negative && getNearCachePath((String) key) != null ? Long.MAX_VALUE : expireAfterWriteNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(Object key, Object value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(Object key, Object value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+
     private void execute(Supplier<CompletableFuture<T>> op, String key, CompletableFuture<T> result, Backoff backoff) {
         op.get().thenAccept(result::complete).exceptionally((ex) -> {
             if (ex.getCause() instanceof BadVersionException) {
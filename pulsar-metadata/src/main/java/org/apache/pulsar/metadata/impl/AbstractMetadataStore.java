@@ -65,6 +65,7 @@ import org.apache.pulsar.metadata.api.extended.CreateOption;
 import org.apache.pulsar.metadata.api.extended.MetadataStoreExtended;
 import org.apache.pulsar.metadata.api.extended.SessionEvent;
 import org.apache.pulsar.metadata.cache.impl.MetadataCacheImpl;
+import org.apache.pulsar.metadata.impl.stats.MetadataNearCacheStats;
 import org.apache.pulsar.metadata.impl.stats.MetadataStoreStats;
 
 @Slf4j
@@ -80,6 +81,12 @@ public abstract class AbstractMetadataStore implements MetadataStoreExtended, Co
     private final CopyOnWriteArrayList<MetadataCacheImpl<?>> metadataCaches = new CopyOnWriteArrayList<>();
     private final MetadataStoreStats metadataStoreStats;
 
+    // Subtrees whose cached entries are only invalidated by the notifications of the store
+    @Getter
+    private final List<String> nearCachePaths;
+    @Getter
+    private final MetadataNearCacheStats nearCacheStats;
+
     // We don't strictly need to use 'volatile' here because we don't need the precise consistent semantic. Instead,
     // we want to avoid the overhead of 'volatile'.
     @Getter
@@ -92,6 +99,11 @@ public abstract class AbstractMetadataStore implements MetadataStoreExtended, Co
     protected abstract CompletableFuture<Boolean> existsFromStore(String path);
 
     protected AbstractMetadataStore(String metadataStoreName, OpenTelemetry openTelemetry) {
+        this(metadataStoreName, openTelemetry, Collections.emptyList());
+    }
+
+    protected AbstractMetadataStore(String metadataStoreName, OpenTelemetry openTelemetry,
+                                    List<String> nearCachePaths) {
         this.executor = new ScheduledThreadPoolExecutor(1,
                 new DefaultThreadFactory(
                         StringUtils.isNotBlank(metadataStoreName) ? metadataStoreName : getClass().getSimpleName()));
@@ -145,6 +157,8 @@ public abstract class AbstractMetadataStore implements MetadataStoreExtended, Co
 
         this.metadataStoreName = metadataStoreName;
         this.metadataStoreStats = new MetadataStoreStats(metadataStoreName, openTelemetry);
+        this.nearCachePaths = List.copyOf(nearCachePaths);
+        this.nearCacheStats = new MetadataNearCacheStats(metadataStoreName, this.nearCachePaths);
     }
 
     @Override
@@ -239,6 +253,23 @@ public abstract class AbstractMetadataStore implements MetadataStoreExtended, Co
         return false;
     }
 
+    /**
+     * Get the near-cache path which contains a path.
+     *
+     * @param path the path
+     * @return the configured near-cache path, or null if the path is not in a near-cache subtree
+     */
+    public String getNearCachePath(String path) {
+        for (String nearCachePath : nearCachePaths) {
+            int length = nearCachePath.length();
+            if (path.startsWith(nearCachePath) && (path.length() == length || nearCachePath.endsWith("/")
+                    || path.charAt(length) == '/')) {
+                return nearCachePath;
+            }
+        }
+        return null;
+    }
+
     @Override
     public <T> MetadataCache<T> getMetadataCache(Class<T> clazz, MetadataCacheConfig cacheConfig) {
         JavaType typeRef = TypeFactory.defaultInstance().constructSimpleType(clazz, null);
@@ -548,6 +579,7 @@ public abstract class AbstractMetadataStore implements MetadataStoreExtended, Co
         executor.shutdownNow();
         executor.awaitTermination(10, TimeUnit.SECONDS);
         this.metadataStoreStats.close();
+        this.nearCacheStats.close();
     }
 
     @VisibleForTesting
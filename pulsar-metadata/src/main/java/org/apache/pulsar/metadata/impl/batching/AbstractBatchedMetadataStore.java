@@ -21,12 +21,15 @@ package org.apache.pulsar.metadata.impl.batching;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.pulsar.metadata.api.GetResult;
 import org.apache.pulsar.metadata.api.MetadataEventSynchronizer;
@@ -47,21 +50,24 @@ public abstract class AbstractBatchedMetadataStore extends AbstractMetadataStore
     private final MessagePassingQueue<MetadataOp> writeOps;
 
     private final AtomicBoolean flushInProgress = new AtomicBoolean(false);
+    private final AtomicInteger inFlightBatches = new AtomicInteger();
 
     private final boolean enabled;
     private final int maxDelayMillis;
     private final int maxOperations;
     private final int maxSize;
+    private final int maxInFlightBatches;
     private MetadataEventSynchronizer synchronizer;
     private final BatchMetadataStoreStats batchMetadataStoreStats;
 
     protected AbstractBatchedMetadataStore(MetadataStoreConfig conf) {
-        super(conf.getMetadataStoreName(), conf.getOpenTelemetry());
+        super(conf.getMetadataStoreName(), conf.getOpenTelemetry(), conf.getNearCachePaths());
 
         this.enabled = conf.isBatchingEnabled();
         this.maxDelayMillis = conf.getBatchingMaxDelayMillis();
         this.maxOperations = conf.getBatchingMaxOperations();
         this.maxSize = conf.getBatchingMaxSizeKb() * 1_024;
+        this.maxInFlightBatches = conf.getBatchingMaxInFlightBatches();
 
         if (enabled) {
             readOps = new MpscUnboundedArrayQueue<>(10_000);
@@ -100,19 +106,38 @@ public abstract class AbstractBatchedMetadataStore extends AbstractMetadataStore
     }
 
     private void flush() {
-        while (!readOps.isEmpty()) {
+        while (!readOps.isEmpty() && canIssueBatch()) {
             List<MetadataOp> ops = new ArrayList<>();
-            for (int i = 0; i < maxOperations; i++) {
+            // The reads of the same path in a batch are fused into a single operation, as they would get the
+            // same result from the store
+            Map<String, MetadataOp> gets = new HashMap<>();
+            Map<String, MetadataOp> getChildren = new HashMap<>();
+            int fusedOps = 0;
+            while (ops.size() < maxOperations) {
                 MetadataOp op = readOps.poll();
                 if (op == null) {
                     break;
                 }
-                ops.add(op);
+
+                MetadataOp first = (op.getType() == MetadataOp.Type.GET ? gets : getChildren)
+                        .putIfAbsent(op.getPath(), op);
+                if (first == null) {
+                    ops.add(op);
+                } else if (op.getType() == MetadataOp.Type.GET) {
+                    completeWith(first.asGet().getFuture(), op.asGet().getFuture());
+                    fusedOps++;
+                } else {
+                    completeWith(first.asGetChildren().getFuture(), op.asGetChildren().getFuture());
+                    fusedOps++;
+                }
             }
-            internalBatchOperation(ops);
+            if (fusedOps > 0) {
+                this.batchMetadataStoreStats.recordFusedOps(fusedOps);
+            }
+            issueBatch(ops);
         }
 
-        while (!writeOps.isEmpty()) {
+        while (!writeOps.isEmpty() && canIssueBatch()) {
             int batchSize = 0;
 
             List<MetadataOp> ops = new ArrayList<>();
@@ -130,10 +155,55 @@ public abstract class AbstractBatchedMetadataStore extends AbstractMetadataStore
                 batchSize += op.size();
                 ops.add(writeOps.poll());
             }
-            internalBatchOperation(ops);
+            issueBatch(ops);
         }
 
         flushInProgress.set(false);
+        if (maxInFlightBatches > 0) {
+            // Pick up the operations which were enqueued after the queues were drained
+            triggerFlushIfPossible();
+        }
+    }
+
+    private boolean canIssueBatch() {
+        return maxInFlightBatches <= 0 || inFlightBatches.get() < maxInFlightBatches;
+    }
+
+    private void issueBatch(List<MetadataOp> ops) {
+        if (maxInFlightBatches <= 0) {
+            internalBatchOperation(ops);
+            return;
+        }
+
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[ops.size()];
+        for (int i = 0; i < futures.length; i++) {
+            futures[i] = ops.get(i).getFuture();
+        }
+        inFlightBatches.incrementAndGet();
+        CompletableFuture.allOf(futures).whenComplete((__, ex) -> {
+            inFlightBatches.decrementAndGet();
+            triggerFlushIfPossible();
+        });
+        internalBatchOperation(ops);
+    }
+
+    private void triggerFlushIfPossible() {
+        if (isClosed() || (readOps.isEmpty() && writeOps.isEmpty()) || !canIssueBatch()) {
+            return;
+        }
+        if (flushInProgress.compareAndSet(false, true)) {
+            executor.execute(this::flush);
+        }
+    }
+
+    private static <T> void completeWith(CompletableFuture<T> source, CompletableFuture<T> target) {
+        source.whenComplete((result, ex) -> {
+            if (ex != null) {
+                target.completeExceptionally(ex);
+            } else {
+                target.complete(result);
+            }
+        });
     }
 
     @Override
@@ -188,7 +258,10 @@ public abstract class AbstractBatchedMetadataStore extends AbstractMetadataStore
                 internalBatchOperation(Collections.singletonList(op));
                 return;
             }
-            if (queue.size() > maxOperations && flushInProgress.compareAndSet(false, true)) {
+            if (maxInFlightBatches > 0) {
+                // Don't wait for the batching delay while the store can take more batches
+                triggerFlushIfPossible();
+            } else if (queue.size() > maxOperations && flushInProgress.compareAndSet(false, true)) {
                 executor.execute(this::flush);
             }
         } else {
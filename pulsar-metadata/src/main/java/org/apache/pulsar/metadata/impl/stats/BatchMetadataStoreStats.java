@@ -21,6 +21,7 @@ package org.apache.pulsar.metadata.impl.stats;
 import io.opentelemetry.api.OpenTelemetry;
 import io.opentelemetry.api.common.Attributes;
 import io.opentelemetry.api.metrics.ObservableLongUpDownCounter;
+import io.prometheus.client.Counter;
 import io.prometheus.client.Gauge;
 import io.prometheus.client.Histogram;
 import java.util.concurrent.ExecutorService;
@@ -52,6 +53,10 @@ public final class BatchMetadataStoreStats implements AutoCloseable {
             .labelNames(NAME)
             .buckets(BUCKETS)
             .register();
+    private static final Counter FUSED_OPS = Counter
+            .build("pulsar_batch_metadata_store_fused_ops", "-")
+            .labelNames(NAME)
+            .register();
 
     private final AtomicBoolean closed = new AtomicBoolean(false);
     private final ThreadPoolExecutor executor;
@@ -60,6 +65,7 @@ public final class BatchMetadataStoreStats implements AutoCloseable {
     private final Histogram.Child batchOpsWaitingChild;
     private final Histogram.Child batchExecuteTimeChild;
     private final Histogram.Child opsPerBatchChild;
+    private final Counter.Child fusedOpsChild;
 
     public static final String EXECUTOR_QUEUE_SIZE_METRIC_NAME = "pulsar.broker.metadata.store.executor.queue.size";
     private final ObservableLongUpDownCounter batchMetadataStoreSizeCounter;
@@ -82,6 +88,7 @@ public final class BatchMetadataStoreStats implements AutoCloseable {
         this.batchOpsWaitingChild = OPS_WAITING.labels(metadataStoreName);
         this.batchExecuteTimeChild = BATCH_EXECUTE_TIME.labels(metadataStoreName);
         this.opsPerBatchChild = OPS_PER_BATCH.labels(metadataStoreName);
+        this.fusedOpsChild = FUSED_OPS.labels(metadataStoreName);
 
         var meter = openTelemetry.getMeter("org.apache.pulsar");
         var attributes = Attributes.of(MetadataStoreStats.METADATA_STORE_NAME, metadataStoreName);
@@ -108,6 +115,10 @@ public final class BatchMetadataStoreStats implements AutoCloseable {
         this.opsPerBatchChild.observe(ops);
     }
 
+    public void recordFusedOps(int ops) {
+        this.fusedOpsChild.inc(ops);
+    }
+
     @Override
     public void close() throws Exception {
         if (closed.compareAndSet(false, true)) {
@@ -115,6 +126,7 @@ public final class BatchMetadataStoreStats implements AutoCloseable {
             OPS_WAITING.remove(this.metadataStoreName);
             BATCH_EXECUTE_TIME.remove(this.metadataStoreName);
             OPS_PER_BATCH.remove(metadataStoreName);
+            FUSED_OPS.remove(metadataStoreName);
             batchMetadataStoreSizeCounter.close();
         }
     }
@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.metadata.impl.stats;
+
+import io.prometheus.client.Counter;
+import io.prometheus.client.Histogram;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Hit, miss and load latency metrics of the near-cache paths of a metadata store.
+ */
+public final class MetadataNearCacheStats implements AutoCloseable {
+    private static final double[] BUCKETS = new double[]{1, 3, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000};
+    private static final String METADATA_STORE_LABEL_NAME = "name";
+    private static final String PATH_LABEL_NAME = "path";
+    private static final String OPS_TYPE_LABEL_NAME = "type";
+
+    public static final String OPS_TYPE_GET = "get";
+    public static final String OPS_TYPE_EXISTS = "exists";
+
+    private static final String PREFIX = MetadataStoreStats.PREFIX + "near_cache_";
+
+    private static final Counter HITS = Counter
+            .build(PREFIX + "hits", "-")
+            .labelNames(METADATA_STORE_LABEL_NAME, PATH_LABEL_NAME, OPS_TYPE_LABEL_NAME)
+            .register();
+    private static final Counter MISSES = Counter
+            .build(PREFIX + "misses", "-")
+            .labelNames(METADATA_STORE_LABEL_NAME, PATH_LABEL_NAME, OPS_TYPE_LABEL_NAME)
+            .register();
+    private static final Histogram LOAD_LATENCY = Histogram
+            .build(PREFIX + "load_latency", "-")
+            .unit("ms")
+            .buckets(BUCKETS)
+            .labelNames(METADATA_STORE_LABEL_NAME, PATH_LABEL_NAME)
+            .register();
+
+    private final String metadataStoreName;
+    private final List<String> paths;
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    public MetadataNearCacheStats(String metadataStoreName, List<String> paths) {
+        this.metadataStoreName = metadataStoreName;
+        this.paths = paths;
+    }
+
+    public void recordHit(String path, String opsType) {
+        HITS.labels(metadataStoreName, path, opsType).inc();
+    }
+
+    public void recordMiss(String path, String opsType) {
+        MISSES.labels(metadataStoreName, path, opsType).inc();
+    }
+
+    public void recordLoad(String path, long millis) {
+        LOAD_LATENCY.labels(metadataStoreName, path).observe(millis);
+    }
+
+    @Override
+    public void close() {
+        if (this.closed.compareAndSet(false, true)) {
+            for (String path : paths) {
+                for (String opsType : List.of(OPS_TYPE_GET, OPS_TYPE_EXISTS)) {
+                    HITS.remove(metadataStoreName, path, opsType);
+                    MISSES.remove(metadataStoreName, path, opsType);
+                }
+                LOAD_LATENCY.remove(metadataStoreName, path);
+            }
+        }
+    }
+}
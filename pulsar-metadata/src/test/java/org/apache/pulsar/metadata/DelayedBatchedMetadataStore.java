@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.pulsar.metadata;
+
+import io.netty.util.concurrent.DefaultThreadFactory;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.pulsar.metadata.api.MetadataStoreConfig;
+import org.apache.pulsar.metadata.api.MetadataStoreException;
+import org.apache.pulsar.metadata.impl.LocalMemoryMetadataStore;
+import org.apache.pulsar.metadata.impl.batching.AbstractBatchedMetadataStore;
+import org.apache.pulsar.metadata.impl.batching.MetadataOp;
+import org.apache.pulsar.metadata.impl.batching.OpPut;
+
+/**
+ * A batched metadata store which runs the batches on a {@link LocalMemoryMetadataStore} after a fixed delay, to
+ * simulate a slow metadata store.
+ */
+public class DelayedBatchedMetadataStore extends AbstractBatchedMetadataStore {
+
+    private final LocalMemoryMetadataStore store;
+    private final ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor(new DefaultThreadFactory("delayed-metadata-store"));
+    private final long delayMillis;
+
+    private final AtomicInteger batches = new AtomicInteger();
+    private final AtomicInteger ops = new AtomicInteger();
+    private final AtomicInteger inFlightBatches = new AtomicInteger();
+    private final AtomicInteger maxInFlightBatches = new AtomicInteger();
+
+    public DelayedBatchedMetadataStore(MetadataStoreConfig conf, long delayMillis) throws MetadataStoreException {
+        super(conf);
+        this.store = new LocalMemoryMetadataStore("memory:" + UUID.randomUUID(),
+                MetadataStoreConfig.builder().batchingEnabled(false).build());
+        this.delayMillis = delayMillis;
+    }
+
+    @Override
+    protected void batchOperation(List<MetadataOp> ops) {
+        batches.incrementAndGet();
+        this.ops.addAndGet(ops.size());
+        maxInFlightBatches.accumulateAndGet(inFlightBatches.incrementAndGet(), Math::max);
+        scheduler.schedule(() -> {
+            inFlightBatches.decrementAndGet();
+            ops.forEach(this::execute);
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void execute(MetadataOp op) {
+        switch (op.getType()) {
+            case GET:
+                forward(store.get(op.getPath()), op.asGet().getFuture());
+                break;
+            case GET_CHILDREN:
+                forward(store.getChildren(op.getPath()), op.asGetChildren().getFuture());
+                break;
+            case PUT:
+                OpPut put = op.asPut();
+                forward(store.put(put.getPath(), put.getData(), put.getOptExpectedVersion(), put.getOptions()),
+                        put.getFuture());
+                break;
+            case DELETE:
+                forward(store.delete(op.getPath(), op.asDelete().getOptExpectedVersion()),
+                        op.asDelete().getFuture());
+                break;
+        }
+    }
+
+    private static <T> void forward(CompletableFuture<T> result, CompletableFuture<T> future) {
+        result.whenComplete((value, ex) -> {
+            if (ex != null) {
+                future.completeExceptionally(ex);
+            } else {
+                future.complete(value);
+            }
+        });
+    }
+
+    @Override
+    protected CompletableFuture<Boolean> existsFromStore(String path) {
+        return store.exists(path);
+    }
+
+    public int getBatches() {
+        return batches.get();
+    }
+
+    public int getOps() {
+        return ops.get();
+    }
+
+    public int getMaxInFlightBatches() {
+        return maxInFlightBatches.get();
+    }
+
+    @Override
+    public void close() throws Exception {
+        super.close();
+        scheduler.shutdownNow();
+        store.close();
+    }
+}
@@ -142,6 +142,44 @@ public class MetadataBenchmark extends BaseMetadataStoreTest {
         log.info("[{}] Put Throughput: {} Kops/s", provider, throughput / 1_000);
     }
 
+    @Test(enabled = false)
+    public void testPipelinedBatching() throws Exception {
+        final int nPuts = 100_000;
+        final long backendLatencyMillis = 10;
+
+        for (int maxInFlightBatches : new int[]{0, 1, 4, 16}) {
+            @Cleanup
+            DelayedBatchedMetadataStore store = new DelayedBatchedMetadataStore(MetadataStoreConfig.builder()
+                    .batchingMaxInFlightBatches(maxInFlightBatches)
+                    .build(), backendLatencyMillis);
+
+            String key = newKey();
+            Semaphore s = new Semaphore(10_000);
+            CountDownLatch latch = new CountDownLatch(nPuts);
+
+            long startTime = System.nanoTime();
+            byte[] data = new byte[100];
+            for (int i = 0; i < nPuts; i++) {
+                s.acquire();
+                store.put(key + "/" + i, data, Optional.empty())
+                        .thenAccept(__ -> {
+                            s.release();
+                            latch.countDown();
+                        }).exceptionally(ex -> {
+                            log.warn("Failed to do put operation", ex);
+                            return null;
+                        });
+            }
+
+            latch.await();
+            long endTime = System.nanoTime();
+            double throughput = 1e9 * nPuts / (endTime - startTime);
+
+            log.info("[maxInFlightBatches={}] Put Throughput: {} Kops/s - {} batches", maxInFlightBatches,
+                    throughput / 1_000, store.getBatches());
+        }
+    }
+
     private void generateKeys(MetadataStore store, String prefix, int n) {
         byte[] payload = new byte[128];
         List<CompletableFuture<?>> futures = new ArrayList<>();
@@ -22,6 +22,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.spy;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotEquals;
 import static org.testng.Assert.assertNotSame;
 import static org.testng.Assert.assertSame;
@@ -692,6 +693,44 @@ public class MetadataCacheTest extends BaseMetadataStoreTest {
         });
     }
 
+    @Test(dataProvider = "impl")
+    public void testNearCache(String provider, Supplier<String> urlSupplier) throws Exception {
+        @Cleanup
+        MetadataStore store = MetadataStoreFactory.create(urlSupplier.get(),
+                MetadataStoreConfig.builder().nearCachePaths(List.of("/near")).build());
+
+        MetadataCache<MyClass> objCache = store.getMetadataCache(MyClass.class,
+                MetadataCacheConfig.<MyClass>builder().refreshAfterWriteMillis(100).expireAfterWriteMillis(200)
+                        .build());
+
+        String nearKey = "/near" + newKey();
+        String key = newKey();
+        assertEquals(objCache.get(nearKey).join(), Optional.empty());
+        assertEquals(objCache.get(key).join(), Optional.empty());
+        assertFalse(objCache.exists(nearKey).join());
+
+        // The negative entries are updated by the notifications
+        MyClass value = new MyClass("a", 1);
+        byte[] content = ObjectMapperFactory.getMapper().writer().writeValueAsBytes(value);
+        store.put(nearKey, content, Optional.empty()).join();
+        store.put(key, content, Optional.empty()).join();
+        Awaitility.await().untilAsserted(() -> {
+            assertEquals(objCache.getIfCached(nearKey), Optional.of(value));
+            assertEquals(objCache.getIfCached(key), Optional.of(value));
+        });
+        assertTrue(objCache.exists(nearKey).join());
+
+        // Only the entries out of the near-cache paths are expired
+        Thread.sleep(500);
+        assertEquals(objCache.getIfCached(nearKey), Optional.of(value));
+        assertEquals(objCache.getIfCached(key), Optional.empty());
+
+        store.delete(nearKey, Optional.empty()).join();
+        Awaitility.await().untilAsserted(() -> assertEquals(objCache.getIfCached(nearKey), Optional.empty()));
+        assertFalse(objCache.exists(nearKey).join());
+        assertEquals(objCache.get(nearKey).join(), Optional.empty());
+    }
+
     @Test
     public void testDefaultMetadataCacheConfig() {
         final var config = MetadataCacheConfig.builder().build();
@@ -27,6 +27,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 import lombok.Cleanup;
 import lombok.extern.slf4j.Slf4j;
@@ -179,4 +180,53 @@ public class MetadataStoreBatchingTest extends BaseMetadataStoreTest {
 
         FutureUtil.waitForAll(getFutures).join();
     }
+
+    @Test
+    public void testReadFusion() throws Exception {
+        @Cleanup
+        DelayedBatchedMetadataStore store = new DelayedBatchedMetadataStore(MetadataStoreConfig.builder()
+                .batchingEnabled(true)
+                .batchingMaxDelayMillis(1_000)
+                .build(), 10);
+
+        String key1 = newKey();
+        store.put(key1, new byte[]{1}, Optional.empty()).join();
+        assertEquals(store.getOps(), 1);
+
+        List<CompletableFuture<Optional<GetResult>>> getFutures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            getFutures.add(store.get(key1));
+        }
+        CompletableFuture<Optional<GetResult>> missing = store.get(key1 + "/missing");
+
+        for (CompletableFuture<Optional<GetResult>> f : getFutures) {
+            assertEquals(f.join().get().getValue(), new byte[]{1});
+        }
+        assertFalse(missing.join().isPresent());
+        // the gets of the same path in the batch are executed once
+        assertEquals(store.getOps(), 3);
+    }
+
+    @Test
+    public void testMaxInFlightBatches() throws Exception {
+        @Cleanup
+        DelayedBatchedMetadataStore store = new DelayedBatchedMetadataStore(MetadataStoreConfig.builder()
+                .batchingEnabled(true)
+                .batchingMaxDelayMillis(10_000)
+                .batchingMaxInFlightBatches(2)
+                .build(), 50);
+
+        String key1 = newKey();
+        List<CompletableFuture<Stat>> putFutures = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            putFutures.add(store.put(key1 + "/" + i, new byte[0], Optional.empty()));
+        }
+
+        // the batches are issued without waiting for the batching delay
+        FutureUtil.waitForAll(putFutures).get(5, TimeUnit.SECONDS);
+        assertEquals(store.getOps(), 100);
+        assertTrue(store.getMaxInFlightBatches() <= 2);
+        // the operations are grouped while the max number of batches are in flight
+        assertTrue(store.getBatches() < 100);
+    }
 }
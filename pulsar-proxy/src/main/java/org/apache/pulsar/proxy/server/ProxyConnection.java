@@ -62,6 +62,7 @@ import org.apache.pulsar.client.impl.conf.ConfigurationDataUtils;
 import org.apache.pulsar.client.impl.metrics.InstrumentProvider;
 import org.apache.pulsar.client.internal.PropertiesUtils;
 import org.apache.pulsar.common.api.AuthData;
+import org.apache.pulsar.common.api.proto.BaseCommand;
 import org.apache.pulsar.common.api.proto.CommandAuthResponse;
 import org.apache.pulsar.common.api.proto.CommandConnect;
 import org.apache.pulsar.common.api.proto.CommandConnected;
@@ -427,9 +428,18 @@ public class ProxyConnection extends PulsarHandler {
             state = State.ProxyConnectionToBroker;
             int maxMessageSize =
                     connected.hasMaxMessageSize() ? connected.getMaxMessageSize() : Commands.INVALID_MAX_MESSAGE_SIZE;
-            final ByteBuf msg = Commands.newConnected(connected.getProtocolVersion(), maxMessageSize,
+            BaseCommand cmd = Commands.newConnectedCommand(connected.getProtocolVersion(), maxMessageSize,
                     connected.hasFeatureFlags() && connected.getFeatureFlags().isSupportsTopicWatchers());
-            writeAndFlush(msg);
+            // The commands are forwarded to the broker, so the client must only use the features of the broker
+            FeatureFlags featureFlags = cmd.getConnected().getFeatureFlags();
+            featureFlags.setSupportsCompressionDictionaries(connected.hasFeatureFlags()
+                    && connected.getFeatureFlags().isSupportsCompressionDictionaries());
+            featureFlags.setSupportsCompactAcks(connected.hasFeatureFlags()
+                    && connected.getFeatureFlags().isSupportsCompactAcks());
+            if (connected.hasMaxCompactAckEntries()) {
+                cmd.getConnected().setMaxCompactAckEntries(connected.getMaxCompactAckEntries());
+            }
+            writeAndFlush(Commands.serializeWithSize(cmd));
         } else {
             LOG.warn("[{}] Channel is {}. ProxyConnection is in {}. "
                             + "Closing connection to broker '{}'.",
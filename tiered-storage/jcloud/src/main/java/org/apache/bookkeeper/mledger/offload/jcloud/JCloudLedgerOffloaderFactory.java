@@ -19,12 +19,15 @@
 package org.apache.bookkeeper.mledger.offload.jcloud;
 
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.Map;
 import org.apache.bookkeeper.common.util.OrderedScheduler;
 import org.apache.bookkeeper.mledger.LedgerOffloaderFactory;
 import org.apache.bookkeeper.mledger.LedgerOffloaderStats;
 import org.apache.bookkeeper.mledger.LedgerOffloaderStatsDisable;
 import org.apache.bookkeeper.mledger.offload.jcloud.impl.BlobStoreManagedLedgerOffloader;
+import org.apache.bookkeeper.mledger.offload.jcloud.impl.LocalBlockCache;
+import org.apache.bookkeeper.mledger.offload.jcloud.impl.OffloadedReadsLimiter;
 import org.apache.bookkeeper.mledger.offload.jcloud.impl.OffsetsCache;
 import org.apache.bookkeeper.mledger.offload.jcloud.provider.JCloudBlobStoreProvider;
 import org.apache.bookkeeper.mledger.offload.jcloud.provider.TieredStorageConfiguration;
@@ -35,6 +38,10 @@ import org.apache.pulsar.common.policies.data.OffloadPoliciesImpl;
  */
 public class JCloudLedgerOffloaderFactory implements LedgerOffloaderFactory<BlobStoreManagedLedgerOffloader> {
     private final OffsetsCache entryOffsetsCache = new OffsetsCache();
+    // shared by the offloaders, created with the first configuration having a block cache directory
+    private LocalBlockCache blockCache;
+    // shared by the offloaders, sized with the first configuration
+    private OffloadedReadsLimiter readsLimiter;
 
     @Override
     public boolean isDriverSupported(String driverName) {
@@ -55,7 +62,7 @@ public class JCloudLedgerOffloaderFactory implements LedgerOffloaderFactory<Blob
         TieredStorageConfiguration config =
                 TieredStorageConfiguration.create(offloadPolicies.toProperties());
         return BlobStoreManagedLedgerOffloader.create(config, userMetadata, scheduler, scheduler, offloaderStats,
-                entryOffsetsCache);
+                entryOffsetsCache, getBlockCache(config), getReadsLimiter(config));
     }
 
     @Override
@@ -67,11 +74,31 @@ public class JCloudLedgerOffloaderFactory implements LedgerOffloaderFactory<Blob
         TieredStorageConfiguration config =
                 TieredStorageConfiguration.create(offloadPolicies.toProperties());
         return BlobStoreManagedLedgerOffloader.create(config, userMetadata, scheduler, readExecutor, offloaderStats,
-                entryOffsetsCache);
+                entryOffsetsCache, getBlockCache(config), getReadsLimiter(config));
+    }
+
+    private synchronized LocalBlockCache getBlockCache(TieredStorageConfiguration config) throws IOException {
+        if (blockCache == null && config.getBlockCacheDirectory() != null) {
+            blockCache = new LocalBlockCache(Paths.get(config.getBlockCacheDirectory()),
+                    config.getBlockCacheSizeInBytes());
+        }
+        return blockCache;
+    }
+
+    private synchronized OffloadedReadsLimiter getReadsLimiter(TieredStorageConfiguration config) {
+        if (readsLimiter == null) {
+            readsLimiter = new OffloadedReadsLimiter(config.getReadMaxInflightSizeInBytes());
+        }
+        return readsLimiter;
     }
 
     @Override
     public void close() throws Exception {
         entryOffsetsCache.close();
+        synchronized (this) {
+            if (blockCache != null) {
+                blockCache.close();
+            }
+        }
     }
 }
@@ -48,6 +48,15 @@ public interface OffloadIndexBlock extends Closeable, OffloadIndexBlockV2 {
      */
     OffloadIndexEntry getIndexEntryForEntry(long messageEntryId) throws IOException;
 
+    /**
+     * Get the OffloadIndexEntry of the block that follows the block of the given index entry.
+     *
+     * @param indexEntry
+     *                      an index entry of this index block
+     * @return the offload index entry of the next block, or null if the given entry is the one of the last block
+     */
+    OffloadIndexEntry getNextIndexEntry(OffloadIndexEntry indexEntry);
+
     /**
      * Get the entry count that contained in this index Block.
      */
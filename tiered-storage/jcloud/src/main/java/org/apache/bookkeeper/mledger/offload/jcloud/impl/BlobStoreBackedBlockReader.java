@@ -0,0 +1,542 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.offload.jcloud.impl;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.bookkeeper.client.BKException;
+import org.apache.bookkeeper.client.api.LedgerEntry;
+import org.apache.bookkeeper.client.impl.LedgerEntryImpl;
+import org.apache.bookkeeper.mledger.LedgerOffloaderStats;
+import org.apache.bookkeeper.mledger.offload.jcloud.OffloadIndexBlock;
+import org.apache.bookkeeper.mledger.offload.jcloud.OffloadIndexEntry;
+import org.apache.bookkeeper.mledger.offload.jcloud.impl.DataBlockUtils.VersionCheck;
+import org.apache.pulsar.common.allocator.PulsarByteBufAllocator;
+import org.apache.pulsar.common.util.FutureUtil;
+import org.jclouds.blobstore.BlobStore;
+import org.jclouds.blobstore.KeyNotFoundException;
+import org.jclouds.blobstore.domain.Blob;
+import org.jclouds.blobstore.options.GetOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads the entries of an offloaded ledger with ranged reads of at most {@code rangeSize} bytes of the data object,
+ * reading up to {@code parallelism} of the data blocks delimited by the offload index at once. The ranges of a block
+ * are aligned on the start of the block and read one after the other, and the entries are copied out of them, so that
+ * a range is freed once decoded. A read starts at the range of the known offset of its first entry, if any, or else at
+ * the first range of the block.
+ *
+ * <p/>When a read starts right after the previous one, the range holding the next entry is kept and the ranges after
+ * it are prefetched, up to {@code parallelism} ranges in total, so that a sequential reader does not wait for them.
+ *
+ * <p/>The ranges being read and the prefetched ranges are accounted in the {@link OffloadedReadsLimiter} shared by the
+ * readers of the broker, when there is one.
+ *
+ * <p/>With a {@link LocalBlockCache}, the ranges are read from the cache when present, and the ranges read from the
+ * blob store are written to it.
+ */
+class BlobStoreBackedBlockReader implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(BlobStoreBackedBlockReader.class);
+
+    // entry length and entry id
+    private static final int ENTRY_HEADER_SIZE = 12;
+
+    private final BlobStore blobStore;
+    private final String bucket;
+    private final String key;
+    private final VersionCheck versionCheck;
+    private final OffloadIndexBlock index;
+    private final int rangeSize;
+    private final int parallelism;
+    private final Executor executor;
+    private final OffloadedReadsLimiter readsLimiter;
+    private final LocalBlockCache blockCache;
+    private final OffsetsCache entryOffsetsCache;
+    private final LedgerOffloaderStats offloaderStats;
+    private final String topicName;
+
+    // fetched or being fetched ranges, by offset, in insertion order
+    private final Map<Long, CompletableFuture<FetchedRange>> prefetchedRanges = new LinkedHashMap<>();
+    private long lastReadEntryId = -1;
+    private boolean closed = false;
+
+    BlobStoreBackedBlockReader(BlobStore blobStore, String bucket, String key, VersionCheck versionCheck,
+                               OffloadIndexBlock index, int rangeSize, int parallelism, Executor executor,
+                               OffloadedReadsLimiter readsLimiter, LocalBlockCache blockCache,
+                               OffsetsCache entryOffsetsCache, LedgerOffloaderStats offloaderStats,
+                               String topicName) {
+        this.blobStore = blobStore;
+        this.bucket = bucket;
+        this.key = key;
+        this.versionCheck = versionCheck;
+        this.index = index;
+        this.rangeSize = rangeSize;
+        this.parallelism = parallelism;
+        this.executor = executor;
+        this.readsLimiter = readsLimiter;
+        this.blockCache = blockCache;
+        this.entryOffsetsCache = entryOffsetsCache;
+        this.offloaderStats = offloaderStats;
+        this.topicName = topicName;
+    }
+
+    CompletableFuture<List<LedgerEntry>> read(long ledgerId, long firstEntry, long lastEntry) {
+        List<BlockDecoder> decoders;
+        boolean sequential;
+        try {
+            decoders = getBlockDecoders(ledgerId, firstEntry, lastEntry);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        synchronized (this) {
+            sequential = firstEntry == lastReadEntryId + 1;
+            lastReadEntryId = lastEntry;
+        }
+        if (sequential && !decoders.isEmpty()) {
+            decoders.get(decoders.size() - 1).keepLastRange = true;
+        }
+
+        List<CompletableFuture<Void>> reads = new ArrayList<>(decoders.size());
+        for (int i = 0; i < decoders.size(); i++) {
+            reads.add(new CompletableFuture<>());
+        }
+        AtomicInteger nextBlock = new AtomicInteger();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        for (int i = 0; i < Math.min(parallelism, decoders.size()); i++) {
+            readNextBlock(decoders, reads, nextBlock, failure);
+        }
+
+        return FutureUtil.waitForAll(reads).handle((__, ex) -> {
+            if (ex != null) {
+                decoders.forEach(BlockDecoder::close);
+                throw FutureUtil.wrapToCompletionException(ex);
+            }
+            List<LedgerEntry> entries = new ArrayList<>((int) (lastEntry - firstEntry + 1));
+            decoders.forEach(decoder -> entries.addAll(decoder.entries));
+            if (entries.size() != lastEntry - firstEntry + 1) {
+                log.error("Read {} entries instead of {} - {} from {}", entries.size(), firstEntry, lastEntry, key);
+                decoders.forEach(BlockDecoder::close);
+                throw FutureUtil.wrapToCompletionException(new BKException.BKUnexpectedConditionException());
+            }
+            BlockDecoder last = decoders.get(decoders.size() - 1);
+            if (last.nextEntryOffset >= 0) {
+                entryOffsetsCache.put(ledgerId, lastEntry + 1, last.nextEntryOffset);
+            }
+            if (last.lastRange != null) {
+                prefetch(last.lastRange, last.nextEntryOffset);
+            }
+            return entries;
+        });
+    }
+
+    private List<BlockDecoder> getBlockDecoders(long ledgerId, long firstEntry, long lastEntry) throws IOException {
+        List<BlockDecoder> decoders = new ArrayList<>();
+        OffloadIndexEntry indexEntry = index.getIndexEntryForEntry(firstEntry);
+        Long firstEntryOffset = entryOffsetsCache.getIfPresent(ledgerId, firstEntry);
+        while (indexEntry != null && indexEntry.getEntryId() <= lastEntry) {
+            Block block = newBlock(indexEntry);
+            long startOffset = block.start;
+            if (decoders.isEmpty() && firstEntryOffset != null
+                    && firstEntryOffset >= block.start && firstEntryOffset < block.end) {
+                startOffset = firstEntryOffset;
+            }
+            decoders.add(new BlockDecoder(ledgerId, block, startOffset, firstEntry, lastEntry));
+            indexEntry = block.next;
+        }
+        return decoders;
+    }
+
+    private Block newBlock(OffloadIndexEntry indexEntry) {
+        OffloadIndexEntry next = index.getNextIndexEntry(indexEntry);
+        return new Block(indexEntry.getDataOffset(), next == null ? index.getDataObjectLength() : next.getOffset(),
+                next);
+    }
+
+    private Range rangeAt(Block block, long offset) {
+        long start = block.start + (offset - block.start) / rangeSize * rangeSize;
+        return new Range(block, start, Math.min(start + rangeSize, block.end));
+    }
+
+    private Range nextRange(Range range) {
+        if (range.end() < range.block().end) {
+            return rangeAt(range.block(), range.end());
+        }
+        if (range.block().next == null) {
+            return null;
+        }
+        Block block = newBlock(range.block().next);
+        return rangeAt(block, block.start);
+    }
+
+    private void readNextBlock(List<BlockDecoder> decoders, List<CompletableFuture<Void>> reads,
+                               AtomicInteger nextBlock, AtomicReference<Throwable> failure) {
+        int i = nextBlock.getAndIncrement();
+        if (i >= decoders.size()) {
+            return;
+        }
+        if (failure.get() != null) {
+            // no need to read the blocks after a failed one
+            reads.get(i).completeExceptionally(failure.get());
+            readNextBlock(decoders, reads, nextBlock, failure);
+            return;
+        }
+        readBlock(decoders.get(i)).whenComplete((__, ex) -> {
+            if (ex != null) {
+                failure.compareAndSet(null, ex);
+                reads.get(i).completeExceptionally(ex);
+            } else {
+                reads.get(i).complete(null);
+            }
+            readNextBlock(decoders, reads, nextBlock, failure);
+        });
+    }
+
+    private CompletableFuture<Void> readBlock(BlockDecoder decoder) {
+        return getRange(decoder.nextRange()).thenCompose(range -> {
+            decoder.decode(range);
+            return decoder.isFinished() ? CompletableFuture.completedFuture(null) : readBlock(decoder);
+        });
+    }
+
+    private CompletableFuture<FetchedRange> getRange(Range range) {
+        CompletableFuture<FetchedRange> prefetched;
+        synchronized (this) {
+            prefetched = prefetchedRanges.remove(range.start());
+        }
+        if (prefetched == null) {
+            return fetchRange(range);
+        }
+        // fetch the range again if the prefetch failed
+        return prefetched.handle((fetched, ex) -> ex == null ? CompletableFuture.completedFuture(fetched)
+                : fetchRange(range)).thenCompose(future -> future);
+    }
+
+    /**
+     * Keeps the last range of a sequential read if the next entry starts in it, and prefetches the ranges after it.
+     */
+    private void prefetch(FetchedRange lastRange, long nextEntryOffset) {
+        List<CompletableFuture<FetchedRange>> evicted = new ArrayList<>();
+        Range range = lastRange.range();
+        ByteBuf releasedBuffer = lastRange.buffer();
+        synchronized (this) {
+            if (!closed) {
+                // the kept range is accounted again as a prefetched range
+                long permits = nextEntryOffset >= range.start() && nextEntryOffset < range.end()
+                        ? tryAcquirePermits(range.length()) : -1;
+                if (permits >= 0) {
+                    CompletableFuture<FetchedRange> previous = prefetchedRanges.put(range.start(),
+                            CompletableFuture.completedFuture(new FetchedRange(range, releasedBuffer, permits)));
+                    if (previous != null) {
+                        evicted.add(previous);
+                    }
+                    releasedBuffer = null;
+                }
+                Range next = nextRange(range);
+                for (int i = 1; i < parallelism && next != null; i++) {
+                    if (!prefetchedRanges.containsKey(next.start())) {
+                        long nextPermits = tryAcquirePermits(next.length());
+                        if (nextPermits < 0) {
+                            break;
+                        }
+                        prefetchedRanges.put(next.start(), fetchRange(next, nextPermits));
+                    }
+                    next = nextRange(next);
+                }
+                Iterator<CompletableFuture<FetchedRange>> iterator = prefetchedRanges.values().iterator();
+                while (prefetchedRanges.size() > parallelism && iterator.hasNext()) {
+                    evicted.add(iterator.next());
+                    iterator.remove();
+                }
+            }
+        }
+        if (releasedBuffer != null) {
+            releasedBuffer.release();
+        }
+        releasePermits(lastRange.permits());
+        evicted.forEach(this::releaseWhenFetched);
+    }
+
+    private CompletableFuture<FetchedRange> fetchRange(Range range) {
+        CompletableFuture<Long> permits = readsLimiter == null ? CompletableFuture.completedFuture(0L)
+                : readsLimiter.acquire(range.length());
+        return permits.thenCompose(acquired -> fetchRange(range, acquired));
+    }
+
+    private CompletableFuture<FetchedRange> fetchRange(Range range, long permits) {
+        CompletableFuture<FetchedRange> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(new FetchedRange(range, readRange(range), permits));
+                } catch (Throwable t) {
+                    releasePermits(permits);
+                    future.completeExceptionally(t);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            releasePermits(permits);
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private ByteBuf readRange(Range range) throws IOException {
+        if (blockCache == null) {
+            return readObjectRange(range.start(), range.end());
+        }
+        String objectKey = bucket + "/" + key;
+        ByteBuf buffer = blockCache.get(objectKey, range.start());
+        if (buffer != null && buffer.readableBytes() == range.length()) {
+            if (offloaderStats != null) {
+                offloaderStats.recordReadOffloadCacheHit(topicName, buffer.readableBytes());
+            }
+            return buffer;
+        }
+        if (buffer != null) {
+            buffer.release();
+        }
+        if (offloaderStats != null) {
+            offloaderStats.recordReadOffloadCacheMiss(topicName);
+        }
+        buffer = readObjectRange(range.start(), range.end());
+        blockCache.put(objectKey, range.start(), buffer);
+        return buffer;
+    }
+
+    private ByteBuf readObjectRange(long start, long end) throws IOException {
+        int length = (int) (end - start);
+        long startReadTime = System.nanoTime();
+        ByteBuf buffer = null;
+        try {
+            Blob blob = blobStore.getBlob(bucket, key, new GetOptions().range(start, end - 1));
+            if (blob == null) {
+                throw new KeyNotFoundException(bucket, key, "");
+            }
+            versionCheck.check(key, blob);
+            buffer = PulsarByteBufAllocator.DEFAULT.buffer(length, length);
+            try (InputStream stream = blob.getPayload().openStream()) {
+                while (buffer.isWritable()) {
+                    if (buffer.writeBytes(stream, buffer.writableBytes()) < 0) {
+                        throw new IOException("Unexpected end of range " + start + " - " + end + " of " + key);
+                    }
+                }
+            }
+        } catch (Throwable t) {
+            if (buffer != null) {
+                buffer.release();
+            }
+            if (offloaderStats != null) {
+                offloaderStats.recordReadOffloadError(topicName);
+            }
+            if (t instanceof KeyNotFoundException || t instanceof IOException) {
+                throw t;
+            }
+            throw new IOException("Error reading from BlobStore", t);
+        }
+        if (offloaderStats != null) {
+            offloaderStats.recordReadOffloadDataLatency(topicName, System.nanoTime() - startReadTime,
+                    TimeUnit.NANOSECONDS);
+            offloaderStats.recordReadOffloadBytes(topicName, length);
+        }
+        return buffer;
+    }
+
+    private long tryAcquirePermits(long bytes) {
+        return readsLimiter == null ? 0 : readsLimiter.tryAcquire(bytes);
+    }
+
+    private void releasePermits(long permits) {
+        if (readsLimiter != null) {
+            readsLimiter.release(permits);
+        }
+    }
+
+    private void release(FetchedRange fetched) {
+        fetched.buffer().release();
+        releasePermits(fetched.permits());
+    }
+
+    private void releaseWhenFetched(CompletableFuture<FetchedRange> range) {
+        range.thenAccept(this::release);
+    }
+
+    @Override
+    public void close() {
+        List<CompletableFuture<FetchedRange>> ranges;
+        synchronized (this) {
+            closed = true;
+            ranges = new ArrayList<>(prefetchedRanges.values());
+            prefetchedRanges.clear();
+        }
+        ranges.forEach(this::releaseWhenFetched);
+    }
+
+    /**
+     * Decodes the entries of a block from its ranges, read one after the other, copying the entries of the read out of
+     * the ranges. An entry spanning ranges is assembled as its ranges are decoded.
+     */
+    private final class BlockDecoder {
+        private final long ledgerId;
+        private final Block block;
+        private final long firstEntry;
+        private final long lastEntry;
+        private final List<LedgerEntry> entries = new ArrayList<>();
+        // offset of the next byte to decode
+        private long offset;
+        // the header, or the id and the data, of an entry spanning ranges
+        private ByteBuf header;
+        private long entryId;
+        private ByteBuf data;
+        // offset of the entry after the last one of the read, once reached
+        private long nextEntryOffset = -1;
+        private boolean done = false;
+        // keeps the last range decoded, for the prefetch of a sequential read
+        private boolean keepLastRange = false;
+        private FetchedRange lastRange;
+
+        private BlockDecoder(long ledgerId, Block block, long startOffset, long firstEntry, long lastEntry) {
+            this.ledgerId = ledgerId;
+            this.block = block;
+            this.offset = startOffset;
+            this.firstEntry = firstEntry;
+            this.lastEntry = lastEntry;
+        }
+
+        Range nextRange() {
+            return rangeAt(block, offset);
+        }
+
+        boolean isFinished() {
+            return done || offset >= block.end;
+        }
+
+        void decode(FetchedRange fetched) {
+            Range range = fetched.range();
+            ByteBuf buffer = fetched.buffer();
+            try {
+                while (!done && offset < range.end()) {
+                    int bufferIndex = buffer.readerIndex() + (int) (offset - range.start());
+                    int available = (int) (range.end() - offset);
+                    if (data != null) {
+                        int length = Math.min(data.writableBytes(), available);
+                        data.writeBytes(buffer, bufferIndex, length);
+                        offset += length;
+                        if (!data.isWritable()) {
+                            addEntry();
+                        }
+                    } else if (header != null || available < ENTRY_HEADER_SIZE) {
+                        if (header == null) {
+                            header = Unpooled.buffer(ENTRY_HEADER_SIZE, ENTRY_HEADER_SIZE);
+                        }
+                        int length = Math.min(header.writableBytes(), available);
+                        header.writeBytes(buffer, bufferIndex, length);
+                        offset += length;
+                        if (!header.isWritable()) {
+                            onHeader(header.getInt(0), header.getLong(4));
+                            header = null;
+                        }
+                    } else {
+                        offset += ENTRY_HEADER_SIZE;
+                        onHeader(buffer.getInt(bufferIndex), buffer.getLong(bufferIndex + 4));
+                    }
+                }
+            } finally {
+                if (keepLastRange && isFinished()) {
+                    lastRange = fetched;
+                } else {
+                    release(fetched);
+                }
+            }
+        }
+
+        private void onHeader(int length, long id) {
+            if (length < 0) {
+                // block padding
+                done = true;
+            } else if (id > lastEntry) {
+                nextEntryOffset = offset - ENTRY_HEADER_SIZE;
+                done = true;
+            } else if (id < firstEntry) {
+                offset += length;
+            } else {
+                entryId = id;
+                data = PulsarByteBufAllocator.DEFAULT.buffer(length, length);
+                if (length == 0) {
+                    addEntry();
+                }
+            }
+        }
+
+        private void addEntry() {
+            entries.add(LedgerEntryImpl.create(ledgerId, entryId, data.readableBytes(), data));
+            data = null;
+        }
+
+        void close() {
+            entries.forEach(LedgerEntry::close);
+            entries.clear();
+            if (data != null) {
+                data.release();
+                data = null;
+            }
+            if (lastRange != null) {
+                release(lastRange);
+                lastRange = null;
+            }
+        }
+    }
+
+    private static final class Block {
+        // offset of the block data, after the block header, and offset of the next block
+        private final long start;
+        private final long end;
+        private final OffloadIndexEntry next;
+
+        private Block(long start, long end, OffloadIndexEntry next) {
+            this.start = start;
+            this.end = end;
+            this.next = next;
+        }
+    }
+
+    private record Range(Block block, long start, long end) {
+        long length() {
+            return end - start;
+        }
+    }
+
+    // a range read from the blob store or the cache, and the bytes it holds in the reads limiter
+    private record FetchedRange(Range range, ByteBuf buffer, long permits) {
+    }
+}
@@ -47,6 +47,7 @@ public class BlobStoreBackedInputStreamImpl extends BackedInputStream {
     private LedgerOffloaderStats offloaderStats;
     private String managedLedgerName;
     private String topicName;
+    private LocalBlockCache blockCache;
 
     private long cursor;
     private long bufferOffsetStart;
@@ -77,8 +78,22 @@ public class BlobStoreBackedInputStreamImpl extends BackedInputStream {
         this.topicName = TopicName.fromPersistenceNamingEncoding(managedLedgerName);
     }
 
+    public BlobStoreBackedInputStreamImpl(BlobStore blobStore, String bucket, String key,
+                                          VersionCheck versionCheck,
+                                          long objectLen, int bufferSize,
+                                          LedgerOffloaderStats offloaderStats, String managedLedgerName,
+                                          LocalBlockCache blockCache) {
+        this(blobStore, bucket, key, versionCheck, objectLen, bufferSize, offloaderStats, managedLedgerName);
+        this.blockCache = blockCache;
+    }
+
     /**
      * Refill the buffered input if it is empty.
+     *
+     * <p/>With a {@link LocalBlockCache}, the buffer is filled with ranges aligned on the buffer size, so that the
+     * cached blocks are shared by the readers of the object, and the ranges read from the blob store are written to
+     * the cache.
+     *
      * @return true if there are bytes to read, false otherwise
      */
     private boolean refillBufferIfNeeded() throws IOException {
@@ -86,51 +101,96 @@ public class BlobStoreBackedInputStreamImpl extends BackedInputStream {
             if (cursor >= objectLen) {
                 return false;
             }
-            long startRange = cursor;
-            long endRange = Math.min(cursor + bufferSize - 1,
-                                     objectLen - 1);
-            if (log.isDebugEnabled()) {
-                log.info("refillBufferIfNeeded {} - {} ({} bytes to fill)",
-                        startRange, endRange, (endRange - startRange));
+            if (blockCache == null) {
+                readRange(cursor);
+                return true;
             }
-            try {
-                long startReadTime = System.nanoTime();
-                Blob blob = blobStore.getBlob(bucket, key, new GetOptions().range(startRange, endRange));
-                if (blob == null) {
-                    throw new KeyNotFoundException(bucket, key, "");
-                }
-                versionCheck.check(key, blob);
-
-                try (InputStream stream = blob.getPayload().openStream()) {
-                    buffer.clear();
-                    bufferOffsetStart = startRange;
-                    bufferOffsetEnd = endRange;
-                    long bytesRead = endRange - startRange + 1;
-                    int bytesToCopy = (int) bytesRead;
-                    fillBuffer(stream, bytesToCopy);
-                    cursor += buffer.readableBytes();
+            long position = cursor;
+            long startRange = position - position % bufferSize;
+            if (!readRangeFromBlockCache(startRange)) {
+                readRange(startRange);
+                if (buffer.readableBytes() == bufferOffsetEnd - bufferOffsetStart + 1) {
+                    blockCache.put(bucket + "/" + key, startRange, buffer);
                 }
+            }
+            // skip the bytes of the range before the position
+            buffer.readerIndex((int) (position - startRange));
+        }
+        return true;
+    }
 
-                // here we can get the metrics
-                // because JClouds streams the content
-                // and actually the HTTP call finishes when the stream is fully read
-                if (this.offloaderStats != null) {
-                    this.offloaderStats.recordReadOffloadDataLatency(topicName,
-                            System.nanoTime() - startReadTime, TimeUnit.NANOSECONDS);
-                    this.offloaderStats.recordReadOffloadBytes(topicName, endRange - startRange + 1);
-                }
-            } catch (Throwable e) {
-                if (null != this.offloaderStats) {
-                    this.offloaderStats.recordReadOffloadError(this.topicName);
-                }
-                // If the blob is not found, the original exception is thrown and handled by the caller.
-                if (e instanceof KeyNotFoundException) {
-                    throw e;
+    private boolean readRangeFromBlockCache(long startRange) {
+        long endRange = Math.min(startRange + bufferSize - 1, objectLen - 1);
+        ByteBuf block = blockCache.get(bucket + "/" + key, startRange);
+        try {
+            if (block == null || block.readableBytes() != endRange - startRange + 1) {
+                if (offloaderStats != null) {
+                    offloaderStats.recordReadOffloadCacheMiss(topicName);
                 }
-                throw new IOException("Error reading from BlobStore", e);
+                return false;
+            }
+            buffer.clear();
+            buffer.writeBytes(block);
+            bufferOffsetStart = startRange;
+            bufferOffsetEnd = endRange;
+            cursor = startRange + buffer.readableBytes();
+            if (offloaderStats != null) {
+                offloaderStats.recordReadOffloadCacheHit(topicName, buffer.readableBytes());
+            }
+            return true;
+        } finally {
+            if (block != null) {
+                block.release();
             }
         }
-        return true;
+    }
+
+    /**
+     * Fill the buffer with the range of the object starting at {@code startRange}, read from the blob store.
+     */
+    private void readRange(long startRange) throws IOException {
+        long endRange = Math.min(startRange + bufferSize - 1,
+                                 objectLen - 1);
+        if (log.isDebugEnabled()) {
+            log.info("refillBufferIfNeeded {} - {} ({} bytes to fill)",
+                    startRange, endRange, (endRange - startRange));
+        }
+        try {
+            long startReadTime = System.nanoTime();
+            Blob blob = blobStore.getBlob(bucket, key, new GetOptions().range(startRange, endRange));
+            if (blob == null) {
+                throw new KeyNotFoundException(bucket, key, "");
+            }
+            versionCheck.check(key, blob);
+
+            try (InputStream stream = blob.getPayload().openStream()) {
+                buffer.clear();
+                bufferOffsetStart = startRange;
+                bufferOffsetEnd = endRange;
+                long bytesRead = endRange - startRange + 1;
+                int bytesToCopy = (int) bytesRead;
+                fillBuffer(stream, bytesToCopy);
+                cursor = startRange + buffer.readableBytes();
+            }
+
+            // here we can get the metrics
+            // because JClouds streams the content
+            // and actually the HTTP call finishes when the stream is fully read
+            if (this.offloaderStats != null) {
+                this.offloaderStats.recordReadOffloadDataLatency(topicName,
+                        System.nanoTime() - startReadTime, TimeUnit.NANOSECONDS);
+                this.offloaderStats.recordReadOffloadBytes(topicName, endRange - startRange + 1);
+            }
+        } catch (Throwable e) {
+            if (null != this.offloaderStats) {
+                this.offloaderStats.recordReadOffloadError(this.topicName);
+            }
+            // If the blob is not found, the original exception is thrown and handled by the caller.
+            if (e instanceof KeyNotFoundException) {
+                throw e;
+            }
+            throw new IOException("Error reading from BlobStore", e);
+        }
     }
 
     void fillBuffer(InputStream is, int bytesToCopy) throws IOException {
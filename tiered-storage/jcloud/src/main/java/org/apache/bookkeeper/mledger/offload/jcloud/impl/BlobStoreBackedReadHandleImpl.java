@@ -26,6 +26,7 @@ import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -48,6 +49,7 @@ import org.apache.bookkeeper.mledger.offload.jcloud.OffloadIndexBlockBuilder;
 import org.apache.bookkeeper.mledger.offload.jcloud.impl.DataBlockUtils.VersionCheck;
 import org.apache.pulsar.common.allocator.PulsarByteBufAllocator;
 import org.apache.pulsar.common.naming.TopicName;
+import org.apache.pulsar.common.util.FutureUtil;
 import org.jclouds.blobstore.BlobStore;
 import org.jclouds.blobstore.KeyNotFoundException;
 import org.jclouds.blobstore.domain.Blob;
@@ -66,6 +68,8 @@ public class BlobStoreBackedReadHandleImpl implements ReadHandle, OffloadedLedge
     private final DataInputStream dataStream;
     private final ExecutorService executor;
     private final OffsetsCache entryOffsetsCache;
+    // reads the whole data blocks concurrently, instead of the input stream, when set
+    private final BlobStoreBackedBlockReader blockReader;
     private final AtomicReference<CompletableFuture<Void>> closeFuture = new AtomicReference<>();
 
     enum State {
@@ -81,13 +85,14 @@ public class BlobStoreBackedReadHandleImpl implements ReadHandle, OffloadedLedge
 
     private BlobStoreBackedReadHandleImpl(long ledgerId, OffloadIndexBlock index,
                                           BackedInputStream inputStream, ExecutorService executor,
-                                          OffsetsCache entryOffsetsCache) {
+                                          OffsetsCache entryOffsetsCache, BlobStoreBackedBlockReader blockReader) {
         this.ledgerId = ledgerId;
         this.index = index;
         this.inputStream = inputStream;
         this.dataStream = new DataInputStream(inputStream);
         this.executor = executor;
         this.entryOffsetsCache = entryOffsetsCache;
+        this.blockReader = blockReader;
         state = State.Opened;
     }
 
@@ -110,6 +115,9 @@ public class BlobStoreBackedReadHandleImpl implements ReadHandle, OffloadedLedge
         CompletableFuture<Void> promise = closeFuture.get();
         executor.execute(() -> {
             try {
+                if (blockReader != null) {
+                    blockReader.close();
+                }
                 index.close();
                 inputStream.close();
                 state = State.Closed;
@@ -155,6 +163,10 @@ public class BlobStoreBackedReadHandleImpl implements ReadHandle, OffloadedLedge
                     promise.completeExceptionally(new BKException.BKIncorrectParameterException());
                     return;
                 }
+                if (blockReader != null) {
+                    readBlocks(firstEntry, lastEntry, promise);
+                    return;
+                }
                 long entriesToRead = (lastEntry - firstEntry) + 1;
                 long nextExpectedId = firstEntry;
 
@@ -226,6 +238,23 @@ public class BlobStoreBackedReadHandleImpl implements ReadHandle, OffloadedLedge
         return promise;
     }
 
+    private void readBlocks(long firstEntry, long lastEntry, CompletableFuture<LedgerEntries> promise) {
+        blockReader.read(ledgerId, firstEntry, lastEntry).whenComplete((entries, ex) -> {
+            if (ex == null) {
+                promise.complete(LedgerEntriesImpl.create(entries));
+                return;
+            }
+            Throwable cause = FutureUtil.unwrapCompletionException(ex);
+            log.error("Failed to read entries {} - {} from the offloader in ledger {}",
+                    firstEntry, lastEntry, ledgerId, cause);
+            if (cause instanceof KeyNotFoundException) {
+                promise.completeExceptionally(new BKException.BKNoSuchLedgerExistsException());
+            } else {
+                promise.completeExceptionally(cause);
+            }
+        });
+    }
+
     private void seekToEntry(long nextExpectedId) throws IOException {
         Long knownOffset = entryOffsetsCache.getIfPresent(ledgerId, nextExpectedId);
         if (knownOffset != null) {
@@ -284,6 +313,24 @@ public class BlobStoreBackedReadHandleImpl implements ReadHandle, OffloadedLedge
                                   LedgerOffloaderStats offloaderStats, String managedLedgerName,
                                   OffsetsCache entryOffsetsCache)
             throws IOException, BKException.BKNoSuchLedgerExistsException {
+        return open(executor, blobStore, bucket, key, indexKey, versionCheck, ledgerId, readBufferSize,
+                offloaderStats, managedLedgerName, entryOffsetsCache, 1, null, null, null);
+    }
+
+    /**
+     * Opens a read handle that reads up to {@code readParallelism} data blocks at once on the
+     * {@code blockReadExecutor}, in ranges of at most {@code readBufferSize} bytes, when {@code readParallelism} is
+     * greater than 1 or when the ranges are cached in the {@code blockCache}. The ranges being read or prefetched are
+     * accounted in the {@code readsLimiter}, if any.
+     */
+    public static ReadHandle open(ScheduledExecutorService executor,
+                                  BlobStore blobStore, String bucket, String key, String indexKey,
+                                  VersionCheck versionCheck,
+                                  long ledgerId, int readBufferSize,
+                                  LedgerOffloaderStats offloaderStats, String managedLedgerName,
+                                  OffsetsCache entryOffsetsCache, int readParallelism, Executor blockReadExecutor,
+                                  LocalBlockCache blockCache, OffloadedReadsLimiter readsLimiter)
+            throws IOException, BKException.BKNoSuchLedgerExistsException {
         int retryCount = 3;
         OffloadIndexBlock index = null;
         IOException lastException = null;
@@ -323,7 +370,14 @@ public class BlobStoreBackedReadHandleImpl implements ReadHandle, OffloadedLedge
         BackedInputStream inputStream = new BlobStoreBackedInputStreamImpl(blobStore, bucket, key,
                 versionCheck, index.getDataObjectLength(), readBufferSize, offloaderStats, managedLedgerName);
 
-        return new BlobStoreBackedReadHandleImpl(ledgerId, index, inputStream, executor, entryOffsetsCache);
+        BlobStoreBackedBlockReader blockReader = null;
+        if (readParallelism > 1 || blockCache != null) {
+            blockReader = new BlobStoreBackedBlockReader(blobStore, bucket, key, versionCheck, index, readBufferSize,
+                    Math.max(readParallelism, 1), blockReadExecutor, readsLimiter, blockCache, entryOffsetsCache,
+                    offloaderStats, topicName);
+        }
+        return new BlobStoreBackedReadHandleImpl(ledgerId, index, inputStream, executor, entryOffsetsCache,
+                blockReader);
     }
 
     // for testing
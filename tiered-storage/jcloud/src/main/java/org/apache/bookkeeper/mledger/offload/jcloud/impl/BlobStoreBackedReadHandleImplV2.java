@@ -307,7 +307,7 @@ public class BlobStoreBackedReadHandleImplV2 implements ReadHandle {
                                   BlobStore blobStore, String bucket, List<String> keys, List<String> indexKeys,
                                   VersionCheck versionCheck,
                                   long ledgerId, int readBufferSize, LedgerOffloaderStats offloaderStats,
-                                  String managedLedgerName)
+                                  String managedLedgerName, LocalBlockCache blockCache)
             throws IOException, BKException.BKNoSuchLedgerExistsException {
         List<BackedInputStream> inputStreams = new LinkedList<>();
         List<OffloadIndexBlockV2> indice = new LinkedList<>();
@@ -333,7 +333,8 @@ public class BlobStoreBackedReadHandleImplV2 implements ReadHandle {
             }
 
             BackedInputStream inputStream = new BlobStoreBackedInputStreamImpl(blobStore, bucket, key,
-                    versionCheck, index.getDataObjectLength(), readBufferSize, offloaderStats, managedLedgerName);
+                    versionCheck, index.getDataObjectLength(), readBufferSize, offloaderStats, managedLedgerName,
+                    blockCache);
             inputStreams.add(inputStream);
             indice.add(index);
         }
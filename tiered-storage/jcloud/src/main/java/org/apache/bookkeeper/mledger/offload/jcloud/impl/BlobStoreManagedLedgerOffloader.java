@@ -111,6 +111,8 @@ public class BlobStoreManagedLedgerOffloader implements LedgerOffloader {
     private final AtomicLong segmentLength = new AtomicLong(0);
     private final long maxBufferLength;
     private final OffsetsCache entryOffsetsCache;
+    private final LocalBlockCache blockCache;
+    private final OffloadedReadsLimiter readsLimiter;
     private final ConcurrentLinkedQueue<Entry> offloadBuffer = new ConcurrentLinkedQueue<>();
     private CompletableFuture<OffloadResult> offloadResult;
     private volatile Position lastOfferedPosition = PositionFactory.LATEST;
@@ -130,15 +132,28 @@ public class BlobStoreManagedLedgerOffloader implements LedgerOffloader {
                                                          LedgerOffloaderStats offloaderStats,
                                                          OffsetsCache entryOffsetsCache)
             throws IOException {
+        return create(config, userMetadata, scheduler, readExecutor, offloaderStats, entryOffsetsCache, null, null);
+    }
+
+    public static BlobStoreManagedLedgerOffloader create(TieredStorageConfiguration config,
+                                                         Map<String, String> userMetadata,
+                                                         OrderedScheduler scheduler,
+                                                         OrderedScheduler readExecutor,
+                                                         LedgerOffloaderStats offloaderStats,
+                                                         OffsetsCache entryOffsetsCache,
+                                                         LocalBlockCache blockCache,
+                                                         OffloadedReadsLimiter readsLimiter)
+            throws IOException {
 
         return new BlobStoreManagedLedgerOffloader(config, scheduler, readExecutor,
-                userMetadata, offloaderStats, entryOffsetsCache);
+                userMetadata, offloaderStats, entryOffsetsCache, blockCache, readsLimiter);
     }
 
     BlobStoreManagedLedgerOffloader(TieredStorageConfiguration config, OrderedScheduler scheduler,
                                     OrderedScheduler readExecutor,
                                     Map<String, String> userMetadata, LedgerOffloaderStats offloaderStats,
-                                    OffsetsCache entryOffsetsCache) {
+                                    OffsetsCache entryOffsetsCache, LocalBlockCache blockCache,
+                                    OffloadedReadsLimiter readsLimiter) {
         this.scheduler = scheduler;
         this.readExecutor = readExecutor;
         this.userMetadata = userMetadata;
@@ -153,6 +168,8 @@ public class BlobStoreManagedLedgerOffloader implements LedgerOffloader {
         //ensure buffer can have enough content to fill a block
         this.maxBufferLength = Math.max(config.getWriteBufferSizeInBytes(), config.getMinBlockSizeInBytes());
         this.entryOffsetsCache = entryOffsetsCache;
+        this.blockCache = blockCache;
+        this.readsLimiter = readsLimiter;
         this.segmentBeginTimeMillis = System.currentTimeMillis();
         if (!Strings.isNullOrEmpty(config.getRegion())) {
             this.writeLocation = new LocationBuilder()
@@ -574,7 +591,8 @@ public class BlobStoreManagedLedgerOffloader implements LedgerOffloader {
                         DataBlockUtils.VERSION_CHECK,
                         ledgerId, config.getReadBufferSizeInBytes(),
                         this.offloaderStats, offloadDriverMetadata.get(MANAGED_LEDGER_NAME),
-                        this.entryOffsetsCache));
+                        this.entryOffsetsCache, config.getReadParallelism(), readExecutor, this.blockCache,
+                        this.readsLimiter));
             } catch (Throwable t) {
                 log.error("Failed readOffloaded: ", t);
                 promise.completeExceptionally(t);
@@ -608,7 +626,7 @@ public class BlobStoreManagedLedgerOffloader implements LedgerOffloader {
                         readBucket, keys, indexKeys,
                         DataBlockUtils.VERSION_CHECK,
                         ledgerId, config.getReadBufferSizeInBytes(),
-                        this.offloaderStats, offloadDriverMetadata.get(MANAGED_LEDGER_NAME)));
+                        this.offloaderStats, offloadDriverMetadata.get(MANAGED_LEDGER_NAME), this.blockCache));
             } catch (Throwable t) {
                 log.error("Failed readOffloaded: ", t);
                 promise.completeExceptionally(t);
@@ -0,0 +1,334 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.offload.jcloud.impl;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import io.netty.buffer.ByteBuf;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pulsar.common.allocator.PulsarByteBufAllocator;
+
+/**
+ * A cache of the data blocks of the offloaded ledgers, in the files of a local directory, ideally on an SSD,
+ * evicting the least recently used blocks beyond {@code maxSizeInBytes}.
+ *
+ * <p/>A block is a file named after the hash of the object key and of the block offset, starting with a header
+ * holding the length and the CRC32C checksum of the block. It is written and synced to a temporary file first and
+ * then renamed, and read into a pooled buffer. A file whose length doesn't match its header is dropped when the cache
+ * is loaded, and a block whose checksum doesn't match is dropped when it is read.
+ *
+ * <p/>The files of the directory are the index of the cache: they are loaded back, in the order of their last
+ * modified time, when the broker restarts. The access order of the blocks is stored in the last modified times when
+ * the cache is closed, rather than on every read. The offloaded objects are immutable, so a cached block is never
+ * stale.
+ */
+@Slf4j
+public class LocalBlockCache implements AutoCloseable {
+    private static final String BLOCK_SUFFIX = ".block";
+    private static final String TMP_SUFFIX = ".tmp";
+    private static final int MAGIC = 0x424C4B31;
+    // magic, length and checksum of the block
+    private static final int HEADER_SIZE = 12;
+
+    private final Path directory;
+    private final long maxSizeInBytes;
+
+    // file name to block length, in access order
+    private final LinkedHashMap<String, Long> blocks = new LinkedHashMap<>(16, 0.75f, true);
+    private long sizeInBytes = 0;
+    // whether a block was read since the access order was last stored
+    private boolean accessOrderChanged = false;
+
+    private record BlockHeader(int length, int checksum) {
+    }
+
+    private record StoredBlock(String name, long length, FileTime lastModifiedTime) {
+    }
+
+    public LocalBlockCache(Path directory, long maxSizeInBytes) throws IOException {
+        this.directory = directory;
+        this.maxSizeInBytes = maxSizeInBytes;
+        Files.createDirectories(directory);
+        load();
+    }
+
+    private void load() throws IOException {
+        List<StoredBlock> storedBlocks = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(TMP_SUFFIX)) {
+                    // a block that was being written when the broker stopped
+                    Files.deleteIfExists(file);
+                } else if (name.endsWith(BLOCK_SUFFIX)) {
+                    BlockHeader header;
+                    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                        header = readHeader(channel);
+                    }
+                    if (header == null) {
+                        log.warn("Dropping the incomplete offloaded block {} from {}", name, directory);
+                        Files.deleteIfExists(file);
+                        continue;
+                    }
+                    storedBlocks.add(new StoredBlock(name, header.length(), Files.getLastModifiedTime(file)));
+                }
+            }
+        }
+        storedBlocks.sort(Comparator.comparing(StoredBlock::lastModifiedTime));
+        List<String> evicted;
+        synchronized (this) {
+            for (StoredBlock storedBlock : storedBlocks) {
+                blocks.put(storedBlock.name(), storedBlock.length());
+                sizeInBytes += storedBlock.length();
+            }
+            evicted = evict();
+        }
+        deleteBlocks(evicted);
+        log.info("Loaded {} offloaded blocks, {} bytes, from {}", blocks.size(), sizeInBytes, directory);
+    }
+
+    /**
+     * Returns the block of the object at {@code offset} in a pooled buffer, or null if it is not cached. The caller
+     * has to release the buffer.
+     */
+    public ByteBuf get(String objectKey, long offset) {
+        String name = blockName(objectKey, offset);
+        synchronized (this) {
+            if (!blocks.containsKey(name)) {
+                return null;
+            }
+            // moves the block to the end of the access order
+            blocks.get(name);
+            accessOrderChanged = true;
+        }
+        ByteBuf block = null;
+        try (FileChannel channel = FileChannel.open(directory.resolve(name), StandardOpenOption.READ)) {
+            BlockHeader header = readHeader(channel);
+            if (header == null) {
+                throw new IOException("Incomplete block");
+            }
+            block = PulsarByteBufAllocator.DEFAULT.buffer(header.length(), header.length());
+            while (block.isWritable()) {
+                if (block.writeBytes(channel, HEADER_SIZE + block.writerIndex(), block.writableBytes()) < 0) {
+                    throw new EOFException();
+                }
+            }
+            if (checksum(block, block.readerIndex(), header.length()) != header.checksum()) {
+                throw new IOException("Checksum mismatch");
+            }
+            return block;
+        } catch (NoSuchFileException e) {
+            remove(name);
+        } catch (IOException e) {
+            log.warn("Failed to read the offloaded block {} from {}", name, directory, e);
+            remove(name);
+        }
+        if (block != null) {
+            block.release();
+        }
+        return null;
+    }
+
+    /**
+     * Writes the readable bytes of {@code block}, the block of the object at {@code offset}, to the cache.
+     */
+    public void put(String objectKey, long offset, ByteBuf block) {
+        int length = block.readableBytes();
+        String name = blockName(objectKey, offset);
+        synchronized (this) {
+            if (length > maxSizeInBytes || blocks.containsKey(name)) {
+                return;
+            }
+        }
+        Path tmpFile = null;
+        try {
+            tmpFile = Files.createTempFile(directory, name, TMP_SUFFIX);
+            try (FileChannel channel = FileChannel.open(tmpFile, StandardOpenOption.WRITE)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                        .putInt(MAGIC)
+                        .putInt(length)
+                        .putInt(checksum(block, block.readerIndex(), length))
+                        .flip();
+                while (header.hasRemaining()) {
+                    channel.write(header, header.position());
+                }
+                int written = 0;
+                while (written < length) {
+                    written += block.getBytes(block.readerIndex() + written, channel, HEADER_SIZE + written,
+                            length - written);
+                }
+                // the block has to be on the disk before it is renamed, a crash must not leave a renamed block
+                // without its data
+                channel.force(true);
+            }
+            Files.move(tmpFile, directory.resolve(name), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            log.warn("Failed to write the offloaded block {} to {}", name, directory, e);
+            if (tmpFile != null) {
+                deleteFile(tmpFile);
+            }
+            return;
+        }
+        List<String> evicted;
+        synchronized (this) {
+            if (blocks.put(name, (long) length) == null) {
+                sizeInBytes += length;
+            }
+            evicted = evict();
+        }
+        deleteBlocks(evicted);
+    }
+
+    /**
+     * Stores the access order of the blocks in the last modified time of their files, so that the least recently
+     * used blocks are still evicted first after a restart.
+     */
+    @Override
+    public void close() {
+        List<String> accessOrder;
+        synchronized (this) {
+            if (!accessOrderChanged) {
+                return;
+            }
+            accessOrder = new ArrayList<>(blocks.keySet());
+            accessOrderChanged = false;
+        }
+        // the most recently used block gets the current time
+        long time = System.currentTimeMillis() - accessOrder.size();
+        for (String name : accessOrder) {
+            try {
+                Files.setLastModifiedTime(directory.resolve(name), FileTime.fromMillis(++time));
+            } catch (NoSuchFileException e) {
+                // evicted in the meantime
+            } catch (IOException e) {
+                log.warn("Failed to store the access time of the offloaded block {} in {}", name, directory, e);
+            }
+        }
+    }
+
+    /**
+     * Reads the header of a block file.
+     *
+     * @return the header, or null if the file is not a complete block
+     */
+    private static BlockHeader readHeader(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < HEADER_SIZE) {
+            return null;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0) {
+                return null;
+            }
+        }
+        header.flip();
+        if (header.getInt() != MAGIC) {
+            return null;
+        }
+        int length = header.getInt();
+        int checksum = header.getInt();
+        if (size != HEADER_SIZE + (long) length) {
+            return null;
+        }
+        return new BlockHeader(length, checksum);
+    }
+
+    private static int checksum(ByteBuf buffer, int index, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.nioBuffer(index, length));
+        return (int) crc.getValue();
+    }
+
+    private List<String> evict() {
+        List<String> evicted = new ArrayList<>();
+        Iterator<Map.Entry<String, Long>> iterator = blocks.entrySet().iterator();
+        while (sizeInBytes > maxSizeInBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            sizeInBytes -= eldest.getValue();
+            evicted.add(eldest.getKey());
+            iterator.remove();
+        }
+        return evicted;
+    }
+
+    private void remove(String name) {
+        synchronized (this) {
+            Long size = blocks.remove(name);
+            if (size != null) {
+                sizeInBytes -= size;
+            }
+        }
+        deleteFile(directory.resolve(name));
+    }
+
+    private void deleteBlocks(List<String> names) {
+        // the blocks being read stay readable through the channels opened by the readers
+        for (String name : names) {
+            deleteFile(directory.resolve(name));
+        }
+    }
+
+    private static void deleteFile(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Failed to delete {}", file, e);
+        }
+    }
+
+    public synchronized long getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+    public synchronized int getBlockCount() {
+        return blocks.size();
+    }
+
+    private static String blockName(String objectKey, long offset) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(objectKey.getBytes(UTF_8));
+            return HexFormat.of().formatHex(digest.digest()) + "-" + offset + BLOCK_SUFFIX;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -113,6 +113,12 @@ public class OffloadIndexBlockImpl implements OffloadIndexBlock {
         return this.indexEntries.floorEntry(messageEntryId).getValue();
     }
 
+    @Override
+    public OffloadIndexEntry getNextIndexEntry(OffloadIndexEntry indexEntry) {
+        Map.Entry<Long, OffloadIndexEntryImpl> next = this.indexEntries.higherEntry(indexEntry.getEntryId());
+        return next == null ? null : next.getValue();
+    }
+
     @Override
     public int getEntryCount() {
         return this.indexEntries.size();
@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.offload.jcloud.impl;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The bytes of the offloaded ledgers that the block readers of a broker hold at once, either being read from the blob
+ * store or prefetched.
+ *
+ * <p/>A read waits for its bytes, in the order of the requests. A prefetch only takes the bytes that are available
+ * right away, and leaves half of the budget to the reads, so that the prefetched ranges of the idle read handles
+ * cannot block the reads. A request for more bytes than the budget is granted the whole budget, once nothing else
+ * holds it.
+ */
+public class OffloadedReadsLimiter {
+    private final long maxSizeInBytes;
+    private long remainingBytes;
+
+    private record PendingAcquire(long bytes, CompletableFuture<Long> future) {
+    }
+
+    private final Queue<PendingAcquire> pendingAcquires = new ArrayDeque<>();
+
+    public OffloadedReadsLimiter(long maxSizeInBytes) {
+        this.maxSizeInBytes = maxSizeInBytes;
+        this.remainingBytes = maxSizeInBytes;
+    }
+
+    /**
+     * Acquires {@code bytes} for a read.
+     *
+     * @return a future completed with the number of bytes acquired, to {@link #release(long)} once they are freed
+     */
+    public CompletableFuture<Long> acquire(long bytes) {
+        synchronized (this) {
+            if (pendingAcquires.isEmpty()) {
+                long acquired = tryGrant(bytes);
+                if (acquired >= 0) {
+                    return CompletableFuture.completedFuture(acquired);
+                }
+            }
+            CompletableFuture<Long> future = new CompletableFuture<>();
+            pendingAcquires.add(new PendingAcquire(bytes, future));
+            return future;
+        }
+    }
+
+    /**
+     * Acquires {@code bytes} for a prefetch, if they are available and keep half of the budget free.
+     *
+     * @return the number of bytes acquired, or -1 if they are not available
+     */
+    public synchronized long tryAcquire(long bytes) {
+        if (!pendingAcquires.isEmpty() || remainingBytes - bytes < maxSizeInBytes / 2) {
+            return -1;
+        }
+        remainingBytes -= bytes;
+        return bytes;
+    }
+
+    public void release(long bytes) {
+        if (bytes == 0) {
+            return;
+        }
+        List<Runnable> granted = new ArrayList<>();
+        synchronized (this) {
+            remainingBytes += bytes;
+            while (!pendingAcquires.isEmpty()) {
+                PendingAcquire pending = pendingAcquires.peek();
+                long acquired = tryGrant(pending.bytes());
+                if (acquired < 0) {
+                    break;
+                }
+                pendingAcquires.poll();
+                granted.add(() -> pending.future().complete(acquired));
+            }
+        }
+        // the waiting reads go on outside the lock
+        granted.forEach(Runnable::run);
+    }
+
+    private long tryGrant(long bytes) {
+        if (remainingBytes >= bytes) {
+            remainingBytes -= bytes;
+            return bytes;
+        }
+        if (bytes > maxSizeInBytes && remainingBytes == maxSizeInBytes) {
+            remainingBytes = 0;
+            return maxSizeInBytes;
+        }
+        return -1;
+    }
+
+    public synchronized long getRemainingBytes() {
+        return remainingBytes;
+    }
+}
@@ -64,6 +64,10 @@ public class TieredStorageConfiguration {
     public static final String METADATA_FIELD_MIN_BLOCK_SIZE = "minBlockSizeInBytes";
     public static final String METADATA_FIELD_READ_BUFFER_SIZE = "readBufferSizeInBytes";
     public static final String METADATA_FIELD_WRITE_BUFFER_SIZE = "writeBufferSizeInBytes";
+    public static final String METADATA_FIELD_READ_PARALLELISM = "readParallelism";
+    public static final String METADATA_FIELD_READ_MAX_INFLIGHT_SIZE = "readMaxInflightSizeInBytes";
+    public static final String METADATA_FIELD_BLOCK_CACHE_DIRECTORY = "blockCacheDirectory";
+    public static final String METADATA_FIELD_BLOCK_CACHE_SIZE = "blockCacheSizeInBytes";
     public static final String OFFLOADER_PROPERTY_PREFIX = "managedLedgerOffload";
     public static final String MAX_OFFLOAD_SEGMENT_ROLLOVER_TIME_SEC = "maxOffloadSegmentRolloverTimeInSeconds";
     public static final String MIN_OFFLOAD_SEGMENT_ROLLOVER_TIME_SEC = "minOffloadSegmentRolloverTimeInSeconds";
@@ -265,6 +269,53 @@ public class TieredStorageConfiguration {
         return MB;
     }
 
+    /**
+     * The number of blocks of an offloaded ledger that are read concurrently, and of ranges prefetched for the
+     * sequential reads. With 1, the entries are read sequentially through a buffered input stream.
+     */
+    public Integer getReadParallelism() {
+        for (String key : getKeys(METADATA_FIELD_READ_PARALLELISM)) {
+            if (configProperties.containsKey(key)) {
+                return Integer.valueOf(configProperties.get(key));
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * The bytes of the offloaded ledgers that the read handles of a broker hold at once, being read from the blob
+     * store or prefetched, when the data blocks are read in ranges.
+     */
+    public Long getReadMaxInflightSizeInBytes() {
+        for (String key : getKeys(METADATA_FIELD_READ_MAX_INFLIGHT_SIZE)) {
+            if (configProperties.containsKey(key)) {
+                return Long.valueOf(configProperties.get(key));
+            }
+        }
+        return 256L * MB;
+    }
+
+    /**
+     * The local directory caching the data blocks read from the blob store, or null when they are not cached.
+     */
+    public String getBlockCacheDirectory() {
+        for (String key : getKeys(METADATA_FIELD_BLOCK_CACHE_DIRECTORY)) {
+            if (configProperties.containsKey(key)) {
+                return configProperties.get(key);
+            }
+        }
+        return null;
+    }
+
+    public Long getBlockCacheSizeInBytes() {
+        for (String key : getKeys(METADATA_FIELD_BLOCK_CACHE_SIZE)) {
+            if (configProperties.containsKey(key)) {
+                return Long.valueOf(configProperties.get(key));
+            }
+        }
+        return 10L * 1024 * MB;
+    }
+
     public Integer getWriteBufferSizeInBytes() {
         for (String key : getKeys(METADATA_FIELD_WRITE_BUFFER_SIZE)) {
             if (configProperties.containsKey(key)) {
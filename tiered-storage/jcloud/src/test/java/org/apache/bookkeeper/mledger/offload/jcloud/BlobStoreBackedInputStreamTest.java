@@ -25,12 +25,18 @@ import static org.mockito.Mockito.verify;
 import static org.testng.Assert.assertEquals;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Random;
+import java.util.stream.Stream;
 import lombok.Cleanup;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.bookkeeper.mledger.LedgerOffloaderStatsDisable;
 import org.apache.bookkeeper.mledger.offload.jcloud.impl.BlobStoreBackedInputStreamImpl;
+import org.apache.bookkeeper.mledger.offload.jcloud.impl.LocalBlockCache;
 import org.jclouds.blobstore.BlobStore;
 import org.jclouds.blobstore.KeyNotFoundException;
 import org.jclouds.blobstore.domain.Blob;
@@ -122,6 +128,49 @@ public class BlobStoreBackedInputStreamTest extends BlobStoreTestBase {
         assertStreamsMatch(toTest, toCompare, 0);
     }
 
+    @Test
+    public void testReadingThroughBlockCache() throws Exception {
+        String objectKey = "testReadingThroughBlockCache";
+        int objectSize = 12345;
+        RandomInputStream toWrite = new RandomInputStream(0, objectSize);
+
+        Payload payload = Payloads.newInputStreamPayload(toWrite);
+        payload.getContentMetadata().setContentLength((long) objectSize);
+        Blob blob = blobStore.blobBuilder(objectKey)
+            .payload(payload)
+            .contentLength((long) objectSize)
+            .build();
+        blobStore.putBlob(BUCKET, blob);
+
+        Path directory = Files.createTempDirectory("block-cache");
+        try {
+            LocalBlockCache blockCache = new LocalBlockCache(directory, 1024 * 1024);
+            @Cleanup
+            BackedInputStream first = new BlobStoreBackedInputStreamImpl(blobStore, BUCKET, objectKey,
+                    (key, md) -> {}, objectSize, 1000, LedgerOffloaderStatsDisable.INSTANCE,
+                    "public/default/persistent/topic", blockCache);
+            assertStreamsMatch(first, new RandomInputStream(0, objectSize), 0);
+            assertEquals(blockCache.getBlockCount(), 13);
+
+            // the ranges are aligned on the buffer size, a reader starting in the middle of a range hits the cache
+            BlobStore spiedBlobStore = mock(BlobStore.class, delegatesTo(blobStore));
+            @Cleanup
+            BackedInputStream second = new BlobStoreBackedInputStreamImpl(spiedBlobStore, BUCKET, objectKey,
+                    (key, md) -> {}, objectSize, 1000, LedgerOffloaderStatsDisable.INSTANCE,
+                    "public/default/persistent/topic", blockCache);
+            RandomInputStream toCompare = new RandomInputStream(0, objectSize);
+            second.seek(1500);
+            toCompare.skip(1500);
+            assertStreamsMatch(second, toCompare, 1500);
+            verify(spiedBlobStore, times(0))
+                .getBlob(Mockito.eq(BUCKET), Mockito.eq(objectKey), ArgumentMatchers.any());
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+            }
+        }
+    }
+
     @Test
     public void testReadingFullObjectByBytes() throws Exception {
         String objectKey = "testReadingFull2";
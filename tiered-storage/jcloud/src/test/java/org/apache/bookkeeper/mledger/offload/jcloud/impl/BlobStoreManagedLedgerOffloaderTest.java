@@ -193,6 +193,57 @@ public class BlobStoreManagedLedgerOffloaderTest extends BlobStoreManagedLedgerO
         Assert.assertEquals(toTest.getState(), BlobStoreBackedReadHandleImpl.State.Closed);
     }
 
+    @Test(timeOut = 600000)  // 10 minutes.
+    public void testOffloadAndReadParallel() throws Exception {
+        @Cleanup
+        ReadHandle toWrite = buildReadHandle(DEFAULT_BLOCK_SIZE, 3);
+        @Cleanup
+        LedgerOffloader offloader = getOffloader();
+        Mockito.doReturn(DEFAULT_BLOCK_SIZE).when(mockedConfig).getMaxBlockSizeInBytes();
+        Mockito.doReturn(3).when(mockedConfig).getReadParallelism();
+        // small ranges, so that the entries and their headers span ranges
+        Mockito.doReturn(100).when(mockedConfig).getReadBufferSizeInBytes();
+
+        UUID uuid = UUID.randomUUID();
+        offloader.offload(toWrite, uuid, new HashMap<>()).get();
+
+        @Cleanup
+        ReadHandle toTest = offloader.readOffloaded(toWrite.getId(), uuid, Collections.emptyMap()).get();
+        long lac = toTest.getLastAddConfirmed();
+        assertEquals(lac, toWrite.getLastAddConfirmed());
+
+        // the whole ledger, spanning all the data blocks
+        assertSameEntries(toWrite, toTest, 0, lac);
+        // sequential reads, served from the prefetched blocks
+        for (long first = 0; first <= lac; first += 1000) {
+            assertSameEntries(toWrite, toTest, first, Math.min(first + 999, lac));
+        }
+        // random reads
+        Random random = new Random(0);
+        for (int i = 0; i < 20; i++) {
+            long first = random.nextInt((int) lac + 1);
+            long last = first + random.nextInt((int) (lac - first) + 1);
+            assertSameEntries(toWrite, toTest, first, last);
+        }
+    }
+
+    private static void assertSameEntries(ReadHandle expected, ReadHandle actual, long firstEntry, long lastEntry)
+            throws Exception {
+        try (LedgerEntries expectedEntries = expected.read(firstEntry, lastEntry);
+             LedgerEntries actualEntries = actual.read(firstEntry, lastEntry)) {
+            Iterator<LedgerEntry> expectedIter = expectedEntries.iterator();
+            Iterator<LedgerEntry> actualIter = actualEntries.iterator();
+            while (expectedIter.hasNext() && actualIter.hasNext()) {
+                LedgerEntry expectedEntry = expectedIter.next();
+                LedgerEntry actualEntry = actualIter.next();
+                assertEquals(actualEntry.getEntryId(), expectedEntry.getEntryId());
+                assertEquals(actualEntry.getEntryBuffer(), expectedEntry.getEntryBuffer());
+            }
+            Assert.assertFalse(expectedIter.hasNext());
+            Assert.assertFalse(actualIter.hasNext());
+        }
+    }
+
     @Test(timeOut = 600000)  // 10 minutes.
     public void testOffloadAndReadMetrics() throws Exception {
         @Cleanup
@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.offload.jcloud.impl;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.Stream;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class LocalBlockCacheTest {
+
+    private Path directory;
+
+    @BeforeMethod
+    public void setup() throws Exception {
+        directory = Files.createTempDirectory("block-cache");
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void cleanup() throws Exception {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    @Test
+    public void testPutAndGet() throws Exception {
+        LocalBlockCache cache = new LocalBlockCache(directory, 1024);
+        assertNull(cache.get("bucket/ledger-1", 0));
+
+        cache.put("bucket/ledger-1", 0, block(100, (byte) 1));
+        cache.put("bucket/ledger-1", 100, block(200, (byte) 2));
+        assertEquals(cache.getBlockCount(), 2);
+        assertEquals(cache.getSizeInBytes(), 300);
+
+        ByteBuf block = cache.get("bucket/ledger-1", 100);
+        assertNotNull(block);
+        assertEquals(block, block(200, (byte) 2));
+        block.release();
+        assertNull(cache.get("bucket/ledger-2", 100));
+    }
+
+    @Test
+    public void testEvictLeastRecentlyUsed() throws Exception {
+        LocalBlockCache cache = new LocalBlockCache(directory, 300);
+        cache.put("key", 0, block(100, (byte) 0));
+        cache.put("key", 100, block(100, (byte) 1));
+        cache.put("key", 200, block(100, (byte) 2));
+        cache.get("key", 0).release();
+
+        cache.put("key", 300, block(100, (byte) 3));
+        assertEquals(cache.getBlockCount(), 3);
+        assertEquals(cache.getSizeInBytes(), 300);
+        assertNull(cache.get("key", 100));
+        assertNotNull(cache.get("key", 0));
+
+        // larger than the whole cache
+        cache.put("key", 400, block(301, (byte) 4));
+        assertNull(cache.get("key", 400));
+        assertEquals(cache.getBlockCount(), 3);
+    }
+
+    @Test
+    public void testReloadAfterRestart() throws Exception {
+        LocalBlockCache cache = new LocalBlockCache(directory, 1024);
+        cache.put("key", 0, block(100, (byte) 0));
+        cache.put("key", 100, block(100, (byte) 1));
+        Files.createFile(directory.resolve("partial.tmp"));
+
+        LocalBlockCache reloaded = new LocalBlockCache(directory, 1024);
+        assertEquals(reloaded.getBlockCount(), 2);
+        assertEquals(reloaded.getSizeInBytes(), 200);
+        assertEquals(reloaded.get("key", 100), block(100, (byte) 1));
+        assertFalse(Files.exists(directory.resolve("partial.tmp")));
+
+        // a smaller cache evicts the blocks beyond its size
+        LocalBlockCache smaller = new LocalBlockCache(directory, 150);
+        assertEquals(smaller.getBlockCount(), 1);
+    }
+
+    @Test
+    public void testAccessOrderStoredOnClose() throws Exception {
+        LocalBlockCache cache = new LocalBlockCache(directory, 1024);
+        cache.put("key", 0, block(100, (byte) 0));
+        cache.put("key", 100, block(100, (byte) 1));
+        cache.get("key", 0).release();
+        cache.close();
+
+        // the block read last is evicted last
+        LocalBlockCache reloaded = new LocalBlockCache(directory, 150);
+        assertEquals(reloaded.getBlockCount(), 1);
+        assertNull(reloaded.get("key", 100));
+        assertEquals(reloaded.get("key", 0), block(100, (byte) 0));
+    }
+
+    @Test
+    public void testCorruptedBlockIsDropped() throws Exception {
+        LocalBlockCache cache = new LocalBlockCache(directory, 1024);
+        cache.put("key", 0, block(100, (byte) 0));
+        Path file = onlyBlockFile();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(block(1, (byte) 1).nioBuffer(), channel.size() - 1);
+        }
+
+        assertNull(cache.get("key", 0));
+        assertEquals(cache.getBlockCount(), 0);
+        assertEquals(cache.getSizeInBytes(), 0);
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    public void testTruncatedBlockIsDroppedOnLoad() throws Exception {
+        LocalBlockCache cache = new LocalBlockCache(directory, 1024);
+        cache.put("key", 0, block(100, (byte) 0));
+        Path file = onlyBlockFile();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 10);
+        }
+
+        LocalBlockCache reloaded = new LocalBlockCache(directory, 1024);
+        assertEquals(reloaded.getBlockCount(), 0);
+        assertTrue(Files.notExists(file));
+    }
+
+    private Path onlyBlockFile() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.findFirst().orElseThrow();
+        }
+    }
+
+    private static ByteBuf block(int size, byte value) {
+        byte[] bytes = new byte[size];
+        Arrays.fill(bytes, value);
+        return Unpooled.wrappedBuffer(bytes);
+    }
+}
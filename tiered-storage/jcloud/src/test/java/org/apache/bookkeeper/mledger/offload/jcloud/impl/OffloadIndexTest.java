@@ -20,6 +20,7 @@ package org.apache.bookkeeper.mledger.offload.jcloud.impl;
 
 import static com.google.common.base.Charsets.UTF_8;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 import com.google.common.collect.Lists;
@@ -157,6 +158,11 @@ public class OffloadIndexTest {
         OffloadIndexEntry entry33 = indexBlock.getIndexEntryForEntry(3000);
         assertEquals(entry33, entry3);
 
+        // verify getNextIndexEntry
+        assertEquals(indexBlock.getNextIndexEntry(entry1), entry2);
+        assertEquals(indexBlock.getNextIndexEntry(entry2), entry3);
+        assertNull(indexBlock.getNextIndexEntry(entry3));
+
         try {
             OffloadIndexEntry entry4 = indexBlock.getIndexEntryForEntry(6000);
             fail("Should throw IndexOutOfBoundsException.");
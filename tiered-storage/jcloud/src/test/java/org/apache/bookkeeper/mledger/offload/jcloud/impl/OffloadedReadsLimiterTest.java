@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.bookkeeper.mledger.offload.jcloud.impl;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import java.util.concurrent.CompletableFuture;
+import org.testng.annotations.Test;
+
+public class OffloadedReadsLimiterTest {
+
+    @Test
+    public void testAcquireWaitsForRelease() throws Exception {
+        OffloadedReadsLimiter limiter = new OffloadedReadsLimiter(100);
+        assertEquals(limiter.acquire(60).get().longValue(), 60);
+
+        CompletableFuture<Long> first = limiter.acquire(50);
+        CompletableFuture<Long> second = limiter.acquire(10);
+        // the reads are granted in order
+        assertFalse(first.isDone());
+        assertFalse(second.isDone());
+
+        limiter.release(60);
+        assertEquals(first.get().longValue(), 50);
+        assertEquals(second.get().longValue(), 10);
+        assertEquals(limiter.getRemainingBytes(), 40);
+    }
+
+    @Test
+    public void testTryAcquireKeepsHalfForReads() throws Exception {
+        OffloadedReadsLimiter limiter = new OffloadedReadsLimiter(100);
+        assertEquals(limiter.tryAcquire(30), 30);
+        assertEquals(limiter.tryAcquire(30), -1);
+        assertEquals(limiter.tryAcquire(20), 20);
+        assertEquals(limiter.getRemainingBytes(), 50);
+
+        // the reads can still take the other half
+        assertEquals(limiter.acquire(50).get().longValue(), 50);
+        CompletableFuture<Long> waiting = limiter.acquire(10);
+        assertFalse(waiting.isDone());
+        limiter.release(30);
+        assertEquals(limiter.tryAcquire(10), -1);
+        assertTrue(waiting.isDone());
+        assertEquals(limiter.getRemainingBytes(), 20);
+    }
+
+    @Test
+    public void testAcquireMoreThanTheBudget() throws Exception {
+        OffloadedReadsLimiter limiter = new OffloadedReadsLimiter(100);
+        assertEquals(limiter.acquire(10).get().longValue(), 10);
+        CompletableFuture<Long> large = limiter.acquire(150);
+        assertFalse(large.isDone());
+
+        limiter.release(10);
+        assertEquals(large.get().longValue(), 100);
+        assertEquals(limiter.getRemainingBytes(), 0);
+    }
+}